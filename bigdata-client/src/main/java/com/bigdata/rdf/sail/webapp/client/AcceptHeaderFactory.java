@@ -218,9 +218,16 @@ public class AcceptHeaderFactory {
      * solution sets together because the boolean format overlaps the solution
      * set format (they are both [application/sparql-results+xml] so putting
      * them together blurs the quality annotations.
+     * <p>
+     * Note: The {@link DictionaryQueryResultFormat} is the preferred format.
+     * End points which do not support it will fall back on one of the
+     * standard formats.
      */
     public static String getDefaultSolutionsAcceptHeader() {
        
+        // Make sure that our own format and parser are registered.
+        DictionaryQueryResultFormat.register();
+
         // Copy into a Set.
         final Set<TupleQueryResultFormat> values = new LinkedHashSet<TupleQueryResultFormat>(
                 TupleQueryResultFormat.values());
@@ -250,7 +257,7 @@ public class AcceptHeaderFactory {
         }
         
         final List<String> list2 = AcceptHeaderFactory.getAcceptParams(values,
-                TupleQueryResultFormat.BINARY);
+                DictionaryQueryResultFormat.FORMAT);
 
         return toString(list2);
         
@@ -0,0 +1,253 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sail.webapp.client;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.SimpleTimeZone;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
+
+/**
+ * A compact, dictionary encoded binary interchange format for SPARQL solution
+ * sets. Each distinct RDF {@link org.openrdf.model.Value} is sent once per
+ * stream and is thereafter referenced by its position in the dictionary.
+ * Numeric, boolean and date literals are sent in their native binary form
+ * when their lexical form is the canonical form for the native value (e.g.,
+ * the inline values of a bigdata database), so they never enter the
+ * dictionary.
+ * <p>
+ * The stream begins with {@link #MAGIC}, the {@link #VERSION} (an
+ * <code>int</code>), and the projected variable names. This is followed by a
+ * sequence of records, each introduced by a one byte record type. Term
+ * records append a value to the dictionary. A {@link #SOLUTIONS} record
+ * carries a chunk of solutions, each of which has one binding for each
+ * variable introduced by a one byte binding type. The {@link #RESET} record
+ * clears the dictionary, which bounds the memory demand on both sides for
+ * very large results. The stream ends with an {@link #END} record.
+ * <p>
+ * Strings are written as a varint byte length followed by the UTF-8 bytes.
+ * Signed integers are written as zig-zag encoded varints. Floating point
+ * values are written as their IEEE 754 bits (big endian).
+ */
+public final class DictionaryQueryResultFormat {
+
+    /**
+     * The MIME type.
+     */
+    public static final String MIME_TYPE = "application/x-bigdata-dictionary-results";
+
+    /**
+     * The format.
+     */
+    public static final TupleQueryResultFormat FORMAT = new TupleQueryResultFormat(
+            "Bigdata Dictionary Results", MIME_TYPE, "bdr");
+
+    /**
+     * The magic bytes at the start of the stream.
+     */
+    public static final byte[] MAGIC = new byte[] { 'B', 'G', 'D', 'R' };
+
+    /**
+     * The current version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /*
+     * Record types.
+     */
+
+    /** The end of the stream. */
+    public static final byte END = 0;
+
+    /** A URI term (string). */
+    public static final byte TERM_URI = 1;
+
+    /** A blank node term (string). */
+    public static final byte TERM_BNODE = 2;
+
+    /** A plain literal term (string). */
+    public static final byte TERM_LITERAL = 3;
+
+    /** A language tagged literal term (label, language). */
+    public static final byte TERM_LANG_LITERAL = 4;
+
+    /**
+     * A datatype literal term (label, dictionary index of the datatype URI).
+     */
+    public static final byte TERM_TYPED_LITERAL = 5;
+
+    /** A chunk of solutions (varint solution count, then the solutions). */
+    public static final byte SOLUTIONS = 6;
+
+    /** Clear the dictionary. */
+    public static final byte RESET = 7;
+
+    /*
+     * Binding types.
+     */
+
+    /** The variable is not bound. */
+    public static final byte UNBOUND = 0;
+
+    /** A dictionary reference (varint). */
+    public static final byte REF = 1;
+
+    /** <code>"true"^^xsd:boolean</code> */
+    public static final byte TRUE = 2;
+
+    /** <code>"false"^^xsd:boolean</code> */
+    public static final byte FALSE = 3;
+
+    /** <code>xsd:byte</code> (one byte). */
+    public static final byte BYTE = 4;
+
+    /** <code>xsd:short</code> (zig-zag varint). */
+    public static final byte SHORT = 5;
+
+    /** <code>xsd:int</code> (zig-zag varint). */
+    public static final byte INT = 6;
+
+    /** <code>xsd:long</code> (zig-zag varint). */
+    public static final byte LONG = 7;
+
+    /** <code>xsd:float</code> (four bytes). */
+    public static final byte FLOAT = 8;
+
+    /** <code>xsd:double</code> (eight bytes). */
+    public static final byte DOUBLE = 9;
+
+    /** <code>xsd:integer</code> within the range of a long (zig-zag varint). */
+    public static final byte INTEGER = 10;
+
+    /**
+     * <code>xsd:dateTime</code> (zig-zag varint milliseconds since the epoch,
+     * zig-zag varint timezone offset in minutes or {@link #NO_TIMEZONE}, one
+     * byte which is non-zero iff there are fractional seconds).
+     */
+    public static final byte DATETIME = 11;
+
+    /**
+     * <code>xsd:date</code> (zig-zag varint milliseconds since the epoch,
+     * zig-zag varint timezone offset in minutes or {@link #NO_TIMEZONE}).
+     */
+    public static final byte DATE = 12;
+
+    /**
+     * The timezone offset used for a calendar value without a timezone.
+     */
+    public static final int NO_TIMEZONE = DatatypeConstants.FIELD_UNDEFINED;
+
+    private static final DatatypeFactory datatypeFactory;
+
+    static {
+
+        try {
+            datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        TupleQueryResultFormat.register(FORMAT);
+
+    }
+
+    private DictionaryQueryResultFormat() {
+    }
+
+    private static boolean registered = false;
+
+    /**
+     * Register the {@link #FORMAT} and the
+     * {@link DictionaryQueryResultParserFactory}. This is invoked before the
+     * default <code>Accept</code> header for solution sets is computed.
+     */
+    synchronized public static void register() {
+
+        if (registered)
+            return;
+
+        TupleQueryResultParserRegistry.getInstance().add(
+                new DictionaryQueryResultParserFactory());
+
+        registered = true;
+
+    }
+
+    /**
+     * Return the lexical form of a {@link #DATETIME} or {@link #DATE} value.
+     * 
+     * @param millis
+     *            The milliseconds since the epoch.
+     * @param timezone
+     *            The timezone offset in minutes -or- {@link #NO_TIMEZONE}.
+     * @param fraction
+     *            <code>true</code> iff the lexical form includes fractional
+     *            seconds.
+     * @param date
+     *            <code>true</code> for an <code>xsd:date</code>.
+     */
+    public static String formatCalendar(final long millis, final int timezone,
+            final boolean fraction, final boolean date) {
+
+        final GregorianCalendar c = new GregorianCalendar(new SimpleTimeZone(
+                timezone == NO_TIMEZONE ? 0 : timezone * 60000, "UTC"));
+
+        c.setGregorianChange(new Date(Long.MIN_VALUE));
+
+        c.setTimeInMillis(millis);
+
+        final XMLGregorianCalendar x = datatypeFactory.newXMLGregorianCalendar(c);
+
+        if (timezone == NO_TIMEZONE)
+            x.setTimezone(DatatypeConstants.FIELD_UNDEFINED);
+
+        if (date) {
+
+            x.setTime(DatatypeConstants.FIELD_UNDEFINED,
+                    DatatypeConstants.FIELD_UNDEFINED,
+                    DatatypeConstants.FIELD_UNDEFINED);
+
+        } else if (!fraction) {
+
+            x.setFractionalSecond(null);
+
+        }
+
+        return x.toXMLFormat();
+
+    }
+
+}
@@ -0,0 +1,322 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sail.webapp.client;
+
+import static com.bigdata.rdf.sail.webapp.client.DictionaryQueryResultFormat.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.impl.ListBindingSet;
+import org.openrdf.query.resultio.QueryResultParseException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserBase;
+
+/**
+ * Parser for the {@link DictionaryQueryResultFormat}.
+ */
+public class DictionaryQueryResultParser extends TupleQueryResultParserBase {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private DataInputStream in;
+
+    /**
+     * The dictionary (the values defined by the term records).
+     */
+    private final List<Value> dict = new ArrayList<Value>();
+
+    private byte[] buf = new byte[256];
+
+    public DictionaryQueryResultParser() {
+        super();
+    }
+
+    public DictionaryQueryResultParser(final ValueFactory valueFactory) {
+        super(valueFactory);
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+        return DictionaryQueryResultFormat.FORMAT;
+    }
+
+    @Override
+    public void parseQueryResult(final InputStream is) throws IOException,
+            QueryResultParseException, QueryResultHandlerException {
+
+        parse(is);
+
+    }
+
+    @Override
+    public synchronized void parse(final InputStream is) throws IOException,
+            QueryResultParseException, TupleQueryResultHandlerException {
+
+        if (is == null)
+            throw new IllegalArgumentException();
+
+        in = new DataInputStream(new BufferedInputStream(is));
+
+        dict.clear();
+
+        try {
+
+            final byte[] magic = new byte[MAGIC.length];
+
+            in.readFully(magic);
+
+            if (!Arrays.equals(magic, MAGIC))
+                throw new QueryResultParseException("Bad magic");
+
+            final int version = in.readInt();
+
+            if (version != VERSION)
+                throw new QueryResultParseException("Unsupported version: "
+                        + version);
+
+            final int nvars = readVarInt();
+
+            final List<String> names = new ArrayList<String>(nvars);
+
+            for (int i = 0; i < nvars; i++)
+                names.add(readString());
+
+            if (handler != null)
+                handler.startQueryResult(names);
+
+            while (true) {
+
+                final byte type = in.readByte();
+
+                switch (type) {
+                case TERM_URI:
+                    dict.add(valueFactory.createURI(readString()));
+                    break;
+                case TERM_BNODE:
+                    dict.add(valueFactory.createBNode(readString()));
+                    break;
+                case TERM_LITERAL:
+                    dict.add(valueFactory.createLiteral(readString()));
+                    break;
+                case TERM_LANG_LITERAL: {
+                    final String label = readString();
+                    dict.add(valueFactory.createLiteral(label, readString()));
+                    break;
+                }
+                case TERM_TYPED_LITERAL: {
+                    final String label = readString();
+                    dict.add(valueFactory.createLiteral(label,
+                            (URI) getTerm(readVarInt())));
+                    break;
+                }
+                case SOLUTIONS:
+                    readSolutions(names);
+                    break;
+                case RESET:
+                    dict.clear();
+                    break;
+                case END:
+                    if (handler != null)
+                        handler.endQueryResult();
+                    return;
+                default:
+                    throw new QueryResultParseException(
+                            "Unknown record type: " + type);
+                }
+
+            }
+
+        } catch (EOFException ex) {
+
+            throw new QueryResultParseException("Unexpected end of stream",
+                    ex);
+
+        } finally {
+
+            dict.clear();
+
+        }
+
+    }
+
+    private void readSolutions(final List<String> names) throws IOException,
+            QueryResultParseException, TupleQueryResultHandlerException {
+
+        final int nsolutions = readVarInt();
+
+        final int nvars = names.size();
+
+        for (int i = 0; i < nsolutions; i++) {
+
+            final Value[] values = new Value[nvars];
+
+            for (int j = 0; j < nvars; j++) {
+
+                values[j] = readBinding();
+
+            }
+
+            if (handler != null)
+                handler.handleSolution(new ListBindingSet(names, values));
+
+        }
+
+    }
+
+    private Value readBinding() throws IOException, QueryResultParseException {
+
+        final byte type = in.readByte();
+
+        switch (type) {
+        case UNBOUND:
+            return null;
+        case REF:
+            return getTerm(readVarInt());
+        case TRUE:
+            return valueFactory.createLiteral("true", XMLSchema.BOOLEAN);
+        case FALSE:
+            return valueFactory.createLiteral("false", XMLSchema.BOOLEAN);
+        case BYTE:
+            return valueFactory.createLiteral(Byte.toString(in.readByte()),
+                    XMLSchema.BYTE);
+        case SHORT:
+            return valueFactory.createLiteral(Long.toString(readZigZag()),
+                    XMLSchema.SHORT);
+        case INT:
+            return valueFactory.createLiteral(Long.toString(readZigZag()),
+                    XMLSchema.INT);
+        case LONG:
+            return valueFactory.createLiteral(Long.toString(readZigZag()),
+                    XMLSchema.LONG);
+        case INTEGER:
+            return valueFactory.createLiteral(Long.toString(readZigZag()),
+                    XMLSchema.INTEGER);
+        case FLOAT:
+            return valueFactory.createLiteral(
+                    Float.toString(in.readFloat()), XMLSchema.FLOAT);
+        case DOUBLE:
+            return valueFactory.createLiteral(
+                    Double.toString(in.readDouble()), XMLSchema.DOUBLE);
+        case DATETIME: {
+            final long millis = readZigZag();
+            final int timezone = (int) readZigZag();
+            final boolean fraction = in.readByte() != 0;
+            return valueFactory.createLiteral(
+                    formatCalendar(millis, timezone, fraction, false/* date */),
+                    XMLSchema.DATETIME);
+        }
+        case DATE: {
+            final long millis = readZigZag();
+            final int timezone = (int) readZigZag();
+            return valueFactory.createLiteral(
+                    formatCalendar(millis, timezone, false, true/* date */),
+                    XMLSchema.DATE);
+        }
+        default:
+            throw new QueryResultParseException("Unknown binding type: "
+                    + type);
+        }
+
+    }
+
+    private Value getTerm(final int index) throws QueryResultParseException {
+
+        if (index < 0 || index >= dict.size())
+            throw new QueryResultParseException("Bad term reference: " + index);
+
+        return dict.get(index);
+
+    }
+
+    private String readString() throws IOException {
+
+        final int len = readVarInt();
+
+        if (len > buf.length)
+            buf = new byte[Math.max(len, buf.length << 1)];
+
+        in.readFully(buf, 0, len);
+
+        return new String(buf, 0, len, UTF8);
+
+    }
+
+    private int readVarInt() throws IOException {
+
+        final long v = readVarLong();
+
+        if (v < 0 || v > Integer.MAX_VALUE)
+            throw new IOException("Bad varint: " + v);
+
+        return (int) v;
+
+    }
+
+    private long readVarLong() throws IOException {
+
+        long v = 0L;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+
+            final int b = in.readByte();
+
+            v |= (long) (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0)
+                return v;
+
+        }
+
+        throw new IOException("Malformed varint");
+
+    }
+
+    private long readZigZag() throws IOException {
+
+        final long v = readVarLong();
+
+        return (v >>> 1) ^ -(v & 1);
+
+    }
+
+}
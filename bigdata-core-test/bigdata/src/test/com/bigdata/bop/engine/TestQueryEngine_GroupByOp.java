@@ -1,6 +1,6 @@
 /**
 
-Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
 
 Contact:
      SYSTAP, LLC DBA Blazegraph
@@ -27,16 +27,50 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.bop.engine;
 
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase2;
 
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Bind;
+import com.bigdata.bop.Constant;
 import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.bset.StartOp;
+import com.bigdata.bop.rdf.aggregate.AVERAGE;
+import com.bigdata.bop.rdf.aggregate.COUNT;
+import com.bigdata.bop.rdf.aggregate.MAX;
+import com.bigdata.bop.rdf.aggregate.MIN;
+import com.bigdata.bop.rdf.aggregate.SUM;
+import com.bigdata.bop.solutions.GroupByOp;
+import com.bigdata.bop.solutions.GroupByRewriter;
+import com.bigdata.bop.solutions.GroupByState;
+import com.bigdata.bop.solutions.IGroupByRewriteState;
+import com.bigdata.bop.solutions.IGroupByState;
+import com.bigdata.bop.solutions.MemoryGroupByOp;
+import com.bigdata.bop.solutions.PipelinedAggregationOp;
 import com.bigdata.journal.BufferMode;
 import com.bigdata.journal.Journal;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
 import com.bigdata.relation.accesspath.IAsynchronousIterator;
 import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 /**
  * Test suite for GROUP_BY operators when integrated with the query engine. This
  * test suite is designed to examine cases where the GROUP_BY operator will have
@@ -137,6 +171,240 @@ public class TestQueryEngine_GroupByOp extends TestCase2 {
 
 	}
 
+    /**
+     * Stress test for {@link PipelinedAggregationOp} with
+     * {@link PipelineOp.Annotations#MAX_PARALLEL} GT ONE (1) when all
+     * aggregates are decomposable.
+     */
+    public void test_pipelinedAggregation_parallel_StressThreadSafe()
+            throws Exception {
+
+        for (int i = 0; i < 20; i++) {
+
+            try {
+
+                test_pipelinedAggregation_parallel();
+
+            } catch (Throwable t) {
+
+                fail("Failed after " + i + " trials", t);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Unit test for {@link PipelinedAggregationOp} with
+     * {@link PipelineOp.Annotations#MAX_PARALLEL} GT ONE (1). The
+     * {@link StartOp} breaks up the source solutions into many chunk messages,
+     * so the query engine runs several invocations of the aggregation operator
+     * concurrently, each against its own partial aggregates. The merged
+     * aggregates must agree with those computed by the {@link MemoryGroupByOp}
+     * for the same solutions.
+     * 
+     * <pre>
+     * SELECT ?x (COUNT(?y) AS ?c) (SUM(?y) AS ?s) (MIN(?y) AS ?lo) (MAX(?y) AS ?hi) (AVG(?y) AS ?avg)
+     * GROUP BY ?x
+     * </pre>
+     */
+    public void test_pipelinedAggregation_parallel() throws Exception {
+
+        final int ntrials = 2000;
+        
+        final int maxParallel = 10;
+
+        final long seed = System.nanoTime();
+
+        final IBindingSet[] expected = runGroupBy(newMemoryGroupByOp(),
+                newData(seed, ntrials));
+
+        final IBindingSet[] actual = runGroupBy(
+                newPipelinedAggregationOp(maxParallel), newData(seed, ntrials));
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder("seed=" + seed,
+                expected, Arrays.asList(actual).iterator());
+
+    }
+
+    private static final int startId = 1;
+    private static final int groupById = 2;
+
+    @SuppressWarnings("rawtypes")
+    private static final IVariable<IV> x = Var.var("x");
+
+    @SuppressWarnings("rawtypes")
+    private static final IVariable<IV> y = Var.var("y");
+
+    /**
+     * Run a GROUP BY operator against the source solutions and return the
+     * aggregated solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IBindingSet[] runGroupBy(final PipelineOp groupByOp,
+            final IBindingSet[][] chunks) throws Exception {
+
+        final UUID queryId = UUID.randomUUID();
+        final IRunningQuery q = queryEngine.eval(queryId, groupByOp,
+                null/* attributes */, new LocalChunkMessage(queryEngine,
+                        queryId, startId, -1/* partitionId */, chunks));
+
+        final List<IBindingSet> solutions = new LinkedList<IBindingSet>();
+        final ICloseableIterator<IBindingSet[]> itr = q.iterator();
+        try {
+            while (itr.hasNext()) {
+                for (IBindingSet bset : itr.next()) {
+                    solutions.add(bset);
+                }
+            }
+        } finally {
+            itr.close();
+        }
+
+        // wait for the query to terminate.
+        q.get();
+
+        final BOpStats stats = (BOpStats) q.getStats().get(groupById);
+        if (log.isInfoEnabled())
+            log.info(getClass().getName() + "." + getName() + " : " + stats);
+        assertNotNull(stats);
+        assertTrue(stats.chunksIn.get() > 1);
+
+        return solutions.toArray(new IBindingSet[solutions.size()]);
+
+    }
+
+    /**
+     * The {@link StartOp}, which breaks up the initial set of chunks into
+     * multiple chunk messages for the GROUP BY operator.
+     */
+    private static PipelineOp newStartOp() {
+
+        return new StartOp(new BOp[] {}, NV.asMap(new NV[] {//
+                new NV(BOp.Annotations.BOP_ID, startId),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                }));
+
+    }
+
+    private static PipelineOp newMemoryGroupByOp() {
+
+        final IGroupByState groupByState = newGroupByState();
+
+        return new MemoryGroupByOp(new BOp[] { newStartOp() },
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, groupById),//
+                        new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.PIPELINED, false),//
+                        new NV(PipelineOp.Annotations.MAX_MEMORY, 0),//
+                        new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                groupByState), //
+                        new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                newRewrite(groupByState)), //
+                }));
+
+    }
+
+    private static PipelineOp newPipelinedAggregationOp(final int maxParallel) {
+
+        final IGroupByState groupByState = newGroupByState();
+
+        return new PipelinedAggregationOp(new BOp[] { newStartOp() },
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, groupById),//
+                        new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.PIPELINED, true),//
+                        new NV(PipelineOp.Annotations.MAX_PARALLEL,
+                                maxParallel),//
+                        new NV(PipelineOp.Annotations.SHARED_STATE, true),//
+                        new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                        new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                groupByState), //
+                        new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                newRewrite(groupByState)), //
+                }));
+
+    }
+
+    /**
+     * COUNT, SUM, MIN, MAX and AVERAGE of <code>y</code> grouped by
+     * <code>x</code>. Each operator needs its own instance since the
+     * aggregates have internal state.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IGroupByState newGroupByState() {
+
+        final IValueExpression<?>[] select = new IValueExpression[] {
+                x,
+                new Bind(Var.var("c"), new COUNT(false/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("s"), new SUM(false/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("lo"), new MIN(false/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("hi"), new MAX(false/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("avg"), new AVERAGE(false/* distinct */,
+                        (IValueExpression<IV>) y)) };
+
+        return new GroupByState(select, new IValueExpression[] { x },
+                null/* having */);
+
+    }
+
+    private static IGroupByRewriteState newRewrite(
+            final IGroupByState groupByState) {
+
+        // Note: var() is invoked by the super class constructor.
+        final AtomicInteger i = new AtomicInteger();
+
+        return new GroupByRewriter(groupByState) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public IVariable<?> var() {
+                return Var.var("_" + i.getAndIncrement());
+            }
+
+        };
+
+    }
+
+    /**
+     * Random solutions in chunks of random non-zero size with ~100 distinct
+     * values for <code>x</code>. The same seed produces the same solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IBindingSet[][] newData(final long seed, final int nchunks) {
+
+        final Random r = new Random(seed);
+
+        final IBindingSet[][] chunks = new IBindingSet[nchunks][];
+
+        for (int i = 0; i < chunks.length; i++) {
+
+            chunks[i] = new IBindingSet[r.nextInt(10) + 1];
+
+            for (int j = 0; j < chunks[i].length; j++) {
+
+                chunks[i][j] = new ListBindingSet(new IVariable[] { x, y },
+                        new IConstant[] {
+                                new Constant<IV>(new XSDNumericIV(r.nextInt(100))),
+                                new Constant<IV>(new XSDNumericIV(r.nextInt(1000))) });
+
+            }
+
+        }
+
+        return chunks;
+
+    }
+
     /**
      * Return an {@link IAsynchronousIterator} that will read a single, chunk
      * containing all of the specified {@link IBindingSet}s.
@@ -66,12 +66,18 @@ public class TestAll extends TestCase {
         // Test suite for the guts of the JVM hash join logic.
         suite.addTestSuite(TestJVMHashJoinUtility.class);
 
+        // Test suite for the JVM hash join using primitive keys.
+        suite.addTestSuite(TestJVMPrimitiveHashJoinUtility.class);
+
         // Test suite for the guts of the HTree hash join logic.
         suite.addTestSuite(TestHTreeHashJoinUtility.class);
         
         // Test suite for a hash join with an access path.
         suite.addTestSuite(TestJVMHashJoinOp.class); // JVM
         suite.addTestSuite(TestHTreeHashJoinOp.class); // HTree
+
+        // Test suite for the join key filter for a hash join.
+        suite.addTestSuite(TestJoinKeyBloomFilter.class);
         
         // Test suite for building a hash index from solutions and joining that
         // hash index back into the pipeline.
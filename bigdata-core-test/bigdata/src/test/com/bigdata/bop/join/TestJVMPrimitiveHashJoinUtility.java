@@ -0,0 +1,339 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.FullyInlineTypedLiteralIV;
+import com.bigdata.rdf.internal.impl.literal.LiteralExtensionIV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.internal.impl.uri.VocabURIByteIV;
+import com.bigdata.rdf.internal.impl.uri.VocabURIShortIV;
+import com.bigdata.striterator.Chunkerator;
+
+/**
+ * Test suite for the {@link JVMPrimitiveHashJoinUtility} and the
+ * {@link JVMPrimitiveHashIndex}.
+ */
+public class TestJVMPrimitiveHashJoinUtility extends
+        AbstractHashJoinUtilityTestCase {
+
+    public TestJVMPrimitiveHashJoinUtility() {
+    }
+
+    public TestJVMPrimitiveHashJoinUtility(String name) {
+        super(name);
+    }
+
+    /**
+     * Note: Joins which are not supported (no join variables) use the
+     * {@link JVMHashJoinUtility}, just like the {@link JVMHashJoinOp}.
+     */
+    @Override
+    protected JVMHashJoinUtility newHashJoinUtility(final PipelineOp op,
+            final JoinTypeEnum joinType) {
+
+        if (JVMPrimitiveHashJoinUtility.isSupported(op, joinType))
+            return new JVMPrimitiveHashJoinUtility(op, joinType);
+
+        return new JVMHashJoinUtility(op, joinType);
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static IBindingSet solution(final IVariable<?> x, final IV xval,
+            final IVariable<?> y, final IV yval) {
+
+        final IBindingSet bset = new ListBindingSet();
+
+        if (xval != null)
+            bset.set(x, new Constant<IV>(xval));
+
+        if (yval != null)
+            bset.set(y, new Constant<IV>(yval));
+
+        return bset;
+
+    }
+
+    private static int countRows(final JVMPrimitiveHashIndex index,
+            final IBindingSet probe) {
+
+        int n = 0;
+
+        for (int row = index.getFirstRow(probe); row != -1; row = index
+                .getNextRow(row)) {
+
+            n++;
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Inline numeric keys, including growth of the index beyond its initial
+     * capacity, solutions having unbound or non-encodable join variables, and
+     * probes which are not equal to any key.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_primitiveIndex_inlineKeys() {
+
+        final IVariable<?> x = Var.var("x");
+        final IVariable<?> y = Var.var("y");
+
+        final JVMPrimitiveHashIndex index = new JVMPrimitiveHashIndex(
+                new IVariable[] { x }, false/* indexUnbound */, 2/* capacity */);
+
+        for (int i = 0; i < 100; i++) {
+
+            assertEquals(i, index.add(solution(x, new XSDNumericIV(i % 10), y,
+                    new XSDNumericIV(i))));
+
+        }
+
+        assertEquals(100, index.size());
+
+        assertEquals(10, index.bucketCount());
+
+        // The rows for a key are visited in the order in which they were added.
+        int expected = 3;
+        for (int row = index.getFirstRow(solution(x, new XSDNumericIV(3), null,
+                null)); row != -1; row = index.getNextRow(row)) {
+
+            assertEquals(new Constant<IV>(new XSDNumericIV(expected)), index
+                    .getSolution(row).get(y));
+
+            expected += 10;
+
+        }
+        assertEquals(103, expected);
+
+        // xsd:long is not the same IV as xsd:int.
+        assertEquals(-1, index.getFirstRow(solution(x, new XSDNumericIV(3L),
+                null, null)));
+
+        // Not in the index.
+        assertEquals(-1, index.getFirstRow(solution(x, new XSDNumericIV(10),
+                null, null)));
+
+        // Unbound join variable.
+        assertEquals(-1, index.getFirstRow(solution(null, null, y,
+                new XSDNumericIV(3))));
+
+        assertEquals(JVMPrimitiveHashIndex.DROPPED, index.add(solution(x, null,
+                y, new XSDNumericIV(3))));
+
+        // Not a fixed width IV.
+        assertEquals(JVMPrimitiveHashIndex.NOT_ENCODABLE, index.add(solution(x,
+                new FullyInlineTypedLiteralIV("3"), null, null)));
+
+        assertEquals(-1, index.getFirstRow(solution(x,
+                new FullyInlineTypedLiteralIV("3"), null, null)));
+
+        assertEquals(100, index.size());
+
+    }
+
+    /**
+     * Vocabulary and extension (e.g., date) keys. Solutions having an unbound
+     * join variable are indexed and probed when that is requested.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_primitiveIndex_vocabAndExtensionKeys() {
+
+        final IVariable<?> x = Var.var("x");
+        final IVariable<?> y = Var.var("y");
+
+        final JVMPrimitiveHashIndex index = new JVMPrimitiveHashIndex(
+                new IVariable[] { x, y }, true/* indexUnbound */, 16);
+
+        final IV date1 = new LiteralExtensionIV(new XSDNumericIV(1000L),
+                new VocabURIByteIV((byte) 5));
+
+        final IV date2 = new LiteralExtensionIV(new XSDNumericIV(1000L),
+                new VocabURIByteIV((byte) 6));
+
+        final IV vocab1 = new VocabURIByteIV((byte) 1);
+
+        final IV vocab2 = new VocabURIShortIV((short) 1);
+
+        assertEquals(0, index.add(solution(x, vocab1, y, date1)));
+        assertEquals(1, index.add(solution(x, vocab1, y, date2)));
+        assertEquals(2, index.add(solution(x, vocab2, y, date1)));
+        assertEquals(3, index.add(solution(x, vocab1, y, null)));
+
+        assertEquals(4, index.bucketCount());
+
+        assertEquals(1, countRows(index, solution(x, new VocabURIByteIV(
+                (byte) 1), y, new LiteralExtensionIV(new XSDNumericIV(1000L),
+                new VocabURIByteIV((byte) 5)))));
+
+        assertEquals(1, countRows(index, solution(x, vocab2, y, date1)));
+
+        assertEquals(1, countRows(index, solution(x, vocab1, null, null)));
+
+        assertEquals(0, countRows(index, solution(x, vocab2, y, date2)));
+
+    }
+
+    /**
+     * A build solution whose join variable can not be encoded causes the
+     * solutions to be indexed by the {@link JVMHashIndex} and the join still
+     * produces the expected solutions.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_convertOnNonEncodableSolution() {
+
+        final JoinSetup setup = new JoinSetup(getName());
+
+        final IVariable<?> x = Var.var("x");
+        final IVariable<?> y = Var.var("y");
+
+        final IV other = new FullyInlineTypedLiteralIV("other");
+
+        final List<IBindingSet> right = new LinkedList<IBindingSet>();
+        right.add(solution(x, setup.brad, y, setup.fred));
+        right.add(solution(x, other, y, setup.mary));
+        right.add(solution(x, setup.john, y, setup.paul));
+
+        final List<IBindingSet> left = new LinkedList<IBindingSet>();
+        left.add(solution(x, setup.john, null, null));
+        left.add(solution(x, other, null, null));
+        left.add(solution(x, setup.leon, null, null));
+
+        final JVMPrimitiveHashJoinUtility state = newUtility(
+                JoinTypeEnum.Normal, new IVariable[] { x });
+
+        try {
+
+            state.acceptSolutions(new Chunkerator<IBindingSet>(right
+                    .iterator()), new BOpStats());
+
+            assertFalse(state.isPrimitive());
+
+            assertEquals(3, state.getRightSolutionCount());
+
+            final TestBuffer<IBindingSet> outputBuffer = new TestBuffer<IBindingSet>();
+
+            state.hashJoin(new Chunkerator<IBindingSet>(left.iterator()),
+                    null/* stats */, outputBuffer);
+
+            assertSameSolutionsAnyOrder(new IBindingSet[] {
+                    solution(x, setup.john, y, setup.paul),
+                    solution(x, other, y, setup.mary) },
+                    outputBuffer.iterator());
+
+        } finally {
+
+            state.release();
+
+        }
+
+    }
+
+    /**
+     * The hit counters are preserved when the solutions are copied into the
+     * {@link JVMHashIndex} after the join.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_convertPreservesHitCounters() {
+
+        final JoinSetup setup = new JoinSetup(getName());
+
+        final IVariable<?> x = Var.var("x");
+        final IVariable<?> y = Var.var("y");
+
+        final List<IBindingSet> right = new LinkedList<IBindingSet>();
+        right.add(solution(x, setup.brad, y, setup.fred));
+        right.add(solution(x, setup.mary, y, setup.paul));
+        right.add(solution(x, setup.john, y, setup.leon));
+
+        final List<IBindingSet> left = new LinkedList<IBindingSet>();
+        left.add(solution(x, setup.mary, null, null));
+
+        final JVMPrimitiveHashJoinUtility state = newUtility(
+                JoinTypeEnum.Optional, new IVariable[] { x });
+
+        try {
+
+            state.acceptSolutions(new Chunkerator<IBindingSet>(right
+                    .iterator()), new BOpStats());
+
+            assertTrue(state.isPrimitive());
+
+            final TestBuffer<IBindingSet> outputBuffer = new TestBuffer<IBindingSet>();
+
+            state.hashJoin(new Chunkerator<IBindingSet>(left.iterator()),
+                    null/* stats */, outputBuffer);
+
+            // Copy the solutions into the JVMHashIndex.
+            assertEquals(3, state.getRightSolutions().bucketCount());
+
+            assertFalse(state.isPrimitive());
+
+            state.outputOptionals(outputBuffer);
+
+            assertSameSolutionsAnyOrder(new IBindingSet[] {
+                    solution(x, setup.mary, y, setup.paul),
+                    solution(x, setup.brad, y, setup.fred),
+                    solution(x, setup.john, y, setup.leon) },
+                    outputBuffer.iterator());
+
+        } finally {
+
+            state.release();
+
+        }
+
+    }
+
+    private JVMPrimitiveHashJoinUtility newUtility(final JoinTypeEnum joinType,
+            final IVariable<?>[] joinVars) {
+
+        final PipelineOp op = new MockPipelineOp(BOp.NOARGS,//
+                new NV(HashJoinAnnotations.JOIN_VARS, joinVars)//
+                );
+
+        return new JVMPrimitiveHashJoinUtility(op, joinType);
+
+    }
+
+}
@@ -0,0 +1,193 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.E;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+
+/**
+ * Test suite for the {@link JoinKeyBloomFilter}.
+ */
+public class TestJoinKeyBloomFilter extends TestCase2 {
+
+    public TestJoinKeyBloomFilter() {
+    }
+
+    public TestJoinKeyBloomFilter(String name) {
+        super(name);
+    }
+
+    private final IVariable<?> x = Var.var("x");
+
+    private final IVariable<?> y = Var.var("y");
+
+    private final IVariable<?> z = Var.var("z");
+
+    /**
+     * <code>(x y)</code>
+     */
+    private Predicate<E> newPredicate() {
+
+        return new Predicate<E>(new IVariableOrConstant[] { x, y },
+                new NV(Predicate.Annotations.RELATION_NAME,
+                        new String[] { "test" }));
+
+    }
+
+    private IBindingSet solution(final IVariable<?> var, final String val) {
+
+        final IBindingSet bset = new ListBindingSet();
+
+        bset.set(var, new Constant<String>(val));
+
+        return bset;
+
+    }
+
+    /**
+     * Every element whose join key was added is accepted and most of the
+     * others are rejected.
+     */
+    public void test_filter() {
+
+        final JoinKeyBloomFilter.Builder builder = new JoinKeyBloomFilter.Builder(
+                newPredicate(), new IVariable[] { y }, 1000/* maxKeys */);
+
+        assertTrue(builder.isEnabled());
+
+        for (int i = 0; i < 1000; i++) {
+
+            builder.add(solution(y, "v" + i));
+
+        }
+
+        // Solutions which do not bind the join variable are ignored.
+        builder.add(solution(z, "v1000"));
+
+        assertEquals(1000, builder.size());
+
+        final JoinKeyBloomFilter<E> filter = builder.build();
+
+        for (int i = 0; i < 1000; i++) {
+
+            assertTrue(filter.isValid(new E("Mary", "v" + i)));
+
+        }
+
+        int naccepted = 0;
+
+        for (int i = 1000; i < 11000; i++) {
+
+            if (filter.isValid(new E("Mary", "v" + i)))
+                naccepted++;
+
+        }
+
+        // ~1% false positive rate.
+        assertTrue("naccepted=" + naccepted, naccepted < 500);
+
+        // Objects which are not elements are not filtered.
+        assertTrue(filter.isValid("v1000"));
+
+    }
+
+    /**
+     * A filter over more than one join variable.
+     */
+    public void test_filter_twoJoinVars() {
+
+        final JoinKeyBloomFilter.Builder builder = new JoinKeyBloomFilter.Builder(
+                newPredicate(), new IVariable[] { x, y }, 10/* maxKeys */);
+
+        final IBindingSet bset = solution(x, "Mary");
+
+        bset.set(y, new Constant<String>("Paul"));
+
+        builder.add(bset);
+
+        final JoinKeyBloomFilter<E> filter = builder.build();
+
+        assertTrue(filter.isValid(new E("Mary", "Paul")));
+
+        assertFalse(filter.isValid(new E("Paul", "Mary")));
+
+    }
+
+    /**
+     * The builder is disabled when no join variable appears in the predicate
+     * and when there are too many solutions.
+     */
+    public void test_disabled() {
+
+        assertFalse(new JoinKeyBloomFilter.Builder(newPredicate(),
+                new IVariable[] { z }, 10/* maxKeys */).isEnabled());
+
+        final JoinKeyBloomFilter.Builder builder = new JoinKeyBloomFilter.Builder(
+                newPredicate(), new IVariable[] { z, x }, 2/* maxKeys */);
+
+        builder.add(solution(x, "Mary"));
+        builder.add(solution(x, "Paul"));
+
+        assertTrue(builder.isEnabled());
+
+        builder.add(solution(x, "John"));
+
+        assertFalse(builder.isEnabled());
+
+        try {
+            builder.build();
+            fail("Expecting: " + IllegalStateException.class);
+        } catch (IllegalStateException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        // Reset when the hash join runs.
+        builder.reset();
+
+        assertTrue(builder.isEnabled());
+
+        builder.add(solution(x, "John"));
+
+        assertFalse(builder.build().isValid(new E("Mary", "Paul")));
+
+        assertTrue(builder.build().isValid(new E("John", "Paul")));
+
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.bop.joinGraph.rto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+
+/**
+ * Unit tests for the decisions made by the {@link AdaptivePathEvaluator}.
+ * Evaluation of the join path is tested by an RDF specific test suite.
+ */
+public class TestAdaptivePathEvaluator extends TestCase2 {
+
+    public TestAdaptivePathEvaluator() {
+    }
+
+    public TestAdaptivePathEvaluator(String name) {
+        super(name);
+    }
+
+    public void test_diverges() {
+
+        // Within the threshold in either direction.
+        assertFalse(AdaptivePathEvaluator.diverges(100L, 100L, 10d));
+        assertFalse(AdaptivePathEvaluator.diverges(100L, 1000L, 10d));
+        assertFalse(AdaptivePathEvaluator.diverges(100L, 10L, 10d));
+
+        // Beyond the threshold in either direction.
+        assertTrue(AdaptivePathEvaluator.diverges(100L, 1001L, 10d));
+        assertTrue(AdaptivePathEvaluator.diverges(100L, 9L, 10d));
+
+        // Zero is treated as one.
+        assertFalse(AdaptivePathEvaluator.diverges(0L, 10L, 10d));
+        assertTrue(AdaptivePathEvaluator.diverges(0L, 11L, 10d));
+        assertTrue(AdaptivePathEvaluator.diverges(11L, 0L, 10d));
+
+        // A threshold of one diverges on any difference.
+        assertFalse(AdaptivePathEvaluator.diverges(5L, 5L, 1d));
+        assertTrue(AdaptivePathEvaluator.diverges(5L, 6L, 1d));
+
+    }
+
+    public void test_newSourceSample_exact() {
+
+        final IBindingSet[] solutions = newSolutions(10);
+
+        final SampleBase sample = AdaptivePathEvaluator.newSourceSample(
+                solutions, 100/* limit */);
+
+        assertEquals(10L, sample.estCard);
+        assertEquals(EstimateEnum.Exact, sample.estimateEnum);
+        assertSameArray(solutions, sample.getSample());
+
+    }
+
+    public void test_newSourceSample_stride() {
+
+        final IBindingSet[] solutions = newSolutions(1000);
+
+        final SampleBase sample = AdaptivePathEvaluator.newSourceSample(
+                solutions, 100/* limit */);
+
+        assertEquals(1000L, sample.estCard);
+        assertEquals(EstimateEnum.Normal, sample.estimateEnum);
+        assertEquals(100, sample.getSample().length);
+
+        // Every 10th solution, starting with the first.
+        for (int i = 0; i < 100; i++) {
+            assertTrue(solutions[i * 10] == sample.getSample()[i]);
+        }
+
+    }
+
+    public void test_getHashJoinVars() {
+
+        final IVariable<?> x = Var.var("x"), y = Var.var("y"), z = Var.var("z");
+
+        final List<IPredicate<?>> joined = Collections
+                .<IPredicate<?>> singletonList(new Predicate<Object>(
+                        new BOp[] { x, y }));
+
+        final Vertex v = new Vertex(new Predicate<Object>(new BOp[] { y, z }));
+
+        // Not sampled: pipeline join.
+        assertNull(AdaptivePathEvaluator.getHashJoinVars(joined, v, 1000));
+
+        v.sample = new VertexSample(500L/* estCard */, 100/* limit */,
+                EstimateEnum.Normal, new IBindingSet[0]);
+
+        // Fewer solutions than tuples in the access path: pipeline join.
+        assertNull(AdaptivePathEvaluator.getHashJoinVars(joined, v, 499));
+
+        // Otherwise a hash join on the shared variable.
+        assertTrue(Arrays.equals(new IVariable[] { y },
+                AdaptivePathEvaluator.getHashJoinVars(joined, v, 500)));
+
+        // No shared variable: pipeline join.
+        final Vertex w = new Vertex(new Predicate<Object>(new BOp[] { z,
+                Var.var("w") }));
+        w.sample = v.sample;
+        assertNull(AdaptivePathEvaluator.getHashJoinVars(joined, w, 1000));
+
+    }
+
+    private static IBindingSet[] newSolutions(final int n) {
+
+        final IBindingSet[] a = new IBindingSet[n];
+
+        for (int i = 0; i < n; i++) {
+            a[i] = new ListBindingSet();
+        }
+
+        return a;
+
+    }
+
+}
@@ -88,6 +88,11 @@ public class TestJoinGraph extends TestCase2 {
                     joinGraph.getLimit());
             assertEquals("nedges", JoinGraph.Annotations.DEFAULT_NEDGES,
                     joinGraph.getNEdges());
+            assertEquals("adaptive", JoinGraph.Annotations.DEFAULT_ADAPTIVE,
+                    joinGraph.isAdaptive());
+            assertEquals("adaptiveThreshold",
+                    JoinGraph.Annotations.DEFAULT_ADAPTIVE_THRESHOLD,
+                    joinGraph.getAdaptiveThreshold());
         }
 
         // correct acceptance, different arguments.
@@ -125,11 +130,15 @@ public class TestJoinGraph extends TestCase2 {
             };
             final int limit = 50;
             final int nedges = 1;
+            final double adaptiveThreshold = 4d;
             final JoinGraph joinGraph = new JoinGraph(new BOp[0],//
                     new NV(JoinGraph.Annotations.VERTICES, vertices),//
                     new NV(JoinGraph.Annotations.CONSTRAINTS, constraints),//
                     new NV(JoinGraph.Annotations.LIMIT, limit),//
                     new NV(JoinGraph.Annotations.NEDGES, nedges),//
+                    new NV(JoinGraph.Annotations.ADAPTIVE, true),//
+                    new NV(JoinGraph.Annotations.ADAPTIVE_THRESHOLD,
+                            adaptiveThreshold),//
                     new NV(JoinGraph.Annotations.CONTROLLER, true), //
                     new NV(JoinGraph.Annotations.EVALUATION_CONTEXT,
                             BOpEvaluationContext.CONTROLLER)//
@@ -138,6 +147,9 @@ public class TestJoinGraph extends TestCase2 {
             assertEquals("constraints", constraints, joinGraph.getConstraints());
             assertEquals("limit", limit, joinGraph.getLimit());
             assertEquals("nedges", nedges, joinGraph.getNEdges());
+            assertTrue("adaptive", joinGraph.isAdaptive());
+            assertEquals("adaptiveThreshold", adaptiveThreshold,
+                    joinGraph.getAdaptiveThreshold());
         }
 
     }
@@ -285,6 +297,28 @@ public class TestJoinGraph extends TestCase2 {
             }
         }
 
+        // Correct rejection [adaptiveThreshold].
+        {
+            try {
+                final IPredicate[] vertices = new IPredicate[] {
+                        new Predicate(new BOp[] { Var.var("x"), Var.var("y") }),//
+                        new Predicate(new BOp[] { Var.var("y"), Var.var("z") }),//
+                };
+                new JoinGraph(new BOp[0],//
+                        new NV(JoinGraph.Annotations.VERTICES, vertices),//
+                        new NV(JoinGraph.Annotations.ADAPTIVE, true),//
+                        new NV(JoinGraph.Annotations.ADAPTIVE_THRESHOLD, .5d),//
+                        new NV(JoinGraph.Annotations.CONTROLLER, true), //
+                        new NV(JoinGraph.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER)//
+                );
+                fail("Expecting: " + IllegalArgumentException.class);
+            } catch (IllegalArgumentException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+        }
+
     }
 
 }
@@ -88,6 +88,12 @@ public class TestAll extends TestCase {
         // in-memory sort operator.
         suite.addTestSuite(TestMemorySortOp.class);
 
+        // external memory sort operator.
+        suite.addTestSuite(TestNativeHeapSortOp.class);
+
+        // bounded heap sort operator for ORDER BY + LIMIT.
+        suite.addTestSuite(TestTopKSortOp.class);
+
         /*
          * Aggregation
          */
@@ -101,8 +107,8 @@ public class TestAll extends TestCase {
         // In-memory generalized aggregation operator
         suite.addTestSuite(TestMemoryGroupByOp.class);
 
-        // FIXME Enable test for Native memory generalized aggregation operator
-//        suite.addTestSuite(TestHTreeGroupByOp.class);
+        // Native memory generalized aggregation operator.
+        suite.addTestSuite(TestNativeHeapGroupByOp.class);
 
         // Pipelined aggregation operator.
         suite.addTestSuite(TestPipelinedAggregationOp.class);
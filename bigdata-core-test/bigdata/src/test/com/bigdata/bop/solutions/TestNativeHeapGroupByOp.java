@@ -0,0 +1,453 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Bind;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableFactory;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.TestMockUtility;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.bop.rdf.aggregate.COUNT;
+import com.bigdata.bop.rdf.aggregate.MAX;
+import com.bigdata.bop.rdf.aggregate.MIN;
+import com.bigdata.bop.rdf.aggregate.SUM;
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.journal.ITx;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.constraints.MathBOp;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.sparql.ast.GlobalAnnotations;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Unit tests for {@link NativeHeapGroupByOp}.
+ * <p>
+ * Note: The inherited tests use a small #of partitions but do not force the
+ * solutions onto the native heap since they use constants which are not
+ * {@link IV}s. The solutions are spilled by {@link #test_spill()}.
+ */
+public class TestNativeHeapGroupByOp extends AbstractAggregationTestCase {
+
+    public TestNativeHeapGroupByOp() {
+    }
+
+    public TestNativeHeapGroupByOp(String name) {
+        super(name);
+    }
+
+    @Override
+    protected GroupByOp newFixture(IValueExpression<?>[] select,
+            IValueExpression<?>[] groupBy, IConstraint[] having) {
+
+        return newFixture(select, groupBy, having,
+                NativeHeapGroupByOp.Annotations.DEFAULT_RUN_CAPACITY);
+
+    }
+
+    private GroupByOp newFixture(final IValueExpression<?>[] select,
+            final IValueExpression<?>[] groupBy, final IConstraint[] having,
+            final int runCapacity) {
+
+        final IGroupByState groupByState = new GroupByState(//
+                select, groupBy, having);
+
+        return new NativeHeapGroupByOp(new BOp[] {}, NV.asMap(new NV[] {//
+                new NV(BOp.Annotations.BOP_ID, 1),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(PipelineOp.Annotations.PIPELINED, true),//
+                new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                        newRewrite(groupByState)), //
+                new NV(NativeHeapGroupByOp.Annotations.PARTITION_COUNT, 3),//
+                new NV(NativeHeapGroupByOp.Annotations.RUN_CAPACITY,
+                        runCapacity),//
+        }));
+
+    }
+
+    private static IGroupByRewriteState newRewrite(
+            final IGroupByState groupByState) {
+
+        final IVariableFactory variableFactory = new MockVariableFactory();
+
+        return new GroupByRewriter(groupByState) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public IVariable<?> var() {
+                return variableFactory.var();
+            }
+
+        };
+
+    }
+
+    @Override
+    protected boolean isPipelinedAggregationOp() {
+        return false;
+    }
+
+    /**
+     * Correct rejection tests for the annotations.
+     */
+    public void test_ctor_correctRejection() {
+
+        final IVariable<?> x = Var.var("x");
+
+        final IGroupByState groupByState = new GroupByState(
+                new IValueExpression[] { x }, new IValueExpression[] { x },
+                null/* having */);
+
+        try {
+            new NativeHeapGroupByOp(new BOp[] {}, NV.asMap(new NV[] {//
+                    new NV(BOp.Annotations.BOP_ID, 1),//
+                    new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                            BOpEvaluationContext.CONTROLLER),//
+                    new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                    new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                    new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                            newRewrite(groupByState)), //
+            }));
+            fail("Expecting: " + UnsupportedOperationException.class);
+        } catch (UnsupportedOperationException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            new NativeHeapGroupByOp(new BOp[] {}, NV.asMap(new NV[] {//
+                    new NV(BOp.Annotations.BOP_ID, 1),//
+                    new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                            BOpEvaluationContext.CONTROLLER),//
+                    new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                    new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                    new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                    new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                            newRewrite(groupByState)), //
+                    new NV(NativeHeapGroupByOp.Annotations.PARTITION_COUNT, 0),//
+            }));
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Aggregates a random solution set with many groups using a small run
+     * capacity so the solutions are written onto the native heap many times
+     * while they are being accepted, then verifies that the aggregates agree
+     * with those computed by the {@link MemoryGroupByOp}.
+     * 
+     * <pre>
+     * SELECT ?x (COUNT(?y) AS ?c) (SUM(?y) AS ?s) (MIN(?y) AS ?lo) (MAX(?y) AS ?hi)
+     * GROUP BY ?x
+     * </pre>
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_spill() throws Exception {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final IValueExpression<?>[] select = new IValueExpression[] {
+                x,
+                new Bind(Var.var("c"), new COUNT(false/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("s"), new SUM(false/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("lo"), new MIN(false/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("hi"), new MAX(false/* distinct */,
+                        (IValueExpression<IV>) y)), };
+
+        final IValueExpression<?>[] groupBy = new IValueExpression[] { x };
+
+        doSpillTest(select, groupBy, null/* indexManager */);
+
+    }
+
+    /**
+     * Variant of {@link #test_spill()} using DISTINCT aggregates, including
+     * <code>COUNT(DISTINCT *)</code>.
+     * 
+     * <pre>
+     * SELECT ?x (COUNT(DISTINCT ?y) AS ?c) (SUM(DISTINCT ?y) AS ?s) (COUNT(*) AS ?n) (COUNT(DISTINCT *) AS ?d)
+     * GROUP BY ?x
+     * </pre>
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_spill_distinct() throws Exception {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final IValueExpression<?>[] select = new IValueExpression[] {
+                x,
+                new Bind(Var.var("c"), new COUNT(true/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("s"), new SUM(true/* distinct */,
+                        (IValueExpression<IV>) y)),
+                new Bind(Var.var("n"), new COUNT(false/* distinct */,
+                        (IValueExpression) Var.var("*"))),
+                new Bind(Var.var("d"), new COUNT(true/* distinct */,
+                        (IValueExpression) Var.var("*"))), };
+
+        doSpillTest(select, new IValueExpression[] { x },
+                null/* indexManager */);
+
+    }
+
+    /**
+     * Variant of {@link #test_spill()} using a nested aggregate, which is
+     * computed by a second pass over each partition.
+     * 
+     * <pre>
+     * SELECT ?x (SUM(?y+MIN(?y)) AS ?s)
+     * GROUP BY ?x
+     * </pre>
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_spill_nestedAggregate() throws Exception {
+
+        final AbstractTripleStore kb = TestMockUtility
+                .mockTripleStore(getName());
+
+        try {
+
+            final GlobalAnnotations globals = new GlobalAnnotations(kb
+                    .getLexiconRelation().getNamespace(), ITx.READ_COMMITTED);
+
+            final IVariable<IV> x = Var.var("x");
+            final IVariable<IV> y = Var.var("y");
+
+            final IValueExpression<IV> minY = new MIN(false/* distinct */,
+                    (IValueExpression<IV>) y);
+
+            final IValueExpression<?>[] select = new IValueExpression[] {
+                    x,
+                    new Bind(Var.var("s"), new SUM(false/* distinct */,
+                            new MathBOp(y, minY, MathBOp.MathOp.PLUS, globals))), };
+
+            final IValueExpression<?>[] groupBy = new IValueExpression[] { x };
+
+            assertTrue(new GroupByState(select, groupBy, null/* having */)
+                    .isNestedAggregates());
+
+            doSpillTest(select, groupBy, kb.getIndexManager());
+
+        } finally {
+
+            kb.getIndexManager().destroy();
+
+        }
+
+    }
+
+    /**
+     * Compare the aggregates computed by the {@link NativeHeapGroupByOp} when
+     * the solutions are spilled onto the native heap with those computed by
+     * the {@link MemoryGroupByOp}.
+     * 
+     * @param indexManager
+     *            The index manager for the query (optional).
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void doSpillTest(final IValueExpression<?>[] select,
+            final IValueExpression<?>[] groupBy,
+            final IIndexManager indexManager) throws Exception {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final long seed = System.nanoTime();
+
+        final IBindingSet[][] expected = newData(seed, x, y);
+
+        final IBindingSet[][] data = newData(seed, x, y);
+
+        // Compute the expected aggregates on the JVM heap.
+        final IGroupByState groupByState = new GroupByState(select, groupBy,
+                null/* having */);
+
+        final GroupByOp memoryOp = new MemoryGroupByOp(new BOp[] {},
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, 2),//
+                        new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.PIPELINED, false),//
+                        new NV(PipelineOp.Annotations.MAX_MEMORY, 0),//
+                        new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                groupByState), //
+                        new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                newRewrite(groupByState)), //
+                }));
+
+        final List<IBindingSet> tmp = new LinkedList<IBindingSet>();
+        {
+            final BOpStats stats = memoryOp.newStats();
+
+            final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                    memoryOp, stats);
+
+            final FutureTask<Void> ft = run(memoryOp, expected, sink, stats,
+                    indexManager);
+
+            final ICloseableIterator<IBindingSet[]> itr = sink.iterator();
+            try {
+                while (itr.hasNext()) {
+                    for (IBindingSet bset : itr.next()) {
+                        tmp.add(bset);
+                    }
+                }
+            } finally {
+                itr.close();
+            }
+
+            ft.get();
+        }
+
+        final GroupByOp query = newFixture(select, groupBy, null/* having */,
+                50/* runCapacity */);
+
+        final BOpStats stats = query.newStats();
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final FutureTask<Void> ft = run(query, data, sink, stats,
+                indexManager);
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(
+                tmp.toArray(new IBindingSet[tmp.size()]), sink.iterator(), ft);
+
+        assertEquals(data.length, stats.chunksIn.get());
+
+    }
+
+    /**
+     * Random solutions in several chunks with ~100 distinct values for
+     * <code>x</code>. The same seed produces the same solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IBindingSet[][] newData(final long seed,
+            final IVariable<IV> x, final IVariable<IV> y) {
+
+        final Random r = new Random(seed);
+
+        final IBindingSet[][] chunks = new IBindingSet[10][];
+
+        for (int i = 0; i < chunks.length; i++) {
+
+            chunks[i] = new IBindingSet[100];
+
+            for (int j = 0; j < chunks[i].length; j++) {
+
+                chunks[i][j] = new ListBindingSet(new IVariable[] { x, y },
+                        new IConstant[] {
+                                new Constant<IV>(new XSDNumericIV(r.nextInt(100))),
+                                new Constant<IV>(new XSDNumericIV(r.nextInt(1000))) });
+
+            }
+
+        }
+
+        return chunks;
+
+    }
+
+    /**
+     * Start the evaluation of the operator against the source solutions (as
+     * the last invocation).
+     * 
+     * @return The {@link FutureTask} for the operator.
+     */
+    private FutureTask<Void> run(final GroupByOp query,
+            final IBindingSet[][] chunks,
+            final IBlockingBuffer<IBindingSet[]> sink, final BOpStats stats,
+            final IIndexManager indexManager) {
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                chunks);
+
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */,
+                indexManager, queryContext);
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                runningQuery, -1/* partitionId */, stats, query,
+                true/* lastInvocation */, source, sink, null/* sink2 */);
+
+        final FutureTask<Void> ft = query.eval(context);
+
+        // Run the query.
+        {
+            final Thread t = new Thread() {
+                public void run() {
+                    ft.run();
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+
+        return ft;
+
+    }
+
+}
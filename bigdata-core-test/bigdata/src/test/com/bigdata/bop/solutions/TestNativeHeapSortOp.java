@@ -0,0 +1,288 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 16, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for the {@link NativeHeapSortOp}. Most tests use a small
+ * {@link NativeHeapSortOp.Annotations#RUN_CAPACITY} in order to force the
+ * solutions to be spilled onto the native heap as sorted runs which are then
+ * merged.
+ */
+public class TestNativeHeapSortOp extends TestCase2 {
+
+    public TestNativeHeapSortOp() {
+    }
+
+    public TestNativeHeapSortOp(String name) {
+        super(name);
+    }
+
+    private long termId = 1;
+
+    private IV<BigdataLiteral, ?> makeIV(final BigdataLiteral lit) {
+
+        final IV<BigdataLiteral, ?> iv = new TermId<BigdataLiteral>(
+                VTE.LITERAL, termId++);
+
+        iv.setValue(lit);
+
+        return iv;
+
+    }
+
+    private SortOp newSortOp(final ISortOrder<?>[] sors, final int runCapacity) {
+
+        return new NativeHeapSortOp(new BOp[] {}, NV.asMap(new NV[] {//
+                new NV(NativeHeapSortOp.Annotations.BOP_ID, 1),//
+                new NV(NativeHeapSortOp.Annotations.SORT_ORDER, sors),//
+                new NV(NativeHeapSortOp.Annotations.VALUE_COMPARATOR,
+                        new IVComparator()),//
+                new NV(NativeHeapSortOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(NativeHeapSortOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(PipelineOp.Annotations.REORDER_SOLUTIONS, false),//
+                new NV(NativeHeapSortOp.Annotations.LAST_PASS, true),//
+                new NV(NativeHeapSortOp.Annotations.RUN_CAPACITY, runCapacity),//
+        }));
+
+    }
+
+    /**
+     * Run the operator over the data and verify the ordered solutions.
+     */
+    private void doSortTest(final SortOp query, final IBindingSet[] data,
+            final IBindingSet[] expected) {
+
+        final BOpStats stats = query.newStats();
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                new IBindingSet[][] { data });
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final UUID queryId = UUID.randomUUID();
+        final MockQueryContext queryContext = new MockQueryContext(queryId);
+        try {
+            final IRunningQuery runningQuery = new MockRunningQuery(
+                    null/* fed */, null/* indexManager */,
+                    queryContext);
+
+            final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                    runningQuery, -1/* partitionId */, stats, query/* op */,
+                    true/* lastInvocation */, source, sink, null/* sink2 */);
+
+            final FutureTask<Void> ft = query.eval(context);
+            // Run the query.
+            {
+                final Thread t = new Thread() {
+                    public void run() {
+                        ft.run();
+                    }
+                };
+                t.setDaemon(true);
+                t.start();
+            }
+
+            // Check the solutions.
+            AbstractQueryEngineTestCase.assertSameSolutions(expected,
+                    sink.iterator(), ft);
+
+            assertEquals(1, stats.chunksIn.get());
+            assertEquals(data.length, stats.unitsIn.get());
+            assertEquals(expected.length, stats.unitsOut.get());
+
+        } finally {
+            queryContext.close();
+        }
+
+    }
+
+    /**
+     * Test with materialized IVs which are spilled onto the native heap in
+     * several sorted runs.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testMaterializedIVs() {
+
+        final BigdataValueFactory f = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+        final IConstant<IV> a = new Constant<IV>(makeIV(f.createLiteral("a")));
+        final IConstant<IV> b = new Constant<IV>(makeIV(f.createLiteral("b")));
+        final IConstant<IV> c = new Constant<IV>(makeIV(f.createLiteral("c")));
+        final IConstant<IV> d = new Constant<IV>(makeIV(f.createLiteral("d")));
+        final IConstant<IV> e = new Constant<IV>(makeIV(f.createLiteral("e")));
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+                new SortOrder(x, true/* asc */),//
+                new SortOrder(y, false/* asc */)//
+        };
+
+        final IBindingSet data[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, e }),
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { c }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { d, a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { d, b }),
+                new ListBindingSet(new IVariable<?>[] {}, new IConstant[] {}),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, c }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { b, d }),
+                new ListBindingSet(new IVariable<?>[] { y }, new IConstant[] { a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { b, b }), };
+
+        final IBindingSet expected[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { y }, new IConstant[] { a }),
+                new ListBindingSet(new IVariable<?>[] {}, new IConstant[] {}),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, e }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, c }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { b, d }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { b, b }),
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { c }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { d, b }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { d, a }), };
+
+        // Note: 4 runs (3+3+3+1).
+        doSortTest(newSortOp(sors, 3/* runCapacity */), data, expected);
+
+    }
+
+    /**
+     * Unit test with inline {@link IV}s where all solutions fit into a single
+     * run (nothing is written onto the native heap).
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testInlineIVs_singleRun() {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+        final IConstant<IV> a = new Constant<IV>(new XSDNumericIV(1));
+        final IConstant<IV> b = new Constant<IV>(new XSDNumericIV(2));
+        final IConstant<IV> c = new Constant<IV>(new XSDNumericIV(3));
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+                new SortOrder(x, false/* asc */),//
+                new SortOrder(y, true/* asc */)//
+        };
+
+        final IBindingSet data[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, b }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { c, a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, a }),
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { b }), };
+
+        final IBindingSet expected[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { c, a }),
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { b }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, b }), };
+
+        doSortTest(newSortOp(sors,
+                NativeHeapSortOp.Annotations.DEFAULT_RUN_CAPACITY), data,
+                expected);
+
+    }
+
+    /**
+     * Stress test of the k-way merge using random inline {@link IV}s with
+     * many duplicates. The expected order is computed using a stable sort on
+     * the JVM heap, so this also verifies that the merge is stable.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testRandomInlineIVs_manyRuns() {
+
+        final Random r = new Random();
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+                new SortOrder(x, true/* asc */)//
+        };
+
+        final int n = 2000;
+
+        final IBindingSet data[] = new IBindingSet[n];
+
+        for (int i = 0; i < n; i++) {
+
+            data[i] = new ListBindingSet(new IVariable<?>[] { x, y },
+                    new IConstant[] {
+                            new Constant<IV>(new XSDNumericIV(r.nextInt(100))),
+                            new Constant<IV>(new XSDNumericIV(i)) });
+
+        }
+
+        final IBindingSet expected[] = data.clone();
+
+        Arrays.sort(expected, new BindingSetComparator(sors,
+                new IVComparator()));
+
+        doSortTest(newSortOp(sors, 1 + r.nextInt(100)/* runCapacity */),
+                data, expected);
+
+    }
+
+}
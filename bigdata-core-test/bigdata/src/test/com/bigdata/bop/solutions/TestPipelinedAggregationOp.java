@@ -23,14 +23,44 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 */
 package com.bigdata.bop.solutions;
 
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+
 import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
 import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Bind;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IConstraint;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.IVariableFactory;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.bop.rdf.aggregate.AVERAGE;
+import com.bigdata.bop.rdf.aggregate.COUNT;
+import com.bigdata.bop.rdf.aggregate.MAX;
+import com.bigdata.bop.rdf.aggregate.MIN;
+import com.bigdata.bop.rdf.aggregate.SAMPLE;
+import com.bigdata.bop.rdf.aggregate.SUM;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
 
 /**
  * Unit tests for {@link PipelinedAggregationOp}.
@@ -50,6 +80,14 @@ public class TestPipelinedAggregationOp extends AbstractAggregationTestCase {
     protected GroupByOp newFixture(IValueExpression<?>[] select,
             IValueExpression<?>[] groupBy, IConstraint[] having) {
 
+        return newFixture(select, groupBy, having, 1/* maxParallel */);
+
+    }
+
+    private GroupByOp newFixture(final IValueExpression<?>[] select,
+            final IValueExpression<?>[] groupBy, final IConstraint[] having,
+            final int maxParallel) {
+
         final int groupById = 1;
 
         final IVariableFactory variableFactory = new MockVariableFactory();
@@ -75,7 +113,7 @@ public class TestPipelinedAggregationOp extends AbstractAggregationTestCase {
                         new NV(BOp.Annotations.EVALUATION_CONTEXT,
                                 BOpEvaluationContext.CONTROLLER),//
                         new NV(PipelineOp.Annotations.PIPELINED, true),//
-                        new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                        new NV(PipelineOp.Annotations.MAX_PARALLEL, maxParallel),//
                         new NV(PipelineOp.Annotations.SHARED_STATE, true),//
                         new NV(PipelineOp.Annotations.LAST_PASS, true),//
                         new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
@@ -92,4 +130,325 @@ public class TestPipelinedAggregationOp extends AbstractAggregationTestCase {
         
     }
 
+    /**
+     * Verify that {@link PipelineOp.Annotations#MAX_PARALLEL} GT ONE (1) is
+     * accepted iff all aggregates may be decomposed into partial aggregates.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_ctor_maxParallel() {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final IValueExpression<?>[] groupBy = new IValueExpression[] { x };
+
+        // COUNT is decomposable.
+        final GroupByOp op = newFixture(new IValueExpression[] {
+                x,
+                new Bind(Var.var("c"), new COUNT(false/* distinct */,
+                        (IValueExpression<IV>) y)) }, groupBy,
+                null/* having */, 5/* maxParallel */);
+
+        assertEquals(5, op.getMaxParallel());
+
+        // SAMPLE is not decomposable.
+        try {
+            newFixture(new IValueExpression[] {
+                    x,
+                    new Bind(Var.var("s"), new SAMPLE(false/* distinct */,
+                            (IValueExpression<IV>) y)) }, groupBy,
+                    null/* having */, 5/* maxParallel */);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Concurrent invocations with an explicit GROUP BY.
+     * 
+     * <pre>
+     * SELECT ?x (COUNT(?y) AS ?c) (SUM(?y) AS ?s) (MIN(?y) AS ?lo) (MAX(?y) AS ?hi) (AVG(?y) AS ?avg)
+     * GROUP BY ?x
+     * </pre>
+     */
+    public void test_parallel_groupBy() throws Exception {
+
+        doParallelTest(true/* groupBy */);
+
+    }
+
+    /**
+     * Concurrent invocations with a single implicit group.
+     * 
+     * <pre>
+     * SELECT (COUNT(?y) AS ?c) (SUM(?y) AS ?s) (MIN(?y) AS ?lo) (MAX(?y) AS ?hi) (AVG(?y) AS ?avg)
+     * </pre>
+     */
+    public void test_parallel_implicitGroup() throws Exception {
+
+        doParallelTest(false/* groupBy */);
+
+    }
+
+    /**
+     * Runs one invocation per source chunk concurrently (each invocation waits
+     * until all of them have started so they each use their own partial
+     * aggregates) followed by the last invocation, then verifies that the
+     * combined aggregates agree with those computed by the
+     * {@link MemoryGroupByOp}.
+     */
+    private void doParallelTest(final boolean explicitGroup) throws Exception {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final IValueExpression<?>[] groupBy = explicitGroup ? new IValueExpression[] { x }
+                : null;
+
+        final long seed = System.nanoTime();
+
+        final IBindingSet[][] data = newData(seed, x, y);
+
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */,
+                null/* indexManager */, queryContext);
+
+        // Compute the expected aggregates on the JVM heap.
+        final List<IBindingSet> expected = new LinkedList<IBindingSet>();
+        {
+            /*
+             * Note: The aggregates for the implicit group have internal state
+             * so each operator needs its own SELECT expressions.
+             */
+            final IGroupByState groupByState = new GroupByState(newSelect(
+                    explicitGroup, x, y), groupBy, null/* having */);
+
+            final GroupByOp memoryOp = new MemoryGroupByOp(new BOp[] {},
+                    NV.asMap(new NV[] {//
+                            new NV(BOp.Annotations.BOP_ID, 2),//
+                            new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                    BOpEvaluationContext.CONTROLLER),//
+                            new NV(PipelineOp.Annotations.PIPELINED, false),//
+                            new NV(PipelineOp.Annotations.MAX_MEMORY, 0),//
+                            new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                    groupByState), //
+                            new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                    newRewrite(groupByState)), //
+                    }));
+
+            final BOpStats stats = memoryOp.newStats();
+
+            final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                    memoryOp, stats);
+
+            final FutureTask<Void> ft = run(runningQuery, memoryOp,
+                    newData(seed, x, y), sink, stats, true/* lastInvocation */,
+                    null/* latch */);
+
+            final ICloseableIterator<IBindingSet[]> itr = sink.iterator();
+            try {
+                while (itr.hasNext()) {
+                    for (IBindingSet bset : itr.next()) {
+                        expected.add(bset);
+                    }
+                }
+            } finally {
+                itr.close();
+            }
+
+            ft.get();
+        }
+
+        final GroupByOp query = newFixture(newSelect(explicitGroup, x, y),
+                groupBy, null/* having */, data.length/* maxParallel */);
+
+        final BOpStats stats = query.newStats();
+
+        // Start one invocation per chunk.
+        final CountDownLatch latch = new CountDownLatch(data.length);
+
+        final List<FutureTask<Void>> futures = new LinkedList<FutureTask<Void>>();
+
+        for (IBindingSet[] chunk : data) {
+
+            final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                    query, stats);
+
+            futures.add(run(runningQuery, query, new IBindingSet[][] { chunk },
+                    sink, stats, false/* lastInvocation */, latch));
+
+        }
+
+        for (FutureTask<Void> ft : futures) {
+
+            ft.get();
+
+        }
+
+        // The last invocation combines the partial aggregates.
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final FutureTask<Void> ft = run(runningQuery, query,
+                new IBindingSet[0][], sink, stats, true/* lastInvocation */,
+                null/* latch */);
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(
+                expected.toArray(new IBindingSet[expected.size()]),
+                sink.iterator(), ft);
+
+        assertEquals(data.length, stats.chunksIn.get());
+
+    }
+
+    /**
+     * Return new SELECT expressions for COUNT, SUM, MIN, MAX and AVERAGE of
+     * <code>y</code>, optionally projecting <code>x</code>.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IValueExpression<?>[] newSelect(final boolean projectX,
+            final IVariable<IV> x, final IVariable<IV> y) {
+
+        final List<IValueExpression<?>> select = new LinkedList<IValueExpression<?>>();
+        if (projectX)
+            select.add(x);
+        select.add(new Bind(Var.var("c"), new COUNT(false/* distinct */,
+                (IValueExpression<IV>) y)));
+        select.add(new Bind(Var.var("s"), new SUM(false/* distinct */,
+                (IValueExpression<IV>) y)));
+        select.add(new Bind(Var.var("lo"), new MIN(false/* distinct */,
+                (IValueExpression<IV>) y)));
+        select.add(new Bind(Var.var("hi"), new MAX(false/* distinct */,
+                (IValueExpression<IV>) y)));
+        select.add(new Bind(Var.var("avg"), new AVERAGE(false/* distinct */,
+                (IValueExpression<IV>) y)));
+
+        return select.toArray(new IValueExpression[select.size()]);
+
+    }
+
+    private static IGroupByRewriteState newRewrite(
+            final IGroupByState groupByState) {
+
+        final IVariableFactory variableFactory = new MockVariableFactory();
+
+        return new GroupByRewriter(groupByState) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public IVariable<?> var() {
+                return variableFactory.var();
+            }
+
+        };
+
+    }
+
+    /**
+     * Random solutions in several chunks with ~100 distinct values for
+     * <code>x</code>. The same seed produces the same solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IBindingSet[][] newData(final long seed,
+            final IVariable<IV> x, final IVariable<IV> y) {
+
+        final Random r = new Random(seed);
+
+        final IBindingSet[][] chunks = new IBindingSet[10][];
+
+        for (int i = 0; i < chunks.length; i++) {
+
+            chunks[i] = new IBindingSet[100];
+
+            for (int j = 0; j < chunks[i].length; j++) {
+
+                chunks[i][j] = new ListBindingSet(new IVariable[] { x, y },
+                        new IConstant[] {
+                                new Constant<IV>(new XSDNumericIV(r.nextInt(100))),
+                                new Constant<IV>(new XSDNumericIV(r.nextInt(1000))) });
+
+            }
+
+        }
+
+        return chunks;
+
+    }
+
+    /**
+     * Start an invocation of the operator against the source solutions.
+     * 
+     * @param latch
+     *            When non-<code>null</code>, the invocation counts down the
+     *            latch and then awaits it before consuming its source.
+     * 
+     * @return The {@link FutureTask} for the invocation.
+     */
+    private static FutureTask<Void> run(final IRunningQuery runningQuery,
+            final GroupByOp query, final IBindingSet[][] chunks,
+            final IBlockingBuffer<IBindingSet[]> sink, final BOpStats stats,
+            final boolean lastInvocation, final CountDownLatch latch) {
+
+        final ThickAsynchronousIterator<IBindingSet[]> src = new ThickAsynchronousIterator<IBindingSet[]>(
+                chunks);
+
+        final ICloseableIterator<IBindingSet[]> source = new ICloseableIterator<IBindingSet[]>() {
+
+            private boolean started = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!started && latch != null) {
+                    started = true;
+                    latch.countDown();
+                    try {
+                        latch.await();
+                    } catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+                return src.hasNext();
+            }
+
+            @Override
+            public IBindingSet[] next() {
+                return src.next();
+            }
+
+            @Override
+            public void remove() {
+                src.remove();
+            }
+
+            @Override
+            public void close() {
+                src.close();
+            }
+
+        };
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                runningQuery, -1/* partitionId */, stats, query,
+                lastInvocation, source, sink, null/* sink2 */);
+
+        final FutureTask<Void> ft = query.eval(context);
+
+        // Run the query.
+        {
+            final Thread t = new Thread() {
+                public void run() {
+                    ft.run();
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+
+        return ft;
+
+    }
+
 }
@@ -0,0 +1,276 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 16, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for the {@link TopKSortOp}.
+ */
+public class TestTopKSortOp extends TestCase2 {
+
+    public TestTopKSortOp() {
+    }
+
+    public TestTopKSortOp(String name) {
+        super(name);
+    }
+
+    private SortOp newSortOp(final ISortOrder<?>[] sors, final int limit) {
+
+        return new TopKSortOp(new BOp[] {}, NV.asMap(new NV[] {//
+                new NV(TopKSortOp.Annotations.BOP_ID, 1),//
+                new NV(TopKSortOp.Annotations.SORT_ORDER, sors),//
+                new NV(TopKSortOp.Annotations.VALUE_COMPARATOR,
+                        new IVComparator()),//
+                new NV(TopKSortOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(TopKSortOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(PipelineOp.Annotations.REORDER_SOLUTIONS, false),//
+                new NV(TopKSortOp.Annotations.LAST_PASS, true),//
+                new NV(TopKSortOp.Annotations.LIMIT, limit),//
+        }));
+
+    }
+
+    /**
+     * Run the operator over the chunks of source solutions and verify the
+     * ordered solutions.
+     */
+    private void doSortTest(final SortOp query, final IBindingSet[][] chunks,
+            final IBindingSet[] expected) {
+
+        final BOpStats stats = query.newStats();
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                chunks);
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final UUID queryId = UUID.randomUUID();
+        final MockQueryContext queryContext = new MockQueryContext(queryId);
+        try {
+            final IRunningQuery runningQuery = new MockRunningQuery(
+                    null/* fed */, null/* indexManager */, queryContext);
+
+            final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                    runningQuery, -1/* partitionId */, stats, query/* op */,
+                    true/* lastInvocation */, source, sink, null/* sink2 */);
+
+            final FutureTask<Void> ft = query.eval(context);
+            // Run the query.
+            {
+                final Thread t = new Thread() {
+                    public void run() {
+                        ft.run();
+                    }
+                };
+                t.setDaemon(true);
+                t.start();
+            }
+
+            // Check the solutions.
+            AbstractQueryEngineTestCase.assertSameSolutions(expected,
+                    sink.iterator(), ft);
+
+            assertEquals(chunks.length, stats.chunksIn.get());
+            assertEquals(expected.length, stats.unitsOut.get());
+
+        } finally {
+            queryContext.close();
+        }
+
+    }
+
+    /**
+     * The LIMIT is required and must be positive.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_ctor_correctRejection() {
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { new SortOrder(
+                Var.var("x"), true/* asc */) };
+
+        try {
+            newSortOp(sors, 0);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Unit test with inline {@link IV}s. Only the first 4 solutions in the
+     * ordering are reported.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testInlineIVs() {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+        final IConstant<IV> a = new Constant<IV>(new XSDNumericIV(1));
+        final IConstant<IV> b = new Constant<IV>(new XSDNumericIV(2));
+        final IConstant<IV> c = new Constant<IV>(new XSDNumericIV(3));
+        final IConstant<IV> d = new Constant<IV>(new XSDNumericIV(4));
+        final IConstant<IV> e = new Constant<IV>(new XSDNumericIV(5));
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+                new SortOrder(x, true/* asc */),//
+                new SortOrder(y, false/* asc */)//
+        };
+
+        final IBindingSet data[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, e }),
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { c }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { d, a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { d, b }),
+                new ListBindingSet(new IVariable<?>[] {}, new IConstant[] {}),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, c }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { b, d }),
+                new ListBindingSet(new IVariable<?>[] { y }, new IConstant[] { a }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { b, b }), };
+
+        final IBindingSet expected[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { y }, new IConstant[] { a }),
+                new ListBindingSet(new IVariable<?>[] {}, new IConstant[] {}),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, e }),
+                new ListBindingSet(new IVariable<?>[] { x, y }, new IConstant[] { a, c }), };
+
+        doSortTest(newSortOp(sors, 4/* limit */), new IBindingSet[][] { data },
+                expected);
+
+    }
+
+    /**
+     * Unit test where the LIMIT exceeds the #of solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testLimitExceedsSolutions() {
+
+        final IVariable<IV> x = Var.var("x");
+        final IConstant<IV> a = new Constant<IV>(new XSDNumericIV(1));
+        final IConstant<IV> b = new Constant<IV>(new XSDNumericIV(2));
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { new SortOrder(x, false/* asc */) };
+
+        final IBindingSet data[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { a }),
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { b }), };
+
+        final IBindingSet expected[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { b }),
+                new ListBindingSet(new IVariable<?>[] { x }, new IConstant[] { a }), };
+
+        doSortTest(newSortOp(sors, 10/* limit */), new IBindingSet[][] { data },
+                expected);
+
+    }
+
+    /**
+     * Stress test using random inline {@link IV}s with many duplicates
+     * arriving in several chunks. The expected solutions are the prefix of a
+     * stable sort on the JVM heap, so this also verifies that ties are broken
+     * by arrival order.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testRandomInlineIVs() {
+
+        final Random r = new Random();
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+                new SortOrder(x, false/* asc */)//
+        };
+
+        final int nchunks = 10;
+
+        final int chunkSize = 200;
+
+        final IBindingSet[][] chunks = new IBindingSet[nchunks][];
+
+        final IBindingSet[] all = new IBindingSet[nchunks * chunkSize];
+
+        for (int i = 0, n = 0; i < nchunks; i++) {
+
+            chunks[i] = new IBindingSet[chunkSize];
+
+            for (int j = 0; j < chunkSize; j++, n++) {
+
+                all[n] = chunks[i][j] = new ListBindingSet(
+                        new IVariable<?>[] { x, y }, new IConstant[] {
+                                new Constant<IV>(new XSDNumericIV(r.nextInt(50))),
+                                new Constant<IV>(new XSDNumericIV(n)) });
+
+            }
+
+        }
+
+        Arrays.sort(all, new BindingSetComparator(sors, new IVComparator()));
+
+        final int limit = 1 + r.nextInt(100);
+
+        final IBindingSet[] expected = Arrays.copyOf(all, limit);
+
+        doSortTest(newSortOp(sors, limit), chunks, expected);
+
+    }
+
+}
@@ -98,6 +98,9 @@ public class TestAll extends TestCase {
         // test index procedures.
         suite.addTest(com.bigdata.btree.proc.TestAll.suite());
 
+        // test the shared page cache.
+        suite.addTestSuite(TestPageCache.class);
+
         return suite;
         
     }
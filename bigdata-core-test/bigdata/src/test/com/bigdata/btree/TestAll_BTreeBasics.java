@@ -158,6 +158,10 @@ public class TestAll_BTreeBasics extends TestCase {
         // Unit test for initialization of the B+Tree with non-default m.
         suite.addTestSuite(TestBTreeBranchingFactors.class);
         
+        // test bottom-up bulk build of a mutable B+Tree from sorted tuples.
+        suite.addTestSuite(TestBulkBTreeBuilder.class);
+        suite.addTestSuite(TestExternalTupleSorter.class);
+        
         return suite;
 
     }
@@ -0,0 +1,432 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.log4j.Level;
+
+import com.bigdata.io.compression.IRecordCompressorFactory;
+import com.bigdata.io.compression.LZ4RecordCompressor;
+import com.bigdata.io.compression.LZ4RecordCompressorFactory;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for building a mutable {@link BTree} bottom-up using a
+ * {@link BulkBTreeBuilder}.
+ */
+public class TestBulkBTreeBuilder extends AbstractBTreeTestCase {
+
+    public TestBulkBTreeBuilder() {
+    }
+
+    public TestBulkBTreeBuilder(String name) {
+        super(name);
+    }
+
+    private BTree newBTree(final IRawStore store, final int m,
+            final boolean rawRecords) {
+
+        return newBTree(store, m, rawRecords, null/* compressorFactory */);
+
+    }
+
+    private BTree newBTree(final IRawStore store, final int m,
+            final boolean rawRecords,
+            final IRecordCompressorFactory<?> compressorFactory) {
+
+        final IndexMetadata metadata = new IndexMetadata(UUID.randomUUID());
+
+        metadata.setBranchingFactor(m);
+
+        if (rawRecords) {
+            metadata.setRawRecords(true);
+            metadata.setMaxRecLen(8);
+        }
+
+        if (compressorFactory != null) {
+            metadata.setBtreeRecordCompressorFactory(compressorFactory);
+        }
+
+        return BTree.create(store, metadata);
+
+    }
+
+    /**
+     * The keys are the even integers in [0:2n) so that the odd integers may
+     * be used to probe for keys which are not found.
+     */
+    private byte[][] getKeys(final int n) {
+
+        final byte[][] keys = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            keys[i] = i2k(i * 2);
+
+        }
+
+        return keys;
+
+    }
+
+    private byte[][] getValues(final int n, final boolean rawRecords) {
+
+        final Random r = new Random(n);
+
+        final byte[][] vals = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            if (i % 7 == 3) {
+
+                vals[i] = null;
+
+            } else if (rawRecords && i % 2 == 0) {
+
+                vals[i] = new byte[20 + r.nextInt(100)];
+
+                r.nextBytes(vals[i]);
+
+            } else {
+
+                vals[i] = i2k(i);
+
+            }
+
+        }
+
+        return vals;
+
+    }
+
+    /**
+     * Verify the tuples, structure, and linear list behavior of the index.
+     */
+    private void assertIndex(final BTree btree, final byte[][] keys,
+            final byte[][] vals) {
+
+        final int n = keys.length;
+
+        assertEquals("entryCount", n, btree.getEntryCount());
+
+        assertEquals("rangeCount", n, btree.rangeCount());
+
+        assertTrue(btree.dump(Level.ERROR, System.err));
+
+        assertSameIterator(vals, btree.rangeIterator());
+
+        for (int i = 0; i < n; i++) {
+
+            assertTrue(btree.contains(keys[i]));
+
+            assertEquals(vals[i], btree.lookup(keys[i]));
+
+            assertEquals(i, btree.indexOf(keys[i]));
+
+            assertEquals(keys[i], btree.keyAt(i));
+
+            assertFalse(btree.contains(i2k(i * 2 + 1)));
+
+        }
+
+        if (n > 2) {
+
+            assertEquals(n - 2, btree.rangeCount(keys[1], keys[n - 1]));
+
+        }
+
+    }
+
+    private void doBuildTest(final int m, final int n,
+            final boolean rawRecords) {
+
+        doBuildTest(m, n, rawRecords, null/* compressorFactory */);
+
+    }
+
+    private void doBuildTest(final int m, final int n,
+            final boolean rawRecords,
+            final IRecordCompressorFactory<?> compressorFactory) {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        try {
+
+            final BTree btree = newBTree(store, m, rawRecords,
+                    compressorFactory);
+
+            final byte[][] keys = getKeys(n);
+
+            final byte[][] vals = getValues(n, rawRecords);
+
+            final BulkBTreeBuilder builder = new BulkBTreeBuilder(btree);
+
+            for (int i = 0; i < n; i++) {
+
+                builder.add(keys[i], vals[i]);
+
+            }
+
+            assertEquals(n, builder.getEntryCount());
+
+            assertTrue(btree == builder.close());
+
+            assertIndex(btree, keys, vals);
+
+            // Checkpoint and verify that the index can be reloaded.
+            final long addrCheckpoint = btree.writeCheckpoint();
+
+            if (compressorFactory instanceof LZ4RecordCompressorFactory) {
+
+                // The root record on the store is an LZ4 record.
+                final ByteBuffer root = store.read(btree.getRootAddr());
+
+                assertEquals(LZ4RecordCompressor.getDecompressedLength(root),
+                        new LZ4RecordCompressor().decompress(root).remaining());
+
+            }
+
+            final BTree btree2 = BTree.load(store, addrCheckpoint, true/* readOnly */);
+
+            assertEquals(btree.getHeight(), btree2.getHeight());
+
+            assertEquals(btree.getNodeCount(), btree2.getNodeCount());
+
+            assertEquals(btree.getLeafCount(), btree2.getLeafCount());
+
+            assertIndex(btree2, keys, vals);
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
+    /**
+     * Closing the builder without adding any tuples leaves the index empty.
+     */
+    public void test_emptyBuild() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        try {
+
+            final BTree btree = newBTree(store, 3, false);
+
+            new BulkBTreeBuilder(btree).close();
+
+            assertEquals(0, btree.getEntryCount());
+
+            assertEquals(0, btree.getHeight());
+
+            assertTrue(btree.dump(Level.ERROR, System.err));
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
+    /**
+     * Exhaustive test of small trees. This covers a root leaf, full leaves,
+     * rebalancing of an underfull last leaf and node, and several levels.
+     */
+    public void test_build_smallTrees() {
+
+        for (int m = 3; m <= 6; m++) {
+
+            for (int n = 1; n <= m * m * m + m; n++) {
+
+                doBuildTest(m, n, false/* rawRecords */);
+
+            }
+
+        }
+
+    }
+
+    public void test_build_largeTree() {
+
+        doBuildTest(32, 50000, false/* rawRecords */);
+
+    }
+
+    public void test_build_rawRecords() {
+
+        doBuildTest(4, 500, true/* rawRecords */);
+
+    }
+
+    /**
+     * The nodes and leaves written by the builder are compressed when the
+     * index is configured with a record compressor and can be read back after
+     * the index is reloaded.
+     */
+    public void test_build_lz4() {
+
+        doBuildTest(32, 20000, false/* rawRecords */,
+                new LZ4RecordCompressorFactory());
+
+        doBuildTest(4, 500, true/* rawRecords */,
+                new LZ4RecordCompressorFactory());
+
+    }
+
+    /**
+     * The built index may be updated like any other mutable index.
+     */
+    public void test_writeAfterBuild() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        try {
+
+            final BTree btree = newBTree(store, 4, false);
+
+            final int n = 200;
+
+            final BulkBTreeBuilder builder = new BulkBTreeBuilder(btree);
+
+            for (int i = 0; i < n; i++) {
+
+                builder.add(i2k(i * 2), i2k(i));
+
+            }
+
+            builder.close();
+
+            // insert the odd keys and remove every 4th even key.
+            for (int i = 0; i < n; i++) {
+
+                assertNull(btree.insert(i2k(i * 2 + 1), i2k(-i)));
+
+                if (i % 4 == 0)
+                    assertEquals(i2k(i), btree.remove(i2k(i * 2)));
+
+            }
+
+            assertEquals(n + n - n / 4, btree.getEntryCount());
+
+            assertTrue(btree.dump(Level.ERROR, System.err));
+
+            for (int i = 0; i < n; i++) {
+
+                assertEquals(i2k(-i), btree.lookup(i2k(i * 2 + 1)));
+
+                if (i % 4 == 0)
+                    assertFalse(btree.contains(i2k(i * 2)));
+                else
+                    assertEquals(i2k(i), btree.lookup(i2k(i * 2)));
+
+            }
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
+    /**
+     * The keys must be presented in strictly ascending order.
+     */
+    public void test_keysOutOfOrder() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        try {
+
+            final BulkBTreeBuilder builder = new BulkBTreeBuilder(newBTree(
+                    store, 3, false));
+
+            builder.add(i2k(2), null);
+
+            try {
+                builder.add(i2k(1), null);
+                fail("Expecting: " + IllegalArgumentException.class);
+            } catch (IllegalArgumentException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+            try {
+                builder.add(i2k(2), null);
+                fail("Expecting: " + IllegalArgumentException.class);
+            } catch (IllegalArgumentException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
+    /**
+     * The index must be empty.
+     */
+    public void test_notEmpty() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        try {
+
+            final BTree btree = newBTree(store, 3, false);
+
+            btree.insert(i2k(1), null);
+
+            try {
+                new BulkBTreeBuilder(btree);
+                fail("Expecting: " + IllegalStateException.class);
+            } catch (IllegalStateException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
+}
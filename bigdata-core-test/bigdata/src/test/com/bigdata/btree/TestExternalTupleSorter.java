@@ -0,0 +1,222 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.btree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Test suite for the {@link ExternalTupleSorter}.
+ */
+public class TestExternalTupleSorter extends TestCase2 {
+
+    public TestExternalTupleSorter() {
+    }
+
+    public TestExternalTupleSorter(String name) {
+        super(name);
+    }
+
+    private File tmpDir;
+
+    private IRawStore store;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        tmpDir = File.createTempFile(getClass().getName(), ".tmp");
+
+        tmpDir.delete(); // delete random file name.
+
+        tmpDir.mkdir(); // recreate it as a directory.
+
+        store = new SimpleMemoryRawStore();
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (store != null) {
+            store.destroy();
+            store = null;
+        }
+
+        if (tmpDir != null) {
+            final File[] a = tmpDir.listFiles();
+            if (a != null) {
+                for (File f : a)
+                    f.delete();
+            }
+            tmpDir.delete();
+            tmpDir = null;
+        }
+
+        super.tearDown();
+
+    }
+
+    private BTree newBTree() {
+
+        final IndexMetadata metadata = new IndexMetadata(UUID.randomUUID());
+
+        metadata.setBranchingFactor(8);
+
+        return BTree.create(store, metadata);
+
+    }
+
+    /**
+     * Sort random tuples (with duplicate keys) using a buffer which is small
+     * enough to force many runs onto the disk and verify that the merged
+     * output is in order, that each key appears once and that the first tuple
+     * added for a key is retained.
+     */
+    public void test_sortWithRuns() throws IOException {
+
+        doSortTest(10000/* ntuples */, 2000/* maxKeyValue */, 8192/* maxBufferBytes */);
+
+    }
+
+    /**
+     * Sort tuples which fit in memory (no runs).
+     */
+    public void test_sortInMemory() throws IOException {
+
+        doSortTest(1000/* ntuples */, 500/* maxKeyValue */, Long.MAX_VALUE/* maxBufferBytes */);
+
+    }
+
+    /**
+     * Nothing is written onto the builder when no tuples were added.
+     */
+    public void test_empty() throws IOException {
+
+        final ExternalTupleSorter sorter = new ExternalTupleSorter(tmpDir,
+                1024);
+
+        final BTree btree = newBTree();
+
+        final BulkBTreeBuilder builder = new BulkBTreeBuilder(btree);
+
+        assertEquals(0L, sorter.writeOn(builder));
+
+        builder.close();
+
+        assertEquals(0L, btree.getEntryCount());
+
+    }
+
+    private void doSortTest(final int ntuples, final int maxKeyValue,
+            final long maxBufferBytes) throws IOException {
+
+        final Random r = new Random();
+
+        // ground truth: the first value added for each key.
+        final Map<byte[], byte[]> expected = new TreeMap<byte[], byte[]>(
+                BytesUtil.UnsignedByteArrayComparator.INSTANCE);
+
+        final ExternalTupleSorter sorter = new ExternalTupleSorter(tmpDir,
+                maxBufferBytes);
+
+        try {
+
+            for (int i = 0; i < ntuples; i++) {
+
+                final byte[] key = TestKeyBuilder.asSortKey(r
+                        .nextInt(maxKeyValue));
+
+                final byte[] val = r.nextInt(10) == 0 ? null : TestKeyBuilder
+                        .asSortKey(i);
+
+                if (!expected.containsKey(key))
+                    expected.put(key, val);
+
+                sorter.add(key, val);
+
+            }
+
+            assertEquals(ntuples, sorter.size());
+
+            if (maxBufferBytes < Long.MAX_VALUE)
+                assertTrue(sorter.getRunCount() > 1);
+            else
+                assertEquals(0, sorter.getRunCount());
+
+            final BTree btree = newBTree();
+
+            final BulkBTreeBuilder builder = new BulkBTreeBuilder(btree);
+
+            assertEquals(expected.size(), sorter.writeOn(builder));
+
+            builder.close();
+
+            assertEquals(expected.size(), btree.getEntryCount());
+
+            final ITupleIterator<?> itr = btree.rangeIterator();
+
+            for (Map.Entry<byte[], byte[]> e : expected.entrySet()) {
+
+                assertTrue(itr.hasNext());
+
+                final ITuple<?> tuple = itr.next();
+
+                assertEquals(e.getKey(), tuple.getKey());
+
+                assertEquals(e.getValue(), tuple.getValue());
+
+            }
+
+            assertFalse(itr.hasNext());
+
+        } finally {
+
+            sorter.close();
+
+        }
+
+        // the runs were deleted.
+        assertEquals(0, tmpDir.listFiles().length);
+
+    }
+
+}
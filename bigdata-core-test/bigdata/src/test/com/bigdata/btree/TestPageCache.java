@@ -0,0 +1,327 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for the {@link PageCache}.
+ * 
+ * @author thompsonbry
+ */
+public class TestPageCache extends TestCase2 {
+
+    public TestPageCache() {
+    }
+
+    public TestPageCache(String name) {
+        super(name);
+    }
+
+    private PageCache cache;
+
+    private UUID uuid;
+
+    private PageCache.StoreCache storeCache;
+
+    /**
+     * The capacity of a segment.
+     */
+    private int segmentCapacity;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        segmentCapacity = DirectBufferPool.INSTANCE.getBufferCapacity();
+
+        // Two segments with an admission threshold of 2.
+        cache = new PageCache(DirectBufferPool.INSTANCE,
+                2L * segmentCapacity, 2/* admissionThreshold */);
+
+        uuid = UUID.randomUUID();
+
+        storeCache = cache.register(uuid);
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (cache != null) {
+            cache.close();
+            cache = null;
+        }
+
+        storeCache = null;
+
+        super.tearDown();
+
+    }
+
+    private static ByteBuffer record(final int len, final long seed) {
+
+        final byte[] a = new byte[len];
+
+        new Random(seed).nextBytes(a);
+
+        return ByteBuffer.wrap(a);
+
+    }
+
+    /**
+     * Request a record until it is admitted to the cache.
+     */
+    private void load(final long addr, final ByteBuffer data) {
+
+        while (storeCache.get(addr) == null) {
+
+            storeCache.put(addr, data);
+
+        }
+
+    }
+
+    /**
+     * A record is not admitted on its first request but is admitted once it
+     * has been requested again and is then returned on a hit.
+     */
+    public void test_admission() {
+
+        final ByteBuffer data = record(100, 1L);
+
+        assertNull(storeCache.get(1L));
+        storeCache.put(1L, data);
+        assertEquals(0, storeCache.size());
+
+        assertNull(storeCache.get(1L));
+        storeCache.put(1L, data);
+        assertEquals(1, storeCache.size());
+
+        // The caller's buffer is not changed.
+        assertEquals(0, data.position());
+        assertEquals(100, data.limit());
+
+        final long hits = cache.getHitCount();
+
+        assertEquals(data, storeCache.get(1L));
+
+        assertEquals(hits + 1, cache.getHitCount());
+
+        assertEquals(2, cache.getMissCount());
+
+    }
+
+    /**
+     * Verify that remove() and clear() discard records, that the store is
+     * registered, and that deleteCache() unregisters it.
+     */
+    public void test_removeAndClear() {
+
+        final IRawStore store = new SimpleMemoryRawStore() {
+            @Override
+            public UUID getUUID() {
+                return uuid;
+            }
+        };
+
+        assertTrue(storeCache == PageCache.getCache(store));
+
+        assertTrue(storeCache == cache.register(uuid));
+
+        for (long addr = 1; addr <= 10; addr++) {
+
+            load(addr, record(64, addr));
+
+        }
+
+        assertEquals(10, storeCache.size());
+
+        storeCache.remove(3L);
+
+        assertNull(storeCache.get(3L));
+
+        assertEquals(record(64, 4L), storeCache.get(4L));
+
+        storeCache.clear();
+
+        assertEquals(0, storeCache.size());
+
+        assertNull(storeCache.get(4L));
+
+        PageCache.deleteCache(uuid);
+
+        assertNull(PageCache.getCache(store));
+
+    }
+
+    /**
+     * Once the ring of segments is full, the oldest segment is recycled and
+     * records which are rarely used are evicted while records which are
+     * frequently used are retained.
+     */
+    public void test_evictionAndReinsertion() {
+
+        final int len = 1000;
+
+        // #of records which fill one segment.
+        final int perSegment = segmentCapacity / (len + 4);
+
+        // a hot record in the first segment.
+        final ByteBuffer hot = record(len, 0L);
+
+        load(0L, hot);
+
+        for (int i = 0; i < 8; i++) {
+
+            assertEquals(hot, storeCache.get(0L));
+
+        }
+
+        // fill the ring (twice over) with cold records.
+        final long n = 2L * perSegment + perSegment / 2;
+
+        for (long addr = 1; addr <= n; addr++) {
+
+            load(addr, record(len, addr));
+
+        }
+
+        assertTrue(cache.getEvictionCount() > 0);
+
+        // the first cold record was evicted.
+        assertNull(storeCache.get(1L));
+
+        // the hot record was retained.
+        assertEquals(hot, storeCache.get(0L));
+
+        // the most recent record is still cached.
+        assertEquals(record(len, n), storeCache.get(n));
+
+    }
+
+    /**
+     * Records which are too large for a segment are not admitted.
+     */
+    public void test_rejectLargeRecord() {
+
+        final ByteBuffer data = record(segmentCapacity, 1L);
+
+        storeCache.get(1L);
+        storeCache.get(1L);
+        storeCache.put(1L, data);
+
+        assertEquals(0, storeCache.size());
+
+    }
+
+    /**
+     * Read a committed {@link BTree} through the cache and verify that the
+     * nodes and leaves are served from the cache once admitted, and that a
+     * recycled address is removed from the cache.
+     */
+    public void test_btree() {
+
+        final IRawStore store = new SimpleMemoryRawStore() {
+            @Override
+            public UUID getUUID() {
+                return uuid;
+            }
+        };
+
+        try {
+
+            final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+            md.setBranchingFactor(4);
+
+            final BTree btree = BTree.create(store, md);
+
+            final int n = 200;
+
+            for (int i = 0; i < n; i++) {
+
+                btree.insert(TestKeyBuilder.asSortKey(i), ("v" + i).getBytes());
+
+            }
+
+            final long addrCheckpoint = btree.writeCheckpoint();
+
+            assertTrue(btree.getHeight() > 0);
+
+            final long hits0 = cache.getHitCount();
+
+            for (int pass = 0; pass < 3; pass++) {
+
+                // Note: A new BTree instance does not share decoded nodes.
+                final BTree tmp = BTree.load(store, addrCheckpoint, true/* readOnly */);
+
+                assertTrue(storeCache == tmp.pageCache);
+
+                for (int i = 0; i < n; i++) {
+
+                    assertEquals(("v" + i).getBytes(),
+                            tmp.lookup(TestKeyBuilder.asSortKey(i)));
+
+                }
+
+            }
+
+            assertTrue(storeCache.size() > 0);
+
+            assertTrue(cache.getHitCount() > hits0);
+
+            // The root is removed from the cache when it is recycled.
+            final long addrRoot = btree.getRootAddr();
+
+            assertNotNull(storeCache.get(addrRoot));
+
+            btree.recycle(addrRoot);
+
+            assertNull(storeCache.get(addrRoot));
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
+}
@@ -28,6 +28,7 @@ import java.util.UUID;
 import org.apache.log4j.Level;
 
 import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.io.compression.LZ4RecordCompressorFactory;
 import com.bigdata.rawstore.IRawStore;
 import com.bigdata.rawstore.SimpleMemoryRawStore;
 
@@ -96,6 +97,64 @@ public class TestReopen extends AbstractBTreeTestCase {
 
     }
 
+    /**
+     * An index created before record-level compression was applied to the
+     * nodes and leaves has uncompressed records even when its
+     * {@link IndexMetadata} names a record compressor. Those records must still
+     * be readable after the index is reopened.
+     */
+    public void test_reopen_uncompressedRecordsWithCompressorFactory() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        try {
+
+            final BTree btree;
+            {
+                final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+                md.setBranchingFactor(3);
+
+                md.setBtreeRecordCompressorFactory(new LZ4RecordCompressorFactory());
+
+                // simulate an index created before the flag was persisted.
+                md.setRecordsCompressed(false);
+
+                btree = BTree.create(store, md);
+
+            }
+
+            final int n = 100;
+
+            for (int i = 0; i < n; i++) {
+
+                btree.insert(TestKeyBuilder.asSortKey(i), new SimpleEntry(i));
+
+            }
+
+            final long addrCheckpoint = btree.writeCheckpoint();
+
+            final BTree tmp = BTree.load(store, addrCheckpoint, true/* readOnly */);
+
+            assertNotNull(tmp.getIndexMetadata().getBtreeRecordCompressorFactory());
+
+            assertFalse(tmp.getIndexMetadata().getRecordsCompressed());
+
+            for (int i = 0; i < n; i++) {
+
+                assertEquals(new SimpleEntry(i),
+                        tmp.lookup(TestKeyBuilder.asSortKey(i)));
+
+            }
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
     /**
      * Test with a btree containing both branch nodes and leaves.
      */
@@ -68,6 +68,9 @@ public class TestAll extends TestCase {
         suite.addTestSuite(TestFrontCodedRabaCoderRatio8.class);
         suite.addTestSuite(TestFrontCodedRabaCoderRatio32.class);
 
+        // posting list coder.
+        suite.addTestSuite(TestPostingListRabaCoder.class);
+
         // canonical huffman coding.
         suite.addTestSuite(TestCanonicalHuffmanRabaCoder.class);
 
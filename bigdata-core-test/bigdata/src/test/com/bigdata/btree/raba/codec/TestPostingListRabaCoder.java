@@ -0,0 +1,160 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.btree.raba.codec;
+
+import java.util.Random;
+
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Test suite for the {@link PostingListRabaCoder}.
+ */
+public class TestPostingListRabaCoder extends AbstractRabaCoderTestCase {
+
+    public TestPostingListRabaCoder() {
+    }
+
+    public TestPostingListRabaCoder(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        rabaCoder = new PostingListRabaCoder(4/* blockSize */);
+
+    }
+
+    /**
+     * Generate ordered keys shaped like those of the full text index:
+     * <code>{token, termWeight, docId}</code>.
+     */
+    private byte[][] getPostingKeys(final int n) {
+
+        final Random r = new Random(n);
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        final byte[][] a = new byte[n][];
+
+        int token = 0, weight = 0;
+
+        long docId = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            if (r.nextInt(50) == 0) {
+                // next token.
+                token++;
+                weight = 0;
+                docId = 0;
+            } else if (r.nextInt(10) == 0) {
+                // next term weight.
+                weight++;
+                docId = 0;
+            }
+
+            docId += 1 + r.nextInt(1000);
+
+            a[i] = keyBuilder.reset().appendASCII(String.format("token%05d", token))
+                    .append((long) weight).append(docId).getKey();
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Verify get() and search() for posting list keys and that the coded
+     * record is smaller than the front-coded record for the same keys.
+     */
+    public void test_postingKeys() {
+
+        final byte[][] a = getPostingKeys(1000);
+
+        final IRaba expected = new ReadOnlyKeysRaba(a);
+
+        final ICodedRaba actual = new PostingListRabaCoder(16).encodeLive(
+                expected, new DataOutputBuffer());
+
+        assertEquals(a.length, actual.size());
+
+        for (int i = 0; i < a.length; i++) {
+
+            assertEquals("get(" + i + ")", a[i], actual.get(i));
+
+            assertEquals("length(" + i + ")", a[i].length, actual.length(i));
+
+            assertEquals("search(" + i + ")", i, actual.search(a[i]));
+
+            // a key which is GT a[i] but LT a[i+1] (the docIds are never
+            // adjacent in the keys having the same token and term weight).
+            final byte[] k = BytesUtil.successor(a[i]);
+
+            if (i + 1 == a.length || BytesUtil.compareBytes(k, a[i + 1]) < 0) {
+
+                assertEquals("search(successor(" + i + "))", -(i + 1) - 1,
+                        actual.search(k));
+
+            }
+
+        }
+
+        final int frontCoded = new FrontCodedRabaCoder(8).encode(expected,
+                new DataOutputBuffer()).len();
+
+        final int postingList = actual.data().len();
+
+        if (log.isInfoEnabled())
+            log.info("frontCoded=" + frontCoded + ", postingList="
+                    + postingList);
+
+        assertTrue("frontCoded=" + frontCoded + ", postingList="
+                + postingList, postingList < frontCoded);
+
+        // decode from the coded record.
+        final ICodedRaba decoded = new PostingListRabaCoder().decode(actual
+                .data());
+
+        for (int i = a.length - 1; i >= 0; i--) {
+
+            assertEquals("get(" + i + ")", a[i], decoded.get(i));
+
+        }
+
+    }
+
+}
@@ -72,6 +72,8 @@ public class TestAll extends TestCase {
         suite.addTestSuite(TestRecordCompressor_BestSpeed.class);
 
         suite.addTestSuite(TestRecordCompressor_BestCompression.class);
+
+        suite.addTestSuite(TestLZ4RecordCompressor.class);
         
         // Test suite for message compression.
         suite.addTestSuite(TestCompressorRegistry.class);
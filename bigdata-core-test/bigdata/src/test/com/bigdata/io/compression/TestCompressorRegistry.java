@@ -131,6 +131,7 @@ public class TestCompressorRegistry extends TestCase3 {
 		doPerformanceCompression(CompressorRegistry.DEFLATE_BEST_SPEED);
 		doPerformanceCompression(CompressorRegistry.DEFLATE_BEST_COMPRESSION);
 		doPerformanceCompression(CompressorRegistry.GZIP);
+		doPerformanceCompression(CompressorRegistry.LZ4);
 	}
 	
 	public void doPerformanceCompression(final String strategy) {
@@ -0,0 +1,388 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.io.compression;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.HTreeIndexMetadata;
+import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.htree.HTree;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for {@link LZ4RecordCompressor}.
+ */
+public class TestLZ4RecordCompressor extends AbstractRecordCompressorTestCase {
+
+    /**
+     * 
+     */
+    public TestLZ4RecordCompressor() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestLZ4RecordCompressor(String name) {
+        super(name);
+    }
+
+    public IRecordCompressor getInstance() {
+
+        return new LZ4RecordCompressor();
+
+    }
+
+    /**
+     * Round trip a record through {@link LZ4RecordCompressor#compress(ByteBuffer)}
+     * and {@link LZ4RecordCompressor#decompress(ByteBuffer)}.
+     */
+    private void doRoundTrip(final byte[] expected) {
+
+        final LZ4RecordCompressor c = new LZ4RecordCompressor();
+
+        final ByteBuffer compressed = c.compress(ByteBuffer.wrap(expected));
+
+        assertTrue(compressed.remaining() <= LZ4RecordCompressor
+                .maxCompressedLength(expected.length));
+
+        assertEquals(expected.length,
+                LZ4RecordCompressor.getDecompressedLength(compressed));
+
+        final ByteBuffer actual = c.decompress(compressed);
+
+        // The position of the compressed record is not changed.
+        assertEquals(0, compressed.position());
+
+        assertEquals(0, actual.position());
+
+        assertEquals(expected.length, actual.limit());
+
+        assertEquals(expected, actual.array());
+
+    }
+
+    /**
+     * Records shorter than the minimum match window are coded as literals.
+     */
+    public void test_shortRecords() {
+
+        for (int len = 0; len < 40; len++) {
+
+            final byte[] a = new byte[len];
+
+            r.nextBytes(a);
+
+            doRoundTrip(a);
+
+            // all the same byte.
+            doRoundTrip(new byte[len]);
+
+        }
+
+    }
+
+    /**
+     * Incompressible data does not expand beyond the documented bound.
+     */
+    public void test_incompressible() {
+
+        final byte[] a = new byte[100000];
+
+        r.nextBytes(a);
+
+        doRoundTrip(a);
+
+    }
+
+    /**
+     * A long run of a single byte is coded as overlapping back-references.
+     */
+    public void test_runLength() {
+
+        final byte[] a = new byte[100000];
+
+        a[0] = 1;
+
+        a[a.length - 1] = 2;
+
+        final ByteBuffer compressed = new LZ4RecordCompressor().compress(ByteBuffer
+                .wrap(a));
+
+        assertTrue(compressed.remaining() < 1000);
+
+        doRoundTrip(a);
+
+    }
+
+    /**
+     * Matches more than 64k bytes back can not be coded and must be found
+     * again (or coded as literals).
+     */
+    public void test_longDistance() {
+
+        final byte[] block = new byte[70000];
+
+        r.nextBytes(block);
+
+        final byte[] a = new byte[block.length * 2];
+
+        System.arraycopy(block, 0, a, 0, block.length);
+
+        System.arraycopy(block, 0, a, block.length, block.length);
+
+        doRoundTrip(a);
+
+    }
+
+    /**
+     * Decompress into a caller supplied heap buffer at a non-zero position and
+     * into a direct buffer, starting from a direct buffer.
+     */
+    public void test_decompressIntoCallerBuffer() {
+
+        final LZ4RecordCompressor c = new LZ4RecordCompressor();
+
+        final byte[] expected = getRandomRecord(1000);
+
+        final ByteBuffer compressed = c.compress(ByteBuffer.wrap(expected));
+
+        final int len = LZ4RecordCompressor.getDecompressedLength(compressed);
+
+        assertEquals(expected.length, len);
+
+        {
+            // heap buffer at a non-zero position.
+            final ByteBuffer dst = ByteBuffer.allocate(len + 20);
+
+            dst.position(7);
+
+            assertEquals(len, c.decompress(compressed.duplicate(), dst));
+
+            assertEquals(7 + len, dst.position());
+
+            final byte[] actual = new byte[len];
+
+            dst.position(7);
+
+            dst.get(actual);
+
+            assertEquals(expected, actual);
+
+        }
+
+        {
+            // direct buffers for both the source and the target.
+            final ByteBuffer src = ByteBuffer.allocateDirect(compressed
+                    .remaining());
+
+            src.put(compressed.duplicate());
+
+            src.flip();
+
+            final ByteBuffer dst = ByteBuffer.allocateDirect(len);
+
+            assertEquals(len, c.decompress(src, dst));
+
+            assertEquals(src.limit(), src.position());
+
+            dst.flip();
+
+            final byte[] actual = new byte[len];
+
+            dst.get(actual);
+
+            assertEquals(expected, actual);
+
+        }
+
+    }
+
+    /**
+     * An exception is thrown if the caller's buffer is too small.
+     */
+    public void test_decompressBufferTooSmall() {
+
+        final LZ4RecordCompressor c = new LZ4RecordCompressor();
+
+        final ByteBuffer compressed = c.compress(ByteBuffer
+                .wrap(getRandomRecord(100)));
+
+        final ByteBuffer dst = ByteBuffer.allocate(LZ4RecordCompressor
+                .getDecompressedLength(compressed) - 1);
+
+        try {
+            c.decompress(compressed, dst);
+            fail("Expecting: " + BufferOverflowException.class);
+        } catch (BufferOverflowException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * The compressor is registered under {@link CompressorRegistry#LZ4}.
+     */
+    public void test_registry() {
+
+        final IRecordCompressor c = CompressorRegistry.getInstance().get(
+                CompressorRegistry.LZ4);
+
+        assertTrue(c instanceof LZ4RecordCompressor);
+
+    }
+
+    /**
+     * The nodes and leaves of a {@link BTree} configured with the
+     * {@link LZ4RecordCompressorFactory} are compressed on the store and can be
+     * read back.
+     */
+    public void test_btree() {
+
+        final IRawStore store1 = new SimpleMemoryRawStore();
+        final IRawStore store2 = new SimpleMemoryRawStore();
+
+        try {
+
+            final int n = 1000;
+
+            final byte[][] vals = new byte[n][];
+
+            for (int i = 0; i < n; i++) {
+
+                // values with a lot of redundancy, like IRIs in a namespace.
+                vals[i] = ("http://www.example.org/resource/" + getRandomRecord(1))
+                        .getBytes();
+
+            }
+
+            final IndexMetadata md1 = new IndexMetadata(UUID.randomUUID());
+
+            md1.setBtreeRecordCompressorFactory(new LZ4RecordCompressorFactory());
+
+            final BTree btree1 = BTree.create(store1, md1);
+
+            final BTree btree2 = BTree.create(store2, new IndexMetadata(UUID
+                    .randomUUID()));
+
+            for (int i = 0; i < n; i++) {
+
+                btree1.insert(TestKeyBuilder.asSortKey(i), vals[i]);
+
+                btree2.insert(TestKeyBuilder.asSortKey(i), vals[i]);
+
+            }
+
+            final long addrCheckpoint = btree1.writeCheckpoint();
+
+            btree2.writeCheckpoint();
+
+            if (log.isInfoEnabled())
+                log.info("compressed=" + store1.size() + ", uncompressed="
+                        + store2.size());
+
+            // The compressed index is smaller on the store.
+            assertTrue(store1.size() < store2.size());
+
+            // The root record on the store is an LZ4 record.
+            final ByteBuffer root = store1.read(btree1.getRootAddr());
+
+            assertEquals(LZ4RecordCompressor.getDecompressedLength(root),
+                    new LZ4RecordCompressor().decompress(root).remaining());
+
+            final BTree tmp = BTree.load(store1, addrCheckpoint, true/* readOnly */);
+
+            for (int i = 0; i < n; i++) {
+
+                assertEquals(vals[i], tmp.lookup(TestKeyBuilder.asSortKey(i)));
+
+            }
+
+        } finally {
+
+            store1.destroy();
+
+            store2.destroy();
+
+        }
+
+    }
+
+    /**
+     * The directory and bucket pages of an {@link HTree} configured with the
+     * {@link LZ4RecordCompressorFactory} can be read back.
+     */
+    public void test_htree() {
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        try {
+
+            final HTreeIndexMetadata md = new HTreeIndexMetadata(UUID
+                    .randomUUID());
+
+            md.setAddressBits(4);
+
+            md.setBtreeRecordCompressorFactory(new LZ4RecordCompressorFactory());
+
+            final HTree htree = HTree.create(store, md);
+
+            final int n = 1000;
+
+            for (int i = 0; i < n; i++) {
+
+                htree.insert(TestKeyBuilder.asSortKey(i), ("v" + i).getBytes());
+
+            }
+
+            final long addrCheckpoint = htree.writeCheckpoint();
+
+            final HTree tmp = HTree.load(store, addrCheckpoint, true/* readOnly */);
+
+            for (int i = 0; i < n; i++) {
+
+                assertEquals(("v" + i).getBytes(),
+                        tmp.lookupFirst(TestKeyBuilder.asSortKey(i)));
+
+            }
+
+        } finally {
+
+            store.destroy();
+
+        }
+
+    }
+
+}
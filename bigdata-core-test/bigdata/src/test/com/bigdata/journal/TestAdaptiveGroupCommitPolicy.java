@@ -0,0 +1,121 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.journal;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase2;
+
+/**
+ * Unit tests for the {@link AdaptiveGroupCommitPolicy}.
+ */
+public class TestAdaptiveGroupCommitPolicy extends TestCase2 {
+
+    public TestAdaptiveGroupCommitPolicy() {
+    }
+
+    public TestAdaptiveGroupCommitPolicy(String name) {
+        super(name);
+    }
+
+    private static long ms(final long millis) {
+
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+
+    }
+
+    /**
+     * There is no wait when no task is waiting to start and the
+     * static policy (the upper bound) is used until the first commit.
+     */
+    public void test_noHistory() {
+
+        final AdaptiveGroupCommitPolicy p = new AdaptiveGroupCommitPolicy(100,
+                TimeUnit.MILLISECONDS);
+
+        assertEquals(0L, p.getWaitNanos(0/* backlog */));
+
+        assertEquals(ms(100), p.getWaitNanos(1));
+
+        assertEquals(0d, p.getAverageCommitServiceTime());
+
+    }
+
+    /**
+     * The wait tracks the commit service time, scales with the backlog, and
+     * is bounded by the group commit timeout.
+     */
+    public void test_waitTracksCommitServiceTime() {
+
+        final AdaptiveGroupCommitPolicy p = new AdaptiveGroupCommitPolicy(100,
+                TimeUnit.MILLISECONDS);
+
+        p.commitDone(ms(5));
+
+        assertEquals(5d, p.getAverageCommitServiceTime());
+
+        // One waiting task : wait about one commit service time.
+        assertEquals(ms(5), p.getWaitNanos(1));
+
+        // Backlog : wait longer.
+        assertEquals(ms(10), p.getWaitNanos(2));
+
+        // The backlog factor is bounded.
+        assertEquals(
+                ms(5) * AdaptiveGroupCommitPolicy.MAX_BACKLOG_FACTOR,
+                p.getWaitNanos(1000));
+
+        // Still no wait if nothing is waiting to run.
+        assertEquals(0L, p.getWaitNanos(0));
+
+        // A slow disk : the wait is bounded by the timeout.
+        for (int i = 0; i < 100; i++) {
+
+            p.commitDone(ms(500));
+
+        }
+
+        assertEquals(ms(100), p.getWaitNanos(1));
+
+    }
+
+    /**
+     * A zero timeout disables group commit.
+     */
+    public void test_zeroTimeout() {
+
+        final AdaptiveGroupCommitPolicy p = new AdaptiveGroupCommitPolicy(0,
+                TimeUnit.MILLISECONDS);
+
+        p.commitDone(ms(5));
+
+        assertEquals(0L, p.getWaitNanos(2));
+
+    }
+
+}
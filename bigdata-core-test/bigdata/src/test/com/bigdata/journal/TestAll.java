@@ -78,6 +78,9 @@ public class TestAll extends TestCase {
         // test suite for ClocksNotSynchronizedException.
         suite.addTestSuite( TestClockSkewDetection.class );
 
+        // test suite for sizing commit groups adaptively.
+        suite.addTestSuite( TestAdaptiveGroupCommitPolicy.class );
+
         /*
          * Test a scalable temporary store (uses the transient and disk-only
          * buffer modes).
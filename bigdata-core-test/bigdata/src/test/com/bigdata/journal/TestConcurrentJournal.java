@@ -35,6 +35,7 @@ import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -43,6 +44,7 @@ import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.bigdata.btree.BTree;
 import com.bigdata.btree.IIndex;
@@ -236,6 +238,276 @@ public class TestConcurrentJournal extends ProxyTestCase<Journal> {
 
     }
 
+    /**
+     * Submits concurrent write tasks on distinct resources to a write service
+     * which sizes its commit groups adaptively and verifies that they execute,
+     * that they are melded into no more commits than there are tasks, and that
+     * each group commit is recorded by the commit latency histograms.
+     */
+    public void test_submit_writeService_adaptiveGroupCommit()
+            throws InterruptedException, ExecutionException {
+
+        final Properties properties = new Properties(getProperties());
+
+        properties.setProperty(Options.WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT,
+                "true");
+
+        final Journal journal = new Journal(properties);
+
+        try {
+
+            final WriteExecutorService writeService = journal
+                    .getConcurrencyManager().getWriteService();
+
+            assertTrue(writeService.isAdaptiveGroupCommit());
+
+            final long commitCounterBefore = journal.getRootBlockView()
+                    .getCommitCounter();
+
+            final long groupCommitsBefore = writeService.getGroupCommitCount();
+
+            final long serviceBefore = writeService
+                    .getCommitServiceTimeHistogram().getTotalCount();
+
+            final long waitingBefore = writeService
+                    .getCommitWaitingTimeHistogram().getTotalCount();
+
+            final int ntasks = 20;
+
+            final List<Future<String>> futures = new LinkedList<Future<String>>();
+
+            for (int i = 0; i < ntasks; i++) {
+
+                futures.add(journal.submit(new AbstractTask<String>(journal,
+                        ITx.UNISOLATED, "foo" + i) {
+
+                    @Override
+                    protected String doTask() throws Exception {
+
+                        return getOnlyResource();
+
+                    }
+
+                }));
+
+            }
+
+            int i = 0;
+            for (Future<String> f : futures) {
+
+                assertEquals("foo" + i++, f.get());
+
+            }
+
+            final long ncommits = journal.getRootBlockView()
+                    .getCommitCounter() - commitCounterBefore;
+
+            assertTrue(ncommits >= 1 && ncommits <= ntasks);
+
+            /*
+             * Note: The thread running the group commit records the service
+             * time after the other tasks in the commit group are released.
+             */
+            final long deadline = System.nanoTime()
+                    + TimeUnit.SECONDS.toNanos(5);
+
+            while (writeService.getCommitServiceTimeHistogram()
+                    .getTotalCount() - serviceBefore < writeService
+                    .getCommitWaitingTimeHistogram().getTotalCount()
+                    - waitingBefore
+                    && System.nanoTime() < deadline) {
+
+                Thread.sleep(10/* ms */);
+
+            }
+
+            // #of commit groups (including those with nothing to commit).
+            final long ngroups = writeService.getCommitServiceTimeHistogram()
+                    .getTotalCount() - serviceBefore;
+
+            assertEquals(ngroups, writeService.getCommitWaitingTimeHistogram()
+                    .getTotalCount() - waitingBefore);
+
+            assertTrue(ngroups >= writeService.getGroupCommitCount()
+                    - groupCommitsBefore);
+
+            assertTrue(ngroups >= 1 && ngroups <= ntasks);
+
+        } finally {
+
+            journal.destroy();
+
+        }
+
+    }
+
+    /**
+     * Verifies that the adaptive policy grows the commit groups when compared
+     * to the static policy. A task completes while several other tasks have
+     * been assigned threads but are blocked on the write service lock, which
+     * is held by the test. When the lock is released, the completed task runs
+     * the group commit. Under the static policy nothing else is running so it
+     * commits by itself. Under the adaptive policy it also waits for the
+     * blocked tasks, which join its commit group.
+     */
+    public void test_adaptiveGroupCommit_growsCommitGroups()
+            throws InterruptedException, ExecutionException {
+
+        final int ntasks = 10;
+
+        final long adaptiveGroups = runBlockedTasks(true/* adaptive */, ntasks);
+
+        final long staticGroups = runBlockedTasks(false/* adaptive */, ntasks);
+
+        if (log.isInfoEnabled())
+            log.info("ntasks=" + ntasks + ", adaptiveGroups=" + adaptiveGroups
+                    + ", staticGroups=" + staticGroups);
+
+        assertEquals(1L, adaptiveGroups);
+
+        assertTrue(staticGroups >= 2 && staticGroups <= ntasks + 1);
+
+    }
+
+    /**
+     * Run a task which completes while <i>ntasks</i> other write tasks are
+     * blocked waiting to start and return the #of commit groups into which
+     * those tasks were melded.
+     */
+    private long runBlockedTasks(final boolean adaptive, final int ntasks)
+            throws InterruptedException, ExecutionException {
+
+        final Properties properties = new Properties(getProperties());
+
+        properties.setProperty(Options.WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT,
+                Boolean.toString(adaptive));
+
+        // Large enough that the adaptive wait is never cut short.
+        properties.setProperty(Options.WRITE_SERVICE_GROUP_COMMIT_TIMEOUT,
+                "5000");
+
+        final Journal journal = new Journal(properties);
+
+        try {
+
+            final WriteExecutorService writeService = journal
+                    .getConcurrencyManager().getWriteService();
+
+            assertEquals(adaptive, writeService.isAdaptiveGroupCommit());
+
+            final ReentrantLock lock = writeService.getLock();
+
+            final CountDownLatch running = new CountDownLatch(1);
+
+            final CountDownLatch mayFinish = new CountDownLatch(1);
+
+            final Future<String> f0 = journal.submit(new AbstractTask<String>(
+                    journal, ITx.UNISOLATED, "x") {
+
+                @Override
+                protected String doTask() throws Exception {
+
+                    running.countDown();
+
+                    mayFinish.await();
+
+                    return getOnlyResource();
+
+                }
+
+            });
+
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            // Note: recorded before each commit begins.
+            final long groupsBefore = writeService
+                    .getCommitWaitingTimeHistogram().getTotalCount();
+
+            final List<Future<String>> futures = new LinkedList<Future<String>>();
+
+            lock.lock();
+
+            try {
+
+                // The task completes and blocks on the lock in afterTask().
+                mayFinish.countDown();
+
+                awaitQueueLength(lock, 1);
+
+                for (int i = 0; i < ntasks; i++) {
+
+                    futures.add(journal.submit(new NopTask(journal, "foo"
+                            + i)));
+
+                }
+
+                // Each task has a thread and is blocked on the lock.
+                awaitQueueLength(lock, ntasks + 1);
+
+                assertEquals(ntasks, writeService.getStartingCount());
+
+            } finally {
+
+                lock.unlock();
+
+            }
+
+            assertEquals("x", f0.get());
+
+            int i = 0;
+            for (Future<String> f : futures) {
+
+                assertEquals("foo" + i++, f.get());
+
+            }
+
+            return writeService.getCommitWaitingTimeHistogram()
+                    .getTotalCount() - groupsBefore;
+
+        } finally {
+
+            journal.destroy();
+
+        }
+
+    }
+
+    private static void awaitQueueLength(final ReentrantLock lock,
+            final int n) throws InterruptedException {
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (lock.getQueueLength() < n && System.nanoTime() < deadline) {
+
+            Thread.sleep(10/* ms */);
+
+        }
+
+        assertEquals(n, lock.getQueueLength());
+
+    }
+
+    /**
+     * A write task which does nothing.
+     */
+    private static class NopTask extends AbstractTask<String> {
+
+        NopTask(final IConcurrencyManager concurrencyManager,
+                final String resource) {
+
+            super(concurrencyManager, ITx.UNISOLATED, resource);
+
+        }
+
+        @Override
+        protected String doTask() throws Exception {
+
+            return getOnlyResource();
+
+        }
+
+    }
+
     /**
      * Submits an read-only task to the transaction service and verifies that it
      * executes.
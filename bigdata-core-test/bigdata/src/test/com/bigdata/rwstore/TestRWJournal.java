@@ -29,7 +29,9 @@ package com.bigdata.rwstore;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Properties;
@@ -51,6 +53,7 @@ import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.SimpleEntry;
 import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.io.IReopenChannel;
 import com.bigdata.journal.AbstractInterruptsTestCase;
 import com.bigdata.journal.AbstractJournal.ISnapshotEntry;
 import com.bigdata.journal.AbstractJournalTestCase;
@@ -112,6 +115,9 @@ public class TestRWJournal extends AbstractJournalTestCase {
 		// test suite for the IRawStore api.
 		suite.addTestSuite(TestRawStore.class);
 
+		// test suite for the IRawStore api with memory mapped reads.
+		suite.addTestSuite(TestMappedReads.class);
+
 		// test suite for handling asynchronous close of the file channel.
 		suite.addTestSuite(TestInterrupts.class);
 
@@ -3915,6 +3921,217 @@ public class TestRWJournal extends AbstractJournalTestCase {
 
 	}
 	
+	/**
+	 * Runs the {@link TestRawStore} suite with
+	 * {@link RWStore.Options#MEMORY_MAPPED_READS} enabled, plus some tests
+	 * which verify that records are read from the mapped region once they are
+	 * no longer in the write cache.
+	 */
+	public static class TestMappedReads extends TestRawStore {
+
+		public TestMappedReads() {
+			super();
+		}
+
+		public TestMappedReads(String name) {
+			super(name);
+		}
+
+		@Override
+		public Properties getProperties() {
+
+			final Properties properties = new Properties(super.getProperties());
+
+			properties.setProperty(RWStore.Options.MEMORY_MAPPED_READS, "true");
+
+			return properties;
+
+		}
+
+		/**
+		 * Return <code>true</code> iff the buffer is a view onto the mapped
+		 * region rather than a copy.
+		 */
+		private boolean isMapped(final ByteBuffer b) {
+
+			return b.isDirect() && b.isReadOnly();
+
+		}
+
+		/**
+		 * Records committed before the store is reopened are not in the write
+		 * cache and are read from the mapped region.
+		 */
+		public void test_mappedReadsAfterReopen() {
+
+			Journal store = (Journal) getStore();
+			try {
+
+				final int n = 500;
+				final long[] addrs = new long[n];
+				final ByteBuffer[] data = new ByteBuffer[n];
+
+				RWStrategy bs = (RWStrategy) store.getBufferStrategy();
+
+				for (int i = 0; i < n; i++) {
+					data[i] = randomData(1 + r.nextInt(800));
+					addrs[i] = bs.write(data[i]);
+					data[i].position(0);
+				}
+
+				store.commit();
+
+				store = (Journal) reopenStore(store);
+
+				bs = (RWStrategy) store.getBufferStrategy();
+
+				int nmapped = 0;
+				for (int i = 0; i < n; i++) {
+					final ByteBuffer b = bs.read(addrs[i]);
+					assertEquals(data[i], b);
+					if (isMapped(b))
+						nmapped++;
+				}
+
+				assertTrue("nmapped=" + nmapped, nmapped > 0);
+
+			} finally {
+				store.destroy();
+			}
+
+		}
+
+		/**
+		 * Records written after the store is reopened (including records in
+		 * recycled slots and records in the extension of the file since the
+		 * last commit) are read correctly both before and after the commit.
+		 */
+		public void test_mappedReadsWithRecycling() {
+
+			Journal store = (Journal) getStore(0/* retentionMillis */);
+			try {
+
+				RWStrategy bs = (RWStrategy) store.getBufferStrategy();
+
+				final int n = 500;
+				final long[] addrs = new long[n];
+				final ByteBuffer[] data = new ByteBuffer[n];
+
+				for (int i = 0; i < n; i++) {
+					data[i] = randomData(100);
+					addrs[i] = bs.write(data[i]);
+					data[i].position(0);
+				}
+
+				store.commit();
+
+				store = (Journal) reopenStore(store);
+
+				bs = (RWStrategy) store.getBufferStrategy();
+
+				// Read every record (through the mapped region) then free it.
+				for (int i = 0; i < n; i++) {
+					assertEquals(data[i], bs.read(addrs[i]));
+					bs.delete(addrs[i]);
+				}
+
+				store.commit();
+
+				// Recycle the slots and extend the file.
+				final int m = 5000;
+				final long[] addrs2 = new long[m];
+				final ByteBuffer[] data2 = new ByteBuffer[m];
+
+				for (int i = 0; i < m; i++) {
+					data2[i] = randomData(100);
+					addrs2[i] = bs.write(data2[i]);
+					data2[i].position(0);
+				}
+
+				for (int i = 0; i < m; i++) {
+					assertEquals(data2[i], bs.read(addrs2[i]));
+				}
+
+				store.commit();
+
+				for (int i = 0; i < m; i++) {
+					assertEquals(data2[i], bs.read(addrs2[i]));
+				}
+
+				store = (Journal) reopenStore(store);
+
+				bs = (RWStrategy) store.getBufferStrategy();
+
+				for (int i = 0; i < m; i++) {
+					assertEquals(data2[i], bs.read(addrs2[i]));
+				}
+
+			} finally {
+				store.destroy();
+			}
+
+		}
+
+		/**
+		 * The last segment is mapped in multiples of
+		 * {@link MappedRegions#TAIL_INCREMENT} (up to the end of the file)
+		 * rather than being remapped each time the extent advances.
+		 */
+		public void test_tailMappedInIncrements() throws IOException {
+
+			final File file = File.createTempFile(getName(), ".tmp");
+			final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+
+				final int overlap = 1024;
+
+				// A (sparse) file spanning three tail increments.
+				raf.setLength(2 * MappedRegions.TAIL_INCREMENT + 4096);
+
+				final MappedRegions regions = new MappedRegions(
+						new IReopenChannel<FileChannel>() {
+							public FileChannel reopenChannel() {
+								return raf.getChannel();
+							}
+						}, overlap);
+
+				// Advance the extent and read the last record each time.
+				for (long extent = overlap; extent <= raf.length(); extent += Bytes.megabyte) {
+
+					regions.setExtent(extent);
+
+					assertNotNull(regions.read(extent - overlap, overlap));
+
+				}
+
+				// Mapped once per tail increment.
+				assertEquals(3, regions.getMappedCount());
+
+				// Extending the file and the extent requires a new mapping.
+				final long extent = raf.length() + 4096;
+
+				raf.setLength(extent);
+
+				regions.setExtent(extent);
+
+				assertNotNull(regions.read(extent - overlap, overlap));
+
+				assertEquals(4, regions.getMappedCount());
+
+				// The file was not extended by the mapping.
+				assertEquals(extent, raf.length());
+
+				regions.close();
+
+			} finally {
+				raf.close();
+				file.delete();
+			}
+
+		}
+
+	}
+
 	/**
 	 * Test suite integration for {@link AbstractMROWTestCase}.
 	 * 
@@ -104,6 +104,9 @@ public class TestAll extends TestCase {
         // test of prefix search
         suite.addTestSuite(TestPrefixSearch.class);
         
+        // test of top-k search
+        suite.addTestSuite(TestTopKSearch.class);
+        
         // test verifies search index is restart safe.
         suite.addTestSuite(TestSearchRestartSafe.class);
         
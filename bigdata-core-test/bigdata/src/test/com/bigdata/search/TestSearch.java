@@ -99,6 +99,29 @@ public class TestSearch extends AbstractSearchTest {
 
     public void test_ChildProofing() throws InterruptedException {
 
+        init();
+
+        doChildProofingTest();
+
+    }
+
+    /**
+     * Verify the same hits when the leaves of the index are coded as
+     * compressed posting lists.
+     * 
+     * @see FullTextIndex.Options#COMPRESSED_POSTINGS
+     */
+    public void test_ChildProofing_compressedPostings()
+            throws InterruptedException {
+
+        init(FullTextIndex.Options.COMPRESSED_POSTINGS, "true");
+
+        doChildProofingTest();
+
+    }
+
+    private void doChildProofingTest() throws InterruptedException {
+
         /** all documents are in English. */
         final String languageCode = "EN";
 
@@ -113,7 +136,6 @@ public class TestSearch extends AbstractSearchTest {
         final TimeUnit unit = TimeUnit.MILLISECONDS;
         final String regex = null;
 
-        init();
         {
 
             /*
@@ -0,0 +1,237 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.search;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.bigdata.rdf.lexicon.ITextIndexer.FullTextQuery;
+
+/**
+ * Unit tests for the top-k search (see {@link TopKSearchTask}). The top-k hits
+ * are verified against those reported by an exhaustive search of the same
+ * index.
+ */
+public class TestTopKSearch extends AbstractSearchTest {
+
+    public TestTopKSearch() {
+    }
+
+    public TestTopKSearch(String name) {
+        super(name);
+    }
+
+    private static final String languageCode = "EN";
+
+    private static final String[] vocab = new String[] { "alpha", "bravo",
+            "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india",
+            "juliet", "kilo", "lima", "mike", "november", "oscar", "papa" };
+
+    /**
+     * Index documents with a random mixture of the vocabulary.
+     */
+    private void indexDocs(final int ndocs) {
+
+        final Random r = new Random(ndocs);
+
+        final TokenBuffer<Long> buffer = new TokenBuffer<Long>(ndocs, getNdx());
+
+        for (long docId = 1; docId <= ndocs; docId++) {
+
+            final StringBuilder sb = new StringBuilder();
+
+            final int ntokens = 1 + r.nextInt(12);
+
+            for (int i = 0; i < ntokens; i++) {
+
+                // skew the distribution towards the start of the vocabulary.
+                final int j = Math.min(r.nextInt(vocab.length),
+                        r.nextInt(vocab.length));
+
+                sb.append(vocab[j]).append(' ');
+
+            }
+
+            getNdx().index(buffer, Long.valueOf(docId), 0/* fieldId */,
+                    languageCode, new StringReader(sb.toString()));
+
+        }
+
+        buffer.flush();
+
+    }
+
+    private Hiterator<Hit<Long>> search(final String query,
+            final boolean matchAllTerms, final int maxRank, final boolean topK) {
+
+        return getNdx().search(new FullTextQuery(query, languageCode,
+                false/* prefixMatch */, null/* regex */, matchAllTerms,
+                false/* matchExact */, 0d/* minCosine */, 1d/* maxCosine */,
+                1/* minRank */, maxRank, topK, Long.MAX_VALUE/* timeout */,
+                TimeUnit.MILLISECONDS));
+
+    }
+
+    /**
+     * Verify that the top-k hits have the same cosines in the same rank order
+     * as the first k hits of an exhaustive search and that each top-k hit
+     * has the same cosine as that document in the exhaustive search.
+     */
+    private void assertSameTopK(final String query,
+            final boolean matchAllTerms, final int k) {
+
+        final Map<Long, Double> expected = new HashMap<Long, Double>();
+
+        final Hit<Long>[] all;
+        {
+            final Hiterator<Hit<Long>> itr = search(query, matchAllTerms,
+                    Integer.MAX_VALUE, false/* topK */);
+
+            all = new Hit[itr.size()];
+
+            int i = 0;
+            while (itr.hasNext()) {
+                final Hit<Long> hit = itr.next();
+                expected.put(hit.getDocId(), hit.getCosine());
+                all[i++] = hit;
+            }
+        }
+
+        final Hiterator<Hit<Long>> itr = search(query, matchAllTerms, k,
+                true/* topK */);
+
+        assertEquals("query=" + query + ", k=" + k,
+                Math.min(k, all.length), itr.size());
+
+        int rank = 1;
+
+        while (itr.hasNext()) {
+
+            final Hit<Long> actual = itr.next();
+
+            final String msg = "query=" + query + ", k=" + k + ", rank="
+                    + rank + ", hit=" + actual;
+
+            assertEquals(msg, rank, actual.getRank());
+
+            assertEquals(msg, all[rank - 1].getCosine(), actual.getCosine(),
+                    1e-9);
+
+            final Double cosine = expected.get(actual.getDocId());
+
+            assertNotNull(msg, cosine);
+
+            assertEquals(msg, cosine.doubleValue(), actual.getCosine(), 1e-9);
+
+            rank++;
+
+        }
+
+    }
+
+    public void test_topK_singleToken() {
+
+        init();
+
+        indexDocs(500);
+
+        for (int k : new int[] { 1, 5, 20, 100, 1000 }) {
+
+            assertSameTopK("alpha", false, k);
+
+            assertSameTopK("papa", false, k);
+
+        }
+
+    }
+
+    public void test_topK_multiToken() {
+
+        init();
+
+        indexDocs(500);
+
+        for (int k : new int[] { 1, 5, 20, 100, 1000 }) {
+
+            assertSameTopK("alpha golf", false, k);
+
+            assertSameTopK("bravo kilo papa", false, k);
+
+            assertSameTopK("charlie delta echo foxtrot", false, k);
+
+        }
+
+    }
+
+    public void test_topK_matchAllTerms() {
+
+        init();
+
+        indexDocs(500);
+
+        for (int k : new int[] { 1, 5, 20, 100, 1000 }) {
+
+            assertSameTopK("alpha golf", true, k);
+
+            assertSameTopK("bravo kilo papa", true, k);
+
+        }
+
+    }
+
+    /**
+     * Verify that a top-k query is answered by the exhaustive search when no
+     * maximum rank was given.
+     */
+    public void test_topK_noMaxRank() {
+
+        init();
+
+        indexDocs(100);
+
+        final Hiterator<Hit<Long>> expected = search("alpha bravo", false,
+                Integer.MAX_VALUE, false/* topK */);
+
+        final Hiterator<Hit<Long>> actual = search("alpha bravo", false,
+                Integer.MAX_VALUE, true/* topK */);
+
+        assertEquals(expected.size(), actual.size());
+
+        while (expected.hasNext()) {
+
+            assertEquals(expected.next().getDocId(), actual.next().getDocId());
+
+        }
+
+    }
+
+}
@@ -66,6 +66,8 @@ public class TestAll extends TestCase {
         // test suite for a non-Callable/Runnable Future.
         suite.addTestSuite(TestHaltable.class);
 
+        suite.addTestSuite(TestLatencyHistogram.class);
+
         return suite;
         
     }
@@ -0,0 +1,119 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounter;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class TestLatencyHistogram extends TestCase2 {
+
+    public TestLatencyHistogram() {
+    }
+
+    public TestLatencyHistogram(String name) {
+        super(name);
+    }
+
+    private static long ms(final long millis) {
+
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+
+    }
+
+    /**
+     * Verify the power of two bucket boundaries.
+     */
+    public void test_buckets() {
+
+        final LatencyHistogram h = new LatencyHistogram(8);
+
+        assertEquals(8, h.getBucketCount());
+
+        assertEquals(0, h.getBucket(0L));
+        assertEquals(0, h.getBucket(ms(1) - 1));
+        assertEquals(1, h.getBucket(ms(1)));
+        assertEquals(2, h.getBucket(ms(2)));
+        assertEquals(2, h.getBucket(ms(3)));
+        assertEquals(3, h.getBucket(ms(4)));
+        assertEquals(7, h.getBucket(ms(64)));
+        assertEquals(7, h.getBucket(ms(100000)));
+
+        assertEquals("0-1ms", h.getLabel(0));
+        assertEquals("1-2ms", h.getLabel(1));
+        assertEquals("2-4ms", h.getLabel(2));
+        assertEquals("64+ms", h.getLabel(7));
+
+    }
+
+    /**
+     * Verify the counts and the counters.
+     */
+    public void test_add() {
+
+        final LatencyHistogram h = new LatencyHistogram();
+
+        h.add(ms(0));
+        h.add(ms(3));
+        h.add(ms(3));
+        h.add(ms(1000));
+
+        assertEquals(1L, h.getCount(0));
+        assertEquals(2L, h.getCount(2));
+        assertEquals(1L, h.getCount(h.getBucket(ms(1000))));
+        assertEquals(4L, h.getTotalCount());
+
+        final CounterSet counters = h.getCounters();
+
+        final ICounter<?> c = (ICounter<?>) counters.getChild(h.getLabel(2));
+
+        assertNotNull(c);
+
+        assertEquals(Long.valueOf(2L), c.getValue());
+
+    }
+
+    public void test_ctor_correctRejection() {
+
+        try {
+            new LatencyHistogram(1);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
@@ -33,6 +33,8 @@ import com.bigdata.bop.BOp;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.aggregate.AggregateBase;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.aggregate.IDecomposableAggregate;
 import com.bigdata.rdf.error.SparqlTypeErrorException;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.IVUtility;
@@ -53,7 +55,8 @@ import com.bigdata.rdf.model.BigdataValue;
  * 
  * @author thompsonbry
  */
-public class AVERAGE extends AggregateBase<IV> implements  INeedsMaterialization {
+public class AVERAGE extends AggregateBase<IV> implements
+        INeedsMaterialization, IDecomposableAggregate<IV> {
 
 //    private static final transient Logger log = Logger.getLogger(AVERAGE.class);
 
@@ -122,6 +125,38 @@ public class AVERAGE extends AggregateBase<IV> implements  INeedsMaterialization
         
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The partial sums and the partial counts are combined separately so
+     * the division is only performed once by {@link #done()}.
+     */
+    @Override
+    public void merge(final IAggregate<IV> o) {
+
+        final AVERAGE other = (AVERAGE) o;
+
+        final NumericIV sum;
+        final long count;
+        final Throwable cause;
+        synchronized (other) {
+            sum = other.aggregated;
+            count = other.n;
+            cause = other.firstCause;
+        }
+
+        synchronized (this) {
+            if (firstCause == null)
+                firstCause = cause;
+            if (firstCause == null && count != 0) {
+                aggregated = MathUtility.literalMath(aggregated, sum,
+                        MathOp.PLUS);
+                n += count;
+            }
+        }
+
+    }
+
     synchronized public IV get(final IBindingSet bindingSet) {
 
         try {
@@ -31,6 +31,8 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.aggregate.AggregateBase;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.aggregate.IDecomposableAggregate;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.constraints.INeedsMaterialization;
 import com.bigdata.rdf.internal.constraints.INeedsMaterialization.Requirement;
@@ -48,7 +50,8 @@ import com.bigdata.rdf.model.BigdataLiteral;
  *
  * @author thompsonbry
  */
-public class COUNT extends AggregateBase<IV> {
+public class COUNT extends AggregateBase<IV> implements
+        IDecomposableAggregate<IV> {
 
 	/**
 	 *
@@ -151,6 +154,31 @@ public class COUNT extends AggregateBase<IV> {
 
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The partial counts are summed.
+     */
+    @Override
+    public void merge(final IAggregate<IV> o) {
+
+        final COUNT other = (COUNT) o;
+
+        final long n;
+        final Throwable cause;
+        synchronized (other) {
+            n = other.aggregated;
+            cause = other.firstCause;
+        }
+
+        synchronized (this) {
+            aggregated += n;
+            if (firstCause == null)
+                firstCause = cause;
+        }
+
+    }
+
     /**
      * COUNT does not need to actually see the materialized values, or even the
      * IVs. COUNT(DISTINCT) does need to see the IVs, but they still do not need
@@ -29,6 +29,8 @@ import com.bigdata.bop.BOp;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.aggregate.AggregateBase;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.aggregate.IDecomposableAggregate;
 import com.bigdata.bop.solutions.IVComparator;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.constraints.CompareBOp;
@@ -47,7 +49,8 @@ import com.bigdata.rdf.internal.constraints.INeedsMaterialization;
  *
  *         TODO What is reported if there are no non-null observations?
  */
-public class MAX extends AggregateBase<IV> implements INeedsMaterialization{
+public class MAX extends AggregateBase<IV> implements INeedsMaterialization,
+        IDecomposableAggregate<IV> {
 
 //    private static final transient Logger log = Logger.getLogger(MAX.class);
 
@@ -146,6 +149,35 @@ public class MAX extends AggregateBase<IV> implements INeedsMaterialization{
 
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The largest of the partial results is retained using the same
+     * ORDER BY semantics as {@link #get(IBindingSet)}.
+     */
+    @Override
+    public void merge(final IAggregate<IV> o) {
+
+        final MAX other = (MAX) o;
+
+        final IV iv;
+        final Throwable cause;
+        synchronized (other) {
+            iv = other.max;
+            cause = other.firstCause;
+        }
+
+        synchronized (this) {
+            if (firstCause == null)
+                firstCause = cause;
+            if (iv != null
+                    && (max == null || comparator.compare(iv, max) > 0)) {
+                max = iv;
+            }
+        }
+
+    }
+
     @Override
     synchronized public void reset() {
 
@@ -29,6 +29,8 @@ import com.bigdata.bop.BOp;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.aggregate.AggregateBase;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.aggregate.IDecomposableAggregate;
 import com.bigdata.bop.solutions.IVComparator;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.constraints.CompareBOp;
@@ -47,7 +49,8 @@ import com.bigdata.rdf.internal.constraints.INeedsMaterialization;
  * 
  *         TODO What is reported if there are no non-null observations?
  */
-public class MIN extends AggregateBase<IV> implements INeedsMaterialization{
+public class MIN extends AggregateBase<IV> implements INeedsMaterialization,
+        IDecomposableAggregate<IV> {
 
 //    private static final transient Logger log = Logger.getLogger(MIN.class);
 
@@ -146,6 +149,35 @@ public class MIN extends AggregateBase<IV> implements INeedsMaterialization{
 
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The smallest of the partial results is retained using the same
+     * ORDER BY semantics as {@link #get(IBindingSet)}.
+     */
+    @Override
+    public void merge(final IAggregate<IV> o) {
+
+        final MIN other = (MIN) o;
+
+        final IV iv;
+        final Throwable cause;
+        synchronized (other) {
+            iv = other.min;
+            cause = other.firstCause;
+        }
+
+        synchronized (this) {
+            if (firstCause == null)
+                firstCause = cause;
+            if (iv != null
+                    && (min == null || comparator.compare(iv, min) < 0)) {
+                min = iv;
+            }
+        }
+
+    }
+
     @Override
     synchronized public void reset() {
 
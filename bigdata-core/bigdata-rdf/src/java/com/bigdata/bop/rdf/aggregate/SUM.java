@@ -33,6 +33,8 @@ import com.bigdata.bop.BOp;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.aggregate.AggregateBase;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.aggregate.IDecomposableAggregate;
 import com.bigdata.rdf.error.SparqlTypeErrorException;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.IVUtility;
@@ -50,7 +52,8 @@ import com.bigdata.rdf.model.BigdataValue;
  * 
  * @author thompsonbry
  */
-public class SUM extends AggregateBase<IV> implements INeedsMaterialization {
+public class SUM extends AggregateBase<IV> implements INeedsMaterialization,
+        IDecomposableAggregate<IV> {
 
 //    private static final transient Logger log = Logger.getLogger(SUM.class);
 
@@ -109,6 +112,35 @@ public class SUM extends AggregateBase<IV> implements INeedsMaterialization {
         
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The partial sums are added using the same numeric type promotion
+     * rules as {@link #get(IBindingSet)}.
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void merge(final IAggregate<IV> o) {
+
+        final SUM other = (SUM) o;
+
+        final NumericIV sum;
+        final Throwable cause;
+        synchronized (other) {
+            sum = other.aggregated;
+            cause = other.firstCause;
+        }
+
+        synchronized (this) {
+            if (firstCause == null)
+                firstCause = cause;
+            if (firstCause == null)
+                aggregated = MathUtility.literalMath(aggregated, sum,
+                        MathOp.PLUS);
+        }
+
+    }
+
     @SuppressWarnings("rawtypes")
     synchronized public IV get(final IBindingSet bindingSet) {
 
@@ -0,0 +1,1156 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.bop.rdf.join;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.join.JoinAnnotations;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleCursor;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.keys.NoSuccessorException;
+import com.bigdata.btree.keys.SuccessorUtil;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.relation.IRelation;
+import com.bigdata.relation.accesspath.AccessPath;
+import com.bigdata.relation.accesspath.IAccessPath;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+import com.bigdata.striterator.IKeyOrder;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * A multiway join of a set of statement patterns using leapfrog triejoin
+ * (Veldhuizen, "Leapfrog Triejoin: A Simple, Worst-Case Optimal Join
+ * Algorithm"). Rather than joining the patterns pairwise, the operator binds
+ * one variable at a time in a global {@link Annotations#VARIABLE_ORDER}. For
+ * each variable, the access paths of every pattern which uses that variable
+ * are intersected by leapfrogging: the access path with the smallest key seeks
+ * forward to the largest key until all of them agree. For cyclic patterns
+ * (triangles, cliques) this bounds the work by the size of the output rather
+ * than by the size of the intermediate results of a binary join plan.
+ * <p>
+ * Each statement pattern is viewed as a trie whose levels are its constants
+ * followed by its variables in the global variable order. When the relation
+ * has a statement index whose key order matches that trie, the trie is read
+ * directly from the B+Tree using {@link ITupleCursor#seek(byte[])}. Otherwise
+ * (and whenever the access path carries a filter which can only be applied by
+ * scanning) the as-bound access path is read once and sorted in memory.
+ * <p>
+ * Only {@link ISPO} predicates are supported and none of them may be OPTIONAL.
+ * Each variable may appear at most once in a given predicate.
+ */
+public class LeapfrogTriejoinOp extends PipelineOp {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends JoinAnnotations {
+
+        /**
+         * The {@link IPredicate}[] to be joined (required).
+         */
+        String PREDICATES = LeapfrogTriejoinOp.class.getName() + ".predicates";
+
+        /**
+         * The {@link IVariable}[] giving the order in which the variables of
+         * the {@link #PREDICATES} are bound (required). Variables which are
+         * already bound in a source solution are skipped.
+         */
+        String VARIABLE_ORDER = LeapfrogTriejoinOp.class.getName()
+                + ".variableOrder";
+
+    }
+
+    /**
+     * Deep copy constructor.
+     * 
+     * @param op
+     */
+    public LeapfrogTriejoinOp(final LeapfrogTriejoinOp op) {
+
+        super(op);
+
+    }
+
+    /**
+     * Shallow copy constructor.
+     * 
+     * @param args
+     * @param annotations
+     */
+    public LeapfrogTriejoinOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        getVariableOrder();
+
+        for (IPredicate<ISPO> pred : getPredicates()) {
+
+            if (pred.isOptional())
+                throw new UnsupportedOperationException();
+
+            final List<IVariable<?>> seen = new LinkedList<IVariable<?>>();
+
+            for (int i = 0; i < pred.arity(); i++) {
+
+                final IVariableOrConstant<?> t = pred.get(i);
+
+                if (t == null || !t.isVar())
+                    continue;
+
+                if (seen.contains(t)) {
+                    // Correlated variables are not supported.
+                    throw new UnsupportedOperationException(
+                            "Variable appears more than once: " + pred);
+                }
+
+                seen.add((IVariable<?>) t);
+
+            }
+
+        }
+
+    }
+
+    public LeapfrogTriejoinOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#PREDICATES
+     */
+    @SuppressWarnings("unchecked")
+    public IPredicate<ISPO>[] getPredicates() {
+
+        return (IPredicate<ISPO>[]) getRequiredProperty(Annotations.PREDICATES);
+
+    }
+
+    /**
+     * @see Annotations#VARIABLE_ORDER
+     */
+    public IVariable<?>[] getVariableOrder() {
+
+        return (IVariable<?>[]) getRequiredProperty(Annotations.VARIABLE_ORDER);
+
+    }
+
+    /**
+     * @see Annotations#CONSTRAINTS
+     */
+    public IConstraint[] constraints() {
+
+        return getProperty(Annotations.CONSTRAINTS, null/* defaultValue */);
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new ChunkTask(this, context));
+
+    }
+
+    /**
+     * Return a statement index whose keys are ordered by the constants of the
+     * predicate followed by its variables in the given variable order.
+     * 
+     * @param pred
+     *            The predicate.
+     * @param order
+     *            The variable order.
+     * @param keyOrders
+     *            The key orders maintained by the relation.
+     * 
+     * @return The first such key order -or- <code>null</code> if the relation
+     *         does not maintain one.
+     */
+    public static SPOKeyOrder getTrieKeyOrder(final IPredicate<ISPO> pred,
+            final List<IVariable<?>> order,
+            final Iterator<IKeyOrder<ISPO>> keyOrders) {
+
+        while (keyOrders.hasNext()) {
+
+            final SPOKeyOrder keyOrder = (SPOKeyOrder) keyOrders.next();
+
+            if (keyOrder.getKeyArity() != pred.arity())
+                continue;
+
+            boolean ok = true;
+            int lastRank = -1;
+
+            for (int i = 0; i < keyOrder.getKeyArity(); i++) {
+
+                final IVariableOrConstant<?> t = pred.get(keyOrder
+                        .getKeyOrder(i));
+
+                if (t == null) {
+                    ok = false;
+                    break;
+                }
+
+                if (t.isConstant()) {
+                    if (lastRank != -1) {
+                        // A constant after a variable.
+                        ok = false;
+                        break;
+                    }
+                    continue;
+                }
+
+                final int rank = order.indexOf(t);
+
+                if (rank <= lastRank) {
+                    // Not in the variable order.
+                    ok = false;
+                    break;
+                }
+
+                lastRank = rank;
+
+            }
+
+            if (ok)
+                return keyOrder;
+
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Compares the unsigned byte[] encodings of two {@link IV}s.
+     */
+    private static final Comparator<byte[]> cmp = new Comparator<byte[]>() {
+
+        @Override
+        public int compare(final byte[] a, final byte[] b) {
+            return BytesUtil.compareBytes(a, b);
+        }
+
+    };
+
+    /**
+     * Run the join for each source solution.
+     */
+    static private class ChunkTask implements Callable<Void> {
+
+        private final LeapfrogTriejoinOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final IPredicate<ISPO>[] predicates;
+
+        private final IVariable<?>[] variableOrder;
+
+        private final IConstraint[] constraints;
+
+        /**
+         * The relation associated with the predicates.
+         */
+        private final IRelation<ISPO> relation;
+
+        ChunkTask(final LeapfrogTriejoinOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.predicates = op.getPredicates();
+
+            this.variableOrder = op.getVariableOrder();
+
+            this.constraints = op.constraints();
+
+            this.relation = context.getRelation(predicates[0]);
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final BOpStats stats = context.getStats();
+
+            final IBindingSet[] leftSolutions = BOpUtility.toArray(
+                    context.getSource(), stats);
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final UnsyncLocalOutputBuffer<IBindingSet> unsyncBuffer = new UnsyncLocalOutputBuffer<IBindingSet>(
+                    op.getChunkCapacity(), sink);
+
+            try {
+
+                for (IBindingSet bindingSet : leftSolutions) {
+
+                    join(bindingSet, unsyncBuffer);
+
+                }
+
+                unsyncBuffer.flush();
+
+                sink.flush();
+
+                return null;
+
+            } finally {
+
+                sink.close();
+
+                context.getSource().close();
+
+            }
+
+        }
+
+        /**
+         * Join a source solution against the predicates.
+         */
+        private void join(final IBindingSet bindingSet,
+                final UnsyncLocalOutputBuffer<IBindingSet> out) {
+
+            @SuppressWarnings("unchecked")
+            final IPredicate<ISPO>[] asBound = new IPredicate[predicates.length];
+
+            for (int i = 0; i < predicates.length; i++) {
+
+                if ((asBound[i] = predicates[i].asBound(bindingSet)) == null) {
+                    // Can not be unified (SIDs).
+                    return;
+                }
+
+            }
+
+            /*
+             * The variables of the as-bound predicates in the given order. Any
+             * variable which was not named by the order is appended.
+             */
+            final List<IVariable<?>> vars = new ArrayList<IVariable<?>>();
+
+            for (IPredicate<ISPO> pred : asBound) {
+
+                for (int i = 0; i < pred.arity(); i++) {
+
+                    final IVariableOrConstant<?> t = pred.get(i);
+
+                    if (t != null && t.isVar() && !vars.contains(t))
+                        vars.add((IVariable<?>) t);
+
+                }
+
+            }
+
+            final List<IVariable<?>> order = new ArrayList<IVariable<?>>();
+
+            for (IVariable<?> var : variableOrder) {
+
+                if (vars.contains(var))
+                    order.add(var);
+
+            }
+
+            for (IVariable<?> var : vars) {
+
+                if (!order.contains(var))
+                    order.add(var);
+
+            }
+
+            // The tries to be intersected for each variable.
+            final List<List<Trie>> tries = new ArrayList<List<Trie>>();
+
+            for (int i = 0; i < order.size(); i++) {
+
+                tries.add(new LinkedList<Trie>());
+
+            }
+
+            for (IPredicate<ISPO> pred : asBound) {
+
+                final Trie trie = newTrie(pred, order);
+
+                if (trie == null) {
+                    // No solutions for this predicate.
+                    return;
+                }
+
+                for (int level : trie.levels) {
+
+                    tries.get(level).add(trie);
+
+                }
+
+            }
+
+            /*
+             * Each constraint is tested as soon as all of its variables are
+             * bound (or at the end if some variable is never bound).
+             */
+            final List<List<IConstraint>> levelConstraints = new ArrayList<List<IConstraint>>();
+
+            for (int i = 0; i <= order.size(); i++) {
+
+                levelConstraints.add(new LinkedList<IConstraint>());
+
+            }
+
+            if (constraints != null) {
+
+                for (IConstraint c : constraints) {
+
+                    int level = 0;
+
+                    final Iterator<IVariable<?>> itr = BOpUtility
+                            .getSpannedVariables(c);
+
+                    while (itr.hasNext()) {
+
+                        final IVariable<?> var = itr.next();
+
+                        if (bindingSet.isBound(var))
+                            continue;
+
+                        final int rank = order.indexOf(var);
+
+                        level = Math.max(level, rank == -1 ? order.size()
+                                : rank + 1);
+
+                    }
+
+                    levelConstraints.get(level).add(c);
+
+                }
+
+            }
+
+            final IConstraint[][] a = new IConstraint[levelConstraints.size()][];
+
+            for (int i = 0; i < a.length; i++) {
+
+                a[i] = levelConstraints.get(i).toArray(
+                        new IConstraint[levelConstraints.get(i).size()]);
+
+            }
+
+            final Trie[][] b = new Trie[order.size()][];
+
+            for (int i = 0; i < b.length; i++) {
+
+                b[i] = tries.get(i).toArray(new Trie[tries.get(i).size()]);
+
+            }
+
+            final IBindingSet tmp = bindingSet.clone();
+
+            if (!BOpUtility.isConsistent(a[0], tmp))
+                return;
+
+            leapfrog(0/* level */, order, b, a, tmp, out);
+
+        }
+
+        /**
+         * Bind the variable at the given level to each value on which all of
+         * its tries agree and recurse.
+         */
+        private void leapfrog(final int level, final List<IVariable<?>> order,
+                final Trie[][] tries, final IConstraint[][] constraints,
+                final IBindingSet bset,
+                final UnsyncLocalOutputBuffer<IBindingSet> out) {
+
+            if (level == order.size()) {
+
+                out.add(bset.clone());
+
+                return;
+
+            }
+
+            @SuppressWarnings("rawtypes")
+            final IVariable var = order.get(level);
+
+            final Trie[] its = tries[level].clone();
+
+            final int n = its.length;
+
+            for (Trie it : its) {
+
+                it.open();
+
+            }
+
+            try {
+
+                for (Trie it : its) {
+
+                    if (it.atEnd())
+                        return;
+
+                }
+
+                Arrays.sort(its, new Comparator<Trie>() {
+                    @Override
+                    public int compare(final Trie o1, final Trie o2) {
+                        return cmp.compare(o1.key(), o2.key());
+                    }
+                });
+
+                int p = 0;
+
+                while (true) {
+
+                    final Trie x = its[p];
+
+                    final byte[] max = its[(p + n - 1) % n].key();
+
+                    if (cmp.compare(x.key(), max) == 0) {
+
+                        // All tries agree on this key.
+                        bset.set(var, new Constant<IV>(x.iv()));
+
+                        if (BOpUtility.isConsistent(constraints[level + 1],
+                                bset)) {
+
+                            leapfrog(level + 1, order, tries, constraints,
+                                    bset, out);
+
+                        }
+
+                        bset.clear(var);
+
+                        x.next();
+
+                    } else {
+
+                        x.seek(max);
+
+                    }
+
+                    if (x.atEnd())
+                        break;
+
+                    p = (p + 1) % n;
+
+                }
+
+            } finally {
+
+                for (Trie it : its) {
+
+                    it.up();
+
+                }
+
+            }
+
+        }
+
+        /**
+         * Return the trie for an as-bound predicate.
+         * 
+         * @return The trie -or- <code>null</code> if the predicate has no
+         *         solutions.
+         */
+        private Trie newTrie(final IPredicate<ISPO> pred,
+                final List<IVariable<?>> order) {
+
+            // The slots of the variables in the predicate, in the given order.
+            final List<Integer> slots = new ArrayList<Integer>();
+
+            for (IVariable<?> var : order) {
+
+                for (int i = 0; i < pred.arity(); i++) {
+
+                    if (var.equals(pred.get(i)))
+                        slots.add(i);
+
+                }
+
+            }
+
+            final int[] levels = new int[slots.size()];
+
+            for (int i = 0; i < levels.length; i++) {
+
+                levels[i] = order.indexOf(pred.get(slots.get(i)));
+
+            }
+
+            final SPOKeyOrder keyOrder = slots.isEmpty() ? null
+                    : getTrieKeyOrder(pred, order, relation.getKeyOrders());
+
+            final IPredicate<ISPO> tmp = keyOrder == null ? pred
+                    : (IPredicate<ISPO>) pred.setProperty(
+                            IPredicate.Annotations.KEY_ORDER, keyOrder);
+
+            final IAccessPath<ISPO> accessPath = context.getAccessPath(
+                    relation, tmp);
+
+            if (slots.isEmpty()) {
+
+                // Fully bound: just test for existence.
+                return accessPath.isEmpty() ? null : new ArrayTrie(levels,
+                        new byte[0][][], new IV[0][]);
+
+            }
+
+            if (keyOrder != null && accessPath instanceof AccessPath
+                    && accessPath.getPredicate().getIndexLocalFilter() == null
+                    && accessPath.getPredicate().getAccessPathFilter() == null
+                    && accessPath.getPredicate().getAccessPathExpander() == null
+                    && accessPath.getPredicate().getProperty(
+                            IPredicate.Annotations.RANGE) == null) {
+
+                final Trie trie = newCursorTrie(
+                        ((AccessPath<ISPO>) accessPath).getIndex(), keyOrder,
+                        pred, levels);
+
+                if (trie != null)
+                    return trie;
+
+            }
+
+            return newArrayTrie(accessPath, slots, levels);
+
+        }
+
+        /**
+         * Return a trie reading directly on the statement index -or-
+         * <code>null</code> if the index does not support an
+         * {@link ITupleCursor}.
+         */
+        private Trie newCursorTrie(final IIndex ndx,
+                final SPOKeyOrder keyOrder, final IPredicate<ISPO> pred,
+                final int[] levels) {
+
+            final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+            for (int i = 0; i < keyOrder.getKeyArity(); i++) {
+
+                final IVariableOrConstant<?> t = pred.get(keyOrder
+                        .getKeyOrder(i));
+
+                if (t.isVar())
+                    break;
+
+                IVUtility.encode(keyBuilder, (IV<?, ?>) t.get());
+
+            }
+
+            final byte[] prefix = keyBuilder.getKey();
+
+            final ITupleIterator<?> itr = ndx.rangeIterator(
+                    prefix.length == 0 ? null : prefix, null/* toKey */,
+                    0/* capacity */, IRangeQuery.KEYS | IRangeQuery.CURSOR,
+                    null/* filter */);
+
+            if (!(itr instanceof ITupleCursor)) {
+
+                return null;
+
+            }
+
+            return new CursorTrie(levels, (ITupleCursor<?>) itr, prefix);
+
+        }
+
+        /**
+         * Return a trie over the sorted projection of the access path onto
+         * the variables of the predicate.
+         * 
+         * @return The trie -or- <code>null</code> if the access path is empty.
+         */
+        private Trie newArrayTrie(final IAccessPath<ISPO> accessPath,
+                final List<Integer> slots, final int[] levels) {
+
+            final int depth = slots.size();
+
+            final List<Object[]> rows = new ArrayList<Object[]>();
+
+            final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+            final IChunkedOrderedIterator<ISPO> itr = accessPath.iterator();
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final ISPO spo = itr.next();
+
+                    final byte[][] keys = new byte[depth][];
+
+                    final IV<?, ?>[] ivs = new IV[depth];
+
+                    for (int i = 0; i < depth; i++) {
+
+                        ivs[i] = spo.get(slots.get(i));
+
+                        keys[i] = IVUtility.encode(keyBuilder.reset(), ivs[i])
+                                .getKey();
+
+                    }
+
+                    rows.add(new Object[] { keys, ivs });
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            if (rows.isEmpty())
+                return null;
+
+            final Comparator<Object[]> c = new Comparator<Object[]>() {
+                @Override
+                public int compare(final Object[] o1, final Object[] o2) {
+                    final byte[][] a = (byte[][]) o1[0];
+                    final byte[][] b = (byte[][]) o2[0];
+                    for (int i = 0; i < a.length; i++) {
+                        final int ret = cmp.compare(a[i], b[i]);
+                        if (ret != 0)
+                            return ret;
+                    }
+                    return 0;
+                }
+            };
+
+            final Object[][] a = rows.toArray(new Object[rows.size()][]);
+
+            Arrays.sort(a, c);
+
+            // Remove duplicates.
+            int n = 0;
+
+            for (int i = 0; i < a.length; i++) {
+
+                if (n == 0 || c.compare(a[n - 1], a[i]) != 0)
+                    a[n++] = a[i];
+
+            }
+
+            final byte[][][] keys = new byte[n][][];
+
+            final IV[][] ivs = new IV[n][];
+
+            for (int i = 0; i < n; i++) {
+
+                keys[i] = (byte[][]) a[i][0];
+
+                ivs[i] = (IV[]) a[i][1];
+
+            }
+
+            return new ArrayTrie(levels, keys, ivs);
+
+        }
+
+    } // class ChunkTask
+
+    /**
+     * A trie view of the solutions for one predicate. The levels of the trie
+     * are the variables of the predicate in the variable order. The keys at
+     * each level are the unsigned byte[] encodings of the {@link IV}s, which
+     * have the same order in all statement indices.
+     */
+    private static abstract class Trie {
+
+        /**
+         * The index in the variable order of the variable at each level.
+         */
+        final int[] levels;
+
+        /**
+         * The current level (-1 before the first {@link #open()}).
+         */
+        int depth = -1;
+
+        Trie(final int[] levels) {
+
+            this.levels = levels;
+
+        }
+
+        /**
+         * Descend to the first key of the next level below the current key.
+         */
+        abstract void open();
+
+        /**
+         * Return to the parent level. The key at that level is unchanged.
+         */
+        void up() {
+
+            depth--;
+
+        }
+
+        /**
+         * <code>true</code> iff there are no more keys at this level.
+         */
+        abstract boolean atEnd();
+
+        /**
+         * The current key at this level.
+         */
+        abstract byte[] key();
+
+        /**
+         * The {@link IV} for the current key at this level.
+         */
+        abstract IV<?, ?> iv();
+
+        /**
+         * Advance to the next key at this level.
+         */
+        abstract void next();
+
+        /**
+         * Advance to the first key at this level GTE the given key.
+         */
+        abstract void seek(byte[] key);
+
+    }
+
+    /**
+     * A trie which reads on a statement index using an {@link ITupleCursor}.
+     * The key order of the index must place the constants of the predicate
+     * before its variables, and the variables in the order of the trie levels.
+     */
+    private static class CursorTrie extends Trie {
+
+        private final ITupleCursor<?> cursor;
+
+        /**
+         * The key prefix for the current key at each level.
+         */
+        private final byte[][] prefix;
+
+        private final byte[][] keys;
+
+        private final IV<?, ?>[] ivs;
+
+        CursorTrie(final int[] levels, final ITupleCursor<?> cursor,
+                final byte[] prefix) {
+
+            super(levels);
+
+            this.cursor = cursor;
+
+            this.prefix = new byte[levels.length][];
+
+            this.prefix[0] = prefix;
+
+            this.keys = new byte[levels.length][];
+
+            this.ivs = new IV[levels.length];
+
+        }
+
+        @Override
+        void open() {
+
+            depth++;
+
+            if (depth > 0) {
+
+                final byte[] parent = prefix[depth - 1];
+
+                final byte[] key = keys[depth - 1];
+
+                final byte[] tmp = new byte[parent.length + key.length];
+
+                System.arraycopy(parent, 0, tmp, 0, parent.length);
+
+                System.arraycopy(key, 0, tmp, parent.length, key.length);
+
+                prefix[depth] = tmp;
+
+            }
+
+            position(prefix[depth]);
+
+        }
+
+        @Override
+        boolean atEnd() {
+
+            return keys[depth] == null;
+
+        }
+
+        @Override
+        byte[] key() {
+
+            return keys[depth];
+
+        }
+
+        @Override
+        IV<?, ?> iv() {
+
+            return ivs[depth];
+
+        }
+
+        @Override
+        void next() {
+
+            final byte[] key = concat(prefix[depth], keys[depth]);
+
+            try {
+
+                SuccessorUtil.successor(key);
+
+            } catch (NoSuccessorException ex) {
+
+                keys[depth] = null;
+
+                return;
+
+            }
+
+            position(key);
+
+        }
+
+        @Override
+        void seek(final byte[] key) {
+
+            position(concat(prefix[depth], key));
+
+        }
+
+        /**
+         * Position the cursor on the first tuple GTE the key and decode the
+         * key at the current level from that tuple.
+         */
+        private void position(final byte[] key) {
+
+            ITuple<?> tuple = cursor.seek(key);
+
+            if (tuple == null && cursor.hasNext())
+                tuple = cursor.next();
+
+            final byte[] p = prefix[depth];
+
+            final byte[] k = tuple == null ? null : tuple.getKey();
+
+            if (k == null
+                    || k.length <= p.length
+                    || BytesUtil.compareBytesWithLenAndOffset(0, p.length, k,
+                            0, p.length, p) != 0) {
+
+                keys[depth] = null;
+
+                return;
+
+            }
+
+            final IV<?, ?> iv = IVUtility.decodeFromOffset(k, p.length);
+
+            ivs[depth] = iv;
+
+            keys[depth] = Arrays.copyOfRange(k, p.length,
+                    p.length + iv.byteLength());
+
+        }
+
+        private static byte[] concat(final byte[] a, final byte[] b) {
+
+            final byte[] tmp = new byte[a.length + b.length];
+
+            System.arraycopy(a, 0, tmp, 0, a.length);
+
+            System.arraycopy(b, 0, tmp, a.length, b.length);
+
+            return tmp;
+
+        }
+
+    }
+
+    /**
+     * A trie over a sorted, duplicate free array of rows.
+     */
+    private static class ArrayTrie extends Trie {
+
+        private final byte[][][] keys;
+
+        private final IV<?, ?>[][] ivs;
+
+        /**
+         * The current row at each level.
+         */
+        private final int[] pos;
+
+        /**
+         * The exclusive upper bound on the rows at each level.
+         */
+        private final int[] end;
+
+        ArrayTrie(final int[] levels, final byte[][][] keys,
+                final IV<?, ?>[][] ivs) {
+
+            super(levels);
+
+            this.keys = keys;
+
+            this.ivs = ivs;
+
+            this.pos = new int[levels.length];
+
+            this.end = new int[levels.length];
+
+        }
+
+        @Override
+        void open() {
+
+            depth++;
+
+            if (depth == 0) {
+
+                pos[0] = 0;
+
+                end[0] = keys.length;
+
+            } else {
+
+                // The rows sharing the key of the parent level.
+                pos[depth] = pos[depth - 1];
+
+                end[depth] = search(depth - 1, pos[depth - 1],
+                        end[depth - 1], keys[pos[depth - 1]][depth - 1], true);
+
+            }
+
+        }
+
+        @Override
+        boolean atEnd() {
+
+            return pos[depth] >= end[depth];
+
+        }
+
+        @Override
+        byte[] key() {
+
+            return keys[pos[depth]][depth];
+
+        }
+
+        @Override
+        IV<?, ?> iv() {
+
+            return ivs[pos[depth]][depth];
+
+        }
+
+        @Override
+        void next() {
+
+            pos[depth] = search(depth, pos[depth], end[depth], key(), true);
+
+        }
+
+        @Override
+        void seek(final byte[] key) {
+
+            pos[depth] = search(depth, pos[depth], end[depth], key, false);
+
+        }
+
+        /**
+         * Return the first row in [from:to) whose key at the given level is
+         * GT (or GTE) the given key.
+         */
+        private int search(final int level, int from, int to,
+                final byte[] key, final boolean strict) {
+
+            while (from < to) {
+
+                final int mid = (from + to) >>> 1;
+
+                final int ret = cmp.compare(keys[mid][level], key);
+
+                if (ret < 0 || (strict && ret == 0)) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+
+            }
+
+            return from;
+
+        }
+
+    }
+
+}
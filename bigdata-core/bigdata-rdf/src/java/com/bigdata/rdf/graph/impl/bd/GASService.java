@@ -34,6 +34,7 @@ import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 import org.openrdf.model.ValueFactory;
@@ -61,6 +62,9 @@ import com.bigdata.rdf.graph.analytics.PR;
 import com.bigdata.rdf.graph.impl.GASEngine;
 import com.bigdata.rdf.graph.impl.GASState;
 import com.bigdata.rdf.graph.impl.bd.BigdataGASEngine.BigdataGraphAccessor;
+import com.bigdata.rdf.graph.impl.csr.CSRGASEngine;
+import com.bigdata.rdf.graph.impl.csr.CSRGASEngine.CSRGraphAccessor;
+import com.bigdata.rdf.graph.impl.csr.CSRGraph;
 import com.bigdata.rdf.graph.impl.scheduler.CHMScheduler;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.lexicon.LexiconRelation;
@@ -79,8 +83,10 @@ import com.bigdata.rdf.sparql.ast.service.IServiceOptions;
 import com.bigdata.rdf.sparql.ast.service.ServiceCall;
 import com.bigdata.rdf.sparql.ast.service.ServiceCallCreateParams;
 import com.bigdata.rdf.sparql.ast.service.ServiceNode;
+import com.bigdata.rdf.spo.ISPO;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.striterator.ChunkedArrayIterator;
+import com.bigdata.striterator.IChunkedOrderedIterator;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
 
@@ -99,6 +105,7 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  *    gas:program gas:maxIterations 4 . # optional limit on breadth first expansion.
  *    gas:program gas:maxVisited 2000 . # optional limit on the #of visited vertices.
  *    gas:program gas:nthreads 4 . # specify the #of threads to use (optional)
+ *    gas:program gas:engine "CSR" . # run on an in-memory snapshot of the graph (optional)
  * }
  * </pre>
  * 
@@ -249,6 +256,26 @@ public class GASService extends CustomServiceFactoryBase {
  
         Class<? extends IGASSchedulerImpl> DEFAULT_SCHEDULER = CHMScheduler.class;
 
+        /**
+         * The engine used to run the {@link IGASProgram} (optional, default
+         * {@value #DEFAULT_ENGINE}).
+         * <p>
+         * {@value #ENGINE_BTREE} runs the program directly against the
+         * statement indices. {@value #ENGINE_CSR} first copies the edges into
+         * a {@link CSRGraph} snapshot and then runs the program on a
+         * {@link CSRGASEngine}. Only the edges having the {@link #LINK_TYPE}
+         * are copied when that option is given. The snapshot does not carry
+         * the link attributes, so {@value #ENGINE_CSR} may not be combined
+         * with {@link #LINK_ATTR_TYPE}.
+         */
+        URI ENGINE = new URIImpl(NAMESPACE + "engine");
+
+        String ENGINE_BTREE = "BTree";
+
+        String ENGINE_CSR = "CSR";
+
+        String DEFAULT_ENGINE = ENGINE_BTREE;
+
         /**
          * Magic predicate used to specify one (or more) vertices in the initial
          * frontier.
@@ -423,6 +450,7 @@ public class GASService extends CustomServiceFactoryBase {
         private final int maxIterationsAfterTargets;
         private final int maxVisited;
         private final URI linkType, linkAttrType;
+        private final boolean csr;
         private final Class<IGASProgram<VS, ES, ST>> gasClass;
         private final Class<IGASSchedulerImpl> schedulerClass;
         private final Value[] initialFrontier;
@@ -484,6 +512,39 @@ public class GASService extends CustomServiceFactoryBase {
             this.linkAttrType = (URI) getOnlyArg(Options.PROGRAM,
                     Options.LINK_ATTR_TYPE, null/* default */);
 
+            // Engine (optional).
+            {
+
+                final String engine = getOnlyArg(
+                        Options.PROGRAM,
+                        Options.ENGINE,
+                        store.getValueFactory().createLiteral(
+                                Options.DEFAULT_ENGINE)).stringValue();
+
+                if (Options.ENGINE_CSR.equals(engine)) {
+
+                    if (linkAttrType != null)
+                        throw new IllegalArgumentException(Options.ENGINE
+                                + "=" + Options.ENGINE_CSR
+                                + " does not support "
+                                + Options.LINK_ATTR_TYPE);
+
+                    this.csr = true;
+
+                } else if (Options.ENGINE_BTREE.equals(engine)) {
+
+                    this.csr = false;
+
+                } else {
+
+                    throw new IllegalArgumentException(Options.ENGINE
+                            + " must be one of " + Options.ENGINE_BTREE
+                            + " or " + Options.ENGINE_CSR + ": " + engine);
+
+                }
+
+            }
+
             // GASProgram (required)
             {
                 
@@ -804,8 +865,11 @@ public class GASService extends CustomServiceFactoryBase {
                 	
                 }
                 
-                // Optional link type constraint.
-                if (linkType != null)
+                /*
+                 * Optional link type constraint. The CSR snapshot only holds
+                 * the edges having that link type.
+                 */
+                if (linkType != null && !csr)
                     gasContext.setLinkType(linkType);
 
                 // Optional link attribute constraint.
@@ -1081,7 +1145,16 @@ public class GASService extends CustomServiceFactoryBase {
                 if (val == null)
                     return;
 
-                if (val instanceof IV) {
+                if (val instanceof CSRGraph.Vertex) {
+
+                    /*
+                     * A vertex of a CSR snapshot. It wraps the IV from the
+                     * statement indices.
+                     */
+                    bs.set(var, new Constant((IV) ((CSRGraph.Vertex) val)
+                            .getValue()));
+
+                } else if (val instanceof IV) {
 
                     // The value is already an IV.
                     bs.set(var, new Constant((IV) val));
@@ -1133,6 +1206,9 @@ public class GASService extends CustomServiceFactoryBase {
         private IGASEngine newGasEngine(final IIndexManager indexManager,
                 final int nthreads) {
 
+            if (csr)
+                return new CSRGASEngine(nthreads);
+
             return new BigdataGASEngine(indexManager, nthreads);
 
         }
@@ -1177,10 +1253,46 @@ public class GASService extends CustomServiceFactoryBase {
                     kb.getIndexManager(), kb.getNamespace(), kb
                             .getIndexManager().getLastCommitTime());
 
+            if (csr)
+                return new CSRGraphAccessor(newCSRGraph(graphAccessor.getKB()));
+
             return graphAccessor;
             
         }
 
+        /**
+         * Copy the edges having the {@link #linkType} (or all edges if no link
+         * type was given) into a {@link CSRGraph}.
+         */
+        private CSRGraph newCSRGraph(final AbstractTripleStore kb) {
+
+            final CSRGraph.Builder b = new CSRGraph.Builder();
+
+            final IChunkedOrderedIterator<ISPO> itr = kb.getAccessPath(
+                    (Resource) null, linkType, (Value) null).iterator();
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final ISPO spo = itr.next();
+
+                    // Skip the property values.
+                    if (spo.o().isResource())
+                        b.add(spo);
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            return b.build();
+
+        }
+
     }
 
 }
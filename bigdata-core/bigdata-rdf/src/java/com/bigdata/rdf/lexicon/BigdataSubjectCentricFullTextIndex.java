@@ -35,7 +35,6 @@ import java.util.UUID;
 import org.apache.log4j.Logger;
 import org.openrdf.model.Literal;
 
-import com.bigdata.btree.DefaultTupleSerializer;
 import com.bigdata.btree.IIndex;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.IndexTypeEnum;
@@ -193,7 +192,7 @@ public class BigdataSubjectCentricFullTextIndex extends FullTextIndex implements
              */
             indexMetadata.setTupleSerializer(new RDFFullTextIndexTupleSerializer(
                     keyBuilderFactory,//
-                    DefaultTupleSerializer.getDefaultLeafKeysCoder(),//
+                    getLeafKeysCoder(p),//
 //                    DefaultTupleSerializer.getDefaultValuesCoder(),//
                     SimpleRabaCoder.INSTANCE,
                     fieldsEnabled
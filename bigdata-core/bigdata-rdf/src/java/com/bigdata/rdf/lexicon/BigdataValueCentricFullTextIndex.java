@@ -39,7 +39,6 @@ import java.util.regex.Pattern;
 import org.apache.log4j.Logger;
 import org.openrdf.model.Literal;
 
-import com.bigdata.btree.DefaultTupleSerializer;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.IndexTypeEnum;
 import com.bigdata.btree.keys.DefaultKeyBuilderFactory;
@@ -193,7 +192,7 @@ public class BigdataValueCentricFullTextIndex extends FullTextIndex implements
              */
             indexMetadata.setTupleSerializer(new RDFFullTextIndexTupleSerializer(
                     keyBuilderFactory,//
-                    DefaultTupleSerializer.getDefaultLeafKeysCoder(),//
+                    getLeafKeysCoder(p),//
 //                    DefaultTupleSerializer.getDefaultValuesCoder(),//
                     SimpleRabaCoder.INSTANCE,
                     fieldsEnabled
@@ -27,6 +27,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.lexicon;
 
+import com.bigdata.counters.CounterSet;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.model.BigdataValue;
 
@@ -48,5 +49,11 @@ public interface ITermCache<K extends IV<?, ?>, V extends BigdataValue> {
     V putIfAbsent(K k, V v);
 
     void clear();
+
+    /**
+     * Return the performance counters for the cache (size, hits, misses,
+     * etc).
+     */
+    CounterSet getCounters();
     
 }
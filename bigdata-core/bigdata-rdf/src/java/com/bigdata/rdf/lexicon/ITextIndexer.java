@@ -122,6 +122,7 @@ public interface ITextIndexer<A extends IHit> {
         final long timeout; 
         final TimeUnit unit; 
         final String matchRegex;
+        final boolean topK;
 		
         public FullTextQuery(final String query) {
         	this(
@@ -243,6 +244,41 @@ public interface ITextIndexer<A extends IHit> {
 	            final boolean matchAllTerms, final boolean matchExact, 
 	            final double minCosine, final double maxCosine,
 	            final int minRank, final int maxRank, 
+	            long timeout, final TimeUnit unit) {
+			this(
+				query, 
+				languageCode, 
+				prefixMatch, 
+				matchRegex, 
+				matchAllTerms, 
+				matchExact, 
+				minCosine, 
+				maxCosine, 
+				minRank, 
+				maxRank, 
+				BDS.DEFAULT_TOP_K, 
+				timeout, 
+				unit
+				);
+		}
+
+		/**
+		 * Construct a full text query.
+		 * 
+		 * @param topK
+		 *            When <code>true</code>, only the <i>maxRank</i> best hits
+		 *            are required and the index may stop reading postings once
+		 *            no unread posting could change those hits.
+		 * 
+		 * @see #FullTextQuery(String, String, boolean, String, boolean,
+		 *      boolean, double, double, int, int, long, TimeUnit)
+		 * @see BDS#TOP_K
+		 */
+		public FullTextQuery(final String query, final String languageCode,
+	            final boolean prefixMatch, final String matchRegex, 
+	            final boolean matchAllTerms, final boolean matchExact, 
+	            final double minCosine, final double maxCosine,
+	            final int minRank, final int maxRank, final boolean topK, 
 	            long timeout, final TimeUnit unit) {
 			
 			this.query = query;
@@ -255,6 +291,7 @@ public interface ITextIndexer<A extends IHit> {
 			this.maxCosine = maxCosine;
 			this.minRank = minRank;
 			this.maxRank = maxRank;
+			this.topK = topK;
 			this.timeout = timeout;
 			this.unit = unit;
 			
@@ -330,6 +367,14 @@ public interface ITextIndexer<A extends IHit> {
 			return maxRank;
 		}
 
+		/**
+		 * @return <code>true</code> iff only the {@link #getMaxRank()} best
+		 *         hits are required.
+		 */
+		public boolean isTopK() {
+			return topK;
+		}
+
 		/**
 		 * @return the timeout
 		 */
@@ -358,6 +403,11 @@ public interface ITextIndexer<A extends IHit> {
 			result = prime * result + (prefixMatch ? 1231 : 1237);
 			result = prime * result + ((query == null) ? 0 : query.hashCode());
 			result = prime * result + ((matchRegex == null) ? 0 : matchRegex.hashCode());
+			/*
+			 * A top-k result is truncated at maxRank so it may only be reused
+			 * for the same maxRank.
+			 */
+			result = prime * result + (topK ? maxRank : 1237);
 			return result;
 		}
 
@@ -394,6 +444,10 @@ public interface ITextIndexer<A extends IHit> {
 					return false;
 			} else if (!matchRegex.equals(other.matchRegex))
 				return false;
+			if (topK != other.topK)
+				return false;
+			if (topK && maxRank != other.maxRank)
+				return false;
 			return true;
 		}
 
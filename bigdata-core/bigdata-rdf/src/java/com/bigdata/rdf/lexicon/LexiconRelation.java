@@ -28,6 +28,7 @@
 
 package com.bigdata.rdf.lexicon;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
@@ -75,6 +76,7 @@ import com.bigdata.btree.filter.TupleFilter;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.keys.KVO;
 import com.bigdata.cache.ConcurrentWeakValueCacheWithBatchedUpdates;
+import com.bigdata.counters.CounterSet;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.IJournal;
 import com.bigdata.journal.IResourceLock;
@@ -513,9 +515,9 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
 		}
 
         /*
-         * @todo This should be a high concurrency LIRS or similar cache in
-         * order to prevent the cache being flushed by the materialization of
-         * low frequency terms.
+         * Note: See AbstractTripleStore.Options#TERM_CACHE_STRIPED for a high
+         * concurrency cache which is not flushed by the materialization of low
+         * frequency terms.
          */
         {
             
@@ -523,6 +525,10 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                     AbstractTripleStore.Options.TERM_CACHE_CAPACITY,
                     AbstractTripleStore.Options.DEFAULT_TERM_CACHE_CAPACITY));
 
+            final boolean striped = Boolean.parseBoolean(getProperty(
+                    AbstractTripleStore.Options.TERM_CACHE_STRIPED,
+                    AbstractTripleStore.Options.DEFAULT_TERM_CACHE_STRIPED));
+
             final Long commitTime = getCommitTime();
             
             if (commitTime != null && TimestampUtility.isReadOnly(timestamp)) {
@@ -539,19 +545,16 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                  * store.
                  */
                 termCache = termCacheFactory.getInstance(new NT(namespace,
-                        commitTime.longValue()), termCacheCapacity * 2);
+                        commitTime.longValue()), new TermCacheConfig(
+                        termCacheCapacity * 2, striped));
 
             } else {
 
                 /*
                  * Unshared for any other view of the triple store.
                  */
-                termCache = new TermCache<IV<?,?>, BigdataValue>(//
-                        new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?,?>, BigdataValue>(//
-                        termCacheCapacity, // queueCapacity
-                        .75f, // loadFactor (.75 is the default)
-                        16 // concurrency level (16 is the default)
-                ));
+                termCache = newTermCache(new TermCacheConfig(
+                        termCacheCapacity, striped));
 
             }
             
@@ -3029,19 +3032,93 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
     /**
      * Factory used for {@link #termCache} for read-only views of the lexicon.
      */
-    static private CanonicalFactory<NT/* key */, ITermCache<IV<?,?>, BigdataValue>, Integer/* state */> termCacheFactory = new CanonicalFactory<NT, ITermCache<IV<?,?>, BigdataValue>, Integer>(
+    static private CanonicalFactory<NT/* key */, ITermCache<IV<?,?>, BigdataValue>, TermCacheConfig/* state */> termCacheFactory = new CanonicalFactory<NT, ITermCache<IV<?,?>, BigdataValue>, TermCacheConfig>(
             1/* queueCapacity */) {
         @Override
         protected ITermCache<IV<?,?>, BigdataValue> newInstance(
-                NT key, Integer termCacheCapacity) {
-            return new TermCache<IV<?,?>,BigdataValue>(//
-                    new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?,?>, BigdataValue>(//
-                    termCacheCapacity.intValue(),// backing hard reference LRU queue capacity.
-                    .75f, // loadFactor (.75 is the default)
-                    16 // concurrency level (16 is the default)
-            ));
+                NT key, TermCacheConfig config) {
+            return newTermCache(config);
         }
     };
+
+    /**
+     * The configuration for a term cache.
+     */
+    private static class TermCacheConfig {
+
+        final int capacity;
+
+        final boolean striped;
+
+        TermCacheConfig(final int capacity, final boolean striped) {
+
+            this.capacity = capacity;
+
+            this.striped = striped;
+
+        }
+
+    }
+
+    /**
+     * Return a new term cache.
+     * 
+     * @see AbstractTripleStore.Options#TERM_CACHE_STRIPED
+     */
+    static private ITermCache<IV<?, ?>, BigdataValue> newTermCache(
+            final TermCacheConfig config) {
+
+        if (config.striped) {
+
+            return new StripedTermCache<IV<?, ?>, BigdataValue>(//
+                    config.capacity,//
+                    16 // concurrency level (16 is the default)
+            );
+
+        }
+
+        return new TermCache<IV<?,?>,BigdataValue>(//
+                new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?,?>, BigdataValue>(//
+                config.capacity,// backing hard reference LRU queue capacity.
+                .75f, // loadFactor (.75 is the default)
+                16 // concurrency level (16 is the default)
+        ));
+
+    }
+
+    /**
+     * Return the performance counters for the term caches which are shared
+     * by the read-only views of the lexicon. There is one child per cache,
+     * named for the namespace and commit time of those views.
+     */
+    @SuppressWarnings("rawtypes")
+    static public CounterSet getTermCacheCounters() {
+
+        final CounterSet counterSet = new CounterSet();
+
+        final Iterator it = termCacheFactory.entryIterator();
+
+        while (it.hasNext()) {
+
+            final Entry e = (Entry) it.next();
+
+            final NT nt = (NT) e.getKey();
+
+            final ITermCache<?, ?> cache = (ITermCache<?, ?>) ((WeakReference) e
+                    .getValue()).get();
+
+            if (cache == null)
+                continue;
+
+            counterSet.makePath(nt.getName() + "@" + nt.getTimestamp())
+                    .attach(cache.getCounters());
+
+        }
+
+        return counterSet;
+
+    }
+
     
     /**
      * Clear all term caches for the supplied namespace.
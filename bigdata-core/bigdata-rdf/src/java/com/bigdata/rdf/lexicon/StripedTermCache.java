@@ -0,0 +1,398 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.lexicon;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.bigdata.btree.FrequencySketch;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataValue;
+
+/**
+ * A bounded term cache which is split into independent stripes, each of which
+ * is a {@link ConcurrentHashMap} plus a FIFO ring of its keys. Lookups never
+ * lock. An insert locks only its stripe and uses <code>tryLock()</code>, so a
+ * thread which would have to wait simply does not cache the value (the caller
+ * still has the value, so this only costs a later miss).
+ * <p>
+ * Once a stripe is full, a new entry is admitted only if its estimated access
+ * frequency (from a {@link FrequencySketch} of recent lookups) is greater than
+ * that of the oldest entry in the stripe (TinyLFU). If the new entry is
+ * admitted then the oldest entry is evicted. Otherwise the oldest entry is
+ * moved to the tail of the ring (a second chance). This means that the terms
+ * materialized by a one-off scan do not displace the frequently used terms,
+ * unlike the LRU policy of {@link TermCache}.
+ * 
+ * @see com.bigdata.rdf.store.AbstractTripleStore.Options#TERM_CACHE_STRIPED
+ */
+public class StripedTermCache<K extends IV<?, ?>, V extends BigdataValue>
+        implements ITermCache<K, V> {
+
+    private final int capacity;
+
+    private final Stripe<K, V>[] stripes;
+
+    private final int stripeMask;
+
+    private final FrequencySketch sketch;
+
+    private final CAT hits = new CAT();
+
+    private final CAT misses = new CAT();
+
+    private final CAT admitted = new CAT();
+
+    private final CAT rejected = new CAT();
+
+    private final CAT evicted = new CAT();
+
+    /**
+     * @param capacity
+     *            The maximum #of entries in the cache.
+     * @param concurrencyLevel
+     *            The estimated #of concurrently updating threads. The #of
+     *            stripes is the next power of two, but not more than the
+     *            capacity.
+     */
+    @SuppressWarnings("unchecked")
+    public StripedTermCache(final int capacity, final int concurrencyLevel) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+
+        int n = 1;
+
+        while (n < concurrencyLevel && (n << 1) <= capacity)
+            n <<= 1;
+
+        this.capacity = capacity;
+
+        this.stripes = new Stripe[n];
+
+        this.stripeMask = n - 1;
+
+        final int stripeCapacity = (capacity + n - 1) / n;
+
+        for (int i = 0; i < n; i++) {
+
+            stripes[i] = new Stripe<K, V>(stripeCapacity);
+
+        }
+
+        this.sketch = new FrequencySketch(capacity);
+
+    }
+
+    private Stripe<K, V> stripeFor(final int hash) {
+
+        // Use the high bits since the sketch uses the low bits.
+        return stripes[((hash * 0x9E3779B9) >>> 16) & stripeMask];
+
+    }
+
+    @Override
+    public int size() {
+
+        int n = 0;
+
+        for (Stripe<K, V> s : stripes) {
+
+            n += s.map.size();
+
+        }
+
+        return n;
+
+    }
+
+    @Override
+    public V get(final K k) {
+
+        final int hash = k.hashCode();
+
+        sketch.increment(hash);
+
+        final V v = stripeFor(hash).map.get(k);
+
+        if (v == null)
+            misses.increment();
+        else
+            hits.increment();
+
+        return v;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: <code>null</code> is also returned if the value was not entered
+     * into the cache, either because it was not admitted or because another
+     * thread was updating the same stripe.
+     */
+    @Override
+    public V putIfAbsent(final K k, final V v) {
+
+        final int hash = k.hashCode();
+
+        final Stripe<K, V> s = stripeFor(hash);
+
+        final V tmp = s.map.get(k);
+
+        if (tmp != null) {
+
+            // No need to write on the map.
+            return tmp;
+
+        }
+
+        if (!s.lock.tryLock()) {
+
+            // Do not wait on another writer.
+            rejected.increment();
+
+            return null;
+
+        }
+
+        try {
+
+            final V old = s.map.get(k);
+
+            if (old != null)
+                return old;
+
+            if (s.count == s.ring.length) {
+
+                // The stripe is full. Compare with the oldest entry.
+                @SuppressWarnings("unchecked")
+                final K victim = (K) s.ring[s.head];
+
+                if (sketch.frequency(hash) <= sketch.frequency(victim
+                        .hashCode())) {
+
+                    // Second chance for the victim.
+                    s.head = (s.head + 1) % s.ring.length;
+
+                    rejected.increment();
+
+                    return null;
+
+                }
+
+                s.map.remove(victim);
+
+                s.head = (s.head + 1) % s.ring.length;
+
+                s.count--;
+
+                evicted.increment();
+
+            }
+
+            /*
+             * Clone the IV in order to clear the hard reference from the IV to
+             * the BigdataValue cached on the IV (see TermCache).
+             */
+            @SuppressWarnings("unchecked")
+            final K key = (K) k.clone(true/* clearCache */);
+
+            s.ring[(s.head + s.count) % s.ring.length] = key;
+
+            s.count++;
+
+            s.map.put(key, v);
+
+            admitted.increment();
+
+            return null;
+
+        } finally {
+
+            s.lock.unlock();
+
+        }
+
+    }
+
+    @Override
+    public void clear() {
+
+        for (Stripe<K, V> s : stripes) {
+
+            s.lock.lock();
+
+            try {
+
+                s.map.clear();
+
+                for (int i = 0; i < s.ring.length; i++) {
+
+                    s.ring[i] = null;
+
+                }
+
+                s.head = s.count = 0;
+
+            } finally {
+
+                s.lock.unlock();
+
+            }
+
+        }
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet counterSet = new CounterSet();
+
+        counterSet.addCounter("capacity", new OneShotInstrument<Integer>(
+                capacity));
+
+        counterSet.addCounter("stripeCount", new OneShotInstrument<Integer>(
+                stripes.length));
+
+        counterSet.addCounter("size", new Instrument<Integer>() {
+            @Override
+            protected void sample() {
+                setValue(size());
+            }
+        });
+
+        counterSet.addCounter("hits", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        counterSet.addCounter("misses", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        counterSet.addCounter("hitRatio", new Instrument<Double>() {
+            @Override
+            protected void sample() {
+                final long h = hits.get();
+                final long n = h + misses.get();
+                setValue(n == 0L ? 0d : ((double) h) / n);
+            }
+        });
+
+        counterSet.addCounter("admitted", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(admitted.get());
+            }
+        });
+
+        counterSet.addCounter("rejected", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(rejected.get());
+            }
+        });
+
+        counterSet.addCounter("evicted", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(evicted.get());
+            }
+        });
+
+        return counterSet;
+
+    }
+
+    /**
+     * The #of cache hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * The #of cache misses.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * The #of entries evicted to make room for more frequently used entries.
+     */
+    public long getEvictionCount() {
+        return evicted.get();
+    }
+
+    /**
+     * A stripe of the cache. The {@link #map} is read without locking. The
+     * other fields are guarded by the {@link #lock}.
+     */
+    private static class Stripe<K, V> {
+
+        final ConcurrentHashMap<K, V> map;
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The keys in the order in which they were admitted (or given a second
+         * chance), starting at {@link #head}.
+         */
+        final Object[] ring;
+
+        int head = 0;
+
+        int count = 0;
+
+        Stripe(final int capacity) {
+
+            this.map = new ConcurrentHashMap<K, V>(capacity);
+
+            this.ring = new Object[capacity];
+
+        }
+
+    }
+
+}
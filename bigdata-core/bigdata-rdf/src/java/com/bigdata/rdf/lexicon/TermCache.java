@@ -28,6 +28,10 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package com.bigdata.rdf.lexicon;
 
 import com.bigdata.cache.ConcurrentWeakValueCacheWithBatchedUpdates;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.model.BigdataValue;
 
@@ -40,6 +44,10 @@ public class TermCache<K extends IV<?, ?>, V extends BigdataValue> implements
 
     private final ConcurrentWeakValueCacheWithBatchedUpdates<IV<?, ?>, V> delegate;
 
+    private final CAT hits = new CAT();
+
+    private final CAT misses = new CAT();
+
     public TermCache(
             final ConcurrentWeakValueCacheWithBatchedUpdates<IV<?, ?>, V> delegate) {
 
@@ -60,7 +68,14 @@ public class TermCache<K extends IV<?, ?>, V extends BigdataValue> implements
     @Override
     public V get(final K k) {
         
-        return delegate.get(k);
+        final V v = delegate.get(k);
+
+        if (v == null)
+            misses.increment();
+        else
+            hits.increment();
+
+        return v;
 
     }
 
@@ -111,5 +126,47 @@ public class TermCache<K extends IV<?, ?>, V extends BigdataValue> implements
         delegate.clear();
         
     }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet counterSet = new CounterSet();
+
+        counterSet.addCounter("capacity", new OneShotInstrument<Integer>(
+                delegate.capacity()));
+
+        counterSet.addCounter("size", new Instrument<Integer>() {
+            @Override
+            protected void sample() {
+                setValue(delegate.size());
+            }
+        });
+
+        counterSet.addCounter("hits", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        counterSet.addCounter("misses", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        counterSet.addCounter("hitRatio", new Instrument<Double>() {
+            @Override
+            protected void sample() {
+                final long h = hits.get();
+                final long n = h + misses.get();
+                setValue(n == 0L ? 0d : ((double) h) / n);
+            }
+        });
+
+        return counterSet;
+
+    }
     
 }
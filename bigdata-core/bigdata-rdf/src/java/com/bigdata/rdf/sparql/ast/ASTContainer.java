@@ -110,6 +110,12 @@ public class ASTContainer extends ASTBase {
 		 * Used to prevent running resolution again on consequent calls to query.evaluate
 		 */
         String RESOLVED = "resolved";
+
+        /**
+         * The base URI against which the parser resolved relative IRIs in the
+         * query string (optional).
+         */
+        String BASE_URI = "baseURI";
     }
 
     /**
@@ -171,6 +177,29 @@ public class ASTContainer extends ASTBase {
 
     }
 
+    /**
+     * Return the base URI used to parse the query string.
+     * 
+     * @return The base URI -or- <code>null</code> if it was not recorded.
+     */
+    public String getBaseURI() {
+
+        return (String) getProperty(Annotations.BASE_URI);
+
+    }
+
+    /**
+     * Set the base URI used to parse the query string.
+     * 
+     * @param baseURI
+     *            The base URI (may be <code>null</code>).
+     */
+    public void setBaseURI(final String baseURI) {
+
+        setProperty(Annotations.BASE_URI, baseURI);
+
+    }
+
     /**
      * Return the parse tree generated from the query string. 
      */
@@ -38,6 +38,12 @@ import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
 import com.bigdata.bop.join.HashJoinAnnotations;
 import com.bigdata.bop.join.JoinAnnotations;
+import com.bigdata.bop.joinGraph.rto.JoinGraph;
+import com.bigdata.bop.rdf.join.LeapfrogTriejoinOp;
+import com.bigdata.bop.solutions.NativeHeapGroupByOp;
+import com.bigdata.bop.solutions.NativeHeapSortOp;
+import com.bigdata.bop.solutions.PipelinedAggregationOp;
+import com.bigdata.bop.solutions.TopKSortOp;
 import com.bigdata.htree.HTree;
 import com.bigdata.io.DirectBufferPool;
 import com.bigdata.rdf.sparql.ast.cache.CacheConnectionFactory;
@@ -152,6 +158,48 @@ public interface QueryHints {
 
     int DEFAULT_RTO_NEDGES = 1;
 
+    /**
+     * When <code>true</code>, the join path selected by the runtime optimizer
+     * is evaluated one join at a time and the actual cardinality of each join
+     * is checked against its estimated cardinality (default
+     * {@value #DEFAULT_RTO_ADAPTIVE}). If they diverge by more than the
+     * {@link #RTO_ADAPTIVE_THRESHOLD}, the order of the remaining joins is
+     * decided by sampling against the actual intermediate solutions and joins
+     * whose access path is smaller than the intermediate result are run as
+     * hash joins. This trades materialization of the intermediate results
+     * between joins for robustness against bad cardinality estimates.
+     * 
+     * @see JoinGraph.Annotations#ADAPTIVE
+     */
+    String RTO_ADAPTIVE = "RTO-adaptive";
+
+    boolean DEFAULT_RTO_ADAPTIVE = JoinGraph.Annotations.DEFAULT_ADAPTIVE;
+
+    /**
+     * The factor by which the actual cardinality of a join must differ from
+     * its estimated cardinality before the remaining joins are re-optimized
+     * (default {@value #DEFAULT_RTO_ADAPTIVE_THRESHOLD}). This must be GTE
+     * ONE (1).
+     * 
+     * @see #RTO_ADAPTIVE
+     */
+    String RTO_ADAPTIVE_THRESHOLD = "RTO-adaptiveThreshold";
+
+    double DEFAULT_RTO_ADAPTIVE_THRESHOLD = JoinGraph.Annotations.DEFAULT_ADAPTIVE_THRESHOLD;
+
+    /**
+     * The maximum #of intermediate solutions which adaptive evaluation will
+     * materialize for one join (default
+     * {@value #DEFAULT_RTO_ADAPTIVE_MAX_SOLUTIONS}). Beyond this, the rest of
+     * the join path is evaluated as a single pipelined query plan.
+     * 
+     * @see #RTO_ADAPTIVE
+     * @see JoinGraph.Annotations#ADAPTIVE_MAX_SOLUTIONS
+     */
+    String RTO_ADAPTIVE_MAX_SOLUTIONS = "RTO-adaptiveMaxSolutions";
+
+    int DEFAULT_RTO_ADAPTIVE_MAX_SOLUTIONS = JoinGraph.Annotations.DEFAULT_ADAPTIVE_MAX_SOLUTIONS;
+
     /**
      * Query hint sets the optimistic threshold for the static join order
      * optimizer.
@@ -207,6 +255,8 @@ public interface QueryHints {
      * 
      * @see #NATIVE_DISTINCT_SPO
      * @see #NATIVE_DISTINCT_SOLUTIONS
+     * @see #NATIVE_ORDER_BY
+     * @see #NATIVE_GROUP_BY
      * @see #NATIVE_HASH_JOINS
      * @see #MERGE_JOIN
      * 
@@ -283,6 +333,65 @@ public interface QueryHints {
 
     boolean DEFAULT_NATIVE_DISTINCT_SOLUTIONS = DEFAULT_ANALYTIC;
 
+    /**
+     * When <code>true</code>, will use the version of ORDER BY which spills
+     * sorted runs onto the native (C process) heap and then merges those runs
+     * (see {@link NativeHeapSortOp}). When <code>false</code>, use the version
+     * which sorts all solutions on the JVM heap.
+     */
+    String NATIVE_ORDER_BY = "nativeOrderBy";
+
+    boolean DEFAULT_NATIVE_ORDER_BY = DEFAULT_ANALYTIC;
+
+    /**
+     * When <code>true</code>, will use the version of the generalized
+     * aggregation operator which buffers the solutions on the native (C
+     * process) heap and aggregates one hash partition of the groups at a time
+     * (see {@link NativeHeapGroupByOp}). When <code>false</code>, use the
+     * versions which keep all groups on the JVM heap. This is used for any
+     * query having a GROUP BY clause, including those which could otherwise
+     * use pipelined aggregation, since the pipelined aggregation operator
+     * keeps one accumulator per group on the JVM heap.
+     */
+    String NATIVE_GROUP_BY = "nativeGroupBy";
+
+    boolean DEFAULT_NATIVE_GROUP_BY = DEFAULT_ANALYTIC;
+
+    /**
+     * The maximum parallelism for the pipelined aggregation operator when all
+     * aggregates may be decomposed into partial aggregates, e.g., COUNT, SUM,
+     * MIN, MAX, and AVERAGE (default
+     * {@value #DEFAULT_PIPELINED_AGGREGATION_MAX_PARALLEL}). When GT ONE (1),
+     * each concurrent invocation of the operator updates its own partial
+     * aggregates, which are combined during the last pass. This can speed up
+     * report style queries which aggregate a large number of solutions into a
+     * small number of groups.
+     * 
+     * <pre>
+     * hint:Query hint:pipelinedAggregationMaxParallel "4".
+     * </pre>
+     * 
+     * @see PipelinedAggregationOp
+     */
+    String PIPELINED_AGGREGATION_MAX_PARALLEL = "pipelinedAggregationMaxParallel";
+
+    int DEFAULT_PIPELINED_AGGREGATION_MAX_PARALLEL = 1;
+
+    /**
+     * The maximum value of <code>OFFSET+LIMIT</code> for which an ORDER BY
+     * followed by a SLICE will be evaluated using the bounded heap
+     * {@link TopKSortOp} (default {@value #DEFAULT_TOP_K_SORT_LIMIT}). Only
+     * that many solutions are retained by the ORDER BY rather than the entire
+     * solution set. Use ZERO (0) to disable the top-k ORDER BY.
+     * <p>
+     * Note: The top-k ORDER BY is not used when the query also specifies
+     * DISTINCT or REDUCED since the DISTINCT is imposed after the ORDER BY.
+     */
+    String TOP_K_SORT_LIMIT = "topKSortLimit";
+
+    long DEFAULT_TOP_K_SORT_LIMIT = Long.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + TOP_K_SORT_LIMIT, "10000"));
+
     /**
      * When <code>true</code> and the range count of the default graph access
      * path exceeds the {@link #NATIVE_DISTINCT_SPO_THRESHOLD}, will use the
@@ -333,6 +442,25 @@ public interface QueryHints {
 
     boolean DEFAULT_MERGE_JOIN = true;
 
+    /**
+     * When <code>true</code>, the leading run of required statement patterns
+     * in a join group is evaluated by a single {@link LeapfrogTriejoinOp} if
+     * the join graph of those statement patterns is cyclic (triangles,
+     * cliques, etc.). Binary join plans for such patterns can produce
+     * intermediate results much larger than the final result no matter how
+     * the joins are ordered. The variables are bound in the order in which
+     * they first appear in the joins as ordered by the
+     * {@link ASTStaticJoinOptimizer}, adjusted so that as many statement
+     * patterns as possible can be read directly from a statement index.
+     * <p>
+     * This query hint may be applied to a join group, a subquery or the
+     * entire query.
+     */
+    String LEAPFROG_TRIEJOIN = "leapfrogTriejoin";
+
+    boolean DEFAULT_LEAPFROG_TRIEJOIN = Boolean.valueOf(System.getProperty(
+            LEAPFROG_TRIEJOIN, "false"));
+
     /**
      * Query hint for disabling the DISTINCT SPO behavior for a CONSTRUCT QUERY
      * (default {@value #DEFAULT_CONSTRUCT_DISTINCT_SPO}). When disabled, the
@@ -790,4 +918,21 @@ public interface QueryHints {
    boolean DEFAULT_REGEX_MATCH_NON_STRING = Boolean.valueOf(System.getProperty(
            QueryHints.class.getName() + "." + REGEX_MATCH_NON_STRING, "false"));
 
+   /**
+    * The maximum #of optimized SELECT query plans retained by the
+    * {@link com.bigdata.rdf.sparql.ast.eval.QueryPlanCache} of each query
+    * engine -or- ZERO (0) to disable the plan cache. The default may be
+    * overridden using the environment variable named
+    * 
+    * <pre>
+    * com.bigdata.rdf.sparql.ast.QueryHints.queryPlanCacheCapacity
+    * </pre>
+    * 
+    * Note: This is not a query hint. It is only read from the environment.
+    */
+   String QUERY_PLAN_CACHE_CAPACITY = "queryPlanCacheCapacity";
+
+   int DEFAULT_QUERY_PLAN_CACHE_CAPACITY = Integer.valueOf(System.getProperty(
+           QueryHints.class.getName() + "." + QUERY_PLAN_CACHE_CAPACITY, "1000"));
+
 }
@@ -49,6 +49,8 @@ import com.bigdata.bop.fed.QueryEngineFactory;
 import com.bigdata.bop.join.HTreeSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JVMSolutionSetHashJoinOp;
 import com.bigdata.bop.rdf.join.ChunkedMaterializationOp;
+import com.bigdata.bop.solutions.IGroupByRewriteState;
+import com.bigdata.bop.solutions.PipelinedAggregationOp;
 import com.bigdata.htree.HTree;
 import com.bigdata.journal.IBTreeManager;
 import com.bigdata.journal.IIndexManager;
@@ -72,6 +74,7 @@ import com.bigdata.rdf.sparql.ast.hints.QueryHintRegistry;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTBottomUpOptimizer;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTOptimizerList;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTQueryHintOptimizer;
+import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticBindingsOptimizer;
 import com.bigdata.rdf.sparql.ast.optimizers.IASTOptimizer;
 import com.bigdata.rdf.sparql.ast.ssets.ISolutionSetManager;
 import com.bigdata.rdf.sparql.ast.ssets.SolutionSetManager;
@@ -189,6 +192,30 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      */
     public boolean nativeDistinctSolutions = QueryHints.DEFAULT_NATIVE_DISTINCT_SOLUTIONS;
 
+    /**
+     * When <code>true</code>, will use the version of the ORDER BY operator
+     * which spills sorted runs onto the native heap.
+     * 
+     * @see QueryHints#NATIVE_ORDER_BY
+     */
+    public boolean nativeOrderBy = QueryHints.DEFAULT_NATIVE_ORDER_BY;
+
+    /**
+     * When <code>true</code>, will use the version of the GROUP BY operator
+     * which buffers the solutions on the native heap.
+     * 
+     * @see QueryHints#NATIVE_GROUP_BY
+     */
+    public boolean nativeGroupBy = QueryHints.DEFAULT_NATIVE_GROUP_BY;
+
+    /**
+     * The maximum <code>OFFSET+LIMIT</code> for which an ORDER BY followed by
+     * a SLICE will use the top-k ORDER BY operator.
+     * 
+     * @see QueryHints#TOP_K_SORT_LIMIT
+     */
+    public long topKSortLimit = QueryHints.DEFAULT_TOP_K_SORT_LIMIT;
+
     /**
      * Controls whether the intermediate solution chunks on the query engine
      * operator input queues are stored on the native heap and/or the managed
@@ -248,6 +275,33 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      */
     public int maxParallelForSolutionSetHashJoin = 1;
     
+    /**
+     * The maximum parallelism for pipelined aggregation when all aggregates
+     * may be decomposed into partial aggregates, e.g., COUNT, SUM, MIN, MAX,
+     * and AVERAGE (default {@value #maxParallelForPipelinedAggregation}).
+     * When GT ONE (1), each concurrent invocation of the operator updates its
+     * own partial aggregates, which are combined during the last pass. When
+     * any aggregate can not be decomposed, the operator is always single
+     * threaded.
+     * 
+     * @see AST2BOpUtility
+     * @see PipelineOp.Annotations#MAX_PARALLEL
+     * @see PipelinedAggregationOp#isDecomposable(IGroupByRewriteState)
+     * @see QueryHints#PIPELINED_AGGREGATION_MAX_PARALLEL
+     */
+    public int maxParallelForPipelinedAggregation = QueryHints.DEFAULT_PIPELINED_AGGREGATION_MAX_PARALLEL;
+    
+    /**
+     * When <code>true</code> (the default), variables which are bound to the
+     * same value in each exogenous solution are inlined into the AST as
+     * constants. This is disabled when the query plan is generated for the
+     * {@link QueryPlanCache} since a cached plan is reused with other values
+     * for the exogenous bindings.
+     * 
+     * @see ASTStaticBindingsOptimizer
+     */
+    public boolean inlineExogenousBindings = true;
+    
     /**
      * When <code>true</code>, the projection of the query will be materialized
      * by an {@link ChunkedMaterializationOp} within the query plan unless a
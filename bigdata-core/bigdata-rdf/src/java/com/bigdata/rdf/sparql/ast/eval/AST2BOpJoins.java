@@ -27,13 +27,17 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.eval;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.openrdf.query.algebra.StatementPattern.Scope;
@@ -65,16 +69,21 @@ import com.bigdata.bop.join.PipelineJoin;
 import com.bigdata.bop.rdf.filter.NativeDistinctFilter;
 import com.bigdata.bop.rdf.filter.StripContextFilter;
 import com.bigdata.bop.rdf.join.DataSetJoin;
+import com.bigdata.bop.rdf.join.LeapfrogTriejoinOp;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.VTE;
 import com.bigdata.rdf.internal.impl.TermId;
 import com.bigdata.rdf.sparql.ast.DatasetNode;
+import com.bigdata.rdf.sparql.ast.IGroupMemberNode;
+import com.bigdata.rdf.sparql.ast.JoinGroupNode;
 import com.bigdata.rdf.sparql.ast.QueryHints;
 import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.TermNode;
 import com.bigdata.rdf.sparql.ast.VarNode;
 import com.bigdata.rdf.spo.ISPO;
 import com.bigdata.rdf.spo.InGraphHashSetFilter;
 import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.spo.SPORelation;
 import com.bigdata.relation.IRelation;
 import com.bigdata.relation.accesspath.AccessPath;
 import com.bigdata.relation.accesspath.ElementFilter;
@@ -1391,4 +1400,310 @@ public class AST2BOpJoins extends AST2BOpFilters {
 
     }
 
+    /**
+     * Inspect the remainder of the join group. If the leading run of required
+     * statement patterns has a cyclic join graph, then those statement patterns
+     * are evaluated by a single {@link LeapfrogTriejoinOp} rather than by a
+     * sequence of binary joins.
+     * <p>
+     * A statement pattern is accepted iff it does not repeat a variable. The
+     * attached join filters are handled as they are for a single join: those
+     * which can run against the {@link IV}s are evaluated by the
+     * {@link LeapfrogTriejoinOp} as soon as their variables are bound and the
+     * others follow it in the pipeline with their materialization steps.
+     * 
+     * @param start
+     *            Modified by side-effect to indicate how many children were
+     *            absorbed by the leapfrog triejoin IFF one was used.
+     * 
+     * @return <i>left</i> if the leading statement patterns were not cyclic
+     *         and otherwise the leapfrog triejoin plan.
+     * 
+     * @see QueryHints#LEAPFROG_TRIEJOIN
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static protected PipelineOp convertLeapfrogTriejoin(PipelineOp left,
+            final JoinGroupNode joinGroup, final Set<IVariable<?>> doneSet,
+            final AST2BOpContext ctx, final AtomicInteger start) {
+
+        if (ctx.isCluster() || ctx.isQuads()) {
+
+            // Only supported for triples on a single machine.
+            return left;
+
+        }
+
+        final List<StatementPatternNode> sps = new LinkedList<StatementPatternNode>();
+
+        final List<Set<IVariable<?>>> edges = new LinkedList<Set<IVariable<?>>>();
+
+        final List<IConstraint> constraints = new LinkedList<IConstraint>();
+
+        for (int i = start.get(); i < joinGroup.arity(); i++) {
+
+            final IGroupMemberNode child = (IGroupMemberNode) joinGroup.get(i);
+
+            if (!(child instanceof StatementPatternNode))
+                break;
+
+            final StatementPatternNode sp = (StatementPatternNode) child;
+
+            if (sp.isOptional() || sp.sid() != null
+                    || sp.getFastRangeCountVar() != null
+                    || sp.getDistinctTermScanVar() != null)
+                break;
+
+            final Set<IVariable<?>> vars = new LinkedHashSet<IVariable<?>>();
+
+            int nvars = 0;
+
+            for (TermNode t : new TermNode[] { sp.s(), sp.p(), sp.o() }) {
+
+                if (t instanceof VarNode) {
+                    vars.add(((VarNode) t).getValueExpression());
+                    nvars++;
+                }
+
+            }
+
+            if (vars.size() != nvars) {
+                // Correlated variables.
+                break;
+            }
+
+            final List<IConstraint> attachedConstraints = getJoinConstraints(sp);
+
+            sps.add(sp);
+
+            edges.add(vars);
+
+            if (attachedConstraints != null)
+                constraints.addAll(attachedConstraints);
+
+        }
+
+        if (sps.size() < 3 || !isCyclic(edges)) {
+
+            return left;
+
+        }
+
+        final List<Predicate> preds = new LinkedList<Predicate>();
+
+        // The variables in the order in which they first appear.
+        final List<IVariable<?>> vars = new LinkedList<IVariable<?>>();
+
+        for (StatementPatternNode sp : sps) {
+
+            final Predicate<?> pred = AST2BOpUtility.toPredicate(sp, ctx)
+                    .clearAnnotations(
+                            new String[] { Annotations.SCOPE,
+                                    Annotations.QUADS, Annotations.DATASET });
+
+            preds.add(pred);
+
+            for (IVariable<?> var : edges.get(preds.size() - 1)) {
+
+                if (!vars.contains(var))
+                    vars.add(var);
+
+            }
+
+        }
+
+        final List<IVariable<?>> order = getLeapfrogVariableOrder(
+                (List) preds, vars, ctx);
+
+        final Map<IConstraint, Set<IVariable<IV>>> needsMaterialization = new LinkedHashMap<IConstraint, Set<IVariable<IV>>>();
+
+        final IConstraint[] joinConstraints = getJoinConstraints2(
+                constraints, needsMaterialization, true/* conditionalRouting */);
+
+        left = applyQueryHints(new LeapfrogTriejoinOp(leftOrEmpty(left),//
+                new NV(BOp.Annotations.BOP_ID, ctx.nextId()),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.ANY),//
+                new NV(LeapfrogTriejoinOp.Annotations.PREDICATES, preds
+                        .toArray(new Predicate[preds.size()])),//
+                new NV(LeapfrogTriejoinOp.Annotations.VARIABLE_ORDER, order
+                        .toArray(new IVariable[order.size()])),//
+                new NV(LeapfrogTriejoinOp.Annotations.CONSTRAINTS,
+                        joinConstraints)//
+                ), joinGroup, ctx);
+
+        left = addMaterializationSteps3(left, doneSet, needsMaterialization,
+                joinGroup.getQueryHints(), ctx);
+
+        // These joins were consumed.
+        start.addAndGet(sps.size());
+
+        return left;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the hypergraph whose edges are the variable
+     * sets of the statement patterns is cyclic. This is the GYO reduction: a
+     * variable which appears in only one edge is removed, as is an edge which
+     * is contained in another edge. The hypergraph is acyclic iff this reduces
+     * it to nothing.
+     */
+    static boolean isCyclic(final List<Set<IVariable<?>>> edges) {
+
+        final List<Set<IVariable<?>>> tmp = new LinkedList<Set<IVariable<?>>>();
+
+        for (Set<IVariable<?>> e : edges) {
+
+            tmp.add(new LinkedHashSet<IVariable<?>>(e));
+
+        }
+
+        boolean modified = true;
+
+        while (modified && !tmp.isEmpty()) {
+
+            modified = false;
+
+            // Remove the variables which appear in only one edge.
+            for (Set<IVariable<?>> e : tmp) {
+
+                final Iterator<IVariable<?>> itr = e.iterator();
+
+                while (itr.hasNext()) {
+
+                    final IVariable<?> var = itr.next();
+
+                    int n = 0;
+
+                    for (Set<IVariable<?>> f : tmp) {
+
+                        if (f.contains(var))
+                            n++;
+
+                    }
+
+                    if (n == 1) {
+                        itr.remove();
+                        modified = true;
+                    }
+
+                }
+
+            }
+
+            // Remove the edges which are contained in some other edge.
+            final Iterator<Set<IVariable<?>>> itr = tmp.iterator();
+
+            while (itr.hasNext()) {
+
+                final Set<IVariable<?>> e = itr.next();
+
+                boolean contained = e.isEmpty();
+
+                for (Set<IVariable<?>> f : tmp) {
+
+                    if (contained)
+                        break;
+
+                    if (f != e && f.containsAll(e))
+                        contained = true;
+
+                }
+
+                if (contained) {
+                    itr.remove();
+                    modified = true;
+                }
+
+            }
+
+        }
+
+        return !tmp.isEmpty();
+
+    }
+
+    /**
+     * Choose the variable order for a {@link LeapfrogTriejoinOp}. The order in
+     * which the variables first appear in the (statically ordered) joins is
+     * preferred. For small numbers of variables, the permutation which lets
+     * the most statement patterns read directly on a statement index is used
+     * instead, breaking ties in favor of that preferred order. The other
+     * statement patterns must be sorted in memory.
+     */
+    static List<IVariable<?>> getLeapfrogVariableOrder(
+            final List<IPredicate<ISPO>> preds, final List<IVariable<?>> vars,
+            final AST2BOpContext ctx) {
+
+        if (vars.size() > MAX_LEAPFROG_PERMUTATION_VARS)
+            return vars;
+
+        final SPORelation spoRelation = ctx.getAbstractTripleStore()
+                .getSPORelation();
+
+        final List<IVariable<?>> best = new ArrayList<IVariable<?>>(vars);
+
+        final int[] bestScore = new int[] { -1 };
+
+        permute(preds, vars, new ArrayList<IVariable<?>>(), best, bestScore,
+                spoRelation);
+
+        return best;
+
+    }
+
+    /**
+     * The maximum #of variables for which we consider all permutations when
+     * choosing the variable order for a {@link LeapfrogTriejoinOp}.
+     */
+    static private final int MAX_LEAPFROG_PERMUTATION_VARS = 6;
+
+    private static void permute(final List<IPredicate<ISPO>> preds,
+            final List<IVariable<?>> remaining,
+            final List<IVariable<?>> prefix, final List<IVariable<?>> best,
+            final int[] bestScore, final SPORelation spoRelation) {
+
+        if (remaining.isEmpty()) {
+
+            int score = 0;
+
+            for (IPredicate<ISPO> pred : preds) {
+
+                if (LeapfrogTriejoinOp.getTrieKeyOrder(pred, prefix,
+                        spoRelation.getKeyOrders()) != null)
+                    score++;
+
+            }
+
+            if (score > bestScore[0]) {
+
+                bestScore[0] = score;
+
+                best.clear();
+
+                best.addAll(prefix);
+
+            }
+
+            return;
+
+        }
+
+        for (IVariable<?> var : remaining) {
+
+            final List<IVariable<?>> tmp = new LinkedList<IVariable<?>>(
+                    remaining);
+
+            tmp.remove(var);
+
+            prefix.add(var);
+
+            permute(preds, tmp, prefix, best, bestScore, spoRelation);
+
+            prefix.remove(prefix.size() - 1);
+
+        }
+
+    }
+
 }
@@ -61,6 +61,7 @@ import com.bigdata.bop.ap.Predicate;
 import com.bigdata.bop.ap.SampleIndex.SampleType;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.join.HashJoinAnnotations;
 import com.bigdata.bop.join.JoinAnnotations;
 import com.bigdata.bop.join.PipelineJoin;
 import com.bigdata.bop.join.PipelineJoinStats;
@@ -408,6 +409,17 @@ public class AST2BOpRTO extends AST2BOpJoins {
         final int nedges = joinGroup.getProperty(QueryHints.RTO_NEDGES,
                 QueryHints.DEFAULT_RTO_NEDGES);
         
+        final boolean adaptive = joinGroup.getProperty(
+                QueryHints.RTO_ADAPTIVE, QueryHints.DEFAULT_RTO_ADAPTIVE);
+
+        final double adaptiveThreshold = joinGroup.getProperty(
+                QueryHints.RTO_ADAPTIVE_THRESHOLD,
+                QueryHints.DEFAULT_RTO_ADAPTIVE_THRESHOLD);
+
+        final int adaptiveMaxSolutions = joinGroup.getProperty(
+                QueryHints.RTO_ADAPTIVE_MAX_SOLUTIONS,
+                QueryHints.DEFAULT_RTO_ADAPTIVE_MAX_SOLUTIONS);
+
         left = new JoinGraph(leftOrEmpty(left),//
                 new NV(BOp.Annotations.BOP_ID, ctx.nextId()),//
                 new NV(BOp.Annotations.EVALUATION_CONTEXT,
@@ -425,6 +437,11 @@ public class AST2BOpRTO extends AST2BOpJoins {
                 new NV(JoinGraph.Annotations.LIMIT, limit),//
                 new NV(JoinGraph.Annotations.NEDGES, nedges),//
                 new NV(JoinGraph.Annotations.SAMPLE_TYPE, sampleType.name()),//
+                new NV(JoinGraph.Annotations.ADAPTIVE, adaptive),//
+                new NV(JoinGraph.Annotations.ADAPTIVE_THRESHOLD,
+                        adaptiveThreshold),//
+                new NV(JoinGraph.Annotations.ADAPTIVE_MAX_SOLUTIONS,
+                        adaptiveMaxSolutions),//
                 new NV(JoinGraph.Annotations.DONE_SET, doneSetIn),//
                 new NV(JoinGraph.Annotations.NT, new NT(ctx.getNamespace(),
                         ctx.getTimestamp()))//
@@ -462,23 +479,62 @@ public class AST2BOpRTO extends AST2BOpJoins {
     public static PipelineOp compileJoinGraph(final QueryEngine queryEngine,
             final JoinGraph joinGraph, final Path path) {
 
+        if (path == null)
+            throw new IllegalArgumentException();
+
+        return compileJoinGraph(queryEngine, joinGraph, path.getPredicates(),
+                0/* fromIndex */, new LinkedHashSet<IVariable<?>>(
+                        joinGraph.getDoneSet()));
+
+    }
+
+    /**
+     * Compile the tail of a join path into a query plan. This is used when
+     * adaptive evaluation of the join path abandons a step whose intermediate
+     * solutions would be too large to materialize. The remaining joins are
+     * then run as a single pipelined query plan against the solutions which
+     * were fed into that step. The constraints attached to each join are the
+     * same as for {@link #compileJoinGraph(QueryEngine, JoinGraph, Path)}.
+     * 
+     * @param queryEngine
+     *            The {@link QueryEngine} on which the RTO has been executing
+     *            and on which the returned query plan may be executed.
+     * @param joinGraph
+     *            The operator that executed the RTO.
+     * @param predicates
+     *            The complete join path.
+     * @param fromIndex
+     *            The index of the first predicate in the join path to be
+     *            compiled. The solutions fed into the query plan must already
+     *            have been joined with the predicates before this index.
+     * @param doneSet
+     *            The variables known to be materialized by the joins before
+     *            <i>fromIndex</i> (in/out).
+     * 
+     * @return The query plan for the remaining joins.
+     */
+    public static PipelineOp compileJoinGraph(final QueryEngine queryEngine,
+            final JoinGraph joinGraph, final IPredicate<?>[] predicates,
+            final int fromIndex, final Set<IVariable<?>> doneSet) {
+
         if (queryEngine == null)
             throw new IllegalArgumentException();
         
         if (joinGraph == null)
             throw new IllegalArgumentException();
 
-        if (path == null)
+        if (predicates == null)
             throw new IllegalArgumentException();
 
-//        final IVariable<?>[] selected = joinGraph.getSelected();
+        if (fromIndex < 0 || fromIndex >= predicates.length)
+            throw new IllegalArgumentException();
 
-        final IPredicate<?>[] predicates = path.getPredicates();
+        if (doneSet == null)
+            throw new IllegalArgumentException();
 
-        final IConstraint[] constraints = joinGraph.getConstraints();
+//        final IVariable<?>[] selected = joinGraph.getSelected();
 
-        final Set<IVariable<?>> doneSet = new LinkedHashSet<IVariable<?>>(
-                joinGraph.getDoneSet());
+        final IConstraint[] constraints = joinGraph.getConstraints();
 
         /*
          * The AST JoinGroupNode for the joins and filters that we are running
@@ -514,7 +570,7 @@ public class AST2BOpRTO extends AST2BOpJoins {
         // Start with an empty plan.
         PipelineOp left = null;
 
-        for (int i = 0; i < predicates.length; i++) {
+        for (int i = fromIndex; i < predicates.length; i++) {
 
             final Predicate<?> pred = (Predicate<?>) predicates[i];
 
@@ -552,6 +608,98 @@ public class AST2BOpRTO extends AST2BOpJoins {
 
     }
 
+    /**
+     * Compile a single step of a join path into a query plan. This is used
+     * when the join path is evaluated one join at a time so the order of the
+     * remaining joins can be revisited as actual cardinalities are observed.
+     * The constraints attached to the last predicate are those which become
+     * fully bound at that step of the join path, so running the steps in
+     * sequence applies the same constraints as {@link #compileJoinGraph}.
+     * 
+     * @param queryEngine
+     *            The {@link QueryEngine} on which the RTO has been executing
+     *            and on which the returned query plan may be executed.
+     * @param joinGraph
+     *            The operator that executed the RTO.
+     * @param predicates
+     *            The join path up to and including the predicate for this step.
+     * @param doneSet
+     *            The variables known to be materialized by the previous steps
+     *            (in/out).
+     * @param hashJoinVars
+     *            When non-<code>null</code>, the step is evaluated as a hash
+     *            join on these variables against a single scan of the access
+     *            path. Otherwise it is evaluated as a pipeline join.
+     * 
+     * @return The query plan for that step.
+     */
+    public static PipelineOp compileJoinGraphStep(
+            final QueryEngine queryEngine, final JoinGraph joinGraph,
+            final IPredicate<?>[] predicates,
+            final Set<IVariable<?>> doneSet,
+            final IVariable<?>[] hashJoinVars) {
+
+        if (queryEngine == null)
+            throw new IllegalArgumentException();
+
+        if (joinGraph == null)
+            throw new IllegalArgumentException();
+
+        if (predicates == null || predicates.length == 0)
+            throw new IllegalArgumentException();
+
+        if (doneSet == null)
+            throw new IllegalArgumentException();
+
+        if (hashJoinVars != null && hashJoinVars.length == 0)
+            throw new IllegalArgumentException();
+
+        final boolean pathIsComplete = predicates.length == joinGraph
+                .getVertices().length;
+
+        /*
+         * Figure out which constraints are attached to which predicates.
+         */
+        final IConstraint[][] constraintAttachmentArray = PartitionedJoinGroup
+                .getJoinGraphConstraints(predicates,
+                        joinGraph.getConstraints(), null/* knownBound */,
+                        pathIsComplete);
+
+        final IConstraint[] attachedJoinConstraints = constraintAttachmentArray[predicates.length - 1];
+
+        // Lookup the AST node for that predicate.
+        final Map<Integer, StatementPatternNode> index = getIndex((JoinGroupNode) joinGraph
+                .getRequiredProperty(JoinGraph.Annotations.JOIN_GROUP));
+
+        Predicate<?> pred = (Predicate<?>) predicates[predicates.length - 1];
+
+        final StatementPatternNode sp = index.get(pred.getId());
+
+        if (hashJoinVars != null) {
+
+            pred = (Predicate<?>) pred.setProperty(QueryHints.HASH_JOIN,
+                    Boolean.TRUE).setProperty(HashJoinAnnotations.JOIN_VARS,
+                    hashJoinVars);
+
+        }
+
+        // Create an execution context for the query.
+        final AST2BOpContext ctx = getExecutionContext(queryEngine,
+                // Identifies the KB instance (namespace and timestamp).
+                (NT) joinGraph.getRequiredProperty(JoinGraph.Annotations.NT));
+
+        return join(null/* left */, //
+                pred, //
+                pred.isOptional() ? new LinkedHashSet<IVariable<?>>(doneSet)
+                        : doneSet, //
+                attachedJoinConstraints == null ? null : Arrays
+                        .asList(attachedJoinConstraints),//
+                null, // cutoff join limit
+                sp.getQueryHints(),//
+                ctx);
+
+    }
+
     /**
      * Return an execution context that may be used to execute a cutoff join
      * during sampling or the entire join path once it has been identified.
@@ -88,10 +88,13 @@ import com.bigdata.bop.solutions.IVComparator;
 import com.bigdata.bop.solutions.JVMDistinctBindingSetsOp;
 import com.bigdata.bop.solutions.MemoryGroupByOp;
 import com.bigdata.bop.solutions.MemorySortOp;
+import com.bigdata.bop.solutions.NativeHeapGroupByOp;
+import com.bigdata.bop.solutions.NativeHeapSortOp;
 import com.bigdata.bop.solutions.PipelinedAggregationOp;
 import com.bigdata.bop.solutions.ProjectionOp;
 import com.bigdata.bop.solutions.SliceOp;
 import com.bigdata.bop.solutions.SortOrder;
+import com.bigdata.bop.solutions.TopKSortOp;
 import com.bigdata.btree.IRangeQuery;
 import com.bigdata.rdf.error.SparqlTypeErrorException;
 import com.bigdata.rdf.internal.ILexiconConfiguration;
@@ -3180,6 +3183,20 @@ public class AST2BOpUtility extends AST2BOpRTO {
             
         }
 
+        if (joinGroup.getProperty(QueryHints.LEAPFROG_TRIEJOIN,
+                QueryHints.DEFAULT_LEAPFROG_TRIEJOIN)) {
+
+            /*
+             * If the leading statement patterns of the remainder of the group
+             * form a cyclic join graph, then evaluate them with a single
+             * multiway join.
+             */
+
+            left = convertLeapfrogTriejoin(left, joinGroup, doneSet, ctx,
+                    start);
+
+        }
+
         if (QueryOptimizerEnum.Runtime.equals(joinGroup.getQueryOptimizer())) {
 
             /*
@@ -4685,31 +4702,64 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         left = addMaterializationSteps2(left, bopId, vars, queryHints, ctx);
 
-        if (!groupByState.isAnyDistinct() && !groupByState.isSelectDependency()
+        if (ctx.nativeGroupBy && groupByExprs != null) {
+
+            /*
+             * General aggregation operator which buffers the solutions on the
+             * native heap and aggregates one hash partition of the groups at
+             * a time. This is used in analytic query mode for any GROUP BY,
+             * including those which could use pipelined aggregation, since
+             * the number of groups can be arbitrarily large and the pipelined
+             * aggregation operator keeps every group on the JVM heap.
+             */
+
+            op = new NativeHeapGroupByOp(leftOrEmpty(left),//
+                    NV.asMap(new NV[] {//
+                            new NV(BOp.Annotations.BOP_ID, bopId),//
+                            new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                    BOpEvaluationContext.CONTROLLER),//
+                            new NV(PipelineOp.Annotations.PIPELINED, true),//
+                            new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                            new NV(GroupByOp.Annotations.GROUP_BY_STATE,
+                                    groupByState), //
+                            new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
+                                    groupByRewrite), //
+                            new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                    }));
+
+        } else if (!groupByState.isAnyDistinct()
+                && !groupByState.isSelectDependency()
                 && !groupByState.isNestedAggregates()) {
 
             /*
              * Extremely efficient pipelined aggregation operator.
              * 
-             * TODO This operation can be parallelized on a cluster either if it
-             * does not use any operators which can not be decomposed (such as
-             * AVERAGE) or if we rewrite such operators into AVG(X) :=
-             * SUM(X)/COUNT(X). When it is parallelized, we need to run it on
-             * each node and add another instance of this operator on the query
-             * controller which aggregates the aggregates from the nodes in the
-             * cluster. If we have done rewrites of things like AVERAGE, then we
-             * can not compute the AVERAGE until after we have computed the
-             * aggregate of aggregates. The simplest way to do that is using a
-             * LET operator after the aggregates have been combined.
+             * Note: When all aggregates can be decomposed into partial
+             * aggregates (COUNT, SUM, MIN, MAX, AVERAGE), the operator may run
+             * with maxParallel GT ONE (see
+             * QueryHints#PIPELINED_AGGREGATION_MAX_PARALLEL, which is ONE by
+             * default). Each invocation then updates its own partial
+             * aggregates and they are combined by the last pass. AVERAGE
+             * carries its SUM and COUNT as the partial state.
+             * 
+             * TODO This operation can be parallelized on a cluster when all
+             * aggregates are decomposable by running it on each node and adding
+             * another instance of this operator on the query controller which
+             * merges the partial aggregates from the nodes in the cluster.
              */
 
+            final int maxParallel = PipelinedAggregationOp
+                    .isDecomposable(groupByRewrite) ? ctx.maxParallelForPipelinedAggregation
+                    : 1;
+
             op = new PipelinedAggregationOp(leftOrEmpty(left),//
                     NV.asMap(new NV[] {//
                             new NV(BOp.Annotations.BOP_ID, bopId),//
                             new NV(BOp.Annotations.EVALUATION_CONTEXT,
                                     BOpEvaluationContext.CONTROLLER),//
                             new NV(PipelineOp.Annotations.PIPELINED, true),//
-                            new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                            new NV(PipelineOp.Annotations.MAX_PARALLEL,
+                                    maxParallel),//
                             new NV(PipelineOp.Annotations.SHARED_STATE, true),//
                             new NV(GroupByOp.Annotations.GROUP_BY_STATE,
                                     groupByState), //
@@ -4723,13 +4773,8 @@ public class AST2BOpUtility extends AST2BOpRTO {
             /*
              * General aggregation operator on the JVM heap.
              * 
-             * TODO There is a sketch of a generalized aggregation operator for
-             * the native heap but it needs to be reworked (the control
-             * structure is incorrect). This generalized aggregation operator
-             * for the native heap would be a better only when the #of solutions
-             * to be grouped is large and we can not pipeline the aggregation.
-             * (The code for this is either on the CI machine or the
-             * workstation). BBT 8/17/2011.
+             * Note: See NativeHeapGroupByOp for a generalized aggregation
+             * operator for the native heap (used in analytic query mode).
              */
 
             op = new MemoryGroupByOp(leftOrEmpty(left), NV.asMap(new NV[] {//
@@ -4804,6 +4849,64 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         left = addMaterializationSteps2(left, sortId, vars, queryHints, ctx);
 
+        final long topK = getTopKSortLimit(queryBase, ctx);
+
+        if (topK > 0) {
+            /*
+             * ORDER BY + LIMIT. Only OFFSET+LIMIT solutions are retained. The
+             * SLICE is still imposed downstream.
+             */
+            left = applyQueryHints(
+                    new TopKSortOp(
+                            leftOrEmpty(left),
+                            NV.asMap(new NV[] {//
+                                    new NV(TopKSortOp.Annotations.BOP_ID, sortId),//
+                                    new NV(TopKSortOp.Annotations.SORT_ORDER,
+                                            sortOrders),//
+                                    new NV(
+                                            TopKSortOp.Annotations.VALUE_COMPARATOR,
+                                            new IVComparator()),//
+                                    new NV(
+                                            TopKSortOp.Annotations.EVALUATION_CONTEXT,
+                                            BOpEvaluationContext.CONTROLLER),//
+                                    new NV(TopKSortOp.Annotations.PIPELINED, true),//
+                                    new NV(TopKSortOp.Annotations.MAX_PARALLEL, 1),//
+                                    new NV(TopKSortOp.Annotations.REORDER_SOLUTIONS, false),//
+                                    new NV(TopKSortOp.Annotations.LAST_PASS, true),//
+                                    new NV(TopKSortOp.Annotations.LIMIT, (int) topK),//
+                            })), queryHints, ctx);
+
+            return left;
+
+        }
+
+        if (ctx.nativeOrderBy) {
+            /*
+             * ORDER BY with sorted runs spilled onto the native heap.
+             */
+            left = applyQueryHints(
+                    new NativeHeapSortOp(
+                            leftOrEmpty(left),
+                            NV.asMap(new NV[] {//
+                                    new NV(NativeHeapSortOp.Annotations.BOP_ID, sortId),//
+                                    new NV(NativeHeapSortOp.Annotations.SORT_ORDER,
+                                            sortOrders),//
+                                    new NV(
+                                            NativeHeapSortOp.Annotations.VALUE_COMPARATOR,
+                                            new IVComparator()),//
+                                    new NV(
+                                            NativeHeapSortOp.Annotations.EVALUATION_CONTEXT,
+                                            BOpEvaluationContext.CONTROLLER),//
+                                    new NV(NativeHeapSortOp.Annotations.PIPELINED, true),//
+                                    new NV(NativeHeapSortOp.Annotations.MAX_PARALLEL, 1),//
+                                    new NV(NativeHeapSortOp.Annotations.REORDER_SOLUTIONS, false),//
+                                    new NV(NativeHeapSortOp.Annotations.LAST_PASS, true),//
+                            })), queryHints, ctx);
+
+            return left;
+
+        }
+
         left = applyQueryHints(
                 new MemorySortOp(
                         leftOrEmpty(left),
@@ -4829,6 +4932,45 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
     }
 
+    /**
+     * Return <code>OFFSET+LIMIT</code> if the ORDER BY for the query may be
+     * evaluated by the {@link TopKSortOp} and ZERO (0) otherwise. This is only
+     * possible when the query has a LIMIT, the DISTINCT (if any) is not
+     * imposed after the ORDER BY, and <code>OFFSET+LIMIT</code> does not
+     * exceed {@link AST2BOpContext#topKSortLimit}.
+     */
+    private static long getTopKSortLimit(final QueryBase queryBase,
+            final AST2BOpContext ctx) {
+
+        final SliceNode slice = queryBase.getSlice();
+
+        if (slice == null || slice.getLimit() == SliceNode.Annotations.DEFAULT_LIMIT)
+            return 0L;
+
+        final ProjectionNode projection = queryBase.getProjection();
+
+        if (projection != null
+                && (projection.isDistinct() || projection.isReduced())) {
+            // DISTINCT is imposed after the ORDER BY.
+            return 0L;
+        }
+
+        final long offset = slice.getOffset();
+
+        final long limit = slice.getLimit();
+
+        if (offset > ctx.topKSortLimit || limit > ctx.topKSortLimit)
+            return 0L;
+
+        final long k = offset + limit;
+
+        if (k <= 0 || k > ctx.topKSortLimit || k > Integer.MAX_VALUE)
+            return 0L;
+
+        return k;
+
+    }
+
     /**
      * Impose an OFFSET and/or LIMIT on a query.
      */
@@ -288,6 +288,30 @@ public class ASTDeferredIVResolution {
         return new DeferredResolutionResult(resolvedBindingset, resolvedDataset);
     }
 
+    /**
+     * Resolve the IVs for the values in a binding set without resolving the
+     * query. This is used when the query plan is reused from the
+     * {@link QueryPlanCache}.
+     * 
+     * @param store - triple store, which will be used for values resolution
+     * @param bs - binding set to be resolved (optional)
+     * @return the resolved binding set
+     */
+    public static BindingSet resolveBindingSet(final AbstractTripleStore store,
+            final BindingSet bs) {
+
+        final ASTDeferredIVResolution termsResolver = new ASTDeferredIVResolution(store);
+
+        final BindingSet resolvedBindingSet = termsResolver.handleBindingSet(store, bs);
+
+        if (!termsResolver.deferred.isEmpty()) {
+            termsResolver.resolveIVs(store);
+        }
+
+        return resolvedBindingSet;
+
+    }
+
     /**
      * Do deferred resolution of IVs, which were left unresolved while preparing the update
      * @param store - triple store, which will be used for values resolution
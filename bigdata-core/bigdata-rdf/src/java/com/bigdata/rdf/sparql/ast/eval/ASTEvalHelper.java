@@ -88,6 +88,7 @@ import com.bigdata.rdf.sparql.ast.eval.ASTDeferredIVResolution.DeferredResolutio
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.rdf.store.BigdataBindingSetResolverator;
 import com.bigdata.striterator.ChunkedWrappedIterator;
+import com.bigdata.striterator.Chunkerator;
 import com.bigdata.striterator.Dechunkerator;
 import com.bigdata.striterator.IChunkedOrderedIterator;
 
@@ -380,6 +381,95 @@ public class ASTEvalHelper {
 
     }
     
+    /**
+     * Evaluate a SELECT query, visiting chunks of bigdata solutions rather
+     * than openrdf {@link BindingSet}s. The {@link IV}s bound to the projected
+     * variables have their {@link IVCache} set (this includes inline
+     * {@link IV}s). This is used to stream large results without converting
+     * each solution into openrdf objects. The projected variables are given by
+     * the optimized AST of the {@link ASTContainer}.
+     * 
+     * @param store
+     *            The {@link AbstractTripleStore} having the data.
+     * @param astContainer
+     *            The {@link ASTContainer}.
+     * @param globallyScopedBS
+     *            The initial solution to kick things off.
+     * @param dataset
+     *            The data set (optional).
+     * @param chunkSize
+     *            The target #of solutions in each chunk. When the projection
+     *            is not materialized by the query plan, the {@link IV}s are
+     *            materialized in chunks of this size.
+     * 
+     * @return An iterator visiting chunks of solutions. Closing the iterator
+     *         will cancel the query.
+     * 
+     * @throws QueryEvaluationException
+     */
+    static public ICloseableIterator<IBindingSet[]> evaluateTupleQueryChunked(
+            final AbstractTripleStore store,
+            final ASTContainer astContainer,
+            final QueryBindingSet globallyScopedBS,
+            final Dataset dataset,
+            final int chunkSize) throws QueryEvaluationException {
+
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException();
+
+        final AST2BOpContext context = new AST2BOpContext(astContainer, store);
+
+        final QueryRoot optimizedQuery = 
+                optimizeQuery(astContainer, context, globallyScopedBS, dataset);
+        
+        // Get the projection for the query.
+        final IVariable<?>[] projected = optimizedQuery.getProjection()
+                .getProjectionVars();
+
+        final boolean materializeProjectionInQuery = context.materializeProjectionInQuery
+                && !optimizedQuery.hasSlice();
+
+        doSparqlLogging(context);
+        
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+        
+        IRunningQuery runningQuery = null;
+        try {
+
+            // Submit query for evaluation.
+            runningQuery = context.queryEngine.eval(queryPlan,
+                    astContainer.getOptimizedASTBindingSets(),
+                    context.getQueryAttributes());
+
+            runningQuery.setStaticAnalysisStats(context
+                    .getStaticAnalysisStats());
+
+            // Rechunk the monitored solutions into (large) chunks.
+            final ICloseableIterator<IBindingSet[]> it1 = new Chunkerator<IBindingSet>(
+                    iterator(runningQuery), chunkSize, IBindingSet.class);
+
+            if (projected.length == 0 || materializeProjectionInQuery) {
+
+                // Nothing to project or already materialized by the plan.
+                return it1;
+
+            }
+
+            // Materialize the projection (including inline IVs) in chunks.
+            return new ChunkedMaterializationIterator(projected,
+                    context.db.getLexiconRelation(),
+                    true/* materializeInlineIVs */, it1);
+
+        } catch (Throwable t) {
+            if (runningQuery != null) {
+                // ensure query is halted.
+                runningQuery.cancel(true/* mayInterruptIfRunning */);
+            }
+            throw new QueryEvaluationException(t);
+        }
+
+    }
+
     /**
      * Optimize a SELECT query.
      * 
@@ -402,6 +492,43 @@ public class ASTEvalHelper {
 
         final AbstractTripleStore store = context.getAbstractTripleStore();
 
+        /*
+         * Reuse a cached optimized AST and query plan if possible.
+         * 
+         * Note: The key must be obtained before the IVs are resolved since
+         * that has side-effects on the original AST.
+         */
+        final QueryPlanCache planCache = QueryPlanCache
+                .getInstance(context.queryEngine);
+
+        final QueryPlanCache.Key planKey = planCache == null ? null
+                : planCache.getKey(context, globallyScopedBS, dataset);
+
+        if (planKey != null && planCache.get(planKey, context)) {
+
+            if (planKey.hasBindings()) {
+
+                // The plan is reused for the values of this query.
+                astContainer.setOptimizedASTBindingSets(toBindingSet(
+                        ASTDeferredIVResolution.resolveBindingSet(store,
+                                globallyScopedBS)));
+
+            }
+
+            return astContainer.getOptimizedAST();
+
+        }
+
+        if (planKey != null && planKey.hasBindings()) {
+
+            /*
+             * Do not inline the values of the globally scoped bindings into
+             * the plan so it may be reused for other values.
+             */
+            context.inlineExogenousBindings = false;
+
+        }
+
         final DeferredResolutionResult resolved;
         try {
             // @see https://jira.blazegraph.com/browse/BLZG-1176
@@ -425,6 +552,12 @@ public class ASTEvalHelper {
         // Convert the query (generates an optimized AST as a side-effect).
         AST2BOpUtility.convert(context, globallyScopedBSAsList);
 
+        if (planKey != null) {
+
+            planCache.put(planKey, context, globallyScopedBSAsList);
+
+        }
+
         // The optimized AST.
         final QueryRoot optimizedQuery = astContainer.getOptimizedAST();
 
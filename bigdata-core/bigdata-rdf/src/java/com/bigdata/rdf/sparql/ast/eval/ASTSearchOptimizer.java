@@ -75,6 +75,7 @@ public class ASTSearchOptimizer extends ASTSearchOptimizerBase {
         set.add(BDS.MIN_RELEVANCE);
         set.add(BDS.MATCH_ALL_TERMS);
         set.add(BDS.MATCH_EXACT);
+        set.add(BDS.TOP_K);
         set.add(BDS.SUBJECT_SEARCH);
         set.add(BDS.SEARCH_TIMEOUT);
         set.add(BDS.MATCH_REGEX);
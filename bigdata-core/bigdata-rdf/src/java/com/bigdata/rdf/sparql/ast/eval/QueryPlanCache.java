@@ -0,0 +1,1375 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.URI;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.Dataset;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.ITimestampAnnotations;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NamedSolutionSetRefUtility;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.engine.StaticAnalysisStats;
+import com.bigdata.bop.solutions.GroupByOp;
+import com.bigdata.bop.solutions.GroupByRewriter;
+import com.bigdata.bop.solutions.IGroupByRewriteState;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.btree.ICheckpointProtocol;
+import com.bigdata.btree.IIndex;
+import com.bigdata.journal.ITx;
+import com.bigdata.journal.TimestampUtility;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.AssignmentNode;
+import com.bigdata.rdf.sparql.ast.BindingsClause;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.QueryType;
+import com.bigdata.rdf.sparql.ast.optimizers.IASTOptimizer;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * A bounded LRU cache of the optimized AST and the physical query plan for
+ * SPARQL SELECT queries. A hit skips the deferred IV resolution, the
+ * {@link IASTOptimizer}s and the conversion of the optimized AST into a query
+ * plan, which can dominate the cost of a selective query.
+ * <p>
+ * The cache key combines the namespace, the query string (with comments
+ * removed and whitespace collapsed outside of string literals and IRIs), the
+ * base URI, the dataset, the include inferred flag, the timeout, the query
+ * hints which were attached to the AST by the application and the names (but
+ * not the values) of the globally scoped bindings. A cached plan is reused
+ * across commit points. Only read-only views are cached.
+ * <p>
+ * The values of the globally scoped bindings are bound when the query is
+ * run. When there are such bindings, the plan is generated without inlining
+ * their values into the AST (see
+ * {@link AST2BOpContext#inlineExogenousBindings}), and it is only cached if
+ * the query does not produce static bindings of its own (BIND or VALUES)
+ * which would be joined with them.
+ * <p>
+ * A cached plan depends on the lexicon (the IVs of the constants in the query
+ * and the mock IVs used for terms which are not in the lexicon), on the
+ * vocabulary and on the configuration of the namespace. The plan records a
+ * version of those: the checkpoint addresses of the lexicon indices (which
+ * only change when terms are added) and a hash of the properties of the
+ * namespace. A plan whose version differs from that of the view against
+ * which the query is run is discarded. Other commits do not invalidate the
+ * cached plans. Note that the join order of a reused plan reflects the range
+ * counts when the plan was generated.
+ * <p>
+ * A query plan can not be shared as is by concurrent queries since the
+ * {@link UUID} of the query and the timestamp of the view are embedded in the
+ * plan (the queryId is used to locate named solution sets such as hash
+ * indices). The plan is therefore copied for each hit and the queryId and the
+ * timestamp of the cached plan are replaced by those of the new query. The
+ * {@link IAggregate}s used by a GROUP BY are cloned by the same copy in order
+ * to avoid side-effects on their internal state. The copy only replaces the
+ * operators which are changed, so it is much cheaper than generating the
+ * plan.
+ * <p>
+ * Queries which use <code>NOW()</code>, <code>RAND()</code>,
+ * <code>UUID()</code>, <code>STRUUID()</code> or <code>BNODE()</code> are
+ * not cached since those functions can be evaluated when the plan is
+ * generated. Plans which refer to a named solution set that is not local to
+ * the query are not cached either.
+ * 
+ * @see QueryHints#QUERY_PLAN_CACHE_CAPACITY
+ */
+public class QueryPlanCache {
+
+    private static final transient Logger log = Logger
+            .getLogger(QueryPlanCache.class);
+
+    /**
+     * Weak key cache to enforce the singleton pattern.
+     * <p>
+     * Note: We do not want to keep any {@link QueryPlanCache} objects wired
+     * into the memory unless the application is holding a hard reference to
+     * the {@link QueryEngine}.
+     */
+    private static final WeakHashMap<QueryEngine, QueryPlanCache> instanceCache = new WeakHashMap<QueryEngine, QueryPlanCache>();
+
+    /**
+     * Singleton factory test (does not create the cache).
+     * 
+     * @param queryEngine
+     *            The {@link QueryEngine}.
+     * 
+     * @return The plan cache iff one has been obtained from the factory and
+     *         its weak reference has not been cleared.
+     */
+    static public QueryPlanCache getExistingInstance(
+            final QueryEngine queryEngine) {
+
+        synchronized (instanceCache) {
+
+            return instanceCache.get(queryEngine);
+
+        }
+
+    }
+
+    /**
+     * Singleton factory.
+     * 
+     * @param queryEngine
+     *            The {@link QueryEngine}.
+     * 
+     * @return The plan cache -or- <code>null</code> if the plan cache is
+     *         disabled.
+     * 
+     * @see QueryHints#QUERY_PLAN_CACHE_CAPACITY
+     */
+    static public QueryPlanCache getInstance(final QueryEngine queryEngine) {
+
+        if (queryEngine == null)
+            throw new IllegalArgumentException();
+
+        if (QueryHints.DEFAULT_QUERY_PLAN_CACHE_CAPACITY <= 0) {
+
+            // Feature is disabled.
+            return null;
+
+        }
+
+        synchronized (instanceCache) {
+
+            QueryPlanCache cache = instanceCache.get(queryEngine);
+
+            if (cache == null) {
+
+                cache = new QueryPlanCache(
+                        QueryHints.DEFAULT_QUERY_PLAN_CACHE_CAPACITY);
+
+                instanceCache.put(queryEngine, cache);
+
+            }
+
+            return cache;
+
+        }
+
+    }
+
+    /**
+     * The cache key.
+     */
+    static final class Key {
+
+        final String namespace;
+
+        /**
+         * The normalized query string together with anything else which can
+         * change the optimized AST or the query plan.
+         */
+        final String query;
+
+        /**
+         * <code>true</code> iff the query has globally scoped bindings, whose
+         * values are bound when the query is run.
+         */
+        final boolean bindings;
+
+        /**
+         * The version of the lexicon and the configuration of the view against
+         * which the query will be run (not part of the identity of the key).
+         */
+        final Version version;
+
+        private final int hash;
+
+        Key(final String namespace, final String query,
+                final boolean bindings, final Version version) {
+
+            this.namespace = namespace;
+
+            this.query = query;
+
+            this.bindings = bindings;
+
+            this.version = version;
+
+            this.hash = namespace.hashCode() * 31 + query.hashCode();
+
+        }
+
+        /**
+         * <code>true</code> iff the query has globally scoped bindings. The
+         * caller must bind their values when the plan is reused.
+         */
+        boolean hasBindings() {
+
+            return bindings;
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hash;
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            final Key t = (Key) o;
+
+            return namespace.equals(t.namespace) && query.equals(t.query);
+
+        }
+
+        @Override
+        public String toString() {
+
+            return "Key{namespace=" + namespace + ",version=" + version
+                    + ",query=" + query + "}";
+
+        }
+
+    }
+
+    /**
+     * The state of a namespace on which a cached plan depends: the checkpoint
+     * addresses of the lexicon indices and a hash of the properties of the
+     * namespace (which includes the vocabulary). The lexicon indices are only
+     * written when terms are added, so the version does not change for a
+     * commit which only adds or removes statements using known terms.
+     */
+    static final class Version {
+
+        private final long term2id;
+
+        private final long blobs;
+
+        private final int properties;
+
+        Version(final long term2id, final long blobs, final int properties) {
+
+            this.term2id = term2id;
+
+            this.blobs = blobs;
+
+            this.properties = properties;
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return (int) (term2id ^ (term2id >>> 32)) * 31
+                    + (int) (blobs ^ (blobs >>> 32)) + properties;
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Version))
+                return false;
+
+            final Version t = (Version) o;
+
+            return term2id == t.term2id && blobs == t.blobs
+                    && properties == t.properties;
+
+        }
+
+        @Override
+        public String toString() {
+
+            return "Version{term2id=" + term2id + ",blobs=" + blobs
+                    + ",properties=" + properties + "}";
+
+        }
+
+    }
+
+    /**
+     * A cached optimized AST and query plan.
+     */
+    private static final class CachedPlan {
+
+        final QueryRoot optimizedAST;
+
+        final PipelineOp queryPlan;
+
+        /**
+         * The queryId embedded in the {@link #queryPlan}.
+         */
+        final UUID queryId;
+
+        /**
+         * The timestamp of the view embedded in the {@link #queryPlan}.
+         */
+        final long timestamp;
+
+        /**
+         * The optimized binding sets -or- <code>null</code> if they are bound
+         * from the globally scoped bindings of each query.
+         */
+        final IBindingSet[] bindingSets;
+
+        final Version version;
+
+        CachedPlan(final QueryRoot optimizedAST, final PipelineOp queryPlan,
+                final UUID queryId, final long timestamp,
+                final IBindingSet[] bindingSets, final Version version) {
+
+            this.optimizedAST = optimizedAST;
+
+            this.queryPlan = queryPlan;
+
+            this.queryId = queryId;
+
+            this.timestamp = timestamp;
+
+            this.bindingSets = bindingSets;
+
+            this.version = version;
+
+        }
+
+    }
+
+    /**
+     * The maximum #of entries in the cache.
+     */
+    private final int capacity;
+
+    /**
+     * The cached plans in access order (LRU).
+     * <p>
+     * Note: Guarded by <code>this</code>.
+     */
+    private final LinkedHashMap<Key, CachedPlan> cache;
+
+    private final CAT hits = new CAT();
+
+    private final CAT misses = new CAT();
+
+    private final CAT notCacheable = new CAT();
+
+    private final CAT evicted = new CAT();
+
+    private final CAT invalidated = new CAT();
+
+    /**
+     * @param capacity
+     *            The maximum #of query plans in the cache.
+     */
+    public QueryPlanCache(final int capacity) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.capacity = capacity;
+
+        this.cache = new LinkedHashMap<Key, CachedPlan>(16/* initialCapacity */,
+                .75f/* loadFactor */, true/* accessOrder */) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<Key, CachedPlan> eldest) {
+
+                if (size() > QueryPlanCache.this.capacity) {
+
+                    evicted.increment();
+
+                    return true;
+
+                }
+
+                return false;
+
+            }
+
+        };
+
+    }
+
+    /**
+     * Return the cache key for a query -or- <code>null</code> if the query
+     * may not be cached. This must be invoked before the IVs in the original
+     * AST are resolved.
+     * 
+     * @param context
+     *            The evaluation context.
+     * @param globallyScopedBS
+     *            The bindings given with the query (optional).
+     * @param dataset
+     *            The data set given with the query (optional).
+     */
+    Key getKey(final AST2BOpContext context, final BindingSet globallyScopedBS,
+            final Dataset dataset) {
+
+        final Key key = newKey(context, globallyScopedBS, dataset);
+
+        if (key == null)
+            notCacheable.increment();
+
+        return key;
+
+    }
+
+    private static Key newKey(final AST2BOpContext context,
+            final BindingSet globallyScopedBS, final Dataset dataset) {
+
+        final ASTContainer astContainer = context.astContainer;
+
+        final QueryRoot originalQuery = astContainer.getOriginalAST();
+
+        if (originalQuery == null
+                || originalQuery.getQueryType() != QueryType.SELECT)
+            return null;
+
+        final String queryStr = astContainer.getQueryString();
+
+        if (queryStr == null) {
+            // The AST was not generated by the parser.
+            return null;
+        }
+
+        final AbstractTripleStore db = context.getAbstractTripleStore();
+
+        final long timestamp = db.getTimestamp();
+
+        if (timestamp == ITx.READ_COMMITTED
+                || !TimestampUtility.isReadOnly(timestamp)) {
+            // The view is not a fixed commit point.
+            return null;
+        }
+
+        final Version version = getVersion(db);
+
+        if (version == null)
+            return null;
+
+        final String normalized = normalize(queryStr);
+
+        if (normalized == null)
+            return null;
+
+        final StringBuilder sb = new StringBuilder(normalized.length() + 64);
+
+        sb.append(normalized);
+
+        sb.append("\nbaseURI=").append(astContainer.getBaseURI());
+
+        sb.append("\nincludeInferred=").append(
+                originalQuery.getIncludeInferred());
+
+        sb.append("\ntimeout=").append(originalQuery.getTimeout());
+
+        final Properties queryHints = originalQuery.getQueryHints();
+
+        if (queryHints != null && !queryHints.isEmpty()) {
+
+            final TreeMap<String, String> m = new TreeMap<String, String>();
+
+            for (String name : queryHints.stringPropertyNames()) {
+
+                if (QueryHints.QUERYID.equals(name)) {
+                    // Assigned per query.
+                    continue;
+                }
+
+                m.put(name, queryHints.getProperty(name));
+
+            }
+
+            sb.append("\nqueryHints=").append(m);
+
+        }
+
+        if (originalQuery.getDataset() != null) {
+
+            sb.append("\ndatasetNode=").append(originalQuery.getDataset());
+
+        }
+
+        if (dataset != null) {
+
+            sb.append("\ndefaultGraphs=");
+            for (URI uri : dataset.getDefaultGraphs()) {
+                sb.append('<').append(uri.stringValue()).append('>');
+            }
+
+            sb.append("\nnamedGraphs=");
+            for (URI uri : dataset.getNamedGraphs()) {
+                sb.append('<').append(uri.stringValue()).append('>');
+            }
+
+        }
+
+        final boolean bindings = globallyScopedBS != null
+                && globallyScopedBS.size() > 0;
+
+        if (bindings) {
+
+            /*
+             * Note: Only the names of the bindings are part of the key. Their
+             * values are bound when the query is run.
+             */
+            final TreeSet<String> names = new TreeSet<String>(
+                    globallyScopedBS.getBindingNames());
+
+            if (bindsStatically(originalQuery, names)) {
+                /*
+                 * The static bindings produced by the query would be joined
+                 * with the values of the globally scoped bindings when the
+                 * plan is generated.
+                 */
+                return null;
+            }
+
+            sb.append("\nbindings=").append(names);
+
+        }
+
+        return new Key(db.getNamespace(), sb.toString(), bindings, version);
+
+    }
+
+    /**
+     * Return <code>true</code> if the query has a VALUES clause or a BIND for
+     * any of the given variables.
+     */
+    private static boolean bindsStatically(final QueryRoot queryRoot,
+            final Set<String> names) {
+
+        final BindingsClause bc = queryRoot.getBindingsClause();
+
+        if (bc != null && !bc.getBindingSets().isEmpty())
+            return true;
+
+        final Iterator<BindingsClause> itr1 = BOpUtility.visitAll(queryRoot,
+                BindingsClause.class);
+
+        while (itr1.hasNext()) {
+
+            for (IVariable<?> var : itr1.next().getDeclaredVariables()) {
+
+                if (names.contains(var.getName()))
+                    return true;
+
+            }
+
+        }
+
+        final Iterator<AssignmentNode> itr2 = BOpUtility.visitAll(queryRoot,
+                AssignmentNode.class);
+
+        while (itr2.hasNext()) {
+
+            if (names.contains(itr2.next().getVar().getName()))
+                return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Return the version of the lexicon and the configuration of the view
+     * -or- <code>null</code> if it can not be determined, in which case the
+     * query is not cached.
+     */
+    private static Version getVersion(final AbstractTripleStore db) {
+
+        final LexiconRelation lex = db.getLexiconRelation();
+
+        if (lex == null)
+            return null;
+
+        final IIndex term2id = lex.getTerm2IdIndex();
+
+        final IIndex blobs = lex.getBlobsIndex();
+
+        if (!(term2id instanceof ICheckpointProtocol)
+                || !(blobs instanceof ICheckpointProtocol)) {
+            // Not a local B+Tree (e.g., scale-out).
+            return null;
+        }
+
+        final Properties properties = db.getProperties();
+
+        final TreeMap<String, String> m = new TreeMap<String, String>();
+
+        for (String name : properties.stringPropertyNames()) {
+
+            m.put(name, properties.getProperty(name));
+
+        }
+
+        return new Version(((ICheckpointProtocol) term2id).getCheckpoint()
+                .getCheckpointAddr(), ((ICheckpointProtocol) blobs)
+                .getCheckpoint().getCheckpointAddr(), m.hashCode());
+
+    }
+
+    /**
+     * Lookup a query plan. On a hit, the optimized AST, the query plan and
+     * the optimized binding sets are set on the {@link ASTContainer} of the
+     * <i>context</i>. The query plan is a copy of the cached plan in which the
+     * queryId and the timestamp have been replaced by
+     * {@link AST2BOpContext#queryId} and the timestamp of the view. When the
+     * {@link Key#hasBindings() key has bindings}, the caller must set the
+     * optimized binding sets from the globally scoped bindings of the query.
+     * 
+     * @param key
+     *            The key.
+     * @param context
+     *            The evaluation context.
+     * 
+     * @return <code>true</code> iff the query plan was found.
+     */
+    boolean get(final Key key, final AST2BOpContext context) {
+
+        CachedPlan e;
+        synchronized (this) {
+
+            e = cache.get(key);
+
+            if (e != null && !e.version.equals(key.version)) {
+
+                /*
+                 * The lexicon or the configuration of the namespace has
+                 * changed since the plan was generated.
+                 */
+                cache.remove(key);
+
+                invalidated.increment();
+
+                e = null;
+
+            }
+
+        }
+
+        if (e == null) {
+
+            misses.increment();
+
+            return false;
+
+        }
+
+        hits.increment();
+
+        final PipelineOp queryPlan = (PipelineOp) new PlanCopier(e.queryId,
+                context.queryId, e.timestamp, context.getTimestamp())
+                .copy(e.queryPlan);
+
+        final ASTContainer astContainer = context.astContainer;
+
+        final StaticAnalysisStats stats = new StaticAnalysisStats();
+        stats.registerParserCall(astContainer);
+        context.setStaticAnalysisStats(stats);
+
+        astContainer.setOptimizedAST(e.optimizedAST);
+
+        astContainer.setQueryPlan(queryPlan);
+
+        if (e.bindingSets != null)
+            astContainer.setOptimizedASTBindingSets(copy(e.bindingSets));
+
+        if (log.isDebugEnabled())
+            log.debug("hit: " + key);
+
+        return true;
+
+    }
+
+    /**
+     * Add the optimized AST and query plan which were just generated for a
+     * query to the cache.
+     * 
+     * @param key
+     *            The key.
+     * @param context
+     *            The evaluation context.
+     * @param bindingSets
+     *            The globally scoped bindings with which the plan was
+     *            generated.
+     */
+    void put(final Key key, final AST2BOpContext context,
+            final IBindingSet[] bindingSets) {
+
+        final ASTContainer astContainer = context.astContainer;
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        final UUID queryId = (UUID) queryPlan
+                .getProperty(QueryEngine.Annotations.QUERY_ID);
+
+        final long timestamp = context.getTimestamp();
+
+        final IBindingSet[] optimizedBindingSets = astContainer
+                .getOptimizedASTBindingSets();
+
+        if (key.hasBindings()
+                && (bindingSets == null || bindingSets.length != 1
+                        || optimizedBindingSets == null
+                        || optimizedBindingSets.length != 1 || !bindingSets[0]
+                            .equals(optimizedBindingSets[0]))) {
+
+            /*
+             * The optimized binding sets are not just the globally scoped
+             * bindings, so they can not be replaced by the bindings of
+             * another query.
+             */
+            notCacheable.increment();
+
+            return;
+
+        }
+
+        /*
+         * Copy the plan so the GROUP BY aggregates are not shared with the
+         * query which is about to be run against it.
+         */
+        final PlanCopier copier = new PlanCopier(queryId, queryId, timestamp,
+                timestamp);
+
+        final PipelineOp copy = (PipelineOp) copier.copy(queryPlan);
+
+        if (copier.durableRef || copier.otherTimestamp) {
+
+            /*
+             * The plan depends on a named solution set or reads on a view
+             * which is not that of the query.
+             */
+            notCacheable.increment();
+
+            return;
+
+        }
+
+        final CachedPlan e = new CachedPlan(astContainer.getOptimizedAST(),
+                copy, queryId, timestamp, key.hasBindings() ? null
+                        : copy(optimizedBindingSets), key.version);
+
+        synchronized (this) {
+
+            cache.put(key, e);
+
+        }
+
+    }
+
+    /**
+     * Discard all cached query plans.
+     */
+    synchronized public void clear() {
+
+        cache.clear();
+
+    }
+
+    /**
+     * The #of cached query plans.
+     */
+    synchronized public int size() {
+
+        return cache.size();
+
+    }
+
+    /**
+     * The maximum #of cached query plans.
+     */
+    public int capacity() {
+
+        return capacity;
+
+    }
+
+    /**
+     * Return the performance counters for the cache.
+     */
+    public CounterSet getCounters() {
+
+        final CounterSet counterSet = new CounterSet();
+
+        counterSet.addCounter("capacity", new OneShotInstrument<Integer>(
+                capacity));
+
+        counterSet.addCounter("size", new Instrument<Integer>() {
+            @Override
+            protected void sample() {
+                setValue(size());
+            }
+        });
+
+        counterSet.addCounter("hits", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        counterSet.addCounter("misses", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        counterSet.addCounter("hitRatio", new Instrument<Double>() {
+            @Override
+            protected void sample() {
+                final long h = hits.get();
+                final long n = h + misses.get();
+                setValue(n == 0L ? 0d : ((double) h) / n);
+            }
+        });
+
+        counterSet.addCounter("notCacheable", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(notCacheable.get());
+            }
+        });
+
+        counterSet.addCounter("evicted", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(evicted.get());
+            }
+        });
+
+        counterSet.addCounter("invalidated", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(invalidated.get());
+            }
+        });
+
+        return counterSet;
+
+    }
+
+    /**
+     * The #of cache hits.
+     */
+    public long getHitCount() {
+
+        return hits.get();
+
+    }
+
+    /**
+     * The #of cache misses (only for queries which could be cached).
+     */
+    public long getMissCount() {
+
+        return misses.get();
+
+    }
+
+    /**
+     * The #of cached plans which were discarded because the lexicon or the
+     * configuration of their namespace had changed.
+     */
+    public long getInvalidatedCount() {
+
+        return invalidated.get();
+
+    }
+
+    /**
+     * Return a copy of each binding set (the query engine does not promise
+     * that it will not modify the source solutions).
+     */
+    private static IBindingSet[] copy(final IBindingSet[] a) {
+
+        if (a == null)
+            return null;
+
+        final IBindingSet[] b = new IBindingSet[a.length];
+
+        for (int i = 0; i < a.length; i++) {
+
+            b[i] = a[i].clone();
+
+        }
+
+        return b;
+
+    }
+
+    /**
+     * Copies a query plan, replacing the queryId in the
+     * {@link QueryEngine.Annotations#QUERY_ID} annotation and in the
+     * {@link INamedSolutionSetRef}s, replacing the timestamp of the view in
+     * the timestamp annotations (such as {@link ITimestampAnnotations#TIMESTAMP})
+     * and cloning the {@link IAggregate}s of the {@link GroupByOp}s (as per
+     * {@link BOpUtility#makeAggregateDistinct}). Operators which are not
+     * changed are not copied.
+     */
+    private static class PlanCopier {
+
+        private final UUID oldId;
+
+        private final UUID newId;
+
+        private final long oldTimestamp;
+
+        private final long newTimestamp;
+
+        /**
+         * Set if the plan refers to a named solution set which is not attached
+         * to a query.
+         */
+        boolean durableRef = false;
+
+        /**
+         * Set if the plan has a timestamp annotation for some other view.
+         */
+        boolean otherTimestamp = false;
+
+        PlanCopier(final UUID oldId, final UUID newId,
+                final long oldTimestamp, final long newTimestamp) {
+
+            this.oldId = oldId;
+
+            this.newId = newId;
+
+            this.oldTimestamp = oldTimestamp;
+
+            this.newTimestamp = newTimestamp;
+
+        }
+
+        BOp copy(final BOp op) {
+
+            if (op == null || op instanceof IVariableOrConstant<?>)
+                return op;
+
+            boolean dirty = false;
+
+            /*
+             * Children.
+             */
+            final int arity = op.arity();
+
+            final BOp[] args = arity == 0 ? BOp.NOARGS : new BOp[arity];
+
+            for (int i = 0; i < arity; i++) {
+
+                final BOp child = op.get(i);
+
+                // depth first recursion.
+                args[i] = copy(child);
+
+                if (args[i] != child)
+                    dirty = true;
+
+            }
+
+            /*
+             * Annotations.
+             */
+
+            final LinkedHashMap<String, Object> anns = new LinkedHashMap<String, Object>();
+
+            for (Map.Entry<String, Object> e : op.annotations().entrySet()) {
+
+                final String name = e.getKey();
+
+                final Object oval = e.getValue();
+
+                final Object nval;
+
+                if (name.equals(QueryEngine.Annotations.QUERY_ID)) {
+
+                    nval = oldId.equals(oval) ? newId : oval;
+
+                } else if (name.endsWith(".timestamp")
+                        && oval instanceof Long) {
+
+                    if (((Long) oval).longValue() == oldTimestamp) {
+
+                        nval = oldTimestamp == newTimestamp ? oval : Long
+                                .valueOf(newTimestamp);
+
+                    } else {
+
+                        otherTimestamp = true;
+
+                        nval = oval;
+
+                    }
+
+                } else if (name.equals(GroupByOp.Annotations.GROUP_BY_REWRITE)) {
+
+                    nval = new GroupByRewriter((IGroupByRewriteState) oval);
+
+                } else if (oval instanceof INamedSolutionSetRef) {
+
+                    nval = copy((INamedSolutionSetRef) oval);
+
+                } else if (oval instanceof INamedSolutionSetRef[]) {
+
+                    final INamedSolutionSetRef[] a = (INamedSolutionSetRef[]) oval;
+
+                    INamedSolutionSetRef[] b = a;
+
+                    for (int i = 0; i < a.length; i++) {
+
+                        final INamedSolutionSetRef t = copy(a[i]);
+
+                        if (t != a[i]) {
+
+                            if (b == a)
+                                b = Arrays.copyOf(a, a.length);
+
+                            b[i] = t;
+
+                        }
+
+                    }
+
+                    nval = b;
+
+                } else if (oval instanceof BOp) {
+
+                    nval = copy((BOp) oval);
+
+                } else if (oval instanceof BOp[]) {
+
+                    final BOp[] a = (BOp[]) oval;
+
+                    BOp[] b = a;
+
+                    for (int i = 0; i < a.length; i++) {
+
+                        final BOp t = copy(a[i]);
+
+                        if (t != a[i]) {
+
+                            if (b == a)
+                                b = Arrays.copyOf(a, a.length);
+
+                            b[i] = t;
+
+                        }
+
+                    }
+
+                    nval = b;
+
+                } else {
+
+                    nval = oval;
+
+                }
+
+                if (nval != oval)
+                    dirty = true;
+
+                anns.put(name, nval);
+
+            }
+
+            if (!dirty)
+                return op;
+
+            try {
+
+                @SuppressWarnings("unchecked")
+                final Constructor<BOp> ctor = (Constructor<BOp>) op.getClass()
+                        .getConstructor(BOp[].class, Map.class);
+
+                return ctor.newInstance(args, anns);
+
+            } catch (Exception ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+        }
+
+        private INamedSolutionSetRef copy(final INamedSolutionSetRef ref) {
+
+            if (ref.getNamespace() != null) {
+
+                durableRef = true;
+
+                return ref;
+
+            }
+
+            if (ref.getQueryId() == null || !oldId.equals(ref.getQueryId())) {
+
+                // Resolved against the running query or some other query.
+                return ref;
+
+            }
+
+            if (oldId.equals(newId))
+                return ref;
+
+            return NamedSolutionSetRefUtility.newInstance(newId,
+                    ref.getLocalName(), ref.getJoinVars());
+
+        }
+
+    }
+
+    /**
+     * Return the query string with comments removed and each run of
+     * whitespace replaced by a single space character, except within string
+     * literals and IRIs.
+     * 
+     * @return The normalized query string -or- <code>null</code> if the query
+     *         uses a function which could be evaluated when the query plan is
+     *         generated and whose value must not be reused by another query.
+     */
+    static String normalize(final String s) {
+
+        final int n = s.length();
+
+        final StringBuilder sb = new StringBuilder(n);
+
+        boolean space = false;
+
+        int i = 0;
+
+        while (i < n) {
+
+            final char c = s.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+
+                space = true;
+
+                i++;
+
+                continue;
+
+            }
+
+            if (c == '#') {
+
+                // Comment (to the end of the line).
+                while (i < n && s.charAt(i) != '\n' && s.charAt(i) != '\r')
+                    i++;
+
+                space = true;
+
+                continue;
+
+            }
+
+            if (space && sb.length() > 0)
+                sb.append(' ');
+
+            space = false;
+
+            final int end;
+
+            if (c == '"' || c == '\'') {
+
+                end = endOfString(s, i);
+
+            } else if (c == '<') {
+
+                end = endOfIRI(s, i);
+
+            } else if (Character.isLetter(c) && !isNameChar(sb)) {
+
+                int j = i + 1;
+
+                while (j < n && Character.isLetterOrDigit(s.charAt(j)))
+                    j++;
+
+                int k = j;
+
+                while (k < n && Character.isWhitespace(s.charAt(k)))
+                    k++;
+
+                if (k < n && s.charAt(k) == '('
+                        && isVolatile(s.substring(i, j)))
+                    return null;
+
+                end = j;
+
+            } else {
+
+                end = i + 1;
+
+            }
+
+            sb.append(s, i, end);
+
+            i = end;
+
+        }
+
+        return sb.toString();
+
+    }
+
+    /**
+     * Return <code>true</code> if the last character is part of a variable,
+     * prefixed name or keyword (so the next character does not start the name
+     * of a built-in function).
+     */
+    private static boolean isNameChar(final StringBuilder sb) {
+
+        if (sb.length() == 0)
+            return false;
+
+        final char c = sb.charAt(sb.length() - 1);
+
+        return Character.isLetterOrDigit(c) || c == '_' || c == ':'
+                || c == '?' || c == '$' || c == '-' || c == '.';
+
+    }
+
+    private static boolean isVolatile(final String name) {
+
+        return name.equalsIgnoreCase("NOW") || name.equalsIgnoreCase("RAND")
+                || name.equalsIgnoreCase("UUID")
+                || name.equalsIgnoreCase("STRUUID")
+                || name.equalsIgnoreCase("BNODE");
+
+    }
+
+    /**
+     * Return the index of the first character after the string literal
+     * starting at <i>i</i>.
+     */
+    private static int endOfString(final String s, final int i) {
+
+        final int n = s.length();
+
+        final char q = s.charAt(i);
+
+        final boolean longString = i + 2 < n && s.charAt(i + 1) == q
+                && s.charAt(i + 2) == q;
+
+        int j = longString ? i + 3 : i + 1;
+
+        while (j < n) {
+
+            final char c = s.charAt(j);
+
+            if (c == '\\') {
+
+                j += 2;
+
+                continue;
+
+            }
+
+            if (c == q) {
+
+                if (!longString)
+                    return j + 1;
+
+                if (j + 2 < n && s.charAt(j + 1) == q && s.charAt(j + 2) == q)
+                    return j + 3;
+
+            }
+
+            j++;
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Return the index of the first character after the IRI starting at
+     * <i>i</i> -or- <code>i+1</code> if the <code>&lt;</code> character at
+     * <i>i</i> is an operator.
+     */
+    private static int endOfIRI(final String s, final int i) {
+
+        final int n = s.length();
+
+        for (int j = i + 1; j < n; j++) {
+
+            final char c = s.charAt(j);
+
+            if (c == '>')
+                return j + 1;
+
+            if (c <= 0x20 || "<\"{}|^`\\".indexOf(c) != -1)
+                break;
+
+        }
+
+        return i + 1;
+
+    }
+
+}
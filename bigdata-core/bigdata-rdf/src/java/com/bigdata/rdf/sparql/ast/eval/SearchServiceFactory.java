@@ -296,6 +296,10 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
                 
                 assertObjectIsLiteral(sp);
                 
+            } else if(uri.equals(BDS.TOP_K)) {
+                
+                assertObjectIsLiteral(sp);
+                
             } else if(uri.equals(BDS.SUBJECT_SEARCH)) {
                 
                 assertObjectIsLiteral(sp);
@@ -372,6 +376,7 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
         private final Literal maxRelevance;
         private final boolean matchAllTerms;
         private final boolean matchExact;
+        private final boolean topK;
         /**
 		 * @deprecated Feature was never completed due to scalability issues.
 		 * See BZLG-1548, BLZG-563.
@@ -436,6 +441,7 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
             Literal maxRelevance = null;
             boolean matchAllTerms = false;
             boolean matchExact = false;
+            boolean topK = BDS.DEFAULT_TOP_K;
             boolean subjectSearch = false;
             Literal searchTimeout = null;
             Literal matchRegex = null;
@@ -468,6 +474,8 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
                     matchAllTerms = ((Literal) oVal).booleanValue();
                 } else if (BDS.MATCH_EXACT.equals(p)) {
                     matchExact = ((Literal) oVal).booleanValue();
+                } else if (BDS.TOP_K.equals(p)) {
+                    topK = ((Literal) oVal).booleanValue();
                 } else if (BDS.SUBJECT_SEARCH.equals(p)) {
                     subjectSearch = ((Literal) oVal).booleanValue();
                 } else if (BDS.SEARCH_TIMEOUT.equals(p)) {
@@ -498,6 +506,7 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
             this.maxRelevance = maxRelevance;
             this.matchAllTerms = matchAllTerms;
             this.matchExact = matchExact;
+            this.topK = topK;
             this.subjectSearch = subjectSearch;
             this.searchTimeout = searchTimeout;
             this.matchRegex = matchRegex;
@@ -539,6 +548,7 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
                 maxRelevance == null ? BDS.DEFAULT_MAX_RELEVANCE : maxRelevance.doubleValue()/* maxCosine */, 
                 minRank == null ? BDS.DEFAULT_MIN_RANK/*1*/ : minRank.intValue()/* minRank */,
                 maxRank == null ? BDS.DEFAULT_MAX_RANK/*Integer.MAX_VALUE*/ : maxRank.intValue()/* maxRank */,
+                topK,
                 searchTimeout == null ? BDS.DEFAULT_TIMEOUT/*0L*/ : searchTimeout.longValue()/* timeout */,
                 TimeUnit.MILLISECONDS
                 ));
@@ -65,6 +65,8 @@ final class AnalyticQueryHint extends AbstractBooleanQueryHint {
         case Query:
             context.nativeHashJoins = value;
             context.nativeDistinctSolutions = value;
+            context.nativeOrderBy = value;
+            context.nativeGroupBy = value;
             context.nativeDistinctSPO = value;
             context.queryEngineChunkHandler = NativeHeapStandloneChunkHandler.NATIVE_HEAP_INSTANCE;
             return;
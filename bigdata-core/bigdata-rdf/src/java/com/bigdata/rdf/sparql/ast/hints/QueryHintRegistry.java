@@ -101,6 +101,9 @@ public class QueryHintRegistry {
         add(new RTOSampleTypeQueryHint());
         add(new RTOLimitQueryHint());
         add(new RTONEdgesQueryHint());
+        add(new RTOAdaptiveQueryHint());
+        add(new RTOAdaptiveThresholdQueryHint());
+        add(new RTOAdaptiveMaxSolutionsQueryHint());
         add(new OptimisticQueryHint());
         add(new NormalizeFilterExpressionHint());
 
@@ -108,13 +111,19 @@ public class QueryHintRegistry {
         add(new AnalyticQueryHint());
         add(new QueryEngineChunkHandlerQueryHint());
         add(new NativeDistinctQueryHint());
+        add(new NativeOrderByQueryHint());
+        add(new NativeGroupByQueryHint());
+        add(new PipelinedAggregationMaxParallelHint());
+        add(new TopKSortLimitHint());
         add(new NativeDistinctSPOHint());
         add(new NativeDistinctSPOThresholdHint());
         add(new NativeHashJoinsHint());
         
         // JOIN hints.
         add(new MergeJoinHint());
+        add(new LeapfrogTriejoinHint());
         add(new HashJoinHint());
+        add(new HashJoinBloomFilterHint());
         add(new KeyOrderHint());
         add(new RemoteAPHint());
         add(new AccessPathSampleLimitHint());
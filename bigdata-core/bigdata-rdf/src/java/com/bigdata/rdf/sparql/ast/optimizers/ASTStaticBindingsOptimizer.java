@@ -28,6 +28,7 @@ package com.bigdata.rdf.sparql.ast.optimizers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -195,7 +196,9 @@ public class ASTStaticBindingsOptimizer implements IASTOptimizer {
       final Set<InlineTasks> inlineTasks = new HashSet<InlineTasks>();
       
       /**
-       * Setup inlining tasks for existing bindings in the binding set
+       * Setup inlining tasks for existing bindings in the binding set (unless
+       * the plan will be reused with other values for those bindings, see
+       * AST2BOpContext#inlineExogenousBindings)
        */
       // extract information about used vars from a top-level perspective
       final VariableUsageInfo childVarUsageInfo = new VariableUsageInfo();
@@ -204,7 +207,9 @@ public class ASTStaticBindingsOptimizer implements IASTOptimizer {
       
       final ISolutionSetStats stats = SolutionSetStatserator.get(bindingSets);
       final Map<IVariable<?>, IConstant<?>> staticVars = 
-            SolutionSetStatserator.get(bindingSets).getConstants();
+            context.inlineExogenousBindings ?
+            SolutionSetStatserator.get(bindingSets).getConstants() :
+            Collections.<IVariable<?>, IConstant<?>>emptyMap();
       for (IVariable var : staticVars.keySet()) {
          
          if (childVarUsageInfo.varUsed(var)) {
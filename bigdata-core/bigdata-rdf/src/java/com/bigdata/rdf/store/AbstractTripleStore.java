@@ -109,6 +109,8 @@ import com.bigdata.rdf.lexicon.ITextIndexer;
 import com.bigdata.rdf.lexicon.IValueCentricTextIndexer;
 import com.bigdata.rdf.lexicon.LexiconKeyOrder;
 import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.lexicon.StripedTermCache;
+import com.bigdata.rdf.lexicon.TermCache;
 import com.bigdata.rdf.lexicon.TermIdEncoder;
 import com.bigdata.rdf.model.BigdataResource;
 import com.bigdata.rdf.model.BigdataStatement;
@@ -649,6 +651,19 @@ abstract public class AbstractTripleStore extends
         
         String DEFAULT_TERM_CACHE_CAPACITY = "10000";//"50000";
 
+        /**
+         * Boolean option selects the {@link StripedTermCache} (when
+         * <code>true</code>) rather than the {@link TermCache} (default
+         * {@value #DEFAULT_TERM_CACHE_STRIPED}). The striped cache does not
+         * lock on lookup and uses frequency based admission, so it scales
+         * better with many concurrent query threads and is not flushed by
+         * the terms materialized for one-off scans.
+         */
+        String TERM_CACHE_STRIPED = AbstractTripleStore.class.getName()
+                + ".termCache.striped";
+
+        String DEFAULT_TERM_CACHE_STRIPED = "false";
+
         /**
          * The name of the class that will establish the pre-defined
          * {@link Vocabulary} for the database (default
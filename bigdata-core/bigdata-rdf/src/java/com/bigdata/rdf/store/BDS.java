@@ -296,6 +296,38 @@ public interface BDS {
 
     final boolean DEFAULT_MATCH_EXACT = false;
     
+    /**
+     * Magic predicate used to query for free text search metadata indicates
+     * that only the {@link #MAX_RANK} best search results are required. Use in
+     * conjunction with {@link #SEARCH} and {@link #MAX_RANK} as follows:
+     * <p>
+     * 
+     * <pre>
+     * 
+     * select ?s
+     * where {
+     *   ?s bds:search &quot;scale-out RDF triplestore&quot; .
+     *   ?s bds:maxRank "10"^^xsd:int .
+     *   ?s bds:topK "true" .
+     * }
+     * 
+     * </pre>
+     * <p>
+     * When enabled, the full text index reads the postings for each search
+     * token in descending order of their term weight and stops as soon as no
+     * unread posting could change the top {@link #MAX_RANK} hits, rather than
+     * materializing and sorting a hit for every document which contains any
+     * of the search tokens. The top hits and their relevance are the same as
+     * for an exhaustive search, but documents whose relevance ties with the
+     * last reported hit may be chosen differently. This is ignored for prefix
+     * matches, {@link #MATCH_EXACT}, {@link #MATCH_REGEX}, a
+     * {@link #MAX_RELEVANCE} less than ONE (1.0), or when no {@link #MAX_RANK}
+     * was given, all of which require the exhaustive search.
+     */
+    final URI TOP_K = new URIImpl(NAMESPACE + "topK");
+
+    final boolean DEFAULT_TOP_K = false;
+    
     /**
      * Magic predicate used to query for free text search metadata indicates
      * that only search results that also pass the specified REGEX filter will
@@ -0,0 +1,723 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.store;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.BulkBTreeBuilder;
+import com.bigdata.btree.ExternalTupleSorter;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.ReadWriteLockManager;
+import com.bigdata.journal.AbstractJournal;
+import com.bigdata.journal.ITx;
+import com.bigdata.rdf.model.BigdataBNode;
+import com.bigdata.rdf.model.BigdataResource;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.StatementEnum;
+import com.bigdata.rdf.rio.BasicRioLoader;
+import com.bigdata.rdf.rio.RDFParserOptions;
+import com.bigdata.rdf.spo.SPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.spo.SPOTupleSerializer;
+
+/**
+ * An initial bulk load path for very large data sets. Rather than inserting
+ * the parsed statements into the statement indices one chunk at a time (which
+ * becomes random I/O once the indices outgrow the cache), the keys and values
+ * for each statement index are written onto an {@link ExternalTupleSorter}.
+ * Once all sources have been parsed, {@link #build()} merges the sorted runs
+ * for each statement index and builds that index bottom-up using a
+ * {@link BulkBTreeBuilder}, installing the new root on the unisolated index
+ * of the {@link AbstractJournal}. Both phases are sequential I/O bound. The
+ * caller must commit the database in order for the bulk build to become
+ * restart safe.
+ * <p>
+ * This is an initial load path. Each statement index is rebuilt from
+ * scratch, so the statement indices may only contain the axioms when the
+ * load begins. The axioms are merged into the new indices. Where a loaded
+ * statement is also an axiom, the loaded (explicit) statement is retained.
+ * <p>
+ * RDF Values are resolved against (and written onto) the lexicon in batches
+ * as the sources are parsed using the same code path as the
+ * {@link DataLoader}. The TERM2ID, ID2TERM and BLOBS indices are NOT
+ * bulk-built since the term identifiers must be assigned before the keys for
+ * the statement indices can be formed. For data with many distinct terms the
+ * lexicon writes can dominate the load (see {@link #getLexiconElapsed()}).
+ * <p>
+ * Note: No inference is performed. If the database supports inference, the
+ * caller should compute the database-at-once closure after the build.
+ * <p>
+ * Note: This class is NOT thread-safe. The caller MUST be the only writer on
+ * the database from the first source loaded until {@link #build()} returns.
+ */
+public class BulkBuildLoader {
+
+    private static final Logger log = Logger.getLogger(BulkBuildLoader.class);
+
+    /**
+     * The default #of statements which are buffered before their RDF Values
+     * are resolved against the lexicon.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 100000;
+
+    private final AbstractTripleStore database;
+
+    private final AbstractJournal journal;
+
+    private final int chunkSize;
+
+    private final SPOKeyOrder[] keyOrders;
+
+    private final SPOTupleSerializer[] tupleSers;
+
+    private final ExternalTupleSorter[] sorters;
+
+    private long toldTriples = 0L;
+
+    private long lexiconElapsed = 0L;
+
+    private boolean built = false;
+
+    /**
+     * @param database
+     *            The database. This must be the unisolated view of a triple
+     *            or quad store on a local {@link AbstractJournal}.
+     * @param tmpDir
+     *            The directory in which the sorted runs will be written
+     *            (optional).
+     * @param maxBufferBytes
+     *            The maximum #of bytes of keys and values that will be
+     *            buffered in memory (across all statement indices) before a
+     *            sorted run is written onto the disk.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the database uses statement identifiers, is not backed
+     *             by an {@link AbstractJournal}, is not the unisolated view,
+     *             or its statement indices contain more than the axioms.
+     */
+    public BulkBuildLoader(final AbstractTripleStore database,
+            final File tmpDir, final long maxBufferBytes) {
+
+        this(database, tmpDir, maxBufferBytes, DEFAULT_CHUNK_SIZE);
+
+    }
+
+    /**
+     * @param database
+     *            The database.
+     * @param tmpDir
+     *            The directory in which the sorted runs will be written
+     *            (optional).
+     * @param maxBufferBytes
+     *            The maximum #of bytes buffered in memory before a sorted
+     *            run is written onto the disk.
+     * @param chunkSize
+     *            The #of statements buffered before their RDF Values are
+     *            resolved against the lexicon.
+     */
+    public BulkBuildLoader(final AbstractTripleStore database,
+            final File tmpDir, final long maxBufferBytes, final int chunkSize) {
+
+        if (database == null)
+            throw new IllegalArgumentException();
+
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException();
+
+        if (database.isStatementIdentifiers()) {
+
+            // Statements about statements are not supported.
+            throw new UnsupportedOperationException(
+                    AbstractTripleStore.Options.STATEMENT_IDENTIFIERS);
+
+        }
+
+        if (!(database.getIndexManager() instanceof AbstractJournal)) {
+
+            throw new UnsupportedOperationException(
+                    "Requires a local journal: "
+                            + database.getIndexManager().getClass().getName());
+
+        }
+
+        if (database.getTimestamp() != ITx.UNISOLATED) {
+
+            throw new UnsupportedOperationException("Not unisolated: "
+                    + database.getTimestamp());
+
+        }
+
+        this.database = database;
+
+        assertInitialLoad();
+
+        this.journal = (AbstractJournal) database.getIndexManager();
+
+        this.chunkSize = chunkSize;
+
+        final List<SPOKeyOrder> a = new ArrayList<SPOKeyOrder>();
+
+        final Iterator<SPOKeyOrder> itr = database.getSPORelation()
+                .statementKeyOrderIterator();
+
+        while (itr.hasNext()) {
+
+            a.add(itr.next());
+
+        }
+
+        this.keyOrders = a.toArray(new SPOKeyOrder[a.size()]);
+
+        this.tupleSers = new SPOTupleSerializer[keyOrders.length];
+
+        this.sorters = new ExternalTupleSorter[keyOrders.length];
+
+        for (int i = 0; i < keyOrders.length; i++) {
+
+            tupleSers[i] = (SPOTupleSerializer) database.getSPORelation()
+                    .getIndex(keyOrders[i]).getIndexMetadata()
+                    .getTupleSerializer();
+
+            sorters[i] = new ExternalTupleSorter(tmpDir, Math.max(1L,
+                    maxBufferBytes / keyOrders.length));
+
+        }
+
+    }
+
+    /**
+     * The #of statements parsed so far.
+     */
+    public long getToldTriples() {
+
+        return toldTriples;
+
+    }
+
+    /**
+     * The elapsed milliseconds spent resolving RDF Values against the lexicon
+     * so far.
+     */
+    public long getLexiconElapsed() {
+
+        return lexiconElapsed;
+
+    }
+
+    /**
+     * Verify that the statement indices contain no more than the axioms.
+     * 
+     * @throws UnsupportedOperationException
+     *             if they do.
+     */
+    private void assertInitialLoad() {
+
+        final long nstmts = database.getStatementCount(true/* exact */);
+
+        final int naxioms = database.getAxioms().size();
+
+        if (nstmts > naxioms) {
+
+            throw new UnsupportedOperationException(
+                    "Not an initial load: nstmts=" + nstmts + ", naxioms="
+                            + naxioms);
+
+        }
+
+    }
+
+    /**
+     * Parse a file or all files in a directory (recursively). Files ending in
+     * <code>.gz</code> or <code>.zip</code> are decompressed.
+     * 
+     * @param fileOrDir
+     *            The file or directory.
+     * @param baseURI
+     *            The baseURI (optional, the URI of each file is used when
+     *            <code>null</code>).
+     * @param rdfFormat
+     *            The format to use if none can be deduced from the file name.
+     * @param defaultGraph
+     *            The graph into which triples are loaded for a quad store
+     *            (optional).
+     * @param filter
+     *            A filter for the files in a directory (optional).
+     * @param options
+     *            The parser options.
+     * 
+     * @return The #of statements parsed.
+     */
+    public long loadFiles(final File fileOrDir, final String baseURI,
+            final RDFFormat rdfFormat, final String defaultGraph,
+            final FilenameFilter filter, final RDFParserOptions options)
+            throws IOException {
+
+        final List<File> files = new ArrayList<File>();
+
+        DataLoader.listFiles(fileOrDir, filter, files);
+
+        long n = 0L;
+
+        for (File file : files) {
+
+            final InputStream is = DataLoader.openFile(file);
+
+            try {
+
+                final Reader reader = new BufferedReader(new InputStreamReader(
+                        is));
+
+                try {
+
+                    n += loadData(reader, baseURI != null ? baseURI : file
+                            .toURI().toString(), DataLoader.getRDFFormat(file,
+                            rdfFormat), defaultGraph, options);
+
+                } finally {
+
+                    reader.close();
+
+                }
+
+            } finally {
+
+                is.close();
+
+            }
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Parse a source. Blank nodes are scoped to the source.
+     * 
+     * @param reader
+     *            The source.
+     * @param baseURI
+     *            The baseURI.
+     * @param rdfFormat
+     *            The format.
+     * @param defaultGraph
+     *            The graph into which triples are loaded for a quad store
+     *            (optional).
+     * @param options
+     *            The parser options.
+     * 
+     * @return The #of statements parsed.
+     */
+    public long loadData(final Reader reader, final String baseURI,
+            final RDFFormat rdfFormat, final String defaultGraph,
+            final RDFParserOptions options) throws IOException {
+
+        if (built)
+            throw new IllegalStateException();
+
+        final SortingRDFHandler handler = new SortingRDFHandler(defaultGraph);
+
+        final BasicRioLoader loader = new BasicRioLoader(
+                database.getValueFactory()) {
+
+            @Override
+            public RDFHandler newRDFHandler() {
+
+                return handler;
+
+            }
+
+        };
+
+        try {
+
+            loader.loadRdf(reader, baseURI, rdfFormat, defaultGraph, options);
+
+        } catch (Exception ex) {
+
+            if (ex instanceof RuntimeException)
+                throw (RuntimeException) ex;
+
+            if (ex instanceof IOException)
+                throw (IOException) ex;
+
+            throw new RuntimeException("While loading: " + baseURI, ex);
+
+        }
+
+        toldTriples += handler.toldTriples;
+
+        return handler.toldTriples;
+
+    }
+
+    /**
+     * Build each statement index bottom-up from the sorted tuples and install
+     * it on the journal. The caller must commit the database.
+     * 
+     * @return The #of statements in the database.
+     * 
+     * @throws UnsupportedOperationException
+     *             if a statement index uses delete markers or statements
+     *             other than the axioms were written onto the database after
+     *             this loader was created.
+     */
+    public long build() throws IOException {
+
+        if (built)
+            throw new IllegalStateException();
+
+        built = true;
+
+        try {
+
+            assertInitialLoad();
+
+        } catch (UnsupportedOperationException ex) {
+
+            close();
+
+            throw ex;
+
+        }
+
+        final long begin = System.currentTimeMillis();
+
+        final SPORelation spoRelation = database.getSPORelation();
+
+        long nstmts = 0L;
+
+        try {
+
+            for (int i = 0; i < keyOrders.length; i++) {
+
+                final String name = spoRelation.getFQN(keyOrders[i]);
+
+                final BTree btree = journal.getIndex(name);
+
+                if (btree == null)
+                    throw new IllegalStateException("Index not found: " + name);
+
+                if (btree.getIndexMetadata().getDeleteMarkers())
+                    throw new UnsupportedOperationException(
+                            "Delete markers: " + name);
+
+                // Note: Same lock as the relation's view of the index.
+                final Lock lock = ReadWriteLockManager.getLockManager(btree)
+                        .writeLock();
+
+                lock.lock();
+
+                try {
+
+                    /*
+                     * Merge in the axioms (if any). These are added last so
+                     * the loaded statements win.
+                     */
+                    final ITupleIterator<?> itr = btree.rangeIterator();
+
+                    while (itr.hasNext()) {
+
+                        final ITuple<?> tuple = itr.next();
+
+                        sorters[i].add(tuple.getKey(), tuple.getValue());
+
+                    }
+
+                    btree.removeAll();
+
+                    final BulkBTreeBuilder builder = new BulkBTreeBuilder(
+                            btree);
+
+                    sorters[i].writeOn(builder);
+
+                    builder.close();
+
+                } finally {
+
+                    lock.unlock();
+
+                }
+
+                if (i == 0)
+                    nstmts = btree.getEntryCount();
+
+                if (log.isInfoEnabled())
+                    log.info("Built: name=" + name + ", entryCount="
+                            + btree.getEntryCount() + ", height="
+                            + btree.getHeight());
+
+            }
+
+        } finally {
+
+            close();
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("toldTriples=" + toldTriples + ", nstmts=" + nstmts
+                    + ", lexiconElapsed=" + lexiconElapsed + "ms, elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        return nstmts;
+
+    }
+
+    /**
+     * Discard any buffered tuples and delete the sorted runs. The statement
+     * indices are not modified unless {@link #build()} was invoked.
+     */
+    public void close() {
+
+        built = true;
+
+        for (ExternalTupleSorter sorter : sorters) {
+
+            sorter.close();
+
+        }
+
+    }
+
+    /**
+     * Resolve the RDF Values for a chunk of statements against the lexicon
+     * and add the key and value for each statement index to the sorters.
+     */
+    private void sortChunk(final BigdataStatement[] stmts, final int n)
+            throws IOException {
+
+        final BigdataValue[] values = new BigdataValue[n * 4];
+
+        int nvalues = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            final BigdataStatement stmt = stmts[i];
+
+            values[nvalues++] = stmt.getSubject();
+            values[nvalues++] = stmt.getPredicate();
+            values[nvalues++] = stmt.getObject();
+
+            if (stmt.getContext() != null)
+                values[nvalues++] = stmt.getContext();
+
+        }
+
+        final long begin = System.currentTimeMillis();
+
+        database.getLexiconRelation().addTerms(values, nvalues,
+                false/* readOnly */);
+
+        lexiconElapsed += System.currentTimeMillis() - begin;
+
+        final boolean quads = database.isQuads();
+
+        for (int i = 0; i < n; i++) {
+
+            final BigdataStatement stmt = stmts[i];
+
+            final SPO spo = new SPO(stmt.getSubject().getIV(), stmt
+                    .getPredicate().getIV(), stmt.getObject().getIV(),
+                    quads ? stmt.getContext().getIV() : null,
+                    StatementEnum.Explicit);
+
+            for (int j = 0; j < keyOrders.length; j++) {
+
+                sorters[j].add(tupleSers[j].serializeKey(spo),
+                        tupleSers[j].serializeVal(spo));
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Collects the parsed statements into chunks, canonicalizing the blank
+     * nodes within the scope of the source.
+     */
+    private class SortingRDFHandler implements RDFHandler {
+
+        private final String defaultGraph;
+
+        private final BigdataValueFactory valueFactory = database
+                .getValueFactory();
+
+        private final Map<String, BigdataBNode> bnodes = new HashMap<String, BigdataBNode>();
+
+        private BigdataURI defaultGraphURI = null;
+
+        private final BigdataStatement[] stmts = new BigdataStatement[chunkSize];
+
+        private int n = 0;
+
+        private long toldTriples = 0L;
+
+        SortingRDFHandler(final String defaultGraph) {
+
+            this.defaultGraph = defaultGraph;
+
+        }
+
+        private Value canonicalize(final Value v) {
+
+            if (!(v instanceof BNode))
+                return v;
+
+            final BigdataBNode bnode = valueFactory.asValue((BNode) v);
+
+            final BigdataBNode tmp = bnodes.get(bnode.getID());
+
+            if (tmp != null)
+                return tmp;
+
+            bnodes.put(bnode.getID(), bnode);
+
+            return bnode;
+
+        }
+
+        @Override
+        public void startRDF() throws RDFHandlerException {
+
+            defaultGraphURI = defaultGraph != null && database.isQuads() ? valueFactory
+                    .createURI(defaultGraph) : null;
+
+        }
+
+        @Override
+        public void handleStatement(final Statement stmt)
+                throws RDFHandlerException {
+
+            Resource graph = database.isQuads() ? stmt.getContext() : null;
+
+            if (graph == null && defaultGraphURI != null) {
+
+                graph = defaultGraphURI;
+
+            }
+
+            if (graph == null && database.isQuads()) {
+
+                throw new RDFHandlerException("Context not bound: " + stmt);
+
+            }
+
+            stmts[n++] = valueFactory.createStatement(
+                    (BigdataResource) canonicalize(stmt.getSubject()),
+                    valueFactory.asValue(stmt.getPredicate()),
+                    (BigdataValue) canonicalize(stmt.getObject()),
+                    (BigdataResource) canonicalize(graph),
+                    StatementEnum.Explicit);
+
+            toldTriples++;
+
+            if (n == stmts.length) {
+
+                flush();
+
+            }
+
+        }
+
+        private void flush() throws RDFHandlerException {
+
+            if (n == 0)
+                return;
+
+            try {
+
+                sortChunk(stmts, n);
+
+            } catch (IOException ex) {
+
+                throw new RDFHandlerException(ex);
+
+            }
+
+            for (int i = 0; i < n; i++) {
+
+                stmts[i] = null;
+
+            }
+
+            n = 0;
+
+        }
+
+        @Override
+        public void endRDF() throws RDFHandlerException {
+
+            flush();
+
+        }
+
+        @Override
+        public void handleComment(final String comment)
+                throws RDFHandlerException {
+
+        }
+
+        @Override
+        public void handleNamespace(final String prefix, final String uri)
+                throws RDFHandlerException {
+
+        }
+
+    }
+
+}
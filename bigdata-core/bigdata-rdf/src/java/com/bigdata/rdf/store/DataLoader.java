@@ -40,17 +40,31 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipInputStream;
 
 import org.apache.log4j.Logger;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
 
 import com.bigdata.Banner;
@@ -65,6 +79,11 @@ import com.bigdata.rdf.inf.ClosureStats;
 import com.bigdata.rdf.inf.TruthMaintenance;
 import com.bigdata.rdf.lexicon.LexiconRelation;
 import com.bigdata.rdf.load.IStatementBufferFactory;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.StatementEnum;
+import com.bigdata.rdf.rio.BasicRioLoader;
 import com.bigdata.rdf.rio.LoadStats;
 import com.bigdata.rdf.rio.PresortRioLoader;
 import com.bigdata.rdf.rio.RDFParserOptions;
@@ -73,6 +92,7 @@ import com.bigdata.rdf.rio.RioLoaderListener;
 import com.bigdata.rdf.rio.StatementBuffer;
 import com.bigdata.rdf.rules.InferenceEngine;
 import com.bigdata.rdf.spo.SPO;
+import com.bigdata.util.InnerCause;
 
 /**
  * A utility class to load RDF data into an {@link AbstractTripleStore}. This
@@ -247,6 +267,13 @@ public class DataLoader {
 	 */
     private final boolean ignoreInvalidFiles;
     
+    /**
+     * The #of threads used to parse files concurrently.
+     * 
+     * @see Options#PARSER_THREADS
+     */
+    private final int parserThreads;
+    
 //    public boolean setFlush(boolean newValue) {
 //        
 //        boolean ret = this.flush;
@@ -591,6 +618,39 @@ public class DataLoader {
 		 */
 		static final String DEFAULT_VERBOSE = "0";
 
+		/**
+		 * The #of threads that will parse files concurrently when a file or
+		 * directory is loaded using
+		 * {@link DataLoader#loadFiles(File, String, RDFFormat, String, FilenameFilter)}
+		 * (default {@value #DEFAULT_PARSER_THREADS}). When greater than ONE
+		 * (1), the parser threads take files from a shared work list and hand
+		 * off chunks of parsed statements through a bounded queue to the
+		 * caller's thread, which writes them onto a single
+		 * {@link StatementBuffer}. Parsing formats such as Turtle and
+		 * N-Triples is CPU bound, so this lets the parse scale with the #of
+		 * cores while the assignment of term identifiers and the index writes
+		 * are still batched across files.
+		 * <p>
+		 * {@link LoadStats} are still reported for each file and a parser
+		 * error in one file does not effect the statements parsed from the
+		 * other files (see {@link #IGNORE_INVALID_FILES}). Statements from a
+		 * failed file which were handed off before the error was detected are
+		 * retained, just as statements already written when the
+		 * {@link StatementBuffer} overflowed are retained by the sequential
+		 * loader.
+		 * <p>
+		 * Note: Files are loaded one at a time on the caller's thread when
+		 * either {@link CommitEnum#Incremental} or
+		 * {@link ClosureEnum#Incremental} is specified since both of those
+		 * require each file to be written and processed in turn.
+		 */
+		static final String PARSER_THREADS = DataLoader.class.getName() + ".parserThreads";
+
+		/**
+		 * The default value (<code>1</code>) for {@link #PARSER_THREADS}.
+		 */
+		static final String DEFAULT_PARSER_THREADS = "1";
+
     }
 
     /**
@@ -757,6 +817,19 @@ public class DataLoader {
 
 		}
 		
+		{ // parserThreads.
+
+			parserThreads = Integer
+					.parseInt(properties.getProperty(Options.PARSER_THREADS, Options.DEFAULT_PARSER_THREADS));
+
+			if (parserThreads <= 0)
+				throw new IllegalArgumentException(Options.PARSER_THREADS + "=" + parserThreads);
+
+			if (log.isInfoEnabled())
+				log.info(Options.PARSER_THREADS + "=" + parserThreads);
+
+		}
+		
 		{ // dumpJournal. See BLZG-1535
 			
 			dumpJournal = Boolean
@@ -1280,6 +1353,18 @@ public class DataLoader {
             final boolean endOfBatch)
             throws IOException {
 
+        if (depth == 0 && parserThreads > 1
+                && commitEnum != CommitEnum.Incremental
+                && closureEnum != ClosureEnum.Incremental) {
+
+            // Parse the file(s) concurrently. See Options#PARSER_THREADS.
+            loadFilesConcurrently(totals, file, baseURI, rdfFormat,
+                    defaultGraph, filter, endOfBatch);
+
+            return;
+
+        }
+
         if (file.isDirectory()) {
 
             if (log.isDebugEnabled())
@@ -1307,20 +1392,7 @@ public class DataLoader {
             
         }
         
-        final String n = file.getName();
-        
-        RDFFormat fmt = RDFFormat.forFileName(n);
-
-        if (fmt == null && n.endsWith(".zip")) {
-            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 4));
-        }
-
-        if (fmt == null && n.endsWith(".gz")) {
-            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 3));
-        }
-
-        if (fmt == null) // fallback
-            fmt = rdfFormat;
+        final RDFFormat fmt = getRDFFormat(file, rdfFormat);
                 
         InputStream is = null;
         
@@ -1329,18 +1401,7 @@ public class DataLoader {
 
         try {
 
-            is = new FileInputStream(file);
-
-            if (n.endsWith(".gz")) {
-
-                is = new GZIPInputStream(is, getGzipBuffer());
-
-            } else if (n.endsWith(".zip")) {
-
-				is = new ZipInputStream(new BufferedInputStream(is,
-						getGzipBuffer()));
-
-            }
+            is = openFile(file);
 
             /*
              * Obtain a buffered reader on the input stream.
@@ -1404,6 +1465,670 @@ public class DataLoader {
 
     }
 
+    /**
+     * Return the {@link RDFFormat} for a file based on its name. The
+     * <code>.zip</code> and <code>.gz</code> extensions are stripped if the
+     * name is not otherwise recognized.
+     * 
+     * @param file
+     *            The file.
+     * @param rdfFormat
+     *            The format to use if none can be deduced from the file name
+     *            (optional).
+     */
+    static RDFFormat getRDFFormat(final File file,
+            final RDFFormat rdfFormat) {
+
+        final String n = file.getName();
+        
+        RDFFormat fmt = RDFFormat.forFileName(n);
+
+        if (fmt == null && n.endsWith(".zip")) {
+            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 4));
+        }
+
+        if (fmt == null && n.endsWith(".gz")) {
+            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 3));
+        }
+
+        if (fmt == null) // fallback
+            fmt = rdfFormat;
+
+        return fmt;
+
+    }
+
+    /**
+     * Open an {@link InputStream} on a file. The stream will decompress the
+     * data if the file name ends with <code>.gz</code> or <code>.zip</code>.
+     * 
+     * @param file
+     *            The file.
+     */
+    static InputStream openFile(final File file) throws IOException {
+
+        final String n = file.getName();
+
+        InputStream is = new FileInputStream(file);
+
+        try {
+
+            if (n.endsWith(".gz")) {
+
+                is = new GZIPInputStream(is, getGzipBuffer());
+
+            } else if (n.endsWith(".zip")) {
+
+                is = new ZipInputStream(new BufferedInputStream(is,
+                        getGzipBuffer()));
+
+            }
+
+        } catch (IOException ex) {
+
+            is.close();
+
+            throw ex;
+
+        }
+
+        return is;
+
+    }
+
+    /**
+     * Recursively collect the files to be loaded in the same order in which
+     * they would be visited by
+     * {@link #loadFiles(MyLoadStats, int, File, String, RDFFormat, String, FilenameFilter, boolean)}
+     * .
+     */
+    static void listFiles(final File file, final FilenameFilter filter,
+            final List<File> files) {
+
+        if (file.isDirectory()) {
+
+            final File[] a = (filter != null ? file.listFiles(filter) : file
+                    .listFiles());
+
+            Arrays.sort(a);
+
+            for (File f : a) {
+
+                listFiles(f, filter, files);
+
+            }
+
+            return;
+
+        }
+
+        files.add(file);
+
+    }
+
+    /**
+     * Load a file or directory using {@link Options#PARSER_THREADS} parser
+     * threads. The parser threads take files from a shared work list and hand
+     * off chunks of {@link BigdataStatement}s through a bounded queue. The
+     * caller's thread drains that queue into the assertion buffer, so the
+     * assignment of term identifiers and the index writes are batched across
+     * files. The {@link LoadStats} are reported for each file as its last
+     * chunk is written.
+     * 
+     * @see Options#PARSER_THREADS
+     */
+    private void loadFilesConcurrently(final MyLoadStats totals,
+            final File file, final String baseURI, final RDFFormat rdfFormat,
+            final String defaultGraph, final FilenameFilter filter,
+            final boolean endOfBatch) throws IOException {
+
+        final List<File> files = new ArrayList<File>();
+
+        listFiles(file, filter, files);
+
+        if (files.isEmpty())
+            return;
+
+        final int nthreads = Math.min(parserThreads, files.size());
+
+        if (log.isInfoEnabled())
+            log.info("Loading " + files.size() + " files using " + nthreads
+                    + " parser threads: " + file);
+
+        // Note: allocates a new buffer iff the [buffer] is null.
+        final StatementBuffer<?> assertionBuffer = getAssertionBuffer();
+
+        // The files which have not yet been claimed by a parser thread.
+        final Queue<File> work = new ConcurrentLinkedQueue<File>(files);
+
+        // Chunks of parsed statements awaiting the writer.
+        final BlockingQueue<ParsedChunk> queue = new ArrayBlockingQueue<ParsedChunk>(
+                2 * nthreads);
+
+        // Set if the writer gives up so the parser threads will halt.
+        final AtomicBoolean halt = new AtomicBoolean(false);
+
+        final int chunkSize = Math.min(bufferCapacity, 10000);
+
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(nthreads);
+
+        boolean ok = false;
+
+        try {
+
+            for (int i = 0; i < nthreads; i++) {
+
+                futures.add(database.getExecutorService().submit(
+                        new ParserTask(work, queue, halt, chunkSize, baseURI,
+                                rdfFormat, defaultGraph)));
+
+            }
+
+            // The #of files whose last chunk has not been written.
+            int remaining = files.size();
+
+            while (remaining > 0) {
+
+                final ParsedChunk chunk = queue.poll(100L,
+                        TimeUnit.MILLISECONDS);
+
+                if (chunk == null) {
+
+                    checkParserTasks(futures, queue);
+
+                    continue;
+
+                }
+
+                for (int i = 0; i < chunk.n; i++) {
+
+                    assertionBuffer.add(chunk.stmts[i]);
+
+                }
+
+                if (chunk.done) {
+
+                    remaining--;
+
+                    didParse(totals, chunk);
+
+                }
+
+            }
+
+            ok = true;
+
+        } catch (InterruptedException ex) {
+
+            throw new RuntimeException(ex);
+
+        } finally {
+
+            halt.set(true);
+
+            for (Future<Void> f : futures) {
+
+                f.cancel(true/* mayInterruptIfRunning */);
+
+            }
+
+            if (!ok) {
+
+                // discard the buffered statements (caller must abort).
+                resetAssertionBuffer();
+
+            }
+
+        }
+
+        if (flush) {
+
+            // Flush the statements parsed from this set of files.
+            assertionBuffer.flush();
+
+        }
+
+        if (endOfBatch && closureEnum == ClosureEnum.Batch) {
+
+            if (log.isInfoEnabled())
+                log.info("Computing closure.");
+
+            totals.closureStats.add(doClosure());
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("Loaded " + files.size() + " files: " + totals);
+
+    }
+
+    /**
+     * Verify that at least one parser task is still running or that there is
+     * still work on the queue. If a parser task failed then its error is
+     * thrown out.
+     */
+    private static void checkParserTasks(final List<Future<Void>> futures,
+            final BlockingQueue<ParsedChunk> queue)
+            throws InterruptedException {
+
+        boolean allDone = true;
+
+        for (Future<Void> f : futures) {
+
+            if (!f.isDone()) {
+
+                allDone = false;
+
+                continue;
+
+            }
+
+            try {
+
+                f.get();
+
+            } catch (ExecutionException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+        }
+
+        if (allDone && queue.isEmpty())
+            throw new RuntimeException("Parser tasks are done but files remain");
+
+    }
+
+    /**
+     * Report the outcome for a file once its last chunk has been written onto
+     * the assertion buffer.
+     */
+    private void didParse(final MyLoadStats totals, final ParsedChunk chunk)
+            throws IOException {
+
+        final MyLoadStats stats = new MyLoadStats();
+
+        stats.toldTriples.set(chunk.toldTriples);
+
+        stats.loadTime.set(chunk.elapsed);
+
+        stats.totalTime.set(chunk.elapsed);
+
+        if (chunk.cause == null) {
+
+            stats.didGood(chunk.file);
+
+            totals.add(stats);
+
+            if (log.isInfoEnabled())
+                log.info("file:: " + chunk.file + "; " + stats + "; totals:: "
+                        + totals);
+
+            if (verbose > 1)
+                output.println(stats.toldTriples + " stmts parsed in "
+                        + (chunk.elapsed / 1000d) + " secs, file="
+                        + chunk.file + ", totalStatementsSoFar="
+                        + totals.toldTriples);
+
+            return;
+
+        }
+
+        stats.didFail(chunk.file);
+
+        totals.add(stats);
+
+        final Throwable t = chunk.cause;
+
+        if (t instanceof RDFParseException) {
+
+            if (ignoreInvalidFiles) {
+
+                /*
+                 * Log warning and DO NOT rethrow the exception.
+                 * 
+                 * Note: The file will still be entered into the "failSet" if
+                 * durable queues are enabled.
+                 */
+
+                log.error("Parser error - skipping source: source="
+                        + chunk.file, t);
+
+                return;
+
+            }
+
+            throw new RuntimeException("Could not parse file: " + chunk.file, t);
+
+        }
+
+        if (t instanceof RuntimeException)
+            throw (RuntimeException) t;
+
+        if (t instanceof IOException)
+            throw (IOException) t;
+
+        // throw a runtime exception, causing an abort
+        throw new RuntimeException("While loading: " + chunk.file, t);
+
+    }
+
+    /**
+     * A chunk of statements parsed from a file. The last chunk for each file
+     * is marked as {@link #done} and reports the outcome for that file.
+     */
+    private static class ParsedChunk {
+
+        final File file;
+
+        final BigdataStatement[] stmts;
+
+        final int n;
+
+        final boolean done;
+
+        final long toldTriples;
+
+        final long elapsed;
+
+        /**
+         * The cause if the file could not be parsed. The statements parsed
+         * since the previous chunk was handed off are discarded in this case.
+         */
+        final Throwable cause;
+
+        /**
+         * An intermediate chunk.
+         */
+        ParsedChunk(final File file, final BigdataStatement[] stmts,
+                final int n) {
+
+            this(file, stmts, n, false/* done */, 0L, 0L, null/* cause */);
+
+        }
+
+        /**
+         * The last chunk for a file.
+         */
+        ParsedChunk(final File file, final BigdataStatement[] stmts,
+                final int n, final long toldTriples, final long elapsed,
+                final Throwable cause) {
+
+            this(file, stmts, n, true/* done */, toldTriples, elapsed, cause);
+
+        }
+
+        private ParsedChunk(final File file, final BigdataStatement[] stmts,
+                final int n, final boolean done, final long toldTriples,
+                final long elapsed, final Throwable cause) {
+
+            this.file = file;
+            this.stmts = stmts;
+            this.n = n;
+            this.done = done;
+            this.toldTriples = toldTriples;
+            this.elapsed = elapsed;
+            this.cause = cause;
+
+        }
+
+    }
+
+    /**
+     * Task parses files from the shared work list until it is empty, handing
+     * off the parsed statements in chunks. Errors are reported for each file
+     * through its last chunk rather than thrown out of the task.
+     */
+    private class ParserTask implements Callable<Void> {
+
+        private final Queue<File> work;
+
+        private final BlockingQueue<ParsedChunk> queue;
+
+        private final AtomicBoolean halt;
+
+        private final int chunkSize;
+
+        private final String baseURI;
+
+        private final RDFFormat rdfFormat;
+
+        private final String defaultGraph;
+
+        ParserTask(final Queue<File> work,
+                final BlockingQueue<ParsedChunk> queue,
+                final AtomicBoolean halt, final int chunkSize,
+                final String baseURI, final RDFFormat rdfFormat,
+                final String defaultGraph) {
+
+            this.work = work;
+            this.queue = queue;
+            this.halt = halt;
+            this.chunkSize = chunkSize;
+            this.baseURI = baseURI;
+            this.rdfFormat = rdfFormat;
+            this.defaultGraph = defaultGraph;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            File file;
+
+            while (!halt.get() && (file = work.poll()) != null) {
+
+                parse(file);
+
+            }
+
+            return null;
+
+        }
+
+        /**
+         * Hand off a chunk, waiting for room on the queue unless the writer
+         * has given up.
+         */
+        private void handOff(final ParsedChunk chunk)
+                throws InterruptedException {
+
+            while (!queue.offer(chunk, 100L, TimeUnit.MILLISECONDS)) {
+
+                if (halt.get())
+                    throw new InterruptedException();
+
+            }
+
+        }
+
+        private void parse(final File file) throws InterruptedException {
+
+            if (log.isInfoEnabled())
+                log.info("Parsing next file: " + file);
+
+            final long begin = System.currentTimeMillis();
+
+            final ChunkedRDFHandler handler = new ChunkedRDFHandler(file);
+
+            Throwable cause = null;
+
+            try {
+
+                final InputStream is = openFile(file);
+
+                try {
+
+                    final Reader reader = new BufferedReader(
+                            new InputStreamReader(is));
+
+                    try {
+
+                        final BasicRioLoader loader = new BasicRioLoader(
+                                database.getValueFactory()) {
+
+                            @Override
+                            public RDFHandler newRDFHandler() {
+
+                                return handler;
+
+                            }
+
+                        };
+
+                        // baseURI for this file.
+                        final String s = baseURI != null ? baseURI : file
+                                .toURI().toString();
+
+                        loader.loadRdf(reader, s,
+                                getRDFFormat(file, rdfFormat), defaultGraph,
+                                parserOptions);
+
+                    } finally {
+
+                        reader.close();
+
+                    }
+
+                } finally {
+
+                    is.close();
+
+                }
+
+            } catch (Throwable t) {
+
+                if (halt.get()
+                        || InnerCause.isInnerCause(t,
+                                InterruptedException.class)) {
+
+                    // The writer has given up.
+                    throw new InterruptedException();
+
+                }
+
+                cause = t;
+
+            }
+
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            if (cause == null) {
+
+                handOff(new ParsedChunk(file, handler.stmts, handler.n,
+                        handler.toldTriples, elapsed, null/* cause */));
+
+            } else {
+
+                // Discard the statements which were not yet handed off.
+                handOff(new ParsedChunk(file, null/* stmts */, 0/* n */,
+                        handler.toldTriples, elapsed, cause));
+
+            }
+
+        }
+
+        /**
+         * Collects the statements parsed from a file into chunks.
+         */
+        private class ChunkedRDFHandler implements RDFHandler {
+
+            private final File file;
+
+            private final BigdataValueFactory valueFactory = database
+                    .getValueFactory();
+
+            /**
+             * The value that will be used for the graph/context co-ordinate
+             * when loading data represented in a triple format into a quad
+             * store.
+             */
+            private BigdataURI defaultGraphURI = null;
+
+            private BigdataStatement[] stmts = new BigdataStatement[chunkSize];
+
+            private int n = 0;
+
+            private long toldTriples = 0L;
+
+            ChunkedRDFHandler(final File file) {
+
+                this.file = file;
+
+            }
+
+            @Override
+            public void startRDF() throws RDFHandlerException {
+
+                defaultGraphURI = defaultGraph != null && database.isQuads() ? valueFactory
+                        .createURI(defaultGraph) : null;
+
+            }
+
+            @Override
+            public void handleStatement(final Statement stmt)
+                    throws RDFHandlerException {
+
+                Resource graph = stmt.getContext();
+
+                if (graph == null && defaultGraphURI != null) {
+
+                    /*
+                     * Only true when we know we are loading a quad store.
+                     */
+
+                    graph = defaultGraphURI;
+
+                }
+
+                stmts[n++] = valueFactory.createStatement(stmt.getSubject(),
+                        stmt.getPredicate(), stmt.getObject(), graph,
+                        StatementEnum.Explicit);
+
+                toldTriples++;
+
+                if (n == stmts.length) {
+
+                    try {
+
+                        handOff(new ParsedChunk(file, stmts, n));
+
+                    } catch (InterruptedException ex) {
+
+                        throw new RuntimeException(ex);
+
+                    }
+
+                    stmts = new BigdataStatement[chunkSize];
+
+                    n = 0;
+
+                }
+
+            }
+
+            @Override
+            public void endRDF() throws RDFHandlerException {
+
+            }
+
+            @Override
+            public void handleComment(final String comment)
+                    throws RDFHandlerException {
+
+            }
+
+            @Override
+            public void handleNamespace(final String prefix, final String uri)
+                    throws RDFHandlerException {
+
+            }
+
+        }
+
+    }
+
     /**
 	 * Loads data from the <i>source</i>. The caller is responsible for closing
 	 * the <i>source</i> if there is an error.
@@ -1704,21 +2429,7 @@ public class DataLoader {
              * (that is, by calling abort()).
              */
 
-			if (buffer != null) {
-
-                // clear any buffer statements.
-                buffer.reset();
-
-                if (tm != null) {
-                    
-                    // delete the tempStore if truth maintenance is enabled.
-                    buffer.getStatementStore().close();
-                    
-                }
-
-                buffer = null;
-                
-            }
+			resetAssertionBuffer();
 
 			if (t instanceof RuntimeException)
 				throw (RuntimeException) t;
@@ -1737,6 +2448,33 @@ public class DataLoader {
             
         }
 
+    }
+
+    /**
+     * Discard the assertion buffer and anything buffered on it (the buffer
+     * will be reallocated on demand). This is used when a load fails so that
+     * the buffer does not retain data from the failed load. The caller must
+     * still discard the writes already on the backing store (that is, by
+     * calling abort()).
+     */
+    private void resetAssertionBuffer() {
+
+        if (buffer != null) {
+
+            // clear any buffer statements.
+            buffer.reset();
+
+            if (tm != null) {
+
+                // delete the tempStore if truth maintenance is enabled.
+                buffer.getStatementStore().close();
+
+            }
+
+            buffer = null;
+
+        }
+
     }
 
    	/**
@@ -2212,6 +2950,7 @@ public class DataLoader {
                     DataLoader.Options.DURABLE_QUEUES,
                     DataLoader.Options.DUMP_JOURNAL,
                     DataLoader.Options.VERBOSE,
+                    DataLoader.Options.PARSER_THREADS,
                     // Useful Journal options.
                     Journal.Options.WRITE_CACHE_BUFFER_COUNT,
                     Journal.Options.WRITE_CACHE_MIN_CLEAN_LIST_SIZE,
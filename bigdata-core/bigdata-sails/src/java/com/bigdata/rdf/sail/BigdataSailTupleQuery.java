@@ -8,6 +8,7 @@ import org.openrdf.query.TupleQueryResult;
 import org.openrdf.query.algebra.evaluation.QueryBindingSet;
 import org.openrdf.repository.sail.SailTupleQuery;
 
+import com.bigdata.bop.IBindingSet;
 import com.bigdata.rdf.sparql.ast.ASTContainer;
 import com.bigdata.rdf.sparql.ast.BindingsClause;
 import com.bigdata.rdf.sparql.ast.DatasetNode;
@@ -16,6 +17,8 @@ import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.eval.ASTEvalHelper;
 import com.bigdata.rdf.store.AbstractTripleStore;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 public class BigdataSailTupleQuery extends SailTupleQuery 
         implements BigdataSailQuery {
 
@@ -83,6 +86,39 @@ public class BigdataSailTupleQuery extends SailTupleQuery
         return queryResult;
 
     }
+
+    /**
+     * Evaluate the query, visiting chunks of bigdata solutions whose projected
+     * {@link com.bigdata.rdf.internal.IV}s have been materialized. This avoids
+     * the conversion of each solution into an openrdf
+     * {@link org.openrdf.query.BindingSet} and is used to stream large
+     * results.
+     * 
+     * @param chunkSize
+     *            The target #of solutions in each chunk.
+     * 
+     * @return The chunked iterator. Closing the iterator will cancel the
+     *         query.
+     * 
+     * @see ASTEvalHelper#evaluateTupleQueryChunked(AbstractTripleStore,
+     *      ASTContainer, QueryBindingSet, org.openrdf.query.Dataset, int)
+     */
+    public ICloseableIterator<IBindingSet[]> evaluateChunked(
+            final int chunkSize) throws QueryEvaluationException {
+
+        final QueryRoot originalQuery = astContainer.getOriginalAST();
+
+        if (getMaxQueryTime() > 0)
+            originalQuery.setTimeout(TimeUnit.SECONDS
+                    .toMillis(getMaxQueryTime()));
+
+        originalQuery.setIncludeInferred(getIncludeInferred());
+
+        return ASTEvalHelper.evaluateTupleQueryChunked(getTripleStore(),
+                astContainer, new QueryBindingSet(getBindings()),
+                getDataset(), chunkSize);
+
+    }
     
     public QueryRoot optimize() throws QueryEvaluationException {
 
@@ -76,6 +76,8 @@ import org.openrdf.rio.RDFWriter;
 import org.openrdf.rio.RDFWriterRegistry;
 
 import com.bigdata.BigdataStatics;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
@@ -118,6 +120,8 @@ import com.bigdata.sparse.SparseRowStore;
 import com.bigdata.util.DaemonThreadFactory;
 import com.bigdata.util.concurrent.ThreadPoolExecutorBaseStatisticsTask;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 import info.aduna.xml.XMLWriter;
 
 /**
@@ -190,6 +194,19 @@ public class BigdataRDFContext extends BigdataBaseContext {
      */
     protected static final String MONITOR = "monitor";
     
+    /**
+     * URL Query parameter used to request that the solutions for a SPARQL
+     * SELECT query are streamed to the client. The solutions are visited in
+     * large chunks, the projected values are materialized in batches, and the
+     * SPARQL JSON, TSV, or XML result encoding is written directly into a
+     * pooled direct buffer which is flushed to the client after each chunk
+     * rather than going through the openrdf result writers. Other result
+     * formats are not affected.
+     * 
+     * @see StreamingSolutionWriter
+     */
+    protected static final String STREAMING = "streaming";
+    
     /**
      * URL query parameter used to specify a URI in the default graph for SPARQL
      * query (but not for SPARQL update).
@@ -911,6 +928,15 @@ public class BigdataRDFContext extends BigdataBaseContext {
          */
         final boolean monitor;
         
+        /**
+         * When <code>true</code>, the solutions for a SPARQL SELECT query
+         * will be streamed to the client if the negotiated format is
+         * supported.
+         * 
+         * @see BigdataRDFContext#STREAMING
+         */
+        final boolean streaming;
+        
         /**
          * The timstamp (in nanoseconds) when the task obtains its connection
          * and begins to execute. 
@@ -1048,6 +1074,8 @@ public class BigdataRDFContext extends BigdataBaseContext {
                     false);
             this.monitor = getEffectiveBooleanValue(req.getParameter(MONITOR),
                     false);
+            this.streaming = getEffectiveBooleanValue(
+                    req.getParameter(STREAMING), false);
             this.os = os;
             this.queryId = Long.valueOf(m_queryIdFactory.incrementAndGet());
 
@@ -1134,6 +1162,8 @@ public class BigdataRDFContext extends BigdataBaseContext {
                     false);
             this.monitor = getEffectiveBooleanValue(req.getParameter(MONITOR),
                     false);
+            this.streaming = getEffectiveBooleanValue(
+                    req.getParameter(STREAMING), false);
             this.os = os;
             this.queryId = Long.valueOf(m_queryIdFactory.incrementAndGet());
 
@@ -1677,6 +1707,23 @@ public class BigdataRDFContext extends BigdataBaseContext {
 
             final BigdataSailTupleQuery query = (BigdataSailTupleQuery) setupQuery(cxn);
 
+            if (!xhtml && streaming) {
+
+                final StreamingSolutionWriter.Format format = StreamingSolutionWriter
+                        .getFormat(TupleQueryResultWriterRegistry.getInstance()
+                                .getFileFormatForMIMEType(mimeType));
+
+                if (format != null) {
+
+                    // Stream the solutions.
+                    doStreamingQuery(query, format, os);
+
+                    return;
+
+                }
+
+            }
+
             final TupleQueryResultWriter w;
 
 
@@ -1714,6 +1761,53 @@ public class BigdataRDFContext extends BigdataBaseContext {
 
 		}
 
+        /**
+         * Evaluate the query, writing the solutions onto the output stream in
+         * chunks as they are materialized.
+         */
+        private void doStreamingQuery(final BigdataSailTupleQuery query,
+                final StreamingSolutionWriter.Format format,
+                final OutputStream os) throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = query
+                    .evaluateChunked(StreamingSolutionWriter.DEFAULT_CHUNK_SIZE);
+
+            try {
+
+                // Note: The optimized AST is available once evaluation starts.
+                final IVariable<?>[] vars = query.getASTContainer()
+                        .getOptimizedAST().getProjection().getProjectionVars();
+
+                final StreamingSolutionWriter w = new StreamingSolutionWriter(
+                        format, vars, os);
+
+                try {
+
+                    w.startResult();
+
+                    while (itr.hasNext()) {
+
+                        w.writeChunk(itr.next());
+
+                    }
+
+                    w.endResult();
+
+                } finally {
+
+                    w.close();
+
+                }
+
+            } finally {
+
+                // Note: Closing the iterator will cancel the query.
+                itr.close();
+
+            }
+
+        }
+
 	}
     
     private static class MyXMLWriter extends XMLWriter {
@@ -35,6 +35,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
 
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.fed.QueryEngineFactory;
 import com.bigdata.counters.CounterSet;
 import com.bigdata.counters.ICounterSetAccess;
 import com.bigdata.counters.format.CounterSetFormat;
@@ -43,6 +45,8 @@ import com.bigdata.counters.query.URLQueryModel;
 import com.bigdata.counters.render.IRenderer;
 import com.bigdata.counters.render.RendererFactory;
 import com.bigdata.journal.IIndexManager;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.sparql.ast.eval.QueryPlanCache;
 import com.bigdata.service.IBigdataFederation;
 import com.bigdata.service.IEventReceivingService;
 import com.bigdata.service.IService;
@@ -103,6 +107,28 @@ public class CountersServlet extends BigdataServlet {
         final CounterSet counterSet = ((ICounterSetAccess) indexManager)
                 .getCounters();
 
+        // The term caches shared by the read-only views of the lexicon.
+        counterSet.makePath("Lexicon/termCache").attach(
+                LexiconRelation.getTermCacheCounters());
+
+        // The query plans cached for the query engine (if enabled).
+        {
+
+            final QueryEngine queryEngine = QueryEngineFactory.getInstance()
+                    .getQueryController(indexManager);
+
+            final QueryPlanCache planCache = QueryPlanCache
+                    .getExistingInstance(queryEngine);
+
+            if (planCache != null) {
+
+                counterSet.makePath("Query Engine/planCache").attach(
+                        planCache.getCounters());
+
+            }
+
+        }
+
         final CounterSetSelector counterSelector = new CounterSetSelector(
                 counterSet);
 
@@ -0,0 +1,559 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sail.webapp;
+
+import static com.bigdata.rdf.sail.webapp.client.DictionaryQueryResultFormat.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SimpleTimeZone;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.resultio.QueryResultFormat;
+import org.openrdf.query.resultio.QueryResultWriterBase;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.AbstractLiteralIV;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.sail.webapp.client.DictionaryQueryResultFormat;
+
+/**
+ * Writer for the {@link DictionaryQueryResultFormat}. Each distinct RDF
+ * {@link Value} is written once into the stream and is thereafter referenced
+ * by its dictionary index. Numeric, boolean, and date literals are written in
+ * their native binary form when the lexical form is the canonical form of
+ * that value. For inline {@link IV}s, the native value is taken directly from
+ * the {@link IV} rather than being parsed from the lexical form.
+ * <p>
+ * The solutions are buffered and written in chunks. The term records for any
+ * new values are written ahead of the chunk which references them.
+ */
+public class DictionaryQueryResultWriter extends QueryResultWriterBase
+        implements TupleQueryResultWriter {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The maximum #of solutions in a chunk.
+     */
+    static final int CHUNK_SIZE = 1000;
+
+    /**
+     * The chunk is written once its encoding reaches this many bytes.
+     */
+    static final int CHUNK_BYTES = 1 << 16;
+
+    /**
+     * The dictionary is reset once it reaches this many entries.
+     */
+    static final int MAX_DICTIONARY_SIZE = 1 << 20;
+
+    private final DataOutputStream out;
+
+    private final ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream(
+            CHUNK_BYTES + 1024);
+
+    private final DataOutputStream chunk = new DataOutputStream(chunkBytes);
+
+    private int chunkCount = 0;
+
+    /**
+     * The dictionary index of each value which has been written.
+     */
+    private final Map<Value, Integer> dict = new HashMap<Value, Integer>();
+
+    private List<String> bindingNames;
+
+    public DictionaryQueryResultWriter(final OutputStream os) {
+
+        if (os == null)
+            throw new IllegalArgumentException();
+
+        this.out = new DataOutputStream(new BufferedOutputStream(os));
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+        return DictionaryQueryResultFormat.FORMAT;
+    }
+
+    @Override
+    public QueryResultFormat getQueryResultFormat() {
+        return getTupleQueryResultFormat();
+    }
+
+    @Override
+    public void startDocument() throws QueryResultHandlerException {
+        // Ignored.
+    }
+
+    @Override
+    public void handleStylesheet(final String stylesheetUrl)
+            throws QueryResultHandlerException {
+        // Ignored.
+    }
+
+    @Override
+    public void startHeader() throws QueryResultHandlerException {
+        // Ignored.
+    }
+
+    @Override
+    public void handleLinks(final List<String> linkUrls)
+            throws QueryResultHandlerException {
+        // Ignored.
+    }
+
+    @Override
+    public void endHeader() throws QueryResultHandlerException {
+        // Ignored.
+    }
+
+    @Override
+    public void handleNamespace(final String prefix, final String uri)
+            throws QueryResultHandlerException {
+        // Ignored.
+    }
+
+    @Override
+    public void handleBoolean(final boolean value)
+            throws QueryResultHandlerException {
+        throw new UnsupportedOperationException(
+                "Cannot handle boolean results");
+    }
+
+    @Override
+    public void startQueryResult(final List<String> bindingNames)
+            throws TupleQueryResultHandlerException {
+
+        this.bindingNames = bindingNames;
+
+        try {
+
+            out.write(MAGIC);
+
+            out.writeInt(VERSION);
+
+            writeVarLong(out, bindingNames.size());
+
+            for (String name : bindingNames)
+                writeString(out, name);
+
+        } catch (IOException ex) {
+
+            throw new TupleQueryResultHandlerException(ex);
+
+        }
+
+    }
+
+    @Override
+    public void handleSolution(final BindingSet bindingSet)
+            throws TupleQueryResultHandlerException {
+
+        try {
+
+            for (String name : bindingNames) {
+
+                writeBinding(bindingSet.getValue(name));
+
+            }
+
+            if (++chunkCount >= CHUNK_SIZE || chunk.size() >= CHUNK_BYTES) {
+
+                flushChunk();
+
+            }
+
+        } catch (IOException ex) {
+
+            throw new TupleQueryResultHandlerException(ex);
+
+        }
+
+    }
+
+    @Override
+    public void endQueryResult() throws TupleQueryResultHandlerException {
+
+        try {
+
+            flushChunk();
+
+            out.writeByte(END);
+
+            out.flush();
+
+        } catch (IOException ex) {
+
+            throw new TupleQueryResultHandlerException(ex);
+
+        } finally {
+
+            dict.clear();
+
+        }
+
+    }
+
+    /**
+     * Write the buffered solutions.
+     */
+    private void flushChunk() throws IOException {
+
+        if (chunkCount == 0)
+            return;
+
+        out.writeByte(SOLUTIONS);
+
+        writeVarLong(out, chunkCount);
+
+        chunkBytes.writeTo(out);
+
+        chunkBytes.reset();
+
+        chunkCount = 0;
+
+        if (dict.size() >= MAX_DICTIONARY_SIZE) {
+
+            /*
+             * Note: The dictionary is only reset between chunks since the
+             * buffered solutions may reference any entry.
+             */
+
+            out.writeByte(RESET);
+
+            dict.clear();
+
+        }
+
+    }
+
+    /**
+     * Write a binding into the current chunk.
+     */
+    private void writeBinding(final Value v) throws IOException {
+
+        if (v == null) {
+
+            chunk.writeByte(UNBOUND);
+
+            return;
+
+        }
+
+        if (v instanceof Literal && writeNative((Literal) v)) {
+
+            return;
+
+        }
+
+        chunk.writeByte(REF);
+
+        writeVarLong(chunk, getTerm(v));
+
+    }
+
+    /**
+     * Return the dictionary index of the value, writing a term record for the
+     * value if it has not been written yet.
+     */
+    private int getTerm(final Value v) throws IOException {
+
+        final Integer index = dict.get(v);
+
+        if (index != null)
+            return index.intValue();
+
+        if (v instanceof URI) {
+
+            out.writeByte(TERM_URI);
+            writeString(out, v.stringValue());
+
+        } else if (v instanceof BNode) {
+
+            out.writeByte(TERM_BNODE);
+            writeString(out, ((BNode) v).getID());
+
+        } else {
+
+            final Literal lit = (Literal) v;
+
+            if (lit.getLanguage() != null) {
+
+                out.writeByte(TERM_LANG_LITERAL);
+                writeString(out, lit.getLabel());
+                writeString(out, lit.getLanguage());
+
+            } else if (lit.getDatatype() != null) {
+
+                // Note: The datatype URI is written first.
+                final int dt = getTerm(lit.getDatatype());
+
+                out.writeByte(TERM_TYPED_LITERAL);
+                writeString(out, lit.getLabel());
+                writeVarLong(out, dt);
+
+            } else {
+
+                out.writeByte(TERM_LITERAL);
+                writeString(out, lit.getLabel());
+
+            }
+
+        }
+
+        final int n = dict.size();
+
+        dict.put(v, n);
+
+        return n;
+
+    }
+
+    /**
+     * Write the literal in its native form if it has a supported datatype and
+     * its lexical form is the canonical form of its value.
+     * 
+     * @return <code>false</code> if the literal was not written.
+     */
+    private boolean writeNative(final Literal lit) throws IOException {
+
+        final URI dt = lit.getDatatype();
+
+        if (dt == null)
+            return false;
+
+        /*
+         * The value (the inline IV if there is one, otherwise the literal
+         * which will parse its lexical form).
+         */
+        final Literal val;
+        {
+            final IV<?, ?> iv = lit instanceof BigdataValue ? ((BigdataValue) lit)
+                    .getIV() : null;
+
+            if (iv != null && iv.isInline() && iv instanceof AbstractLiteralIV) {
+
+                val = (AbstractLiteralIV<?, ?>) iv;
+
+            } else {
+
+                val = lit;
+
+            }
+        }
+
+        final String label = lit.getLabel();
+
+        try {
+
+            if (XMLSchema.INT.equals(dt)) {
+
+                final int x = val.intValue();
+                if (!label.equals(Integer.toString(x)))
+                    return false;
+                chunk.writeByte(INT);
+                writeZigZag(chunk, x);
+
+            } else if (XMLSchema.LONG.equals(dt)) {
+
+                final long x = val.longValue();
+                if (!label.equals(Long.toString(x)))
+                    return false;
+                chunk.writeByte(LONG);
+                writeZigZag(chunk, x);
+
+            } else if (XMLSchema.INTEGER.equals(dt)) {
+
+                // Note: Only those xsd:integer values which fit in a long.
+                final long x = val.longValue();
+                if (!label.equals(Long.toString(x)))
+                    return false;
+                chunk.writeByte(INTEGER);
+                writeZigZag(chunk, x);
+
+            } else if (XMLSchema.DOUBLE.equals(dt)) {
+
+                final double x = val.doubleValue();
+                if (!label.equals(Double.toString(x)))
+                    return false;
+                chunk.writeByte(DOUBLE);
+                chunk.writeDouble(x);
+
+            } else if (XMLSchema.FLOAT.equals(dt)) {
+
+                final float x = val.floatValue();
+                if (!label.equals(Float.toString(x)))
+                    return false;
+                chunk.writeByte(FLOAT);
+                chunk.writeFloat(x);
+
+            } else if (XMLSchema.BOOLEAN.equals(dt)) {
+
+                if (label.equals("true")) {
+                    chunk.writeByte(TRUE);
+                } else if (label.equals("false")) {
+                    chunk.writeByte(FALSE);
+                } else {
+                    return false;
+                }
+
+            } else if (XMLSchema.SHORT.equals(dt)) {
+
+                final short x = val.shortValue();
+                if (!label.equals(Short.toString(x)))
+                    return false;
+                chunk.writeByte(SHORT);
+                writeZigZag(chunk, x);
+
+            } else if (XMLSchema.BYTE.equals(dt)) {
+
+                final byte x = val.byteValue();
+                if (!label.equals(Byte.toString(x)))
+                    return false;
+                chunk.writeByte(BYTE);
+                chunk.writeByte(x);
+
+            } else if (XMLSchema.DATETIME.equals(dt)) {
+
+                return writeCalendar(lit, label, false/* date */);
+
+            } else if (XMLSchema.DATE.equals(dt)) {
+
+                return writeCalendar(lit, label, true/* date */);
+
+            } else {
+
+                return false;
+
+            }
+
+        } catch (IllegalArgumentException ex) {
+
+            // Not a valid lexical form for the datatype.
+            return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Write an <code>xsd:dateTime</code> or <code>xsd:date</code> as the
+     * milliseconds since the epoch and the timezone offset.
+     */
+    private boolean writeCalendar(final Literal lit, final String label,
+            final boolean date) throws IOException {
+
+        final XMLGregorianCalendar x = lit.calendarValue();
+
+        final int timezone = x.getTimezone();
+
+        final BigDecimal fraction = x.getFractionalSecond();
+
+        final long millis = x.toGregorianCalendar(
+                new SimpleTimeZone(
+                        timezone == DatatypeConstants.FIELD_UNDEFINED ? 0
+                                : timezone * 60000, "UTC"), null/* locale */,
+                null/* defaults */).getTimeInMillis();
+
+        if (!label.equals(formatCalendar(millis, timezone, fraction != null,
+                date)))
+            return false;
+
+        chunk.writeByte(date ? DATE : DATETIME);
+
+        writeZigZag(chunk, millis);
+
+        writeZigZag(chunk, timezone);
+
+        if (!date)
+            chunk.writeByte(fraction != null ? 1 : 0);
+
+        return true;
+
+    }
+
+    private static void writeString(final DataOutputStream os, final String s)
+            throws IOException {
+
+        final byte[] b = s.getBytes(UTF8);
+
+        writeVarLong(os, b.length);
+
+        os.write(b);
+
+    }
+
+    private static void writeZigZag(final DataOutputStream os, final long v)
+            throws IOException {
+
+        writeVarLong(os, (v << 1) ^ (v >> 63));
+
+    }
+
+    private static void writeVarLong(final DataOutputStream os, long v)
+            throws IOException {
+
+        while ((v & ~0x7fL) != 0) {
+
+            os.writeByte((int) ((v & 0x7f) | 0x80));
+
+            v >>>= 7;
+
+        }
+
+        os.writeByte((int) v);
+
+    }
+
+}
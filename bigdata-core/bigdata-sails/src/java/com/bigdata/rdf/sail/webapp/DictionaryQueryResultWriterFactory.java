@@ -0,0 +1,55 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.OutputStream;
+
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+import org.openrdf.query.resultio.TupleQueryResultWriterFactory;
+
+import com.bigdata.rdf.sail.webapp.client.DictionaryQueryResultFormat;
+
+/**
+ * Factory for {@link DictionaryQueryResultWriter}s.
+ */
+public class DictionaryQueryResultWriterFactory implements
+        TupleQueryResultWriterFactory {
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+        return DictionaryQueryResultFormat.FORMAT;
+    }
+
+    @Override
+    public TupleQueryResultWriter getWriter(final OutputStream out) {
+        return new DictionaryQueryResultWriter(out);
+    }
+
+}
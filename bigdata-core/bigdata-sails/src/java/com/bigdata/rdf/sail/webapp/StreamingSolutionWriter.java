@@ -0,0 +1,702 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.io.IBufferAccess;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataBNode;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParser;
+
+/**
+ * Writes chunks of materialized bigdata solutions onto an
+ * {@link OutputStream} using the SPARQL JSON, TSV, or XML result encoding.
+ * The encoded (UTF-8) bytes are written directly into a direct buffer
+ * acquired from the {@link DirectBufferPool} and the buffer is drained onto
+ * the output stream each time it fills up. The output stream is flushed at
+ * the end of each chunk so the client sees the solutions as they are
+ * produced. Since the writes block when the client is not reading, this
+ * also provides backpressure on the query.
+ * <p>
+ * Note: This class is not thread-safe.
+ * 
+ * @see BigdataRDFContext#STREAMING
+ */
+class StreamingSolutionWriter {
+
+    /**
+     * The default #of solutions in each chunk.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    /**
+     * The supported result encodings.
+     */
+    static enum Format {
+        JSON, TSV, XML;
+    }
+
+    /**
+     * Return the streaming {@link Format} for a {@link TupleQueryResultFormat}.
+     * 
+     * @return The {@link Format} -or- <code>null</code> if the format is not
+     *         supported for streaming.
+     */
+    static Format getFormat(final TupleQueryResultFormat format) {
+
+        if (TupleQueryResultFormat.JSON.equals(format))
+            return Format.JSON;
+
+        if (TupleQueryResultFormat.TSV.equals(format))
+            return Format.TSV;
+
+        if (TupleQueryResultFormat.SPARQL.equals(format))
+            return Format.XML;
+
+        return null;
+
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Format format;
+
+    private final IVariable<?>[] vars;
+
+    private final OutputStream os;
+
+    private final WritableByteChannel ch;
+
+    private IBufferAccess buf;
+
+    private ByteBuffer b;
+
+    /**
+     * <code>true</code> until the first solution has been written (used for
+     * the JSON separators).
+     */
+    private boolean first = true;
+
+    /**
+     * @param format
+     *            The result encoding.
+     * @param vars
+     *            The projected variables.
+     * @param os
+     *            Where to write the results.
+     * 
+     * @throws InterruptedException
+     *             if interrupted while awaiting a buffer.
+     */
+    StreamingSolutionWriter(final Format format, final IVariable<?>[] vars,
+            final OutputStream os) throws InterruptedException {
+
+        if (format == null)
+            throw new IllegalArgumentException();
+
+        if (vars == null)
+            throw new IllegalArgumentException();
+
+        if (os == null)
+            throw new IllegalArgumentException();
+
+        this.format = format;
+
+        this.vars = vars;
+
+        this.os = os;
+
+        this.ch = Channels.newChannel(os);
+
+        this.buf = DirectBufferPool.INSTANCE.acquire();
+
+        this.b = buf.buffer();
+
+        b.clear();
+
+    }
+
+    /**
+     * Release the buffer back to the pool. This does not write anything and
+     * does not close the output stream.
+     */
+    void close() throws InterruptedException {
+
+        if (buf != null) {
+
+            b = null;
+
+            buf.release();
+
+            buf = null;
+
+        }
+
+    }
+
+    /**
+     * Write the header.
+     */
+    void startResult() throws IOException {
+
+        switch (format) {
+        case JSON:
+            ascii("{\n  \"head\" : {\n    \"vars\" : [ ");
+            for (int i = 0; i < vars.length; i++) {
+                if (i > 0)
+                    ascii(", ");
+                jsonString(vars[i].getName());
+            }
+            ascii(" ]\n  },\n  \"results\" : {\n    \"bindings\" : [");
+            break;
+        case TSV:
+            for (int i = 0; i < vars.length; i++) {
+                if (i > 0)
+                    ascii("\t");
+                ascii("?");
+                chars(vars[i].getName());
+            }
+            ascii("\n");
+            break;
+        case XML:
+            ascii("<?xml version='1.0' encoding='UTF-8'?>\n"
+                    + "<sparql xmlns='http://www.w3.org/2005/sparql-results#'>\n"
+                    + "\t<head>\n");
+            for (IVariable<?> var : vars) {
+                ascii("\t\t<variable name='");
+                xmlString(var.getName());
+                ascii("'/>\n");
+            }
+            ascii("\t</head>\n\t<results>\n");
+            break;
+        default:
+            throw new AssertionError();
+        }
+
+    }
+
+    /**
+     * Write a chunk of solutions and flush them through to the client.
+     */
+    void writeChunk(final IBindingSet[] chunk) throws IOException {
+
+        for (IBindingSet bset : chunk) {
+
+            writeSolution(bset);
+
+        }
+
+        drain();
+
+        os.flush();
+
+    }
+
+    /**
+     * Write the footer and flush the output stream.
+     */
+    void endResult() throws IOException {
+
+        switch (format) {
+        case JSON:
+            ascii(first ? "]\n  }\n}\n" : "\n    ]\n  }\n}\n");
+            break;
+        case TSV:
+            break;
+        case XML:
+            ascii("\t</results>\n</sparql>\n");
+            break;
+        default:
+            throw new AssertionError();
+        }
+
+        drain();
+
+        os.flush();
+
+    }
+
+    private void writeSolution(final IBindingSet bset) throws IOException {
+
+        switch (format) {
+        case JSON: {
+            ascii(first ? "\n      {" : ",\n      {");
+            boolean firstBinding = true;
+            for (IVariable<?> var : vars) {
+                final Value v = getValue(bset, var);
+                if (v == null)
+                    continue;
+                ascii(firstBinding ? "\n        " : ",\n        ");
+                firstBinding = false;
+                jsonString(var.getName());
+                ascii(" : ");
+                jsonValue(v);
+            }
+            ascii("\n      }");
+            break;
+        }
+        case TSV:
+            for (int i = 0; i < vars.length; i++) {
+                if (i > 0)
+                    ascii("\t");
+                final Value v = getValue(bset, vars[i]);
+                if (v != null)
+                    tsvValue(v);
+            }
+            ascii("\n");
+            break;
+        case XML:
+            ascii("\t\t<result>\n");
+            for (IVariable<?> var : vars) {
+                final Value v = getValue(bset, var);
+                if (v == null)
+                    continue;
+                ascii("\t\t\t<binding name='");
+                xmlString(var.getName());
+                ascii("'>");
+                xmlValue(v);
+                ascii("</binding>\n");
+            }
+            ascii("\t\t</result>\n");
+            break;
+        default:
+            throw new AssertionError();
+        }
+
+        first = false;
+
+    }
+
+    /**
+     * Return the materialized {@link Value} bound to the variable -or-
+     * <code>null</code> if the variable is not bound.
+     */
+    @SuppressWarnings("rawtypes")
+    private static Value getValue(final IBindingSet bset,
+            final IVariable<?> var) {
+
+        final IConstant<?> c = bset.get(var);
+
+        if (c == null)
+            return null;
+
+        return ((IV) c.get()).getValue();
+
+    }
+
+    /*
+     * JSON
+     */
+
+    private void jsonValue(final Value v) throws IOException {
+
+        if (v instanceof URI) {
+
+            ascii("{ \"type\" : \"uri\", \"value\" : ");
+            jsonString(v.stringValue());
+            ascii(" }");
+
+        } else if (v instanceof BigdataBNode
+                && ((BigdataBNode) v).isStatementIdentifier()) {
+
+            final BigdataStatement stmt = ((BigdataBNode) v).getStatement();
+
+            ascii("{ \"type\" : ");
+            jsonString(BigdataSPARQLResultsJSONParser.SID);
+            ascii(", ");
+            jsonString(BigdataSPARQLResultsJSONParser.SUBJECT);
+            ascii(" : ");
+            jsonValue(stmt.getSubject());
+            ascii(", ");
+            jsonString(BigdataSPARQLResultsJSONParser.PREDICATE);
+            ascii(" : ");
+            jsonValue(stmt.getPredicate());
+            ascii(", ");
+            jsonString(BigdataSPARQLResultsJSONParser.OBJECT);
+            ascii(" : ");
+            jsonValue(stmt.getObject());
+            if (stmt.getContext() != null) {
+                ascii(", ");
+                jsonString(BigdataSPARQLResultsJSONParser.CONTEXT);
+                ascii(" : ");
+                jsonValue(stmt.getContext());
+            }
+            ascii(" }");
+
+        } else if (v instanceof BNode) {
+
+            ascii("{ \"type\" : \"bnode\", \"value\" : ");
+            jsonString(((BNode) v).getID());
+            ascii(" }");
+
+        } else {
+
+            final Literal lit = (Literal) v;
+
+            ascii("{ \"type\" : \"literal\", \"value\" : ");
+            jsonString(lit.getLabel());
+            if (lit.getLanguage() != null) {
+                ascii(", \"xml:lang\" : ");
+                jsonString(lit.getLanguage());
+            } else if (lit.getDatatype() != null) {
+                ascii(", \"datatype\" : ");
+                jsonString(lit.getDatatype().stringValue());
+            }
+            ascii(" }");
+
+        }
+
+    }
+
+    private void jsonString(final String s) throws IOException {
+
+        ascii("\"");
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            switch (c) {
+            case '"':
+                ascii("\\\"");
+                break;
+            case '\\':
+                ascii("\\\\");
+                break;
+            case '\n':
+                ascii("\\n");
+                break;
+            case '\r':
+                ascii("\\r");
+                break;
+            case '\t':
+                ascii("\\t");
+                break;
+            case '\b':
+                ascii("\\b");
+                break;
+            case '\f':
+                ascii("\\f");
+                break;
+            default:
+                if (c < 0x20) {
+                    ensure(6);
+                    b.put((byte) '\\').put((byte) 'u').put((byte) '0')
+                            .put((byte) '0').put((byte) HEX[c >> 4])
+                            .put((byte) HEX[c & 0xf]);
+                } else {
+                    i = utf8(s, i);
+                }
+            }
+
+        }
+
+        ascii("\"");
+
+    }
+
+    /*
+     * TSV
+     */
+
+    private void tsvValue(final Value v) throws IOException {
+
+        if (v instanceof URI) {
+
+            ascii("<");
+            chars(v.stringValue());
+            ascii(">");
+
+        } else if (v instanceof BNode) {
+
+            ascii("_:");
+            chars(((BNode) v).getID());
+
+        } else {
+
+            final Literal lit = (Literal) v;
+
+            /*
+             * Note: Plain literals are not quoted (this is consistent with the
+             * openrdf TSV writer).
+             */
+            final boolean quoted = lit.getLanguage() != null
+                    || lit.getDatatype() != null;
+            if (quoted)
+                ascii("\"");
+            final String s = lit.getLabel();
+            final int len = s.length();
+            for (int i = 0; i < len; i++) {
+                final char c = s.charAt(i);
+                switch (c) {
+                case '"':
+                    ascii("\\\"");
+                    break;
+                case '\\':
+                    ascii("\\\\");
+                    break;
+                case '\n':
+                    ascii("\\n");
+                    break;
+                case '\r':
+                    ascii("\\r");
+                    break;
+                case '\t':
+                    ascii("\\t");
+                    break;
+                default:
+                    i = utf8(s, i);
+                }
+            }
+            if (quoted)
+                ascii("\"");
+            if (lit.getLanguage() != null) {
+                ascii("@");
+                chars(lit.getLanguage());
+            } else if (lit.getDatatype() != null) {
+                ascii("^^<");
+                chars(lit.getDatatype().stringValue());
+                ascii(">");
+            }
+
+        }
+
+    }
+
+    /*
+     * XML
+     */
+
+    private void xmlValue(final Value v) throws IOException {
+
+        if (v instanceof URI) {
+
+            ascii("<uri>");
+            xmlString(v.stringValue());
+            ascii("</uri>");
+
+        } else if (v instanceof BNode) {
+
+            ascii("<bnode>");
+            xmlString(((BNode) v).getID());
+            ascii("</bnode>");
+
+        } else {
+
+            final Literal lit = (Literal) v;
+
+            if (lit.getLanguage() != null) {
+                ascii("<literal xml:lang='");
+                xmlString(lit.getLanguage());
+                ascii("'>");
+            } else if (lit.getDatatype() != null) {
+                ascii("<literal datatype='");
+                xmlString(lit.getDatatype().stringValue());
+                ascii("'>");
+            } else {
+                ascii("<literal>");
+            }
+            xmlString(lit.getLabel());
+            ascii("</literal>");
+
+        }
+
+    }
+
+    private void xmlString(final String s) throws IOException {
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            switch (c) {
+            case '&':
+                ascii("&amp;");
+                break;
+            case '<':
+                ascii("&lt;");
+                break;
+            case '>':
+                ascii("&gt;");
+                break;
+            case '"':
+                ascii("&quot;");
+                break;
+            case '\'':
+                ascii("&apos;");
+                break;
+            default:
+                i = utf8(s, i);
+            }
+
+        }
+
+    }
+
+    /*
+     * Encoding.
+     */
+
+    /**
+     * Write a string which is known to be 7-bit ASCII.
+     */
+    private void ascii(final String s) throws IOException {
+
+        final int len = s.length();
+
+        ensure(len);
+
+        for (int i = 0; i < len; i++) {
+
+            b.put((byte) s.charAt(i));
+
+        }
+
+    }
+
+    /**
+     * Write a string without escaping.
+     */
+    private void chars(final String s) throws IOException {
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            i = utf8(s, i);
+
+        }
+
+    }
+
+    /**
+     * Encode the character at the given index as UTF-8. A surrogate pair is
+     * consumed as a single code point.
+     * 
+     * @return The index of the last character consumed.
+     */
+    private int utf8(final String s, final int i) throws IOException {
+
+        final char c = s.charAt(i);
+
+        ensure(4);
+
+        if (c < 0x80) {
+
+            b.put((byte) c);
+
+        } else if (c < 0x800) {
+
+            b.put((byte) (0xc0 | (c >> 6)));
+            b.put((byte) (0x80 | (c & 0x3f)));
+
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1))) {
+
+            final int cp = Character.toCodePoint(c, s.charAt(i + 1));
+
+            b.put((byte) (0xf0 | (cp >> 18)));
+            b.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+            b.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+            b.put((byte) (0x80 | (cp & 0x3f)));
+
+            return i + 1;
+
+        } else if (Character.isSurrogate(c)) {
+
+            // Unpaired surrogate.
+            b.put((byte) '?');
+
+        } else {
+
+            b.put((byte) (0xe0 | (c >> 12)));
+            b.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+            b.put((byte) (0x80 | (c & 0x3f)));
+
+        }
+
+        return i;
+
+    }
+
+    /**
+     * Ensure that there are at least <i>n</i> bytes remaining in the buffer,
+     * draining the buffer if necessary.
+     */
+    private void ensure(final int n) throws IOException {
+
+        if (b.remaining() < n) {
+
+            drain();
+
+            if (b.remaining() < n)
+                throw new IllegalArgumentException("n=" + n);
+
+        }
+
+    }
+
+    /**
+     * Write the buffered bytes onto the output stream.
+     */
+    private void drain() throws IOException {
+
+        b.flip();
+
+        while (b.hasRemaining()) {
+
+            ch.write(b);
+
+        }
+
+        b.clear();
+
+    }
+
+}
@@ -268,7 +268,7 @@ abstract public class PipelineOp extends BOpBase {
 
         if (isLastPassRequested()) {
 
-            if (getMaxParallel() != 1)
+            if (getMaxParallel() != 1 && !isParallelLastPassAllowed())
                 throw new IllegalArgumentException(Annotations.MAX_PARALLEL + "="
                         + getMaxParallel());
 
@@ -570,6 +570,29 @@ abstract public class PipelineOp extends BOpBase {
         
     }
 
+    /**
+     * Return <code>true</code> iff the operator may be evaluated with
+     * {@link Annotations#MAX_PARALLEL} GT ONE (1) while also requesting a
+     * {@link Annotations#LAST_PASS}. The default returns <code>false</code>.
+     * <p>
+     * The last pass is not started until no invocation of the operator is
+     * running and no chunks remain available for it, so the last invocation
+     * never overlaps with another invocation. An operator which overrides this
+     * method must be able to combine any state produced by the concurrent
+     * invocations which preceded the last pass.
+     * <p>
+     * Note: This is invoked by the constructor and MUST only depend on the
+     * annotations of the operator.
+     * 
+     * @see Annotations#LAST_PASS
+     * @see Annotations#MAX_PARALLEL
+     */
+    protected boolean isParallelLastPassAllowed() {
+
+        return false;
+
+    }
+
     /**
      * Return <code>true</code> iff {@link #newStats(IQueryContext)} must be
      * shared across all invocations of {@link #eval(BOpContext)} for this
@@ -0,0 +1,55 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 16, 2026
+ */
+
+package com.bigdata.bop.aggregate;
+
+/**
+ * An {@link IAggregate} whose internal state may be computed independently
+ * over disjoint subsets of the solutions in a group and then combined, e.g.,
+ * COUNT, SUM, MIN, MAX, and AVERAGE. This allows the pipelined aggregation
+ * operator to run more than one instance concurrently, each against its own
+ * partial aggregate, and combine the partials once all solutions have been
+ * seen.
+ * <p>
+ * Note: This does not apply to <code>DISTINCT</code> aggregates since the
+ * partials would not know about values already observed by other partials.
+ */
+public interface IDecomposableAggregate<E> extends IAggregate<E> {
+
+    /**
+     * Combine the internal state of another instance of the same aggregate
+     * (computed over a disjoint subset of the solutions in the same group)
+     * into this instance. If the other instance has a "sticky" error and this
+     * instance does not, then that error is adopted by this instance and will
+     * be reported by {@link #done()}. The other instance is not modified.
+     *
+     * @param o
+     *            Another instance of the same aggregate.
+     */
+    void merge(IAggregate<E> o);
+
+}
@@ -43,16 +43,20 @@ import com.bigdata.bop.IShardwisePipelineOp;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.ap.Predicate;
 import com.bigdata.bop.controller.INamedSolutionSetRef;
 import com.bigdata.bop.controller.NamedSetAnnotations;
 import com.bigdata.relation.IRelation;
 import com.bigdata.relation.accesspath.AbstractUnsynchronizedArrayBuffer;
+import com.bigdata.relation.accesspath.ElementFilter;
 import com.bigdata.relation.accesspath.IAccessPath;
 import com.bigdata.relation.accesspath.IBindingSetAccessPath;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
 import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
+import cutthecrap.utils.striterators.Striterator;
+import cutthecrap.utils.striterators.Visitor;
 
 /**
  * Abstract base class for both JVM and native memory hash join against an
@@ -63,6 +67,10 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * is scanned and the hash index (of intermediate solutions from the pipeline)
  * is probed for each solution read from the {@link IAccessPath}. Solutions
  * which join are output.
+ * <p>
+ * Unless disabled, a {@link JoinKeyBloomFilter} is built over the join keys of
+ * the buffered solutions and layered onto the predicate for the access path so
+ * elements which can not join are rejected as soon as they are decoded.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  */
@@ -77,6 +85,35 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
     public interface Annotations extends AccessPathJoinAnnotations,
             NamedSetAnnotations, HashJoinAnnotations {
 
+        /**
+         * When <code>true</code>, a {@link JoinKeyBloomFilter} is built over
+         * the join keys of the solutions buffered on the hash index and is
+         * layered onto the predicate as an index local filter when the access
+         * path is scanned. Elements whose join keys are not in the hash index
+         * are then rejected as soon as the tuple is decoded, before a binding
+         * set is created for them.
+         * <p>
+         * Note: The filter is not used when the predicate has an
+         * {@link IPredicate.Annotations#ACCESS_PATH_FILTER} or an
+         * {@link IPredicate.Annotations#ACCESS_PATH_EXPANDER} since those may
+         * change the elements (e.g., by stripping off the context position)
+         * after the index local filter has been applied.
+         */
+        String BLOOM_FILTER = HashJoinOp.class.getName() + ".bloomFilter";
+
+        boolean DEFAULT_BLOOM_FILTER = true;
+
+        /**
+         * The maximum #of buffered solutions for which a
+         * {@link JoinKeyBloomFilter} will be built. The filter is only useful
+         * when the hash index is small and selective compared to the access
+         * path.
+         */
+        String BLOOM_FILTER_MAX_KEYS = HashJoinOp.class.getName()
+                + ".bloomFilterMaxKeys";
+
+        int DEFAULT_BLOOM_FILTER_MAX_KEYS = 100000;
+
     }
 
     /**
@@ -163,6 +200,26 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
         
     }
     
+    /**
+     * Return <code>true</code> iff a {@link JoinKeyBloomFilter} may be layered
+     * onto the predicate for the access path.
+     * 
+     * @see Annotations#BLOOM_FILTER
+     */
+    protected boolean isBloomFilter() {
+
+        if (!getProperty(Annotations.BLOOM_FILTER,
+                Annotations.DEFAULT_BLOOM_FILTER))
+            return false;
+
+        final IPredicate<E> pred = getPredicate();
+
+        return pred instanceof Predicate
+                && pred.getProperty(IPredicate.Annotations.ACCESS_PATH_FILTER) == null
+                && pred.getProperty(IPredicate.Annotations.ACCESS_PATH_EXPANDER) == null;
+
+    }
+
     @Override
     public BaseJoinStats newStats() {
 
@@ -209,6 +266,42 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
         
     }
 
+    /**
+     * The key under which the {@link JoinKeyBloomFilter.Builder} for a hash
+     * join is attached to the {@link IQueryAttributes}.
+     */
+    private static class BloomFilterKey {
+
+        private final INamedSolutionSetRef namedSetRef;
+
+        public BloomFilterKey(final INamedSolutionSetRef namedSetRef) {
+
+            this.namedSetRef = namedSetRef;
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return namedSetRef.hashCode();
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof BloomFilterKey))
+                return false;
+
+            return namedSetRef.equals(((BloomFilterKey) o).namedSetRef);
+
+        }
+
+    }
+
     /**
      * Task executing on the node.
      */
@@ -225,6 +318,11 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
         private final BaseJoinStats stats;
 
         private final IHashJoinUtility state;
+
+        /**
+         * Collects the join keys of the buffered solutions (optional).
+         */
+        private final JoinKeyBloomFilter.Builder bloomFilter;
         
         private final IBlockingBuffer<IBindingSet[]> sink;
         
@@ -274,6 +372,9 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
                 IHashJoinUtility state = (IHashJoinUtility) attrs
                         .get(namedSetRef);
 
+                final BloomFilterKey bloomFilterKey = new BloomFilterKey(
+                        namedSetRef);
+
                 if (state == null) {
 
                     state = op.newState(context, namedSetRef,
@@ -282,10 +383,22 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
 
                     attrs.put(namedSetRef, state);
 
+                    if (op.isBloomFilter()) {
+
+                        attrs.put(bloomFilterKey, new JoinKeyBloomFilter.Builder(
+                                pred, state.getJoinVars(), op.getProperty(
+                                        Annotations.BLOOM_FILTER_MAX_KEYS,
+                                        Annotations.DEFAULT_BLOOM_FILTER_MAX_KEYS)));
+
+                    }
+
                 }
 
                 this.state = state;
 
+                this.bloomFilter = (JoinKeyBloomFilter.Builder) attrs
+                        .get(bloomFilterKey);
+
             }
 
         }
@@ -327,6 +440,9 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
 
                     state.release();
 
+                    if (bloomFilter != null)
+                        bloomFilter.reset();
+
                 }
                 
                 sink.close();
@@ -341,9 +457,31 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
         /**
          * Buffer intermediate resources.
          */
+        @SuppressWarnings("unchecked")
         private void acceptSolutions() {
 
-            state.acceptSolutions(context.getSource(), stats);
+            ICloseableIterator<IBindingSet[]> src = context.getSource();
+
+            if (bloomFilter != null && bloomFilter.isEnabled()) {
+
+                // Collect the join keys as the solutions are buffered.
+                final Striterator itr = new Striterator(src);
+
+                itr.addFilter(new Visitor() {
+                    private static final long serialVersionUID = 1L;
+                    @Override
+                    protected void visit(final Object obj) {
+                        for (IBindingSet bset : (IBindingSet[]) obj) {
+                            bloomFilter.add(bset);
+                        }
+                    }
+                });
+
+                src = itr;
+
+            }
+
+            state.acceptSolutions(src, stats);
 
         }
 
@@ -352,7 +490,7 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
          * access path will be used to probe the hash index to identify
          * solutions that can join.
          */
-        private IBindingSetAccessPath<?> getAccessPath() {
+        private IBindingSetAccessPath<?> getAccessPath(final IPredicate<E> pred) {
 
             return (IBindingSetAccessPath<?>) context.getAccessPath(relation,
                     pred);
@@ -367,15 +505,30 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
             if (state.isEmpty())
                 return;
 
-            final IBindingSetAccessPath<?> accessPath = getAccessPath();
-
-            if (log.isInfoEnabled())
-                log.info("accessPath=" + accessPath);
+            IBindingSetAccessPath<?> accessPath = getAccessPath(pred);
 
             stats.accessPathCount.increment();
 
-            stats.accessPathRangeCount.add(accessPath
-                    .rangeCount(false/* exact */));
+            final long rangeCount = accessPath.rangeCount(false/* exact */);
+
+            stats.accessPathRangeCount.add(rangeCount);
+
+            if (bloomFilter != null && bloomFilter.isEnabled()
+                    && bloomFilter.size() < rangeCount) {
+
+                /*
+                 * Reject the elements whose join keys are not in the hash index
+                 * as soon as they are decoded.
+                 */
+
+                accessPath = getAccessPath(((Predicate<E>) pred)
+                        .addIndexLocalFilter(ElementFilter
+                                .newInstance(bloomFilter.<E> build())));
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("accessPath=" + accessPath);
 
             final UnsyncLocalOutputBuffer<IBindingSet> unsyncBuffer = new UnsyncLocalOutputBuffer<IBindingSet>(
                     op.getChunkCapacity(), sink);
@@ -67,6 +67,21 @@ public class JVMHashJoinOp<E> extends HashJoinOp<E> implements ISingleThreadedOp
 
     public interface Annotations extends HashJoinOp.Annotations,
             HashMapAnnotations {
+
+        /**
+         * When <code>true</code> (default {@value #DEFAULT_PRIMITIVE_KEYS}),
+         * the source solutions are indexed by a {@link JVMPrimitiveHashIndex}
+         * for as long as their join variables are bound to IVs having a fixed
+         * width encoding. This avoids the per-solution object allocation of
+         * the {@link JVMHashIndex}. The join silently falls back onto the
+         * {@link JVMHashIndex} otherwise.
+         * 
+         * @see JVMPrimitiveHashJoinUtility
+         */
+        String PRIMITIVE_KEYS = JVMHashJoinOp.class.getName()
+                + ".primitiveKeys";
+
+        boolean DEFAULT_PRIMITIVE_KEYS = true;
         
     }
     
@@ -104,6 +119,14 @@ public class JVMHashJoinOp<E> extends HashJoinOp<E> implements ISingleThreadedOp
     protected IHashJoinUtility newState(final BOpContext<IBindingSet> context,
             final INamedSolutionSetRef namedSetRef, final JoinTypeEnum joinType) {
 
+        if (getProperty(Annotations.PRIMITIVE_KEYS,
+                Annotations.DEFAULT_PRIMITIVE_KEYS)
+                && JVMPrimitiveHashJoinUtility.isSupported(this, joinType)) {
+
+            return new JVMPrimitiveHashJoinUtility(this, joinType);
+
+        }
+
         return new JVMHashJoinUtility(this, joinType);
     
     }
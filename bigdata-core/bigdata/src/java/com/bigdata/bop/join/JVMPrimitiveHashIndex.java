@@ -0,0 +1,676 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.DTE;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.LiteralExtensionIV;
+import com.bigdata.rdf.internal.impl.literal.XSDBooleanIV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.internal.impl.uri.VocabURIByteIV;
+import com.bigdata.rdf.internal.impl.uri.VocabURIShortIV;
+
+/**
+ * A hash index for {@link IBindingSet}s whose key variables are bound to
+ * {@link IV}s having a fixed width encoding (term identifiers, vocabulary
+ * URIs, fixed width numerics, booleans, and extensions such as dates over a
+ * fixed width numeric). This has the same semantics as the {@link JVMHashIndex}
+ * , but each key variable is encoded as two <code>long</code>s (a tag word and
+ * a value word) in an open addressing table and the solutions, the collision
+ * chains, and the hit counters are stored in arrays indexed by the row. This
+ * avoids the {@link JVMHashIndex.Key}, {@link JVMHashIndex.Bucket} and
+ * {@link JVMHashIndex.SolutionHit} objects (and their {@link java.util.List}
+ * entries) which are otherwise allocated for each solution in the index.
+ * <p>
+ * Two {@link IV}s which are equal always have the same encoding. Two distinct
+ * {@link IV}s will rarely have the same encoding (the tag word is folded for
+ * an extension {@link IV}). The caller MUST therefore apply the same join
+ * constraint that it applies to the solutions in a {@link JVMHashIndex.Bucket}
+ * , which rejects solutions having inconsistent bindings.
+ * <p>
+ * Note: This class is NOT thread safe.
+ *
+ * @see JVMPrimitiveHashJoinUtility
+ */
+public class JVMPrimitiveHashIndex {
+
+    private static final Logger log = Logger
+            .getLogger(JVMPrimitiveHashIndex.class);
+
+    /**
+     * Returned by {@link #add(IBindingSet)} if the solution was dropped because
+     * a key variable was not bound.
+     */
+    public static final int DROPPED = -1;
+
+    /**
+     * Returned by {@link #add(IBindingSet)} if the binding for a key variable
+     * does not have a fixed width encoding. The solution was NOT added to the
+     * index.
+     */
+    public static final int NOT_ENCODABLE = -2;
+
+    /*
+     * The tags for the encoded IVs. The tag appears in the high byte of the
+     * tag word. A key variable which is not bound is encoded as (0L,0L).
+     */
+    private static final long TAG_TERM_ID = 1L;
+    private static final long TAG_NUMERIC = 2L;
+    private static final long TAG_BOOLEAN = 3L;
+    private static final long TAG_VOCAB_BYTE = 4L;
+    private static final long TAG_VOCAB_SHORT = 5L;
+    private static final long TAG_EXTENSION = 6L;
+
+    /**
+     * The #of <code>long</code>s used to encode each key variable.
+     */
+    private static final int WORDS_PER_VAR = 2;
+
+    /**
+     * The key variables. The order of the entries is used when forming the
+     * keys for the hash table.
+     *
+     * @see JVMHashIndex
+     */
+    private final IVariable<?>[] keyVars;
+
+    /**
+     * When <code>true</code>, solutions having unbound variables for the
+     * {@link #keyVars} are indexed. When <code>false</code>, such solutions are
+     * dropped.
+     *
+     * @see JVMHashIndex
+     */
+    private final boolean indexSolutionsHavingUnboundJoinVars;
+
+    /**
+     * The #of <code>long</code>s in a key.
+     */
+    private final int width;
+
+    /**
+     * A buffer which is reused to form the keys (this class is not thread
+     * safe).
+     */
+    private final long[] key;
+
+    /**
+     * The keys for the slots in the hash table (<code>width</code> words per
+     * slot).
+     */
+    private long[] slotKeys;
+
+    /**
+     * The first row for each slot plus one -or- ZERO (0) if the slot is empty.
+     */
+    private int[] slotHead;
+
+    /**
+     * The last row for each slot. Rows are appended to the collision chain so
+     * the rows for a key are visited in the order in which they were added.
+     */
+    private int[] slotTail;
+
+    /**
+     * The #of slots in use (the #of distinct keys).
+     */
+    private int nslots;
+
+    /**
+     * The solutions in the order in which they were added.
+     */
+    private IBindingSet[] solutions;
+
+    /**
+     * The next row having the same key -or- <code>-1</code> if this is the last
+     * row for that key.
+     */
+    private int[] nextRow;
+
+    /**
+     * The #of hits for each row. This is used to detect solutions that do not
+     * join for OPTIONAL, MINUS and related kinds of "negation" joins.
+     */
+    private int[] nhits;
+
+    /**
+     * The #of rows in the index.
+     */
+    private int nrows;
+
+    /**
+     * @param keyVars
+     *            The variables that are used to form the keys in the hash index
+     *            (required, but may be empty).
+     * @param indexSolutionsHavingUnboundJoinVars
+     *            When <code>true</code>, we allow solutions to be stored in the
+     *            hash index that have unbound variables for the
+     *            <i>keyVars</i>. When <code>false</code>, such solutions are
+     *            dropped (they are not added to the index).
+     * @param initialCapacity
+     *            The initial capacity of the hash index.
+     */
+    public JVMPrimitiveHashIndex(final IVariable<?>[] keyVars,
+            final boolean indexSolutionsHavingUnboundJoinVars,
+            final int initialCapacity) {
+
+        if (keyVars == null)
+            throw new IllegalArgumentException();
+
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.keyVars = keyVars;
+
+        this.indexSolutionsHavingUnboundJoinVars = indexSolutionsHavingUnboundJoinVars;
+
+        this.width = keyVars.length * WORDS_PER_VAR;
+
+        this.key = new long[width];
+
+        // Power of two with a load factor of at most 0.5.
+        final int capacity = Integer.highestOneBit(Math.max(8,
+                initialCapacity * 2 - 1)) << 1;
+
+        this.slotKeys = new long[capacity * width];
+
+        this.slotHead = new int[capacity];
+
+        this.slotTail = new int[capacity];
+
+        this.solutions = new IBindingSet[initialCapacity];
+
+        this.nextRow = new int[initialCapacity];
+
+        this.nhits = new int[initialCapacity];
+
+    }
+
+    /**
+     * Encode the binding for a key variable as two <code>long</code>s.
+     *
+     * @param c
+     *            The binding (may be <code>null</code> if the variable is not
+     *            bound).
+     * @param key
+     *            The key.
+     * @param off
+     *            The offset of the tag word in the key.
+     *
+     * @return <code>true</code> iff the binding could be encoded.
+     */
+    static boolean encode(final IConstant<?> c, final long[] key,
+            final int off) {
+
+        if (c == null) {
+
+            key[off] = 0L;
+            key[off + 1] = 0L;
+            return true;
+
+        }
+
+        final Object o = c.get();
+
+        if (!(o instanceof IV))
+            return false;
+
+        return encode((IV<?, ?>) o, key, off);
+
+    }
+
+    /**
+     * Encode an {@link IV} as a tag word and a value word. The encoding is
+     * consistent with {@link IV#equals(Object)} for each supported class.
+     */
+    @SuppressWarnings("rawtypes")
+    private static boolean encode(final IV<?, ?> iv, final long[] key,
+            final int off) {
+
+        if (iv instanceof TermId) {
+
+            final long termId = ((TermId) iv).getTermId();
+
+            if (termId == TermId.NULL) {
+                // Equality is decided by the cached Value.
+                return false;
+            }
+
+            key[off] = TAG_TERM_ID << 56;
+            key[off + 1] = termId;
+            return true;
+
+        }
+
+        if (iv instanceof XSDNumericIV) {
+
+            final XSDNumericIV n = (XSDNumericIV) iv;
+
+            final DTE dte = n.getDTE();
+
+            final long v;
+
+            switch (dte) {
+            case XSDByte:
+            case XSDShort:
+            case XSDInt:
+            case XSDLong:
+                v = n.longValue();
+                break;
+            case XSDFloat:
+                // Note: consistent with Float.equals().
+                v = Float.floatToIntBits(n.floatValue());
+                break;
+            case XSDDouble:
+                // Note: consistent with Double.equals().
+                v = Double.doubleToLongBits(n.doubleValue());
+                break;
+            default:
+                return false;
+            }
+
+            key[off] = (TAG_NUMERIC << 56) | dte.ordinal();
+            key[off + 1] = v;
+            return true;
+
+        }
+
+        if (iv instanceof XSDBooleanIV) {
+
+            key[off] = TAG_BOOLEAN << 56;
+            key[off + 1] = ((XSDBooleanIV) iv).booleanValue() ? 1L : 0L;
+            return true;
+
+        }
+
+        if (iv instanceof VocabURIByteIV) {
+
+            key[off] = TAG_VOCAB_BYTE << 56;
+            key[off + 1] = ((VocabURIByteIV) iv).byteValue();
+            return true;
+
+        }
+
+        if (iv instanceof VocabURIShortIV) {
+
+            key[off] = TAG_VOCAB_SHORT << 56;
+            key[off + 1] = ((VocabURIShortIV) iv).getInlineValue()
+                    .shortValue();
+            return true;
+
+        }
+
+        if (iv instanceof LiteralExtensionIV) {
+
+            final LiteralExtensionIV ext = (LiteralExtensionIV) iv;
+
+            // The datatype (typically a vocabulary URI).
+            if (!encode(ext.getExtensionIV(), key, off))
+                return false;
+
+            final long datatypeTag = key[off];
+
+            final long datatypeValue = key[off + 1];
+
+            // The inline value (e.g., the milliseconds for a date).
+            if (!encode(ext.getDelegate(), key, off))
+                return false;
+
+            // Fold the datatype and the delegate's tag into the tag word.
+            long h = key[off];
+            h = 31 * h + datatypeTag;
+            h = 31 * h + datatypeValue;
+
+            key[off] = (TAG_EXTENSION << 56) | (h & 0x00FFFFFFFFFFFFFFL);
+            return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Form the key for the solution.
+     *
+     * @return {@link #NOT_ENCODABLE}, {@link #DROPPED} or ZERO (0) if the key
+     *         was formed.
+     */
+    private int makeKey(final IBindingSet bset, final long[] key) {
+
+        for (int i = 0; i < keyVars.length; i++) {
+
+            final IConstant<?> c = bset.get(keyVars[i]);
+
+            if (c == null && !indexSolutionsHavingUnboundJoinVars) {
+
+                if (log.isDebugEnabled())
+                    log.debug("Join variable is not bound: var=" + keyVars[i]
+                            + ", solution=" + bset);
+
+                return DROPPED;
+
+            }
+
+            if (!encode(c, key, i * WORDS_PER_VAR))
+                return NOT_ENCODABLE;
+
+        }
+
+        return 0;
+
+    }
+
+    private static int hash(final long[] key) {
+
+        long h = 1L;
+
+        for (int i = 0; i < key.length; i++) {
+
+            h = 31 * h + key[i];
+
+        }
+
+        // Spread the bits (the tag words share their low bits).
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+
+        return (int) h;
+
+    }
+
+    /**
+     * Return the slot for the key. The slot is empty if the key is not in the
+     * table.
+     */
+    private int findSlot(final long[] key) {
+
+        final int mask = slotHead.length - 1;
+
+        int slot = hash(key) & mask;
+
+        while (slotHead[slot] != 0) {
+
+            if (keyEquals(slot, key))
+                return slot;
+
+            slot = (slot + 1) & mask;
+
+        }
+
+        return slot;
+
+    }
+
+    private boolean keyEquals(final int slot, final long[] key) {
+
+        final int base = slot * width;
+
+        for (int i = 0; i < width; i++) {
+
+            if (slotKeys[base + i] != key[i])
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Double the capacity of the hash table.
+     */
+    private void rehash() {
+
+        final long[] oldKeys = slotKeys;
+
+        final int[] oldHead = slotHead;
+
+        final int[] oldTail = slotTail;
+
+        final int capacity = oldHead.length << 1;
+
+        slotKeys = new long[capacity * width];
+
+        slotHead = new int[capacity];
+
+        slotTail = new int[capacity];
+
+        // Note: Do not use [key] since the caller is adding that key.
+        final long[] tmp = new long[width];
+
+        for (int i = 0; i < oldHead.length; i++) {
+
+            if (oldHead[i] == 0)
+                continue;
+
+            System.arraycopy(oldKeys, i * width, tmp, 0, width);
+
+            final int slot = findSlot(tmp);
+
+            System.arraycopy(tmp, 0, slotKeys, slot * width, width);
+
+            slotHead[slot] = oldHead[i];
+
+            slotTail[slot] = oldTail[i];
+
+        }
+
+    }
+
+    /**
+     * Add the solution to the index.
+     *
+     * @param bset
+     *            The solution.
+     *
+     * @return The row for the solution, {@link #DROPPED} if the solution was
+     *         dropped because a key variable was not bound, or
+     *         {@link #NOT_ENCODABLE} if the solution could not be added because
+     *         the binding for a key variable does not have a fixed width
+     *         encoding.
+     */
+    public int add(final IBindingSet bset) {
+
+        if (bset == null)
+            throw new IllegalArgumentException();
+
+        final int ret = makeKey(bset, key);
+
+        if (ret != 0)
+            return ret;
+
+        if (nrows == solutions.length) {
+
+            final int n = nrows << 1;
+
+            solutions = Arrays.copyOf(solutions, n);
+
+            nextRow = Arrays.copyOf(nextRow, n);
+
+            nhits = Arrays.copyOf(nhits, n);
+
+        }
+
+        final int row = nrows++;
+
+        solutions[row] = bset;
+
+        nextRow[row] = -1;
+
+        int slot = findSlot(key);
+
+        if (slotHead[slot] == 0) {
+
+            if ((nslots + 1) << 1 > slotHead.length) {
+
+                rehash();
+
+                slot = findSlot(key);
+
+            }
+
+            System.arraycopy(key, 0, slotKeys, slot * width, width);
+
+            slotHead[slot] = row + 1;
+
+            nslots++;
+
+        } else {
+
+            nextRow[slotTail[slot]] = row;
+
+        }
+
+        slotTail[slot] = row;
+
+        return row;
+
+    }
+
+    /**
+     * Return the first row having the same key as the given solution.
+     * <p>
+     * Note: The caller must apply an appropriate join constraint in order to
+     * correctly reject solutions that violate the join contract.
+     *
+     * @param left
+     *            The probe.
+     *
+     * @return The first row -or- <code>-1</code> if there is no such row
+     *         (including when a join variable is not bound by the probe and
+     *         unbound join variables are not indexed, or when the binding for
+     *         a join variable does not have a fixed width encoding and hence
+     *         can not be equal to any binding in the index).
+     *
+     * @see #getNextRow(int)
+     */
+    public int getFirstRow(final IBindingSet left) {
+
+        if (makeKey(left, key) != 0)
+            return -1;
+
+        return slotHead[findSlot(key)] - 1;
+
+    }
+
+    /**
+     * Return the next row having the same key -or- <code>-1</code> if there
+     * are no more rows for that key.
+     */
+    public int getNextRow(final int row) {
+
+        return nextRow[row];
+
+    }
+
+    /**
+     * Return the solution for the row.
+     */
+    public IBindingSet getSolution(final int row) {
+
+        if (row < 0 || row >= nrows)
+            throw new IndexOutOfBoundsException();
+
+        return solutions[row];
+
+    }
+
+    /**
+     * Return the #of hits for the row.
+     */
+    public int getHitCount(final int row) {
+
+        if (row < 0 || row >= nrows)
+            throw new IndexOutOfBoundsException();
+
+        return nhits[row];
+
+    }
+
+    /**
+     * Increment the #of hits for the row.
+     */
+    public void hit(final int row) {
+
+        if (row < 0 || row >= nrows)
+            throw new IndexOutOfBoundsException();
+
+        nhits[row]++;
+
+    }
+
+    /**
+     * Visit the solutions in the order in which they were added.
+     */
+    public Iterator<IBindingSet> solutions() {
+
+        return Collections.unmodifiableList(
+                Arrays.asList(solutions).subList(0, nrows)).iterator();
+
+    }
+
+    /**
+     * The #of solutions in the index.
+     */
+    public int size() {
+
+        return nrows;
+
+    }
+
+    /**
+     * The #of distinct keys in the index.
+     */
+    public int bucketCount() {
+
+        return nslots;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{keyVars="
+                + Arrays.toString(keyVars) + ",size=" + nrows + ",#keys="
+                + nslots + ",capacity=" + slotHead.length + "}";
+
+    }
+
+}
@@ -0,0 +1,515 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.HashMapAnnotations;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.join.JVMHashIndex.SolutionHit;
+import com.bigdata.rdf.internal.impl.literal.XSDBooleanIV;
+import com.bigdata.relation.accesspath.IBuffer;
+import com.bigdata.striterator.CloseableIteratorWrapper;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A {@link JVMHashJoinUtility} which indexes the solutions in a
+ * {@link JVMPrimitiveHashIndex} for as long as the join variables are bound to
+ * {@link com.bigdata.rdf.internal.IV}s having a fixed width encoding. If a
+ * solution is accepted whose join variables can not be encoded, or if an
+ * operation is requested which is not specialized here (such as
+ * {@link #outputSolutions(IBuffer)} or a merge join), then the solutions (and
+ * their hit counters) are copied into the {@link JVMHashIndex} and the join
+ * continues using that index.
+ *
+ * @see JVMPrimitiveHashIndex
+ * @see JVMHashJoinOp.Annotations#PRIMITIVE_KEYS
+ */
+public class JVMPrimitiveHashJoinUtility extends JVMHashJoinUtility {
+
+    private static final Logger log = Logger
+            .getLogger(JVMPrimitiveHashJoinUtility.class);
+
+    /**
+     * The primitive hash index -or- <code>null</code> once the solutions have
+     * been copied into the {@link JVMHashIndex}.
+     */
+    private final AtomicReference<JVMPrimitiveHashIndex> primitiveSolutionsRef = new AtomicReference<JVMPrimitiveHashIndex>();
+
+    /**
+     * Return <code>true</code> iff the join could use a
+     * {@link JVMPrimitiveHashJoinUtility}. This is true for joins having at
+     * least one join variable, except for a DISTINCT filter (whose keys are the
+     * selected variables).
+     *
+     * @param op
+     *            The operator.
+     * @param joinType
+     *            The type of join.
+     */
+    public static boolean isSupported(final PipelineOp op,
+            final JoinTypeEnum joinType) {
+
+        switch (joinType) {
+        case Normal:
+        case Optional:
+        case Exists:
+        case NotExists:
+            break;
+        default:
+            return false;
+        }
+
+        final IVariable<?>[] joinVars = (IVariable<?>[]) op
+                .getProperty(HashJoinAnnotations.JOIN_VARS);
+
+        return joinVars != null && joinVars.length > 0;
+
+    }
+
+    /**
+     * @param op
+     *            The operator whose annotations will inform construction of the
+     *            hash index.
+     * @param joinType
+     *            The type of join to be performed.
+     *
+     * @see #isSupported(PipelineOp, JoinTypeEnum)
+     */
+    public JVMPrimitiveHashJoinUtility(final PipelineOp op,
+            final JoinTypeEnum joinType) {
+
+        super(op, joinType);
+
+        if (!isSupported(op, joinType))
+            throw new UnsupportedOperationException();
+
+        /*
+         * Note: Same as the JVMHashIndex for these join types.
+         */
+        final boolean indexSolutionsHavingUnboundJoinVars = joinType == JoinTypeEnum.Optional
+                || joinType == JoinTypeEnum.NotExists;
+
+        primitiveSolutionsRef.set(new JVMPrimitiveHashIndex(joinVars,
+                indexSolutionsHavingUnboundJoinVars, op.getProperty(
+                        HashMapAnnotations.INITIAL_CAPACITY,
+                        HashMapAnnotations.DEFAULT_INITIAL_CAPACITY)));
+
+    }
+
+    /**
+     * Return <code>true</code> iff the solutions are (still) indexed by the
+     * {@link JVMPrimitiveHashIndex}.
+     */
+    public boolean isPrimitive() {
+
+        return primitiveSolutionsRef.get() != null;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: This copies the solutions into the {@link JVMHashIndex} if they are
+     * still indexed by the {@link JVMPrimitiveHashIndex}.
+     */
+    @Override
+    protected JVMHashIndex getRightSolutions() {
+
+        convert();
+
+        return super.getRightSolutions();
+
+    }
+
+    /**
+     * Copy the solutions and their hit counters from the
+     * {@link JVMPrimitiveHashIndex} into the {@link JVMHashIndex}. This is a
+     * NOP if that has already been done.
+     */
+    private synchronized void convert() {
+
+        final JVMPrimitiveHashIndex primitive = primitiveSolutionsRef.get();
+
+        if (primitive == null)
+            return;
+
+        final JVMHashIndex index = super.getRightSolutions();
+
+        if (index != null) {
+
+            final int n = primitive.size();
+
+            for (int row = 0; row < n; row++) {
+
+                final IBindingSet bset = primitive.getSolution(row);
+
+                index.add(bset);
+
+                final int nhits = primitive.getHitCount(row);
+
+                if (nhits == 0)
+                    continue;
+
+                // Find the SolutionHit for that solution.
+                for (SolutionHit hit : index.getBucket(bset)) {
+
+                    if (hit.solution == bset) {
+
+                        hit.nhits.add(nhits);
+
+                        break;
+
+                    }
+
+                }
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("Converted " + n + " solutions: " + toString());
+
+        }
+
+        primitiveSolutionsRef.set(null);
+
+    }
+
+    @Override
+    public void release() {
+
+        super.release();
+
+        primitiveSolutionsRef.set(null);
+
+    }
+
+    @Override
+    public long acceptSolutions(final ICloseableIterator<IBindingSet[]> itr,
+            final BOpStats stats) {
+
+        if (!open.get())
+            throw new IllegalStateException();
+
+        final JVMPrimitiveHashIndex primitive = primitiveSolutionsRef.get();
+
+        if (primitive == null)
+            return super.acceptSolutions(itr, stats);
+
+        try {
+
+            final IBindingSet[] all = BOpUtility.toArray(itr, stats);
+
+            if (log.isDebugEnabled())
+                log.debug("Materialized: " + all.length + " source solutions.");
+
+            long naccepted = 0;
+
+            int i = 0;
+
+            for (; i < all.length; i++) {
+
+                final int row = primitive.add(all[i]);
+
+                if (row == JVMPrimitiveHashIndex.NOT_ENCODABLE) {
+
+                    // Index this and the remaining solutions generically.
+                    break;
+
+                }
+
+                if (row != JVMPrimitiveHashIndex.DROPPED)
+                    naccepted++;
+
+            }
+
+            if (i < all.length) {
+
+                final JVMHashIndex index = getRightSolutions();
+
+                for (; i < all.length; i++) {
+
+                    if (index.add(all[i]) != null)
+                        naccepted++;
+
+                }
+
+            }
+
+            rightSolutionCount.add(naccepted);
+
+            return naccepted;
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This has the same semantics as the {@link JVMHashJoinUtility}, but the
+     * probes and the hit counters use the {@link JVMPrimitiveHashIndex} if the
+     * solutions are still indexed by it.
+     */
+    @Override
+    public void hashJoin2(//
+            final ICloseableIterator<IBindingSet[]> leftItr,//
+            final BOpStats stats,
+            final IBuffer<IBindingSet> outputBuffer,//
+            final IConstraint[] constraints//
+            ) {
+
+        if (!open.get())
+            throw new IllegalStateException();
+
+        final JVMPrimitiveHashIndex rightSolutions = primitiveSolutionsRef
+                .get();
+
+        if (rightSolutions == null) {
+
+            super.hashJoin2(leftItr, stats, outputBuffer, constraints);
+
+            return;
+
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("rightSolutions: #keys=" + rightSolutions.bucketCount()
+                    + ",#solutions=" + getRightSolutionCount());
+        }
+
+        try {
+
+            while (leftItr.hasNext()) {
+
+                // Next chunk of solutions from left.
+                final IBindingSet[] leftChunk = leftItr.next();
+                if (stats != null) {
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(leftChunk.length);
+                }
+
+                for (int i = 0; i < leftChunk.length; i++) {
+
+                    final IBindingSet left = leftChunk[i];
+
+                    nleftConsidered.increment();
+
+                    if (log.isDebugEnabled())
+                        log.debug("Considering " + left);
+
+                    for (int row = rightSolutions.getFirstRow(left); row != -1; row = rightSolutions
+                            .getNextRow(row)) {
+
+                        final IBindingSet right = rightSolutions
+                                .getSolution(row);
+
+                        nrightConsidered.increment();
+
+                        nJoinsConsidered.increment();
+
+                        // See if the solutions join.
+                        final IBindingSet outSolution = BOpContext.bind(//
+                                right,//
+                                left,//
+                                constraints,//
+                                selectVars//
+                                );
+
+                        if (outSolution == null)
+                            continue;
+
+                        switch (joinType) {
+                        case Normal:
+                            outputSolution(outputBuffer, outSolution);
+                            break;
+                        case Optional:
+                            outputSolution(outputBuffer, outSolution);
+                            // Do not output the right solution as optional.
+                            rightSolutions.hit(row);
+                            break;
+                        case Exists:
+                        case NotExists:
+                            // Note that the right solution joins.
+                            rightSolutions.hit(row);
+                            break;
+                        default:
+                            throw new AssertionError();
+                        }
+
+                    } // next row
+
+                } // next left solution
+
+            } // while(leftItr.hasNext())
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        } finally {
+
+            leftItr.close();
+
+        }
+
+    }
+
+    @Override
+    public ICloseableIterator<IBindingSet> indexScan() {
+
+        final JVMPrimitiveHashIndex rightSolutions = primitiveSolutionsRef
+                .get();
+
+        if (rightSolutions == null)
+            return super.indexScan();
+
+        return new CloseableIteratorWrapper<IBindingSet>(
+                rightSolutions.solutions());
+
+    }
+
+    @Override
+    public void outputOptionals(final IBuffer<IBindingSet> outputBuffer) {
+
+        if (!open.get())
+            throw new IllegalStateException();
+
+        final JVMPrimitiveHashIndex rightSolutions = primitiveSolutionsRef
+                .get();
+
+        if (rightSolutions == null) {
+
+            super.outputOptionals(outputBuffer);
+
+            return;
+
+        }
+
+        outputRows(rightSolutions, outputBuffer, false/* joined */);
+
+    }
+
+    @Override
+    public void outputJoinSet(final IBuffer<IBindingSet> outputBuffer) {
+
+        final JVMPrimitiveHashIndex rightSolutions = primitiveSolutionsRef
+                .get();
+
+        if (rightSolutions == null) {
+
+            super.outputJoinSet(outputBuffer);
+
+            return;
+
+        }
+
+        outputRows(rightSolutions, outputBuffer, true/* joined */);
+
+    }
+
+    /**
+     * Output the solutions which did (or did not) join, projecting the selected
+     * variables and binding the {@link #askVar} (if any).
+     *
+     * @param rightSolutions
+     *            The index.
+     * @param outputBuffer
+     *            Where to write the solutions.
+     * @param joined
+     *            When <code>true</code> the solutions which joined are output.
+     *            Otherwise the solutions which did not join are output.
+     */
+    private void outputRows(final JVMPrimitiveHashIndex rightSolutions,
+            final IBuffer<IBindingSet> outputBuffer, final boolean joined) {
+
+        try {
+
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            final Constant askValue = askVar == null ? null : new Constant(
+                    XSDBooleanIV.valueOf(joined));
+
+            final IVariable<?>[] selected = getSelectVars();
+
+            final int n = rightSolutions.size();
+
+            for (int row = 0; row < n; row++) {
+
+                if ((rightSolutions.getHitCount(row) > 0) != joined)
+                    continue;
+
+                final IBindingSet solution = rightSolutions.getSolution(row);
+
+                IBindingSet bs = solution;
+
+                if (selected != null) {
+
+                    // Drop variables which are not projected.
+                    bs = bs.copy(selected);
+
+                }
+
+                if (askValue != null) {
+
+                    if (bs == solution)
+                        bs = bs.clone();
+
+                    bs.set(askVar, askValue);
+
+                }
+
+                outputBuffer.add(bs);
+
+                if (log.isDebugEnabled())
+                    log.debug("Output solution: " + bs);
+
+            }
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,400 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IElement;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.relation.accesspath.IElementFilter;
+
+/**
+ * A Bloom filter over the join keys of the solutions buffered by the build
+ * side of a {@link HashJoinOp}. The filter is layered onto the predicate for
+ * the access path which is scanned by the hash join as an index local filter,
+ * so elements whose join keys can not be found in the hash index are rejected
+ * as soon as the tuple is decoded rather than after a binding set has been
+ * created for them and the hash index has been probed.
+ * <p>
+ * The filter is based on the {@link Object#hashCode()} of the values in the
+ * join variable positions of the predicate. The hash joins only join
+ * solutions whose join variables have {@link Object#equals(Object)} values,
+ * so the filter never rejects an element that would have joined. False
+ * positives are simply dropped by the hash join.
+ */
+public class JoinKeyBloomFilter<E> implements IElementFilter<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The #of bits in the filter per distinct key.
+     */
+    private static final int BITS_PER_KEY = 10;
+
+    /**
+     * The #of hash functions (~1% false positive rate at {@link #BITS_PER_KEY}).
+     */
+    private static final int HASH_FUNCTION_COUNT = 4;
+
+    /**
+     * The indices of the join variables in the predicate.
+     */
+    private final int[] positions;
+
+    /**
+     * The bits.
+     */
+    private final long[] bits;
+
+    /**
+     * The #of bits less one (the #of bits is a power of 2).
+     */
+    private final int mask;
+
+    /**
+     * @param positions
+     *            The indices of the join variables in the predicate.
+     * @param hashes
+     *            The hash codes of the join keys.
+     * @param n
+     *            The #of hash codes.
+     */
+    private JoinKeyBloomFilter(final int[] positions, final int[] hashes,
+            final int n) {
+
+        this.positions = positions;
+
+        int nbits = 64;
+
+        while (nbits < n * BITS_PER_KEY && nbits < (1 << 30))
+            nbits <<= 1;
+
+        this.bits = new long[nbits >>> 6];
+
+        this.mask = nbits - 1;
+
+        for (int i = 0; i < n; i++) {
+
+            final int h1 = mix(hashes[i]);
+
+            final int h2 = mix(hashes[i] ^ 0x9e3779b9) | 1;
+
+            for (int j = 0; j < HASH_FUNCTION_COUNT; j++) {
+
+                final int bit = (h1 + j * h2) & mask;
+
+                bits[bit >>> 6] |= 1L << bit;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> if the join key having that hash code might be
+     * present in the hash index and <code>false</code> if it is definitely not
+     * present.
+     */
+    private boolean mightContain(final int hash) {
+
+        final int h1 = mix(hash);
+
+        final int h2 = mix(hash ^ 0x9e3779b9) | 1;
+
+        for (int j = 0; j < HASH_FUNCTION_COUNT; j++) {
+
+            final int bit = (h1 + j * h2) & mask;
+
+            if ((bits[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * The finalization step of the 32-bit murmur3 hash.
+     */
+    private static int mix(int h) {
+
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+
+        return h;
+
+    }
+
+    @Override
+    public boolean canAccept(final Object o) {
+
+        return o instanceof IElement;
+
+    }
+
+    @Override
+    public boolean isValid(final Object o) {
+
+        if (!canAccept(o)) {
+
+            return true;
+
+        }
+
+        final IElement e = (IElement) o;
+
+        int h = 1;
+
+        for (int i = 0; i < positions.length; i++) {
+
+            final Object val = e.get(positions[i]);
+
+            if (val == null) {
+
+                // Not bound in the element, so it can not be checked.
+                return true;
+
+            }
+
+            h = 31 * h + val.hashCode();
+
+        }
+
+        return mightContain(h);
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{positions="
+                + Arrays.toString(positions) + ",nbits=" + (mask + 1L) + "}";
+
+    }
+
+    /**
+     * Collects the hash codes of the join keys for the solutions accepted by
+     * the build side of a hash join.
+     * <p>
+     * Note: This class is not thread-safe. This is not a problem since the
+     * {@link HashJoinOp} is not thread-safe.
+     */
+    public static class Builder {
+
+        /**
+         * The join variables which appear in the predicate.
+         */
+        private final IVariable<?>[] vars;
+
+        /**
+         * The indices of those variables in the predicate.
+         */
+        private final int[] positions;
+
+        /**
+         * The maximum #of solutions for which a filter will be built.
+         */
+        private final int maxKeys;
+
+        /**
+         * The hash codes of the join keys.
+         */
+        private int[] hashes = new int[64];
+
+        /**
+         * The #of hash codes.
+         */
+        private int n = 0;
+
+        /**
+         * <code>true</code> once more than {@link #maxKeys} solutions were
+         * added.
+         */
+        private boolean saturated = false;
+
+        /**
+         * @param pred
+         *            The predicate for the access path.
+         * @param joinVars
+         *            The join variables.
+         * @param maxKeys
+         *            The maximum #of solutions for which a filter will be
+         *            built.
+         */
+        public Builder(final IPredicate<?> pred, final IVariable<?>[] joinVars,
+                final int maxKeys) {
+
+            if (pred == null)
+                throw new IllegalArgumentException();
+
+            if (joinVars == null)
+                throw new IllegalArgumentException();
+
+            if (maxKeys <= 0)
+                throw new IllegalArgumentException();
+
+            int nfound = 0;
+
+            final IVariable<?>[] vars = new IVariable[joinVars.length];
+
+            final int[] positions = new int[joinVars.length];
+
+            for (IVariable<?> var : joinVars) {
+
+                for (int i = 0; i < pred.arity(); i++) {
+
+                    if (var.equals(pred.get(i))) {
+
+                        vars[nfound] = var;
+
+                        positions[nfound++] = i;
+
+                        break;
+
+                    }
+
+                }
+
+            }
+
+            this.vars = Arrays.copyOf(vars, nfound);
+
+            this.positions = Arrays.copyOf(positions, nfound);
+
+            this.maxKeys = maxKeys;
+
+        }
+
+        /**
+         * Return <code>true</code> iff a filter could be built (at least one
+         * join variable appears in the predicate and there were not too many
+         * solutions).
+         */
+        public boolean isEnabled() {
+
+            return positions.length > 0 && !saturated;
+
+        }
+
+        /**
+         * Add the join key of a solution.
+         * <p>
+         * Note: Solutions which do not bind all of the join variables are
+         * ignored. The elements visited by the access path always bind those
+         * variables, so such solutions can not join with them.
+         * 
+         * @param bset
+         *            A solution.
+         */
+        public void add(final IBindingSet bset) {
+
+            if (!isEnabled())
+                return;
+
+            int h = 1;
+
+            for (int i = 0; i < vars.length; i++) {
+
+                final IConstant<?> c = bset.get(vars[i]);
+
+                if (c == null)
+                    return;
+
+                h = 31 * h + c.get().hashCode();
+
+            }
+
+            if (n == maxKeys) {
+
+                // Too many solutions. Release the hash codes.
+                saturated = true;
+
+                hashes = null;
+
+                return;
+
+            }
+
+            if (n == hashes.length)
+                hashes = Arrays.copyOf(hashes, Math.min(maxKeys, n << 1));
+
+            hashes[n++] = h;
+
+        }
+
+        /**
+         * Return the #of join keys which have been added.
+         */
+        public int size() {
+
+            return n;
+
+        }
+
+        /**
+         * Return a filter for the join keys which have been added.
+         * 
+         * @throws IllegalStateException
+         *             unless the builder {@link #isEnabled()}.
+         */
+        public <E> JoinKeyBloomFilter<E> build() {
+
+            if (!isEnabled())
+                throw new IllegalStateException();
+
+            return new JoinKeyBloomFilter<E>(positions, hashes, n);
+
+        }
+
+        /**
+         * Discard the join keys (invoked each time the hash join runs since
+         * the buffered solutions are discarded at that point).
+         */
+        public void reset() {
+
+            if (hashes == null)
+                hashes = new int[64];
+
+            n = 0;
+
+            saturated = false;
+
+        }
+
+    }
+
+}
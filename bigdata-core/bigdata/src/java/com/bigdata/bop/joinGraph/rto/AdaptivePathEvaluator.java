@@ -0,0 +1,658 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.bop.joinGraph.rto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.AbstractRunningQuery;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.join.BaseJoinStats;
+import com.bigdata.bop.joinGraph.PartitionedJoinGroup;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpRTO;
+import com.bigdata.util.concurrent.Haltable;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Evaluates the join path selected by the RTO one join at a time, observing
+ * the actual cardinality of each step. The join path is followed as long as the
+ * observed cardinality of each step stays within a factor of the
+ * {@link JoinGraph.Annotations#ADAPTIVE_THRESHOLD} of the cardinality
+ * estimated for that step by cutoff sampling. Once a step diverges from its
+ * estimate, the estimates for the rest of the join path are no longer trusted
+ * and each remaining step is chosen by cutoff sampling of the remaining
+ * vertices against the actual intermediate solutions. At that point, a vertex
+ * whose access path is smaller than the #of intermediate solutions is joined
+ * using a hash join (one scan of the access path) rather than a pipeline join
+ * (one probe of the access path per solution).
+ * <p>
+ * The intermediate solutions are materialized on the JVM heap between steps.
+ * The solutions of the last step are copied directly to the sink of the
+ * {@link JoinGraph}. If a step would materialize more than
+ * {@link JoinGraph.Annotations#ADAPTIVE_MAX_SOLUTIONS} solutions, adaptive
+ * evaluation stops and that step and the remaining steps are run as a single
+ * pipelined query plan against the input solutions of that step.
+ * 
+ * @see JoinGraph.Annotations#ADAPTIVE
+ */
+class AdaptivePathEvaluator {
+
+    private static final transient Logger log = Logger
+            .getLogger(AdaptivePathEvaluator.class);
+
+    private final JoinGraph joinGraph;
+
+    private final BOpContext<IBindingSet> context;
+
+    private final QueryEngine queryEngine;
+
+    private final double threshold;
+
+    private final int maxSolutions;
+
+    AdaptivePathEvaluator(final JoinGraph joinGraph,
+            final BOpContext<IBindingSet> context) {
+
+        if (joinGraph == null)
+            throw new IllegalArgumentException();
+
+        if (context == null)
+            throw new IllegalArgumentException();
+
+        this.joinGraph = joinGraph;
+        this.context = context;
+        this.queryEngine = context.getRunningQuery().getQueryEngine();
+        this.threshold = joinGraph.getAdaptiveThreshold();
+        this.maxSolutions = joinGraph.getAdaptiveMaxSolutions();
+
+    }
+
+    /**
+     * Evaluate the join path.
+     * 
+     * @param path
+     *            The join path selected by the RTO.
+     * 
+     * @return The steps which were evaluated.
+     */
+    List<AdaptiveStep> evaluate(final Path path) throws Exception {
+
+        final List<AdaptiveStep> steps = new LinkedList<AdaptiveStep>();
+
+        final IConstraint[] constraints = joinGraph.getConstraints();
+
+        // The estimated cardinality of each prefix of the join path.
+        final long[] estCards = getEstimatedCardinalities(path);
+
+        // The vertices in the order in which they will be joined.
+        final LinkedList<Vertex> remaining = new LinkedList<Vertex>(
+                Arrays.asList(path.vertices));
+
+        // The predicates which have been joined.
+        final List<IPredicate<?>> joined = new ArrayList<IPredicate<?>>();
+
+        final Set<IVariable<?>> doneSet = new LinkedHashSet<IVariable<?>>(
+                joinGraph.getDoneSet());
+
+        // Fully materialize the upstream solutions.
+        IBindingSet[] solutions = BOpUtility.toArray(context.getSource(),
+                context.getStats());
+
+        // true once the observed cardinality diverged from the estimate.
+        boolean adapting = false;
+
+        while (!remaining.isEmpty() && solutions.length != 0) {
+
+            final Vertex v;
+            final long estCard;
+            IVariable<?>[] hashJoinVars = null;
+            
+            if (!adapting) {
+            
+                // Follow the join path selected by the RTO.
+                v = remaining.removeFirst();
+                
+                estCard = estCards[joined.size()];
+                
+            } else if (remaining.size() == 1) {
+
+                // Nothing left to choose.
+                v = remaining.removeFirst();
+
+                estCard = -1L;
+
+                hashJoinVars = getHashJoinVars(joined, v, solutions.length);
+
+            } else {
+
+                // Choose the next vertex from the actual solutions.
+                final Choice choice = chooseNextVertex(joined, remaining,
+                        constraints, solutions);
+
+                v = choice.v;
+
+                remaining.remove(v);
+
+                estCard = choice.estCard;
+
+                hashJoinVars = getHashJoinVars(joined, v, solutions.length);
+
+            }
+
+            joined.add(v.pred);
+
+            // The variables materialized before this step.
+            final Set<IVariable<?>> doneSetBefore = new LinkedHashSet<IVariable<?>>(
+                    doneSet);
+
+            final boolean last = remaining.isEmpty();
+
+            StepResult result = null;
+
+            if (solutions.length <= maxSolutions) {
+
+                final PipelineOp queryOp = AST2BOpRTO.compileJoinGraphStep(
+                        queryEngine, joinGraph,
+                        joined.toArray(new IPredicate[joined.size()]),
+                        doneSet, hashJoinVars);
+
+                result = runStep(queryOp, solutions, last);
+
+                if (result == null) {
+                    // Interrupted (normal termination).
+                    break;
+                }
+
+            }
+
+            final boolean pipelined = result == null || result.overflow;
+
+            if (pipelined) {
+
+                /*
+                 * Too many solutions to materialize. Run this step and the
+                 * remaining steps as one pipelined query plan.
+                 */
+
+                if (log.isInfoEnabled())
+                    log.info("Pipelining: maxSolutions=" + maxSolutions
+                            + ", remaining=" + remaining.size());
+
+                final List<IPredicate<?>> preds = new ArrayList<IPredicate<?>>(
+                        joined);
+
+                for (Vertex t : remaining) {
+
+                    preds.add(t.pred);
+
+                }
+
+                remaining.clear();
+
+                final PipelineOp queryOp = AST2BOpRTO.compileJoinGraph(
+                        queryEngine, joinGraph,
+                        preds.toArray(new IPredicate[preds.size()]),
+                        joined.size() - 1/* fromIndex */, doneSetBefore);
+
+                result = runStep(queryOp, solutions, true/* last */);
+
+                if (result == null) {
+                    // Interrupted (normal termination).
+                    break;
+                }
+
+            }
+
+            final AdaptiveStep step = new AdaptiveStep(v.pred.getId(),
+                    estCard, solutions.length, result.outputCount,
+                    result.tuplesRead, adapting, !pipelined
+                            && hashJoinVars != null, pipelined);
+
+            if (log.isInfoEnabled())
+                log.info(step);
+
+            steps.add(step);
+
+            if (!last && !pipelined) {
+
+                if (!adapting && estCard >= 0
+                        && diverges(estCard, result.outputCount, threshold)) {
+
+                    if (log.isInfoEnabled())
+                        log.info("Re-optimizing: estCard=" + estCard
+                                + ", actual=" + result.outputCount
+                                + ", remaining=" + remaining.size());
+
+                    adapting = true;
+
+                }
+
+                solutions = result.solutions;
+
+            }
+            
+        }
+
+        return steps;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the actual cardinality differs from the
+     * estimated cardinality by more than the given factor (in either
+     * direction).
+     */
+    static boolean diverges(final long estCard, final long actual,
+            final double threshold) {
+
+        final double e = Math.max(1L, estCard);
+
+        final double a = Math.max(1L, actual);
+
+        return a / e > threshold || e / a > threshold;
+
+    }
+
+    /**
+     * Return the estimated cardinality of each prefix of the join path. These
+     * are recovered from the chain of samples behind the join path, which
+     * starts with the {@link VertexSample} of the first vertex.
+     */
+    private static long[] getEstimatedCardinalities(final Path path) {
+
+        final long[] a = new long[path.vertices.length];
+
+        SampleBase sample = path.edgeSample;
+
+        for (int i = a.length - 1; i >= 0; i--) {
+
+            if (sample == null) {
+                // No estimate.
+                a[i] = -1L;
+                continue;
+            }
+
+            a[i] = sample.estCard;
+
+            sample = sample instanceof EdgeSample ? ((EdgeSample) sample).sourceSample
+                    : null;
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Cutoff sample each remaining vertex which can join with the solutions
+     * and return the vertex whose sample has the lowest estimated cardinality.
+     * The actual solutions are used as the source sample so the estimates
+     * reflect what has actually been produced rather than what was expected.
+     */
+    private Choice chooseNextVertex(final List<IPredicate<?>> joined,
+            final List<Vertex> remaining, final IConstraint[] constraints,
+            final IBindingSet[] solutions) throws Exception {
+
+        final int limit = joinGraph.getLimit();
+
+        final IPredicate<?>[] path = joined.toArray(new IPredicate[joined
+                .size()]);
+
+        final List<Vertex> candidates = new ArrayList<Vertex>();
+
+        for (Vertex v : remaining) {
+
+            if (PartitionedJoinGroup.canJoinUsingConstraints(path, v.pred,
+                    constraints)) {
+
+                candidates.add(v);
+
+            }
+
+        }
+
+        if (candidates.isEmpty()) {
+
+            // Cross product: consider all remaining vertices.
+            candidates.addAll(remaining);
+
+        }
+
+        final SampleBase sourceSample = newSourceSample(solutions, limit);
+
+        final boolean pathIsComplete = remaining.size() == 1;
+
+        Choice best = null;
+
+        for (Vertex v : candidates) {
+
+            final IPredicate<?>[] preds = Arrays.copyOf(path, path.length + 1);
+
+            preds[path.length] = v.pred;
+
+            final EdgeSample sample = AST2BOpRTO.cutoffJoin(queryEngine,
+                    joinGraph, limit, preds, constraints, pathIsComplete,
+                    sourceSample);
+
+            sample.releaseSample();
+
+            if (log.isDebugEnabled())
+                log.debug("vertex=" + v + ", sample=" + sample);
+
+            if (best == null || sample.estCard < best.estCard) {
+
+                best = new Choice(v, sample.estCard);
+
+            }
+
+        }
+
+        return best;
+
+    }
+
+    /**
+     * Wrap the actual solutions as the source sample for a cutoff join. The
+     * cardinality of the solutions is exact. When there are more solutions
+     * than the sample limit, the sample is taken at a fixed stride so it spans
+     * all of the solutions.
+     */
+    static SampleBase newSourceSample(final IBindingSet[] solutions,
+            final int limit) {
+
+        if (solutions.length <= limit) {
+
+            return new VertexSample(solutions.length, limit,
+                    EstimateEnum.Exact, solutions);
+
+        }
+
+        final IBindingSet[] sample = new IBindingSet[limit];
+
+        final double stride = solutions.length / (double) limit;
+
+        for (int i = 0; i < limit; i++) {
+
+            sample[i] = solutions[(int) (i * stride)];
+
+        }
+
+        return new VertexSample(solutions.length, limit, EstimateEnum.Normal,
+                sample);
+
+    }
+
+    /**
+     * Return the join variables for a hash join of the vertex against the
+     * solutions -or- <code>null</code> if the vertex should be joined using a
+     * pipeline join. A hash join reads the access path once while a pipeline
+     * join probes it once per solution, so the hash join is used when there
+     * are at least as many solutions as tuples in the access path. The join
+     * variables are those shared with the vertices already joined, all of
+     * which are bound in every solution.
+     */
+    static IVariable<?>[] getHashJoinVars(final List<IPredicate<?>> joined,
+            final Vertex v, final int nsolutions) {
+
+        if (v.sample == null || nsolutions < v.sample.estCard) {
+
+            // Pipeline join.
+            return null;
+
+        }
+
+        final Set<IVariable<?>> bound = new LinkedHashSet<IVariable<?>>();
+
+        for (IPredicate<?> p : joined) {
+
+            final Iterator<IVariable<?>> itr = BOpUtility
+                    .getArgumentVariables(p);
+
+            while (itr.hasNext()) {
+
+                bound.add(itr.next());
+
+            }
+
+        }
+
+        final Set<IVariable<?>> joinVars = new LinkedHashSet<IVariable<?>>();
+
+        final Iterator<IVariable<?>> itr = BOpUtility
+                .getArgumentVariables(v.pred);
+
+        while (itr.hasNext()) {
+
+            final IVariable<?> var = itr.next();
+
+            if (bound.contains(var))
+                joinVars.add(var);
+
+        }
+
+        if (joinVars.isEmpty()) {
+
+            // Nothing to hash on.
+            return null;
+
+        }
+
+        return joinVars.toArray(new IVariable[joinVars.size()]);
+
+    }
+
+    /**
+     * Run one step of the join path as a subquery.
+     * 
+     * @param queryOp
+     *            The query plan for the step.
+     * @param solutions
+     *            The solutions to be joined.
+     * @param last
+     *            When <code>true</code> the solutions produced by the step are
+     *            copied to the sink of the {@link JoinGraph}. Otherwise they
+     *            are materialized for the next step, up to the
+     *            {@link JoinGraph.Annotations#ADAPTIVE_MAX_SOLUTIONS}. If there
+     *            are more solutions than that, the step is cancelled and its
+     *            result reports an overflow.
+     * 
+     * @return The result of the step -or- <code>null</code> if the step was
+     *         interrupted.
+     */
+    private StepResult runStep(final PipelineOp queryOp,
+            final IBindingSet[] solutions, final boolean last) throws Exception {
+
+        final IRunningQuery runningSubquery = queryEngine.eval(queryOp,
+                solutions);
+
+        ICloseableIterator<IBindingSet[]> subquerySolutionItr = null;
+
+        try {
+
+            // Declare the child query to the parent.
+            ((AbstractRunningQuery) context.getRunningQuery())
+                    .addChild(runningSubquery);
+
+            // Iterator visiting the subquery solutions.
+            subquerySolutionItr = runningSubquery.iterator();
+
+            final IBindingSet[] out;
+            final long outputCount;
+            boolean overflow = false;
+            if (last) {
+
+                // Copy solutions from the subquery to the query.
+                outputCount = BOpUtility.copy(subquerySolutionItr,
+                        context.getSink(), null/* sink2 */,
+                        null/* mergeSolution */, null/* selectVars */,
+                        null/* constraints */, null/* stats */);
+
+                out = null;
+
+            } else {
+
+                final List<IBindingSet> tmp = new ArrayList<IBindingSet>();
+
+                while (subquerySolutionItr.hasNext()) {
+
+                    tmp.addAll(Arrays.asList(subquerySolutionItr.next()));
+
+                    if (tmp.size() > maxSolutions) {
+
+                        // Too many solutions: abandon the step.
+                        overflow = true;
+
+                        break;
+
+                    }
+
+                }
+
+                if (overflow) {
+
+                    return new StepResult(null/* solutions */, tmp.size(),
+                            0L/* tuplesRead */, true/* overflow */);
+
+                }
+
+                out = tmp.toArray(new IBindingSet[tmp.size()]);
+
+                outputCount = out.length;
+
+            }
+
+            // verify no problems.
+            runningSubquery.get();
+
+            // The tuples read by the join(s) in this step.
+            long tuplesRead = 0L;
+
+            for (BOpStats stats : runningSubquery.getStats().values()) {
+
+                if (stats instanceof BaseJoinStats) {
+
+                    tuplesRead += ((BaseJoinStats) stats).accessPathUnitsIn
+                            .get();
+
+                }
+
+            }
+
+            return new StepResult(out, outputCount, tuplesRead, false/* overflow */);
+
+        } catch (Throwable t) {
+
+            if (Haltable.isTerminationByInterrupt(t)) {
+
+                // normal termination.
+                return null;
+
+            }
+
+            /*
+             * Propagate the error to the parent and rethrow the first cause
+             * error out of the subquery.
+             */
+            throw new RuntimeException(context.getRunningQuery().halt(t));
+
+        } finally {
+
+            runningSubquery.cancel(true/* mayInterruptIfRunning */);
+
+            if (subquerySolutionItr != null)
+                subquerySolutionItr.close();
+
+        }
+
+    }
+
+    /**
+     * The vertex chosen for the next step and its estimated cardinality.
+     */
+    private static class Choice {
+
+        final Vertex v;
+
+        final long estCard;
+
+        Choice(final Vertex v, final long estCard) {
+            this.v = v;
+            this.estCard = estCard;
+        }
+
+    }
+
+    /**
+     * The outcome of one step.
+     */
+    private static class StepResult {
+
+        /**
+         * The solutions produced by the step (<code>null</code> for the last
+         * step, whose solutions are copied to the sink).
+         */
+        final IBindingSet[] solutions;
+
+        final long outputCount;
+
+        final long tuplesRead;
+
+        /**
+         * <code>true</code> iff the step was abandoned because it produced
+         * more solutions than may be materialized.
+         */
+        final boolean overflow;
+
+        StepResult(final IBindingSet[] solutions, final long outputCount,
+                final long tuplesRead, final boolean overflow) {
+            this.solutions = solutions;
+            this.outputCount = outputCount;
+            this.tuplesRead = tuplesRead;
+            this.overflow = overflow;
+        }
+
+    }
+
+}
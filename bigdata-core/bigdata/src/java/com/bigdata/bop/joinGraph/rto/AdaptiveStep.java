@@ -0,0 +1,117 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.bop.joinGraph.rto;
+
+/**
+ * One step of the adaptive evaluation of a join path. Each step joins one
+ * vertex of the join graph against the materialized solutions of the steps
+ * before it, so the actual cardinality of each prefix of the join path is
+ * known before the next step is chosen.
+ * 
+ * @see JoinGraph.Annotations#ADAPTIVE
+ */
+public class AdaptiveStep {
+
+    /**
+     * The bopId of the vertex joined by this step.
+     */
+    public final int vertexId;
+
+    /**
+     * The estimated cardinality of the join path through this step -or-
+     * <code>-1L</code> if no estimate was made (the step was the only
+     * remaining choice).
+     */
+    public final long estCard;
+
+    /**
+     * The #of solutions fed into this step.
+     */
+    public final long inputCount;
+
+    /**
+     * The #of solutions produced by this step.
+     */
+    public final long outputCount;
+
+    /**
+     * The #of tuples read by the join(s) in this step, as reported by their
+     * join statistics.
+     */
+    public final long tuplesRead;
+
+    /**
+     * <code>true</code> iff this step was chosen by re-sampling the remaining
+     * vertices against the actual intermediate solutions rather than taken
+     * from the join path selected by the RTO.
+     */
+    public final boolean reordered;
+
+    /**
+     * <code>true</code> iff this step was evaluated as a hash join rather than
+     * as a pipeline join.
+     */
+    public final boolean hashJoin;
+
+    /**
+     * <code>true</code> iff this step produced more solutions than may be
+     * materialized, in which case this step and all remaining steps were
+     * evaluated as a single pipelined query plan. The {@link #outputCount} and
+     * {@link #tuplesRead} then cover the rest of the join path and this is the
+     * last step.
+     * 
+     * @see JoinGraph.Annotations#ADAPTIVE_MAX_SOLUTIONS
+     */
+    public final boolean pipelined;
+
+    public AdaptiveStep(final int vertexId, final long estCard,
+            final long inputCount, final long outputCount,
+            final long tuplesRead, final boolean reordered,
+            final boolean hashJoin, final boolean pipelined) {
+
+        this.vertexId = vertexId;
+        this.estCard = estCard;
+        this.inputCount = inputCount;
+        this.outputCount = outputCount;
+        this.tuplesRead = tuplesRead;
+        this.reordered = reordered;
+        this.hashJoin = hashJoin;
+        this.pipelined = pipelined;
+
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{vertexId=" + vertexId
+                + ",estCard=" + estCard + ",inputCount=" + inputCount
+                + ",outputCount=" + outputCount + ",tuplesRead=" + tuplesRead
+                + ",reordered=" + reordered + ",hashJoin=" + hashJoin
+                + ",pipelined=" + pipelined + "}";
+    }
+
+}
@@ -28,6 +28,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package com.bigdata.bop.joinGraph.rto;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -179,6 +180,50 @@ public class JoinGraph extends PipelineOp {
          * the selected join path.
          */
         String NT = JoinGraph.class.getName() + ".nt";
+
+        /**
+         * When <code>true</code>, the selected join path is evaluated one join
+         * at a time and the actual cardinality of each join is compared with
+         * the cardinality estimated for it by cutoff sampling (default
+         * {@value #DEFAULT_ADAPTIVE}). Once they diverge by more than the
+         * {@link #ADAPTIVE_THRESHOLD}, the order of the remaining joins is
+         * decided by sampling against the actual intermediate solutions and a
+         * hash join may be used in place of a pipeline join.
+         * 
+         * @see AdaptivePathEvaluator
+         */
+        String ADAPTIVE = JoinGraph.class.getName() + ".adaptive";
+
+        boolean DEFAULT_ADAPTIVE = false;
+
+        /**
+         * The factor by which the actual cardinality of a join must differ
+         * from its estimated cardinality (in either direction) before the
+         * remaining joins are re-optimized (default
+         * {@value #DEFAULT_ADAPTIVE_THRESHOLD}). This must be GTE ONE (1).
+         * 
+         * @see #ADAPTIVE
+         */
+        String ADAPTIVE_THRESHOLD = JoinGraph.class.getName()
+                + ".adaptiveThreshold";
+
+        double DEFAULT_ADAPTIVE_THRESHOLD = 10d;
+
+        /**
+         * The maximum #of intermediate solutions which will be materialized on
+         * the JVM heap for one step of the adaptive evaluation of the join path
+         * (default {@value #DEFAULT_ADAPTIVE_MAX_SOLUTIONS}). When a step
+         * produces more solutions than this, that step and all remaining steps
+         * are compiled into a single pipelined query plan, as if adaptive
+         * evaluation had not been requested, which runs against the input
+         * solutions of that step. This must be GT ZERO (0).
+         * 
+         * @see #ADAPTIVE
+         */
+        String ADAPTIVE_MAX_SOLUTIONS = JoinGraph.class.getName()
+                + ".adaptiveMaxSolutions";
+
+        int DEFAULT_ADAPTIVE_MAX_SOLUTIONS = 100000;
         
 	}
 
@@ -210,6 +255,14 @@ public class JoinGraph extends PipelineOp {
          */
         String QUERY_PLAN = JoinGraph.class.getName() + ".queryPlan";
 
+        /**
+         * The {@link AdaptiveStep}s taken when the join path was evaluated
+         * adaptively (output).
+         * 
+         * @see Annotations#ADAPTIVE
+         */
+        String ADAPTIVE_STEPS = JoinGraph.class.getName() + ".adaptiveSteps";
+
 	}
 	
     /*
@@ -284,6 +337,35 @@ public class JoinGraph extends PipelineOp {
 	    return (Set<IVariable<?>>) getRequiredProperty(Annotations.DONE_SET);
 	    
 	}
+
+    /**
+     * @see Annotations#ADAPTIVE
+     */
+    public boolean isAdaptive() {
+
+        return getProperty(Annotations.ADAPTIVE, Annotations.DEFAULT_ADAPTIVE);
+
+    }
+
+    /**
+     * @see Annotations#ADAPTIVE_THRESHOLD
+     */
+    public double getAdaptiveThreshold() {
+
+        return getProperty(Annotations.ADAPTIVE_THRESHOLD,
+                Annotations.DEFAULT_ADAPTIVE_THRESHOLD);
+
+    }
+
+    /**
+     * @see Annotations#ADAPTIVE_MAX_SOLUTIONS
+     */
+    public int getAdaptiveMaxSolutions() {
+
+        return getProperty(Annotations.ADAPTIVE_MAX_SOLUTIONS,
+                Annotations.DEFAULT_ADAPTIVE_MAX_SOLUTIONS);
+
+    }
 	
 	/*
 	 * IQueryAttributes
@@ -346,6 +428,27 @@ public class JoinGraph extends PipelineOp {
         
     }
 
+    /**
+     * Return the steps taken by the most recent adaptive evaluation of the
+     * join path.
+     * 
+     * @see Attributes#ADAPTIVE_STEPS
+     */
+    @SuppressWarnings("unchecked")
+    public List<AdaptiveStep> getAdaptiveSteps(final IRunningQuery q) {
+
+        return (List<AdaptiveStep>) q.getAttributes().get(
+                getId() + "-" + Attributes.ADAPTIVE_STEPS);
+
+    }
+
+    private void setAdaptiveSteps(final IRunningQuery q,
+            final List<AdaptiveStep> steps) {
+
+        q.getAttributes().put(getId() + "-" + Attributes.ADAPTIVE_STEPS, steps);
+
+    }
+
     /**
      * Deep copy constructor.
      * 
@@ -391,6 +494,13 @@ public class JoinGraph extends PipelineOp {
         if (getNEdges() <= 0)
             throw new IllegalArgumentException(Annotations.NEDGES);
 
+        if (getAdaptiveThreshold() < 1d)
+            throw new IllegalArgumentException(Annotations.ADAPTIVE_THRESHOLD);
+
+        if (getAdaptiveMaxSolutions() <= 0)
+            throw new IllegalArgumentException(
+                    Annotations.ADAPTIVE_MAX_SOLUTIONS);
+
         /*
          * TODO Check DONE_SET, NT, JOIN_NODES. These annotations are required
          * for the new code path. We should check for their presence. However,
@@ -445,7 +555,7 @@ public class JoinGraph extends PipelineOp {
 	    @Override
 	    public Void call() throws Exception {
 	        
-            if (getQueryPlan(context.getRunningQuery()) == null) {
+            if (getPath(context.getRunningQuery()) == null) {
                 
                 /*
                  * Use the RTO to generate a query plan.
@@ -508,15 +618,35 @@ public class JoinGraph extends PipelineOp {
                 //
                 // final long elapsed_queryOptimizer = mark - begin;
 
+                if (!isAdaptive()) {
+
+                    /*
+                     * Generate the query from the selected join path.
+                     */
+                    final PipelineOp queryOp = AST2BOpRTO.compileJoinGraph(
+                            context.getRunningQuery().getQueryEngine(),
+                            JoinGraph.this, path);
+
+                    // Set attribute for the join path samples.
+                    setQueryPlan(context.getRunningQuery(), queryOp);
+
+                }
+
+            }
+
+            if (isAdaptive()) {
+
                 /*
-                 * Generate the query from the selected join path.
+                 * Run the join path one join at a time, re-optimizing the
+                 * remaining joins if the estimates prove to be wrong.
                  */
-                final PipelineOp queryOp = AST2BOpRTO.compileJoinGraph(context
-                        .getRunningQuery().getQueryEngine(), JoinGraph.this,
-                        path);
+                final List<AdaptiveStep> steps = new AdaptivePathEvaluator(
+                        JoinGraph.this, context).evaluate(getPath(context
+                        .getRunningQuery()));
 
-                // Set attribute for the join path samples.
-                setQueryPlan(context.getRunningQuery(), queryOp);
+                setAdaptiveSteps(context.getRunningQuery(), steps);
+
+                return null;
 
             }
 	        
@@ -146,6 +146,20 @@ public class ArbitraryLengthPathOp extends PipelineOp {
          */
         String DROP_VARS = Annotations.class.getName() + ".dropVars";
         
+        /**
+         * When <code>true</code>, a path whose left and right terms are both
+         * bound (either constants or bound by the incoming solution) is
+         * evaluated as a bidirectional search which expands the smaller of a
+         * frontier from each end until the two frontiers meet, instead of
+         * computing the closure from one end. This does not apply when there
+         * is an {@link #EDGE_VAR}.
+         * 
+         * @see #DEFAULT_BIDIRECTIONAL
+         */
+        String BIDIRECTIONAL = Annotations.class.getName() + ".bidirectional";
+
+        boolean DEFAULT_BIDIRECTIONAL = true;
+        
     }
 
     /**
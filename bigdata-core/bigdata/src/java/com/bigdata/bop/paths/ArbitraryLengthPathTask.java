@@ -29,6 +29,7 @@ package com.bigdata.bop.paths;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -125,6 +126,7 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
     private final IVariableOrConstant<?> middleTerm;
     private final IVariable<?> edgeVar;
     private final List<IVariable<?>> dropVars;
+    private final boolean bidirectional;
 
     public ArbitraryLengthPathTask(
             final ArbitraryLengthPathOp controllerOp,
@@ -262,6 +264,9 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
             log.debug("vars to drop: " + dropVars);
         }
 
+        this.bidirectional = controllerOp.getProperty(
+                Annotations.BIDIRECTIONAL, Annotations.DEFAULT_BIDIRECTIONAL);
+
     }
   
     @Override
@@ -317,6 +322,22 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
         final QueryEngine queryEngine = this.context.getRunningQuery()
                 .getQueryEngine();
 
+        if (bidirectional && isBothEndsBound(chunkIn)) {
+
+            /*
+             * Both ends of the path are known, so this is a reachability test
+             * for each solution.
+             */
+            for (IBindingSet parentSolutionIn : chunkIn) {
+
+                doBidirectional(queryEngine, parentSolutionIn);
+
+            }
+
+            return;
+
+        }
+
         /*
          * The input to each round of transitive chaining.
          */
@@ -799,6 +820,243 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
 
     }      
 
+    /**
+     * Return <code>true</code> iff both ends of the path are bound for each
+     * solution in the chunk and there is no edge variable.
+     */
+    private boolean isBothEndsBound(final IBindingSet[] chunkIn) {
+
+        if (edgeVar != null || chunkIn.length == 0)
+            return false;
+
+        for (IBindingSet bs : chunkIn) {
+
+            if (forwardGearing.inConst == null
+                    && !bs.isBound(forwardGearing.inVar))
+                return false;
+
+            if (forwardGearing.outConst == null
+                    && !bs.isBound(forwardGearing.outVar))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Decide whether the bound right end of the path is reachable from the
+     * bound left end and, if so, emit the solution. Each round expands the
+     * smaller of the frontier from the left end (forward gear) and the
+     * frontier from the right end (reverse gear) with a single evaluation of
+     * the subquery for the whole frontier. The search halts as soon as a newly
+     * reached vertex was already reached from the other end, when either
+     * frontier is exhausted, or after {@link #upperBound} rounds.
+     * <p>
+     * Only the vertices are remembered, so the visited sets are keyed by the
+     * internal values rather than by the solutions.
+     * 
+     * @param queryEngine
+     *            the query engine to execute the driver subquery
+     * @param parentSolutionIn
+     *            the solution in which both ends are bound
+     */
+    private void doBidirectional(final QueryEngine queryEngine,
+            final IBindingSet parentSolutionIn) throws Exception {
+
+        final IConstant<?> source = forwardGearing.inConst != null ? forwardGearing.inConst
+                : parentSolutionIn.get(forwardGearing.inVar);
+
+        final IConstant<?> target = forwardGearing.outConst != null ? forwardGearing.outConst
+                : parentSolutionIn.get(forwardGearing.outVar);
+
+        boolean found = lowerBound == 0 && source.equals(target);
+
+        /*
+         * The vertices reached from each end (including the ends themselves).
+         * A match is only tested for a vertex reached in some round, so any
+         * match lies on a path of length one or more. The zero length path
+         * was handled above.
+         */
+        final Set<Object> leftVisited = new HashSet<Object>();
+        final Set<Object> rightVisited = new HashSet<Object>();
+
+        leftVisited.add(source.get());
+        rightVisited.add(target.get());
+
+        List<IConstant<?>> leftFrontier = new ArrayList<IConstant<?>>();
+        List<IConstant<?>> rightFrontier = new ArrayList<IConstant<?>>();
+
+        leftFrontier.add(source);
+        rightFrontier.add(target);
+
+        long round = 0;
+
+        while (!found && round < upperBound && !leftFrontier.isEmpty()
+                && !rightFrontier.isEmpty()) {
+
+            final boolean forward = leftFrontier.size() <= rightFrontier
+                    .size();
+
+            final Gearing gearing = forward ? forwardGearing : reverseGearing;
+
+            final List<IConstant<?>> frontier = forward ? leftFrontier
+                    : rightFrontier;
+
+            final Set<Object> visited = forward ? leftVisited : rightVisited;
+
+            final Set<Object> other = forward ? rightVisited : leftVisited;
+
+            final IBindingSet[] in = new IBindingSet[frontier.size()];
+
+            for (int i = 0; i < in.length; i++) {
+
+                in[i] = parentSolutionIn.clone();
+
+                in[i].set(gearing.tVarIn, frontier.get(i));
+
+            }
+
+            final List<IConstant<?>> next = new ArrayList<IConstant<?>>();
+
+            for (IBindingSet bs : evalSubquery(queryEngine, in)) {
+
+                final IConstant<?> v = bs.get(gearing.tVarOut);
+
+                if (v == null)
+                    continue;
+
+                if (other.contains(v.get())) {
+
+                    found = true;
+
+                    break;
+
+                }
+
+                if (visited.add(v.get()))
+                    next.add(v);
+
+            }
+
+            if (forward) {
+                leftFrontier = next;
+            } else {
+                rightFrontier = next;
+            }
+
+            round++;
+
+            if (log.isDebugEnabled())
+                log.debug("round " + round + ": forward=" + forward
+                        + ", found=" + found + ", leftFrontier="
+                        + leftFrontier.size() + ", rightFrontier="
+                        + rightFrontier.size());
+
+        }
+
+        if (found) {
+
+            final IBindingSet bs = parentSolutionIn.clone();
+
+            bs.set(forwardGearing.tVarIn, source);
+
+            bs.set(forwardGearing.tVarOut, target);
+
+            emitSolutions(bs, forwardGearing);
+
+        }
+
+    }
+
+    /**
+     * Evaluate the subquery for the given solutions and return all of its
+     * solutions.
+     */
+    private List<IBindingSet> evalSubquery(final QueryEngine queryEngine,
+            final IBindingSet[] in) throws Exception {
+
+        final List<IBindingSet> solutions = new ArrayList<IBindingSet>();
+
+        // The subquery
+        IRunningQuery runningSubquery = null;
+
+        // The iterator draining the subquery
+        ICloseableIterator<IBindingSet[]> subquerySolutionItr = null;
+
+        try {
+
+            runningSubquery = queryEngine.eval(subquery, in);
+
+            try {
+
+                // Declare the child query to the parent.
+                ((AbstractRunningQuery) context.getRunningQuery())
+                        .addChild(runningSubquery);
+
+                // Iterator visiting the subquery solutions.
+                subquerySolutionItr = runningSubquery.iterator();
+
+                while (subquerySolutionItr.hasNext()) {
+
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+
+                    solutions.addAll(Arrays.asList(subquerySolutionItr.next()));
+
+                }
+
+                // finished with the iterator
+                subquerySolutionItr.close();
+
+                // wait for the subquery to halt / test for errors.
+                runningSubquery.get();
+
+            } catch (InterruptedException ex) {
+
+                // this thread was interrupted, so cancel the subquery.
+                runningSubquery.cancel(true/* mayInterruptIfRunning */);
+
+                // rethrow the exception.
+                throw ex;
+
+            }
+
+        } catch (Throwable t) {
+
+            /*
+             * Propagate the error to the parent and rethrow the first cause
+             * error out of the subquery (see doIterate()).
+             */
+            final Throwable cause = (runningSubquery != null && runningSubquery
+                    .getCause() != null) ? runningSubquery.getCause() : t;
+
+            throw new RuntimeException(ArbitraryLengthPathTask.this.context
+                    .getRunningQuery().halt(cause));
+
+        } finally {
+
+            try {
+
+                // ensure subquery is halted.
+                if (runningSubquery != null)
+                    runningSubquery.cancel(true/* mayInterruptIfRunning */);
+
+            } finally {
+
+                // ensure the subquery solution iterator is closed.
+                if (subquerySolutionItr != null)
+                    subquerySolutionItr.close();
+
+            }
+
+        }
+
+        return solutions;
+
+    }
+
     /**
      * Is it possible to bind the out of the gearing to the seed?
      * This may be because it is an unbound variable, or it may be that it is already the seed 
@@ -158,7 +158,7 @@ public class MemoryGroupByOp extends GroupByOp {
     /**
      * Wrapper used for the solution groups in the {@link ConcurrentHashMap}.
      */
-    private static class SolutionGroup {
+    static class SolutionGroup {
 
 		/** The hash code for {@link #vals}. */
 		private final int hash;
@@ -509,212 +509,293 @@ public class MemoryGroupByOp extends GroupByOp {
          *         constraint).
          */
         private IBindingSet aggregate(final Iterable<IBindingSet> solutions) {
-            /**
-             * The intermediate solution with all bindings produced when
-             * evaluating this solution group. Evaluation begins by binding any
-             * bare variables or BINDs in the GROUP_BY clause, followed by
-             * evaluating all aggregates, and then finally evaluating the
-             * (rewritten) SELECT expressions. The rewritten HAVING clause (if
-             * any) may then be then be trivially evaluated. If the solution is
-             * not dropped, then only the SELECTed variables are projected out.
-             */
-            final IBindingSet aggregates = new ContextBindingSet(context,new ListBindingSet());
 
-            /**
-             * Propagate GROUP_BY expression onto [aggregates]. 
-             */
-            if (groupBy != null) {
+            return MemoryGroupByOp.aggregate(context, groupByState, rewrite,
+                    solutions, stats);
 
-                // The first solution in the group (must exist since the
-                // group was observed).
-                final IBindingSet aSolution = solutions.iterator().next();
+        }
+
+    } // GroupByTask
+
+    /**
+     * Compute the aggregate solution for a solution multiset (aka a group).
+     * The {@link NativeHeapGroupByOp} computes the aggregates incrementally
+     * instead, but shares {@link #newAggregates(BOpContext, IValueExpression[], IBindingSet)}
+     * and {@link #finish(IGroupByState, IGroupByRewriteState, IBindingSet, BOpStats)}.
+     * 
+     * @param context
+     *            The evaluation context.
+     * @param groupByState
+     *            The {@link IGroupByState}.
+     * @param rewrite
+     *            The {@link IGroupByRewriteState}.
+     * @param solutions
+     *            The solutions in the group.
+     * @param stats
+     *            Used to report type errors.
+     * 
+     * @return The aggregate solution -or- <code>null</code> if the solution
+     *         for the group was dropped (type error or violated HAVING
+     *         constraint).
+     */
+    static IBindingSet aggregate(final BOpContext<IBindingSet> context,
+            final IGroupByState groupByState,
+            final IGroupByRewriteState rewrite,
+            final Iterable<IBindingSet> solutions, final BOpStats stats) {
+
+        final IValueExpression<?>[] groupBy = groupByState.getGroupByClause();
 
-                for (IValueExpression<?> expr : groupBy) {
+        /**
+         * The intermediate solution with all bindings produced when
+         * evaluating this solution group. Evaluation begins by binding any
+         * bare variables or BINDs in the GROUP_BY clause, followed by
+         * evaluating all aggregates, and then finally evaluating the
+         * (rewritten) SELECT expressions. The rewritten HAVING clause (if
+         * any) may then be then be trivially evaluated. If the solution is
+         * not dropped, then only the SELECTed variables are projected out.
+         */
+        final IBindingSet aggregates = newAggregates(context, groupBy,
+                groupBy == null ? null : solutions.iterator().next());
+
+        /**
+         * Compute the aggregates.
+         * 
+         * TODO This can be further optimized by computing the column
+         * projections of the different value expressions exactly once and
+         * then applying the aggregation functions to those column
+         * projections. As long as we adhere to the dependency ordering
+         * among those aggregates, we can compute them all in a single pass
+         * over the column projections.
+         * 
+         * TODO DISTINCT projections of columns projections can be modeled
+         * in a bunch of different ways, but if we need the original column
+         * projection as well as the DISTINCT of that column projection then
+         * it makes sense to either form the DISTINCT projection while
+         * building the column projection or as an after action.
+         */
+        {
 
-                    if (expr instanceof IVariable<?>) {
+            final boolean nestedAggregates = groupByState.isNestedAggregates();
+            
+            final Iterator<Map.Entry<IAggregate<?>, IVariable<?>>> itr = rewrite
+                    .getAggExpr().entrySet().iterator();
 
-                        /**
-                         * Propagate bare variable used in GROUP_BY clause to
-                         * [aggregates].
-                         * 
-                         * <pre>
-                         * GROUP BY ?x
-                         * </pre>
-                         */
+            while (itr.hasNext()) {
+            
+                final Map.Entry<IAggregate<?>, IVariable<?>> e = itr.next();
+                
+                // Aggregate.
+                doAggregate(e.getKey(), e.getValue(), nestedAggregates,
+                        aggregates, solutions, stats);
+                
+            }
+            
+            if (log.isTraceEnabled())
+                log.trace("aggregates: " + aggregates);
+            
+        }
 
-                        final IVariable<?> var = (IVariable<?>) expr;
+        return finish(groupByState, rewrite, aggregates, stats);
 
-                  
-                        final Object varValue = var.get(aSolution);
-                        final Constant<?> val;
+    }
 
-                        if (varValue == null) {
+    /**
+     * Return a new binding set for the aggregates of a solution group on which
+     * the bare variables and BINDs in the GROUP_BY clause (if any) have been
+     * bound from the first solution observed for the group.
+     * 
+     * @param context
+     *            The evaluation context.
+     * @param groupBy
+     *            The GROUP_BY clause (optional).
+     * @param aSolution
+     *            The first solution in the group (required iff there is a
+     *            GROUP_BY clause).
+     */
+    static IBindingSet newAggregates(final BOpContext<IBindingSet> context,
+            final IValueExpression<?>[] groupBy, final IBindingSet aSolution) {
 
-                            val = Constant.errorValue();
+        final IBindingSet aggregates = new ContextBindingSet(context,
+                new ListBindingSet());
 
-                        } else {
-                            val = new Constant(varValue.getClass().cast(varValue));
+        /**
+         * Propagate GROUP_BY expression onto [aggregates]. 
+         */
+        if (groupBy != null) {
 
-                        };
-                                                
-                        // Bind on [aggregates].
-                        aggregates.set(var, val);
+            for (IValueExpression<?> expr : groupBy) {
 
-                    } else if (expr instanceof IBind<?>) {
+                if (expr instanceof IVariable<?>) {
 
-                        /**
-                         * Propagate BIND declared by GROUP_BY clause to
-                         * [aggregates].
-                         * 
-                         * <pre>
-                         * GROUP BY (2*?y as ?x)
-                         * </pre>
-                         */
+                    /**
+                     * Propagate bare variable used in GROUP_BY clause to
+                     * [aggregates].
+                     * 
+                     * <pre>
+                     * GROUP BY ?x
+                     * </pre>
+                     */
 
-                        final IBind<?> bindExpr = (IBind<?>) expr;
+                    final IVariable<?> var = (IVariable<?>) expr;
 
-                        // Compute value expression.
-                        
-                        final Constant<?> val;
-                        final Object exprValue = bindExpr.get(aSolution);
+              
+                    final Object varValue = var.get(aSolution);
+                    final Constant<?> val;
 
-                        if (exprValue == null) {
+                    if (varValue == null) {
 
-                            val = Constant.errorValue();
+                        val = Constant.errorValue();
 
-                        } else {
+                    } else {
+                        val = new Constant(varValue.getClass().cast(varValue));
+
+                    };
+                                            
+                    // Bind on [aggregates].
+                    aggregates.set(var, val);
+
+                } else if (expr instanceof IBind<?>) {
+
+                    /**
+                     * Propagate BIND declared by GROUP_BY clause to
+                     * [aggregates].
+                     * 
+                     * <pre>
+                     * GROUP BY (2*?y as ?x)
+                     * </pre>
+                     */
 
-                            val = new Constant(exprValue.getClass().cast(exprValue));
-                        }
-                        
-                        
+                    final IBind<?> bindExpr = (IBind<?>) expr;
 
-                        // Variable to be projected out by SELECT.
-                        final IVariable<?> ovar = ((IBind<?>) expr).getVar();
+                    // Compute value expression.
+                    
+                    final Constant<?> val;
+                    final Object exprValue = bindExpr.get(aSolution);
 
-                        // Bind on [aggregates].
-                        aggregates.set(ovar, val);
+                    if (exprValue == null) {
 
-                    }
+                        val = Constant.errorValue();
 
-                } // next GROUP_BY value expression
-
-            } // if(groupBy != null)
-
-            /**
-             * Compute the aggregates.
-             * 
-             * TODO This can be further optimized by computing the column
-             * projections of the different value expressions exactly once and
-             * then applying the aggregation functions to those column
-             * projections. As long as we adhere to the dependency ordering
-             * among those aggregates, we can compute them all in a single pass
-             * over the column projections.
-             * 
-             * TODO DISTINCT projections of columns projections can be modeled
-             * in a bunch of different ways, but if we need the original column
-             * projection as well as the DISTINCT of that column projection then
-             * it makes sense to either form the DISTINCT projection while
-             * building the column projection or as an after action.
-             */
-            {
-
-                final boolean nestedAggregates = groupByState.isNestedAggregates();
-                
-                final Iterator<Map.Entry<IAggregate<?>, IVariable<?>>> itr = rewrite
-                        .getAggExpr().entrySet().iterator();
+                    } else {
 
-                while (itr.hasNext()) {
-                
-                    final Map.Entry<IAggregate<?>, IVariable<?>> e = itr.next();
+                        val = new Constant(exprValue.getClass().cast(exprValue));
+                    }
                     
-                    // Aggregate.
-                    doAggregate(e.getKey(), e.getValue(), nestedAggregates,
-                            aggregates, solutions, stats);
                     
-                }
-                
-                if (log.isTraceEnabled())
-                    log.trace("aggregates: " + aggregates);
-                
-            }
 
-            // Evaluate SELECT expressions.
-            for (IValueExpression<?> expr : rewrite.getSelect2()) {
+                    // Variable to be projected out by SELECT.
+                    final IVariable<?> ovar = ((IBind<?>) expr).getVar();
+
+                    // Bind on [aggregates].
+                    aggregates.set(ovar, val);
 
-                try {
-                    expr.get(aggregates);
-                } catch (SparqlTypeErrorException ex) {
-                    TypeErrorLog.handleTypeError(ex, expr, stats);
-                    continue;
-                } catch (IllegalArgumentException ex) {
-                    /*
-                     * Note: This is a hack turning an IllegalArgumentException
-                     * which we presume is coming out of new Constant(null) into
-                     * an (implicit) SPARQL type error so we can drop the
-                     * binding for this SELECT expression. (Note that we are not
-                     * trying to drop the entire group!)
-                     */
-                    TypeErrorLog.handleTypeError(ex, expr, stats);
-                    continue;
                 }
 
-            }
+            } // next GROUP_BY value expression
 
-            /*
-             * Verify optional constraint(s).
-             * 
-             * TODO This could be done before fully computing the aggregates as
-             * we only need to have on hand those computed aggregates on which
-             * the HAVING clause depends.
-             */
-            {
-                final boolean drop;
-                final IConstraint[] having2 = rewrite.getHaving2();
-                if (having2 != null
-                        && !BOpUtility.isConsistent(having2, aggregates)) {
-                    // drop this solution.
-                    drop = true;
-                } else {
-                    drop = false;
-                }
+        } // if(groupBy != null)
 
-                if (log.isInfoEnabled())
-                    log.info((drop ? "drop" : "keep") + " : " + aggregates);
+        return aggregates;
 
-                if (drop) {
+    }
 
-                    // Drop this solution.
-                    return null;
+    /**
+     * Evaluate the (rewritten) SELECT expressions and HAVING clause against the
+     * computed aggregates for a solution group and project out the selected
+     * variables.
+     * 
+     * @param groupByState
+     *            The {@link IGroupByState}.
+     * @param rewrite
+     *            The {@link IGroupByRewriteState}.
+     * @param aggregates
+     *            The GROUP_BY values and the computed aggregates for the group.
+     * @param stats
+     *            Used to report type errors.
+     * 
+     * @return The aggregate solution -or- <code>null</code> if the solution
+     *         for the group was dropped (violated HAVING constraint).
+     */
+    static IBindingSet finish(final IGroupByState groupByState,
+            final IGroupByRewriteState rewrite, final IBindingSet aggregates,
+            final BOpStats stats) {
 
-                }
+        final IValueExpression<?>[] groupBy = groupByState.getGroupByClause();
+
+        // Evaluate SELECT expressions.
+        for (IValueExpression<?> expr : rewrite.getSelect2()) {
+
+            try {
+                expr.get(aggregates);
+            } catch (SparqlTypeErrorException ex) {
+                TypeErrorLog.handleTypeError(ex, expr, stats);
+                continue;
+            } catch (IllegalArgumentException ex) {
+                /*
+                 * Note: This is a hack turning an IllegalArgumentException
+                 * which we presume is coming out of new Constant(null) into
+                 * an (implicit) SPARQL type error so we can drop the
+                 * binding for this SELECT expression. (Note that we are not
+                 * trying to drop the entire group!)
+                 */
+                TypeErrorLog.handleTypeError(ex, expr, stats);
+                continue;
             }
 
-            // project out only selected variables  that
-            // are not assigned error values:
-            // "solutions containing error values are 
-            // removed at projection time"
-            // https://www.w3.org/TR/sparql11-query/#defn_algGroup
-            
-            final IBindingSet out;
-            
-            if (groupBy == null) { // implicit group
+        }
+
+        /*
+         * Verify optional constraint(s).
+         * 
+         * TODO This could be done before fully computing the aggregates as
+         * we only need to have on hand those computed aggregates on which
+         * the HAVING clause depends.
+         */
+        {
+            final boolean drop;
+            final IConstraint[] having2 = rewrite.getHaving2();
+            if (having2 != null
+                    && !BOpUtility.isConsistent(having2, aggregates)) {
+                // drop this solution.
+                drop = true;
+            } else {
+                drop = false;
+            }
 
-                assert !aggregates.containsErrorValues();
-                out = aggregates.copy(groupByState
-                        .getSelectVars().toArray(new IVariable[0]));
+            if (log.isInfoEnabled())
+                log.info((drop ? "drop" : "keep") + " : " + aggregates);
 
-            } else { // explicit group
+            if (drop) {
+
+                // Drop this solution.
+                return null;
 
-                out = aggregates.copyMinusErrors(groupByState
-                        .getSelectVars().toArray(new IVariable[0]));
             }
-            
-            return out;
+        }
+
+        // project out only selected variables  that
+        // are not assigned error values:
+        // "solutions containing error values are 
+        // removed at projection time"
+        // https://www.w3.org/TR/sparql11-query/#defn_algGroup
+        
+        final IBindingSet out;
+        
+        if (groupBy == null) { // implicit group
+
+            assert !aggregates.containsErrorValues();
+            out = aggregates.copy(groupByState
+                    .getSelectVars().toArray(new IVariable[0]));
+
+        } else { // explicit group
 
+            out = aggregates.copyMinusErrors(groupByState
+                    .getSelectVars().toArray(new IVariable[0]));
         }
+        
+        return out;
 
-    } // GroupByTask
+    }
 
     /**
      * Apply the value expression to each solution in the group.
@@ -889,7 +970,7 @@ public class MemoryGroupByOp extends GroupByOp {
      * @param aggregates
      * @param bset
      */
-    private static void propagateAggregateBindings(
+    static void propagateAggregateBindings(
             final IBindingSet aggregates, final IBindingSet bset) {
 
         @SuppressWarnings("rawtypes")
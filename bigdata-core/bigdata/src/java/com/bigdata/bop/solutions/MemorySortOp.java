@@ -45,22 +45,9 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * {@link IV}s and the ability of the value comparator to handle comparisons
  * between materialized non-inline {@link IV}s and inline {@link IV}s.
  * 
- * TODO External memory ORDER BY operator.
- * <p>
- * SPARQL ORDER BY semantics are complex and evaluating a SPARQL ORDER BY is
- * further complicated by the schema flexibility of the value to be sorted. The
- * simplest path to a true external memory sort operator would be to buffer and
- * manage paging for blocks of inline IVs without materialized RDF values s and
- * non-inline IVs with materialized RDF values.
- * <p>
- * An operator could also be written which buffers the solutions on the native
- * heap but the as-bound values which will be used to order those solutions are
- * either buffered on the JVM heap or materialized onto the JVM heap when the
- * sort is executed. This could scale better than a pure JVM heap version, but
- * only to the extent that the keys are smaller than the total solutions. The
- * solutions would probably be written as serialized binding sets on the memory
- * manager such that each solution has its own int32 address. That address can
- * then be paired with the as-bound key to be sorted on the JVM heap.
+ * Note: The JVM heap must be large enough to buffer all solutions. See
+ * {@link NativeHeapSortOp} for an external memory ORDER BY operator which
+ * spills sorted runs onto the native heap.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  * @version $Id: DistinctElementFilter.java 3466 2010-08-27 14:28:04Z
@@ -0,0 +1,1027 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 16, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.ContextBindingSet;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.ISingleThreadedOp;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.solutions.MemoryGroupByOp.SolutionGroup;
+import com.bigdata.btree.Checkpoint;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickCloseableIterator;
+import com.bigdata.rwstore.sector.IMemoryManager;
+import com.bigdata.rwstore.sector.MemStore;
+import com.bigdata.stream.Stream.StreamIndexMetadata;
+import com.bigdata.util.InnerCause;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A generalized aggregation operator which buffers the solutions on the native
+ * heap. This is the analytic query mode sibling of the {@link MemoryGroupByOp}
+ * and may be used to evaluate any aggregation request.
+ * <p>
+ * The operator is pipelined. Each time it runs, it computes the GROUP_BY value
+ * expressions for the incoming solutions and hash partitions the solutions
+ * into one of {@link Annotations#PARTITION_COUNT} partitions based on the
+ * as-bound group. Once {@link Annotations#RUN_CAPACITY} solutions have been
+ * buffered on the JVM heap, the buffered solutions for each partition are
+ * written onto the native heap as a {@link SolutionSetStream} backed by an
+ * allocation context of the query's {@link IMemoryManager}. Once the last
+ * chunk of source solutions has been observed, the partitions are aggregated
+ * one at a time. The solutions for a partition are streamed back from the
+ * native heap into incremental aggregation state for each group, so the JVM
+ * heap holds one accumulator per aggregate for each group of a single
+ * partition (plus the distinct values for DISTINCT aggregates) rather than
+ * the solutions themselves. When there are nested aggregates, each aggregate
+ * is computed by its own pass over the partition.
+ * <p>
+ * The aggregates for each group have the same semantics as for the
+ * {@link MemoryGroupByOp} (DISTINCT aggregates, nested aggregates, HAVING,
+ * error values). Groups are reported in partition order rather than in the
+ * order in which they were first observed.
+ * <p>
+ * Note: When there are no DISTINCT or nested aggregates and no dependencies
+ * among the SELECT expressions, the {@link PipelinedAggregationOp} should be
+ * used instead since it does not buffer the solutions at all.
+ * <p>
+ * Note: If all solutions fit on the JVM heap then nothing is written onto the
+ * native heap.
+ * 
+ * @see MemoryGroupByOp
+ * @see SolutionSetStream
+ */
+public class NativeHeapGroupByOp extends GroupByOp implements
+        ISingleThreadedOp {
+
+    private static final transient Logger log = Logger
+            .getLogger(NativeHeapGroupByOp.class);
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends GroupByOp.Annotations {
+
+        /**
+         * The #of hash partitions for the solution groups (default
+         * {@value #DEFAULT_PARTITION_COUNT}). The JVM heap required during the
+         * final aggregation phase is bounded by the size of the largest
+         * partition.
+         */
+        String PARTITION_COUNT = NativeHeapGroupByOp.class.getName()
+                + ".partitionCount";
+
+        int DEFAULT_PARTITION_COUNT = 64;
+
+        /**
+         * The maximum #of solutions which will be buffered on the JVM heap
+         * before they are written onto the native heap (default
+         * {@value #DEFAULT_RUN_CAPACITY}).
+         */
+        String RUN_CAPACITY = NativeHeapGroupByOp.class.getName()
+                + ".runCapacity";
+
+        int DEFAULT_RUN_CAPACITY = 100000;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns <code>false</code>. This is a generalized aggregation operator
+     * and may be used to evaluate any aggregation request.
+     */
+    @Override
+    final public boolean isPipelinedAggregationOp() {
+
+        return false;
+
+    }
+
+    /**
+     * Constructor required for {@link com.bigdata.bop.BOpUtility#deepCopy(FilterNode)}.
+     */
+    public NativeHeapGroupByOp(final NativeHeapGroupByOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public NativeHeapGroupByOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        getRequiredProperty(Annotations.GROUP_BY_STATE);
+
+        getRequiredProperty(Annotations.GROUP_BY_REWRITE);
+
+        if (!isLastPassRequested()) {
+            /*
+             * Note: A final evaluation pass is required to write out the
+             * aggregates.
+             */
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        /*
+         * Note: The operator MUST be single threaded in order to receive the
+         * isLastInvocation notice.
+         */
+        assertMaxParallelOne();
+
+        if (getPartitionCount() <= 0)
+            throw new IllegalArgumentException(Annotations.PARTITION_COUNT
+                    + "=" + getPartitionCount());
+
+        if (getRunCapacity() <= 0)
+            throw new IllegalArgumentException(Annotations.RUN_CAPACITY + "="
+                    + getRunCapacity());
+
+    }
+
+    public NativeHeapGroupByOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#PARTITION_COUNT
+     */
+    public int getPartitionCount() {
+
+        return getProperty(Annotations.PARTITION_COUNT,
+                Annotations.DEFAULT_PARTITION_COUNT);
+
+    }
+
+    /**
+     * @see Annotations#RUN_CAPACITY
+     */
+    public int getRunCapacity() {
+
+        return getProperty(Annotations.RUN_CAPACITY,
+                Annotations.DEFAULT_RUN_CAPACITY);
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new GroupByTask(this, context));
+
+    }
+
+    /**
+     * The state of the aggregation, which is hung off of the
+     * {@link IQueryAttributes} between invocations of the operator.
+     */
+    private static class GroupByState {
+
+        /**
+         * The allocation context on the native heap for the partitions
+         * (lazily created when the solutions are first spilled).
+         */
+        private MemStore store;
+
+        /**
+         * For each partition, the solutions which have been written onto the
+         * native heap.
+         */
+        private final List<SolutionSetStream>[] spilled;
+
+        /**
+         * For each partition, the solutions buffered on the JVM heap.
+         */
+        private final List<IBindingSet>[] buffered;
+
+        /**
+         * The #of solutions buffered on the JVM heap.
+         */
+        private int nbuffered = 0;
+
+        /**
+         * The #of solutions written onto the native heap.
+         */
+        private long nspilled = 0L;
+
+        @SuppressWarnings("unchecked")
+        GroupByState(final int npartitions) {
+
+            spilled = new List[npartitions];
+
+            buffered = new List[npartitions];
+
+            for (int i = 0; i < npartitions; i++) {
+
+                spilled[i] = new LinkedList<SolutionSetStream>();
+
+                buffered[i] = new ArrayList<IBindingSet>();
+
+            }
+
+        }
+
+        /**
+         * Release the native memory associated with the partitions.
+         */
+        void release() {
+
+            for (int i = 0; i < spilled.length; i++) {
+
+                for (SolutionSetStream ssstr : spilled[i]) {
+                    ssstr.close();
+                }
+
+                spilled[i].clear();
+
+                buffered[i].clear();
+
+            }
+
+            if (store != null) {
+                store.destroy();
+                store = null;
+            }
+
+        }
+
+    }
+
+    /**
+     * The incremental aggregation state for a solution group.
+     * <p>
+     * Note: Only DISTINCT aggregates retain anything per solution (the
+     * distinct values of their inner value expressions). All other aggregates
+     * are folded into their accumulator as the solutions are visited.
+     */
+    private static class GroupState {
+
+        /**
+         * The GROUP_BY values and the computed aggregates for the group.
+         */
+        private final IBindingSet aggregates;
+
+        /**
+         * The aggregates for the group (cloned to avoid side-effects across
+         * groups).
+         */
+        private final IAggregate<?>[] aggs;
+
+        /**
+         * The distinct values of the inner value expression for each DISTINCT
+         * aggregate (<code>null</code> for the other aggregates).
+         */
+        private final Set<Object>[] distinct;
+
+        /**
+         * <code>true</code> for an aggregate once a type error was observed.
+         * The aggregate is not bound for the group.
+         */
+        private final boolean[] failed;
+
+        @SuppressWarnings("unchecked")
+        GroupState(final BOpContext<IBindingSet> context,
+                final IValueExpression<?>[] groupBy,
+                final IAggregate<?>[] aggExpr, final IBindingSet aSolution) {
+
+            this.aggregates = MemoryGroupByOp.newAggregates(context, groupBy,
+                    aSolution);
+
+            this.aggs = new IAggregate<?>[aggExpr.length];
+
+            this.distinct = new Set[aggExpr.length];
+
+            this.failed = new boolean[aggExpr.length];
+
+            for (int k = 0; k < aggExpr.length; k++) {
+
+                // Note: IAggregates MUST be cloned to avoid side-effects.
+                aggs[k] = (IAggregate<?>) aggExpr[k].clone();
+
+                aggs[k].reset();
+
+                if (aggs[k].isDistinct())
+                    distinct[k] = new HashSet<Object>();
+
+            }
+
+        }
+
+        /**
+         * Apply an aggregate to a solution in the group.
+         * 
+         * @param k
+         *            The index of the aggregate.
+         * @param bset
+         *            The solution.
+         * @param propagate
+         *            When <code>true</code>, the bindings computed so far for
+         *            the group are propagated onto the solution first (nested
+         *            aggregates).
+         * @param stats
+         *            Used to report type errors.
+         */
+        @SuppressWarnings("rawtypes")
+        void accept(final int k, final IBindingSet bset,
+                final boolean propagate, final BOpStats stats) {
+
+            if (failed[k])
+                return;
+
+            final IAggregate<?> expr = aggs[k];
+
+            try {
+
+                if (distinct[k] != null) {
+
+                    final Object key;
+
+                    if (expr.isWildcard()) {
+
+                        // DISTINCT on the solution multiset.
+                        key = bset.clone();
+
+                    } else {
+
+                        // DISTINCT on the values of the inner expression.
+                        final Object[] vals = new Object[expr.arity()];
+
+                        for (int i = 0; i < vals.length; i++) {
+
+                            vals[i] = ((IValueExpression) expr.get(i))
+                                    .get(bset);
+
+                        }
+
+                        key = Arrays.asList(vals);
+
+                    }
+
+                    if (!distinct[k].add(key)) {
+
+                        // Not a new value.
+                        return;
+
+                    }
+
+                }
+
+                if (propagate)
+                    MemoryGroupByOp.propagateAggregateBindings(aggregates,
+                            bset);
+
+                expr.get(bset);
+
+            } catch (Throwable t) {
+
+                fail(k, t, stats);
+
+            }
+
+        }
+
+        /**
+         * Bind the value of an aggregate on {@link #aggregates} once all
+         * solutions for the group have been visited.
+         * 
+         * @param k
+         *            The index of the aggregate.
+         * @param var
+         *            The variable on which the aggregate is bound.
+         * @param stats
+         *            Used to report type errors.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        void done(final int k, final IVariable<?> var, final BOpStats stats) {
+
+            // The distinct values are no longer required.
+            distinct[k] = null;
+
+            if (failed[k])
+                return;
+
+            try {
+
+                final Object result = aggs[k].done();
+
+                if (result != null) {
+
+                    aggregates.set(var, new Constant(result));
+
+                }
+
+            } catch (Throwable t) {
+
+                fail(k, t, stats);
+
+            }
+
+        }
+
+        /**
+         * A type error leaves the aggregate unbound for the group. Any other
+         * error is thrown.
+         */
+        private void fail(final int k, final Throwable t, final BOpStats stats) {
+
+            if (InnerCause.isInnerCause(t, SparqlTypeErrorException.class)) {
+
+                // trap the type error and filter out the binding
+                TypeErrorLog.handleTypeError(t, aggs[k], stats);
+
+                failed[k] = true;
+
+                distinct[k] = null;
+
+                return;
+
+            }
+
+            throw new RuntimeException(t);
+
+        }
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class GroupByTask implements Callable<Void> {
+
+        private final NativeHeapGroupByOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final BOpStats stats;
+
+        private final IGroupByState groupByState;
+
+        private final IGroupByRewriteState rewrite;
+
+        private final IValueExpression<?>[] groupBy;
+
+        /**
+         * The aggregates to be computed (in dependency order).
+         */
+        private final IAggregate<?>[] aggExpr;
+
+        /**
+         * The variables on which the {@link #aggExpr} are bound.
+         */
+        private final IVariable<?>[] aggVars;
+
+        private final int npartitions;
+
+        private final int runCapacity;
+
+        /**
+         * The {@link IQueryAttributes} for the
+         * {@link com.bigdata.bop.engine.IRunningQuery} off which we will hang
+         * the aggregation state.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #state} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private GroupByState state;
+
+        GroupByTask(final NativeHeapGroupByOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = context.getStats();
+
+            this.groupByState = op.getGroupByState();
+
+            this.rewrite = op.getGroupByRewrite();
+
+            this.groupBy = groupByState.getGroupByClause();
+
+            this.aggExpr = rewrite.getAggExpr().keySet()
+                    .toArray(new IAggregate<?>[0]);
+
+            this.aggVars = rewrite.getAggExpr().values()
+                    .toArray(new IVariable<?>[0]);
+
+            // All solutions fall into a single implicit group.
+            this.npartitions = groupBy == null ? 1 : op.getPartitionCount();
+
+            this.runCapacity = op.getRunCapacity();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            /*
+             * Note: Since the operator is not thread-safe, we do not need to
+             * use a putIfAbsent pattern here.
+             */
+            state = (GroupByState) attrs.get(key);
+
+            if (state == null) {
+
+                state = new GroupByState(npartitions);
+
+                attrs.put(key, state);
+
+            }
+
+        }
+
+        void release() {
+
+            if (log.isInfoEnabled())
+                log.info("Releasing state");
+
+            attrs.remove(key);
+
+            state.release();
+
+            state = null;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                acceptSolutions(itr);
+
+                if (lastInvocation) {
+
+                    doGroupBy(sink);
+
+                }
+
+            } catch (Throwable t) {
+
+                log.error(t, t);
+
+                throw new RuntimeException(t);
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    release();
+
+                }
+
+                sink.close();
+
+            }
+
+            // Done.
+            return null;
+
+        }
+
+        /**
+         * Assign each source solution to the partition for its group. Each
+         * time {@link #runCapacity} solutions have been buffered, the
+         * buffered solutions are written onto the native heap.
+         * 
+         * @param itr
+         *            The source solutions.
+         */
+        private void acceptSolutions(
+                final ICloseableIterator<IBindingSet[]> itr) {
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IBindingSet[] a = itr.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(a.length);
+
+                    for (IBindingSet bset : a) {
+
+                        final int partition;
+
+                        if (groupBy == null) {
+
+                            partition = 0;
+
+                        } else {
+
+                            /*
+                             * Note: A BIND() in the GROUP_BY clause has a
+                             * side-effect on [bset].
+                             */
+                            final SolutionGroup s = SolutionGroup.newInstance(
+                                    groupBy, bset, stats);
+
+                            partition = (s.hashCode() & 0x7fffffff)
+                                    % npartitions;
+
+                        }
+
+                        state.buffered[partition].add(bset);
+
+                        if (++state.nbuffered >= runCapacity) {
+
+                            spill();
+
+                        }
+
+                    } // next source solution
+
+                }
+
+                if (log.isInfoEnabled())
+                    log.info("Buffered " + state.nbuffered
+                            + " solutions on the JVM heap, "
+                            + state.nspilled + " solutions on the native heap");
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        } // acceptSolutions
+
+        /**
+         * Write the buffered solutions for each partition onto the native
+         * heap.
+         */
+        private void spill() {
+
+            if (state.store == null) {
+
+                final IMemoryManager mmgr = context.getRunningQuery()
+                        .getMemoryManager();
+
+                state.store = new MemStore(mmgr.createAllocationContext());
+
+            }
+
+            for (int i = 0; i < npartitions; i++) {
+
+                final List<IBindingSet> buffer = state.buffered[i];
+
+                if (buffer.isEmpty())
+                    continue;
+
+                final StreamIndexMetadata metadata = new StreamIndexMetadata(
+                        UUID.randomUUID());
+
+                final Checkpoint checkpoint = new Checkpoint(metadata);
+
+                final SolutionSetStream ssstr = new SolutionSetStream(
+                        state.store, checkpoint, metadata, false/* readOnly */);
+
+                final ThickCloseableIterator<IBindingSet[]> itr = new ThickCloseableIterator<IBindingSet[]>(
+                        new IBindingSet[][] { buffer
+                                .toArray(new IBindingSet[buffer.size()]) });
+
+                try {
+                    ssstr.put(itr);
+                } finally {
+                    itr.close();
+                }
+
+                state.spilled[i].add(ssstr);
+
+                state.buffered[i] = new ArrayList<IBindingSet>();
+
+            }
+
+            state.nspilled += state.nbuffered;
+
+            if (log.isInfoEnabled())
+                log.info("Spilled " + state.nbuffered
+                        + " solutions: nspilled=" + state.nspilled);
+
+            state.nbuffered = 0;
+
+        }
+
+        /**
+         * Aggregate the solutions for each partition in turn and write the
+         * aggregated solutions onto the sink. The solutions for a partition
+         * are streamed from the native heap into the {@link GroupState} for
+         * their group, so only the incremental aggregation state for the
+         * groups of a single partition is on the JVM heap at any given time.
+         * 
+         * @param sink
+         *            Where to write the results.
+         */
+        private void doGroupBy(final IBlockingBuffer<IBindingSet[]> sink) {
+
+            final long begin = System.currentTimeMillis();
+
+            final int chunkCapacity = op.getChunkCapacity();
+
+            final List<IBindingSet> accepted = new ArrayList<IBindingSet>(
+                    chunkCapacity);
+
+            final boolean nestedAggregates = groupByState.isNestedAggregates();
+
+            long ngroups = 0, nout = 0;
+
+            for (int i = 0; i < npartitions; i++) {
+
+                final LinkedHashMap<SolutionGroup, GroupState> groups = new LinkedHashMap<SolutionGroup, GroupState>();
+
+                if (groupBy == null) {
+
+                    /*
+                     * All solutions fall into a single implicit group, which
+                     * is reported even if there are no solutions.
+                     */
+                    groups.put(null, new GroupState(context, null/* groupBy */,
+                            aggExpr, null/* aSolution */));
+
+                }
+
+                if (nestedAggregates) {
+
+                    /*
+                     * An aggregate can depend on the aggregates which precede
+                     * it, so each aggregate is computed by its own pass over
+                     * the partition once the preceding aggregates are known.
+                     */
+                    for (int k = 0; k < aggVars.length; k++) {
+
+                        scanPartition(i, groups, k);
+
+                        for (GroupState g : groups.values()) {
+
+                            g.done(k, aggVars[k], stats);
+
+                        }
+
+                    }
+
+                } else {
+
+                    // All aggregates are computed by a single pass.
+                    scanPartition(i, groups, -1/* all */);
+
+                    for (GroupState g : groups.values()) {
+
+                        for (int k = 0; k < aggVars.length; k++) {
+
+                            g.done(k, aggVars[k], stats);
+
+                        }
+
+                    }
+
+                }
+
+                // Release the native memory for the partition.
+                releasePartition(i);
+
+                for (Map.Entry<SolutionGroup, GroupState> e : groups
+                        .entrySet()) {
+
+                    final IBindingSet bset = MemoryGroupByOp.finish(
+                            groupByState, rewrite, e.getValue().aggregates,
+                            stats);
+
+                    ngroups++;
+
+                    if (bset != null) {
+
+                        if (log.isDebugEnabled())
+                            log.debug("output: groupBy=" + e.getKey()
+                                    + ", solution=" + bset);
+
+                        accepted.add(bset);
+
+                        if (accepted.size() >= chunkCapacity) {
+
+                            sink.add(accepted.toArray(new IBindingSet[accepted
+                                    .size()]));
+
+                            nout += accepted.size();
+
+                            accepted.clear();
+
+                        }
+
+                    }
+
+                }
+
+                // discard the groups for this partition.
+                groups.clear();
+
+            }
+
+            if (!accepted.isEmpty()) {
+
+                sink.add(accepted.toArray(new IBindingSet[accepted.size()]));
+
+                nout += accepted.size();
+
+            }
+
+            sink.flush();
+
+            if (log.isInfoEnabled())
+                log.info("Aggregated " + ngroups + " groups (" + nout
+                        + " solutions out) in "
+                        + (System.currentTimeMillis() - begin) + "ms.");
+
+        }
+
+        /**
+         * Stream the solutions for a partition from the native heap and the
+         * JVM heap into the {@link GroupState}s for their groups.
+         * 
+         * @param partition
+         *            The partition.
+         * @param groups
+         *            The groups for the partition. Groups are added when they
+         *            are first observed.
+         * @param k
+         *            The index of the aggregate to be computed -or-
+         *            <code>-1</code> to compute all aggregates.
+         */
+        private void scanPartition(final int partition,
+                final Map<SolutionGroup, GroupState> groups, final int k) {
+
+            for (SolutionSetStream ssstr : state.spilled[partition]) {
+
+                final ICloseableIterator<IBindingSet[]> itr = ssstr.get();
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        for (IBindingSet bset : itr.next()) {
+
+                            /*
+                             * Note: Solutions read back from the native heap
+                             * are not wrapped, but function BOPs may need the
+                             * context (e.g., for the lexicon configuration).
+                             */
+                            accept(groups, new ContextBindingSet(context,
+                                    bset), k);
+
+                        }
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+            }
+
+            for (IBindingSet bset : state.buffered[partition]) {
+
+                accept(groups, bset, k);
+
+            }
+
+        }
+
+        private void accept(final Map<SolutionGroup, GroupState> groups,
+                final IBindingSet bset, final int k) {
+
+            /*
+             * Note: A BIND() in the GROUP_BY clause has a side-effect on
+             * [bset].
+             */
+            final SolutionGroup s = groupBy == null ? null : SolutionGroup
+                    .newInstance(groupBy, bset, stats);
+
+            GroupState g = groups.get(s);
+
+            if (g == null) {
+
+                groups.put(s, g = new GroupState(context, groupBy, aggExpr,
+                        bset));
+
+            }
+
+            if (k == -1) {
+
+                for (int j = 0; j < aggVars.length; j++) {
+
+                    g.accept(j, bset, false/* propagate */, stats);
+
+                }
+
+            } else {
+
+                g.accept(k, bset, true/* propagate */, stats);
+
+            }
+
+        }
+
+        /**
+         * Release the native memory and the JVM heap buffer for a partition.
+         * 
+         * @param partition
+         *            The partition.
+         */
+        private void releasePartition(final int partition) {
+
+            final List<SolutionSetStream> spilled = state.spilled[partition];
+
+            for (SolutionSetStream ssstr : spilled) {
+
+                ssstr.clear();
+
+                ssstr.close();
+
+            }
+
+            spilled.clear();
+
+            state.buffered[partition].clear();
+
+        }
+
+    } // GroupByTask
+
+} // NativeHeapGroupByOp
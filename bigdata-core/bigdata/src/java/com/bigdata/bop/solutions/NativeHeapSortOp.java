@@ -0,0 +1,757 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 16, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.IBind;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.ISingleThreadedOp;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.btree.Checkpoint;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickCloseableIterator;
+import com.bigdata.rwstore.sector.IMemoryManager;
+import com.bigdata.rwstore.sector.MemStore;
+import com.bigdata.stream.Stream.StreamIndexMetadata;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * An external memory merge sort for binding sets. This is the analytic query
+ * mode sibling of the {@link MemorySortOp}. The operator is pipelined. Each
+ * time it runs, it evaluates the value expressions on which the ordering will
+ * be imposed, binding the results on the incoming solutions, and buffers the
+ * as-bound solutions in a run on the JVM heap. When the run reaches
+ * {@link Annotations#RUN_CAPACITY} solutions it is sorted and written onto the
+ * native heap as a {@link SolutionSetStream} backed by an allocation context
+ * of the query's {@link IMemoryManager}. Once the last chunk of source
+ * solutions has been observed, the sorted runs are combined using a k-way
+ * merge. During the merge, only the head solution of each run is decoded onto
+ * the JVM heap.
+ * <p>
+ * The handling of type errors, {@link IBind}s and the requirement for
+ * materialized non-inline {@link com.bigdata.rdf.internal.IV}s is the same as
+ * for the {@link MemorySortOp}. The materialized RDF Values travel with the
+ * solutions in the encoded runs, so the comparator can be applied to the
+ * decoded solutions during the merge.
+ * <p>
+ * Note: If all solutions fit into a single run then nothing is written onto
+ * the native heap and the sort is performed entirely on the JVM heap.
+ *
+ * @see MemorySortOp
+ * @see SolutionSetStream
+ */
+public class NativeHeapSortOp extends SortOp implements ISingleThreadedOp {
+
+    private static final transient Logger log = Logger
+            .getLogger(NativeHeapSortOp.class);
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends SortOp.Annotations {
+
+        /**
+         * The maximum #of solutions which will be buffered on the JVM heap
+         * before they are sorted and written onto the native heap as a sorted
+         * run (default {@value #DEFAULT_RUN_CAPACITY}). Larger values produce
+         * fewer runs and hence a cheaper merge at the expense of more JVM heap
+         * during the run formation phase.
+         */
+        String RUN_CAPACITY = NativeHeapSortOp.class.getName()
+                + ".runCapacity";
+
+        int DEFAULT_RUN_CAPACITY = 100000;
+
+    }
+
+    /**
+     * Constructor required for {@link com.bigdata.bop.BOpUtility#deepCopy(FilterNode)}.
+     */
+    public NativeHeapSortOp(final NativeHeapSortOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public NativeHeapSortOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        assertMaxParallelOne();
+
+        if (!isLastPassRequested()) {
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        // ORDER_BY must preserve order.
+        if (isReorderSolutions())
+            throw new UnsupportedOperationException(
+                    Annotations.REORDER_SOLUTIONS + "=" + isReorderSolutions());
+
+        if (getRunCapacity() <= 0)
+            throw new IllegalArgumentException(Annotations.RUN_CAPACITY + "="
+                    + getRunCapacity());
+
+        // required parameter.
+        getValueComparator();
+
+        // validate required parameter.
+        for (ISortOrder<?> s : getSortOrder()) {
+
+            final IValueExpression<?> expr = s.getExpr();
+
+            if (expr instanceof IVariableOrConstant<?>)
+                continue;
+
+            if (expr instanceof IBind<?>)
+                continue;
+
+            throw new IllegalArgumentException(
+                    "Value expression not wrapped by bind: " + expr);
+
+        }
+
+    }
+
+    public NativeHeapSortOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#RUN_CAPACITY
+     */
+    public int getRunCapacity() {
+
+        return getProperty(Annotations.RUN_CAPACITY,
+                Annotations.DEFAULT_RUN_CAPACITY);
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new SortTask(this, context));
+
+    }
+
+    /**
+     * The state of the sort, which is hung off of the {@link IQueryAttributes}
+     * between invocations of the operator.
+     */
+    private static class SortState {
+
+        /**
+         * The allocation context on the native heap for the sorted runs
+         * (lazily created when the first run is spilled).
+         */
+        private MemStore store;
+
+        /**
+         * The sorted runs which have been written onto the native heap.
+         */
+        private final List<SolutionSetStream> runs = new LinkedList<SolutionSetStream>();
+
+        /**
+         * The solutions buffered on the JVM heap for the current run.
+         */
+        private ArrayList<IBindingSet> run = new ArrayList<IBindingSet>();
+
+        /**
+         * The #of solutions written onto the native heap.
+         */
+        private long nspilled = 0L;
+
+        /**
+         * Release the native memory associated with the sorted runs.
+         */
+        void release() {
+
+            for (SolutionSetStream ssstr : runs) {
+                ssstr.close();
+            }
+
+            runs.clear();
+
+            run = null;
+
+            if (store != null) {
+                store.destroy();
+                store = null;
+            }
+
+        }
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class SortTask implements Callable<Void> {
+
+        private final NativeHeapSortOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final BOpStats stats;
+
+        private final ISortOrder<?>[] sortOrder;
+
+        private final Comparator<IBindingSet> comparator;
+
+        private final int runCapacity;
+
+        /**
+         * The {@link IQueryAttributes} for the
+         * {@link com.bigdata.bop.engine.IRunningQuery} off which we will hang
+         * the sort state.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #state} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private SortState state;
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        SortTask(final NativeHeapSortOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = context.getStats();
+
+            this.sortOrder = op.getSortOrder();
+
+            this.comparator = new BindingSetComparator(sortOrder,
+                    op.getValueComparator());
+
+            this.runCapacity = op.getRunCapacity();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            /*
+             * Note: Since the operator is not thread-safe, we do not need to
+             * use a putIfAbsent pattern here.
+             */
+            state = (SortState) attrs.get(key);
+
+            if (state == null) {
+
+                state = new SortState();
+
+                attrs.put(key, state);
+
+            }
+
+        }
+
+        void release() {
+
+            if (log.isInfoEnabled())
+                log.info("Releasing state");
+
+            attrs.remove(key);
+
+            state.release();
+
+            state = null;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                acceptSolutions(itr);
+
+                if (lastInvocation) {
+
+                    doOrderBy(sink);
+
+                }
+
+            } catch (Throwable t) {
+
+                log.error(t, t);
+
+                throw new RuntimeException(t);
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    release();
+
+                }
+
+                sink.close();
+
+            }
+
+            // Done.
+            return null;
+
+        }
+
+        /**
+         * Evaluate the value expressions for each input solution and buffer
+         * the as-bound solutions. Each time the current run is full, it is
+         * sorted and spilled onto the native heap.
+         *
+         * @param itr
+         *            The source solutions.
+         */
+        private void acceptSolutions(
+                final ICloseableIterator<IBindingSet[]> itr) {
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IBindingSet[] a = itr.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(a.length);
+
+                    for (IBindingSet bset : a) {
+
+                        // Note: Necessary scope for type error reporting.
+                        IValueExpression<?> expr = null;
+
+                        try {
+
+                            for (ISortOrder<?> s : sortOrder) {
+
+                                /*
+                                 * Evaluate. A BIND() will have side-effect on
+                                 * [bset].
+                                 */
+                                (expr = s.getExpr()).get(bset);
+
+                            }
+
+                        } catch (SparqlTypeErrorException ex) {
+
+                            // log type error, do not drop solution (see trac 765).
+                            TypeErrorLog.handleTypeError(ex, expr, stats);
+
+                        }
+
+                        state.run.add(bset);
+
+                        if (state.run.size() >= runCapacity) {
+
+                            spillRun();
+
+                        }
+
+                    } // next source solution
+
+                }
+
+                if (log.isInfoEnabled())
+                    log.info("Buffered " + state.run.size()
+                            + " solutions on the JVM heap, "
+                            + state.nspilled + " solutions in "
+                            + state.runs.size() + " runs on the native heap");
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        } // acceptSolutions
+
+        /**
+         * Sort the buffered solutions on the JVM heap.
+         */
+        private IBindingSet[] sortRun() {
+
+            final IBindingSet[] all = state.run
+                    .toArray(new IBindingSet[state.run.size()]);
+
+            final long begin = System.currentTimeMillis();
+
+            // Note: stable sort.
+            Arrays.sort(all, comparator);
+
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            if (log.isDebugEnabled())
+                log.debug("Sorted " + all.length + " solutions in " + elapsed
+                        + "ms.");
+
+            state.run = new ArrayList<IBindingSet>();
+
+            return all;
+
+        }
+
+        /**
+         * Sort the current run and write it onto the native heap.
+         */
+        private void spillRun() {
+
+            if (state.run.isEmpty())
+                return;
+
+            final IBindingSet[] sorted = sortRun();
+
+            if (state.store == null) {
+
+                final IMemoryManager mmgr = context.getRunningQuery()
+                        .getMemoryManager();
+
+                state.store = new MemStore(mmgr.createAllocationContext());
+
+            }
+
+            final StreamIndexMetadata metadata = new StreamIndexMetadata(
+                    UUID.randomUUID());
+
+            final Checkpoint checkpoint = new Checkpoint(metadata);
+
+            final SolutionSetStream ssstr = new SolutionSetStream(state.store,
+                    checkpoint, metadata, false/* readOnly */);
+
+            final ThickCloseableIterator<IBindingSet[]> itr = new ThickCloseableIterator<IBindingSet[]>(
+                    new IBindingSet[][] { sorted });
+
+            try {
+                ssstr.put(itr);
+            } finally {
+                itr.close();
+            }
+
+            state.runs.add(ssstr);
+
+            state.nspilled += sorted.length;
+
+            if (log.isInfoEnabled())
+                log.info("Spilled run: nsolutions=" + sorted.length
+                        + ", nruns=" + state.runs.size() + ", bytes="
+                        + state.store.getByteCount(ssstr.getRootAddr()));
+
+        }
+
+        /**
+         * Sort the solutions based on the as-bound value expressions and write
+         * them onto the sink.
+         *
+         * @param sink
+         *            Where to write the results.
+         */
+        private void doOrderBy(final IBlockingBuffer<IBindingSet[]> sink) {
+
+            if (state.runs.isEmpty()) {
+
+                /*
+                 * Everything fits on the JVM heap in a single run.
+                 */
+
+                final IBindingSet[] all = sortRun();
+
+                for (IBindingSet bset : all) {
+                    dropComputedBindings(bset);
+                }
+
+                if (all.length > 0) {
+                    sink.add(all);
+                }
+
+                sink.flush();
+
+                return;
+
+            }
+
+            // Spill the last run so all runs are on the native heap.
+            spillRun();
+
+            if (log.isInfoEnabled())
+                log.info("Merging " + state.runs.size() + " runs ("
+                        + state.nspilled + " solutions)");
+
+            final long begin = System.currentTimeMillis();
+
+            final PriorityQueue<RunCursor> heap = new PriorityQueue<RunCursor>(
+                    state.runs.size(), new RunCursorComparator(comparator));
+
+            int runIndex = 0;
+
+            for (SolutionSetStream ssstr : state.runs) {
+
+                final RunCursor cursor = new RunCursor(runIndex++, ssstr.get());
+
+                if (cursor.advance())
+                    heap.add(cursor);
+                else
+                    cursor.close();
+
+            }
+
+            final int chunkCapacity = op.getChunkCapacity();
+
+            IBindingSet[] chunk = new IBindingSet[chunkCapacity];
+
+            int n = 0;
+
+            long nout = 0;
+
+            RunCursor cursor;
+
+            try {
+
+                while ((cursor = heap.poll()) != null) {
+
+                    final IBindingSet bset = cursor.head;
+
+                    dropComputedBindings(bset);
+
+                    chunk[n++] = bset;
+
+                    if (n == chunkCapacity) {
+
+                        sink.add(chunk);
+
+                        nout += n;
+
+                        chunk = new IBindingSet[chunkCapacity];
+
+                        n = 0;
+
+                    }
+
+                    if (cursor.advance()) {
+
+                        heap.add(cursor);
+
+                    } else {
+
+                        cursor.close();
+
+                    }
+
+                }
+
+                if (n > 0) {
+
+                    final IBindingSet[] tmp = new IBindingSet[n];
+
+                    System.arraycopy(chunk, 0, tmp, 0, n);
+
+                    sink.add(tmp);
+
+                    nout += n;
+
+                }
+
+            } finally {
+
+                while ((cursor = heap.poll()) != null) {
+
+                    cursor.close();
+
+                }
+
+            }
+
+            sink.flush();
+
+            if (log.isInfoEnabled())
+                log.info("Merged " + nout + " solutions in "
+                        + (System.currentTimeMillis() - begin) + "ms.");
+
+        }
+
+        /**
+         * Drop variables for computed value expressions.
+         */
+        private void dropComputedBindings(final IBindingSet bset) {
+
+            for (ISortOrder<?> s : sortOrder) {
+
+                final IValueExpression<?> expr = s.getExpr();
+
+                if (expr instanceof IBind) {
+
+                    bset.clear(((IBind<?>) expr).getVar());
+
+                }
+
+            }
+
+        }
+
+    } // SortTask
+
+    /**
+     * A cursor visiting the solutions in a sorted run which have been decoded
+     * from the native heap.
+     */
+    private static class RunCursor {
+
+        /** The index of the run (used to keep the merge stable). */
+        private final int runIndex;
+
+        private final ICloseableIterator<IBindingSet[]> src;
+
+        private IBindingSet[] chunk = null;
+
+        private int index = 0;
+
+        /** The current solution. */
+        private IBindingSet head = null;
+
+        RunCursor(final int runIndex, final ICloseableIterator<IBindingSet[]> src) {
+
+            this.runIndex = runIndex;
+
+            this.src = src;
+
+        }
+
+        /**
+         * Advance to the next solution in the run.
+         *
+         * @return <code>false</code> iff the run is exhausted.
+         */
+        boolean advance() {
+
+            while (chunk == null || index >= chunk.length) {
+
+                if (!src.hasNext()) {
+
+                    head = null;
+
+                    return false;
+
+                }
+
+                chunk = src.next();
+
+                index = 0;
+
+            }
+
+            head = chunk[index++];
+
+            return true;
+
+        }
+
+        void close() {
+
+            src.close();
+
+        }
+
+    }
+
+    /**
+     * Orders the {@link RunCursor}s by their head solution, breaking ties by
+     * the run index so the merge preserves the order of equal solutions.
+     */
+    private static class RunCursorComparator implements Comparator<RunCursor> {
+
+        private final Comparator<IBindingSet> comparator;
+
+        RunCursorComparator(final Comparator<IBindingSet> comparator) {
+
+            this.comparator = comparator;
+
+        }
+
+        @Override
+        public int compare(final RunCursor o1, final RunCursor o2) {
+
+            final int ret = comparator.compare(o1.head, o2.head);
+
+            if (ret != 0)
+                return ret;
+
+            return o1.runIndex < o2.runIndex ? -1
+                    : o1.runIndex == o2.runIndex ? 0 : 1;
+
+        }
+
+    }
+
+} // NativeHeapSortOp
@@ -1,11 +1,13 @@
 package com.bigdata.bop.solutions;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.FutureTask;
 
 import org.apache.log4j.Logger;
@@ -20,13 +22,14 @@ import com.bigdata.bop.IBind;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IConstraint;
-import com.bigdata.bop.ISingleThreadedOp;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.aggregate.IDecomposableAggregate;
 import com.bigdata.bop.bindingSet.ListBindingSet;
 import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.rdf.error.SparqlTypeErrorException;
 import com.bigdata.rdf.sparql.ast.FilterNode;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
@@ -44,10 +47,17 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * Note: This implementation is a pipelined operator which inspects each chunk
  * of solutions as they arrive. The state is shared across invocations of the
  * operator for each source chunk. The operator waits until the last chunk has
- * been consumed before writing the output solutions. In order to observe the
- * lastInvocation signal, the operator MUST be single threaded (
- * {@link PipelineOp.Annotations#MAX_PARALLEL}:=1) and running on the query
- * controller.
+ * been consumed before writing the output solutions. The operator MUST run on
+ * the query controller.
+ * <p>
+ * Note: If all aggregates are {@link IDecomposableAggregate}s (e.g., COUNT,
+ * SUM, MIN, MAX, and AVERAGE), then the operator may be evaluated with
+ * {@link PipelineOp.Annotations#MAX_PARALLEL} GT ONE (1). Each concurrent
+ * invocation then updates its own partial aggregation state and the partial
+ * states are combined by the last invocation, which the {@link QueryEngine}
+ * never runs concurrently with another invocation of the same operator.
+ * Otherwise the operator MUST be single threaded (
+ * {@link PipelineOp.Annotations#MAX_PARALLEL}:=1).
  * <p>
  * Note: Since this operator evaluates {@link IAggregate}s incrementally (one
  * input solution at a time), it relies on {@link IAggregate}'s contract for
@@ -62,8 +72,7 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  */
-public class PipelinedAggregationOp extends GroupByOp implements
-        ISingleThreadedOp {
+public class PipelinedAggregationOp extends GroupByOp {
 
 	private final static transient Logger log = Logger
 			.getLogger(PipelinedAggregationOp.class);
@@ -139,10 +148,54 @@ public class PipelinedAggregationOp extends GroupByOp implements
         }
         
         /*
-         * Note: The operator MUST be single threaded in order to receive the
-         * isLastInvocation notice.
+         * Note: The operator MUST be single threaded unless all aggregates can
+         * be decomposed into partial aggregates (this is also checked by the
+         * PipelineOp constructor since a last pass is required).
          */
-        assertMaxParallelOne();
+        if (getMaxParallel() != 1 && !isParallelLastPassAllowed()) {
+            throw new IllegalArgumentException(Annotations.MAX_PARALLEL + "="
+                    + getMaxParallel());
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns <code>true</code> iff all aggregates are
+     * {@link IDecomposableAggregate}s.
+     */
+    @Override
+    protected boolean isParallelLastPassAllowed() {
+
+        final IGroupByRewriteState rewrite = (IGroupByRewriteState) getProperty(Annotations.GROUP_BY_REWRITE);
+
+        if (rewrite == null)
+            return false;
+
+        return isDecomposable(rewrite);
+
+    }
+
+    /**
+     * Return <code>true</code> iff each aggregate in the rewritten aggregation
+     * request is an {@link IDecomposableAggregate} which does not use
+     * DISTINCT. When <code>true</code>, the operator may be evaluated with
+     * {@link PipelineOp.Annotations#MAX_PARALLEL} GT ONE (1).
+     * 
+     * @param rewrite
+     *            The rewritten aggregation request.
+     */
+    static public boolean isDecomposable(final IGroupByRewriteState rewrite) {
+
+        for (IAggregate<?> a : rewrite.getAggExpr().keySet()) {
+
+            if (!(a instanceof IDecomposableAggregate) || a.isDistinct())
+                return false;
+
+        }
+
+        return true;
 
     }
 
@@ -462,9 +515,11 @@ public class PipelinedAggregationOp extends GroupByOp implements
     }
 
     /**
-     * Shared execution state for the {@link PipelinedAggregationOp}.
+     * Partial aggregation state. There is one instance for each concurrent
+     * invocation of the {@link ChunkTask}. When the operator is single
+     * threaded, there is only one instance.
      */
-    private static class SharedState {
+    private static class PartialState {
 
         /**
          * A map whose keys are the bindings on the specified variables and
@@ -488,13 +543,53 @@ public class PipelinedAggregationOp extends GroupByOp implements
          */
         private final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr;
 
+        PartialState(
+                final LinkedHashMap<SolutionGroup, SolutionGroupState> map,
+                final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr) {
+
+            this.map = map;
+
+            this.aggExpr = aggExpr;
+
+        }
+
+    }
+
+    /**
+     * Shared execution state for the {@link PipelinedAggregationOp}.
+     */
+    private static class SharedState {
+
+        private final PipelinedAggregationOp op;
+
+        private final AggregateStats stats;
+
+        /**
+         * The {@link PartialState}s which are not in use by a {@link ChunkTask}.
+         */
+        private final ConcurrentLinkedQueue<PartialState> idle = new ConcurrentLinkedQueue<PartialState>();
+
+        /**
+         * All {@link PartialState}s in the order in which they were created.
+         * The other partial states are merged into the first one by the last
+         * invocation.
+         * <p>
+         * Note: This is guarded by its own monitor.
+         */
+        private final List<PartialState> partials = new LinkedList<PartialState>();
+
         SharedState(final PipelinedAggregationOp op, final AggregateStats stats) {
 
+            this.op = op;
+
+            this.stats = stats;
+
+            final PartialState first;
+
             if (stats.groupByState.getGroupByClause() == null) {
             
-                map = null;
-                
-                aggExpr = stats.rewrite.getAggExpr();
+                first = new PartialState(null/* map */,
+                        stats.rewrite.getAggExpr());
                 
             } else {
 
@@ -502,15 +597,130 @@ public class PipelinedAggregationOp extends GroupByOp implements
                  * The map is only defined if a GROUP_BY clause was used.
                  */
                 
-                map = new LinkedHashMap<SolutionGroup, SolutionGroupState>(
-                        op.getInitialCapacity(), op.getLoadFactor());
-                
-                aggExpr = null;
+                first = new PartialState(
+                        new LinkedHashMap<SolutionGroup, SolutionGroupState>(
+                                op.getInitialCapacity(), op.getLoadFactor()),
+                        null/* aggExpr */);
                 
             }
 
+            partials.add(first);
+
+            idle.add(first);
+
         }
-        
+
+        /**
+         * Return a {@link PartialState} which is not in use by any other
+         * {@link ChunkTask}, creating a new one if necessary.
+         */
+        PartialState acquire() {
+
+            PartialState p = idle.poll();
+
+            if (p != null)
+                return p;
+
+            if (stats.groupByState.getGroupByClause() == null) {
+
+                final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr = new LinkedHashMap<IAggregate<?>, IVariable<?>>();
+
+                for (Map.Entry<IAggregate<?>, IVariable<?>> e : stats.rewrite
+                        .getAggExpr().entrySet()) {
+
+                    // Note: IAggregates MUST be cloned to avoid side-effects.
+                    aggExpr.put((IAggregate<?>) e.getKey().clone(),
+                            e.getValue());
+
+                }
+
+                p = new PartialState(null/* map */, aggExpr);
+
+            } else {
+
+                p = new PartialState(
+                        new LinkedHashMap<SolutionGroup, SolutionGroupState>(
+                                op.getInitialCapacity(), op.getLoadFactor()),
+                        null/* aggExpr */);
+
+            }
+
+            synchronized (partials) {
+
+                partials.add(p);
+
+            }
+
+            return p;
+
+        }
+
+        /**
+         * Return a {@link PartialState} once the {@link ChunkTask} is done
+         * with it.
+         */
+        void release(final PartialState p) {
+
+            idle.add(p);
+
+        }
+
+        /**
+         * Merge the {@link PartialState}s into the first one and return it.
+         * <p>
+         * Note: This is only invoked for the last invocation, at which point no
+         * other {@link ChunkTask} is running for this operator.
+         */
+        PartialState merge() {
+
+            synchronized (partials) {
+
+                final Iterator<PartialState> itr = partials.iterator();
+
+                final PartialState first = itr.next();
+
+                while (itr.hasNext()) {
+
+                    final PartialState p = itr.next();
+
+                    if (first.map == null) {
+
+                        // A single implicit group.
+                        mergeAggregates(first.aggExpr, p.aggExpr);
+
+                    } else {
+
+                        for (Map.Entry<SolutionGroup, SolutionGroupState> e : p.map
+                                .entrySet()) {
+
+                            final SolutionGroupState t = first.map.get(e
+                                    .getKey());
+
+                            if (t == null) {
+
+                                // Group was only observed by this partial.
+                                first.map.put(e.getKey(), e.getValue());
+
+                            } else {
+
+                                mergeAggregates(t.aggExpr, e.getValue().aggExpr);
+
+                            }
+
+                        }
+
+                    }
+
+                    itr.remove();
+
+                }
+
+                return first;
+
+            }
+
+        }
+
     }
     
     /**
@@ -521,26 +731,9 @@ public class PipelinedAggregationOp extends GroupByOp implements
         private final BOpContext<IBindingSet> context;
 
         /**
-         * A map whose keys are the bindings on the specified variables and
-         * whose values are the per-group state.
-         * <p>
-         * Note: The map is shared state and can not be discarded or cleared
-         * until the last invocation!!!
-         * <p>
-         * Note: This is only iff an explicit GROUP_BY clause is used.
+         * The shared state, which provides the {@link PartialState}s.
          */
-        private final LinkedHashMap<SolutionGroup, SolutionGroupState> map;
-
-        /**
-         * The aggregates to be computed (they have internal state).
-         * <p>
-         * Note: The map is shared state and can not be discarded or cleared
-         * until the last invocation!!!
-         * <p>
-         * Note: This is bound iff all solutions will be collected within a
-         * single implicit group.
-         */
-        private final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr;
+        private final SharedState sharedState;
         
         private final IGroupByState groupByState;
 
@@ -580,8 +773,7 @@ public class PipelinedAggregationOp extends GroupByOp implements
             /*
              * Initialize from the shared state.
              */
-            this.map = sharedState.map;
-            this.aggExpr = sharedState.aggExpr;
+            this.sharedState = sharedState;
             this.groupByState = stats.groupByState;
             this.rewrite = stats.rewrite;
             this.groupBy = stats.groupByState.getGroupByClause();
@@ -601,10 +793,14 @@ public class PipelinedAggregationOp extends GroupByOp implements
          * Update the state of the {@link IAggregate}s for the appropriate
          * group.
          * 
+         * @param map
+         *            The per-group state for the {@link PartialState}.
          * @param bset
          *            The solution.
          */
-        private void accept(final IBindingSet bset) {
+        private void accept(
+                final LinkedHashMap<SolutionGroup, SolutionGroupState> map,
+                final IBindingSet bset) {
 
             if (groupBy == null || groupBy.length == 0)
                 throw new IllegalArgumentException();
@@ -646,37 +842,57 @@ public class PipelinedAggregationOp extends GroupByOp implements
 
             try {
 
-                while (itr.hasNext()) {
-                    
-                    final IBindingSet[] a = itr.next();
+                final PartialState partial = sharedState.acquire();
 
-                    stats.chunksIn.increment();
-                    stats.unitsIn.add(a.length);
+                try {
 
-                    for (IBindingSet bset : a) {
+                    while (itr.hasNext()) {
 
-                        if (groupBy == null) {
+                        final IBindingSet[] a = itr.next();
 
-                            /*
-                             * A single implicit group.
-                             */
-                            doAggregate(aggExpr, bset, stats);
+                        stats.chunksIn.increment();
+                        stats.unitsIn.add(a.length);
 
-                        } else {
+                        for (IBindingSet bset : a) {
+
+                            if (groupBy == null) {
+
+                                /*
+                                 * A single implicit group.
+                                 */
+                                doAggregate(partial.aggExpr, bset, stats);
+
+                            } else {
+
+                                /*
+                                 * Explicit GROUP_BY.
+                                 */
+                                accept(partial.map, bset);
 
-                            /*
-                             * Explicit GROUP_BY.
-                             */
-                            accept(bset);
+                            }
 
                         }
-                        
+
                     }
 
+                } finally {
+
+                    sharedState.release(partial);
+
                 }
 
                 if(context.isLastInvocation()) {
 
+                    /*
+                     * Combine the partial states. There is only one unless
+                     * the operator was evaluated with maxParallel GT ONE.
+                     */
+                    final PartialState result = sharedState.merge();
+                    
+                    final LinkedHashMap<SolutionGroup, SolutionGroupState> map = result.map;
+                    
+                    final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr = result.aggExpr;
+
                     // The solutions to be written onto the sink.
                     final List<IBindingSet> outList = new LinkedList<IBindingSet>();
                     
@@ -910,6 +1126,32 @@ public class PipelinedAggregationOp extends GroupByOp implements
 
     }
 
+    /**
+     * Merge the partial state of the {@link IAggregate}s for the same group
+     * (or for the implicit group) from one {@link PartialState} into another.
+     * Both maps were populated from the rewritten aggregation request and
+     * therefore visit the same aggregates in the same order.
+     * 
+     * @param target
+     *            The aggregates into which the partial state is merged.
+     * @param source
+     *            The aggregates whose partial state is merged.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static private void mergeAggregates(
+            final LinkedHashMap<IAggregate<?>, IVariable<?>> target,
+            final LinkedHashMap<IAggregate<?>, IVariable<?>> source) {
+
+        final Iterator<IAggregate<?>> sitr = source.keySet().iterator();
+
+        for (IAggregate<?> a : target.keySet()) {
+
+            ((IDecomposableAggregate) a).merge((IAggregate) sitr.next());
+
+        }
+
+    }
+
     /**
      * Finalize the {@link IAggregate}s for a solution group (or for the
      * implicit group formed from all solutions when no GROUP_BY was given).
@@ -418,6 +418,10 @@ public class SliceOp extends PipelineOp {
          * Note: The caller MUST be synchronized on the <em>shared</em>
          * {@link SliceStats} in order for the decision process to be thread
          * safe.
+         * <p>
+         * Note: The solutions to skip and to accept are computed once for the
+         * chunk and the counters are then updated in bulk, rather than making
+         * the decision (and updating the counters) for each solution in turn.
          * 
          * @param chunk
          *            The chunk of binding sets.
@@ -431,40 +435,47 @@ public class SliceOp extends PipelineOp {
 
             stats.chunksIn.increment();
 
-//            int nadded = 0;
-            
-            for (int i = 0; i < chunk.length; i++) {
+            if (chunk.length == 0)
+                return false;
 
-                if (stats.naccepted.get() >= limit)
-                    return true; // nothing more will be accepted.
+            final long A = stats.naccepted.get();
 
-                stats.unitsIn.increment();
+            if (A >= limit)
+                return true; // nothing more will be accepted.
 
-                final long S = stats.nseen.incrementAndGet();
-                
-                if (S <= offset)
-                    continue; // skip solution.
+            // #of solutions in this chunk which are skipped by the offset.
+            final int nskip = (int) Math.min(chunk.length,
+                    Math.max(0L, offset - stats.nseen.get()));
 
-                final long A = stats.naccepted.get();
+            // #of solutions in this chunk which are accepted.
+            final int naccept = (int) Math.min(chunk.length - nskip, limit
+                    - A);
 
-                if (A < limit) {
+            // #of solutions in this chunk which are consumed.
+            final int nconsumed = nskip + naccept;
 
-                    final IBindingSet bset = chunk[i];
+            stats.unitsIn.add(nconsumed);
 
-                    out.add(bset);
+            stats.nseen.addAndGet(nconsumed);
 
-//                    nadded++;
-                    
-                    stats.naccepted.incrementAndGet();
+            for (int i = nskip; i < nconsumed; i++) {
 
-                    if (log.isTraceEnabled())
-                        log.trace(toString() + ":" + bset);
+                final IBindingSet bset = chunk[i];
 
-                }
+                out.add(bset);
+
+                if (log.isTraceEnabled())
+                    log.trace(toString() + ":" + bset);
 
             } // next bindingSet
-            
-            return false;
+
+            stats.naccepted.addAndGet(naccept);
+
+            /*
+             * If the limit was satisfied before the end of the chunk then
+             * nothing more will be accepted.
+             */
+            return nconsumed < chunk.length;
 
         }
 
@@ -0,0 +1,486 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 16, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.IBind;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.ISingleThreadedOp;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A bounded heap ORDER BY operator which retains only the first
+ * {@link Annotations#LIMIT} solutions in the total ordering. This is used to
+ * evaluate an ORDER BY which is followed by a SLICE with a LIMIT: the caller
+ * specifies <code>OFFSET+LIMIT</code> and the downstream {@link SliceOp} then
+ * imposes the OFFSET and the LIMIT on the ordered solutions.
+ * <p>
+ * Each time the operator runs, it evaluates the value expressions on which the
+ * ordering will be imposed, binding the results on the incoming solutions,
+ * exactly as the {@link MemorySortOp} does. Each solution is then compared
+ * against the greatest solution retained so far. If the heap is full and the
+ * new solution does not order before that solution, it is discarded
+ * immediately. Otherwise it replaces the greatest retained solution. The JVM
+ * heap burden is therefore <code>O(LIMIT)</code> rather than
+ * <code>O(N)</code> and each solution costs <code>O(log LIMIT)</code>. The
+ * retained solutions are sorted and written out once the last chunk of source
+ * solutions has been observed.
+ * <p>
+ * Ties are broken by the arrival order of the solutions so the result is
+ * exactly the prefix of the (stable) ordering produced by the
+ * {@link MemorySortOp}.
+ *
+ * @see MemorySortOp
+ * @see SliceOp
+ */
+public class TopKSortOp extends SortOp implements ISingleThreadedOp {
+
+    private static final transient Logger log = Logger
+            .getLogger(TopKSortOp.class);
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends SortOp.Annotations {
+
+        /**
+         * The maximum #of solutions to be retained (required). When the
+         * ORDER BY is followed by a SLICE, this is <code>OFFSET+LIMIT</code>.
+         */
+        String LIMIT = TopKSortOp.class.getName() + ".limit";
+
+    }
+
+    /**
+     * Constructor required for {@link com.bigdata.bop.BOpUtility#deepCopy(FilterNode)}.
+     */
+    public TopKSortOp(final TopKSortOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public TopKSortOp(final BOp[] args, final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        assertMaxParallelOne();
+
+        if (!isLastPassRequested()) {
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        // ORDER_BY must preserve order.
+        if (isReorderSolutions())
+            throw new UnsupportedOperationException(
+                    Annotations.REORDER_SOLUTIONS + "=" + isReorderSolutions());
+
+        if (getLimit() <= 0)
+            throw new IllegalArgumentException(Annotations.LIMIT + "="
+                    + getLimit());
+
+        // required parameter.
+        getValueComparator();
+
+        // validate required parameter.
+        for (ISortOrder<?> s : getSortOrder()) {
+
+            final IValueExpression<?> expr = s.getExpr();
+
+            if (expr instanceof IVariableOrConstant<?>)
+                continue;
+
+            if (expr instanceof IBind<?>)
+                continue;
+
+            throw new IllegalArgumentException(
+                    "Value expression not wrapped by bind: " + expr);
+
+        }
+
+    }
+
+    public TopKSortOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#LIMIT
+     */
+    public int getLimit() {
+
+        return ((Number) getRequiredProperty(Annotations.LIMIT)).intValue();
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new SortTask(this, context));
+
+    }
+
+    /**
+     * A retained solution together with its arrival order.
+     */
+    private static class Entry {
+
+        private final IBindingSet bset;
+
+        private final long seq;
+
+        Entry(final IBindingSet bset, final long seq) {
+            this.bset = bset;
+            this.seq = seq;
+        }
+
+    }
+
+    /**
+     * Orders {@link Entry}s by the solution ordering and then by their arrival
+     * order.
+     */
+    private static class EntryComparator implements Comparator<Entry> {
+
+        private final Comparator<IBindingSet> comparator;
+
+        EntryComparator(final Comparator<IBindingSet> comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(final Entry o1, final Entry o2) {
+
+            final int ret = comparator.compare(o1.bset, o2.bset);
+
+            if (ret != 0)
+                return ret;
+
+            return o1.seq < o2.seq ? -1 : o1.seq == o2.seq ? 0 : 1;
+
+        }
+
+    }
+
+    /**
+     * The state of the sort, which is hung off of the {@link IQueryAttributes}
+     * between invocations of the operator.
+     */
+    private static class SortState {
+
+        /**
+         * A max-heap of the retained solutions. The head of the heap is the
+         * greatest retained solution and is the first to be evicted.
+         */
+        private final PriorityQueue<Entry> heap;
+
+        /** The #of solutions observed so far. */
+        private long nseen = 0L;
+
+        SortState(final int limit, final EntryComparator comparator) {
+
+            this.heap = new PriorityQueue<Entry>(Math.min(limit, 1024),
+                    Collections.reverseOrder(comparator));
+
+        }
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class SortTask implements Callable<Void> {
+
+        private final BOpContext<IBindingSet> context;
+
+        private final BOpStats stats;
+
+        private final ISortOrder<?>[] sortOrder;
+
+        private final EntryComparator comparator;
+
+        private final int limit;
+
+        /**
+         * The {@link IQueryAttributes} for the
+         * {@link com.bigdata.bop.engine.IRunningQuery} off which we will hang
+         * the sort state.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #state} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private SortState state;
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        SortTask(final TopKSortOp op, final BOpContext<IBindingSet> context) {
+
+            this.context = context;
+
+            this.stats = context.getStats();
+
+            this.sortOrder = op.getSortOrder();
+
+            this.comparator = new EntryComparator(new BindingSetComparator(
+                    sortOrder, op.getValueComparator()));
+
+            this.limit = op.getLimit();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            /*
+             * Note: Since the operator is not thread-safe, we do not need to
+             * use a putIfAbsent pattern here.
+             */
+            state = (SortState) attrs.get(key);
+
+            if (state == null) {
+
+                state = new SortState(limit, comparator);
+
+                attrs.put(key, state);
+
+            }
+
+        }
+
+        void release() {
+
+            if (log.isInfoEnabled())
+                log.info("Releasing state");
+
+            attrs.remove(key);
+
+            state = null;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                acceptSolutions(itr);
+
+                if (lastInvocation) {
+
+                    doOrderBy(sink);
+
+                }
+
+            } catch (Throwable t) {
+
+                log.error(t, t);
+
+                throw new RuntimeException(t);
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    release();
+
+                }
+
+                sink.close();
+
+            }
+
+            // Done.
+            return null;
+
+        }
+
+        /**
+         * Evaluate the value expressions for each input solution and offer the
+         * as-bound solution to the bounded heap.
+         *
+         * @param itr
+         *            The source solutions.
+         */
+        private void acceptSolutions(
+                final ICloseableIterator<IBindingSet[]> itr) {
+
+            final PriorityQueue<Entry> heap = state.heap;
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IBindingSet[] a = itr.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(a.length);
+
+                    for (IBindingSet bset : a) {
+
+                        // Note: Necessary scope for type error reporting.
+                        IValueExpression<?> expr = null;
+
+                        try {
+
+                            for (ISortOrder<?> s : sortOrder) {
+
+                                /*
+                                 * Evaluate. A BIND() will have side-effect on
+                                 * [bset].
+                                 */
+                                (expr = s.getExpr()).get(bset);
+
+                            }
+
+                        } catch (SparqlTypeErrorException ex) {
+
+                            // log type error, do not drop solution (see trac 765).
+                            TypeErrorLog.handleTypeError(ex, expr, stats);
+
+                        }
+
+                        final Entry e = new Entry(bset, state.nseen++);
+
+                        if (heap.size() < limit) {
+
+                            heap.add(e);
+
+                        } else if (comparator.compare(e, heap.peek()) < 0) {
+
+                            /*
+                             * Orders before the greatest retained solution, so
+                             * it displaces that solution.
+                             */
+                            heap.poll();
+
+                            heap.add(e);
+
+                        }
+
+                    } // next source solution
+
+                }
+
+                if (log.isDebugEnabled())
+                    log.debug("Retained " + heap.size() + " of "
+                            + state.nseen + " solutions so far");
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        } // acceptSolutions
+
+        /**
+         * Sort the retained solutions and write them onto the sink.
+         *
+         * @param sink
+         *            Where to write the results.
+         */
+        private void doOrderBy(final IBlockingBuffer<IBindingSet[]> sink) {
+
+            final Entry[] a = state.heap.toArray(new Entry[state.heap.size()]);
+
+            Arrays.sort(a, comparator);
+
+            final IBindingSet[] all = new IBindingSet[a.length];
+
+            for (int i = 0; i < a.length; i++) {
+
+                final IBindingSet bset = all[i] = a[i].bset;
+
+                // Drop variables for computed value expressions.
+                for (ISortOrder<?> s : sortOrder) {
+                    final IValueExpression<?> expr = s.getExpr();
+                    if (expr instanceof IBind) {
+                        bset.clear(((IBind<?>) expr).getVar());
+                    }
+                }
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("Retained " + all.length + " of " + state.nseen
+                        + " solutions.");
+
+            // write output and flush.
+            if (all.length > 0)
+                sink.add(all);
+            sink.flush();
+
+        }
+
+    } // SortTask
+
+} // TopKSortOp
@@ -281,6 +281,14 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
     @Deprecated
     protected final ConcurrentMap<Long, Object> storeCache;
 
+    /**
+     * The shared cache for the coded node and leaf data records of the backing
+     * store and <code>null</code> if the B+Tree is transient, the
+     * {@link PageCache} is not enabled, or the store is not registered with
+     * the {@link PageCache}.
+     */
+    protected final PageCache.StoreCache pageCache;
+
     /**
      * Hard reference iff the index is mutable (aka unisolated) allows us to
      * avoid patterns that create short life time versions of the object to
@@ -1085,6 +1093,8 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             this.storeCache = null;
             
+            this.pageCache = null;
+            
 //            this.globalLRU = null;
             
 //            this.readRetentionQueue = null;
@@ -1116,6 +1126,8 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 //            this.storeCache = LRUNexus.getCache(store);
             this.storeCache = null;
             
+            this.pageCache = PageCache.getCache(store);
+            
 //            this.readRetentionQueue = newReadRetentionQueue();
         
         }
@@ -4412,8 +4424,13 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             final long beginNanos = System.nanoTime();
             
-            // wrap as ByteBuffer and write on the store.
-            addr = store.write(slice.asByteBuffer());
+            // wrap as ByteBuffer, compress (if configured) and write on the store.
+            addr = store.write(nodeSer.compress(slice.asByteBuffer()));
+            
+            if (pageCache != null) {
+                // discard any record for a recycled address.
+                pageCache.remove(addr);
+            }
             
             // now we have a new address, delete previous identity if any
             if (node.isPersistent()) {
@@ -4525,8 +4542,16 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
             throw new IllegalArgumentException();
         
         
+        final ByteBuffer cached = pageCache == null ? null : pageCache
+                .get(addr);
+        
         final ByteBuffer tmp;
-        {
+        if (cached != null) {
+
+            // Note: The record is a copy on the heap.
+            tmp = cached;
+            
+        } else {
 
             final long begin = System.nanoTime();
             
@@ -4545,6 +4570,11 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             btreeCounters.bytesRead.add(bytesRead);
             
+            if (pageCache != null) {
+                // offer the coded record to the shared cache.
+                pageCache.put(addr, tmp);
+            }
+            
         }
 // Note: This is not necessary.  The most likely place to be interrupted is in the IO on the raw store.  It is not worth testing for an interrupt here since we are more liklely to notice one in the raw store and this method is low latency except for the potential IO read.
 //        if (Thread.interrupted()) {
@@ -4563,8 +4593,8 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
                 final long begin = System.nanoTime();
 
-                // decode the record.
-                data = nodeSer.decode(tmp);
+                // decompress (if configured) and decode the record.
+                data = nodeSer.decode(nodeSer.decompress(tmp));
 
                 btreeCounters.deserializeNanos.add(System.nanoTime() - begin);
 
@@ -4919,6 +4949,11 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
         
         getBtreeCounters().bytesReleased.add(nbytes);
         
+        if (pageCache != null) {
+            // the address may be recycled.
+            pageCache.remove(addr);
+        }
+        
         store.delete(addr);
         
         return nbytes;
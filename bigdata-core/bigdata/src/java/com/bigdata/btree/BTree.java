@@ -332,7 +332,7 @@ public class BTree extends AbstractBTree implements //ICommitter,
                 NodeFactory.INSTANCE, //
                 readOnly, // read-only
                 metadata,//
-                metadata.getBtreeRecordCompressorFactory()
+                metadata.getNodeRecordCompressorFactory()
                 );
 
 //        this.readOnly = readOnly;
@@ -1497,6 +1497,78 @@ public class BTree extends AbstractBTree implements //ICommitter,
    
     }
 
+    /**
+     * Replace the root of this empty {@link BTree} with the root of a B+Tree
+     * whose nodes and leaves were written directly onto the backing store by
+     * a {@link BulkBTreeBuilder}. The counters are set to be consistent with
+     * the new root and a dirty event is fired so that the new root will be
+     * recorded by the next checkpoint (commit). This is a low level method.
+     * 
+     * @param rootAddr
+     *            The address of the root node or leaf.
+     * @param height
+     *            The height of the B+Tree (zero if the root is a leaf).
+     * @param nnodes
+     *            The #of nodes written.
+     * @param nleaves
+     *            The #of leaves written.
+     * @param nentries
+     *            The #of tuples in the leaves.
+     * 
+     * @throws IllegalStateException
+     *             if the {@link BTree} is not empty.
+     */
+    void installBulkBuild(final long rootAddr, final int height,
+            final long nnodes, final long nleaves, final long nentries) {
+
+        assertNotReadOnly();
+
+        if (getEntryCount() != 0L)
+            throw new IllegalStateException();
+
+        /*
+         * Note: The old root is an empty leaf. Discard it (and release its
+         * storage if it was made persistent by a prior checkpoint).
+         */
+        writeRetentionQueue.clear(true/* clearRefs */);
+
+        ndistinctOnWriteRetentionQueue = 0;
+
+        if (root != null && root.isPersistent()) {
+
+            deleteNodeOrLeaf(root.getIdentity());
+
+        }
+
+        root = readNodeOrLeaf(rootAddr);
+
+        this.height = height;
+
+        this.nnodes = nnodes;
+
+        this.nleaves = nleaves;
+
+        this.nentries = nentries;
+
+        final BloomFilter filter = getBloomFilter();
+
+        if (filter != null && filter.isEnabled()
+                && nentries > filter.getMaxN()) {
+
+            /*
+             * Disable the filter since the index has exceeded the maximum #of
+             * index entries for which the bloom filter will have an acceptable
+             * error rate.
+             */
+
+            recycle(filter.disable());
+
+        }
+
+        fireDirtyEvent();
+
+    }
+
     /**
      * Create a new checkpoint for a mutable {@link BTree} in which the view is
      * redefined to include the previous view of the {@link BTree} (the one from
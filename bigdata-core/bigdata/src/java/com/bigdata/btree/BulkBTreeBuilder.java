@@ -0,0 +1,708 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.btree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.data.IAbstractNodeData;
+import com.bigdata.btree.raba.MutableKeyBuffer;
+import com.bigdata.btree.raba.MutableValueBuffer;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Builds the nodes and leaves of an empty, mutable {@link BTree} bottom-up
+ * from tuples presented in strictly ascending key order and then installs
+ * the resulting root on that {@link BTree}. This is the same packing strategy
+ * used by the {@link IndexSegmentBuilder}, but the nodes and leaves are coded
+ * with the {@link BTree}'s own {@link NodeSerializer} and written directly
+ * onto its backing store (e.g., the RWStore of a Journal) so the result is a
+ * normal mutable {@link BTree} which becomes restart safe at the next commit.
+ * <p>
+ * Leaves and nodes are filled to the branching factor. Since the #of tuples
+ * is not known in advance, the last full leaf (or node) on each level is held
+ * back until the next one is started so that an underfull last leaf (node)
+ * may be rebalanced with its left sibling when the build is closed. Only one
+ * such leaf and one such node per level are buffered at a time, so the build
+ * runs in memory proportional to the height of the tree and issues only
+ * sequential appends against the backing store.
+ * <p>
+ * Note: This class is NOT thread-safe. The caller MUST have exclusive access
+ * to the {@link BTree} for the duration of the build.
+ */
+public class BulkBTreeBuilder {
+
+    private static final Logger log = Logger.getLogger(BulkBTreeBuilder.class);
+
+    /**
+     * The target {@link BTree}.
+     */
+    private final BTree btree;
+
+    /**
+     * The backing store for the {@link BTree}.
+     */
+    private final IRawStore store;
+
+    /**
+     * The branching factor.
+     */
+    private final int m;
+
+    /**
+     * The minimum #of tuples in a leaf (children in a node).
+     */
+    private final int minChildren;
+
+    private final boolean versionTimestamps;
+
+    private final boolean deleteMarkers;
+
+    private final boolean rawRecords;
+
+    private final long maxRecLen;
+
+    /**
+     * The revision timestamp assigned to each tuple (iff version timestamps
+     * are maintained).
+     */
+    private final long revisionTimestamp;
+
+    /**
+     * The bloom filter for the {@link BTree} and <code>null</code> if there
+     * is none (or once it is known that it would be disabled).
+     */
+    private BloomFilter bloomFilter;
+
+    /**
+     * The leaf being filled.
+     */
+    private LeafBuffer leaf;
+
+    /**
+     * The last full leaf, which has not been written yet.
+     */
+    private LeafBuffer pendingLeaf;
+
+    /**
+     * The node buffers, indexed by the level above the leaves (zero is the
+     * level whose children are leaves).
+     */
+    private final List<NodeLevel> levels = new ArrayList<NodeLevel>();
+
+    /**
+     * The last key added and <code>null</code> if no key has been added.
+     */
+    private byte[] lastKey;
+
+    /**
+     * The last key of the last leaf written and <code>null</code> if no leaf
+     * has been written.
+     */
+    private byte[] lastKeyWritten;
+
+    private long nentries = 0L;
+
+    private long nleaves = 0L;
+
+    private long nnodes = 0L;
+
+    private long nbytes = 0L;
+
+    private int height = -1;
+
+    private boolean closed = false;
+
+    /**
+     * @param btree
+     *            The target {@link BTree}. It must be empty and mutable and it
+     *            must have a backing store.
+     * 
+     * @throws IllegalArgumentException
+     *             if the {@link BTree} is <code>null</code>.
+     * @throws IllegalStateException
+     *             if the {@link BTree} is not empty or is not backed by a
+     *             store.
+     * @throws UnsupportedOperationException
+     *             if the {@link BTree} is read-only.
+     */
+    public BulkBTreeBuilder(final BTree btree) {
+
+        if (btree == null)
+            throw new IllegalArgumentException();
+
+        if (btree.isReadOnly())
+            throw new UnsupportedOperationException(
+                    AbstractBTree.ERROR_READ_ONLY);
+
+        if (btree.getStore() == null)
+            throw new IllegalStateException();
+
+        if (btree.getEntryCount() != 0L)
+            throw new IllegalStateException("Not empty: entryCount="
+                    + btree.getEntryCount());
+
+        this.btree = btree;
+
+        this.store = btree.getStore();
+
+        this.m = btree.getBranchingFactor();
+
+        this.minChildren = btree.minChildren;
+
+        final IndexMetadata md = btree.getIndexMetadata();
+
+        this.versionTimestamps = md.getVersionTimestamps();
+
+        this.deleteMarkers = md.getDeleteMarkers();
+
+        this.rawRecords = md.getRawRecords();
+
+        this.maxRecLen = rawRecords ? btree.getMaxRecLen() : Long.MAX_VALUE;
+
+        this.revisionTimestamp = versionTimestamps ? btree
+                .getRevisionTimestamp() : 0L;
+
+        final BloomFilter filter = btree.getBloomFilter();
+
+        this.bloomFilter = filter != null && filter.isEnabled() ? filter
+                : null;
+
+        this.leaf = new LeafBuffer();
+
+    }
+
+    /**
+     * The #of tuples added so far.
+     */
+    public long getEntryCount() {
+
+        return nentries;
+
+    }
+
+    /**
+     * Add a tuple. The keys MUST be presented in strictly ascending order.
+     * 
+     * @param key
+     *            The key.
+     * @param val
+     *            The value (may be <code>null</code>).
+     * 
+     * @throws IllegalArgumentException
+     *             if the key is <code>null</code> or is not greater than the
+     *             previous key.
+     * @throws IllegalStateException
+     *             if the builder is closed.
+     */
+    public void add(final byte[] key, final byte[] val) {
+
+        if (closed)
+            throw new IllegalStateException();
+
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        if (lastKey != null && BytesUtil.compareBytes(lastKey, key) >= 0) {
+
+            throw new IllegalArgumentException("Keys out of order: lastKey="
+                    + BytesUtil.toString(lastKey) + ", key="
+                    + BytesUtil.toString(key));
+
+        }
+
+        if (leaf.nkeys == m) {
+
+            // The current leaf is full.
+            if (pendingLeaf != null)
+                writeLeaf(pendingLeaf);
+
+            pendingLeaf = leaf;
+
+            leaf = new LeafBuffer();
+
+        }
+
+        final int i = leaf.nkeys++;
+
+        leaf.keys[i] = key;
+
+        if (val != null && val.length > maxRecLen) {
+
+            // write the value on the backing store as a raw record.
+            leaf.vals[i] = btree.encodeRecordAddr(btree.writeRawRecord(val));
+
+            leaf.rawRecords[i] = true;
+
+        } else {
+
+            leaf.vals[i] = val;
+
+        }
+
+        if (bloomFilter != null) {
+
+            if (nentries >= bloomFilter.getMaxN()) {
+
+                /*
+                 * The filter will be disabled when the root is installed
+                 * since the index will have exceeded the maximum #of index
+                 * entries for which the bloom filter will have an acceptable
+                 * error rate.
+                 */
+
+                bloomFilter = null;
+
+            } else {
+
+                bloomFilter.add(key);
+
+            }
+
+        }
+
+        lastKey = key;
+
+        nentries++;
+
+    }
+
+    /**
+     * Write the remaining leaves and nodes and install the new root on the
+     * {@link BTree}. This is a NOP if no tuples were added. The caller must
+     * commit the backing store in order for the new index state to become
+     * restart safe.
+     * 
+     * @return The target {@link BTree}.
+     */
+    public BTree close() {
+
+        if (closed)
+            throw new IllegalStateException();
+
+        closed = true;
+
+        if (nentries == 0L) {
+
+            // Nothing was written.
+            return btree;
+
+        }
+
+        final long begin = System.currentTimeMillis();
+
+        // Rebalance and write the last leaves.
+        if (pendingLeaf != null) {
+
+            if (leaf.nkeys < minChildren) {
+
+                rebalance(pendingLeaf, leaf);
+
+            }
+
+            writeLeaf(pendingLeaf);
+
+            pendingLeaf = null;
+
+        }
+
+        writeLeaf(leaf);
+
+        leaf = null;
+
+        /*
+         * Close out each level of nodes from the bottom up. The root is the
+         * sole child presented to some level (or the only leaf if there are
+         * no node levels).
+         */
+        ChildRef root = null;
+
+        for (int i = 0; i < levels.size(); i++) {
+
+            final NodeLevel level = levels.get(i);
+
+            if (level.nchildren == 1) {
+
+                // The sole child of this level is the root.
+                root = level.current.children.get(0);
+
+                height = i;
+
+                break;
+
+            }
+
+            if (level.pending != null) {
+
+                if (level.current.children.size() < minChildren) {
+
+                    rebalance(level.pending, level.current);
+
+                }
+
+                writeNode(i, level.pending);
+
+                level.pending = null;
+
+            }
+
+            writeNode(i, level.current);
+
+            level.current = null;
+
+        }
+
+        assert root != null;
+
+        btree.installBulkBuild(root.addr, height, nnodes, nleaves, nentries);
+
+        if (log.isInfoEnabled())
+            log.info("name=" + btree.getIndexMetadata().getName()
+                    + ", nentries=" + nentries + ", height=" + height
+                    + ", nleaves=" + nleaves + ", nnodes=" + nnodes
+                    + ", nbytes=" + nbytes + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        return btree;
+
+    }
+
+    /**
+     * Rebalance an underfull right sibling with its full left sibling. The
+     * left sibling retains the larger half.
+     */
+    private void rebalance(final LeafBuffer left, final LeafBuffer right) {
+
+        final int total = left.nkeys + right.nkeys;
+
+        final int nright = total / 2;
+
+        final int nmove = nright - right.nkeys;
+
+        System.arraycopy(right.keys, 0, right.keys, nmove, right.nkeys);
+        System.arraycopy(right.vals, 0, right.vals, nmove, right.nkeys);
+        System.arraycopy(right.rawRecords, 0, right.rawRecords, nmove,
+                right.nkeys);
+
+        final int from = left.nkeys - nmove;
+
+        System.arraycopy(left.keys, from, right.keys, 0, nmove);
+        System.arraycopy(left.vals, from, right.vals, 0, nmove);
+        System.arraycopy(left.rawRecords, from, right.rawRecords, 0, nmove);
+
+        for (int i = from; i < left.nkeys; i++) {
+
+            left.keys[i] = null;
+            left.vals[i] = null;
+            left.rawRecords[i] = false;
+
+        }
+
+        left.nkeys = from;
+
+        right.nkeys = nright;
+
+    }
+
+    /**
+     * Rebalance an underfull right sibling with its full left sibling. The
+     * left sibling retains the larger half.
+     */
+    private void rebalance(final NodeBuffer left, final NodeBuffer right) {
+
+        final int total = left.children.size() + right.children.size();
+
+        final int nmove = total / 2 - right.children.size();
+
+        final List<ChildRef> moved = left.children.subList(
+                left.children.size() - nmove, left.children.size());
+
+        right.children.addAll(0, moved);
+
+        moved.clear();
+
+    }
+
+    /**
+     * Code and write a leaf and present it to the first level of nodes.
+     */
+    private void writeLeaf(final LeafBuffer b) {
+
+        final int nkeys = b.nkeys;
+
+        final long[] vts;
+        if (versionTimestamps) {
+            vts = new long[m + 1];
+            for (int i = 0; i < nkeys; i++)
+                vts[i] = revisionTimestamp;
+        } else {
+            vts = null;
+        }
+
+        final MutableLeafData data = new MutableLeafData(//
+                new MutableKeyBuffer(nkeys, b.keys),//
+                new MutableValueBuffer(nkeys, b.vals),//
+                vts,//
+                deleteMarkers ? new boolean[m + 1] : null,//
+                rawRecords ? b.rawRecords : null//
+        );
+
+        final long addr = write(data);
+
+        btree.getBtreeCounters().leavesWritten.increment();
+
+        nleaves++;
+
+        final byte[] sepKey = lastKeyWritten == null ? null : BytesUtil
+                .getSeparatorKey(b.keys[0], lastKeyWritten);
+
+        lastKeyWritten = b.keys[nkeys - 1];
+
+        addChild(0/* level */, new ChildRef(sepKey, addr, nkeys,
+                revisionTimestamp, revisionTimestamp));
+
+    }
+
+    /**
+     * Code and write a node and present it to the next level.
+     */
+    private void writeNode(final int level, final NodeBuffer b) {
+
+        final int nchildren = b.children.size();
+
+        final byte[][] keys = new byte[m][];
+        final long[] childAddr = new long[m + 1];
+        final long[] childEntryCounts = new long[m + 1];
+
+        long spannedTupleCount = 0L;
+        long minVT = Long.MAX_VALUE;
+        long maxVT = Long.MIN_VALUE;
+
+        for (int i = 0; i < nchildren; i++) {
+
+            final ChildRef child = b.children.get(i);
+
+            if (i > 0)
+                keys[i - 1] = child.sepKey;
+
+            childAddr[i] = child.addr;
+
+            childEntryCounts[i] = child.entryCount;
+
+            spannedTupleCount += child.entryCount;
+
+            minVT = Math.min(minVT, child.minVT);
+
+            maxVT = Math.max(maxVT, child.maxVT);
+
+        }
+
+        if (!versionTimestamps) {
+            minVT = maxVT = 0L;
+        }
+
+        final MutableNodeData data = new MutableNodeData(spannedTupleCount,
+                new MutableKeyBuffer(nchildren - 1, keys), childAddr,
+                childEntryCounts, versionTimestamps, minVT, maxVT);
+
+        final long addr = write(data);
+
+        btree.getBtreeCounters().nodesWritten.increment();
+
+        nnodes++;
+
+        addChild(level + 1, new ChildRef(b.children.get(0).sepKey, addr,
+                spannedTupleCount, minVT, maxVT));
+
+    }
+
+    /**
+     * Code the node or leaf using the {@link NodeSerializer} for the
+     * {@link BTree} and write it onto the backing store.
+     * 
+     * @return The address of the record.
+     */
+    private long write(final IAbstractNodeData data) {
+
+        final long beginNanos = System.nanoTime();
+
+        final AbstractFixedByteArrayBuffer slice = btree.nodeSer
+                .encodeLive(data).data();
+
+        // wrap as ByteBuffer, compress (if configured) and write on the store.
+        final long addr = store.write(btree.nodeSer.compress(slice
+                .asByteBuffer()));
+
+        if (btree.pageCache != null) {
+            // discard any record for a recycled address.
+            btree.pageCache.remove(addr);
+        }
+
+        if (btree.storeCache != null) {
+            // discard any object for a recycled address.
+            btree.storeCache.remove(addr);
+        }
+
+        final int n = store.getByteCount(addr);
+
+        final BTreeCounters counters = btree.getBtreeCounters();
+
+        counters.writeNanos.add(System.nanoTime() - beginNanos);
+
+        counters.bytesWritten.add(n);
+
+        counters.bytesOnStore_nodesAndLeaves.addAndGet(n);
+
+        nbytes += n;
+
+        return addr;
+
+    }
+
+    /**
+     * Present a child to the given level, writing the pending node on that
+     * level when a new node must be started.
+     */
+    private void addChild(final int level, final ChildRef child) {
+
+        if (level == levels.size()) {
+
+            levels.add(new NodeLevel());
+
+        }
+
+        final NodeLevel l = levels.get(level);
+
+        if (l.current.children.size() == m) {
+
+            // The current node is full.
+            if (l.pending != null)
+                writeNode(level, l.pending);
+
+            l.pending = l.current;
+
+            l.current = new NodeBuffer(m);
+
+        }
+
+        l.current.children.add(child);
+
+        l.nchildren++;
+
+    }
+
+    /**
+     * A leaf which is being filled.
+     */
+    private class LeafBuffer {
+
+        int nkeys = 0;
+
+        final byte[][] keys = new byte[m + 1][];
+
+        final byte[][] vals = new byte[m + 1][];
+
+        final boolean[] rawRecords = new boolean[m + 1];
+
+    }
+
+    /**
+     * A node which is being filled.
+     */
+    private static class NodeBuffer {
+
+        final List<ChildRef> children;
+
+        NodeBuffer(final int m) {
+
+            children = new ArrayList<ChildRef>(m);
+
+        }
+
+    }
+
+    /**
+     * The state for one level of nodes.
+     */
+    private class NodeLevel {
+
+        /**
+         * The node being filled.
+         */
+        NodeBuffer current = new NodeBuffer(m);
+
+        /**
+         * The last full node, which has not been written yet.
+         */
+        NodeBuffer pending = null;
+
+        /**
+         * The #of children presented to this level.
+         */
+        long nchildren = 0L;
+
+    }
+
+    /**
+     * A reference to a child which has been written on the store.
+     */
+    private static class ChildRef {
+
+        /**
+         * The separator key for the child in its parent and <code>null</code>
+         * for the first child on a level.
+         */
+        final byte[] sepKey;
+
+        final long addr;
+
+        final long entryCount;
+
+        final long minVT;
+
+        final long maxVT;
+
+        ChildRef(final byte[] sepKey, final long addr, final long entryCount,
+                final long minVT, final long maxVT) {
+
+            this.sepKey = sepKey;
+            this.addr = addr;
+            this.entryCount = entryCount;
+            this.minVT = minVT;
+            this.maxVT = maxVT;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,504 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.btree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.util.Bytes;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Sorts an unbounded #of key/value tuples by their unsigned byte[] keys using
+ * a bounded amount of memory. Tuples are buffered until the buffer is full,
+ * at which point the buffer is sorted and spilled onto a temporary file as a
+ * sorted run. The runs are then merged in a single pass and the tuples are
+ * presented in ascending key order to a {@link BulkBTreeBuilder}. When the
+ * same key was added more than once, only the first tuple added for that key
+ * is retained.
+ * <p>
+ * Note: This class is NOT thread-safe.
+ */
+public class ExternalTupleSorter {
+
+    private static final Logger log = Logger
+            .getLogger(ExternalTupleSorter.class);
+
+    /**
+     * The estimated per-tuple overhead (in bytes) of the in-memory buffer.
+     */
+    private static final int OVERHEAD = 64;
+
+    /**
+     * The size of the buffers used to read and write the runs.
+     */
+    private static final int IO_BUFFER_SIZE = Bytes.kilobyte32 * 64;
+
+    private final File tmpDir;
+
+    private final long maxBufferBytes;
+
+    private final List<Tuple> buffer = new ArrayList<Tuple>();
+
+    private long bufferBytes = 0L;
+
+    private final List<File> runs = new ArrayList<File>();
+
+    private long ntuples = 0L;
+
+    private boolean closed = false;
+
+    /**
+     * @param tmpDir
+     *            The directory in which the sorted runs will be created
+     *            (optional, the default temporary directory is used when
+     *            <code>null</code>).
+     * @param maxBufferBytes
+     *            The maximum #of bytes of tuples that will be buffered in
+     *            memory before a sorted run is spilled onto the disk.
+     */
+    public ExternalTupleSorter(final File tmpDir, final long maxBufferBytes) {
+
+        if (maxBufferBytes <= 0)
+            throw new IllegalArgumentException();
+
+        this.tmpDir = tmpDir;
+
+        this.maxBufferBytes = maxBufferBytes;
+
+    }
+
+    /**
+     * The #of tuples added (including duplicates).
+     */
+    public long size() {
+
+        return ntuples;
+
+    }
+
+    /**
+     * The #of sorted runs spilled onto the disk so far.
+     */
+    public int getRunCount() {
+
+        return runs.size();
+
+    }
+
+    /**
+     * Add a tuple.
+     * 
+     * @param key
+     *            The key.
+     * @param val
+     *            The value (may be <code>null</code>).
+     */
+    public void add(final byte[] key, final byte[] val) throws IOException {
+
+        if (closed)
+            throw new IllegalStateException();
+
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        buffer.add(new Tuple(key, val));
+
+        bufferBytes += key.length + (val == null ? 0 : val.length) + OVERHEAD;
+
+        ntuples++;
+
+        if (bufferBytes >= maxBufferBytes) {
+
+            spill();
+
+        }
+
+    }
+
+    /**
+     * Sort and write the buffered tuples onto a new run.
+     */
+    private void spill() throws IOException {
+
+        final Tuple[] a = sortBuffer();
+
+        final File file = File.createTempFile("sort", ".run", tmpDir);
+
+        runs.add(file);
+
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file),
+                        IO_BUFFER_SIZE));
+
+        try {
+
+            for (Tuple t : a) {
+
+                out.writeInt(t.key.length);
+
+                out.write(t.key);
+
+                if (t.val == null) {
+
+                    out.writeInt(-1);
+
+                } else {
+
+                    out.writeInt(t.val.length);
+
+                    out.write(t.val);
+
+                }
+
+            }
+
+        } finally {
+
+            out.close();
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("run=" + runs.size() + ", ntuples=" + a.length
+                    + ", file=" + file);
+
+    }
+
+    /**
+     * Sort the buffer (stable) and clear it.
+     * 
+     * @return The sorted tuples.
+     */
+    private Tuple[] sortBuffer() {
+
+        final Tuple[] a = buffer.toArray(new Tuple[buffer.size()]);
+
+        // Note: stable, so the first tuple added for a key comes first.
+        Arrays.sort(a, TupleComparator.INSTANCE);
+
+        buffer.clear();
+
+        bufferBytes = 0L;
+
+        return a;
+
+    }
+
+    /**
+     * Merge the sorted runs and the buffered tuples, presenting the distinct
+     * keys in ascending order to the builder. The builder is NOT closed.
+     * 
+     * @param builder
+     *            The builder.
+     * 
+     * @return The #of distinct tuples presented to the builder.
+     */
+    public long writeOn(final BulkBTreeBuilder builder) throws IOException {
+
+        if (builder == null)
+            throw new IllegalArgumentException();
+
+        if (closed)
+            throw new IllegalStateException();
+
+        closed = true;
+
+        final PriorityQueue<Source> queue = new PriorityQueue<Source>(
+                runs.size() + 1);
+
+        final List<Source> sources = new ArrayList<Source>(runs.size() + 1);
+
+        try {
+
+            for (int i = 0; i < runs.size(); i++) {
+
+                sources.add(new RunSource(i, runs.get(i)));
+
+            }
+
+            // The buffered tuples are the last run.
+            sources.add(new ArraySource(runs.size(), sortBuffer()));
+
+            for (Source s : sources) {
+
+                if (s.advance())
+                    queue.add(s);
+
+            }
+
+            long n = 0L;
+
+            byte[] lastKey = null;
+
+            Source s;
+
+            while ((s = queue.poll()) != null) {
+
+                final Tuple t = s.current;
+
+                if (lastKey == null
+                        || BytesUtil.compareBytes(lastKey, t.key) != 0) {
+
+                    builder.add(t.key, t.val);
+
+                    lastKey = t.key;
+
+                    n++;
+
+                }
+
+                if (s.advance())
+                    queue.add(s);
+
+            }
+
+            return n;
+
+        } finally {
+
+            for (Source src : sources) {
+
+                src.close();
+
+            }
+
+            close();
+
+        }
+
+    }
+
+    /**
+     * Discard the buffered tuples and delete the sorted runs.
+     */
+    public void close() {
+
+        closed = true;
+
+        buffer.clear();
+
+        for (File file : runs) {
+
+            if (file.exists() && !file.delete()) {
+
+                log.warn("Could not delete: " + file);
+
+            }
+
+        }
+
+        runs.clear();
+
+    }
+
+    /**
+     * A key/value pair.
+     */
+    private static class Tuple {
+
+        final byte[] key;
+
+        final byte[] val;
+
+        Tuple(final byte[] key, final byte[] val) {
+
+            this.key = key;
+
+            this.val = val;
+
+        }
+
+    }
+
+    private static class TupleComparator implements Comparator<Tuple> {
+
+        static final TupleComparator INSTANCE = new TupleComparator();
+
+        @Override
+        public int compare(final Tuple o1, final Tuple o2) {
+
+            return BytesUtil.compareBytes(o1.key, o2.key);
+
+        }
+
+    }
+
+    /**
+     * A source of sorted tuples for the merge. Ties on the key are broken by
+     * the order in which the sources were created, which is the order in
+     * which their tuples were added.
+     */
+    private static abstract class Source implements Comparable<Source> {
+
+        private final int index;
+
+        Tuple current;
+
+        Source(final int index) {
+
+            this.index = index;
+
+        }
+
+        /**
+         * Advance to the next tuple.
+         * 
+         * @return <code>false</code> iff the source is exhausted.
+         */
+        abstract boolean advance() throws IOException;
+
+        void close() {
+        }
+
+        @Override
+        public int compareTo(final Source o) {
+
+            final int ret = BytesUtil.compareBytes(current.key, o.current.key);
+
+            if (ret != 0)
+                return ret;
+
+            return index < o.index ? -1 : index > o.index ? 1 : 0;
+
+        }
+
+    }
+
+    private static class ArraySource extends Source {
+
+        private final Tuple[] a;
+
+        private int i = 0;
+
+        ArraySource(final int index, final Tuple[] a) {
+
+            super(index);
+
+            this.a = a;
+
+        }
+
+        @Override
+        boolean advance() {
+
+            if (i == a.length) {
+
+                current = null;
+
+                return false;
+
+            }
+
+            current = a[i++];
+
+            return true;
+
+        }
+
+    }
+
+    private static class RunSource extends Source {
+
+        private final DataInputStream in;
+
+        RunSource(final int index, final File file) throws IOException {
+
+            super(index);
+
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file), IO_BUFFER_SIZE));
+
+        }
+
+        @Override
+        boolean advance() throws IOException {
+
+            final int klen;
+            try {
+                klen = in.readInt();
+            } catch (EOFException ex) {
+                current = null;
+                return false;
+            }
+
+            final byte[] key = new byte[klen];
+
+            in.readFully(key);
+
+            final int vlen = in.readInt();
+
+            final byte[] val;
+
+            if (vlen == -1) {
+
+                val = null;
+
+            } else {
+
+                val = new byte[vlen];
+
+                in.readFully(val);
+
+            }
+
+            current = new Tuple(key, val);
+
+            return true;
+
+        }
+
+        @Override
+        void close() {
+
+            try {
+                in.close();
+            } catch (IOException ex) {
+                log.warn(ex, ex);
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.btree;
+
+/**
+ * A count-min sketch of 4-bit counters used to estimate the recent access
+ * frequency of a key in a small, fixed amount of memory (the TinyLFU
+ * admission policy). Each key maps onto four counters, one in each of four
+ * 16 counter words chosen by independent hash functions, and the estimate is
+ * the minimum of those counters. Once the #of increments reaches a sample
+ * size proportional to the table size all counters are halved so that the
+ * estimates reflect recent rather than historical popularity.
+ * <p>
+ * Note: This class is not thread-safe, but concurrent use is benign. A lost
+ * update merely makes an estimate slightly lower than it should be.
+ * 
+ * @see PageCache
+ */
+public class FrequencySketch {
+
+    private static final long[] SEED = new long[] {//
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, //
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /**
+     * Mask used to clear the high bit of each 4-bit counter after a shift.
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * The maximum value of a counter.
+     */
+    public static final int MAX_COUNT = 15;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    /**
+     * The #of increments since the last reset (approximate).
+     */
+    private int size;
+
+    /**
+     * @param expectedEntries
+     *            The expected #of distinct keys in the cache.
+     */
+    public FrequencySketch(final long expectedEntries) {
+
+        int n = 16;
+
+        while (n < expectedEntries && n < (1 << 26))
+            n <<= 1;
+
+        table = new long[n];
+
+        tableMask = n - 1;
+
+        sampleSize = 10 * n;
+
+    }
+
+    /**
+     * Return the estimated #of recent occurrences of the key (at most
+     * {@link #MAX_COUNT}).
+     */
+    public int frequency(final long key) {
+
+        final int hash = spread(key);
+
+        final int start = (hash & 3) << 2;
+
+        int frequency = MAX_COUNT;
+
+        for (int i = 0; i < 4; i++) {
+
+            final long word = table[indexOf(hash, i)];
+
+            final int count = (int) ((word >>> ((start + i) << 2)) & 0xfL);
+
+            if (count < frequency)
+                frequency = count;
+
+        }
+
+        return frequency;
+
+    }
+
+    /**
+     * Record an occurrence of the key.
+     */
+    public void increment(final long key) {
+
+        final int hash = spread(key);
+
+        final int start = (hash & 3) << 2;
+
+        boolean added = false;
+
+        for (int i = 0; i < 4; i++) {
+
+            added |= incrementAt(indexOf(hash, i), start + i);
+
+        }
+
+        if (added && ++size >= sampleSize) {
+
+            reset();
+
+        }
+
+    }
+
+    /**
+     * Increment the j<sup>th</sup> counter in the i<sup>th</sup> word unless
+     * it is already at its maximum value.
+     * 
+     * @return <code>true</code> if the counter was incremented.
+     */
+    private boolean incrementAt(final int i, final int j) {
+
+        final int offset = j << 2;
+
+        final long mask = 0xfL << offset;
+
+        if ((table[i] & mask) != mask) {
+
+            table[i] += 1L << offset;
+
+            return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Halve all counters (aging).
+     */
+    private void reset() {
+
+        for (int i = 0; i < table.length; i++) {
+
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+
+        }
+
+        size = size >>> 1;
+
+    }
+
+    private int indexOf(final int hash, final int i) {
+
+        long h = (hash + SEED[i]) * SEED[i];
+
+        h += h >>> 32;
+
+        return ((int) h) & tableMask;
+
+    }
+
+    /**
+     * Mix the bits of the key (the finalizer from MurmurHash3).
+     */
+    private static int spread(final long key) {
+
+        long x = key;
+
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+
+        x = x ^ (x >>> 33);
+
+        return (int) x;
+
+    }
+
+}
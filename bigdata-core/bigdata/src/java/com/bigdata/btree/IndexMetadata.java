@@ -605,12 +605,18 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
 
         /**
          * An optional factory providing record-level compression for the nodes
-         * and leaves of an {@link IndexSegment} (default
-         * {@value #DEFAULT_BTREE_RECORD_COMPRESSOR_FACTORY}).
+         * and leaves of a {@link BTree} or {@link HTree} (default
+         * {@value #DEFAULT_BTREE_RECORD_COMPRESSOR_FACTORY}). The value is the
+         * name of a class implementing {@link IRecordCompressorFactory} having
+         * a public no-arg constructor, e.g.,
+         * {@link com.bigdata.io.compression.LZ4RecordCompressorFactory}. The
+         * coded nodes and leaves are compressed when they are written on the
+         * backing store and decompressed when they are read.
+         * <p>
+         * Note: This is fixed when the index is created. Changing it for an
+         * existing index will make its persistent nodes and leaves unreadable.
          * 
          * @see #INDEX_SEGMENT_RECORD_COMPRESSOR_FACTORY
-         * 
-         * FIXME Record level compression support is not finished.
          */
         String BTREE_RECORD_COMPRESSOR_FACTORY = (BTree.class.getName()
                 + ".recordCompressorFactory").intern();
@@ -759,7 +765,10 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
          * 
          * @see #BTREE_RECORD_COMPRESSOR_FACTORY
          * 
-         * FIXME Record level compression support is not finished.
+         * FIXME Record level compression support is not finished. The
+         * {@link IndexSegmentBuilder} does not apply this factory and the
+         * {@link IndexSegment} reads its nodes and leaves without
+         * decompression.
          */
         String INDEX_SEGMENT_RECORD_COMPRESSOR_FACTORY = (IndexSegment.class.getName()
                 + ".recordCompressorFactory").intern();
@@ -1109,6 +1118,13 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
     private IRabaCoder nodeKeysCoder;
     private ITupleSerializer<?, ?> tupleSer;
     private IRecordCompressorFactory<?> btreeRecordCompressorFactory;
+    /**
+     * <code>true</code> iff the {@link #btreeRecordCompressorFactory} is
+     * applied to the nodes and leaves of the index.
+     * 
+     * @see #VERSION5
+     */
+    private boolean recordsCompressed;
     private IRecordCompressorFactory<?> indexSegmentRecordCompressorFactory;
     private IConflictResolver conflictResolver;
     private boolean deleteMarkers;
@@ -1262,6 +1278,43 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
         
     }
 
+    /**
+     * Return <code>true</code> iff the nodes and leaves of a {@link BTree} or
+     * {@link HTree} are written using the
+     * {@link #getBtreeRecordCompressorFactory()}. This is always
+     * <code>true</code> for an index created with this version of the
+     * {@link IndexMetadata}. It is <code>false</code> for indices created
+     * before {@link #VERSION5}, whose nodes and leaves were written without
+     * record-level compression regardless of the configured factory.
+     */
+    public final boolean getRecordsCompressed() {
+        
+        return recordsCompressed;
+        
+    }
+
+    /**
+     * Used by the unit tests to simulate an index created before
+     * {@link #VERSION5}.
+     */
+    void setRecordsCompressed(final boolean recordsCompressed) {
+
+        this.recordsCompressed = recordsCompressed;
+
+    }
+
+    /**
+     * Return the record-level compression provider which is applied to the
+     * nodes and leaves of a {@link BTree} or {@link HTree} (may be null, which
+     * implies no compression). This is <code>null</code> unless
+     * {@link #getRecordsCompressed()} reports <code>true</code>.
+     */
+    public IRecordCompressorFactory getNodeRecordCompressorFactory() {
+
+        return recordsCompressed ? btreeRecordCompressorFactory : null;
+
+    }
+
     /**
      * Return the record-level compression provider for an {@link IndexSegment}
      * (may be null, which implies no compression).
@@ -2086,6 +2139,9 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
                 Options.DEFAULT_BTREE_RECORD_COMPRESSOR_FACTORY/* default */),
                 IRecordCompressorFactory.class);
 
+        // A new index applies record-level compression (if configured).
+        this.recordsCompressed = true;
+
         this.indexSegmentBranchingFactor = getProperty(indexManager,
                 properties, namespace, Options.INDEX_SEGMENT_BRANCHING_FACTOR,
                 Options.DEFAULT_INDEX_SEGMENT_BRANCHING_FACTOR,
@@ -2520,10 +2576,19 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
 	 */
     private static transient final int VERSION4 = 0x4;
 
+    /**
+     * This version adds the {@link #recordsCompressed} flag. Record-level
+     * compression was not applied to the nodes and leaves of a {@link BTree} or
+     * {@link HTree} before this version, even when a
+     * {@link #btreeRecordCompressorFactory} was configured, so the flag is
+     * <code>false</code> for all prior versions.
+     */
+    private static transient final int VERSION5 = 0x5;
+
     /**
      * The version that will be serialized by this class.
      */
-    private static transient final int CURRENT_VERSION = VERSION4;
+    private static transient final int CURRENT_VERSION = VERSION5;
 
     /**
 	 * The actual version as set by {@link #readExternal(ObjectInput)} and
@@ -2545,7 +2610,7 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
         case VERSION2:
         case VERSION3:
         case VERSION4:
-//        case VERSION5:
+        case VERSION5:
 //        case VERSION6:
 //        case VERSION7:
 //        case VERSION8:
@@ -2604,6 +2669,12 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
         btreeRecordCompressorFactory = (IRecordCompressorFactory<?>) in
                 .readObject();
 
+        if (version >= VERSION5) {
+            recordsCompressed = in.readBoolean();
+        } else {
+            recordsCompressed = false;
+        }
+
         conflictResolver = (IConflictResolver) in.readObject();
 
         deleteMarkers = in.readBoolean();
@@ -2716,6 +2787,10 @@ public class IndexMetadata implements Serializable, Externalizable, Cloneable,
 
         out.writeObject(btreeRecordCompressorFactory);
 
+        if (version >= VERSION5) {
+            out.writeBoolean(recordsCompressed);
+        }
+
         out.writeObject(conflictResolver);
 
         out.writeBoolean(deleteMarkers);
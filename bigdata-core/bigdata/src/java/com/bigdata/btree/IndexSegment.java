@@ -315,7 +315,11 @@ public class IndexSegment extends AbstractBTree {//implements ILocalBTreeView {
                 ImmutableNodeFactory.INSTANCE,//
                 true, // always read-only
                 fileStore.getIndexMetadata(),//
-                fileStore.getIndexMetadata().getIndexSegmentRecordCompressorFactory()
+                /*
+                 * Note: The IndexSegmentBuilder does not apply record-level
+                 * compression, so the nodes and leaves are read as coded.
+                 */
+                null // recordCompressorFactory
                 );
 
         // Type-safe reference to the backing store.
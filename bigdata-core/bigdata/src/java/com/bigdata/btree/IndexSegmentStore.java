@@ -345,6 +345,13 @@ public class IndexSegmentStore extends AbstractRawStore {
             // @see BLZG-1501 (remove LRUNexus)
             this.storeCache = null;
 //            this.storeCache = LRUNexus.getCache(this);
+
+            /*
+             * Register with the shared page cache (if enabled). The segment
+             * is read-only so its records remain valid across a reopen.
+             */
+            if (PageCache.INSTANCE != null)
+                PageCache.INSTANCE.register(getUUID());
             
             // Read the metadata record.
             this.indexMetadata = readMetadata();
@@ -765,6 +772,8 @@ public class IndexSegmentStore extends AbstractRawStore {
 //                    LRUNexus.INSTANCE.deleteCache(getUUID());
 //
 //                }
+
+                PageCache.deleteCache(getUUID());
                 
             } catch (Throwable t) {
                 
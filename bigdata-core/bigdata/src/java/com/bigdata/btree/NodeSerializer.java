@@ -43,6 +43,7 @@ import com.bigdata.io.FixedByteArrayBuffer;
 import com.bigdata.io.IDataRecord;
 import com.bigdata.io.compression.IRecordCompressor;
 import com.bigdata.io.compression.IRecordCompressorFactory;
+import com.bigdata.io.compression.LZ4RecordCompressor;
 import com.bigdata.io.compression.NOPRecordCompressor;
 import com.bigdata.rawstore.IAddressManager;
 import com.bigdata.rawstore.IRawStore;
@@ -363,7 +364,12 @@ public class NodeSerializer {
         // FIXME should be done at the store level during decompress.
         final AbstractFixedByteArrayBuffer slice;
         if (!buf.hasArray()) {
-            // backing array is not accessible, so copy into new byte[].
+            /*
+             * backing array is not accessible, so copy into new byte[]. This
+             * copy is also required for a view onto a memory mapped record
+             * since the slot may be recycled once the address is no longer
+             * protected, while the decoded node or leaf may be cached.
+             */
             final byte[] tmp = new byte[buf.remaining()];
             buf.get(tmp);
             slice = FixedByteArrayBuffer.wrap(tmp);
@@ -385,6 +391,92 @@ public class NodeSerializer {
 
     }
 
+    /**
+     * Apply record-level compression to a coded node or leaf before it is
+     * written on the backing store. This is used by writers only, which are
+     * single threaded.
+     * 
+     * @param buf
+     *            The coded data record.
+     * 
+     * @return The record to be written on the backing store. This is
+     *         <i>buf</i> if record-level compression was not configured.
+     * 
+     * @see #decompress(ByteBuffer)
+     */
+    public ByteBuffer compress(final ByteBuffer buf) {
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        if (recordCompressorFactory == null) {
+
+            // record-level compression is not configured.
+            return buf;
+
+        }
+
+        final IRecordCompressor c = _writeCompressor != null ? _writeCompressor
+                : recordCompressorFactory.getInstance();
+
+        return c.compress(buf);
+
+    }
+
+    /**
+     * Reverse the record-level compression (if configured) applied by
+     * {@link #compress(ByteBuffer)} (thread-safe). The decompressed record is
+     * returned in an exact fit buffer since the coded node or leaf will wrap
+     * its backing byte[]. An {@link LZ4RecordCompressor} decompresses directly
+     * into that buffer. The other compressors decompress onto a shared buffer,
+     * so their output is copied.
+     * 
+     * @param buf
+     *            The record read from the backing store. The position of
+     *            this buffer is NOT changed.
+     * 
+     * @return The coded data record. This is <i>buf</i> if record-level
+     *         compression was not configured.
+     */
+    public ByteBuffer decompress(final ByteBuffer buf) {
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        if (recordCompressorFactory == null) {
+
+            // record-level compression is not configured.
+            return buf;
+
+        }
+
+        // Note: new instance since readers may be concurrent.
+        final IRecordCompressor c = recordCompressorFactory.getInstance();
+
+        final ByteBuffer dst;
+        if (c instanceof LZ4RecordCompressor) {
+
+            dst = ByteBuffer.allocate(LZ4RecordCompressor
+                    .getDecompressedLength(buf));
+
+            ((LZ4RecordCompressor) c).decompress(buf.duplicate(), dst);
+
+        } else {
+
+            final ByteBuffer tmp = c.decompress(buf.duplicate());
+
+            dst = ByteBuffer.allocate(tmp.remaining());
+
+            dst.put(tmp);
+
+        }
+
+        dst.flip();
+
+        return dst;
+
+    }
+
     /**
      * Wrap an {@link INodeData} or {@link ILeafData} instance as a {@link Node}
      * or a {@link Leaf}. This DOES NOT set the parent of the new {@link Node}
@@ -0,0 +1,916 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.htree.AbstractHTree;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.io.IBufferAccess;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.util.Bytes;
+
+/**
+ * A JVM-wide, size bounded cache for the coded data records of the nodes and
+ * leaves of {@link AbstractBTree}s and the pages of {@link AbstractHTree}s.
+ * The records are stored off the JVM heap in direct buffers obtained from a
+ * {@link DirectBufferPool} and are shared by all indices on the same backing
+ * store. A cache hit is copied onto the heap and decoded, which avoids the IO
+ * (and checksum) for the record without retaining decoded nodes and leaves on
+ * the JVM heap.
+ * <p>
+ * The direct buffers are used as a ring of segments. Records are appended to
+ * the current segment and, once every segment is full, the oldest segment is
+ * recycled. Admission and eviction are driven by a {@link FrequencySketch} of
+ * recent accesses (TinyLFU): a record is only admitted once it has been
+ * requested {@link Options#ADMISSION_THRESHOLD} times, so a scan does not
+ * flush the cache, and the frequently used records of a segment which is
+ * being recycled are given a second chance by re-appending them to the ring.
+ * <p>
+ * Only stores which have been {@link #register(UUID) registered} are cached
+ * (the non-HA journals and the {@link IndexSegmentStore}s). A store address
+ * may be reused by the RWStore or after an abort, so an entry is removed when
+ * the index deletes the node or leaf, when a new node or leaf is written onto
+ * that address, and the cache for a journal is cleared when the journal
+ * aborts. HA journals are not registered since the followers replicate the
+ * writes and frees of the leader without going through the index layer.
+ * <p>
+ * Readers do not take the monitor. The location of a record includes the
+ * generation of its segment and each segment has a
+ * {@link ReentrantReadWriteLock}. A reader holds the read lock while it checks
+ * the generation and copies the record, and the write lock is held while the
+ * segment is recycled, so a record in a segment which was recycled is
+ * reported as a miss rather than read while it is being overwritten.
+ */
+public class PageCache {
+
+    private static final Logger log = Logger.getLogger(PageCache.class);
+
+    /**
+     * Options for the {@link PageCache#INSTANCE}. Since the instance is static
+     * these options MUST be specified on the command line using
+     * <code>-D</code>.
+     */
+    public interface Options {
+
+        /**
+         * When <code>true</code> the {@link PageCache#INSTANCE} is created
+         * (default {@value #DEFAULT_ENABLED}).
+         */
+        String ENABLED = PageCache.class.getName() + ".enabled";
+
+        String DEFAULT_ENABLED = "false";
+
+        /**
+         * The maximum #of bytes in the direct buffers used by the cache
+         * (default {@value #DEFAULT_CAPACITY}). This is rounded down to a
+         * whole #of {@link DirectBufferPool} buffers. The heap overhead is
+         * roughly 100 bytes per cached record.
+         */
+        String CAPACITY = PageCache.class.getName() + ".capacity";
+
+        String DEFAULT_CAPACITY = "" + Bytes.gigabyte;
+
+        /**
+         * The minimum estimated #of recent requests for a record before it is
+         * admitted to the cache (default {@value #DEFAULT_ADMISSION_THRESHOLD}).
+         * Records requested at least twice this often are retained when their
+         * segment is recycled.
+         */
+        String ADMISSION_THRESHOLD = PageCache.class.getName()
+                + ".admissionThreshold";
+
+        String DEFAULT_ADMISSION_THRESHOLD = "2";
+
+    }
+
+    /**
+     * The JVM-wide instance and <code>null</code> unless
+     * {@link Options#ENABLED}.
+     */
+    public static final PageCache INSTANCE;
+
+    /**
+     * The per-store caches, keyed by the {@link UUID} of the store.
+     */
+    private static final ConcurrentHashMap<UUID, StoreCache> caches = new ConcurrentHashMap<UUID, StoreCache>();
+
+    static {
+
+        PageCache tmp = null;
+
+        if (Boolean.valueOf(System.getProperty(Options.ENABLED,
+                Options.DEFAULT_ENABLED))) {
+
+            final long capacity = Long.parseLong(System.getProperty(
+                    Options.CAPACITY, Options.DEFAULT_CAPACITY));
+
+            final int admissionThreshold = Integer.parseInt(System
+                    .getProperty(Options.ADMISSION_THRESHOLD,
+                            Options.DEFAULT_ADMISSION_THRESHOLD));
+
+            tmp = new PageCache(DirectBufferPool.INSTANCE, capacity,
+                    admissionThreshold);
+
+            if (log.isInfoEnabled())
+                log.info(Options.CAPACITY + "=" + capacity + ", "
+                        + Options.ADMISSION_THRESHOLD + "="
+                        + admissionThreshold);
+
+        }
+
+        INSTANCE = tmp;
+
+    }
+
+    /**
+     * Return the cache for the backing store.
+     * 
+     * @param store
+     *            The backing store (MAY be <code>null</code>).
+     * 
+     * @return The cache for that store -or- <code>null</code> if the store is
+     *         not registered.
+     */
+    public static StoreCache getCache(final IRawStore store) {
+
+        if (store == null || caches.isEmpty())
+            return null;
+
+        return caches.get(store.getUUID());
+
+    }
+
+    /**
+     * Discard the cache for a store, e.g., when the store is closed or
+     * destroyed.
+     * 
+     * @param uuid
+     *            The {@link UUID} of the store.
+     */
+    public static void deleteCache(final UUID uuid) {
+
+        caches.remove(uuid);
+
+    }
+
+    /**
+     * The maximum #of segments (the segment index is 16 bits in a location).
+     */
+    private static final int MAX_SEGMENTS = 0xFFFF;
+
+    private final DirectBufferPool pool;
+
+    private final int segmentCapacity;
+
+    private final int admissionThreshold;
+
+    private final int reinsertThreshold;
+
+    private final FrequencySketch sketch;
+
+    /**
+     * The ring of segments. Slots are filled as buffers are acquired.
+     * Guarded by <code>this</code>.
+     */
+    private final Segment[] segments;
+
+    /**
+     * The index of the segment to which records are being appended and
+     * <code>-1</code> initially. Guarded by <code>this</code>.
+     */
+    private int current = -1;
+
+    /**
+     * The #of segments which have been allocated.
+     */
+    private volatile int nsegments = 0;
+
+    private volatile boolean open = true;
+
+    /**
+     * Used to assign a distinct identifier to each {@link StoreCache}.
+     */
+    private final AtomicLong nextStoreId = new AtomicLong();
+
+    private final CAT hits = new CAT();
+
+    private final CAT misses = new CAT();
+
+    private final CAT admitted = new CAT();
+
+    private final CAT rejected = new CAT();
+
+    private final CAT evicted = new CAT();
+
+    private final CAT reinserted = new CAT();
+
+    /**
+     * @param pool
+     *            The pool from which the direct buffers will be acquired.
+     * @param capacity
+     *            The maximum #of bytes in those buffers.
+     * @param admissionThreshold
+     *            See {@link Options#ADMISSION_THRESHOLD}.
+     */
+    public PageCache(final DirectBufferPool pool, final long capacity,
+            final int admissionThreshold) {
+
+        if (pool == null)
+            throw new IllegalArgumentException();
+
+        if (admissionThreshold < 0
+                || admissionThreshold > FrequencySketch.MAX_COUNT)
+            throw new IllegalArgumentException(Options.ADMISSION_THRESHOLD
+                    + "=" + admissionThreshold);
+
+        this.pool = pool;
+
+        this.segmentCapacity = pool.getBufferCapacity();
+
+        final long n = capacity / segmentCapacity;
+
+        if (n < 2)
+            throw new IllegalArgumentException(Options.CAPACITY + "="
+                    + capacity + " : must be at least 2 buffers of "
+                    + segmentCapacity + " bytes");
+
+        this.segments = new Segment[(int) Math.min(n, MAX_SEGMENTS)];
+
+        this.admissionThreshold = admissionThreshold;
+
+        this.reinsertThreshold = Math.min(FrequencySketch.MAX_COUNT,
+                Math.max(1, admissionThreshold * 2));
+
+        // Assume 1k records on average.
+        this.sketch = new FrequencySketch(segments.length
+                * (long) (segmentCapacity / Bytes.kilobyte32));
+
+    }
+
+    /**
+     * Register a store, returning its cache.
+     * 
+     * @param uuid
+     *            The {@link UUID} of the store.
+     *            
+     * @return The cache for that store.
+     */
+    public StoreCache register(final UUID uuid) {
+
+        if (uuid == null)
+            throw new IllegalArgumentException();
+
+        final StoreCache cache = new StoreCache(this,
+                nextStoreId.incrementAndGet());
+
+        final StoreCache old = caches.putIfAbsent(uuid, cache);
+
+        return old == null ? cache : old;
+
+    }
+
+    /**
+     * Close the cache, discarding the caches for all stores registered with
+     * this instance and releasing the direct buffers back to the pool.
+     */
+    public synchronized void close() {
+
+        if (!open)
+            return;
+
+        open = false;
+
+        for (StoreCache cache : caches.values()) {
+
+            if (cache.owner == this) {
+
+                caches.values().remove(cache);
+
+                cache.clear();
+
+            }
+
+        }
+
+        for (int i = 0; i < segments.length; i++) {
+
+            final Segment s = segments[i];
+
+            if (s == null)
+                continue;
+
+            // Wait for the readers and invalidate the records.
+            s.lock.writeLock().lock();
+            try {
+                s.generation = (s.generation + 1) & 0xFFFF;
+            } finally {
+                s.lock.writeLock().unlock();
+            }
+
+            try {
+                s.access.release();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            segments[i] = null;
+
+        }
+
+        nsegments = 0;
+
+    }
+
+    /**
+     * The cache for the records of a single backing store.
+     */
+    public static class StoreCache {
+
+        private final PageCache owner;
+
+        private final long id;
+
+        /**
+         * Map from the store address to the location of the record in the
+         * {@link PageCache}.
+         */
+        private final ConcurrentHashMap<Long, Long> map = new ConcurrentHashMap<Long, Long>();
+
+        private StoreCache(final PageCache owner, final long id) {
+
+            this.owner = owner;
+
+            this.id = id;
+
+        }
+
+        /**
+         * Return a copy of the record for the address.
+         * 
+         * @return A heap buffer containing the record -or- <code>null</code>
+         *         on a cache miss.
+         */
+        public ByteBuffer get(final long addr) {
+
+            return owner.read(this, addr);
+
+        }
+
+        /**
+         * Offer the record read from the store for the address to the cache.
+         * The record is copied into the cache iff it passes the admission
+         * policy. The position and limit of the caller's buffer are not
+         * changed.
+         */
+        public void put(final long addr, final ByteBuffer data) {
+
+            owner.admit(this, addr, data);
+
+        }
+
+        /**
+         * Remove the record for the address (if any). This MUST be invoked
+         * when the address is deleted or rewritten.
+         */
+        public void remove(final long addr) {
+
+            map.remove(addr);
+
+        }
+
+        /**
+         * Remove all records for the store.
+         */
+        public void clear() {
+
+            map.clear();
+
+        }
+
+        /**
+         * The #of records in the cache for the store.
+         */
+        public int size() {
+
+            return map.size();
+
+        }
+
+    }
+
+    /**
+     * A direct buffer to which records are appended. Each record is stored as
+     * an <code>int</code> length followed by the record.
+     */
+    private static class Segment {
+
+        final int index;
+
+        final IBufferAccess access;
+
+        final ByteBuffer buf;
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * Incremented (under the write lock) each time the segment is
+         * recycled.
+         */
+        volatile int generation;
+
+        /**
+         * The #of bytes used. Guarded by the {@link PageCache}.
+         */
+        int used;
+
+        /**
+         * The records appended to the segment since it was last recycled.
+         * Guarded by the {@link PageCache}.
+         */
+        final List<Entry> entries = new ArrayList<Entry>();
+
+        Segment(final int index, final IBufferAccess access) {
+            this.index = index;
+            this.access = access;
+            this.buf = access.buffer();
+        }
+
+    }
+
+    /**
+     * A record which was appended to a {@link Segment}.
+     */
+    private static class Entry {
+
+        final StoreCache cache;
+
+        final long addr;
+
+        final long loc;
+
+        Entry(final StoreCache cache, final long addr, final long loc) {
+            this.cache = cache;
+            this.addr = addr;
+            this.loc = loc;
+        }
+
+    }
+
+    private static long encode(final int segment, final int generation,
+            final int offset) {
+
+        return (((long) segment) << 48) | (((long) generation) << 32)
+                | (offset & 0xFFFFFFFFL);
+
+    }
+
+    private static int segmentOf(final long loc) {
+        return (int) (loc >>> 48);
+    }
+
+    private static int generationOf(final long loc) {
+        return (int) ((loc >>> 32) & 0xFFFF);
+    }
+
+    private static int offsetOf(final long loc) {
+        return (int) loc;
+    }
+
+    private static long key(final StoreCache cache, final long addr) {
+
+        return cache.id * 0x9E3779B97F4A7C15L + addr;
+
+    }
+
+    private ByteBuffer read(final StoreCache cache, final long addr) {
+
+        sketch.increment(key(cache, addr));
+
+        final Long loc = cache.map.get(addr);
+
+        if (loc != null) {
+
+            final byte[] a = copy(loc.longValue());
+
+            if (a != null) {
+
+                hits.increment();
+
+                return ByteBuffer.wrap(a);
+
+            }
+
+        }
+
+        misses.increment();
+
+        return null;
+
+    }
+
+    /**
+     * Copy a record out of its segment.
+     * 
+     * @return The record -or- <code>null</code> if the segment was recycled.
+     */
+    private byte[] copy(final long loc) {
+
+        final Segment s = segments[segmentOf(loc)];
+
+        if (s == null)
+            return null;
+
+        // Fast path for a record whose segment was already recycled.
+        if (s.generation != generationOf(loc))
+            return null;
+
+        final Lock lock = s.lock.readLock();
+
+        lock.lock();
+        try {
+
+            if (s.generation != generationOf(loc))
+                return null;
+
+            final int off = offsetOf(loc);
+
+            final ByteBuffer b = s.buf.duplicate();
+
+            final int len = b.getInt(off);
+
+            if (len <= 0 || len > segmentCapacity - off - 4) {
+                // Not a record (should not happen).
+                return null;
+            }
+
+            final byte[] a = new byte[len];
+
+            b.position(off + 4);
+
+            b.get(a);
+
+            return a;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    private void admit(final StoreCache cache, final long addr,
+            final ByteBuffer data) {
+
+        final int len = data.limit();
+
+        if (len == 0 || len > segmentCapacity - 4 || !open) {
+
+            rejected.increment();
+
+            return;
+
+        }
+
+        if (sketch.frequency(key(cache, addr)) < admissionThreshold) {
+
+            rejected.increment();
+
+            return;
+
+        }
+
+        if (cache.map.containsKey(addr))
+            return;
+
+        final ByteBuffer src = data.duplicate();
+
+        src.position(0);
+
+        synchronized (this) {
+
+            if (!open)
+                return;
+
+            Segment s = current == -1 ? null : segments[current];
+
+            if (s == null || s.used + 4 + len > segmentCapacity) {
+
+                s = nextSegment();
+
+                if (s == null) {
+
+                    rejected.increment();
+
+                    return;
+
+                }
+
+            }
+
+            cache.map.put(addr, append(s, cache, addr, src));
+
+        }
+
+        admitted.increment();
+
+    }
+
+    /**
+     * Append a record to a segment. The caller must hold the monitor and the
+     * segment must have room for the record.
+     * 
+     * @return The location of the record.
+     */
+    private long append(final Segment s, final StoreCache cache,
+            final long addr, final ByteBuffer src) {
+
+        final int off = s.used;
+
+        final int len = src.remaining();
+
+        final ByteBuffer b = s.buf.duplicate();
+
+        b.putInt(off, len);
+
+        b.position(off + 4);
+
+        b.put(src);
+
+        s.used = off + 4 + len;
+
+        final long loc = encode(s.index, s.generation, off);
+
+        s.entries.add(new Entry(cache, addr, loc));
+
+        return loc;
+
+    }
+
+    /**
+     * Advance to the next segment in the ring, allocating it if necessary
+     * and otherwise recycling it. The caller must hold the monitor.
+     * 
+     * @return The segment -or- <code>null</code> if a buffer could not be
+     *         acquired.
+     */
+    private Segment nextSegment() {
+
+        final int next = (current + 1) % segments.length;
+
+        Segment s = segments[next];
+
+        if (s == null) {
+
+            final IBufferAccess access;
+            try {
+                access = pool.acquire();
+            } catch (InterruptedException ex) {
+                // Propagate the interrupt.
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            s = new Segment(next, access);
+
+            segments[next] = s;
+
+            nsegments++;
+
+            current = next;
+
+            return s;
+
+        }
+
+        current = next;
+
+        recycle(s);
+
+        return s;
+
+    }
+
+    /**
+     * Recycle a segment. The records which are still current and whose
+     * estimated frequency is at least the reinsert threshold are copied out
+     * (up to half the segment) and appended again once the segment has been
+     * cleared. The other records are evicted. The caller must hold the
+     * monitor.
+     */
+    private void recycle(final Segment s) {
+
+        final List<Entry> hot = new ArrayList<Entry>();
+
+        final List<byte[]> hotData = new ArrayList<byte[]>();
+
+        int budget = segmentCapacity / 2;
+
+        for (Entry e : s.entries) {
+
+            final Long loc = e.cache.map.get(e.addr);
+
+            if (loc == null || loc.longValue() != e.loc) {
+                // Removed or replaced.
+                continue;
+            }
+
+            if (sketch.frequency(key(e.cache, e.addr)) >= reinsertThreshold) {
+
+                final ByteBuffer b = s.buf.duplicate();
+
+                final int off = offsetOf(e.loc);
+
+                final int len = b.getInt(off);
+
+                if (len + 4 <= budget) {
+
+                    final byte[] a = new byte[len];
+
+                    b.position(off + 4);
+
+                    b.get(a);
+
+                    hot.add(e);
+
+                    hotData.add(a);
+
+                    budget -= len + 4;
+
+                    continue;
+
+                }
+
+            }
+
+            if (e.cache.map.remove(e.addr, loc))
+                evicted.increment();
+
+        }
+
+        s.lock.writeLock().lock();
+        try {
+            s.generation = (s.generation + 1) & 0xFFFF;
+            s.used = 0;
+            s.entries.clear();
+        } finally {
+            s.lock.writeLock().unlock();
+        }
+
+        for (int i = 0; i < hot.size(); i++) {
+
+            final Entry e = hot.get(i);
+
+            final long loc = append(s, e.cache, e.addr,
+                    ByteBuffer.wrap(hotData.get(i)));
+
+            if (e.cache.map.replace(e.addr, e.loc, loc)) {
+
+                reinserted.increment();
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Return the performance counters for the cache.
+     */
+    public CounterSet getCounters() {
+
+        final CounterSet counterSet = new CounterSet();
+
+        counterSet.addCounter("capacity", new OneShotInstrument<Long>(
+                (long) segments.length * segmentCapacity));
+
+        counterSet.addCounter("bytesAllocated", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue((long) nsegments * segmentCapacity);
+            }
+        });
+
+        counterSet.addCounter("storeCount", new Instrument<Integer>() {
+            @Override
+            protected void sample() {
+                setValue(caches.size());
+            }
+        });
+
+        counterSet.addCounter("hits", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        counterSet.addCounter("misses", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        counterSet.addCounter("hitRatio", new Instrument<Double>() {
+            @Override
+            protected void sample() {
+                final long h = hits.get();
+                final long n = h + misses.get();
+                setValue(n == 0L ? 0d : ((double) h) / n);
+            }
+        });
+
+        counterSet.addCounter("admitted", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(admitted.get());
+            }
+        });
+
+        counterSet.addCounter("rejected", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(rejected.get());
+            }
+        });
+
+        counterSet.addCounter("evicted", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(evicted.get());
+            }
+        });
+
+        counterSet.addCounter("reinserted", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(reinserted.get());
+            }
+        });
+
+        return counterSet;
+
+    }
+
+    /**
+     * The #of cache hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * The #of cache misses.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * The #of records evicted when their segment was recycled.
+     */
+    public long getEvictionCount() {
+        return evicted.get();
+    }
+
+}
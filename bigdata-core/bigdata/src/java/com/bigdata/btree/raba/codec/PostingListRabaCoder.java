@@ -0,0 +1,797 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.btree.raba.codec;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.Bytes;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Class provides (de-)compression for the ordered keys of a posting list, such
+ * as the keys of the full text index (<code>{token, termWeight, docId}</code>).
+ * Consecutive keys in such an index have the same length and differ only in
+ * the trailing document identifier. Such keys are coded as the delta of their
+ * last {@value #TAIL_BYTES} bytes (interpreted as an unsigned integer) against
+ * the previous key and written as a variable length integer, which is
+ * typically one or two bytes per key. Any other key is front-coded against
+ * the previous key.
+ * <p>
+ * The keys are coded in blocks of a fixed #of keys. The first key of each
+ * block is coded in full and the byte offset of each block is recorded, so
+ * search is a binary search over the first key of each block followed by a
+ * linear scan of a single block. Decoding is batch oriented: a block is
+ * decoded all at once and the most recently decoded block is retained, so a
+ * range scan decodes each block exactly once.
+ * <p>
+ * The data MUST be ordered. <code>null</code> values are not allowed.
+ */
+public class PostingListRabaCoder implements IRabaCoder, Externalizable {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = -2542745101390227283L;
+
+    protected static final Logger log = Logger
+            .getLogger(PostingListRabaCoder.class);
+
+    /**
+     * The #of trailing bytes of a key which are delta coded.
+     */
+    public static final int TAIL_BYTES = Bytes.SIZEOF_LONG;
+
+    private int blockSize;
+
+    @Override
+    public String toString() {
+
+        return super.toString() + "{blockSize=" + blockSize + "}";
+
+    }
+
+    /**
+     * A pre-parameterized version of the {@link PostingListRabaCoder}.
+     */
+    public static class DefaultPostingListRabaCoder extends
+            PostingListRabaCoder {
+
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -6245014207926245474L;
+
+        public static final transient DefaultPostingListRabaCoder INSTANCE = new DefaultPostingListRabaCoder();
+
+        protected transient static final int DEFAULT_BLOCK_SIZE = 16;
+
+        public DefaultPostingListRabaCoder() {
+
+            super(DEFAULT_BLOCK_SIZE);
+
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException,
+                ClassNotFoundException {
+            // NOP
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            // NOP
+        }
+
+    }
+
+    /**
+     * De-serialization ctor.
+     */
+    public PostingListRabaCoder() {
+    }
+
+    /**
+     * @param blockSize
+     *            The #of keys in each block. The first key in each block is
+     *            fully coded, so this trades compression against the cost of
+     *            the linear scan within a block for search and random access.
+     */
+    public PostingListRabaCoder(final int blockSize) {
+
+        if (blockSize <= 0)
+            throw new IllegalArgumentException();
+
+        this.blockSize = blockSize;
+
+    }
+
+    @Override
+    final public boolean isKeyCoder() {
+
+        return true;
+
+    }
+
+    @Override
+    final public boolean isValueCoder() {
+
+        return false;
+
+    }
+
+    @Override
+    public boolean isDuplicateKeys() {
+
+        return false;
+
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        blockSize = in.readInt();
+
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+
+        out.writeInt(blockSize);
+
+    }
+
+    private static final byte VERSION0 = 0x00;
+
+    private static final int SIZEOF_VERSION = Bytes.SIZEOF_BYTE;
+
+    private static final int SIZEOF_SIZE = Bytes.SIZEOF_INT;
+
+    private static final int SIZEOF_BLOCK_SIZE = Bytes.SIZEOF_INT;
+
+    /** The byte offset of the version identifier. */
+    private static final int O_VERSION = 0;
+
+    /**
+     * The byte offset of the field coding the #of entries in the logical
+     * byte[][].
+     */
+    private static final int O_SIZE = O_VERSION + SIZEOF_VERSION;
+
+    /** The byte offset of the field coding the block size. */
+    private static final int O_BLOCK_SIZE = O_SIZE + SIZEOF_SIZE;
+
+    /**
+     * The byte offset of the table of block offsets. Each block offset is an
+     * int giving the offset of the block from the start of the record.
+     */
+    private static final int O_BLOCKS = O_BLOCK_SIZE + SIZEOF_BLOCK_SIZE;
+
+    /**
+     * The prefix for a key which is coded as a delta against the previous key.
+     * Front-coded keys use a prefix of <code>1 + commonPrefixLength</code>.
+     */
+    private static final int DELTA = 0;
+
+    @Override
+    public ICodedRaba encodeLive(final IRaba raba, final DataOutputBuffer buf) {
+
+        if (raba == null)
+            throw new IllegalArgumentException();
+
+        if (!raba.isKeys())
+            throw new UnsupportedOperationException("Must be keys.");
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        final int size = raba.size();
+
+        final int nblocks = (size + blockSize - 1) / blockSize;
+
+        if (log.isInfoEnabled())
+            log.info("n=" + size + ", capacity=" + raba.capacity()
+                    + ", blockSize=" + blockSize);
+
+        // The byte offset of the origin of the coded record into the buffer.
+        final int O_origin = buf.pos();
+
+        try {
+
+            // The record version identifier.
+            buf.write(VERSION0);
+
+            // #of entries (zero length indicates NO data)
+            buf.writeInt(size);
+
+            // The block size.
+            buf.writeInt(blockSize);
+
+            // Reserve the table of block offsets.
+            for (int b = 0; b < nblocks; b++) {
+
+                buf.writeInt(0);
+
+            }
+
+            byte[] prev = null;
+
+            for (int i = 0; i < size; i++) {
+
+                final byte[] key = raba.get(i);
+
+                if (key == null)
+                    throw new UnsupportedOperationException("null keys");
+
+                if (i % blockSize == 0) {
+
+                    // The first key in the block is fully coded.
+                    buf.putInt(O_origin + O_BLOCKS + (i / blockSize)
+                            * Bytes.SIZEOF_INT, buf.pos() - O_origin);
+
+                    writeVarLong(buf, key.length);
+
+                    buf.write(key);
+
+                } else if (isDelta(prev, key)) {
+
+                    writeVarLong(buf, DELTA);
+
+                    writeVarLong(buf, getTail(key) - getTail(prev));
+
+                } else {
+
+                    final int prefixLength = commonPrefixLength(prev, key);
+
+                    writeVarLong(buf, 1 + prefixLength);
+
+                    writeVarLong(buf, key.length - prefixLength);
+
+                    buf.write(key, prefixLength, key.length - prefixLength);
+
+                }
+
+                prev = key;
+
+            }
+
+            buf.flush();
+
+        } catch (IOException ex) {
+
+            throw new RuntimeException(ex);
+
+        }
+
+        final AbstractFixedByteArrayBuffer slice = buf.slice(//
+                O_origin, buf.pos() - O_origin);
+
+        return new CodedRabaImpl(slice);
+
+    }
+
+    @Override
+    public AbstractFixedByteArrayBuffer encode(final IRaba raba,
+            final DataOutputBuffer buf) {
+
+        return encodeLive(raba, buf).data();
+
+    }
+
+    @Override
+    public ICodedRaba decode(final AbstractFixedByteArrayBuffer data) {
+
+        return new CodedRabaImpl(data);
+
+    }
+
+    /**
+     * Return <code>true</code> iff the key has the same length as the previous
+     * key and differs from it only in its last {@link #TAIL_BYTES} bytes.
+     */
+    private static boolean isDelta(final byte[] prev, final byte[] key) {
+
+        if (prev.length != key.length)
+            return false;
+
+        final int headLength = key.length - Math.min(TAIL_BYTES, key.length);
+
+        for (int i = 0; i < headLength; i++) {
+
+            if (prev[i] != key[i])
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    private static int commonPrefixLength(final byte[] a, final byte[] b) {
+
+        final int n = Math.min(a.length, b.length);
+
+        int i = 0;
+
+        while (i < n && a[i] == b[i])
+            i++;
+
+        return i;
+
+    }
+
+    /**
+     * Return the last {@link #TAIL_BYTES} bytes of the key (or all bytes for
+     * a shorter key) as an unsigned big-endian integer.
+     */
+    private static long getTail(final byte[] key) {
+
+        long v = 0L;
+
+        for (int i = key.length - Math.min(TAIL_BYTES, key.length); i < key.length; i++) {
+
+            v = (v << 8) | (key[i] & 0xff);
+
+        }
+
+        return v;
+
+    }
+
+    /**
+     * Overwrite the last {@link #TAIL_BYTES} bytes of the key (or all bytes
+     * for a shorter key) with an unsigned big-endian integer.
+     */
+    private static void setTail(final byte[] key, long v) {
+
+        for (int i = key.length - 1, n = 0; n < TAIL_BYTES && i >= 0; i--, n++) {
+
+            key[i] = (byte) v;
+
+            v >>>= 8;
+
+        }
+
+    }
+
+    /**
+     * Write an unsigned variable length integer (seven bits per byte, low
+     * order bits first, the high bit is set on all but the last byte).
+     */
+    private static void writeVarLong(final DataOutputBuffer buf, long v) {
+
+        while ((v & ~0x7FL) != 0L) {
+
+            buf.write((int) ((v & 0x7F) | 0x80));
+
+            v >>>= 7;
+
+        }
+
+        buf.write((int) v);
+
+    }
+
+    /**
+     * Decoder for an ordered logical byte[][] without <code>null</code>s.
+     */
+    private static class CodedRabaImpl extends AbstractCodedRaba {
+
+        private final AbstractFixedByteArrayBuffer data;
+
+        private final int size;
+
+        private final int blockSize;
+
+        private final int nblocks;
+
+        /**
+         * The most recently decoded block (immutable once published).
+         */
+        private volatile Block last = null;
+
+        /**
+         * @param data
+         *            The record containing the coded data.
+         */
+        public CodedRabaImpl(final AbstractFixedByteArrayBuffer data) {
+
+            final byte version = data.getByte(O_VERSION);
+
+            if (version != VERSION0) {
+
+                throw new RuntimeException("Unknown version: " + version);
+
+            }
+
+            this.data = data;
+
+            this.size = data.getInt(O_SIZE);
+
+            this.blockSize = data.getInt(O_BLOCK_SIZE);
+
+            this.nblocks = (size + blockSize - 1) / blockSize;
+
+        }
+
+        @Override
+        public AbstractFixedByteArrayBuffer data() {
+
+            return data;
+
+        }
+
+        /**
+         * Represents B+Tree keys.
+         */
+        @Override
+        final public boolean isKeys() {
+
+            return true;
+
+        }
+
+        @Override
+        final public int size() {
+
+            return size;
+
+        }
+
+        @Override
+        final public int capacity() {
+
+            return size;
+
+        }
+
+        @Override
+        final public boolean isEmpty() {
+
+            return size == 0;
+
+        }
+
+        /**
+         * Always returns <code>true</code> since the coded representation is
+         * dense.
+         */
+        @Override
+        final public boolean isFull() {
+
+            return true;
+
+        }
+
+        /**
+         * Always returns <code>false</code> (<code>null</code>s are not
+         * allowed).
+         */
+        @Override
+        final public boolean isNull(final int index) {
+
+            rangeCheck(index);
+
+            return false;
+
+        }
+
+        @Override
+        final public byte[] get(final int index) {
+
+            rangeCheck(index);
+
+            return getBlock(index / blockSize)[index % blockSize].clone();
+
+        }
+
+        @Override
+        final public int length(final int index) {
+
+            rangeCheck(index);
+
+            return getBlock(index / blockSize)[index % blockSize].length;
+
+        }
+
+        @Override
+        public int copy(final int index, final OutputStream os) {
+
+            rangeCheck(index);
+
+            final byte[] key = getBlock(index / blockSize)[index % blockSize];
+
+            try {
+
+                os.write(key);
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+            return key.length;
+
+        }
+
+        @Override
+        public int search(final byte[] searchKey) {
+
+            if (searchKey == null)
+                throw new IllegalArgumentException();
+
+            if (size == 0)
+                return -1;
+
+            // Binary search for the last block whose first key is LTE the key.
+            int low = 0;
+
+            int high = nblocks - 1;
+
+            while (low <= high) {
+
+                final int mid = (low + high) >>> 1;
+
+                final int ret = compareFirstKey(mid, searchKey);
+
+                if (ret < 0) {
+
+                    low = mid + 1;
+
+                } else if (ret > 0) {
+
+                    high = mid - 1;
+
+                } else {
+
+                    return mid * blockSize;
+
+                }
+
+            }
+
+            // The block in which the key would be found.
+            final int b = high;
+
+            if (b < 0) {
+
+                // The key is LT the first key.
+                return -1;
+
+            }
+
+            final byte[][] keys = getBlock(b);
+
+            final int base = b * blockSize;
+
+            for (int j = 1; j < keys.length; j++) {
+
+                final int ret = BytesUtil.compareBytes(keys[j], searchKey);
+
+                if (ret == 0)
+                    return base + j;
+
+                if (ret > 0)
+                    return -(base + j) - 1;
+
+            }
+
+            return -(base + keys.length) - 1;
+
+        }
+
+        private void rangeCheck(final int index) {
+
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException();
+
+        }
+
+        /**
+         * Return the byte offset of the block within the backing array.
+         */
+        private int getBlockOffset(final int b) {
+
+            return data.off() + data.getInt(O_BLOCKS + b * Bytes.SIZEOF_INT);
+
+        }
+
+        /**
+         * Compare the first key of the block with the search key without
+         * decoding the block.
+         */
+        private int compareFirstKey(final int b, final byte[] searchKey) {
+
+            final Reader r = new Reader(data.array(), getBlockOffset(b));
+
+            final int len = (int) r.readVarLong();
+
+            return BytesUtil.compareBytesWithLenAndOffset(r.pos, len, r.a, 0,
+                    searchKey.length, searchKey);
+
+        }
+
+        /**
+         * Return the decoded keys of the block. The returned byte[]s MUST NOT
+         * be modified.
+         */
+        private byte[][] getBlock(final int b) {
+
+            final Block t = last;
+
+            if (t != null && t.index == b)
+                return t.keys;
+
+            final byte[][] keys = decodeBlock(b);
+
+            last = new Block(b, keys);
+
+            return keys;
+
+        }
+
+        private byte[][] decodeBlock(final int b) {
+
+            final int n = Math.min(blockSize, size - b * blockSize);
+
+            final byte[][] keys = new byte[n][];
+
+            final Reader r = new Reader(data.array(), getBlockOffset(b));
+
+            {
+
+                final int len = (int) r.readVarLong();
+
+                keys[0] = r.read(len);
+
+            }
+
+            for (int j = 1; j < n; j++) {
+
+                final byte[] prev = keys[j - 1];
+
+                final long prefix = r.readVarLong();
+
+                if (prefix == DELTA) {
+
+                    final byte[] key = prev.clone();
+
+                    setTail(key, getTail(prev) + r.readVarLong());
+
+                    keys[j] = key;
+
+                } else {
+
+                    final int prefixLength = (int) (prefix - 1);
+
+                    final int suffixLength = (int) r.readVarLong();
+
+                    final byte[] key = new byte[prefixLength + suffixLength];
+
+                    System.arraycopy(prev, 0, key, 0, prefixLength);
+
+                    System.arraycopy(r.a, r.pos, key, prefixLength,
+                            suffixLength);
+
+                    r.pos += suffixLength;
+
+                    keys[j] = key;
+
+                }
+
+            }
+
+            return keys;
+
+        }
+
+    }
+
+    /**
+     * A decoded block.
+     */
+    private static class Block {
+
+        final int index;
+
+        final byte[][] keys;
+
+        Block(final int index, final byte[][] keys) {
+
+            this.index = index;
+
+            this.keys = keys;
+
+        }
+
+    }
+
+    /**
+     * Reads variable length integers and byte[]s from the coded record.
+     */
+    private static class Reader {
+
+        final byte[] a;
+
+        int pos;
+
+        Reader(final byte[] a, final int pos) {
+
+            this.a = a;
+
+            this.pos = pos;
+
+        }
+
+        long readVarLong() {
+
+            long v = 0L;
+
+            int shift = 0;
+
+            while (true) {
+
+                final int b = a[pos++];
+
+                v |= ((long) (b & 0x7F)) << shift;
+
+                if ((b & 0x80) == 0)
+                    return v;
+
+                shift += 7;
+
+            }
+
+        }
+
+        byte[] read(final int len) {
+
+            final byte[] b = new byte[len];
+
+            System.arraycopy(a, pos, b, 0, len);
+
+            pos += len;
+
+            return b;
+
+        }
+
+    }
+
+}
@@ -38,6 +38,7 @@ import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexInconsistentError;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.PO;
+import com.bigdata.btree.PageCache;
 import com.bigdata.btree.ReadWriteLockManager;
 import com.bigdata.btree.UnisolatedReadWriteIndex;
 import com.bigdata.btree.data.IAbstractNodeData;
@@ -336,6 +337,14 @@ abstract public class AbstractHTree implements ICounterSetAccess,
      */
     protected final IRawStore store;
 
+    /**
+     * The shared cache for the coded page data records of the backing store
+     * and <code>null</code> if the HTree is transient, the {@link PageCache}
+     * is not enabled, or the store is not registered with the
+     * {@link PageCache}.
+     */
+    protected final PageCache.StoreCache pageCache;
+
     /**
      * When <code>true</code> the {@link AbstractHTree} does not permit
      * mutation.
@@ -1171,6 +1180,7 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 //        this.writeTuple = new Tuple(this, KEYS | VALS);
         
         this.store = store;
+        this.pageCache = PageCache.getCache(store);
         this.readOnly = readOnly;
 
         this.addressBits = metadata.getAddressBits();
@@ -2248,8 +2258,13 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 
             final long beginNanos = System.nanoTime();
             
-            // wrap as ByteBuffer and write on the store.
-            addr = store.write(slice.asByteBuffer());
+            // wrap as ByteBuffer, compress (if configured) and write on the store.
+            addr = store.write(nodeSer.compress(slice.asByteBuffer()));
+            
+            if (pageCache != null) {
+                // discard any record for a recycled address.
+                pageCache.remove(addr);
+            }
             
             // now we have a new address, delete previous identity if any
             if (node.isPersistent()) {
@@ -2390,8 +2405,16 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 //            
 //        }
         
+        final ByteBuffer cached = pageCache == null ? null : pageCache
+                .get(addr);
+        
         final ByteBuffer tmp;
-        {
+        if (cached != null) {
+
+            // Note: The record is a copy on the heap.
+            tmp = cached;
+            
+        } else {
 
             final long begin = System.nanoTime();
             
@@ -2410,6 +2433,11 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 
             btreeCounters.bytesRead.add(bytesRead);
             
+            if (pageCache != null) {
+                // offer the coded record to the shared cache.
+                pageCache.put(addr, tmp);
+            }
+            
         }
 // Note: This is not necessary.  The most likely place to be interrupted is in the IO on the raw store.  It is not worth testing for an interrupt here since we are more liklely to notice one in the raw store and this method is low latency except for the potential IO read.
 //        if (Thread.interrupted()) {
@@ -2428,8 +2456,8 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 
                 final long begin = System.nanoTime();
 
-                // decode the record.
-                data = nodeSer.decode(tmp);
+                // decompress (if configured) and decode the record.
+                data = nodeSer.decode(nodeSer.decompress(tmp));
 
                 btreeCounters.deserializeNanos.add(System.nanoTime() - begin);
 
@@ -2731,6 +2759,10 @@ abstract public class AbstractHTree implements ICounterSetAccess,
 		if (isReadOnly())
 			throw new IllegalStateException(ERROR_READ_ONLY);
 
+		if (pageCache != null) {
+			pageCache.remove(addr);
+		}
+
 		getStore().delete(addr);
 
 		final int nbytes = getStore().getByteCount(addr);
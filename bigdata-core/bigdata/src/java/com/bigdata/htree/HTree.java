@@ -461,7 +461,7 @@ public class HTree extends AbstractHTree
                 NodeFactory.INSTANCE, //
                 readOnly, // read-only
                 (HTreeIndexMetadata)metadata,//
-                metadata.getBtreeRecordCompressorFactory()
+                metadata.getNodeRecordCompressorFactory()
                 );
 
 //        this.readOnly = readOnly;
@@ -2030,6 +2030,11 @@ public class HTree extends AbstractHTree
         
         // getBtreeCounters().bytesReleased += nbytes;
         
+        if (pageCache != null) {
+            // the address may be recycled.
+            pageCache.remove(addr);
+        }
+        
         store.delete(addr);
         
         return nbytes;
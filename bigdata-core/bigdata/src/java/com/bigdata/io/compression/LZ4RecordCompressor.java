@@ -0,0 +1,609 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.io.compression;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A fast LZ77-family (de-)compressor using the LZ4 block format. This trades
+ * compression ratio for speed relative to {@link RecordCompressor}: there is
+ * no entropy coding stage and decompression is a simple sequence of literal
+ * runs and back-reference copies. This makes it a reasonable choice for the
+ * nodes and leaves of a mutable index and for the write cache replication
+ * stream, where the records are read far more often than they are written
+ * and {@link java.util.zip.Inflater} dominates the read path.
+ * <p>
+ * The compressed record is a 4 byte (big-endian) uncompressed length followed
+ * by a single LZ4 block. The uncompressed length allows the caller to
+ * allocate (or reuse) an exact fit buffer and decompress directly into that
+ * buffer using {@link #decompress(ByteBuffer, ByteBuffer)}.
+ * <p>
+ * This class is stateless and thread-safe. Unlike {@link RecordCompressor},
+ * the buffers returned by {@link #compress(ByteBuffer)} and
+ * {@link #decompress(ByteBuffer)} are not shared and remain valid after
+ * subsequent operations.
+ * 
+ * 
+ * @see CompressorRegistry#LZ4
+ * @see LZ4RecordCompressorFactory
+ */
+public class LZ4RecordCompressor implements IRecordCompressor, Externalizable {
+
+    protected static final Logger log = Logger.getLogger(CompressorRegistry.class);
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = -4186355532618434862L;
+
+    public static final transient LZ4RecordCompressor INSTANCE = new LZ4RecordCompressor();
+
+    /**
+     * The #of bytes in the uncompressed length header.
+     */
+    private static final int HEADER_SIZE = 4;
+
+    /**
+     * The minimum length of a back-reference.
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The block format requires the last 5 bytes to be literals.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * The block format requires the last match to start at least 12 bytes
+     * before the end of the block.
+     */
+    private static final int MF_LIMIT = 12;
+
+    /**
+     * The maximum distance of a back-reference (the offset is coded in two
+     * bytes).
+     */
+    private static final int MAX_DISTANCE = 0xFFFF;
+
+    /**
+     * The log2 of the #of entries in the match finder hash table. 4k entries
+     * (16k) is enough for page sized records and is cheap to allocate per
+     * record.
+     */
+    private static final int HASH_LOG = 12;
+
+    /**
+     * The #of failed match attempts before the match finder starts to skip
+     * ahead through (apparently) incompressible data.
+     */
+    private static final int SKIP_TRIGGER = 6;
+
+    /**
+     * (De-)serialization ctor.
+     */
+    public LZ4RecordCompressor() {
+
+    }
+
+    /**
+     * Return the maximum #of bytes in the compressed record for a source
+     * record of the given length (worst case, incompressible data).
+     * 
+     * @param len
+     *            The #of bytes in the source record.
+     */
+    public static int maxCompressedLength(final int len) {
+
+        if (len < 0)
+            throw new IllegalArgumentException();
+
+        return HEADER_SIZE + len + (len / 255) + 16;
+
+    }
+
+    /**
+     * Return the #of bytes in the decompressed record.
+     * 
+     * @param bin
+     *            A compressed record. The header is read at the position of
+     *            the buffer. The position is NOT changed.
+     */
+    public static int getDecompressedLength(final ByteBuffer bin) {
+
+        if (bin.remaining() < HEADER_SIZE)
+            throw new IllegalArgumentException("Not a compressed record");
+
+        final int len = bin.getInt(bin.position());
+
+        if (len < 0)
+            throw new IllegalArgumentException("Not a compressed record");
+
+        return len;
+
+    }
+
+    public void compress(final ByteBuffer bin, final ByteBuffer out) {
+
+        final int len = bin.remaining();
+
+        final int max = maxCompressedLength(len);
+
+        if (out.remaining() < max) {
+
+            /*
+             * The compressed record might not fit. Compress onto a temporary
+             * buffer and then copy (overflow if it really does not fit).
+             */
+
+            final ByteBuffer tmp = compress(bin);
+
+            if (tmp.remaining() > out.remaining())
+                throw new BufferOverflowException();
+
+            out.put(tmp);
+
+            return;
+
+        }
+
+        final int pos = out.position();
+
+        out.putInt(pos, len);
+
+        final int n = compressBlock(bin, bin.position(), len, out, pos
+                + HEADER_SIZE);
+
+        bin.position(bin.limit());
+
+        out.position(pos + HEADER_SIZE + n);
+
+    }
+
+    public ByteBuffer compress(final ByteBuffer bin) {
+
+        final ByteBuffer out = ByteBuffer.allocate(maxCompressedLength(bin
+                .remaining()));
+
+        compress(bin, out);
+
+        out.flip();
+
+        if (log.isTraceEnabled())
+            log.trace("LZ4 compression " + out.limit());
+
+        return out;
+
+    }
+
+    public void compress(final ByteBuffer bin, final OutputStream os) {
+
+        final ByteBuffer tmp = compress(bin);
+
+        try {
+
+            os.write(tmp.array(), tmp.arrayOffset(), tmp.limit());
+
+        } catch (IOException e) {
+
+            throw new RuntimeException(e);
+
+        }
+
+    }
+
+    public void compress(final byte[] bytes, final OutputStream os) {
+
+        compress(bytes, 0, bytes.length, os);
+
+    }
+
+    public void compress(final byte[] bytes, final int off, final int len,
+            final OutputStream os) {
+
+        compress(ByteBuffer.wrap(bytes, off, len), os);
+
+    }
+
+    /**
+     * Returns a new exact fit buffer containing the decompressed record. The
+     * position of the argument is NOT changed.
+     */
+    public ByteBuffer decompress(final ByteBuffer bin) {
+
+        final ByteBuffer out = ByteBuffer
+                .allocate(getDecompressedLength(bin));
+
+        decompress(bin.duplicate(), out);
+
+        out.flip();
+
+        return out;
+
+    }
+
+    public ByteBuffer decompress(final byte[] bin) {
+
+        return decompress(ByteBuffer.wrap(bin));
+
+    }
+
+    /**
+     * Decompress a record directly into a caller supplied buffer. There is no
+     * intermediate copy. The caller can use
+     * {@link #getDecompressedLength(ByteBuffer)} to allocate (or choose) a
+     * buffer with sufficient remaining capacity.
+     * 
+     * @param bin
+     *            The compressed record. The data from the position to the
+     *            limit are decompressed. The position will be advanced to the
+     *            limit as a side effect.
+     * @param dst
+     *            The decompressed data are written starting at the position of
+     *            this buffer. The position will be advanced by the #of
+     *            decompressed bytes as a side effect.
+     * 
+     * @return The #of decompressed bytes.
+     * 
+     * @throws BufferOverflowException
+     *             if the remaining capacity of <i>dst</i> is less than the
+     *             length of the decompressed record.
+     */
+    public int decompress(final ByteBuffer bin, final ByteBuffer dst) {
+
+        final int len = getDecompressedLength(bin);
+
+        if (dst.remaining() < len)
+            throw new BufferOverflowException();
+
+        final int dstOff = dst.position();
+
+        final int n = decompressBlock(bin, bin.position() + HEADER_SIZE,
+                bin.limit(), dst, dstOff, dstOff + len);
+
+        if (n != len)
+            throw new RuntimeException("Corrupt record: expected=" + len
+                    + ", actual=" + n);
+
+        bin.position(bin.limit());
+
+        dst.position(dstOff + len);
+
+        return len;
+
+    }
+
+    /** NOP */
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+    }
+
+    /** NOP */
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+    }
+
+    public String toString() {
+
+        return getClass().getName();
+
+    }
+
+    /*
+     * Block format.
+     */
+
+    private static int hash(final int i) {
+
+        return (i * -1640531535) >>> (32 - HASH_LOG);
+
+    }
+
+    /**
+     * Compress the source bytes into a single LZ4 block. All offsets are
+     * absolute and the position and limit of the buffers are ignored.
+     * 
+     * @return The #of bytes written onto <i>dst</i>.
+     */
+    static int compressBlock(final ByteBuffer src, final int srcOff,
+            final int srcLen, final ByteBuffer dst, final int dstOff) {
+
+        final int srcEnd = srcOff + srcLen;
+
+        int dp = dstOff;
+
+        int anchor = srcOff;
+
+        if (srcLen > MF_LIMIT) {
+
+            final int mfLimit = srcEnd - MF_LIMIT;
+
+            final int matchLimit = srcEnd - LAST_LITERALS;
+
+            final int[] table = new int[1 << HASH_LOG];
+
+            table[hash(src.getInt(srcOff))] = srcOff;
+
+            int sp = srcOff + 1;
+
+            int attempts = 1 << SKIP_TRIGGER;
+
+            while (sp < mfLimit) {
+
+                final int h = hash(src.getInt(sp));
+
+                int ref = table[h];
+
+                table[h] = sp;
+
+                if (ref < srcOff || ref >= sp || sp - ref > MAX_DISTANCE
+                        || src.getInt(ref) != src.getInt(sp)) {
+
+                    // no match : skip faster through incompressible data.
+                    sp += attempts++ >>> SKIP_TRIGGER;
+
+                    continue;
+
+                }
+
+                attempts = 1 << SKIP_TRIGGER;
+
+                // extend the match backwards over pending literals.
+                while (sp > anchor && ref > srcOff
+                        && src.get(sp - 1) == src.get(ref - 1)) {
+                    sp--;
+                    ref--;
+                }
+
+                // extend the match forwards.
+                int matchLen = MIN_MATCH;
+                while (sp + matchLen < matchLimit
+                        && src.get(ref + matchLen) == src.get(sp + matchLen)) {
+                    matchLen++;
+                }
+
+                dp = writeSequence(src, anchor, sp - anchor, sp - ref,
+                        matchLen, dst, dp);
+
+                sp += matchLen;
+
+                anchor = sp;
+
+                if (sp < mfLimit) {
+
+                    // prime the table with a position inside the match.
+                    table[hash(src.getInt(sp - 2))] = sp - 2;
+
+                }
+
+            }
+
+        }
+
+        // the trailing literals.
+        final int litLen = srcEnd - anchor;
+
+        final int token = dp++;
+
+        if (litLen >= 15) {
+            dst.put(token, (byte) 0xF0);
+            dp = writeLength(litLen - 15, dst, dp);
+        } else {
+            dst.put(token, (byte) (litLen << 4));
+        }
+
+        copy(src, anchor, dst, dp, litLen);
+
+        dp += litLen;
+
+        return dp - dstOff;
+
+    }
+
+    /**
+     * Write a sequence (literal run followed by a back-reference).
+     * 
+     * @return The next offset in <i>dst</i>.
+     */
+    private static int writeSequence(final ByteBuffer src, final int litOff,
+            final int litLen, final int distance, final int matchLen,
+            final ByteBuffer dst, int dp) {
+
+        final int token = dp++;
+
+        int t;
+
+        if (litLen >= 15) {
+            t = 0xF0;
+            dp = writeLength(litLen - 15, dst, dp);
+        } else {
+            t = litLen << 4;
+        }
+
+        copy(src, litOff, dst, dp, litLen);
+
+        dp += litLen;
+
+        // offset (little-endian).
+        dst.put(dp++, (byte) distance);
+        dst.put(dp++, (byte) (distance >>> 8));
+
+        final int ml = matchLen - MIN_MATCH;
+
+        if (ml >= 15) {
+            t |= 0x0F;
+            dp = writeLength(ml - 15, dst, dp);
+        } else {
+            t |= ml;
+        }
+
+        dst.put(token, (byte) t);
+
+        return dp;
+
+    }
+
+    private static int writeLength(int len, final ByteBuffer dst, int dp) {
+
+        while (len >= 0xFF) {
+            dst.put(dp++, (byte) 0xFF);
+            len -= 0xFF;
+        }
+
+        dst.put(dp++, (byte) len);
+
+        return dp;
+
+    }
+
+    /**
+     * Decode a single LZ4 block. All offsets are absolute and the position and
+     * limit of the buffers are ignored.
+     * 
+     * @return The #of bytes written onto <i>dst</i>.
+     */
+    static int decompressBlock(final ByteBuffer src, int sp, final int srcEnd,
+            final ByteBuffer dst, final int dstOff, final int dstEnd) {
+
+        int dp = dstOff;
+
+        while (true) {
+
+            if (sp >= srcEnd)
+                throw new RuntimeException("Corrupt record: truncated");
+
+            final int token = src.get(sp++) & 0xFF;
+
+            // literal run.
+            int litLen = token >>> 4;
+
+            if (litLen == 15) {
+                int b;
+                do {
+                    if (sp >= srcEnd)
+                        throw new RuntimeException("Corrupt record: truncated");
+                    b = src.get(sp++) & 0xFF;
+                    litLen += b;
+                } while (b == 0xFF);
+            }
+
+            if (sp + litLen > srcEnd || dp + litLen > dstEnd)
+                throw new RuntimeException("Corrupt record: literal run");
+
+            copy(src, sp, dst, dp, litLen);
+
+            sp += litLen;
+
+            dp += litLen;
+
+            if (sp == srcEnd) {
+
+                // the last sequence has no back-reference.
+                return dp - dstOff;
+
+            }
+
+            // back-reference.
+            if (sp + 2 > srcEnd)
+                throw new RuntimeException("Corrupt record: truncated");
+
+            final int distance = (src.get(sp++) & 0xFF)
+                    | ((src.get(sp++) & 0xFF) << 8);
+
+            int matchLen = token & 0x0F;
+
+            if (matchLen == 15) {
+                int b;
+                do {
+                    if (sp >= srcEnd)
+                        throw new RuntimeException("Corrupt record: truncated");
+                    b = src.get(sp++) & 0xFF;
+                    matchLen += b;
+                } while (b == 0xFF);
+            }
+
+            matchLen += MIN_MATCH;
+
+            final int ref = dp - distance;
+
+            if (distance == 0 || ref < dstOff || dp + matchLen > dstEnd)
+                throw new RuntimeException("Corrupt record: back-reference");
+
+            if (distance >= matchLen) {
+
+                // non-overlapping.
+                copy(dst, ref, dst, dp, matchLen);
+
+            } else {
+
+                // overlapping (run-length) : must copy forward byte by byte.
+                for (int i = 0; i < matchLen; i++) {
+                    dst.put(dp + i, dst.get(ref + i));
+                }
+
+            }
+
+            dp += matchLen;
+
+        }
+
+    }
+
+    /**
+     * Copy bytes using absolute offsets, using a bulk copy when the backing
+     * arrays are accessible.
+     */
+    private static void copy(final ByteBuffer src, final int srcOff,
+            final ByteBuffer dst, final int dstOff, final int len) {
+
+        if (src.hasArray() && dst.hasArray()) {
+
+            System.arraycopy(src.array(), src.arrayOffset() + srcOff,
+                    dst.array(), dst.arrayOffset() + dstOff, len);
+
+            return;
+
+        }
+
+        for (int i = 0; i < len; i++) {
+
+            dst.put(dstOff + i, src.get(srcOff + i));
+
+        }
+
+    }
+
+}
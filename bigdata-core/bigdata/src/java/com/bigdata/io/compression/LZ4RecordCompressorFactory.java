@@ -0,0 +1,84 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.io.compression;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import com.bigdata.btree.IndexMetadata;
+
+/**
+ * A serializable compression provider based on {@link LZ4RecordCompressor}.
+ * The public no-arg constructor allows the factory to be named by
+ * {@link IndexMetadata.Options#BTREE_RECORD_COMPRESSOR_FACTORY}. Since the
+ * {@link LZ4RecordCompressor} is stateless, all instances share the same
+ * compressor.
+ */
+public class LZ4RecordCompressorFactory implements
+        IRecordCompressorFactory<LZ4RecordCompressor>, Externalizable {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 2913735617104658223L;
+
+    public static final transient LZ4RecordCompressorFactory INSTANCE = new LZ4RecordCompressorFactory();
+
+    /**
+     * (De-)serialization ctor.
+     */
+    public LZ4RecordCompressorFactory() {
+
+    }
+
+    public LZ4RecordCompressor getInstance() {
+
+        return LZ4RecordCompressor.INSTANCE;
+
+    }
+
+    public String toString() {
+
+        return getClass().getName();
+
+    }
+
+    /** NOP */
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+    }
+
+    /** NOP */
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+    }
+
+}
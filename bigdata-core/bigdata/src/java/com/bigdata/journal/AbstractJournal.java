@@ -80,6 +80,7 @@ import com.bigdata.btree.ITuple;
 import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexInconsistentError;
 import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.PageCache;
 import com.bigdata.btree.keys.ICUVersionRecord;
 import com.bigdata.btree.view.FusedView;
 import com.bigdata.cache.ConcurrentWeakValueCache;
@@ -1324,6 +1325,19 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 			// Save resource description (sets value returned by getUUID()).
             this.journalMetadata.set(new JournalMetadata(this));
 
+            if (PageCache.INSTANCE != null && quorum == null) {
+
+                /*
+                 * Register with the shared page cache before any index is
+                 * opened. HA journals are not registered since the followers
+                 * replicate the writes (and address recycling) of the leader
+                 * without going through the index layer.
+                 */
+
+                PageCache.INSTANCE.register(getUUID());
+
+            }
+
 			// new or reload from the store root block.
 			this._commitRecord = _getCommitRecord();
 
@@ -1950,6 +1964,8 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 //
 //		}
 
+		PageCache.deleteCache(getUUID());
+
 		if (deleteOnClose) {
 
 			/*
@@ -2843,6 +2859,24 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 //				LRUNexus.getCache(this).clear();
 //
 //			}
+
+			{
+
+				/*
+				 * Discard the page cache for this store. It may contain records
+				 * for addresses which were written since the last commit and
+				 * which will be reissued after the abort.
+				 */
+
+				final PageCache.StoreCache pageCache = PageCache.getCache(this);
+
+				if (pageCache != null) {
+
+					pageCache.clear();
+
+				}
+
+			}
 			
 			invalidateCommitters();
 
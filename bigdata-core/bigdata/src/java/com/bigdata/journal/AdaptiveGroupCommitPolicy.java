@@ -0,0 +1,166 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.journal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how long the task running a group commit will wait for tasks which
+ * are ready to run to join the commit group based on the observed commit
+ * service time (which is dominated by the disk sync) and the #of tasks that
+ * are waiting to run on the {@link WriteExecutorService}.
+ * <p>
+ * The static policy only waits (up to the group commit timeout) for the tasks
+ * which are already running. A task which has been assigned a thread but is
+ * blocked on the lock of the write service when the last running task
+ * completes is left out of the commit group and must pay for another sync.
+ * The adaptive policy also waits for such tasks for about one commit service
+ * time, which bounds the added latency to the cost of the sync that is being
+ * shared, and scales that wait with the #of such tasks. The wait is never more
+ * than the group commit timeout and there is no wait when no task is waiting
+ * to start. Tasks on the work queue of the thread pool are not counted since
+ * they can not start before the commit releases the threads in the commit
+ * group.
+ * <p>
+ * Note: This policy never shortens the wait for the running tasks. The commit
+ * must not run while a task is still writing on its indices.
+ * <p>
+ * Note: The caller MUST hold the lock of the {@link WriteExecutorService}.
+ * 
+ * @see ConcurrencyManager.Options#WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT
+ */
+class AdaptiveGroupCommitPolicy {
+
+    /**
+     * The weight of the most recent sample in the moving average.
+     */
+    static final double ALPHA = 0.2d;
+
+    /**
+     * The maximum multiple of the average commit service time that we will
+     * wait for a backlog to join the commit group.
+     */
+    static final int MAX_BACKLOG_FACTOR = 4;
+
+    /**
+     * The upper bound on the wait (nanoseconds).
+     */
+    private final long maxWaitNanos;
+
+    /**
+     * The moving average of the commit service time (nanoseconds) -or- <code>-1</code>
+     * until the first commit.
+     */
+    private volatile double averageCommitNanos = -1d;
+
+
+    /**
+     * @param maxWait
+     *            The upper bound on the time to wait for tasks to join the
+     *            commit group (the group commit timeout).
+     * @param unit
+     *            The unit in which that bound is expressed.
+     */
+    AdaptiveGroupCommitPolicy(final long maxWait, final TimeUnit unit) {
+
+        if (maxWait < 0L)
+            throw new IllegalArgumentException();
+
+        this.maxWaitNanos = unit.toNanos(maxWait);
+
+    }
+
+    /**
+     * Return the time to wait for tasks which are ready to run to join the
+     * commit group.
+     * 
+     * @param backlog
+     *            The #of tasks which are waiting to start.
+     * 
+     * @return The time to wait in nanoseconds.
+     */
+    long getWaitNanos(final int backlog) {
+
+        if (backlog == 0) {
+
+            // Nothing is waiting to join the commit group.
+            return 0L;
+
+        }
+
+        final double avg = averageCommitNanos;
+
+        if (avg < 0d) {
+
+            // No history yet : use the static policy.
+            return maxWaitNanos;
+
+        }
+
+        final int factor = Math.min(backlog, MAX_BACKLOG_FACTOR);
+
+        return Math.min((long) (avg * factor), maxWaitNanos);
+
+    }
+
+    /**
+     * Update the moving average after a successful commit.
+     * 
+     * @param commitNanos
+     *            The commit service time in nanoseconds.
+     */
+    void commitDone(final long commitNanos) {
+
+        final double avg = averageCommitNanos;
+
+        averageCommitNanos = avg < 0d ? commitNanos : (ALPHA * commitNanos)
+                + ((1d - ALPHA) * avg);
+
+    }
+
+    /**
+     * The moving average of the commit service time in milliseconds (zero
+     * until the first commit).
+     */
+    double getAverageCommitServiceTime() {
+
+        final double avg = averageCommitNanos;
+
+        return avg < 0d ? 0d : avg / TimeUnit.MILLISECONDS.toNanos(1);
+
+    }
+
+    public String toString() {
+
+        return getClass().getSimpleName() + "{maxWaitNanos=" + maxWaitNanos
+                + ", averageCommitServiceTime=" + getAverageCommitServiceTime()
+                + "}";
+
+    }
+
+}
@@ -60,6 +60,7 @@ import com.bigdata.service.AbstractDistributedFederation;
 import com.bigdata.service.IBigdataClient;
 import com.bigdata.service.IServiceShutdown;
 import com.bigdata.util.DaemonThreadFactory;
+import com.bigdata.util.concurrent.IQueueCounters.IWriteServiceExecutorCounters;
 import com.bigdata.util.concurrent.TaskCounters;
 import com.bigdata.util.concurrent.ThreadPoolExecutorStatisticsTask;
 import com.bigdata.util.concurrent.WriteTaskCounters;
@@ -299,6 +300,26 @@ public class ConcurrencyManager implements IConcurrencyManager {
 
         String DEFAULT_WRITE_SERVICE_GROUP_COMMIT_TIMEOUT = "100";
 
+        /**
+         * When <code>true</code>, the {@link WriteExecutorService} will also
+         * await tasks which have been assigned a thread but have not yet
+         * started (and not just running tasks) to join the commit group, for
+         * a time sized from the observed commit service time (which is
+         * dominated by the disk sync) and the #of such tasks (default
+         * {@value #DEFAULT_WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT}). The
+         * {@link #WRITE_SERVICE_GROUP_COMMIT_TIMEOUT} is still an upper bound.
+         * This is intended for a high rate of small write tasks, such as
+         * concurrent REST API mutations when
+         * {@link Journal.Options#GROUP_COMMIT} is enabled.
+         * 
+         * @see AdaptiveGroupCommitPolicy
+         */
+        String WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT = ConcurrencyManager.class
+                .getName()
+                + ".writeService.adaptiveGroupCommit";
+
+        String DEFAULT_WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT = "false";
+
         /**
          * The time in milliseconds that a group commit will await an exclusive
          * lock on the write service in order to perform synchronous overflow
@@ -832,6 +853,17 @@ public class ConcurrencyManager implements IConcurrencyManager {
                         .info(ConcurrencyManager.Options.WRITE_SERVICE_GROUP_COMMIT_TIMEOUT
                                 + "=" + groupCommitTimeout);
 
+            final boolean adaptiveGroupCommit = Boolean
+                    .parseBoolean(properties
+                            .getProperty(
+                                    ConcurrencyManager.Options.WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT,
+                                    ConcurrencyManager.Options.DEFAULT_WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT));
+
+            if (log.isInfoEnabled())
+                log
+                        .info(ConcurrencyManager.Options.WRITE_SERVICE_ADAPTIVE_GROUP_COMMIT
+                                + "=" + adaptiveGroupCommit);
+
             final long overflowLockRequestTimeout = Long
                     .parseLong(properties
                             .getProperty(
@@ -873,7 +905,8 @@ public class ConcurrencyManager implements IConcurrencyManager {
                     queue, //
                     new DaemonThreadFactory(getClass().getName()+".writeService"), //
                     groupCommitTimeout,//
-                    overflowLockRequestTimeout
+                    overflowLockRequestTimeout,//
+                    adaptiveGroupCommit
             );
 
             if (writeServicePrestart) {
@@ -1083,6 +1116,27 @@ public class ConcurrencyManager implements IConcurrencyManager {
 
             }
 
+            /*
+             * Per-commit latency histograms for the write service (these are
+             * collected regardless of the queue statistics).
+             */
+            {
+
+                final CounterSet tmp = countersRoot
+                        .makePath(IConcurrencyManagerCounters.writeService);
+
+                tmp.makePath(
+                        IWriteServiceExecutorCounters.CommitWaitingTimeHistogram)
+                        .attach(writeService.getCommitWaitingTimeHistogram()
+                                .getCounters());
+
+                tmp.makePath(
+                        IWriteServiceExecutorCounters.CommitServiceTimeHistogram)
+                        .attach(writeService.getCommitServiceTimeHistogram()
+                                .getCounters());
+
+            }
+
 //        }
         
         return countersRoot;
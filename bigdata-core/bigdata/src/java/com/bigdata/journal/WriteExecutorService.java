@@ -60,6 +60,7 @@ import com.bigdata.resources.ResourceManager;
 import com.bigdata.resources.StaleLocatorException;
 import com.bigdata.service.DataService;
 import com.bigdata.util.InnerCause;
+import com.bigdata.util.concurrent.LatencyHistogram;
 import com.bigdata.util.concurrent.WriteTaskCounters;
 
 /**
@@ -190,6 +191,14 @@ public class WriteExecutorService extends ThreadPoolExecutor {
      */
     protected final long groupCommitTimeout;
 
+    /**
+     * The policy used to size the commit groups adaptively -or-
+     * <code>null</code> if the task running the group commit only waits (up to
+     * the {@link #groupCommitTimeout}) for running tasks to join the commit
+     * group.
+     */
+    private final AdaptiveGroupCommitPolicy adaptivePolicy;
+
     /**
      * The time in milliseconds that a group commit will await an exclusive lock
      * on the write service in order to perform synchronous overflow processing.
@@ -289,6 +298,46 @@ public class WriteExecutorService extends ThreadPoolExecutor {
             final long groupCommitTimeout,
             final long overflowLockRequestTimeout) {
 
+        this(resourceManager, corePoolSize, maximumPoolSize, keepAliveTime,
+                keepAliveUnit, queue, threadFactory, groupCommitTimeout,
+                overflowLockRequestTimeout, false/* adaptiveGroupCommit */);
+
+    }
+
+    /**
+     * 
+     * @param resourceManager
+     * @param corePoolSize
+     * @param maximumPoolSize
+     * @param keepAliveTime
+     * @param keepAliveUnit
+     * @param queue
+     * @param threadFactory
+     * @param groupCommitTimeout
+     *            The time in milliseconds that a group commit will await
+     *            currently running tasks to join the commit group. When
+     *            <i>adaptiveGroupCommit</i> is <code>true</code> this is also
+     *            the upper bound on the wait for tasks which are ready to run.
+     * @param overflowLockRequestTimeout
+     * @param adaptiveGroupCommit
+     *            When <code>true</code> a group commit will also await tasks
+     *            which are ready to run, for a time sized from the observed
+     *            commit service time and the #of tasks waiting to run.
+     * 
+     * @see AdaptiveGroupCommitPolicy
+     */
+    public WriteExecutorService(//
+            final IResourceManager resourceManager,
+            final int corePoolSize,
+            final int maximumPoolSize,
+            final long keepAliveTime,//
+            final TimeUnit keepAliveUnit,//
+            final BlockingQueue<Runnable> queue, 
+            final ThreadFactory threadFactory,
+            final long groupCommitTimeout,
+            final long overflowLockRequestTimeout,
+            final boolean adaptiveGroupCommit) {
+
         super(  corePoolSize, //
                 maximumPoolSize,//
                 keepAliveTime,//
@@ -310,6 +359,9 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         
         this.overflowLockRequestTimeout = overflowLockRequestTimeout;
         
+        this.adaptivePolicy = adaptiveGroupCommit ? new AdaptiveGroupCommitPolicy(
+                groupCommitTimeout, TimeUnit.MILLISECONDS) : null;
+        
         // Setup the lock manager used by the write service.
         {
 
@@ -430,6 +482,17 @@ public class WriteExecutorService extends ThreadPoolExecutor {
      */
     final private AtomicInteger nready = new AtomicInteger(0);
 
+    /**
+     * The threads of the pool which have been assigned a task that has not
+     * yet started to run. This includes the tasks which are blocked on the
+     * {@link #lock} in {@link #beforeExecute(Thread, Runnable)} as well as
+     * those counted by {@link #nready}. These are the tasks which can join the
+     * current commit group if the task running the group commit yields the
+     * {@link #lock}. Tasks on the work queue of the thread pool are not
+     * included since they can not start until a thread is available.
+     */
+    final private ConcurrentHashMap<Thread, Runnable> starting = new ConcurrentHashMap<Thread, Runnable>();
+
     /**
      * The threads that are running our tasks (so that we can interrupt them
      * if necessary).
@@ -473,6 +536,8 @@ public class WriteExecutorService extends ThreadPoolExecutor {
     private int commitGroupSize = 0;
     private long byteCountPerCommit = 0L;
     private AtomicLong ngroupCommits = new AtomicLong();
+    private final LatencyHistogram commitWaitingTimeHistogram = new LatencyHistogram();
+    private final LatencyHistogram commitServiceTimeHistogram = new LatencyHistogram();
     private long naborts = 0;
     private long failedTaskCount = 0;
     private long successTaskCount = 0;
@@ -534,6 +599,38 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         
     }
 
+    /**
+     * <code>true</code> iff the commit groups are sized adaptively.
+     * 
+     * @see AdaptiveGroupCommitPolicy
+     */
+    public boolean isAdaptiveGroupCommit() {
+
+        return adaptivePolicy != null;
+
+    }
+
+    /**
+     * The histogram of the time from when the task that runs a group commit
+     * completes until the commit begins (the time spent waiting for other
+     * tasks to join the commit group).
+     */
+    public LatencyHistogram getCommitWaitingTimeHistogram() {
+
+        return commitWaitingTimeHistogram;
+
+    }
+
+    /**
+     * The histogram of the service time of the atomic commit (one sample per
+     * group commit).
+     */
+    public LatencyHistogram getCommitServiceTimeHistogram() {
+
+        return commitServiceTimeHistogram;
+
+    }
+
     /**
      * The #of threads queued on the internal {@link #lock}. These are (for the
      * most part) threads waiting to start or stop during a group commit.
@@ -764,6 +861,8 @@ public class WriteExecutorService extends ThreadPoolExecutor {
     protected void beforeExecute(final Thread t, final Runnable r) {
 
         // Note: [r] is the FutureTask.
+
+        starting.put(t, r);
         
         lock.lock();
         
@@ -789,6 +888,20 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         
     }
 
+    /**
+     * Clears the thread from the set of threads whose task is starting if the
+     * task did not reach {@link #beforeTask(Thread, AbstractTask)} (e.g., if
+     * it was cancelled).
+     */
+    @Override
+    protected void afterExecute(final Runnable r, final Throwable t) {
+
+        starting.remove(Thread.currentThread());
+
+        super.afterExecute(r, t);
+
+    }
+
     /**
      * Executed before {@link AbstractTask#doTask()}
      * 
@@ -824,6 +937,9 @@ public class WriteExecutorService extends ThreadPoolExecutor {
             
             // Note the thread running the task.
             active.put(t, r);
+
+            // The task is no longer waiting to start.
+            starting.remove(t);
         
             if (trackActiveSetInMDC) {
 
@@ -1412,8 +1528,21 @@ public class WriteExecutorService extends ThreadPoolExecutor {
                      * 
                      * Note: This will return normally unless interrupted.
                      */
-                    waitForRunningTasks(groupCommitTimeout,
-                            TimeUnit.MILLISECONDS);
+                    if (adaptivePolicy == null) {
+                        waitForRunningTasks(groupCommitTimeout,
+                                TimeUnit.MILLISECONDS, 0L/* readyNanos */);
+                    } else {
+                        /*
+                         * Running tasks are always awaited as above. In
+                         * addition, give tasks which are ready to start a
+                         * chance to join the commit group, sizing that wait
+                         * from the observed commit service time and the #of
+                         * tasks waiting to run.
+                         */
+                        waitForRunningTasks(groupCommitTimeout,
+                                TimeUnit.MILLISECONDS,
+                                adaptivePolicy.getWaitNanos(getBacklog()));
+                    }
                 }
                 {
                     // update [maxCommitWaitingTime]
@@ -1455,10 +1584,13 @@ public class WriteExecutorService extends ThreadPoolExecutor {
              * commit processing until we are ready to delegate the commit to
              * the journal is the elapsed time awaiting the group commit.
              */
-            taskCounters.commitWaitingNanoTime.addAndGet(System.nanoTime()
+            final long nanoTime_beginCommit = System.nanoTime();
+
+            taskCounters.commitWaitingNanoTime.addAndGet(nanoTime_beginCommit
                     - nanoTime_beginWait);
 
-            final long nanoTime_beginCommit = System.nanoTime();
+            commitWaitingTimeHistogram.add(nanoTime_beginCommit
+                    - nanoTime_beginWait);
 
             try {
                 
@@ -1477,6 +1609,19 @@ public class WriteExecutorService extends ThreadPoolExecutor {
                 
             }
 
+            {
+                final long commitNanos = System.nanoTime()
+                        - nanoTime_beginCommit;
+
+                commitServiceTimeHistogram.add(commitNanos);
+
+                if (adaptivePolicy != null) {
+
+                    adaptivePolicy.commitDone(commitNanos);
+
+                }
+            }
+
             // track #of safely committed tasks.
             committedTaskCount += nwrites;
 
@@ -1566,6 +1711,38 @@ public class WriteExecutorService extends ThreadPoolExecutor {
 
     }
 
+    /**
+     * The #of tasks which will start as soon as the {@link #lock} is yielded
+     * (zero if the write service is paused).
+     * 
+     * @see #starting
+     */
+    private int getBacklog() {
+
+        return isPaused() ? 0 : starting.size();
+
+    }
+
+    /**
+     * The #of threads which have been assigned a task which has not yet
+     * started to run.
+     */
+    public int getStartingCount() {
+
+        return starting.size();
+
+    }
+
+    /**
+     * The lock used to coordinate the tasks with the group commit (exposed
+     * to the unit tests).
+     */
+    ReentrantLock getLock() {
+
+        return lock;
+
+    }
+
     /**
      * Wait a moment to let other tasks finish, but if the queue is empty then
      * return immediately in order to keep down latency for a single task that
@@ -1581,6 +1758,13 @@ public class WriteExecutorService extends ThreadPoolExecutor {
      *            commit group.
      * @param unit
      *            The unit in which that timeout is expressed.
+     * @param readyNanos
+     *            The time (nanoseconds) to also wait for tasks which have been
+     *            assigned a thread and are blocked on the {@link #lock} before
+     *            they can start (zero unless adaptive group commit is
+     *            enabled). This never shortens
+     *            the wait for the running tasks since the commit must not run
+     *            while a task is still writing on its indices.
      * 
      * @todo do NOT wait if the current task might exceeds its max latency from
      *       submit (likewise, do not start task if it has already exceeded its
@@ -1588,8 +1772,8 @@ public class WriteExecutorService extends ThreadPoolExecutor {
      * 
      * @todo possibly do not wait if task is part of tx?
      */
-    private void waitForRunningTasks(final long timeout, final TimeUnit unit)
-            throws InterruptedException {
+    private void waitForRunningTasks(final long timeout, final TimeUnit unit,
+            final long readyNanos) throws InterruptedException {
 
         if (!lock.isHeldByCurrentThread())
             throw new IllegalMonitorStateException();
@@ -1600,10 +1784,18 @@ public class WriteExecutorService extends ThreadPoolExecutor {
         // nanoseconds remaining until timeout.
         long nanos = unit.toNanos(timeout);
 
+        // nanoseconds remaining to wait for ready tasks to start.
+        long rnanos = Math.min(readyNanos, nanos);
+
         int nwaits = 0;
         
-        // until timeout, while tasks are running.
-        while (nanos > 0 && this.nrunning.get() > 0) {
+        /*
+         * Until timeout, while tasks are running. Also while tasks are blocked
+         * waiting to start (they will run once we yield the lock and can then
+         * join the commit group) unless [readyNanos] has expired.
+         */
+        while (nanos > 0
+                && (this.nrunning.get() > 0 || (rnanos > 0 && getBacklog() > 0))) {
 
             /*
              * Wait on condition (yields lock, allowing other tasks to enter the
@@ -1612,11 +1804,14 @@ public class WriteExecutorService extends ThreadPoolExecutor {
              * Note: throws InterruptedException
              */
 
-            waiting.await(nanos, TimeUnit.NANOSECONDS);
+            waiting.await(this.nrunning.get() > 0 ? nanos : rnanos,
+                    TimeUnit.NANOSECONDS);
 
             final long now = System.nanoTime();
             
             nanos -= now - lastTime;
+
+            rnanos -= now - lastTime;
             
             lastTime = now;
 
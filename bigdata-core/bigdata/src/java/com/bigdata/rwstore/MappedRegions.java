@@ -0,0 +1,327 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.rwstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.io.IReopenChannel;
+
+/**
+ * Read-only memory mapped view of the backing file of an {@link RWStore}. The
+ * file is mapped in fixed size segments which are created lazily on first
+ * access. Each segment overlaps the next by the maximum record size so that
+ * any record which begins in a segment is fully contained by that segment.
+ * Only the extent of the file as of the last commit (or the open of the store)
+ * may be read. Records beyond that extent are not visible through this view
+ * and the caller must read them through the {@link FileChannel}.
+ * <p>
+ * The last segment grows with the file. Rather than remapping it each time
+ * the extent advances, it is mapped in multiples of {@link #TAIL_INCREMENT}
+ * (or up to the current size of the file, which the {@link RWStore} extends
+ * in large chunks). A segment is therefore remapped at most
+ * <code>2^SEGMENT_SHIFT / TAIL_INCREMENT</code> times.
+ * <p>
+ * The view does not know which records are current. The caller MUST check the
+ * write cache first since a record which has not yet been flushed to the disk
+ * will not be visible in the file. The caller is also responsible for only
+ * reading addresses which are protected against recycling (by the deferred
+ * free and session protection mechanisms). This is the same contract as a
+ * read through the {@link FileChannel}, but the buffers returned here are
+ * views onto the OS page cache rather than copies. If the slot is recycled
+ * then the contents of the buffer will change. Callers must therefore copy (or
+ * decode) the data while the address is protected rather than retaining the
+ * buffer. For example, the B+Tree node serializer copies the record onto the
+ * heap when it is decoded, so a B+Tree read saves the system call but not
+ * the copy.
+ * <p>
+ * Note: The segments are never explicitly unmapped since a concurrent reader
+ * of an unmapped region would crash the JVM. A mapping which was replaced by
+ * a larger mapping of the same segment is released when it is garbage
+ * collected.
+ * 
+ * @see RWStore.Options#MEMORY_MAPPED_READS
+ */
+class MappedRegions {
+
+    private static final Logger log = Logger.getLogger(MappedRegions.class);
+
+    /**
+     * The log2 of the size of a mapped segment (1GB).
+     */
+    static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * The increment in which the mapping for the last segment is extended as
+     * the file grows (64MB).
+     */
+    static final long TAIL_INCREMENT = 1L << 26;
+
+    private final IReopenChannel<FileChannel> opener;
+
+    /**
+     * The #of bytes by which each segment overlaps the next. This is the
+     * maximum size of a record (including its checksum) which may be read
+     * through this view.
+     */
+    private final int overlap;
+
+    /**
+     * The extent of the file which may be read through this view.
+     */
+    private volatile long extent = 0L;
+
+    /**
+     * The mapped segments. The array is replaced (under the monitor) when a
+     * new segment is mapped or when a segment is remapped to cover a larger
+     * extent.
+     */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * The #of times that a segment was mapped.
+     */
+    private volatile int nmapped = 0;
+
+    /**
+     * @param opener
+     *            Used to obtain the {@link FileChannel}.
+     * @param overlap
+     *            The maximum size of a record (including its checksum) which
+     *            will be read through this view.
+     */
+    MappedRegions(final IReopenChannel<FileChannel> opener, final int overlap) {
+
+        if (opener == null)
+            throw new IllegalArgumentException();
+
+        if (overlap <= 0)
+            throw new IllegalArgumentException();
+
+        this.opener = opener;
+
+        this.overlap = overlap;
+
+    }
+
+    /**
+     * Set the extent of the file which may be read through this view. This
+     * is invoked once the store is open and after each commit.
+     * 
+     * @param newExtent
+     *            The extent of the file in bytes.
+     */
+    void setExtent(final long newExtent) {
+
+        if (newExtent < 0L)
+            throw new IllegalArgumentException();
+
+        extent = newExtent;
+
+    }
+
+    /**
+     * The extent of the file which may be read through this view.
+     */
+    long getExtent() {
+
+        return extent;
+
+    }
+
+    /**
+     * The #of times that a segment was mapped.
+     */
+    int getMappedCount() {
+
+        return nmapped;
+
+    }
+
+    /**
+     * Return a read-only view of the record at the given offset.
+     * 
+     * @param offset
+     *            The byte offset of the record in the file.
+     * @param nbytes
+     *            The #of bytes in the record.
+     * 
+     * @return A read-only buffer whose position is zero and whose limit is
+     *         <i>nbytes</i> -or- <code>null</code> if the record is not
+     *         covered by this view, in which case the caller must read the
+     *         record through the {@link FileChannel}.
+     */
+    ByteBuffer read(final long offset, final int nbytes) {
+
+        if (offset < 0L || nbytes <= 0 || nbytes > overlap)
+            return null;
+
+        final long end = offset + nbytes;
+
+        if (end > extent)
+            return null;
+
+        final int index = (int) (offset >>> SEGMENT_SHIFT);
+
+        final MappedByteBuffer segment = getSegment(index, end);
+
+        if (segment == null)
+            return null;
+
+        final int pos = (int) (offset - (((long) index) << SEGMENT_SHIFT));
+
+        // Note: duplicate() since position and limit are not thread-safe.
+        final ByteBuffer b = segment.duplicate();
+
+        b.limit(pos + nbytes);
+
+        b.position(pos);
+
+        return b.slice().asReadOnlyBuffer();
+
+    }
+
+    /**
+     * Return the segment with the given index, mapping (or remapping) the
+     * segment if necessary so that it covers at least <i>end</i>.
+     * 
+     * @return The segment -or- <code>null</code> if it could not be mapped.
+     */
+    private MappedByteBuffer getSegment(final int index, final long end) {
+
+        final long base = ((long) index) << SEGMENT_SHIFT;
+
+        MappedByteBuffer[] a = segments;
+
+        if (index < a.length && a[index] != null
+                && base + a[index].capacity() >= end) {
+
+            return a[index];
+
+        }
+
+        synchronized (this) {
+
+            a = segments;
+
+            if (index < a.length && a[index] != null
+                    && base + a[index].capacity() >= end) {
+
+                return a[index];
+
+            }
+
+            final long size;
+            final MappedByteBuffer segment;
+            try {
+
+                final FileChannel channel = opener.reopenChannel();
+
+                final long fullSize = (1L << SEGMENT_SHIFT) + overlap;
+
+                final long available = channel.size() - base;
+
+                if (available >= fullSize) {
+
+                    // The whole segment lies within the file.
+                    size = fullSize;
+
+                } else {
+
+                    /*
+                     * The last segment. Round the mapping up to the next tail
+                     * increment, but never beyond the end of the file (mapping
+                     * beyond the end of the file would extend it).
+                     */
+                    size = Math.min(available, ((end - base) / TAIL_INCREMENT + 1)
+                            * TAIL_INCREMENT);
+
+                }
+
+                if (base + size < end) {
+
+                    // The file is shorter than the extent (should not happen).
+                    return null;
+
+                }
+
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, base,
+                        size);
+
+            } catch (IOException ex) {
+
+                /*
+                 * Note: ClosedByInterruptException is thrown here if the
+                 * reader was interrupted. The caller falls back on the
+                 * FileChannel, which will handle the interrupt.
+                 */
+                if (log.isInfoEnabled())
+                    log.info("Could not map segment: index=" + index
+                            + ", cause=" + ex);
+
+                return null;
+
+            }
+
+            final MappedByteBuffer[] b = new MappedByteBuffer[Math.max(
+                    a.length, index + 1)];
+
+            System.arraycopy(a, 0, b, 0, a.length);
+
+            b[index] = segment;
+
+            segments = b;
+
+            nmapped++;
+
+            if (log.isInfoEnabled())
+                log.info("Mapped segment: index=" + index + ", size=" + size);
+
+            return segment;
+
+        }
+
+    }
+
+    /**
+     * Discard the view. The segments are released once they are no longer
+     * referenced.
+     */
+    synchronized void close() {
+
+        extent = 0L;
+
+        segments = new MappedByteBuffer[0];
+
+    }
+
+}
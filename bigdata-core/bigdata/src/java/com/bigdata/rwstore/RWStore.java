@@ -378,6 +378,32 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
          */
         String DEFAULT_READ_BLOBS_ASYNC = SystemUtil.isWindows() ? "false" : "true";
 
+        /**
+         * When <code>true</code>, the extent of the backing file as of the
+         * last commit is memory mapped (read-only) and records which are not
+         * found in the write cache are read from the mapped region rather
+         * than through the {@link FileChannel}. For {@link RWStore#getData(long, int)}
+         * the caller is handed a read-only view onto the mapped region,
+         * avoiding the system call. The B+Tree still copies the record onto
+         * the heap when it decodes a node or leaf since the decoded record
+         * outlives the protection of its address.
+         * This is intended for large journals on machines with enough RAM for
+         * the OS page cache to hold the hot part of the file.
+         * <p>
+         * The same addresses are readable as for the {@link FileChannel}: the
+         * write cache is always checked first and deferred frees and session
+         * protection prevent the slots for a protected commit point from
+         * being recycled. However, the returned buffer is a view of the file
+         * rather than a copy, so it must be consumed (decoded or copied) while
+         * the address is protected. This requires a 64-bit JVM for large
+         * stores since the file is mapped into the address space of the JVM.
+         * 
+         * @see MappedRegions
+         */
+        String MEMORY_MAPPED_READS = RWStore.class.getName() + ".memoryMappedReads";
+
+        String DEFAULT_MEMORY_MAPPED_READS = "false";
+
         /**
          * Defines the number of bits that must be free in a FixedAllocator for
          * it to be added to the free list.  This is used to ensure a level
@@ -1150,6 +1176,15 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
         } catch (IOException e) {
             throw new StorageTerminalError("Unable to initialize store", e);
         }
+
+        if (Boolean.valueOf(fileMetadata.getProperty(
+                Options.MEMORY_MAPPED_READS,
+                Options.DEFAULT_MEMORY_MAPPED_READS))) {
+            m_mappedRegions = new MappedRegions(m_reopener, m_maxFixedAlloc);
+            updateMappedExtent();
+        } else {
+            m_mappedRegions = null;
+        }
     }
     
     /**
@@ -1365,6 +1400,9 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                 m_bufferedWrite = null;
             }
             m_writeCacheService.close();
+            if (m_mappedRegions != null) {
+                m_mappedRegions.close();
+            }
             m_reopener.raf.close();
         } catch (Throwable t) {
             throw new RuntimeException(t);
@@ -2041,6 +2079,7 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
 //  }
 
     volatile private long m_cacheReads = 0;
+    volatile private long m_mappedReads = 0;
     volatile private long m_diskReads = 0;
     volatile private int m_allocations = 0;
     volatile private int m_frees = 0;
@@ -2085,6 +2124,11 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                 
                 assert paddr > 0;
                 try {
+                    if (m_mappedRegions != null) {
+                        final ByteBuffer ret = readMapped(paddr, sze+4);
+                        if (ret != null)
+                            return ret;
+                    }
                     return m_writeCacheService.read(paddr, sze+4);
                 } catch (Throwable e) {
                     /*
@@ -2104,6 +2148,86 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
     }
 
 
+    /**
+     * Read a record through the memory mapped view of the backing file. The
+     * write cache is checked first since a record which has not yet been
+     * flushed will not be visible in the file. The checksum of a record read
+     * from the mapped region is verified.
+     * 
+     * @param paddr
+     *            The physical address of the record.
+     * @param length
+     *            The length of the record including the checksum.
+     * 
+     * @return The record (without the checksum) -or- <code>null</code> if the
+     *         record is not covered by the mapped region.
+     *         
+     * @see Options#MEMORY_MAPPED_READS
+     */
+    private ByteBuffer readMapped(final long paddr, final int length)
+            throws InterruptedException {
+
+        final long begin = System.nanoTime();
+
+        final ByteBuffer cached = m_writeCacheService._readFromCache(paddr,
+                length);
+
+        if (cached != null)
+            return cached;
+
+        final ByteBuffer bb = m_mappedRegions.read(paddr, length);
+
+        if (bb == null)
+            return null;
+
+        final int chk = ChecksumUtility.getCHK().checksum(bb, 0, length - 4);
+        final int tstchk = bb.getInt(length - 4);
+        if (chk != tstchk) {
+            throw new ChecksumError("Invalid data checksum from address: "
+                    + paddr + ", size: " + (length - 4) + ", chk: " + chk
+                    + ", tstchk: " + tstchk);
+        }
+
+        bb.limit(length - 4);
+
+        m_mappedReads++;
+
+        final StoreCounters<?> c = (StoreCounters<?>) storeCounters.get()
+                .acquire();
+        try {
+            c.nreads++;
+            c.bytesRead += length;
+            c.elapsedReadNanos += (System.nanoTime() - begin);
+        } finally {
+            c.release();
+        }
+
+        return bb;
+
+    }
+
+    /**
+     * Update the extent of the memory mapped view of the backing file (if
+     * enabled) to the current extent of the file. This is invoked once the
+     * store is open and after each commit. The extent is never larger than
+     * the file since mapping a region beyond the end of the file would extend
+     * the file.
+     */
+    private void updateMappedExtent() {
+
+        if (m_mappedRegions == null)
+            return;
+
+        try {
+            m_mappedRegions.setExtent(Math.min(convertAddr(m_fileSize),
+                    m_reopener.reopenChannel().size()));
+        } catch (IOException ex) {
+            // The previous extent remains valid since the file does not shrink.
+            log.warn("Could not update mapped extent: " + ex);
+        }
+
+    }
+
     /**
      * If the buf[] size is greater than the maximum fixed allocation, then the
      * direct read will be the blob header record. In this case we should hand
@@ -2133,6 +2257,13 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
      * @see BLZG-1884 RWStore ASYNC IO fails to make progress (apparent deadlock)
      */
     final private boolean m_readBlobsAsync;
+
+    /**
+     * The memory mapped view of the backing file used to read records and
+     * <code>null</code> unless {@link Options#MEMORY_MAPPED_READS} is
+     * enabled.
+     */
+    private final MappedRegions m_mappedRegions;
     
     public void getData(final long addr, final byte buf[], final int offset,
             final int length) {
@@ -2371,7 +2502,7 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
                             log.warn("Invalid data checksum for addr: " + paddr 
                                     + ", chk: " + chk + ", tstchk: " + tstchk + ", length: " + length
                                     + ", first bytes: " + toHexString(buf, 32) + ", successful reads: " + m_diskReads
-                                    + ", at last extend: " + m_readsAtExtend + ", cacheReads: " + m_cacheReads
+                                    + ", at last extend: " + m_readsAtExtend + ", cacheReads: " + m_cacheReads + ", mappedReads: " + m_mappedReads
                                     + ", writeCacheDebug: " + cacheDebugInfo);
                         }
                         
@@ -3795,6 +3926,8 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
 
         clearCommitList();
 
+        updateMappedExtent();
+
     }
 
     @Override
@@ -6719,6 +6852,38 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
  
                 final long beginDisk = System.nanoTime();
 
+                if (m_mappedRegions != null) {
+
+                    // Copy from the mapped region (if covered).
+                    final ByteBuffer src = m_mappedRegions.read(offset,
+                            dst.remaining());
+
+                    if (src != null) {
+
+                        final int nbytes = src.remaining();
+
+                        dst.put(src);
+
+                        dst.position(position);
+
+                        m_mappedReads++;
+
+                        final StoreCounters<?> c = (StoreCounters<?>) storeCounters
+                                .get().acquire();
+                        try {
+                            c.nreads++;
+                            c.bytesRead += nbytes;
+                            c.elapsedReadNanos += System.nanoTime() - beginDisk;
+                        } finally {
+                            c.release();
+                        }
+
+                        return dst;
+
+                    }
+
+                }
+
                 // the offset into the disk file.
                 // final long pos = FileMetadata.headerSize0 + offset;
                 final long pos = offset;
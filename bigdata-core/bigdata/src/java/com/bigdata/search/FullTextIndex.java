@@ -64,6 +64,9 @@ import com.bigdata.btree.keys.IKeyBuilderFactory;
 import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.btree.keys.StrengthEnum;
 import com.bigdata.btree.raba.codec.EmptyRabaValueCoder;
+import com.bigdata.btree.raba.codec.IRabaCoder;
+import com.bigdata.btree.raba.codec.PostingListRabaCoder;
+import com.bigdata.btree.raba.codec.PostingListRabaCoder.DefaultPostingListRabaCoder;
 import com.bigdata.cache.ConcurrentWeakValueCacheWithTimeout;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.IResourceLock;
@@ -72,6 +75,7 @@ import com.bigdata.journal.TimestampUtility;
 import com.bigdata.rdf.lexicon.ITextIndexer.FullTextQuery;
 import com.bigdata.relation.AbstractRelation;
 import com.bigdata.relation.locator.DefaultResourceLocator;
+import com.bigdata.service.IBigdataFederation;
 import com.bigdata.striterator.IChunkedOrderedIterator;
 import com.bigdata.striterator.IKeyOrder;
 import com.bigdata.util.concurrent.ExecutionHelper;
@@ -332,6 +336,21 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
         String DEFAULT_FIELDS_ENABLED = "false";
 
+        /**
+         * When <code>true</code>, the keys in the leaves of the full text
+         * index are coded as compressed posting lists using the
+         * {@link PostingListRabaCoder} (default
+         * {@value #DEFAULT_COMPRESSED_POSTINGS}). The keys for the same token
+         * and term weight differ only in their document identifier and are
+         * coded as variable length deltas rather than front-coded, which makes
+         * the leaves of the index several times smaller. This option only
+         * effects the creation of the index.
+         */
+        String COMPRESSED_POSTINGS = FullTextIndex.class.getName()
+                + ".compressedPostings";
+
+        String DEFAULT_COMPRESSED_POSTINGS = "false";
+
 //        /**
 //         * When <code>true</code>, the <code>localTermWeight</code> is stored
 //         * using double-precision. When <code>false</code>, it is stored using
@@ -693,7 +712,7 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
             indexMetadata.setTupleSerializer(new FullTextIndexTupleSerializer<V>(
                     keyBuilderFactory,//
-                    DefaultTupleSerializer.getDefaultLeafKeysCoder(),//
+                    getLeafKeysCoder(p),//
                     EmptyRabaValueCoder.INSTANCE,//
                     fieldsEnabled//
             ));
@@ -716,6 +735,31 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
         
     }
 
+    /**
+     * Return the {@link IRabaCoder} for the keys in the leaves of a new full
+     * text index.
+     * 
+     * @param properties
+     *            The configuration properties.
+     * 
+     * @see Options#COMPRESSED_POSTINGS
+     */
+    public static IRabaCoder getLeafKeysCoder(final Properties properties) {
+
+        final boolean compressedPostings = Boolean.parseBoolean(properties
+                .getProperty(Options.COMPRESSED_POSTINGS,
+                        Options.DEFAULT_COMPRESSED_POSTINGS));
+
+        if (log.isInfoEnabled())
+            log.info(Options.COMPRESSED_POSTINGS + "=" + compressedPostings);
+
+        if (compressedPostings)
+            return DefaultPostingListRabaCoder.INSTANCE;
+
+        return DefaultTupleSerializer.getDefaultLeafKeysCoder();
+
+    }
+
     public void destroy() {
 
         if (log.isInfoEnabled())
@@ -1155,7 +1199,16 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
             			
             }
             
-            a = executeQuery(qdata, prefixMatch, timeout, unit);
+            if (isTopKQuery(query)) {
+
+                a = executeTopKQuery(qdata, maxRank, matchAllTerms, timeout,
+                        unit);
+
+            } else {
+
+                a = executeQuery(qdata, prefixMatch, timeout, unit);
+
+            }
             
 	        if (a.length == 0) {
 	        	
@@ -1533,6 +1586,68 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
     }
     
+    /**
+     * Return <code>true</code> iff the query only requires the
+     * {@link FullTextQuery#getMaxRank()} best hits and those hits can be
+     * computed by a {@link TopKSearchTask}. Prefix matches, exact matches,
+     * regex filters and a maximum cosine less than ONE (1.0) all require an
+     * exhaustive search, as does an index which uses fields.
+     * <p>
+     * Note: The top-k search relies on reverse range scans, which are not
+     * supported by the scale-out index views.
+     */
+    protected boolean isTopKQuery(final FullTextQuery query) {
+
+        if (getIndexManager() instanceof IBigdataFederation)
+            return false;
+
+        if (!query.isTopK() || query.getMaxRank() == Integer.MAX_VALUE)
+            return false;
+
+        if (query.isPrefixMatch() || query.isMatchExact()
+                || query.getMatchRegex() != null
+                || query.getMaxCosine() < 1d)
+            return false;
+
+        final Object tupleSer = getIndex().getIndexMetadata()
+                .getTupleSerializer();
+
+        if (tupleSer instanceof FullTextIndexTupleSerializer
+                && ((FullTextIndexTupleSerializer<?>) tupleSer)
+                        .isFieldsEnabled())
+            return false;
+
+        return true;
+
+    }
+
+    /**
+     * Return the <i>k</i> best hits for the query (in no particular order).
+     * 
+     * @see TopKSearchTask
+     */
+    protected Hit<V>[] executeTopKQuery(final TermFrequencyData<V> qdata,
+            final int k, final boolean matchAllTerms, final long timeout,
+            final TimeUnit unit) {
+
+        final long start = System.currentTimeMillis();
+
+        final TopKSearchTask<V> task = new TopKSearchTask<V>(this, qdata, k,
+                matchAllTerms, timeout, unit);
+
+        final Hit<V>[] a = task.call();
+
+        if (log.isInfoEnabled()) {
+            final long readTime = System.currentTimeMillis() - start;
+            log.info("read time: " + readTime + ", postings="
+                    + task.getPostingCount() + ", candidates="
+                    + task.getCandidateCount());
+        }
+
+        return a;
+
+    }
+
     /**
      * Subclasses can override this method to do exact match processing.  This
      * involves materializing the hits into their original text values and
@@ -85,6 +85,16 @@ public class Hit<V extends Comparable<V>> implements IHit<V>,
         
     }
     
+    /**
+     * Return <code>true</code> iff a hit was reported for the search term
+     * having that index.
+     */
+    synchronized boolean isTermHit(final int termNdx) {
+
+        return searchTerms[termNdx];
+
+    }
+
     synchronized public double getCosine() {
         
         return cosine;
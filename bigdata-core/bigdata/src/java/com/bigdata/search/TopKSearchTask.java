@@ -0,0 +1,538 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.search.similarities.DefaultSimilarity;
+
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.ITupleSerializer;
+
+/**
+ * Computes the <i>k</i> best hits for a query without materializing a
+ * {@link Hit} for every document which contains any of the query tokens.
+ * <p>
+ * The keys of the full text index are <code>{token, termWeight, docId}</code>,
+ * so the postings for a token are stored in increasing term weight order. A
+ * {@link IRangeQuery#REVERSE} scan therefore visits each posting list in
+ * decreasing term weight order and the weight of the next unread posting is an
+ * upper bound for every posting which remains in that list. The lists are read
+ * in blocks, round robin. The block-max of the remaining postings for each
+ * token is known without any additional index structure, which lets us run a
+ * threshold algorithm over the lists:
+ * <ul>
+ * <li>The <i>k</i>th best score among the candidates seen so far is the
+ * threshold.</li>
+ * <li>Once the sum of the block-max weights falls to the threshold, a
+ * document which has not yet been seen can not enter the top <i>k</i> and no
+ * new candidates are admitted.</li>
+ * <li>A candidate whose score plus the block-max weights of the tokens for
+ * which it has not been seen can not exceed the threshold is discarded.</li>
+ * <li>The scan halts once no candidates remain outside of the top <i>k</i>.
+ * </li>
+ * </ul>
+ * The score of a top <i>k</i> hit which was not seen in every list is then
+ * completed with point lookups in the remaining weight range of those lists.
+ * The hits and their cosines are the same as those reported by an exhaustive
+ * search, except that documents which tie with the <i>k</i>th hit may be
+ * chosen differently.
+ * <p>
+ * Note: This only supports exact token matches (a prefix match spans many
+ * tokens, so their postings are not weight ordered) and an index without
+ * fields (each field is a separate posting for the same document).
+ * 
+ * @param <V>
+ *            The generic type of the document identifier.
+ */
+public class TopKSearchTask<V extends Comparable<V>> implements
+        Callable<Hit<V>[]> {
+
+    final private static Logger log = Logger.getLogger(TopKSearchTask.class);
+
+    /**
+     * The maximum #of postings read from each list per round. The first round
+     * reads <i>k</i> postings from each list and the block size then doubles
+     * each round up to this limit.
+     */
+    static final int MAX_BLOCK_SIZE = 1024;
+
+    private final FullTextIndex<V> searchEngine;
+
+    private final int k;
+
+    private final boolean matchAllTerms;
+
+    private final long timeoutNanos;
+
+    private final List<TermCursor<V>> cursors;
+
+    /**
+     * The candidate hits.
+     */
+    private final Map<V, Hit<V>> candidates = new HashMap<V, Hit<V>>();
+
+    /**
+     * The #of postings read across all lists.
+     */
+    private long npostings = 0L;
+
+    /**
+     * @param searchEngine
+     *            The search engine.
+     * @param qdata
+     *            The normalized query tokens.
+     * @param k
+     *            The #of hits to report.
+     * @param matchAllTerms
+     *            When <code>true</code>, only documents which contain every
+     *            query token are hits.
+     * @param timeout
+     *            The timeout -or- {@link Long#MAX_VALUE} for no timeout. The
+     *            best hits found so far are reported if the timeout expires.
+     * @param unit
+     *            The unit in which the timeout is expressed.
+     */
+    public TopKSearchTask(final FullTextIndex<V> searchEngine,
+            final TermFrequencyData<V> qdata, final int k,
+            final boolean matchAllTerms, final long timeout,
+            final TimeUnit unit) {
+
+        if (searchEngine == null)
+            throw new IllegalArgumentException();
+
+        if (qdata == null)
+            throw new IllegalArgumentException();
+
+        if (k <= 0)
+            throw new IllegalArgumentException();
+
+        if (unit == null)
+            throw new IllegalArgumentException();
+
+        this.searchEngine = searchEngine;
+
+        this.k = k;
+
+        this.matchAllTerms = matchAllTerms;
+
+        this.timeoutNanos = unit.toNanos(timeout);
+
+        final int nterms = qdata.distinctTermCount();
+
+        this.cursors = new ArrayList<TermCursor<V>>(nterms);
+
+        int i = 0;
+        for (Map.Entry<String, ITermMetadata> e : qdata.terms.entrySet()) {
+
+            cursors.add(new TermCursor<V>(e.getKey(), i++, nterms, e
+                    .getValue().getLocalTermWeight(), searchEngine));
+
+        }
+
+    }
+
+    /**
+     * Return the #of postings read from the index.
+     */
+    public long getPostingCount() {
+
+        return npostings;
+
+    }
+
+    /**
+     * Return the #of candidate hits (this is at least the #of reported hits
+     * once the task is done).
+     */
+    public int getCandidateCount() {
+
+        return candidates.size();
+
+    }
+
+    /**
+     * @return The top <i>k</i> hits in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public Hit<V>[] call() {
+
+        final long begin = System.nanoTime();
+
+        final int nterms = cursors.size();
+
+        int blockSize = Math.min(k, MAX_BLOCK_SIZE);
+
+        boolean admit = true;
+
+        Hit<V>[] topk = new Hit[0];
+
+        int nrounds = 0;
+
+        while (true) {
+
+            if (Thread.interrupted())
+                throw new RuntimeException(new InterruptedException());
+
+            if (nrounds > 0 && System.nanoTime() - begin > timeoutNanos) {
+
+                log.warn("Timeout: only partial results will be returned.");
+
+                break;
+
+            }
+
+            // Read the next block from each list.
+            for (TermCursor<V> c : cursors) {
+
+                for (int i = 0; i < blockSize && !c.isExhausted(); i++) {
+
+                    final ITermDocRecord<V> rec = c.next();
+
+                    npostings++;
+
+                    final V docId = rec.getDocId();
+
+                    Hit<V> hit = candidates.get(docId);
+
+                    if (hit == null) {
+
+                        if (!admit)
+                            continue;
+
+                        hit = new Hit<V>(nterms);
+
+                        hit.setDocId(docId);
+
+                        candidates.put(docId, hit);
+
+                    }
+
+                    hit.add(c.queryTermNdx,
+                            c.queryTermWeight * rec.getLocalTermWeight());
+
+                }
+
+            }
+
+            nrounds++;
+
+            blockSize = Math.min(blockSize << 1, MAX_BLOCK_SIZE);
+
+            // The best hits so far and the k-th best score.
+            topk = selectTopK();
+
+            boolean exhausted = true;
+
+            double unseen = 0d;
+
+            for (TermCursor<V> c : cursors) {
+
+                if (c.isExhausted()) {
+
+                    if (matchAllTerms) {
+                        // A document not yet seen can not match all terms.
+                        admit = false;
+                    }
+
+                } else {
+
+                    exhausted = false;
+
+                    unseen += c.getMaxScore();
+
+                }
+
+            }
+
+            if (exhausted)
+                break;
+
+            if (topk.length < k)
+                continue;
+
+            final double threshold = topk[k - 1].getCosine();
+
+            if (unseen <= threshold) {
+                admit = false;
+            }
+
+            if (admit)
+                continue;
+
+            /*
+             * Discard the candidates which can not displace the k-th hit.
+             * 
+             * Note: This is only done once no new candidates are admitted.
+             * Otherwise a discarded document could be admitted again without
+             * the contribution of the postings which were already read.
+             */
+            final Set<Hit<V>> top = new HashSet<Hit<V>>(Arrays.asList(topk));
+
+            final Iterator<Hit<V>> itr = candidates.values().iterator();
+
+            int nremaining = 0;
+
+            while (itr.hasNext()) {
+
+                final Hit<V> hit = itr.next();
+
+                if (top.contains(hit))
+                    continue;
+
+                if (getMaxScore(hit) <= threshold) {
+
+                    itr.remove();
+
+                } else {
+
+                    nremaining++;
+
+                }
+
+            }
+
+            if (nremaining == 0)
+                break;
+
+        }
+
+        // Complete the scores of the top k hits.
+        for (Hit<V> hit : topk) {
+
+            for (TermCursor<V> c : cursors) {
+
+                if (!hit.isTermHit(c.queryTermNdx) && !c.isExhausted()) {
+
+                    final double weight = c.lookup(hit.getDocId());
+
+                    if (weight > 0d)
+                        hit.add(c.queryTermNdx, weight);
+
+                }
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("k=" + k + ", nterms=" + nterms + ", rounds=" + nrounds
+                    + ", postings=" + npostings + ", candidates="
+                    + candidates.size() + ", hits=" + topk.length);
+
+        return topk;
+
+    }
+
+    /**
+     * Return up to <i>k</i> of the best candidates which are eligible to be
+     * reported in descending score order.
+     */
+    @SuppressWarnings("unchecked")
+    private Hit<V>[] selectTopK() {
+
+        final int nterms = cursors.size();
+
+        final List<Hit<V>> eligible = new ArrayList<Hit<V>>(candidates.size());
+
+        for (Hit<V> hit : candidates.values()) {
+
+            if (!matchAllTerms || hit.getTermCount() == nterms)
+                eligible.add(hit);
+
+        }
+
+        final Hit<V>[] a = eligible.toArray(new Hit[eligible.size()]);
+
+        Arrays.sort(a);
+
+        if (a.length <= k)
+            return a;
+
+        final Hit<V>[] b = new Hit[k];
+
+        System.arraycopy(a, 0, b, 0, k);
+
+        return b;
+
+    }
+
+    /**
+     * Return an upper bound on the final score of the hit, or
+     * <code>-1</code> if the hit can not match all terms and
+     * {@link #matchAllTerms} was specified.
+     */
+    private double getMaxScore(final Hit<V> hit) {
+
+        double score = hit.getCosine();
+
+        for (TermCursor<V> c : cursors) {
+
+            if (hit.isTermHit(c.queryTermNdx))
+                continue;
+
+            if (c.isExhausted()) {
+
+                if (matchAllTerms)
+                    return -1d;
+
+                continue;
+
+            }
+
+            score += c.getMaxScore();
+
+        }
+
+        return score;
+
+    }
+
+    /**
+     * A reverse scan of the postings for a single token.
+     */
+    private static class TermCursor<V extends Comparable<V>> extends
+            AbstractIndexTask<V> {
+
+        private final DefaultSimilarity similarity = new DefaultSimilarity();
+
+        private final IIndex ndx;
+
+        private final ITupleIterator<?> itr;
+
+        /**
+         * The next posting -or- <code>null</code> if the list is exhausted.
+         */
+        private ITermDocRecord<V> next;
+
+        public TermCursor(final String termText, final int termNdx,
+                final int numTerms, final double queryTermWeight,
+                final FullTextIndex<V> searchEngine) {
+
+            super(termText, termNdx, numTerms, false/* prefixMatch */,
+                    queryTermWeight, searchEngine);
+
+            ndx = searchEngine.getIndex();
+
+            itr = ndx.rangeIterator(fromKey, toKey, 0/* capacity */,
+                    IRangeQuery.KEYS | IRangeQuery.VALS | IRangeQuery.REVERSE,
+                    null/* filter */);
+
+            advance();
+
+        }
+
+        public boolean isExhausted() {
+
+            return next == null;
+
+        }
+
+        /**
+         * Return the next posting.
+         */
+        public ITermDocRecord<V> next() {
+
+            final ITermDocRecord<V> rec = next;
+
+            advance();
+
+            return rec;
+
+        }
+
+        /**
+         * An upper bound on the contribution to the score of any unread
+         * posting (the query term weight times the term weight of the next
+         * posting).
+         */
+        public double getMaxScore() {
+
+            return next == null ? 0d : queryTermWeight
+                    * next.getLocalTermWeight();
+
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+
+            next = itr.hasNext() ? (ITermDocRecord<V>) itr.next().getObject()
+                    : null;
+
+        }
+
+        /**
+         * Return the contribution to the score of the unread posting for the
+         * document, if any, using point lookups for each term weight which is
+         * not greater than the term weight of the next posting.
+         * 
+         * @return The contribution -or- ZERO (0) if the token does not occur
+         *         in the unread postings for that document.
+         */
+        public double lookup(final V docId) {
+
+            @SuppressWarnings("unchecked")
+            final ITupleSerializer<ITermDocKey<V>, ?> tupleSer = (ITupleSerializer<ITermDocKey<V>, ?>) ndx
+                    .getIndexMetadata().getTupleSerializer();
+
+            final long maxWeight = similarity.encodeNormValue((float) next
+                    .getLocalTermWeight());
+
+            for (long w = maxWeight; w >= 0; w--) {
+
+                final double termWeight = similarity.decodeNormValue(w);
+
+                final byte[] key = tupleSer
+                        .serializeKey(new ReadOnlyTermDocRecord<V>(queryTerm,
+                                docId, 0/* fieldId */, termWeight));
+
+                if (ndx.contains(key))
+                    return queryTermWeight * termWeight;
+
+            }
+
+            return 0d;
+
+        }
+
+    }
+
+}
@@ -346,6 +346,23 @@ public interface IQueueCounters extends ICounterHierarchy {
          */
         String MaxCommitGroupSize = "Max Commit Group Size";
 
+        /**
+         * Histogram of the time in milliseconds that the task that initiates
+         * the group commit waits for other tasks to join the commit group (one
+         * sample per group commit).
+         * 
+         * @see LatencyHistogram
+         */
+        String CommitWaitingTimeHistogram = "Commit Waiting Time Histogram";
+
+        /**
+         * Histogram of the time in milliseconds servicing the group commit
+         * (one sample per group commit).
+         * 
+         * @see LatencyHistogram
+         */
+        String CommitServiceTimeHistogram = "Commit Service Time Histogram";
+
         /**
          * The maximum #of tasks that are concurrently executing without regard
          * to whether or not the tasks have acquired their locks.
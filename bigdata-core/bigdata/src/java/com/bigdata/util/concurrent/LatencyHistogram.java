@@ -0,0 +1,202 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+
+/**
+ * A histogram of latencies using power of two millisecond buckets. Bucket ZERO
+ * (0) counts latencies under one millisecond. Bucket <code>k</code> counts
+ * latencies in <code>[2^(k-1),2^k)</code> milliseconds. The last bucket is
+ * unbounded. Unlike a moving average, the histogram preserves the tail of the
+ * distribution, which is what matters for the latency of a commit.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The default #of buckets. The last bucket begins at 16384 milliseconds.
+     */
+    public static final int DEFAULT_BUCKET_COUNT = 16;
+
+    private final AtomicLongArray counts;
+
+    public LatencyHistogram() {
+
+        this(DEFAULT_BUCKET_COUNT);
+
+    }
+
+    /**
+     * @param nbuckets
+     *            The #of buckets (at least 2).
+     */
+    public LatencyHistogram(final int nbuckets) {
+
+        if (nbuckets < 2 || nbuckets > 63)
+            throw new IllegalArgumentException();
+
+        this.counts = new AtomicLongArray(nbuckets);
+
+    }
+
+    /**
+     * The #of buckets.
+     */
+    public int getBucketCount() {
+
+        return counts.length();
+
+    }
+
+    /**
+     * Return the index of the bucket for a latency.
+     * 
+     * @param nanos
+     *            The latency in nanoseconds.
+     */
+    public int getBucket(final long nanos) {
+
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+        if (millis <= 0)
+            return 0;
+
+        final int k = 64 - Long.numberOfLeadingZeros(millis);
+
+        return Math.min(k, counts.length() - 1);
+
+    }
+
+    /**
+     * Record a latency.
+     * 
+     * @param nanos
+     *            The latency in nanoseconds.
+     */
+    public void add(final long nanos) {
+
+        counts.incrementAndGet(getBucket(nanos));
+
+    }
+
+    /**
+     * The #of latencies recorded in the given bucket.
+     */
+    public long getCount(final int bucket) {
+
+        return counts.get(bucket);
+
+    }
+
+    /**
+     * The #of latencies recorded in all buckets.
+     */
+    public long getTotalCount() {
+
+        long n = 0L;
+
+        for (int i = 0; i < counts.length(); i++) {
+
+            n += counts.get(i);
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * The label for a bucket, e.g., <code>0-1ms</code>, <code>1-2ms</code>,
+     * ..., <code>16384+ms</code>.
+     */
+    public String getLabel(final int bucket) {
+
+        if (bucket < 0 || bucket >= counts.length())
+            throw new IllegalArgumentException();
+
+        final long lower = bucket == 0 ? 0L : 1L << (bucket - 1);
+
+        if (bucket == counts.length() - 1)
+            return lower + "+ms";
+
+        return lower + "-" + (1L << bucket) + "ms";
+
+    }
+
+    /**
+     * Return a {@link CounterSet} reporting the count for each bucket.
+     */
+    public CounterSet getCounters() {
+
+        final CounterSet counterSet = new CounterSet();
+
+        for (int i = 0; i < counts.length(); i++) {
+
+            final int bucket = i;
+
+            counterSet.addCounter(getLabel(i), new Instrument<Long>() {
+                @Override
+                protected void sample() {
+                    setValue(counts.get(bucket));
+                }
+            });
+
+        }
+
+        return counterSet;
+
+    }
+
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getSimpleName()).append("{");
+
+        for (int i = 0; i < counts.length(); i++) {
+
+            if (i > 0)
+                sb.append(", ");
+
+            sb.append(getLabel(i)).append("=").append(counts.get(i));
+
+        }
+
+        sb.append("}");
+
+        return sb.toString();
+
+    }
+
+}
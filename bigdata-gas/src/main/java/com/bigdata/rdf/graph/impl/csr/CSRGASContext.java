@@ -0,0 +1,434 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.csr;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.EdgesEnum;
+import com.bigdata.rdf.graph.IGASProgram;
+import com.bigdata.rdf.graph.IGASScheduler;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IGASStats;
+import com.bigdata.rdf.graph.IStaticFrontier;
+import com.bigdata.rdf.graph.analytics.BFS;
+import com.bigdata.rdf.graph.impl.GASContext;
+import com.bigdata.rdf.graph.impl.csr.CSRGASEngine.CSRGraphAccessor;
+import com.bigdata.rdf.graph.util.GASUtil;
+
+/**
+ * {@link GASContext} for a {@link CSRGraph}. When the program is {@link BFS}
+ * this runs a direction-optimizing traversal. Each round is either a
+ * top-down round, which pushes from the frontier over the scatter edges (the
+ * normal GAS round), or a bottom-up round, in which each unvisited vertex
+ * pulls from the frontier by scanning its edges in the opposite direction
+ * until it finds a parent in a bitmap of the frontier. The traversal switches
+ * to bottom-up once the #of edges leaving the frontier exceeds
+ * <code>1/alpha</code> of the edges leaving the unvisited vertices and
+ * switches back to top-down once the frontier shrinks below
+ * <code>1/beta</code> of the vertices. The depth assigned to each vertex is
+ * the same in either mode. The predecessor may differ since any vertex of
+ * the frontier is a valid predecessor.
+ */
+public class CSRGASContext<VS, ES, ST> extends GASContext<VS, ES, ST> {
+
+    private static final Logger log = Logger.getLogger(CSRGASContext.class);
+
+    /**
+     * The default threshold for switching from top-down to bottom-up rounds.
+     */
+    public static final int DEFAULT_ALPHA = 14;
+
+    /**
+     * The default threshold for switching from bottom-up to top-down rounds.
+     */
+    public static final int DEFAULT_BETA = 24;
+
+    private final CSRGASEngine gasEngine;
+
+    private final CSRGraph g;
+
+    private final CSRGraphAccessor graphAccessor;
+
+    /**
+     * <code>true</code> iff rounds may be evaluated bottom-up.
+     */
+    private final boolean directionOptimizing;
+
+    /**
+     * <code>true</code> while the traversal is bottom-up.
+     */
+    private boolean bottomUp = false;
+
+    /**
+     * The #of edges (in the traversal direction) for the vertices that have
+     * not yet been in the frontier and <code>-1</code> until initialized.
+     */
+    private long unexploredEdges = -1L;
+
+    /**
+     * The size of the frontier for the previous round.
+     */
+    private int lastFrontierSize = 0;
+
+    /**
+     * The #of rounds that were evaluated bottom-up.
+     */
+    private int bottomUpRounds = 0;
+
+    public CSRGASContext(final CSRGASEngine gasEngine,
+            final CSRGraphAccessor graphAccessor,
+            final IGASState<VS, ES, ST> gasState,
+            final IGASProgram<VS, ES, ST> gasProgram) {
+
+        super(gasEngine, graphAccessor, gasState, gasProgram);
+
+        this.gasEngine = gasEngine;
+
+        this.graphAccessor = graphAccessor;
+
+        this.g = graphAccessor.getGraph();
+
+        this.directionOptimizing = gasEngine.isDirectionOptimizing()
+                && gasProgram instanceof BFS
+                && gasState instanceof CSRGASState;
+
+    }
+
+    /**
+     * The #of rounds that were evaluated bottom-up.
+     */
+    public int getBottomUpRounds() {
+
+        return bottomUpRounds;
+
+    }
+
+    @Override
+    public boolean doRound(final IGASStats stats) throws Exception {
+
+        if (!directionOptimizing)
+            return super.doRound(stats);
+
+        final int linkTypeId = graphAccessor.getLinkTypeId(this);
+
+        final EdgesEnum pushEdges = getTraversalDirection().asTraversed(
+                getGASProgram().getScatterEdges());
+
+        if (linkTypeId == CSRGraphAccessor.NO_EDGES
+                || pushEdges == EdgesEnum.NoEdges)
+            return super.doRound(stats);
+
+        final IStaticFrontier f = getGASState().frontier();
+
+        if (unexploredEdges == -1L) {
+
+            unexploredEdges = 0L;
+
+            for (int id = 0; id < g.getVertexCount(); id++) {
+
+                unexploredEdges += degree(id, pushEdges, linkTypeId);
+
+            }
+
+        }
+
+        // #of edges leaving the frontier.
+        long frontierEdges = 0L;
+
+        for (Value u : f) {
+
+            final int id = g.getId(u);
+
+            if (id >= 0)
+                frontierEdges += degree(id, pushEdges, linkTypeId);
+
+        }
+
+        unexploredEdges -= frontierEdges;
+
+        final int frontierSize = f.size();
+
+        if (!bottomUp) {
+
+            if (frontierEdges > unexploredEdges / DEFAULT_ALPHA) {
+
+                bottomUp = true;
+
+            }
+
+        } else if (frontierSize < lastFrontierSize
+                && frontierSize < g.getVertexCount() / DEFAULT_BETA) {
+
+            bottomUp = false;
+
+        }
+
+        lastFrontierSize = frontierSize;
+
+        if (log.isInfoEnabled())
+            log.info("round=" + getGASState().round() + ", frontierSize="
+                    + frontierSize + ", frontierEdges=" + frontierEdges
+                    + ", unexploredEdges=" + unexploredEdges + ", bottomUp="
+                    + bottomUp);
+
+        if (!bottomUp)
+            return super.doRound(stats);
+
+        bottomUpRounds++;
+
+        final long begin = System.nanoTime();
+
+        final long nedges = bottomUp(f, pushEdges, linkTypeId);
+
+        final long elapsed = System.nanoTime() - begin;
+
+        stats.add(frontierSize, nedges, elapsed);
+
+        if (log.isInfoEnabled())
+            log.info("bottomUp: ms=" + TimeUnit.NANOSECONDS.toMillis(elapsed)
+                    + ", nedges=" + nedges + ", teps="
+                    + GASUtil.getTEPS(nedges, elapsed));
+
+        // End the round, advance the counter, and compact new frontier.
+        getGASState().endRound();
+
+        final boolean nextRound = getGASProgram().nextRound(this);
+
+        if (nextRound) {
+
+            getGraphAccessor().advanceView();
+
+        }
+
+        return nextRound;
+
+    }
+
+    /**
+     * The #of edges of a vertex in the given direction.
+     */
+    private int degree(final int id, final EdgesEnum edges,
+            final int linkTypeId) {
+
+        switch (edges) {
+        case InEdges:
+            return g.getDegree(id, true/* inEdges */, linkTypeId);
+        case OutEdges:
+            return g.getDegree(id, false/* inEdges */, linkTypeId);
+        case AllEdges:
+            return g.getDegree(id, true/* inEdges */, linkTypeId)
+                    + g.getDegree(id, false/* inEdges */, linkTypeId);
+        default:
+            return 0;
+        }
+
+    }
+
+    /**
+     * Evaluate a bottom-up round. The vertex identifiers are split into one
+     * range per thread.
+     * 
+     * @param f
+     *            The frontier.
+     * @param pushEdges
+     *            The edges that a top-down round would traverse. The bottom-up
+     *            round traverses the same edges from the other end.
+     * @param linkTypeId
+     *            The link type identifier -or- {@link CSRGraph#ANY}.
+     * 
+     * @return The #of edges examined.
+     */
+    private long bottomUp(final IStaticFrontier f, final EdgesEnum pushEdges,
+            final int linkTypeId) throws Exception {
+
+        final int n = g.getVertexCount();
+
+        final long[] frontier = new long[(n + 63) >>> 6];
+
+        for (Value u : f) {
+
+            final int id = g.getId(u);
+
+            if (id >= 0)
+                frontier[id >>> 6] |= 1L << (id & 63);
+
+        }
+
+        // Scan the in-edges to find the parents for out-edges, etc.
+        final boolean pullIn = pushEdges != EdgesEnum.InEdges;
+
+        final boolean pullOut = pushEdges != EdgesEnum.OutEdges;
+
+        final int nthreads = Math.max(1, gasEngine.getNThreads());
+
+        final int chunk = Math.max(64, (n + nthreads - 1) / nthreads);
+
+        final List<Callable<Long>> tasks = new LinkedList<Callable<Long>>();
+
+        for (int from = 0; from < n; from += chunk) {
+
+            tasks.add(new BottomUpTask(from, Math.min(n, from + chunk),
+                    frontier, pullIn, pullOut, linkTypeId));
+
+        }
+
+        long nedges = 0L;
+
+        if (tasks.size() == 1) {
+
+            nedges = tasks.get(0).call();
+
+        } else {
+
+            for (Future<Long> ft : gasEngine.getGASThreadPool().invokeAll(
+                    tasks)) {
+
+                nedges += ft.get();
+
+            }
+
+        }
+
+        return nedges;
+
+    }
+
+    /**
+     * Pull from the frontier for the unvisited vertices in a range of vertex
+     * identifiers.
+     */
+    private class BottomUpTask implements Callable<Long> {
+
+        private final int from, to;
+
+        private final long[] frontier;
+
+        private final boolean pullIn, pullOut;
+
+        private final int linkTypeId;
+
+        BottomUpTask(final int from, final int to, final long[] frontier,
+                final boolean pullIn, final boolean pullOut,
+                final int linkTypeId) {
+
+            this.from = from;
+            this.to = to;
+            this.frontier = frontier;
+            this.pullIn = pullIn;
+            this.pullOut = pullOut;
+            this.linkTypeId = linkTypeId;
+
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Long call() throws Exception {
+
+            final CSRGASState<BFS.VS, ?, ?> state = (CSRGASState<BFS.VS, ?, ?>) getGASState();
+
+            final IGASScheduler sch = state.getScheduler();
+
+            final int depth = state.round() + 1;
+
+            long nedges = 0L;
+
+            for (int v = from; v < to; v++) {
+
+                final BFS.VS vs = state.peekState(v);
+
+                if (vs != null && vs.depth() != -1) {
+
+                    // Already visited.
+                    continue;
+
+                }
+
+                int parent = -1;
+
+                if (pullIn) {
+
+                    parent = findParent(v, true/* inEdges */);
+
+                    nedges += parent < 0 ? -parent - 1 : 1;
+
+                }
+
+                if (parent < 0 && pullOut) {
+
+                    parent = findParent(v, false/* inEdges */);
+
+                    nedges += parent < 0 ? -parent - 1 : 1;
+
+                }
+
+                if (parent < 0)
+                    continue;
+
+                if (state.getState(v).visit(depth, g.getVertex(parent))) {
+
+                    sch.schedule(g.getVertex(v));
+
+                }
+
+            }
+
+            return nedges;
+
+        }
+
+        /**
+         * Return the first vertex adjacent to <i>v</i> in the frontier -or-
+         * <code>-(m+1)</code> where <code>m</code> is the #of edges examined
+         * if there is no such vertex.
+         */
+        private int findParent(final int v, final boolean inEdges) {
+
+            final int[] offsets = g.getOffsets(inEdges);
+
+            final int[] targets = g.getTargets(inEdges);
+
+            final int[] types = g.getLinkTypes(inEdges);
+
+            final int begin = offsets[v];
+
+            final int end = offsets[v + 1];
+
+            for (int i = begin; i < end; i++) {
+
+                if (linkTypeId != CSRGraph.ANY && types[i] != linkTypeId)
+                    continue;
+
+                final int u = targets[i];
+
+                if ((frontier[u >>> 6] & (1L << (u & 63))) != 0L)
+                    return u;
+
+            }
+
+            return -(end - begin + 1);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,272 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.csr;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.EdgesEnum;
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASProgram;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IGraphAccessor;
+import com.bigdata.rdf.graph.analytics.BFS;
+import com.bigdata.rdf.graph.impl.GASEngine;
+import com.bigdata.rdf.graph.impl.util.VertexDistribution;
+
+import cutthecrap.utils.striterators.EmptyIterator;
+import cutthecrap.utils.striterators.Striterator;
+
+/**
+ * A GAS engine that runs over a {@link CSRGraph} snapshot of the selected
+ * link types. The vertex state is kept in an array indexed by the dense vertex
+ * identifiers and the new frontier is collected in a bit set over those
+ * identifiers, so neither the traversal nor the vertex state access needs to
+ * hash the vertices or probe an index. The same {@link IGASProgram}s run over
+ * this engine since the vertices and edges of the snapshot are exposed using
+ * the openrdf data model.
+ * <p>
+ * The snapshot does not observe later updates to the graph. Take a new
+ * snapshot to analyze a newer state of the graph.
+ * <p>
+ * {@link BFS} is evaluated as a direction-optimizing traversal by default.
+ * See {@link CSRGASContext}.
+ * 
+ * @see CSRGraph
+ */
+public class CSRGASEngine extends GASEngine {
+
+    /**
+     * When <code>true</code>, {@link BFS} may pull from the frontier.
+     */
+    private final boolean directionOptimizing;
+
+    public CSRGASEngine(final int nthreads) {
+        this(nthreads, true/* directionOptimizing */);
+    }
+
+    /**
+     * @param nthreads
+     *            The #of threads.
+     * @param directionOptimizing
+     *            When <code>true</code>, {@link BFS} switches to bottom-up
+     *            rounds once the frontier is large.
+     */
+    public CSRGASEngine(final int nthreads, final boolean directionOptimizing) {
+        super(nthreads);
+        this.directionOptimizing = directionOptimizing;
+    }
+
+    /**
+     * When <code>true</code>, {@link BFS} switches to bottom-up rounds once
+     * the frontier is large.
+     */
+    public boolean isDirectionOptimizing() {
+        return directionOptimizing;
+    }
+
+    /**
+     * Returns <code>false</code>. The scheduler already presents the frontier
+     * in the order of the vertex identifiers, which is the order of the rows
+     * of the {@link CSRGraph}.
+     */
+    @Override
+    public boolean getSortFrontier() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws IllegalArgumentException
+     *             unless the {@link IGraphAccessor} is a
+     *             {@link CSRGraphAccessor}.
+     */
+    @Override
+    public <VS, ES, ST> IGASContext<VS, ES, ST> newGASContext(
+            final IGraphAccessor graphAccessor,
+            final IGASProgram<VS, ES, ST> gasProgram) {
+
+        final IGASState<VS, ES, ST> gasState = newGASState(graphAccessor,
+                gasProgram);
+
+        return new CSRGASContext<VS, ES, ST>(this,
+                (CSRGraphAccessor) graphAccessor, gasState, gasProgram);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The scheduler class configured for the engine is ignored. The
+     * {@link CSRScheduler} is always used.
+     * 
+     * @throws IllegalArgumentException
+     *             unless the {@link IGraphAccessor} is a
+     *             {@link CSRGraphAccessor}.
+     */
+    @Override
+    public <VS, ES, ST> IGASState<VS, ES, ST> newGASState(
+            final IGraphAccessor graphAccessor,
+            final IGASProgram<VS, ES, ST> gasProgram) {
+
+        if (!(graphAccessor instanceof CSRGraphAccessor))
+            throw new IllegalArgumentException();
+
+        final CSRGraph g = ((CSRGraphAccessor) graphAccessor).getGraph();
+
+        return new CSRGASState<VS, ES, ST>(this, graphAccessor,
+                newStaticFrontier(), new CSRScheduler(g), gasProgram, g);
+
+    }
+
+    static public class CSRGraphAccessor implements IGraphAccessor {
+
+        private final CSRGraph g;
+
+        public CSRGraphAccessor(final CSRGraph g) {
+            if (g == null)
+                throw new IllegalArgumentException();
+            this.g = g;
+        }
+
+        /**
+         * The backing snapshot.
+         */
+        public CSRGraph getGraph() {
+            return g;
+        }
+
+        @Override
+        public void advanceView() {
+            // NOP
+        }
+
+        @Override
+        public long getEdgeCount(final IGASContext<?, ?, ?> ctx, final Value u,
+                final EdgesEnum edges) {
+
+            final int id = g.getId(u);
+
+            final int linkTypeId = getLinkTypeId(ctx);
+
+            if (id < 0 || linkTypeId == NO_EDGES)
+                return 0L;
+
+            switch (edges) {
+            case NoEdges:
+                return 0L;
+            case InEdges:
+                return g.getDegree(id, true/* inEdges */, linkTypeId);
+            case OutEdges:
+                return g.getDegree(id, false/* inEdges */, linkTypeId);
+            case AllEdges:
+                return g.getDegree(id, true/* inEdges */, linkTypeId)
+                        + g.getDegree(id, false/* inEdges */, linkTypeId);
+            default:
+                throw new UnsupportedOperationException(edges.name());
+            }
+
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Iterator<Statement> getEdges(final IGASContext<?, ?, ?> ctx,
+                final Value u, final EdgesEnum edges) {
+
+            final int id = g.getId(u);
+
+            final int linkTypeId = getLinkTypeId(ctx);
+
+            if (id < 0 || linkTypeId == NO_EDGES)
+                return EmptyIterator.DEFAULT;
+
+            switch (edges) {
+            case NoEdges:
+                return EmptyIterator.DEFAULT;
+            case InEdges:
+                return g.getEdges(id, true/* inEdges */, linkTypeId);
+            case OutEdges:
+                return g.getEdges(id, false/* inEdges */, linkTypeId);
+            case AllEdges: {
+                final Striterator a = new Striterator(g.getEdges(id,
+                        true/* inEdges */, linkTypeId));
+                a.append(g.getEdges(id, false/* inEdges */, linkTypeId));
+                return a;
+            }
+            default:
+                throw new UnsupportedOperationException(edges.name());
+            }
+
+        }
+
+        /**
+         * Returned by {@link #getLinkTypeId(IGASContext)} when the link type
+         * constraint does not appear in the snapshot.
+         */
+        static final int NO_EDGES = -2;
+
+        /**
+         * Return the identifier of the link type constraint for the context,
+         * {@link CSRGraph#ANY} if there is no constraint, or
+         * {@link #NO_EDGES} if no edge can satisfy the constraint.
+         */
+        int getLinkTypeId(final IGASContext<?, ?, ?> ctx) {
+
+            final URI linkType = ctx.getLinkType();
+
+            if (linkType == null)
+                return CSRGraph.ANY;
+
+            final int linkTypeId = g.getLinkTypeId(linkType);
+
+            return linkTypeId < 0 ? NO_EDGES : linkTypeId;
+
+        }
+
+        @Override
+        public VertexDistribution getDistribution(final Random r) {
+
+            final VertexDistribution sample = new VertexDistribution(r);
+
+            final int n = g.getVertexCount();
+
+            for (int id = 0; id < n; id++) {
+
+                /*
+                 * Note: Like the RAM implementation, this does not ignore
+                 * self-loops.
+                 */
+
+                if (g.getDegree(id, true/* inEdges */, CSRGraph.ANY) > 0)
+                    sample.addInEdgeSample(g.getVertex(id));
+
+                if (g.getDegree(id, false/* inEdges */, CSRGraph.ANY) > 0)
+                    sample.addOutEdgeSample(g.getVertex(id));
+
+            }
+
+            return sample;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,235 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.csr;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.Factory;
+import com.bigdata.rdf.graph.IGASEngine;
+import com.bigdata.rdf.graph.IGASProgram;
+import com.bigdata.rdf.graph.IGASSchedulerImpl;
+import com.bigdata.rdf.graph.IGraphAccessor;
+import com.bigdata.rdf.graph.IReducer;
+import com.bigdata.rdf.graph.IStaticFrontier;
+import com.bigdata.rdf.graph.impl.GASState;
+
+/**
+ * {@link GASState} for a {@link CSRGraph}. The state of the vertices in the
+ * snapshot is kept in an array indexed by the dense vertex identifiers. The
+ * state of any vertex that is not part of the snapshot (e.g., a starting
+ * vertex without edges of the selected link types) is kept in the map of the
+ * base class.
+ * <p>
+ * The vertices visible to the {@link IGASProgram} are the {@link CSRGraph}
+ * vertices. Since those compare equal to the {@link Value}s from which they
+ * were created, callers may use either form to read the vertex state.
+ */
+public class CSRGASState<VS, ES, ST> extends GASState<VS, ES, ST> {
+
+    private final CSRGraph g;
+
+    /**
+     * Factory for the vertex state objects.
+     */
+    private final Factory<Value, VS> vsf;
+
+    /**
+     * The state of each visited vertex, indexed by the vertex identifier.
+     */
+    private final AtomicReferenceArray<VS> state;
+
+    public CSRGASState(final IGASEngine gasEngine,//
+            final IGraphAccessor graphAccessor, //
+            final IStaticFrontier frontier,//
+            final IGASSchedulerImpl gasScheduler,//
+            final IGASProgram<VS, ES, ST> gasProgram,//
+            final CSRGraph g//
+    ) {
+
+        super(gasEngine, graphAccessor, frontier, gasScheduler, gasProgram);
+
+        if (g == null)
+            throw new IllegalArgumentException();
+
+        this.g = g;
+
+        this.vsf = gasProgram.getVertexStateFactory();
+
+        this.state = new AtomicReferenceArray<VS>(g.getVertexCount());
+
+    }
+
+    @Override
+    public VS getState(final Value v) {
+
+        final int id = g.getId(v);
+
+        if (id < 0)
+            return super.getState(v);
+
+        return getState(id);
+
+    }
+
+    /**
+     * Return the state of the vertex having the given identifier, creating it
+     * if necessary.
+     */
+    VS getState(final int id) {
+
+        VS vs = state.get(id);
+
+        if (vs == null) {
+
+            if (!state.compareAndSet(id, null/* expect */,
+                    vs = vsf.initialValue(g.getVertex(id)))) {
+
+                // Lost data race.
+                vs = state.get(id);
+
+            }
+
+        }
+
+        return vs;
+
+    }
+
+    /**
+     * Return the state of the vertex having the given identifier -or-
+     * <code>null</code> if there is no state for that vertex.
+     */
+    VS peekState(final int id) {
+
+        return state.get(id);
+
+    }
+
+    @Override
+    public boolean isVisited(final Value v) {
+
+        final int id = g.getId(v);
+
+        if (id < 0)
+            return super.isVisited(v);
+
+        return state.get(id) != null;
+
+    }
+
+    @Override
+    public boolean isVisited(final Set<Value> v) {
+
+        for (Value x : v) {
+
+            if (!isVisited(x))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public void retainAll(final Set<Value> retainSet) {
+
+        for (int id = 0; id < state.length(); id++) {
+
+            if (state.get(id) != null && !retainSet.contains(g.getVertex(id))) {
+
+                state.set(id, null);
+
+            }
+
+        }
+
+        super.retainAll(retainSet);
+
+    }
+
+    @Override
+    public void reset() {
+
+        super.reset();
+
+        for (int id = 0; id < state.length(); id++) {
+
+            state.set(id, null);
+
+        }
+
+    }
+
+    @Override
+    public <T> T reduce(final IReducer<VS, ES, ST, T> op) {
+
+        for (int id = 0; id < state.length(); id++) {
+
+            if (state.get(id) != null)
+                op.visit(this, g.getVertex(id));
+
+        }
+
+        for (Value v : vertexState.keySet()) {
+
+            op.visit(this, v);
+
+        }
+
+        return op.get();
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The vertices of the snapshot are canonical, so this uses a reference
+     * test when <i>u</i> is a vertex of the snapshot.
+     */
+    @Override
+    public Value getOtherVertex(final Value u, final Statement e) {
+
+        if (e instanceof CSRGraph.Edge && u instanceof CSRGraph.Vertex) {
+
+            return e.getSubject() == u ? e.getObject() : e.getSubject();
+
+        }
+
+        return super.getOtherVertex(u, e);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns the {@link CSRGraph} vertex for the value if it is part of the
+     * snapshot.
+     */
+    @Override
+    public Value asValue(final Value value) {
+
+        final int id = g.getId(value);
+
+        return id < 0 ? value : g.getVertex(id);
+
+    }
+
+}
@@ -0,0 +1,874 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.csr;
+
+import info.aduna.iteration.CloseableIteration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.sail.SailConnection;
+import org.openrdf.sail.SailException;
+
+import com.bigdata.rdf.graph.impl.util.ManagedIntArray;
+
+/**
+ * An immutable compressed-sparse-row (CSR) snapshot of the edges of a graph.
+ * Each vertex is assigned a dense <code>int</code> identifier in the order in
+ * which it is first observed and the in-edges and out-edges of the vertices
+ * are stored as slices of flat <code>int[]</code>s indexed by those
+ * identifiers. Property values (statements whose object is a {@link Literal})
+ * are not part of the snapshot. Duplicate edges are dropped.
+ * <p>
+ * The {@link Vertex} objects exposed by the snapshot are canonical for their
+ * identifier, so code running over the snapshot can recover the identifier of
+ * a vertex without hashing. The {@link Vertex} and {@link Edge} objects
+ * compare equal to the {@link Value}s and {@link Statement}s from which they
+ * were built, so the external {@link Value}s may still be used to address the
+ * snapshot.
+ */
+public class CSRGraph {
+
+    private static final Logger log = Logger.getLogger(CSRGraph.class);
+
+    /**
+     * The link type identifier used to visit edges of any link type.
+     */
+    public static final int ANY = -1;
+
+    /**
+     * The vertices, indexed by their identifiers.
+     */
+    private final Vertex[] vertices;
+
+    /**
+     * Map from the external form of a vertex onto its identifier.
+     */
+    private final Map<Value, Integer> ids;
+
+    /**
+     * The distinct link types, indexed by their identifiers.
+     */
+    private final URI[] linkTypes;
+
+    /**
+     * Map from a link type onto its identifier.
+     */
+    private final Map<URI, Integer> linkTypeIds;
+
+    /**
+     * The out-edges. The targets are the objects of the edges.
+     */
+    private final Adjacency out;
+
+    /**
+     * The in-edges. The targets are the subjects of the edges.
+     */
+    private final Adjacency in;
+
+    private CSRGraph(final Builder b) {
+
+        final int n = b.vertices.size();
+
+        this.vertices = b.vertices.toArray(new Vertex[n]);
+
+        this.ids = b.ids;
+
+        this.linkTypes = b.linkTypes.toArray(new URI[b.linkTypes.size()]);
+
+        this.linkTypeIds = b.linkTypeIds;
+
+        final int[] src = b.src.array();
+        final int[] dst = b.dst.array();
+        final int[] typ = b.typ.array();
+
+        this.out = new Adjacency(n, b.nedges, src, dst, typ);
+
+        this.in = new Adjacency(n, b.nedges, dst, src, typ);
+
+    }
+
+    /**
+     * Snapshot the edges having the given link types.
+     * 
+     * @param cxn
+     *            The connection.
+     * @param includeInferred
+     *            When <code>true</code>, inferred triples will be visited as
+     *            well as explicit triples.
+     * @param linkTypes
+     *            The link types to snapshot. When none are given, the edges
+     *            of every link type are included.
+     * 
+     * @return The snapshot.
+     */
+    public static CSRGraph newInstance(final SailConnection cxn,
+            final boolean includeInferred, final URI... linkTypes)
+            throws SailException {
+
+        if (cxn == null)
+            throw new IllegalArgumentException();
+
+        final long begin = System.currentTimeMillis();
+
+        final Builder b = new Builder();
+
+        if (linkTypes == null || linkTypes.length == 0) {
+
+            b.addAll(cxn.getStatements(null/* s */, null/* p */, null/* o */,
+                    includeInferred));
+
+        } else {
+
+            for (URI p : linkTypes) {
+
+                b.addAll(cxn.getStatements(null/* s */, p, null/* o */,
+                        includeInferred));
+
+            }
+
+        }
+
+        final CSRGraph g = b.build();
+
+        if (log.isInfoEnabled())
+            log.info("vertices=" + g.getVertexCount() + ", edges="
+                    + g.getEdgeCount() + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        return g;
+
+    }
+
+    /**
+     * The #of vertices in the snapshot.
+     */
+    public int getVertexCount() {
+
+        return vertices.length;
+
+    }
+
+    /**
+     * The #of distinct edges in the snapshot.
+     */
+    public int getEdgeCount() {
+
+        return out.targets.length;
+
+    }
+
+    /**
+     * Return the vertex having the given identifier.
+     */
+    public Vertex getVertex(final int id) {
+
+        return vertices[id];
+
+    }
+
+    /**
+     * Return the identifier of a vertex.
+     * 
+     * @param v
+     *            Either a {@link Vertex} of this snapshot or the external form
+     *            of a vertex.
+     * 
+     * @return The identifier -or- <code>-1</code> if the vertex does not
+     *         appear in any edge of the snapshot.
+     */
+    public int getId(final Value v) {
+
+        if (v instanceof Vertex) {
+
+            final Vertex x = (Vertex) v;
+
+            if (x.id < vertices.length && vertices[x.id] == x) {
+
+                // Fast path : a vertex of this snapshot.
+                return x.id;
+
+            }
+
+            return getId(x.value);
+
+        }
+
+        final Integer id = ids.get(v);
+
+        return id == null ? -1 : id.intValue();
+
+    }
+
+    /**
+     * The #of distinct link types in the snapshot.
+     */
+    public int getLinkTypeCount() {
+
+        return linkTypes.length;
+
+    }
+
+    /**
+     * Return the link type having the given identifier.
+     */
+    public URI getLinkType(final int linkTypeId) {
+
+        return linkTypes[linkTypeId];
+
+    }
+
+    /**
+     * Return the identifier of a link type.
+     * 
+     * @return The identifier -or- <code>-1</code> if there are no edges having
+     *         that link type in the snapshot.
+     */
+    public int getLinkTypeId(final URI linkType) {
+
+        final Integer id = linkTypeIds.get(linkType);
+
+        return id == null ? -1 : id.intValue();
+
+    }
+
+    /**
+     * Return the #of edges for a vertex.
+     * 
+     * @param id
+     *            The vertex identifier.
+     * @param inEdges
+     *            <code>true</code> for the in-edges and <code>false</code>
+     *            for the out-edges.
+     * @param linkTypeId
+     *            The link type identifier -or- {@link #ANY}.
+     */
+    public int getDegree(final int id, final boolean inEdges,
+            final int linkTypeId) {
+
+        final Adjacency adj = inEdges ? in : out;
+
+        final int begin = adj.offsets[id];
+
+        final int end = adj.offsets[id + 1];
+
+        if (linkTypeId == ANY)
+            return end - begin;
+
+        int n = 0;
+
+        for (int i = begin; i < end; i++) {
+
+            if (adj.types[i] == linkTypeId)
+                n++;
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Return the edges for a vertex.
+     * 
+     * @param id
+     *            The vertex identifier.
+     * @param inEdges
+     *            <code>true</code> for the in-edges and <code>false</code>
+     *            for the out-edges.
+     * @param linkTypeId
+     *            The link type identifier -or- {@link #ANY}.
+     */
+    public Iterator<Statement> getEdges(final int id, final boolean inEdges,
+            final int linkTypeId) {
+
+        return new EdgeIterator(vertices[id], inEdges, linkTypeId);
+
+    }
+
+    /*
+     * Direct access to the adjacency for the traversal code in this package.
+     * The edges of vertex <code>u</code> are found at
+     * <code>[offsets[u], offsets[u+1])</code>.
+     */
+
+    int[] getOffsets(final boolean inEdges) {
+
+        return (inEdges ? in : out).offsets;
+
+    }
+
+    int[] getTargets(final boolean inEdges) {
+
+        return (inEdges ? in : out).targets;
+
+    }
+
+    int[] getLinkTypes(final boolean inEdges) {
+
+        return (inEdges ? in : out).types;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{vertices=" + getVertexCount()
+                + ",edges=" + getEdgeCount() + ",linkTypes="
+                + getLinkTypeCount() + "}";
+
+    }
+
+    /**
+     * One direction of the adjacency. The edges of vertex <code>u</code> are
+     * found at <code>[offsets[u], offsets[u+1])</code> and are ordered by the
+     * identifier of the other vertex and then the link type.
+     */
+    private static class Adjacency {
+
+        private final int[] offsets;
+
+        private final int[] targets;
+
+        private final int[] types;
+
+        /**
+         * @param n
+         *            The #of vertices.
+         * @param m
+         *            The #of edges.
+         * @param from
+         *            The vertex on whose row each edge is stored.
+         * @param to
+         *            The other vertex for each edge.
+         * @param typ
+         *            The link type of each edge.
+         */
+        Adjacency(final int n, final int m, final int[] from, final int[] to,
+                final int[] typ) {
+
+            final int[] offsets = new int[n + 1];
+
+            for (int i = 0; i < m; i++) {
+
+                offsets[from[i] + 1]++;
+
+            }
+
+            for (int u = 0; u < n; u++) {
+
+                offsets[u + 1] += offsets[u];
+
+            }
+
+            // Counting sort of the edges onto their rows.
+            final long[] keys = new long[m];
+
+            final int[] pos = Arrays.copyOf(offsets, n);
+
+            for (int i = 0; i < m; i++) {
+
+                keys[pos[from[i]]++] = ((long) to[i] << 32)
+                        | (typ[i] & 0xffffffffL);
+
+            }
+
+            // Order each row and drop the duplicate edges.
+            int[] targets = new int[m];
+
+            int[] types = new int[m];
+
+            int k = 0;
+
+            for (int u = 0; u < n; u++) {
+
+                final int begin = offsets[u];
+
+                final int end = offsets[u + 1];
+
+                Arrays.sort(keys, begin, end);
+
+                offsets[u] = k;
+
+                for (int i = begin; i < end; i++) {
+
+                    if (i > begin && keys[i] == keys[i - 1])
+                        continue;
+
+                    targets[k] = (int) (keys[i] >>> 32);
+
+                    types[k] = (int) keys[i];
+
+                    k++;
+
+                }
+
+            }
+
+            offsets[n] = k;
+
+            if (k < m) {
+
+                targets = Arrays.copyOf(targets, k);
+
+                types = Arrays.copyOf(types, k);
+
+            }
+
+            this.offsets = offsets;
+
+            this.targets = targets;
+
+            this.types = types;
+
+        }
+
+    }
+
+    /**
+     * Visits the edges for one vertex.
+     */
+    private class EdgeIterator implements Iterator<Statement> {
+
+        private final Vertex u;
+
+        private final boolean inEdges;
+
+        private final Adjacency adj;
+
+        private final int linkTypeId;
+
+        private final int end;
+
+        private int pos;
+
+        EdgeIterator(final Vertex u, final boolean inEdges,
+                final int linkTypeId) {
+
+            this.u = u;
+
+            this.inEdges = inEdges;
+
+            this.adj = inEdges ? in : out;
+
+            this.linkTypeId = linkTypeId;
+
+            this.pos = adj.offsets[u.id];
+
+            this.end = adj.offsets[u.id + 1];
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (linkTypeId != ANY) {
+
+                while (pos < end && adj.types[pos] != linkTypeId) {
+
+                    pos++;
+
+                }
+
+            }
+
+            return pos < end;
+
+        }
+
+        @Override
+        public Statement next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final Vertex v = vertices[adj.targets[pos]];
+
+            final URI p = linkTypes[adj.types[pos]];
+
+            pos++;
+
+            return inEdges ? new Edge(v, p, u) : new Edge(u, p, v);
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+    }
+
+    /**
+     * Collects the edges for a {@link CSRGraph}. This is not thread-safe.
+     */
+    public static class Builder {
+
+        private final Map<Value, Integer> ids = new HashMap<Value, Integer>();
+
+        private final List<Vertex> vertices = new ArrayList<Vertex>();
+
+        private final Map<URI, Integer> linkTypeIds = new HashMap<URI, Integer>();
+
+        private final List<URI> linkTypes = new ArrayList<URI>();
+
+        /*
+         * The edge list in the order in which the edges were added.
+         */
+        private final ManagedIntArray src = new ManagedIntArray();
+        private final ManagedIntArray dst = new ManagedIntArray();
+        private final ManagedIntArray typ = new ManagedIntArray();
+
+        private int nedges = 0;
+
+        /**
+         * Add a statement. Statements that model property values are ignored.
+         * 
+         * @return <code>true</code> iff the statement was an edge.
+         */
+        public boolean add(final Statement st) {
+
+            final Value o = st.getObject();
+
+            if (!(o instanceof Resource)) {
+
+                // This is a property value, not an edge.
+                return false;
+
+            }
+
+            final int s = vertexId(st.getSubject());
+
+            final int t = vertexId((Resource) o);
+
+            final int p = linkTypeId(st.getPredicate());
+
+            src.putInt(nedges, s);
+            dst.putInt(nedges, t);
+            typ.putInt(nedges, p);
+
+            nedges++;
+
+            return true;
+
+        }
+
+        /**
+         * Add all statements visited by the iteration and then close it.
+         */
+        public void addAll(
+                final CloseableIteration<? extends Statement, SailException> itr)
+                throws SailException {
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    add(itr.next());
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        }
+
+        public CSRGraph build() {
+
+            return new CSRGraph(this);
+
+        }
+
+        private int vertexId(Resource v) {
+
+            if (v instanceof Vertex)
+                v = (Resource) ((Vertex) v).value;
+
+            Integer id = ids.get(v);
+
+            if (id == null) {
+
+                id = vertices.size();
+
+                final Vertex x;
+                if (v instanceof URI) {
+                    x = new URIVertex(id, (URI) v);
+                } else if (v instanceof BNode) {
+                    x = new BNodeVertex(id, (BNode) v);
+                } else {
+                    throw new IllegalArgumentException(v.toString());
+                }
+
+                vertices.add(x);
+
+                ids.put(v, id);
+
+            }
+
+            return id.intValue();
+
+        }
+
+        private int linkTypeId(final URI p) {
+
+            Integer id = linkTypeIds.get(p);
+
+            if (id == null) {
+
+                id = linkTypes.size();
+
+                linkTypes.add(p);
+
+                linkTypeIds.put(p, id);
+
+            }
+
+            return id.intValue();
+
+        }
+
+    }
+
+    /**
+     * A vertex of a {@link CSRGraph}. A vertex is equal to the {@link Value}
+     * from which it was created and has the same hash code.
+     */
+    public static abstract class Vertex implements Resource {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+
+        private final Value value;
+
+        Vertex(final int id, final Value value) {
+
+            this.id = id;
+
+            this.value = value;
+
+        }
+
+        /**
+         * The dense identifier of the vertex.
+         */
+        public final int getId() {
+
+            return id;
+
+        }
+
+        /**
+         * The {@link Value} from which the vertex was created.
+         */
+        public final Value getValue() {
+
+            return value;
+
+        }
+
+        @Override
+        public String stringValue() {
+
+            return value.stringValue();
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (o instanceof Vertex)
+                return value.equals(((Vertex) o).value);
+
+            return value.equals(o);
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return value.hashCode();
+
+        }
+
+        @Override
+        public String toString() {
+
+            return value.toString();
+
+        }
+
+    }
+
+    /**
+     * A vertex that is a {@link URI}.
+     */
+    public static class URIVertex extends Vertex implements URI {
+
+        private static final long serialVersionUID = 1L;
+
+        URIVertex(final int id, final URI value) {
+
+            super(id, value);
+
+        }
+
+        @Override
+        public String getNamespace() {
+
+            return ((URI) getValue()).getNamespace();
+
+        }
+
+        @Override
+        public String getLocalName() {
+
+            return ((URI) getValue()).getLocalName();
+
+        }
+
+    }
+
+    /**
+     * A vertex that is a {@link BNode}.
+     */
+    public static class BNodeVertex extends Vertex implements BNode {
+
+        private static final long serialVersionUID = 1L;
+
+        BNodeVertex(final int id, final BNode value) {
+
+            super(id, value);
+
+        }
+
+        @Override
+        public String getID() {
+
+            return ((BNode) getValue()).getID();
+
+        }
+
+    }
+
+    /**
+     * An edge of a {@link CSRGraph}. These objects are materialized on demand
+     * when the edges of a vertex are visited.
+     */
+    public static class Edge implements Statement {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Vertex s;
+
+        private final URI p;
+
+        private final Vertex o;
+
+        Edge(final Vertex s, final URI p, final Vertex o) {
+
+            this.s = s;
+
+            this.p = p;
+
+            this.o = o;
+
+        }
+
+        @Override
+        public Resource getSubject() {
+
+            return s;
+
+        }
+
+        @Override
+        public URI getPredicate() {
+
+            return p;
+
+        }
+
+        @Override
+        public Value getObject() {
+
+            return o;
+
+        }
+
+        @Override
+        public Resource getContext() {
+
+            return null;
+
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+
+            if (this == other)
+                return true;
+
+            if (!(other instanceof Statement))
+                return false;
+
+            final Statement t = (Statement) other;
+
+            return o.equals(t.getObject()) && s.equals(t.getSubject())
+                    && p.equals(t.getPredicate());
+
+        }
+
+        /**
+         * The same hash code as the openrdf {@link Statement} implementations.
+         */
+        @Override
+        public int hashCode() {
+
+            return 961 * s.hashCode() + 31 * p.hashCode() + o.hashCode();
+
+        }
+
+        @Override
+        public String toString() {
+
+            return "(" + s + ", " + p + ", " + o + ")";
+
+        }
+
+    }
+
+}
@@ -0,0 +1,170 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.csr;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.IGASSchedulerImpl;
+import com.bigdata.rdf.graph.IStaticFrontier;
+
+/**
+ * A scheduler for a {@link CSRGraph} that collects the new frontier in a bit
+ * set over the dense vertex identifiers. The frontier is compacted in the
+ * order of the vertex identifiers. Vertices that are not part of the snapshot
+ * are collected in a {@link ConcurrentHashMap}.
+ */
+public class CSRScheduler implements IGASSchedulerImpl {
+
+    private final CSRGraph g;
+
+    /**
+     * One bit per vertex identifier.
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * Scheduled vertices which are not part of the snapshot.
+     */
+    private final ConcurrentHashMap<Value, Value> others;
+
+    public CSRScheduler(final CSRGraph g) {
+
+        if (g == null)
+            throw new IllegalArgumentException();
+
+        this.g = g;
+
+        this.bits = new AtomicLongArray((g.getVertexCount() + 63) >>> 6);
+
+        this.others = new ConcurrentHashMap<Value, Value>();
+
+    }
+
+    @Override
+    public void schedule(final Value v) {
+
+        final int id = g.getId(v);
+
+        if (id < 0) {
+
+            others.putIfAbsent(v, v);
+
+            return;
+
+        }
+
+        final int i = id >>> 6;
+
+        final long mask = 1L << (id & 63);
+
+        while (true) {
+
+            final long word = bits.get(i);
+
+            if ((word & mask) != 0L || bits.compareAndSet(i, word, word | mask))
+                return;
+
+        }
+
+    }
+
+    @Override
+    public void clear() {
+
+        for (int i = 0; i < bits.length(); i++) {
+
+            if (bits.get(i) != 0L)
+                bits.set(i, 0L);
+
+        }
+
+        others.clear();
+
+    }
+
+    @Override
+    public void compactFrontier(final IStaticFrontier frontier) {
+
+        int n = others.size();
+
+        for (int i = 0; i < bits.length(); i++) {
+
+            n += Long.bitCount(bits.get(i));
+
+        }
+
+        frontier.resetFrontier(n/* minCapacity */, false/* sortFrontier */,
+                new FrontierIterator());
+
+    }
+
+    /**
+     * Visits the scheduled vertices of the snapshot in the order of their
+     * identifiers followed by any other scheduled vertices.
+     */
+    private class FrontierIterator implements Iterator<Value> {
+
+        private int i = 0;
+
+        private long word = bits.length() == 0 ? 0L : bits.get(0);
+
+        private final Iterator<Value> othersItr = others.keySet().iterator();
+
+        @Override
+        public boolean hasNext() {
+
+            while (word == 0L && i + 1 < bits.length()) {
+
+                word = bits.get(++i);
+
+            }
+
+            return word != 0L || othersItr.hasNext();
+
+        }
+
+        @Override
+        public Value next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            if (word == 0L)
+                return othersItr.next();
+
+            final int bit = Long.numberOfTrailingZeros(word);
+
+            word &= word - 1;
+
+            return g.getVertex((i << 6) + bit);
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+    }
+
+}
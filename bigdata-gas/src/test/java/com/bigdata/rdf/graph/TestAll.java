@@ -53,6 +53,8 @@ public class TestAll extends TestCase {
 
         suite.addTest(com.bigdata.rdf.graph.impl.ram.TestAll.suite());
 
+        suite.addTest(com.bigdata.rdf.graph.impl.csr.TestAll.suite());
+
         suite.addTest(com.bigdata.rdf.graph.analytics.TestAll.suite());
         
         return suite;
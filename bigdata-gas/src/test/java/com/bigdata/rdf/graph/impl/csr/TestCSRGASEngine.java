@@ -0,0 +1,470 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.csr;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.sail.SailConnection;
+
+import com.bigdata.rdf.graph.EdgesEnum;
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.TraversalDirectionEnum;
+import com.bigdata.rdf.graph.analytics.BFS;
+import com.bigdata.rdf.graph.analytics.SSSP;
+import com.bigdata.rdf.graph.impl.csr.CSRGASEngine.CSRGraphAccessor;
+import com.bigdata.rdf.graph.impl.sail.AbstractSailGraphTestCase;
+
+/**
+ * Test suite for the {@link CSRGraph} snapshot and the {@link CSRGASEngine}.
+ * The snapshot is taken from the SAIL test fixture.
+ */
+public class TestCSRGASEngine extends AbstractSailGraphTestCase {
+
+    public TestCSRGASEngine() {
+        
+    }
+    
+    public TestCSRGASEngine(String name) {
+        super(name);
+    }
+
+    /**
+     * Snapshot the {@link SmallGraphProblem}.
+     * 
+     * @param linkTypes
+     *            The link types to snapshot (all if none are given).
+     */
+    private CSRGraph newGraph(final URI... linkTypes) throws Exception {
+
+        final SailConnection cxn = getGraphFixture().getSail().getConnection();
+
+        try {
+
+            return CSRGraph.newInstance(cxn, true/* includeInferred */,
+                    linkTypes);
+
+        } finally {
+
+            try {
+                cxn.rollback();
+            } finally {
+                cxn.close();
+            }
+
+        }
+
+    }
+
+    /**
+     * Verify the structure of a snapshot of all link types. The property
+     * values are not part of the snapshot, so <code>:DC</code> (which only
+     * has a label) is not a vertex.
+     */
+    public void test_snapshot() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGraph g = newGraph();
+
+        assertEquals(4, g.getVertexCount());
+        assertEquals(7, g.getEdgeCount());
+        assertEquals(2, g.getLinkTypeCount());
+
+        assertEquals(-1, g.getId(p.getDC()));
+
+        final int bryan = g.getId(p.getBryan());
+
+        assertTrue(bryan >= 0);
+
+        // The vertices are canonical and equal to the external values.
+        assertSame(g.getVertex(bryan), g.getVertex(g.getId(g.getVertex(bryan))));
+        assertEquals(p.getBryan(), g.getVertex(bryan));
+        assertEquals(g.getVertex(bryan), p.getBryan());
+        assertEquals(p.getBryan().hashCode(), g.getVertex(bryan).hashCode());
+
+        assertEquals(3, g.getDegree(bryan, false/* inEdges */, CSRGraph.ANY));
+        assertEquals(2, g.getDegree(bryan, true/* inEdges */, CSRGraph.ANY));
+        assertEquals(2, g.getDegree(bryan, false/* inEdges */,
+                g.getLinkTypeId(p.getFoafKnows())));
+        assertEquals(1, g.getDegree(bryan, false/* inEdges */,
+                g.getLinkTypeId(p.getRdfType())));
+
+        final Iterator<Statement> itr = g.getEdges(bryan, true/* inEdges */,
+                CSRGraph.ANY);
+
+        int n = 0;
+
+        while (itr.hasNext()) {
+
+            final Statement e = itr.next();
+
+            assertEquals(p.getBryan(), e.getObject());
+            assertEquals(p.getFoafKnows(), e.getPredicate());
+            assertTrue(e.getSubject().equals(p.getMike())
+                    || e.getSubject().equals(p.getMartyn()));
+
+            n++;
+
+        }
+
+        assertEquals(2, n);
+
+    }
+
+    /**
+     * Verify that only the selected link types are part of the snapshot.
+     */
+    public void test_snapshot_linkTypes() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGraph g = newGraph(p.getFoafKnows());
+
+        assertEquals(3, g.getVertexCount());
+        assertEquals(4, g.getEdgeCount());
+        assertEquals(1, g.getLinkTypeCount());
+
+        assertEquals(-1, g.getId(p.getFoafPerson()));
+        assertEquals(-1, g.getLinkTypeId(p.getRdfType()));
+
+    }
+
+    /**
+     * Verify that property values and duplicate edges are dropped.
+     */
+    public void test_builder_distinctEdges() {
+
+        final ValueFactory vf = new ValueFactoryImpl();
+
+        final URI a = vf.createURI("http://www.bigdata.com/a");
+        final URI b = vf.createURI("http://www.bigdata.com/b");
+        final URI p = vf.createURI("http://www.bigdata.com/p");
+
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+
+        assertTrue(builder.add(vf.createStatement(a, p, b)));
+        assertTrue(builder.add(vf.createStatement(a, p, b)));
+        assertTrue(builder.add(vf.createStatement(b, p, a)));
+        assertFalse(builder.add(vf.createStatement(a, p, vf.createLiteral("a"))));
+
+        final CSRGraph g = builder.build();
+
+        assertEquals(2, g.getVertexCount());
+        assertEquals(2, g.getEdgeCount());
+        assertEquals(1, g.getDegree(g.getId(a), false/* inEdges */,
+                CSRGraph.ANY));
+        assertEquals(1, g.getDegree(g.getId(a), true/* inEdges */,
+                CSRGraph.ANY));
+
+    }
+
+    /**
+     * The edge count reported by the graph accessor.
+     */
+    public void test_edgeCount() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGASEngine gasEngine = new CSRGASEngine(1/* nthreads */);
+
+        try {
+
+            final CSRGraphAccessor graphAccessor = new CSRGraphAccessor(
+                    newGraph());
+
+            final IGASContext<BFS.VS, BFS.ES, Void> gasContext = gasEngine
+                    .newGASContext(graphAccessor, new BFS());
+
+            assertEquals(5L, graphAccessor.getEdgeCount(gasContext,
+                    p.getBryan(), EdgesEnum.AllEdges));
+
+            gasContext.setLinkType(p.getFoafKnows());
+
+            assertEquals(4L, graphAccessor.getEdgeCount(gasContext,
+                    p.getBryan(), EdgesEnum.AllEdges));
+
+            gasContext.setLinkType(p.getFoafPerson());
+
+            assertEquals(0L, graphAccessor.getEdgeCount(gasContext,
+                    p.getBryan(), EdgesEnum.AllEdges));
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * BFS over a snapshot of all link types has the same results as BFS
+     * over the SAIL.
+     */
+    public void testBFS() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGASEngine gasEngine = new CSRGASEngine(1/* nthreads */);
+
+        try {
+
+            final IGASContext<BFS.VS, BFS.ES, Void> gasContext = gasEngine
+                    .newGASContext(new CSRGraphAccessor(newGraph()), new BFS());
+
+            final IGASState<BFS.VS, BFS.ES, Void> gasState = gasContext
+                    .getGASState();
+
+            // Initialize the froniter.
+            gasState.setFrontier(gasContext, p.getMike());
+
+            // Converge.
+            gasContext.call();
+
+            assertEquals(0, gasState.getState(p.getMike()).depth());
+            assertEquals(null, gasState.getState(p.getMike()).predecessor());
+
+            assertEquals(1, gasState.getState(p.getFoafPerson()).depth());
+            assertEquals(p.getMike(), gasState.getState(p.getFoafPerson())
+                    .predecessor());
+
+            assertEquals(1, gasState.getState(p.getBryan()).depth());
+            assertEquals(p.getMike(), gasState.getState(p.getBryan())
+                    .predecessor());
+
+            assertEquals(2, gasState.getState(p.getMartyn()).depth());
+            assertEquals(p.getBryan(), gasState.getState(p.getMartyn())
+                    .predecessor());
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * BFS over a snapshot of just <code>foaf:knows</code> does not visit
+     * <code>foaf:Person</code>.
+     */
+    public void testBFS_linkTypes() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGASEngine gasEngine = new CSRGASEngine(2/* nthreads */);
+
+        try {
+
+            final IGASContext<BFS.VS, BFS.ES, Void> gasContext = gasEngine
+                    .newGASContext(
+                            new CSRGraphAccessor(newGraph(p.getFoafKnows())),
+                            new BFS());
+
+            final IGASState<BFS.VS, BFS.ES, Void> gasState = gasContext
+                    .getGASState();
+
+            // Initialize the froniter.
+            gasState.setFrontier(gasContext, p.getMike());
+
+            // Converge.
+            gasContext.call();
+
+            assertEquals(0, gasState.getState(p.getMike()).depth());
+            assertEquals(1, gasState.getState(p.getBryan()).depth());
+            assertEquals(2, gasState.getState(p.getMartyn()).depth());
+
+            assertFalse(gasState.isVisited(p.getFoafPerson()));
+            assertEquals(-1, gasState.getState(p.getFoafPerson()).depth());
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * A direction-optimizing BFS assigns the same depths as a top-down BFS
+     * for each traversal direction and uses a valid predecessor for each
+     * vertex.
+     */
+    public void testBFS_directionOptimizing() throws Exception {
+
+        final CSRGraph g = newRandomGraph(2000/* nvertices */,
+                8000/* nedges */, 7L/* seed */);
+
+        for (TraversalDirectionEnum dir : TraversalDirectionEnum.values()) {
+
+            final IGASState<BFS.VS, BFS.ES, Void> expected = runBFS(g, dir,
+                    false/* directionOptimizing */);
+
+            final IGASState<BFS.VS, BFS.ES, Void> actual = runBFS(g, dir,
+                    true/* directionOptimizing */);
+
+            int nvisited = 0;
+
+            for (int id = 0; id < g.getVertexCount(); id++) {
+
+                final CSRGraph.Vertex v = g.getVertex(id);
+
+                final BFS.VS vs = actual.getState(v);
+
+                assertEquals(dir + ", " + v, expected.getState(v).depth(),
+                        vs.depth());
+
+                if (vs.depth() > 0) {
+
+                    assertEquals(vs.depth() - 1,
+                            actual.getState(vs.predecessor()).depth());
+
+                }
+
+                if (vs.depth() >= 0)
+                    nvisited++;
+
+            }
+
+            // The traversal must reach a good part of the graph.
+            assertTrue(nvisited > g.getVertexCount() / 2);
+
+        }
+
+    }
+
+    /**
+     * Run BFS from the first vertex of the graph.
+     */
+    private IGASState<BFS.VS, BFS.ES, Void> runBFS(final CSRGraph g,
+            final TraversalDirectionEnum dir, final boolean directionOptimizing)
+            throws Exception {
+
+        final CSRGASEngine gasEngine = new CSRGASEngine(2/* nthreads */,
+                directionOptimizing);
+
+        try {
+
+            final IGASContext<BFS.VS, BFS.ES, Void> gasContext = gasEngine
+                    .newGASContext(new CSRGraphAccessor(g), new BFS());
+
+            final IGASState<BFS.VS, BFS.ES, Void> gasState = gasContext
+                    .getGASState();
+
+            gasContext.setTraversalDirection(dir);
+
+            gasState.setFrontier(gasContext, g.getVertex(0));
+
+            gasContext.call();
+
+            final int bottomUpRounds = ((CSRGASContext<BFS.VS, BFS.ES, Void>) gasContext)
+                    .getBottomUpRounds();
+
+            if (directionOptimizing) {
+                assertTrue(bottomUpRounds > 0);
+            } else {
+                assertEquals(0, bottomUpRounds);
+            }
+
+            return gasState;
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * Generate a random directed graph.
+     */
+    private CSRGraph newRandomGraph(final int nvertices, final int nedges,
+            final long seed) {
+
+        final ValueFactory vf = new ValueFactoryImpl();
+
+        final Random r = new Random(seed);
+
+        final URI p = vf.createURI("http://www.bigdata.com/p");
+
+        final URI[] v = new URI[nvertices];
+
+        for (int i = 0; i < nvertices; i++) {
+
+            v[i] = vf.createURI("http://www.bigdata.com/v" + i);
+
+        }
+
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+
+        for (int i = 0; i < nedges; i++) {
+
+            builder.add(vf.createStatement(v[r.nextInt(nvertices)], p,
+                    v[r.nextInt(nvertices)]));
+
+        }
+
+        return builder.build();
+
+    }
+
+    /**
+     * SSSP over a snapshot of all link types has the same results as SSSP
+     * over the SAIL.
+     */
+    public void testSSSP() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGASEngine gasEngine = new CSRGASEngine(1/* nthreads */);
+
+        try {
+
+            final IGASContext<SSSP.VS, SSSP.ES, Integer> gasContext = gasEngine
+                    .newGASContext(new CSRGraphAccessor(newGraph()), new SSSP());
+
+            final IGASState<SSSP.VS, SSSP.ES, Integer> gasState = gasContext
+                    .getGASState();
+
+            // Initialize the froniter.
+            gasState.setFrontier(gasContext, p.getMike());
+
+            // Converge.
+            gasContext.call();
+
+            assertEquals(0.0, gasState.getState(p.getMike()).dist());
+
+            assertEquals(1.0, gasState.getState(p.getFoafPerson()).dist());
+
+            assertEquals(1.0, gasState.getState(p.getBryan()).dist());
+
+            assertEquals(2.0, gasState.getState(p.getMartyn()).dist());
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+}
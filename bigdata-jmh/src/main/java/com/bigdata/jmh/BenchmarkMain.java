@@ -0,0 +1,93 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point for the benchmarks jar. This delegates to the JMH command line
+ * runner, but defaults the result format to JSON so that the results of two
+ * releases can be compared with {@link CompareResults}. The defaults are only
+ * applied when the caller does not specify <code>-rf</code> or
+ * <code>-rff</code>, and nothing is changed when listing or describing the
+ * benchmarks.
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar [jmh options] [benchmark regexp...]
+ * </pre>
+ */
+public class BenchmarkMain {
+
+    /**
+     * The default results file.
+     */
+    public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    public static void main(final String[] args) throws Exception {
+
+        final List<String> argList = new ArrayList<String>(Arrays.asList(args));
+
+        boolean rf = false, rff = false, info = false;
+
+        for (String s : argList) {
+
+            if (s.equals("-rf"))
+                rf = true;
+            else if (s.equals("-rff"))
+                rff = true;
+            else if (s.equals("-l") || s.equals("-lp") || s.equals("-h")
+                    || s.equals("-lprof") || s.equals("-lrf"))
+                info = true;
+
+        }
+
+        if (!info) {
+
+            if (!rf) {
+                argList.add(0, "json");
+                argList.add(0, "-rf");
+            }
+
+            if (!rff) {
+                final File file = new File(DEFAULT_RESULT_FILE);
+                if (file.getParentFile() != null)
+                    file.getParentFile().mkdirs();
+                argList.add(0, file.getPath());
+                argList.add(0, "-rff");
+            }
+
+        }
+
+        org.openjdk.jmh.Main.main(argList.toArray(new String[argList.size()]));
+
+    }
+
+}
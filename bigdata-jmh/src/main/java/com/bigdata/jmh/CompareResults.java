@@ -0,0 +1,226 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Utility compares two JMH JSON result files (for example, the results for
+ * the last release and the results for a candidate build) and reports the
+ * relative change in the score of each benchmark which appears in both files.
+ * A benchmark is identified by its name, mode, and parameters.
+ * <p>
+ * For throughput modes a higher score is better. For all other modes (average
+ * time, sample time, single shot) a lower score is better. A change which is
+ * worse than the threshold is reported as a regression and causes a non-zero
+ * exit status.
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar com.bigdata.jmh.CompareResults baseline.json candidate.json [thresholdPercent]
+ * </pre>
+ */
+public class CompareResults {
+
+    /**
+     * The default threshold (percent) for reporting a regression.
+     */
+    public static final double DEFAULT_THRESHOLD = 10d;
+
+    /**
+     * A benchmark score.
+     */
+    static class Score {
+
+        final String mode;
+
+        final double score;
+
+        final String unit;
+
+        Score(final String mode, final double score, final String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+        }
+
+    }
+
+    /**
+     * Read a JMH JSON result file.
+     * 
+     * @return The scores, keyed by benchmark name, mode, and parameters.
+     */
+    static Map<String, Score> read(final File file) throws IOException {
+
+        final JsonNode root = new ObjectMapper().readTree(file);
+
+        if (root == null || !root.isArray())
+            throw new IOException("Not a JMH JSON result file: " + file);
+
+        final Map<String, Score> map = new LinkedHashMap<String, Score>();
+
+        for (JsonNode result : root) {
+
+            final String mode = result.path("mode").asText();
+
+            final StringBuilder key = new StringBuilder();
+
+            key.append(result.path("benchmark").asText());
+
+            key.append(" [").append(mode);
+
+            final JsonNode params = result.path("params");
+
+            if (params.isObject()) {
+
+                // Note: Sorted for a stable key.
+                final Map<String, String> sorted = new TreeMap<String, String>();
+
+                final Iterator<Map.Entry<String, JsonNode>> itr = params
+                        .fields();
+
+                while (itr.hasNext()) {
+                    final Map.Entry<String, JsonNode> e = itr.next();
+                    sorted.put(e.getKey(), e.getValue().asText());
+                }
+
+                for (Map.Entry<String, String> e : sorted.entrySet()) {
+                    key.append(", ").append(e.getKey()).append('=')
+                            .append(e.getValue());
+                }
+
+            }
+
+            key.append("]");
+
+            final JsonNode metric = result.path("primaryMetric");
+
+            map.put(key.toString(), new Score(mode, metric.path("score")
+                    .asDouble(), metric.path("scoreUnit").asText()));
+
+        }
+
+        return map;
+
+    }
+
+    /**
+     * Return the change from the baseline to the candidate as a percentage,
+     * where a positive value is an improvement and a negative value is a
+     * regression.
+     */
+    static double improvement(final Score baseline, final Score candidate) {
+
+        if (baseline.score == 0d)
+            return 0d;
+
+        final double delta = (candidate.score - baseline.score)
+                / baseline.score * 100d;
+
+        return "thrpt".equals(baseline.mode) ? delta : -delta;
+
+    }
+
+    /**
+     * @param args
+     *            <code>baseline.json candidate.json [thresholdPercent]</code>
+     */
+    public static void main(final String[] args) throws IOException {
+
+        if (args.length < 2 || args.length > 3) {
+
+            System.err.println("usage: baseline.json candidate.json [thresholdPercent]");
+
+            System.exit(1);
+
+        }
+
+        final Map<String, Score> baseline = read(new File(args[0]));
+
+        final Map<String, Score> candidate = read(new File(args[1]));
+
+        final double threshold = args.length == 3 ? Double.parseDouble(args[2])
+                : DEFAULT_THRESHOLD;
+
+        int nregressions = 0;
+
+        for (Map.Entry<String, Score> e : candidate.entrySet()) {
+
+            final Score b = baseline.get(e.getKey());
+
+            final Score c = e.getValue();
+
+            if (b == null) {
+
+                System.out.println(String.format("%-80s %14s %14.3f %-10s (new)",
+                        e.getKey(), "", c.score, c.unit));
+
+                continue;
+
+            }
+
+            final double change = improvement(b, c);
+
+            final boolean regression = change < -threshold;
+
+            if (regression)
+                nregressions++;
+
+            System.out.println(String.format("%-80s %14.3f %14.3f %-10s %+7.1f%%%s",
+                    e.getKey(), b.score, c.score, c.unit, change,
+                    regression ? " REGRESSION" : ""));
+
+        }
+
+        for (String key : baseline.keySet()) {
+
+            if (!candidate.containsKey(key))
+                System.out.println(String.format("%-80s (removed)", key));
+
+        }
+
+        if (nregressions > 0) {
+
+            System.out.println(nregressions + " regression(s) worse than "
+                    + threshold + "%");
+
+            System.exit(2);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,317 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh.bop;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.join.HTreeHashJoinAnnotations;
+import com.bigdata.bop.join.HTreeHashJoinUtility;
+import com.bigdata.bop.join.HashJoinAnnotations;
+import com.bigdata.bop.join.IHashJoinUtility;
+import com.bigdata.bop.join.JVMHashJoinUtility;
+import com.bigdata.bop.join.JoinAnnotations;
+import com.bigdata.bop.join.JoinTypeEnum;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.relation.accesspath.IBuffer;
+import com.bigdata.rwstore.sector.MemoryManager;
+import com.bigdata.striterator.Chunkerator;
+
+/**
+ * Build and probe of the {@link JVMHashJoinUtility} (managed object heap)
+ * versus the {@link HTreeHashJoinUtility} (native heap) for a required join on
+ * one variable. The right solutions are buffered on the hash index (build) and
+ * the left solutions are then joined against it (probe).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HashJoinBenchmark {
+
+    @Param({ "JVM", "HTree" })
+    public String impl;
+
+    /**
+     * The #of solutions in the hash index (right).
+     */
+    @Param({ "100000" })
+    public int buildSize;
+
+    /**
+     * The #of solutions probed against the hash index (left).
+     */
+    @Param({ "100000" })
+    public int probeSize;
+
+    private String namespace;
+
+    private BigdataValueFactory valueFactory;
+
+    private MemoryManager mmgr;
+
+    private PipelineOp op;
+
+    private IBindingSet[] left;
+
+    private IBindingSet[] right;
+
+    /**
+     * The hash index for the current invocation.
+     */
+    private IHashJoinUtility state;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        namespace = "jmh-" + UUID.randomUUID();
+
+        valueFactory = BigdataValueFactoryImpl.getInstance(namespace);
+
+        if ("HTree".equals(impl)) {
+
+            mmgr = new MemoryManager(DirectBufferPool.INSTANCE);
+
+        } else if (!"JVM".equals(impl)) {
+
+            throw new IllegalArgumentException("impl=" + impl);
+
+        }
+
+        final IVariable<?> x = Var.var("x");
+        final IVariable<?> y = Var.var("y");
+        final IVariable<?> z = Var.var("z");
+
+        op = new MockPipelineOp(BOp.NOARGS,//
+                new NV(HTreeHashJoinAnnotations.RELATION_NAME,
+                        new String[] { namespace }),//
+                new NV(HashJoinAnnotations.JOIN_VARS,
+                        new IVariable[] { x }),//
+                new NV(JoinAnnotations.SELECT, 
+                        new IVariable[] { x, y, z })//
+        );
+
+        final Random r = new Random(13L);
+
+        // Join variable values overlap for about 1/2 of the left solutions.
+        final int nkeys = buildSize;
+
+        right = new IBindingSet[buildSize];
+
+        for (int i = 0; i < buildSize; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            bset.set(x, new Constant<IV>(new TermId(VTE.URI,
+                    1L + r.nextInt(nkeys))));
+
+            bset.set(y, new Constant<IV>(new TermId(VTE.URI, 1L + i)));
+
+            right[i] = bset;
+
+        }
+
+        left = new IBindingSet[probeSize];
+
+        for (int i = 0; i < probeSize; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            bset.set(x, new Constant<IV>(new TermId(VTE.URI,
+                    1L + r.nextInt(nkeys * 2))));
+
+            bset.set(z, new Constant<IV>(new TermId(VTE.LITERAL, 1L + i)));
+
+            left[i] = bset;
+
+        }
+
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        if (mmgr != null) {
+
+            mmgr.clear();
+
+            mmgr = null;
+
+        }
+
+        valueFactory.remove();
+
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseState() {
+
+        if (state != null) {
+
+            state.release();
+
+            state = null;
+
+        }
+
+    }
+
+    private IHashJoinUtility newState() {
+
+        if (mmgr != null)
+            return new HTreeHashJoinUtility(mmgr, op, JoinTypeEnum.Normal);
+
+        return new JVMHashJoinUtility(op, JoinTypeEnum.Normal);
+
+    }
+
+    /**
+     * Build the hash index.
+     */
+    @Benchmark
+    public long build() {
+
+        state = newState();
+
+        return state.acceptSolutions(new Chunkerator<IBindingSet>(
+                Arrays.asList(right).iterator(), 100/* chunkSize */,
+                IBindingSet.class), new BOpStats());
+
+    }
+
+    /**
+     * Build the hash index and then probe it with the left solutions.
+     * 
+     * @return The #of solutions which joined.
+     */
+    @Benchmark
+    public long buildAndProbe() {
+
+        state = newState();
+
+        state.acceptSolutions(new Chunkerator<IBindingSet>(
+                Arrays.asList(right).iterator(), 100/* chunkSize */,
+                IBindingSet.class), new BOpStats());
+
+        final CountingBuffer out = new CountingBuffer();
+
+        state.hashJoin(new Chunkerator<IBindingSet>(
+                Arrays.asList(left).iterator(), 100/* chunkSize */,
+                IBindingSet.class), null/* stats */, out);
+
+        return out.flush();
+
+    }
+
+    /**
+     * Sink which counts the solutions written onto it.
+     */
+    private static class CountingBuffer implements IBuffer<IBindingSet> {
+
+        private long n = 0L;
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return true;
+        }
+
+        @Override
+        public void add(final IBindingSet e) {
+            n++;
+        }
+
+        @Override
+        public long flush() {
+            return n;
+        }
+
+        @Override
+        public void reset() {
+            n = 0L;
+        }
+
+    }
+
+    private static class MockPipelineOp extends PipelineOp {
+
+        private static final long serialVersionUID = 1L;
+
+        public MockPipelineOp(final BOp[] args, final NV... anns) {
+
+            super(args, NV.asMap(anns));
+
+        }
+
+        @Override
+        public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
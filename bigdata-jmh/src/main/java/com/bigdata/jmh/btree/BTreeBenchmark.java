@@ -0,0 +1,238 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh.btree;
+
+import java.io.File;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.bigdata.btree.AbstractBTree;
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.IndexSegment;
+import com.bigdata.btree.IndexSegmentBuilder;
+import com.bigdata.btree.IndexSegmentStore;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Point lookups and key-range scans against a {@link BTree} and against an
+ * {@link IndexSegment} built from the same data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BTreeBenchmark {
+
+    /**
+     * The #of keys in the index.
+     */
+    @Param({ "1000000" })
+    public int entryCount;
+
+    /**
+     * The branching factor.
+     */
+    @Param({ "64", "256" })
+    public int branchingFactor;
+
+    /**
+     * Either <code>BTree</code> or <code>IndexSegment</code>.
+     */
+    @Param({ "BTree", "IndexSegment" })
+    public String index;
+
+    /**
+     * The #of tuples visited by each key-range scan.
+     */
+    private static final int RANGE = 100;
+
+    private BTree btree;
+
+    private IndexSegment seg;
+
+    private AbstractBTree ndx;
+
+    /**
+     * The keys in a random order.
+     */
+    private byte[][] keys;
+
+    private int next = 0;
+
+    private final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(branchingFactor);
+
+        btree = BTree.create(new SimpleMemoryRawStore(), md);
+
+        keys = new byte[entryCount][];
+
+        for (int i = 0; i < entryCount; i++) {
+
+            keys[i] = keyBuilder.reset().append((long) i).getKey();
+
+            btree.insert(keys[i], keys[i]);
+
+        }
+
+        if ("IndexSegment".equals(index)) {
+
+            final File outFile = File.createTempFile("jmh", ".seg");
+
+            outFile.delete();
+
+            final IndexSegmentBuilder builder = IndexSegmentBuilder
+                    .newInstance(btree, outFile, outFile.getParentFile(),
+                            true/* compactingMerge */,
+                            System.currentTimeMillis(), null/* fromKey */,
+                            null/* toKey */);
+
+            builder.call();
+
+            seg = new IndexSegmentStore(outFile).loadIndexSegment();
+
+            ndx = seg;
+
+        } else if ("BTree".equals(index)) {
+
+            ndx = btree;
+
+        } else {
+
+            throw new IllegalArgumentException("index=" + index);
+
+        }
+
+        // Shuffle the keys so lookups are not cache friendly.
+        final Random r = new Random(13);
+
+        for (int i = keys.length - 1; i > 0; i--) {
+
+            final int j = r.nextInt(i + 1);
+
+            final byte[] t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+
+        }
+
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        if (seg != null) {
+            seg.getStore().destroy();
+            seg = null;
+        }
+
+        if (btree != null) {
+            btree.getStore().destroy();
+            btree = null;
+        }
+
+        ndx = null;
+
+        keys = null;
+
+    }
+
+    private byte[] nextKey() {
+
+        if (next == keys.length)
+            next = 0;
+
+        return keys[next++];
+
+    }
+
+    @Benchmark
+    public Object lookup() {
+
+        return ndx.lookup(nextKey());
+
+    }
+
+    @Benchmark
+    public boolean contains() {
+
+        return ndx.contains(nextKey());
+
+    }
+
+    /**
+     * Visits {@value #RANGE} tuples starting at a random key (the tail of the
+     * index will visit fewer tuples).
+     */
+    @Benchmark
+    @OperationsPerInvocation(RANGE)
+    public void rangeIterator(final Blackhole bh) {
+
+        final long fromKey = KeyBuilder.decodeLong(nextKey(), 0/* off */);
+
+        final ITupleIterator<?> itr = ndx.rangeIterator(
+                keyBuilder.reset().append(fromKey).getKey(),
+                keyBuilder.reset().append(fromKey + RANGE).getKey());
+
+        while (itr.hasNext()) {
+
+            bh.consume(itr.next().getValue());
+
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh.btree;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Inserts a batch of keys into a new {@link BTree} in either sorted or random
+ * order. The score is reported per inserted tuple.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BTreeInsertBenchmark {
+
+    /**
+     * The #of keys inserted by each invocation.
+     */
+    private static final int BATCH = 100000;
+
+    /**
+     * The branching factor.
+     */
+    @Param({ "64", "256" })
+    public int branchingFactor;
+
+    private byte[][] sortedKeys;
+
+    private byte[][] randomKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        sortedKeys = new byte[BATCH][];
+
+        for (int i = 0; i < BATCH; i++) {
+
+            sortedKeys[i] = keyBuilder.reset().append((long) i).getKey();
+
+        }
+
+        randomKeys = sortedKeys.clone();
+
+        final Random r = new Random(13);
+
+        for (int i = randomKeys.length - 1; i > 0; i--) {
+
+            final int j = r.nextInt(i + 1);
+
+            final byte[] t = randomKeys[i];
+            randomKeys[i] = randomKeys[j];
+            randomKeys[j] = t;
+
+        }
+
+    }
+
+    private BTree newBTree() {
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(branchingFactor);
+
+        return BTree.create(new SimpleMemoryRawStore(), md);
+
+    }
+
+    private long insert(final byte[][] keys) {
+
+        final BTree btree = newBTree();
+
+        try {
+
+            for (byte[] key : keys) {
+
+                btree.insert(key, key);
+
+            }
+
+            return btree.getEntryCount();
+
+        } finally {
+
+            btree.getStore().destroy();
+
+        }
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long insertSorted() {
+
+        return insert(sortedKeys);
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long insertRandom() {
+
+        return insert(randomKeys);
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh.btree;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.btree.raba.codec.CanonicalHuffmanRabaCoder;
+import com.bigdata.btree.raba.codec.FrontCodedRabaCoder.DefaultFrontCodedRabaCoder;
+import com.bigdata.btree.raba.codec.ICodedRaba;
+import com.bigdata.btree.raba.codec.IRabaCoder;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+
+/**
+ * Encode, decode and search of a leaf's worth of keys using the
+ * {@link IRabaCoder}s used for B+Tree nodes and leaves. The keys are sorted
+ * URIs sharing a common prefix, which is typical of the lexicon indices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RabaCoderBenchmark {
+
+    /**
+     * Either <code>FrontCoded</code> or <code>CanonicalHuffman</code>.
+     */
+    @Param({ "FrontCoded", "CanonicalHuffman" })
+    public String coder;
+
+    /**
+     * The #of keys (the branching factor of the leaf).
+     */
+    @Param({ "64", "256" })
+    public int size;
+
+    private IRabaCoder rabaCoder;
+
+    private ReadOnlyKeysRaba keys;
+
+    private AbstractFixedByteArrayBuffer encoded;
+
+    private final DataOutputBuffer buf = new DataOutputBuffer();
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        if ("FrontCoded".equals(coder)) {
+            rabaCoder = DefaultFrontCodedRabaCoder.INSTANCE;
+        } else if ("CanonicalHuffman".equals(coder)) {
+            rabaCoder = CanonicalHuffmanRabaCoder.INSTANCE;
+        } else {
+            throw new IllegalArgumentException("coder=" + coder);
+        }
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        final byte[][] a = new byte[size][];
+
+        for (int i = 0; i < size; i++) {
+
+            a[i] = keyBuilder.reset()
+                    .appendASCII(String.format(
+                            "http://www.example.org/resource/%08d", i * 7))
+                    .getKey();
+
+        }
+
+        keys = new ReadOnlyKeysRaba(a);
+
+        // Note: Not [buf] since that buffer is reused by encode().
+        encoded = rabaCoder.encode(keys, new DataOutputBuffer());
+
+    }
+
+    private byte[] nextKey() {
+
+        if (next == size)
+            next = 0;
+
+        return keys.get(next++);
+
+    }
+
+    @Benchmark
+    public AbstractFixedByteArrayBuffer encode() {
+
+        return rabaCoder.encode(keys, buf.reset());
+
+    }
+
+    /**
+     * Decode the coded keys and materialize each key.
+     */
+    @Benchmark
+    public void decode(final Blackhole bh) {
+
+        final ICodedRaba decoded = rabaCoder.decode(encoded);
+
+        final int n = decoded.size();
+
+        for (int i = 0; i < n; i++) {
+
+            bh.consume(decoded.get(i));
+
+        }
+
+    }
+
+    /**
+     * Binary search of the coded keys.
+     */
+    @Benchmark
+    public int search() {
+
+        return rabaCoder.decode(encoded).search(nextKey());
+
+    }
+
+}
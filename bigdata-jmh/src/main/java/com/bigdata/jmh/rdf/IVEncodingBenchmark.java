@@ -0,0 +1,223 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh.rdf;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.lexicon.LexiconKeyBuilder;
+import com.bigdata.rdf.lexicon.Term2IdTupleSerializer;
+
+/**
+ * {@link KeyBuilder} primitives, {@link IV} encode/decode for statement index
+ * keys, and {@link LexiconKeyBuilder} sort keys for RDF {@link Value}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IVEncodingBenchmark {
+
+    private static final int N = 1024;
+
+    private IKeyBuilder keyBuilder;
+
+    private IKeyBuilder unicodeKeyBuilder;
+
+    private LexiconKeyBuilder lexiconKeyBuilder;
+
+    private String[] strings;
+
+    /**
+     * Triples of {@link IV}s in SPO order.
+     */
+    @SuppressWarnings("rawtypes")
+    private IV[][] spos;
+
+    /**
+     * The encoded statement index keys for {@link #spos}.
+     */
+    private byte[][] spoKeys;
+
+    private Value[] values;
+
+    private int next = 0;
+
+    @SuppressWarnings("rawtypes")
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        keyBuilder = KeyBuilder.newInstance();
+
+        unicodeKeyBuilder = KeyBuilder.newUnicodeInstance();
+
+        lexiconKeyBuilder = new Term2IdTupleSerializer(new Properties())
+                .getLexiconKeyBuilder();
+
+        strings = new String[N];
+
+        spos = new IV[N][];
+
+        spoKeys = new byte[N][];
+
+        values = new Value[N];
+
+        for (int i = 0; i < N; i++) {
+
+            strings[i] = "R\u00e9sum\u00e9 of item " + i;
+
+            final IV s = new TermId(VTE.URI, 1000L + i);
+
+            final IV p = new TermId(VTE.URI, 10L + (i % 7));
+
+            final IV o;
+            switch (i % 4) {
+            case 0:
+                o = new TermId(VTE.LITERAL, 5000L + i);
+                break;
+            case 1:
+                o = new XSDNumericIV(i);
+                break;
+            case 2:
+                o = new XSDNumericIV((long) i << 20);
+                break;
+            default:
+                o = new XSDNumericIV(i / 3d);
+                break;
+            }
+
+            spos[i] = new IV[] { s, p, o };
+
+            spoKeys[i] = encode(s, p, o);
+
+            switch (i % 4) {
+            case 0:
+                values[i] = new URIImpl("http://www.example.org/resource/" + i);
+                break;
+            case 1:
+                values[i] = new LiteralImpl("plain literal " + i);
+                break;
+            case 2:
+                values[i] = new LiteralImpl("language literal " + i, "en");
+                break;
+            default:
+                values[i] = new LiteralImpl(Integer.toString(i), XMLSchema.INT);
+                break;
+            }
+
+        }
+
+    }
+
+    private int next() {
+
+        if (next == N)
+            next = 0;
+
+        return next++;
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private byte[] encode(final IV s, final IV p, final IV o) {
+
+        keyBuilder.reset();
+
+        IVUtility.encode(keyBuilder, s);
+        IVUtility.encode(keyBuilder, p);
+        IVUtility.encode(keyBuilder, o);
+
+        return keyBuilder.getKey();
+
+    }
+
+    @Benchmark
+    public byte[] appendLong() {
+
+        return keyBuilder.reset().append((long) next() << 32).getKey();
+
+    }
+
+    @Benchmark
+    public byte[] appendUnicode() {
+
+        return unicodeKeyBuilder.reset().append(strings[next()]).getKey();
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Benchmark
+    public byte[] encodeStatementKey() {
+
+        final IV[] spo = spos[next()];
+
+        return encode(spo[0], spo[1], spo[2]);
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Benchmark
+    public IV[] decodeStatementKey() {
+
+        return IVUtility.decode(spoKeys[next()], 3/* numTerms */);
+
+    }
+
+    @Benchmark
+    public byte[] lexiconKey() {
+
+        return lexiconKeyBuilder.value2Key(values[next()]);
+
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.jmh.rdf;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.encoder.IVBindingSetEncoder;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetDecoder;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+
+/**
+ * Round trips of solutions through the {@link IVBindingSetEncoder} (used by
+ * the hash indices) and the {@link IVSolutionSetEncoder} and
+ * {@link IVSolutionSetDecoder} (used for solution sets on the native heap).
+ * The score is reported per solution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SolutionEncoderBenchmark {
+
+    /**
+     * The #of solutions in each round trip.
+     */
+    private static final int N = 1000;
+
+    private BigdataValueFactory valueFactory;
+
+    private IBindingSet[] solutions;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        valueFactory = BigdataValueFactoryImpl.getInstance("jmh-"
+                + UUID.randomUUID());
+
+        final IVariable<?> x = Var.var("x");
+        final IVariable<?> y = Var.var("y");
+        final IVariable<?> z = Var.var("z");
+        final IVariable<?> w = Var.var("w");
+
+        solutions = new IBindingSet[N];
+
+        for (int i = 0; i < N; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            bset.set(x, new Constant<IV>(new TermId(VTE.URI, 1000L + i)));
+
+            bset.set(y, new Constant<IV>(new TermId(VTE.URI, 10L + (i % 7))));
+
+            bset.set(z, new Constant<IV>(new XSDNumericIV(i)));
+
+            // Leave [w] unbound in some solutions.
+            if (i % 3 != 0)
+                bset.set(w, new Constant<IV>(new TermId(VTE.LITERAL,
+                        5000L + i)));
+
+            solutions[i] = bset;
+
+        }
+
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        valueFactory.remove();
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void ivBindingSetEncoder(final Blackhole bh) {
+
+        final IVBindingSetEncoder encoder = new IVBindingSetEncoder(
+                valueFactory, false/* filter */);
+
+        final byte[][] a = new byte[N][];
+
+        for (int i = 0; i < N; i++) {
+
+            a[i] = encoder.encodeSolution(solutions[i]);
+
+        }
+
+        for (int i = 0; i < N; i++) {
+
+            bh.consume(encoder.decodeSolution(a[i], 0/* off */, a[i].length,
+                    false/* resolveCachedValues */));
+
+        }
+
+        encoder.release();
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void ivSolutionSetEncoder(final Blackhole bh) {
+
+        final IVSolutionSetEncoder encoder = new IVSolutionSetEncoder();
+
+        final IVSolutionSetDecoder decoder = new IVSolutionSetDecoder();
+
+        final byte[][] a = new byte[N][];
+
+        for (int i = 0; i < N; i++) {
+
+            a[i] = encoder.encodeSolution(solutions[i]);
+
+        }
+
+        // Note: Solutions MUST be decoded in the encode order.
+        for (int i = 0; i < N; i++) {
+
+            bh.consume(decoder.decodeSolution(a[i], 0/* off */, a[i].length,
+                    false/* resolveCachedValues */));
+
+        }
+
+        encoder.release();
+
+        decoder.release();
+
+    }
+
+}
@@ -0,0 +1,325 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.lexicon;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounter;
+import com.bigdata.journal.TimestampUtility;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.AbstractTripleStoreTestCase;
+
+/**
+ * Test suite for the {@link StripedTermCache}.
+ */
+public class TestStripedTermCache extends AbstractTripleStoreTestCase {
+
+    public TestStripedTermCache() {
+    }
+
+    public TestStripedTermCache(String name) {
+        super(name);
+    }
+
+    private BigdataValueFactory f;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        f = BigdataValueFactoryImpl.getInstance(getName());
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (f != null) {
+            f.remove();
+            f = null;
+        }
+
+        super.tearDown();
+
+    }
+
+    private TermId<BigdataURI> iv(final long termId) {
+
+        return new TermId<BigdataURI>(VTE.URI, termId);
+
+    }
+
+    private BigdataURI uri(final TermId<BigdataURI> iv) {
+
+        final BigdataURI v = f.createURI("http://www.bigdata.com/"
+                + iv.getTermId());
+
+        v.setIV(iv);
+
+        return v;
+
+    }
+
+    /**
+     * Basic get / putIfAbsent / clear semantics.
+     */
+    public void test_getPutClear() {
+
+        final StripedTermCache<IV<?, ?>, BigdataValue> cache = new StripedTermCache<IV<?, ?>, BigdataValue>(
+                100/* capacity */, 4/* concurrencyLevel */);
+
+        final TermId<BigdataURI> iv1 = iv(1);
+        final BigdataURI v1 = uri(iv1);
+
+        assertNull(cache.get(iv1));
+        assertNull(cache.putIfAbsent(iv1, v1));
+        assertEquals(1, cache.size());
+
+        // an equal key finds the cached value.
+        assertSame(v1, cache.get(iv(1)));
+        assertSame(v1, cache.putIfAbsent(iv(1), uri(iv(1))));
+
+        assertEquals(1L, cache.getMissCount());
+        assertEquals(1L, cache.getHitCount());
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get(iv1));
+
+    }
+
+    /**
+     * The key entered into the cache does not pin the value cached on the
+     * caller's {@link IV}.
+     */
+    public void test_keyIsCloned() {
+
+        final StripedTermCache<IV<?, ?>, BigdataValue> cache = new StripedTermCache<IV<?, ?>, BigdataValue>(
+                100/* capacity */, 4/* concurrencyLevel */);
+
+        final TermId<BigdataURI> iv1 = iv(1);
+        final BigdataURI v1 = uri(iv1);
+        iv1.setValue(v1);
+
+        cache.putIfAbsent(iv1, v1);
+
+        // the caller's IV is unchanged.
+        assertTrue(iv1.hasValue());
+
+        assertSame(v1, cache.get(iv1));
+
+    }
+
+    /**
+     * Once the cache is full, a scan over terms which are used once does not
+     * evict the terms which are used frequently (other than the few terms
+     * whose frequency is over-estimated by the sketch), but a term which is
+     * used more often than the cached terms is admitted.
+     */
+    public void test_scanResistance() {
+
+        final int capacity = 1024;
+
+        final StripedTermCache<IV<?, ?>, BigdataValue> cache = new StripedTermCache<IV<?, ?>, BigdataValue>(
+                capacity, 1/* concurrencyLevel */);
+
+        // fill the cache with hot terms.
+        for (long i = 0; i < capacity; i++) {
+
+            final TermId<BigdataURI> iv = iv(i);
+
+            for (int j = 0; j < 4; j++) {
+                cache.get(iv);
+            }
+
+            cache.putIfAbsent(iv, uri(iv));
+
+        }
+
+        assertEquals(capacity, cache.size());
+
+        // a scan over cold terms.
+        for (long i = 100000; i < 102000; i++) {
+
+            final TermId<BigdataURI> iv = iv(i);
+
+            if (cache.get(iv) == null) {
+                cache.putIfAbsent(iv, uri(iv));
+            }
+
+        }
+
+        assertEquals(capacity, cache.size());
+
+        final long evicted = cache.getEvictionCount();
+
+        assertTrue("evicted=" + evicted, evicted < capacity / 20);
+
+        // a term which becomes popular is admitted, evicting a cached term.
+        final TermId<BigdataURI> hot = iv(200000);
+
+        for (int j = 0; j < 15; j++) {
+            cache.get(hot);
+        }
+
+        assertNull(cache.putIfAbsent(hot, uri(hot)));
+
+        assertNotNull(cache.get(hot));
+
+        assertEquals(capacity, cache.size());
+
+        assertEquals(evicted + 1, cache.getEvictionCount());
+
+    }
+
+    /**
+     * Verify the performance counters.
+     */
+    public void test_counters() {
+
+        final StripedTermCache<IV<?, ?>, BigdataValue> cache = new StripedTermCache<IV<?, ?>, BigdataValue>(
+                100/* capacity */, 4/* concurrencyLevel */);
+
+        final TermId<BigdataURI> iv1 = iv(1);
+
+        cache.get(iv1);
+        cache.putIfAbsent(iv1, uri(iv1));
+        cache.get(iv1);
+
+        final CounterSet counters = cache.getCounters();
+
+        assertEquals(100, value(counters, "capacity"));
+        assertEquals(1, value(counters, "size"));
+        assertEquals(1L, value(counters, "hits"));
+        assertEquals(1L, value(counters, "misses"));
+        assertEquals(.5d, value(counters, "hitRatio"));
+
+    }
+
+    private static Object value(final CounterSet counters, final String path) {
+
+        final ICounter<?> c = (ICounter<?>) counters.getPath(path);
+
+        assertNotNull(path, c);
+
+        return c.getValue();
+
+    }
+
+    /**
+     * Verify that the option is used for the term caches of the lexicon and
+     * that the counters of the caches shared by the read-only views are
+     * reported.
+     */
+    public void test_lexicon() {
+
+        final Properties properties = getProperties();
+
+        properties.setProperty(AbstractTripleStore.Options.TERM_CACHE_STRIPED,
+                "true");
+
+        AbstractTripleStore store = getStore(properties);
+
+        try {
+
+            final BigdataValueFactory vf = store.getValueFactory();
+
+            final BigdataValue[] a = new BigdataValue[] {
+                    vf.createURI("http://www.bigdata.com/a"),
+                    vf.createURI("http://www.bigdata.com/b"),
+                    vf.createLiteral("c") };
+
+            store.getLexiconRelation().addTerms(a, a.length, false/* readOnly */);
+
+            store.commit();
+
+            final long commitTime = store.getIndexManager().getLastCommitTime();
+
+            final AbstractTripleStore view = (AbstractTripleStore) store
+                    .getIndexManager()
+                    .getResourceLocator()
+                    .locate(store.getNamespace(),
+                            TimestampUtility.asHistoricalRead(commitTime));
+
+            final LexiconRelation lex = view.getLexiconRelation();
+
+            final IV<?, ?>[] ivs = new IV[a.length];
+
+            for (int i = 0; i < a.length; i++) {
+
+                ivs[i] = a[i].getIV();
+
+            }
+
+            for (int pass = 0; pass < 2; pass++) {
+
+                final Map<IV<?, ?>, BigdataValue> m = lex.getTerms(Arrays
+                        .asList(ivs));
+
+                for (int i = 0; i < a.length; i++) {
+
+                    assertEquals(a[i], m.get(ivs[i]));
+
+                }
+
+            }
+
+            final CounterSet counters = LexiconRelation.getTermCacheCounters();
+
+            final String path = lex.getNamespace() + "@" + commitTime;
+
+            assertNotNull(path, counters.getPath(path));
+
+            // the 2nd pass was answered from the cache.
+            assertTrue(((Long) value(counters, path + "/hits")) >= a.length);
+
+            // the striped cache reports the admission counters.
+            assertNotNull(counters.getPath(path + "/admitted"));
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+}
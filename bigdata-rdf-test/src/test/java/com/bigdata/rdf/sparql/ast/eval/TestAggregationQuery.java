@@ -27,9 +27,14 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.eval;
 
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.solutions.AbstractAggregationTestCase;
 import com.bigdata.bop.solutions.GroupByRewriter;
 import com.bigdata.bop.solutions.GroupByState;
+import com.bigdata.bop.solutions.NativeHeapGroupByOp;
+import com.bigdata.bop.solutions.PipelinedAggregationOp;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
 
 /**
  * Data driven test suite for aggregation queries.
@@ -95,6 +100,118 @@ public class TestAggregationQuery extends AbstractDataDrivenSPARQLTestCase {
         
     }
 
+    /**
+     * Variant of {@link #test_sparql11_having_01()} in analytic query mode.
+     * The GROUP BY is evaluated by the {@link NativeHeapGroupByOp} rather than
+     * the {@link PipelinedAggregationOp}, which keeps every group on the JVM
+     * heap.
+     */
+    public void test_sparql11_having_01_analytic() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "sparql11-having-01-analytic", // testURI,
+                "sparql11-having-01-analytic.rq",// queryFileURL
+                "sparql11-having-01.ttl",// dataFileURL
+                "sparql11-having-01.srx"// resultFileURL
+                ).runTest();
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        assertTrue(BOpUtility.visitAll(queryPlan, NativeHeapGroupByOp.class)
+                .hasNext());
+
+        assertFalse(BOpUtility.visitAll(queryPlan,
+                PipelinedAggregationOp.class).hasNext());
+
+    }
+
+    /**
+     * <pre>
+     * PREFIX : <http://example/>
+     * SELECT ?org (COUNT(?book) AS ?count)
+     * WHERE {
+     *   hint:Query hint:analytic "true" .
+     *   ?org :affiliates ?auth .
+     *   ?auth :writesBook ?book .
+     * }
+     * GROUP BY ?org
+     * </pre>
+     * 
+     * A simple COUNT with a GROUP BY in analytic query mode. The number of
+     * groups may be arbitrarily large, so the groups are aggregated on the
+     * native heap by the {@link NativeHeapGroupByOp}.
+     */
+    public void test_count_groupBy_analytic() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "count-groupBy-analytic", // testURI,
+                "count-groupBy-analytic.rq",// queryFileURL
+                "sparql11-having-01.ttl",// dataFileURL
+                "count-groupBy-analytic.srx"// resultFileURL
+                ).runTest();
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        assertTrue(BOpUtility.visitAll(queryPlan, NativeHeapGroupByOp.class)
+                .hasNext());
+
+        assertFalse(BOpUtility.visitAll(queryPlan,
+                PipelinedAggregationOp.class).hasNext());
+
+    }
+
+    /**
+     * <pre>
+     * PREFIX : <http://example/>
+     * SELECT ?org (COUNT(?book) AS ?count)
+     * WHERE {
+     *   hint:Query hint:pipelinedAggregationMaxParallel "4" .
+     *   ?org :affiliates ?auth .
+     *   ?auth :writesBook ?book .
+     * }
+     * GROUP BY ?org
+     * </pre>
+     * 
+     * The COUNT is decomposable, so the {@link PipelinedAggregationOp} runs
+     * with the maximum parallelism given by the query hint.
+     */
+    public void test_count_groupBy_maxParallel() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "count-groupBy-maxParallel", // testURI,
+                "count-groupBy-maxParallel.rq",// queryFileURL
+                "sparql11-having-01.ttl",// dataFileURL
+                "count-groupBy-analytic.srx"// resultFileURL
+                ).runTest();
+
+        final PipelinedAggregationOp op = BOpUtility.getOnly(
+                astContainer.getQueryPlan(), PipelinedAggregationOp.class);
+
+        assertEquals(4, op.getMaxParallel());
+
+    }
+
+    /**
+     * Variant of {@link #test_sparql11_having_01_analytic()} using a DISTINCT
+     * aggregate, which can not be pipelined. The GROUP BY is evaluated by the
+     * {@link NativeHeapGroupByOp}.
+     */
+    public void test_sparql11_having_01_distinct_analytic() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "sparql11-having-01-distinct-analytic", // testURI,
+                "sparql11-having-01-distinct-analytic.rq",// queryFileURL
+                "sparql11-having-01.ttl",// dataFileURL
+                "sparql11-having-01.srx"// resultFileURL
+                ).runTest();
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        assertTrue(BOpUtility.visitAll(queryPlan, NativeHeapGroupByOp.class)
+                .hasNext());
+
+    }
+
     /**
      * <pre>
      * SELECT (COUNT(?s) AS ?size)
@@ -173,6 +173,9 @@ public class TestAll extends TestCase {
         // Test suite for embedded bigdata query hints.
         suite.addTestSuite(TestQueryHints.class);
 
+        // Test suite for the cache of optimized query plans.
+        suite.addTestSuite(TestQueryPlanCache.class);
+
         // Test suite with explicitly enabled hash joins.
         suite.addTestSuite(TestHashJoin.class);
 
@@ -209,6 +212,9 @@ public class TestAll extends TestCase {
         // @see #1035 (distinct-term-scan optimizer)
         suite.addTest(TestDistinctTermScanOptimizer.suite());
 
+        // Cyclic BGPs evaluated by a multiway (leapfrog triejoin) join.
+        suite.addTestSuite(TestLeapfrogTriejoin.class);
+
         // SELECT (COUNT(*) as ?count) ?z WHERE {  ?x rdf:type ?z  } GROUP BY ?z
         // @see #1059 (combination of fast-range-count and distinct-term-scan)
         suite.addTest(TestSimpleGroupByAndCountOptimizer.suite());
@@ -1,6 +1,6 @@
 /**
 
-Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
 
 Contact:
      SYSTAP, LLC DBA Blazegraph
@@ -37,6 +37,7 @@ import com.bigdata.bop.IPredicate;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.ap.Predicate;
 import com.bigdata.bop.join.HTreeHashJoinOp;
+import com.bigdata.bop.join.HashJoinOp;
 import com.bigdata.bop.join.JVMHashJoinOp;
 import com.bigdata.htree.HTree;
 import com.bigdata.rdf.internal.IV;
@@ -193,4 +194,159 @@ public class TestHashJoin extends AbstractDataDrivenSPARQLTestCase {
         
     }
 
+    /**
+     * Run the same query with the join key Bloom filter for the hash join
+     * enabled and disabled and verify that both produce the same solutions.
+     * 
+     * @param testURI
+     *            The base name of the query. The query without the Bloom
+     *            filter is <code>testURI-off.rq</code>.
+     * @param hashJoinClass
+     *            The expected hash join operator.
+     * 
+     * @see HashJoinOp.Annotations#BLOOM_FILTER
+     */
+    private void runBloomFilterTest(final String testURI,
+            final Class<?> hashJoinClass) throws Exception {
+
+        final String dataFileURL = "hash-join-bloom.trig";
+
+        final String resultFileURL = testURI + ".srx";
+
+        // With the Bloom filter.
+        assertBloomFilter(new TestHelper(testURI, testURI + ".rq",
+                dataFileURL, resultFileURL).runTest(), hashJoinClass, true);
+
+        // Without the Bloom filter.
+        assertBloomFilter(new TestHelper(testURI + "-off", testURI
+                + "-off.rq", dataFileURL, resultFileURL).runTest(),
+                hashJoinClass, false);
+
+    }
+
+    /**
+     * Verify that the query plan uses the expected hash join and that the
+     * Bloom filter is enabled or disabled for that hash join.
+     */
+    @SuppressWarnings("rawtypes")
+    private void assertBloomFilter(final ASTContainer astContainer,
+            final Class<?> hashJoinClass, final boolean bloomFilter) {
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        final Iterator<HashJoinOp> itr = BOpUtility.visitAll(queryPlan,
+                HashJoinOp.class);
+
+        if (!itr.hasNext()) {
+
+            fail("Expecting a hash join in the query plan: "
+                    + astContainer.toString());
+
+        }
+
+        final HashJoinOp op = itr.next();
+
+        assertEquals(hashJoinClass, op.getClass());
+
+        assertEquals(bloomFilter, op.getProperty(
+                HashJoinOp.Annotations.BLOOM_FILTER,
+                HashJoinOp.Annotations.DEFAULT_BLOOM_FILTER).booleanValue());
+
+        /*
+         * The Bloom filter is not layered onto a predicate with an access path
+         * filter or expander, so make sure that this query would use it.
+         */
+        final IPredicate<?> pred = op.getPredicate();
+
+        assertNull(pred.getProperty(IPredicate.Annotations.ACCESS_PATH_FILTER));
+
+        assertNull(pred
+                .getProperty(IPredicate.Annotations.ACCESS_PATH_EXPANDER));
+
+    }
+
+    /**
+     * <pre>
+     * SELECT ?x ?o
+     * WHERE {
+     *   hint:Query hint:optimizer "None" .
+     *   hint:Query hint:nativeHashJoins "false" .
+     *   GRAPH :g1 {
+     *     ?x rdf:type foaf:Person .
+     *     ?x rdfs:label ?o .
+     *     hint:Prior hint:hashJoin "true" .
+     *   }
+     * }
+     * </pre>
+     * 
+     * The solutions for a JVM hash join are the same with and without the
+     * join key Bloom filter.
+     * <p>
+     * Note: The named graph is given explicitly since the default graph access
+     * path strips off the context position, which disables the Bloom filter.
+     */
+    public void test_hash_join_bloomFilter_01() throws Exception {
+
+        runBloomFilterTest("hash-join-bloom-01", JVMHashJoinOp.class);
+
+    }
+
+    /**
+     * Variant of {@link #test_hash_join_bloomFilter_01()} where we force the
+     * use of the {@link HTree}.
+     */
+    public void test_hash_join_bloomFilter_01b() throws Exception {
+
+        runBloomFilterTest("hash-join-bloom-01b", HTreeHashJoinOp.class);
+
+    }
+
+    /**
+     * <pre>
+     * SELECT ?x ?o
+     * WHERE {
+     *   hint:Query hint:optimizer "None" .
+     *   hint:Query hint:nativeHashJoins "false" .
+     *   GRAPH :g1 {
+     *     ?x rdf:type foaf:Person .
+     *     OPTIONAL {
+     *       ?x rdfs:label ?o .
+     *       hint:Prior hint:hashJoin "true" .
+     *     }
+     *   }
+     * }
+     * </pre>
+     * 
+     * An OPTIONAL hash join. The solution which does not join must still be
+     * reported when the Bloom filter rejects all of its elements.
+     */
+    public void test_hash_join_bloomFilter_optional() throws Exception {
+
+        runBloomFilterTest("hash-join-bloom-02", JVMHashJoinOp.class);
+
+    }
+
+    /**
+     * <pre>
+     * SELECT ?g ?x ?o
+     * WHERE {
+     *   hint:Query hint:optimizer "None" .
+     *   hint:Query hint:nativeHashJoins "false" .
+     *   GRAPH ?g {
+     *     ?x rdf:type foaf:Person .
+     *     ?x rdfs:label ?o .
+     *     hint:Prior hint:hashJoin "true" .
+     *   }
+     * }
+     * </pre>
+     * 
+     * A named graph hash join. The join keys include the context position, so
+     * a label in another named graph must not join.
+     */
+    public void test_hash_join_bloomFilter_quads() throws Exception {
+
+        runBloomFilterTest("hash-join-bloom-03", JVMHashJoinOp.class);
+
+    }
+
 }
@@ -0,0 +1,170 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.util.Properties;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.join.PipelineJoin;
+import com.bigdata.bop.rdf.join.LeapfrogTriejoinOp;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * SPARQL level test suite for the {@link LeapfrogTriejoinOp} and the
+ * {@link QueryHints#LEAPFROG_TRIEJOIN} query hint.
+ */
+public class TestLeapfrogTriejoin extends AbstractDataDrivenSPARQLTestCase {
+
+    public TestLeapfrogTriejoin() {
+    }
+
+    public TestLeapfrogTriejoin(final String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties properties = new Properties(super.getProperties());
+
+        // turn off quads.
+        properties.setProperty(AbstractTripleStore.Options.QUADS, "false");
+
+        // turn on triples
+        properties.setProperty(AbstractTripleStore.Options.TRIPLES_MODE,
+                "true");
+
+        return properties;
+
+    }
+
+    /**
+     * Return the #of {@link LeapfrogTriejoinOp}s in the query plan.
+     */
+    private static int countLeapfrogTriejoins(final TestHelper h) {
+
+        return BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                LeapfrogTriejoinOp.class).size();
+
+    }
+
+    /**
+     * A directed triangle. With only the SPO, POS and OSP indices, one of the
+     * statement patterns must be sorted in memory.
+     * 
+     * <pre>
+     * SELECT ?a ?b ?c WHERE { ?a :p ?b . ?b :p ?c . ?c :p ?a . }
+     * </pre>
+     */
+    public void test_leapfrogTriejoin_triangle() throws Exception {
+
+        final TestHelper h = new TestHelper("leapfrog-triejoin-01",// testURI,
+                "leapfrog-triejoin-01.rq",// queryFileURL
+                "leapfrog-triejoin.ttl",// dataFileURL
+                "leapfrog-triejoin-01.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(1, countLeapfrogTriejoins(h));
+
+        assertEquals(0, BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                PipelineJoin.class).size());
+
+    }
+
+    /**
+     * A directed triangle where the predicate is a variable which is shared
+     * by all three statement patterns.
+     * 
+     * <pre>
+     * SELECT ?a ?b ?c ?p WHERE { ?a ?p ?b . ?b ?p ?c . ?c ?p ?a . }
+     * </pre>
+     */
+    public void test_leapfrogTriejoin_triangle_varPredicate() throws Exception {
+
+        final TestHelper h = new TestHelper("leapfrog-triejoin-02",// testURI,
+                "leapfrog-triejoin-02.rq",// queryFileURL
+                "leapfrog-triejoin.ttl",// dataFileURL
+                "leapfrog-triejoin-02.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(1, countLeapfrogTriejoins(h));
+
+    }
+
+    /**
+     * A directed triangle with a join filter which is evaluated by the
+     * {@link LeapfrogTriejoinOp}.
+     * 
+     * <pre>
+     * SELECT ?a ?b ?c WHERE { ?a :p ?b . ?b :p ?c . ?c :p ?a . FILTER (?a != :a) }
+     * </pre>
+     */
+    public void test_leapfrogTriejoin_triangle_filter() throws Exception {
+
+        final TestHelper h = new TestHelper("leapfrog-triejoin-03",// testURI,
+                "leapfrog-triejoin-03.rq",// queryFileURL
+                "leapfrog-triejoin.ttl",// dataFileURL
+                "leapfrog-triejoin-03.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(1, countLeapfrogTriejoins(h));
+
+    }
+
+    /**
+     * Correct rejection test. A path is not cyclic and is evaluated using the
+     * usual binary joins.
+     * 
+     * <pre>
+     * SELECT ?a ?b ?c WHERE { ?a :p ?b . ?b :p ?c . }
+     * </pre>
+     */
+    public void test_leapfrogTriejoin_correctRejection_acyclic()
+            throws Exception {
+
+        final TestHelper h = new TestHelper("leapfrog-triejoin-04",// testURI,
+                "leapfrog-triejoin-04.rq",// queryFileURL
+                "leapfrog-triejoin.ttl",// dataFileURL
+                "leapfrog-triejoin-04.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(0, countLeapfrogTriejoins(h));
+
+    }
+
+}
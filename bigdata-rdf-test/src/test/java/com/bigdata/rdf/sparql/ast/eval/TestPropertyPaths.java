@@ -170,6 +170,66 @@ public class TestPropertyPaths extends AbstractDataDrivenSPARQLTestCase {
              ).runTest();
 
     }
-    
+
+    /**
+     * Both ends of the path are constants and the right end is reachable
+     * (bidirectional evaluation).
+     */
+    public void test_inConst_outConst_reachable() throws Exception {
+
+        new TestHelper(
+                "property-paths-10",          // testURI,
+                "property-paths-10.rq",       // queryFileURL
+                "property-paths.ttl",         // dataFileURL
+                "property-paths-10.srx"       // resultFileURL,
+                ).runTest();
+
+    }
+
+    /**
+     * Both ends of the path are constants and the right end is not reachable
+     * (bidirectional evaluation).
+     */
+    public void test_inConst_outConst_notReachable() throws Exception {
+
+        new TestHelper(
+                "property-paths-11",          // testURI,
+                "property-paths-11.rq",       // queryFileURL
+                "property-paths.ttl",         // dataFileURL
+                "property-paths-11.srx"       // resultFileURL,
+                ).runTest();
+
+    }
+
+    /**
+     * Both ends of a one-or-more path are bound by the incoming solutions,
+     * including a vertex that is not on a cycle with itself (bidirectional
+     * evaluation).
+     */
+    public void test_inVar_outVar_bothBound_oneOrMore() throws Exception {
+
+        new TestHelper(
+                "property-paths-12",          // testURI,
+                "property-paths-12.rq",       // queryFileURL
+                "property-paths.ttl",         // dataFileURL
+                "property-paths-12.srx"       // resultFileURL,
+                ).runTest();
+
+    }
+
+    /**
+     * Both ends of a zero-or-more path are bound by the incoming solutions
+     * (bidirectional evaluation).
+     */
+    public void test_inVar_outVar_bothBound_zeroOrMore() throws Exception {
+
+        new TestHelper(
+                "property-paths-13",          // testURI,
+                "property-paths-13.rq",       // queryFileURL
+                "property-paths.ttl",         // dataFileURL
+                "property-paths-13.srx"       // resultFileURL,
+                ).runTest();
+
+    }
     
 }
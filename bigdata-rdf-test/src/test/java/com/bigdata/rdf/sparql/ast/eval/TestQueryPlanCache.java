@@ -0,0 +1,482 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.algebra.evaluation.QueryBindingSet;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.journal.ITx;
+import com.bigdata.journal.Journal;
+import com.bigdata.rdf.sail.sparql.Bigdata2ASTSPARQLParser;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.AbstractASTEvaluationTestCase;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * Test suite for the {@link QueryPlanCache}.
+ */
+public class TestQueryPlanCache extends AbstractASTEvaluationTestCase {
+
+    public TestQueryPlanCache() {
+    }
+
+    public TestQueryPlanCache(final String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties properties = super.getProperties();
+
+        properties.setProperty(AbstractTripleStore.Options.QUADS, "false");
+
+        return properties;
+
+    }
+
+    private static final String NS = "http://example.org/";
+
+    private QueryPlanCache planCache;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        final QueryEngine queryEngine = QueryEngineFactory.getInstance()
+                .getQueryController(store.getIndexManager());
+
+        planCache = QueryPlanCache.getInstance(queryEngine);
+
+        assertNotNull(planCache);
+
+        for (int i = 0; i < 5; i++) {
+
+            addStatement("s" + i, "p", "o" + (i % 2));
+
+        }
+
+        store.commit();
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        planCache = null;
+
+        super.tearDown();
+
+    }
+
+    private void addStatement(final String s, final String p, final String o) {
+
+        store.addStatement(new URIImpl(NS + s), new URIImpl(NS + p),
+                new URIImpl(NS + o));
+
+    }
+
+    /**
+     * The evaluated query.
+     */
+    private ASTContainer astContainer;
+
+    /**
+     * Evaluate a SELECT query against a read-only transaction reading on the
+     * last commit point.
+     */
+    private Set<String> selectTx(final String queryStr) throws Exception {
+
+        return selectTx(queryStr, new QueryBindingSet());
+
+    }
+
+    /**
+     * Evaluate a SELECT query with the given bindings against a read-only
+     * transaction reading on the last commit point.
+     */
+    private Set<String> selectTx(final String queryStr,
+            final QueryBindingSet bindings) throws Exception {
+
+        final Journal journal = (Journal) store.getIndexManager();
+
+        final long tx = journal.newTx(ITx.READ_COMMITTED);
+
+        try {
+
+            final AbstractTripleStore view = (AbstractTripleStore) journal
+                    .getResourceLocator().locate(store.getNamespace(), tx);
+
+            return select(view, queryStr, bindings);
+
+        } finally {
+
+            journal.abort(tx);
+
+        }
+
+    }
+
+    private Set<String> select(final AbstractTripleStore db,
+            final String queryStr) throws Exception {
+
+        return select(db, queryStr, new QueryBindingSet());
+
+    }
+
+    private Set<String> select(final AbstractTripleStore db,
+            final String queryStr, final QueryBindingSet bindings)
+            throws Exception {
+
+        astContainer = new Bigdata2ASTSPARQLParser().parseQuery2(queryStr,
+                NS);
+
+        final TupleQueryResult result = ASTEvalHelper.evaluateTupleQuery(db,
+                astContainer, bindings, null/* dataset */);
+
+        final Set<String> solutions = new HashSet<String>();
+
+        try {
+
+            while (result.hasNext()) {
+
+                final BindingSet bset = result.next();
+
+                solutions.add(bset.toString());
+
+            }
+
+        } finally {
+
+            result.close();
+
+        }
+
+        return solutions;
+
+    }
+
+    private UUID getQueryId() {
+
+        return (UUID) astContainer.getQueryPlan().getProperty(
+                QueryEngine.Annotations.QUERY_ID);
+
+    }
+
+    /**
+     * Unit test for the normalization of the query string.
+     */
+    public void test_normalize() {
+
+        assertEquals("SELECT * { ?s ?p \"a  b\" }",
+                QueryPlanCache.normalize("SELECT *\n{ ?s\t ?p \"a  b\" } # x"));
+
+        assertEquals("SELECT * { ?s <http://x.org/a#b> '''a\n#b''' }",
+                QueryPlanCache
+                        .normalize("  SELECT * {\r\n ?s   <http://x.org/a#b> '''a\n#b'''\n}"));
+
+        assertEquals("SELECT * { ?s ?p ?o FILTER(?o <?s) }", QueryPlanCache
+                .normalize("SELECT * { ?s ?p ?o FILTER(?o <?s) # <x>\n}"));
+
+        assertEquals("SELECT ?now { ?s <http://x.org/now> ?now . ?s ?p \"NOW()\" }",
+                QueryPlanCache.normalize("SELECT ?now { ?s <http://x.org/now> ?now . ?s ?p \"NOW()\" }"));
+
+        assertNotNull(QueryPlanCache
+                .normalize("SELECT ?x { ?s ?p ?o BIND(ex:rand(?o) AS ?x) }"));
+
+        // Functions whose value is fixed when the plan is generated.
+        assertNull(QueryPlanCache.normalize("SELECT (NOW() AS ?t) {}"));
+        assertNull(QueryPlanCache.normalize("SELECT (rand ( ) AS ?t) {}"));
+        assertNull(QueryPlanCache.normalize("SELECT (STRUUID() AS ?t) {}"));
+        assertNull(QueryPlanCache
+                .normalize("SELECT ?b { BIND(BNODE() AS ?b) }"));
+
+    }
+
+    /**
+     * A query against a second transaction reading on the same commit point
+     * reuses the plan, even if the query differs in its whitespace. The
+     * reused plan is run under the queryId of the new query.
+     */
+    public void test_hit() throws Exception {
+
+        final String q1 = "SELECT ?s WHERE { ?s <p> <o1> }";
+
+        final String q2 = "SELECT ?s\nWHERE {\n  ?s <p> <o1> # comment\n}";
+
+        final long hits = planCache.getHitCount();
+
+        final long misses = planCache.getMissCount();
+
+        final Set<String> expected = selectTx(q1);
+
+        assertEquals(2, expected.size());
+
+        assertEquals(misses + 1, planCache.getMissCount());
+
+        final UUID queryId1 = getQueryId();
+
+        assertEquals(expected, selectTx(q2));
+
+        assertEquals(hits + 1, planCache.getHitCount());
+
+        final UUID queryId2 = getQueryId();
+
+        assertNotNull(queryId2);
+
+        assertFalse(queryId1.equals(queryId2));
+
+        assertNotNull(astContainer.getOptimizedAST());
+
+    }
+
+    /**
+     * The queryId of the named solution sets used by a named subquery is
+     * replaced when the plan is reused.
+     */
+    public void test_hit_namedSubquery() throws Exception {
+
+        final String q = "SELECT ?s ?o\n"//
+                + "WITH { SELECT ?s WHERE { ?s <p> <o0> } } AS %sub\n"//
+                + "WHERE { INCLUDE %sub . ?s <p> ?o }";
+
+        final Set<String> expected = selectTx(q);
+
+        assertEquals(3, expected.size());
+
+        final long hits = planCache.getHitCount();
+
+        assertEquals(expected, selectTx(q));
+
+        assertEquals(hits + 1, planCache.getHitCount());
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        final UUID queryId = getQueryId();
+
+        int nrefs = 0;
+
+        final Iterator<BOp> itr = BOpUtility
+                .preOrderIteratorWithAnnotations(queryPlan);
+
+        while (itr.hasNext()) {
+
+            for (Object o : itr.next().annotations().values()) {
+
+                if (o instanceof INamedSolutionSetRef
+                        && ((INamedSolutionSetRef) o).getQueryId() != null) {
+
+                    assertEquals(queryId,
+                            ((INamedSolutionSetRef) o).getQueryId());
+
+                    nrefs++;
+
+                }
+
+            }
+
+        }
+
+        assertTrue(nrefs > 0);
+
+    }
+
+    /**
+     * A reused plan with an aggregate computes the same solutions.
+     */
+    public void test_hit_aggregate() throws Exception {
+
+        final String q = "SELECT ?o (COUNT(?s) AS ?n) WHERE { ?s <p> ?o } GROUP BY ?o";
+
+        final Set<String> expected = selectTx(q);
+
+        assertEquals(2, expected.size());
+
+        final long hits = planCache.getHitCount();
+
+        assertEquals(expected, selectTx(q));
+
+        assertEquals(expected, selectTx(q));
+
+        assertEquals(hits + 2, planCache.getHitCount());
+
+    }
+
+    /**
+     * A commit which does not add terms to the lexicon does not invalidate
+     * the plan, and the reused plan reads on the new commit point.
+     */
+    public void test_commit_reuses() throws Exception {
+
+        final String q = "SELECT ?s WHERE { ?s <p> <o1> }";
+
+        assertEquals(2, selectTx(q).size());
+
+        assertEquals(1, planCache.size());
+
+        addStatement("s4", "p", "o1");
+
+        store.commit();
+
+        final long hits = planCache.getHitCount();
+
+        final long invalidated = planCache.getInvalidatedCount();
+
+        assertEquals(3, selectTx(q).size());
+
+        assertEquals(hits + 1, planCache.getHitCount());
+
+        assertEquals(invalidated, planCache.getInvalidatedCount());
+
+        assertEquals(1, planCache.size());
+
+    }
+
+    /**
+     * A commit which adds terms to the lexicon invalidates the plan since
+     * the plan may have been generated for a constant which was not yet
+     * known.
+     */
+    public void test_newTerms_invalidates() throws Exception {
+
+        final String q = "SELECT ?s WHERE { ?s <p> <o9> }";
+
+        assertEquals(0, selectTx(q).size());
+
+        assertEquals(1, planCache.size());
+
+        addStatement("s9", "p", "o9");
+
+        store.commit();
+
+        final long hits = planCache.getHitCount();
+
+        final long invalidated = planCache.getInvalidatedCount();
+
+        assertEquals(1, selectTx(q).size());
+
+        assertEquals(hits, planCache.getHitCount());
+
+        assertEquals(invalidated + 1, planCache.getInvalidatedCount());
+
+        assertEquals(1, planCache.size());
+
+    }
+
+    /**
+     * The plan is reused for queries which differ only in the values of their
+     * globally scoped bindings.
+     */
+    public void test_hit_bindings() throws Exception {
+
+        final String q = "SELECT ?s WHERE { ?s <p> ?o }";
+
+        final QueryBindingSet b1 = new QueryBindingSet();
+
+        b1.addBinding("o", new URIImpl(NS + "o1"));
+
+        final QueryBindingSet b0 = new QueryBindingSet();
+
+        b0.addBinding("o", new URIImpl(NS + "o0"));
+
+        final long hits = planCache.getHitCount();
+
+        final Set<String> expected1 = selectTx(q, b1);
+
+        assertEquals(2, expected1.size());
+
+        final Set<String> expected0 = selectTx(q, b0);
+
+        assertEquals(3, expected0.size());
+
+        assertEquals(hits + 1, planCache.getHitCount());
+
+        assertEquals(expected1, selectTx(q, b1));
+
+        assertEquals(hits + 2, planCache.getHitCount());
+
+        assertEquals(1, planCache.size());
+
+        // Not the same plan as the query without bindings.
+        assertEquals(5, selectTx(q).size());
+
+        assertEquals(hits + 2, planCache.getHitCount());
+
+    }
+
+    /**
+     * Queries against a mutable view are not cached.
+     */
+    public void test_unisolated_notCached() throws Exception {
+
+        final String q = "SELECT ?s WHERE { ?s <p> <o1> }";
+
+        final long misses = planCache.getMissCount();
+
+        assertEquals(2, select(store, q).size());
+
+        assertEquals(2, select(store, q).size());
+
+        assertEquals(misses, planCache.getMissCount());
+
+        assertEquals(0, planCache.size());
+
+    }
+
+    /**
+     * Queries whose plan embeds the value of NOW() are not cached.
+     */
+    public void test_now_notCached() throws Exception {
+
+        final String q = "SELECT ?s ?t WHERE { ?s <p> <o1> BIND(NOW() AS ?t) }";
+
+        assertEquals(2, selectTx(q).size());
+
+        assertEquals(2, selectTx(q).size());
+
+        assertEquals(0, planCache.size());
+
+    }
+
+}
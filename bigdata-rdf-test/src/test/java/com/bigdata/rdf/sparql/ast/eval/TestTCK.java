@@ -33,6 +33,11 @@ import junit.framework.TestSuite;
 import org.apache.log4j.Logger;
 
 import com.bigdata.BigdataStatics;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.solutions.MemorySortOp;
+import com.bigdata.bop.solutions.NativeHeapSortOp;
+import com.bigdata.bop.solutions.TopKSortOp;
 import com.bigdata.rdf.sparql.ast.ASTContainer;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTBottomUpOptimizer;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTSimpleOptionalOptimizer;
@@ -519,6 +524,54 @@ public class TestTCK extends AbstractDataDrivenSPARQLTestCase {
 
     }
 
+    /**
+     * Variant of {@link #test_sort_3()} in analytic query mode. This uses the
+     * {@link NativeHeapSortOp} rather than the {@link MemorySortOp}.
+     */
+    public void test_sort_3_analytic() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "sort-3-analytic", // testURI,
+                "sort-3-analytic.rq",// queryFileURL
+                "sort-3.ttl",// dataFileURL
+                "sort-3-result.rdf"// resultFileURL
+                ).runTest();
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        assertTrue(BOpUtility.visitAll(queryPlan, NativeHeapSortOp.class)
+                .hasNext());
+
+        assertFalse(BOpUtility.visitAll(queryPlan, MemorySortOp.class)
+                .hasNext());
+
+    }
+
+    /**
+     * Variant of {@link #test_sort_3()} with an OFFSET and LIMIT. The ORDER BY
+     * is evaluated by the {@link TopKSortOp}, which retains only OFFSET+LIMIT
+     * solutions.
+     */
+    public void test_sort_3_limit() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "sort-3-limit", // testURI,
+                "sort-3-limit.rq",// queryFileURL
+                "sort-3.ttl",// dataFileURL
+                "sort-3-limit.srx",// resultFileURL
+                true// checkOrder
+                ).runTest();
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        assertTrue(BOpUtility.visitAll(queryPlan, TopKSortOp.class)
+                .hasNext());
+
+        assertFalse(BOpUtility.visitAll(queryPlan, MemorySortOp.class)
+                .hasNext());
+
+    }
+
     /**
      * DAWG SPARQL 1.0 test
      * 
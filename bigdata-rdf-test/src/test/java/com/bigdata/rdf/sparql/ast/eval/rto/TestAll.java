@@ -70,6 +70,9 @@ public class TestAll extends TestCase {
         // 'barData' test suite (quads mode).
         suite.addTestSuite(TestRTO_BAR.class);
 
+        // Adaptive evaluation of the RTO join path.
+        suite.addTestSuite(TestRTO_Adaptive.class);
+
         /*
          * FOAF test suite (quads mode).
          * 
@@ -0,0 +1,255 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.eval.rto;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.bop.joinGraph.rto.AdaptiveStep;
+import com.bigdata.bop.joinGraph.rto.JoinGraph;
+import com.bigdata.bop.joinGraph.rto.Path;
+import com.bigdata.journal.IBTreeManager;
+import com.bigdata.rdf.axioms.NoAxioms;
+import com.bigdata.rdf.sail.BigdataSail;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+
+/**
+ * Test suite for adaptive evaluation of the join path selected by the RTO.
+ * The queries are LUBM Q8 and Q9 with {@link QueryHints#RTO_ADAPTIVE} enabled
+ * and a {@link QueryHints#RTO_ADAPTIVE_THRESHOLD} of ONE (1), so any
+ * difference between the estimated and actual cardinality of a join causes the
+ * remaining joins to be re-optimized. The solutions must be the same as for
+ * the non-adaptive evaluation of those queries.
+ * 
+ * @see TestRTO_LUBM
+ */
+public class TestRTO_Adaptive extends AbstractRTOTestCase {
+
+    public TestRTO_Adaptive() {
+    }
+
+    public TestRTO_Adaptive(String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        // Note: clone to avoid modifying!!!
+        final Properties properties = (Properties) super.getProperties().clone();
+
+        properties.setProperty(BigdataSail.Options.TRIPLES_MODE, "true");
+
+        properties.setProperty(BigdataSail.Options.AXIOMS_CLASS,
+                NoAxioms.class.getName());
+
+        return properties;
+        
+    }
+
+    /**
+     * LUBM Q8 on the U1 data set using adaptive evaluation.
+     */
+    public void test_LUBM_Q8_adaptive() throws Exception {
+
+        final TestHelper helper = new TestHelper(//
+                "rto/LUBM-Q8-adaptive", // testURI,
+                "rto/LUBM-Q8-adaptive.rq",// queryFileURL
+                "src/test/resources/data/lehigh/LUBM-U1.rdf.gz",// dataFileURL
+                "rto/LUBM-Q8.srx"// resultFileURL
+        );
+
+        assertAdaptiveSteps(5/* nvertices */, helper);
+
+    }
+
+    /**
+     * LUBM Q9 on the U1 data set using adaptive evaluation.
+     */
+    public void test_LUBM_Q9_adaptive() throws Exception {
+
+        final TestHelper helper = new TestHelper(//
+                "rto/LUBM-Q9-adaptive", // testURI,
+                "rto/LUBM-Q9-adaptive.rq",// queryFileURL
+                "src/test/resources/data/lehigh/LUBM-U1.rdf.gz",// dataFileURL
+                "rto/LUBM-Q9.srx"// resultFileURL
+        );
+
+        assertAdaptiveSteps(6/* nvertices */, helper);
+
+    }
+
+    /**
+     * LUBM Q8 on the U1 data set using adaptive evaluation with a
+     * {@link QueryHints#RTO_ADAPTIVE_MAX_SOLUTIONS} of ONE (1). The first join
+     * produces more solutions than may be materialized, so the entire join
+     * path is evaluated as a single pipelined query plan. The solutions must
+     * be the same.
+     */
+    public void test_LUBM_Q8_adaptive_pipelined() throws Exception {
+
+        final TestHelper helper = new TestHelper(//
+                "rto/LUBM-Q8-adaptive-pipelined", // testURI,
+                "rto/LUBM-Q8-adaptive-pipelined.rq",// queryFileURL
+                "src/test/resources/data/lehigh/LUBM-U1.rdf.gz",// dataFileURL
+                "rto/LUBM-Q8.srx"// resultFileURL
+        );
+
+        final AdaptiveRun run = runAdaptive(helper);
+
+        final List<AdaptiveStep> steps = run.steps;
+
+        // The first join overflowed and was pipelined with the rest.
+        assertEquals(1, steps.size());
+
+        final AdaptiveStep step = steps.get(0);
+
+        assertEquals(run.path.getVertexIds()[0], step.vertexId);
+
+        assertTrue(step.pipelined);
+
+        assertFalse(step.hashJoin);
+
+        assertEquals(1L, step.inputCount);
+
+        assertTrue(step.outputCount > 0L);
+
+    }
+
+    /**
+     * Run the test (which verifies the solutions) and then verify that the
+     * join graph was evaluated adaptively: each vertex is joined exactly once,
+     * the first join is the first vertex of the RTO join path, and the first
+     * misestimated join caused the remaining joins to be re-optimized.
+     */
+    private void assertAdaptiveSteps(final int nvertices,
+            final TestHelper helper) throws Exception {
+
+        final AdaptiveRun run = runAdaptive(helper);
+
+        final Path path = run.path;
+
+        final List<AdaptiveStep> steps = run.steps;
+
+        // Verify the vertices were each joined once.
+        assertEquals(nvertices, steps.size());
+        final int[] expected = path.getVertexIds().clone();
+        final int[] actual = new int[steps.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = steps.get(i).vertexId;
+        }
+        assertEquals(expected[0], actual[0]);
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        assertTrue(Arrays.equals(expected, actual));
+
+        // Verify that the join path was followed until the first misestimate.
+        boolean adapting = false;
+        for (AdaptiveStep step : steps) {
+            assertEquals(adapting, step.reordered);
+            assertFalse(step.pipelined);
+            if (!adapting && step.estCard != step.outputCount)
+                adapting = true;
+        }
+        assertTrue(adapting);
+
+    }
+
+    /**
+     * Run the test (which verifies the solutions) and return the join path
+     * selected by the RTO and the steps taken by its adaptive evaluation.
+     */
+    private AdaptiveRun runAdaptive(final TestHelper helper) throws Exception {
+
+        final UUID queryId = UUID.randomUUID();
+
+        helper.getASTContainer().setQueryHint(QueryHints.QUERYID,
+                queryId.toString());
+
+        final QueryEngine queryEngine = QueryEngineFactory.getInstance()
+                .getExistingQueryController((IBTreeManager) helper
+                        .getTripleStore().getIndexManager());
+
+        final MyQueryListener l = new MyQueryListener(queryId);
+        try {
+            queryEngine.addListener(l);
+            helper.runTest();
+        } finally {
+            queryEngine.removeListener(l);
+        }
+
+        final JoinGraph joinGraph = BOpUtility.getOnly(helper
+                .getASTContainer().getQueryPlan(), JoinGraph.class);
+
+        assertTrue(joinGraph.isAdaptive());
+
+        Path path = null;
+        List<AdaptiveStep> steps = null;
+        for (IRunningQuery q : l.getRunningQueries()) {
+            if (joinGraph.getPath(q) != null) {
+                path = joinGraph.getPath(q);
+                steps = joinGraph.getAdaptiveSteps(q);
+                break;
+            }
+        }
+
+        assertNotNull(path);
+        assertNotNull(steps);
+
+        if (log.isInfoEnabled())
+            log.info("path=" + path + ", steps=" + steps);
+
+        return new AdaptiveRun(path, steps);
+
+    }
+
+    /**
+     * The join path selected by the RTO and the steps taken when it was
+     * evaluated adaptively.
+     */
+    private static class AdaptiveRun {
+
+        final Path path;
+
+        final List<AdaptiveStep> steps;
+
+        AdaptiveRun(final Path path, final List<AdaptiveStep> steps) {
+            this.path = path;
+            this.steps = steps;
+        }
+
+    }
+
+}
@@ -78,6 +78,9 @@ public class TestAll extends TestCase {
         // Full text search
         suite.addTestSuite(TestSearch.class);
 
+        // GAS programs
+        suite.addTestSuite(TestGASService.class);
+
         /*
          * External service support (openrdf services in the same JVM).
          */
@@ -0,0 +1,100 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.eval.service;
+
+import com.bigdata.rdf.graph.impl.bd.GASService;
+import com.bigdata.rdf.sparql.ast.eval.AbstractDataDrivenSPARQLTestCase;
+
+/**
+ * Data driven test suite for the {@link GASService}.
+ */
+public class TestGASService extends AbstractDataDrivenSPARQLTestCase {
+
+    /**
+     *
+     */
+    public TestGASService() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestGASService(String name) {
+        super(name);
+    }
+
+    /**
+     * Load the data, commit it and run the query. The {@link GASService}
+     * reads the last commit point, so it would not see uncommitted data.
+     */
+    private void runTest(final String testURI, final String resultFileURL)
+            throws Exception {
+
+        final TestHelper h = new TestHelper(testURI, // testURI
+                testURI + ".rq", // queryFileURL
+                "gas-bfs.ttl", // dataFileURL
+                resultFileURL // resultFileURL
+        );
+
+        h.getTripleStore().commit();
+
+        h.runTest();
+
+    }
+
+    /**
+     * BFS over a single link type using the default engine, which runs
+     * against the statement indices.
+     */
+    public void test_gas_bfs_btree() throws Exception {
+
+        runTest("gas-bfs-btree", "gas-bfs.srx");
+
+    }
+
+    /**
+     * The same BFS run on a CSR snapshot of the link type. The solutions must
+     * be the same as for the default engine.
+     */
+    public void test_gas_bfs_csr() throws Exception {
+
+        runTest("gas-bfs-csr", "gas-bfs.srx");
+
+    }
+
+    /**
+     * BFS on a CSR snapshot without a link type. All edges are copied into
+     * the snapshot, but the property values are not.
+     */
+    public void test_gas_bfs_csr_allLinkTypes() throws Exception {
+
+        runTest("gas-bfs-csr-all", "gas-bfs-csr-all.srx");
+
+    }
+
+}
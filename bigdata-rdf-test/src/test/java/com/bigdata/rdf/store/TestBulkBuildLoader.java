@@ -0,0 +1,422 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.store;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Iterator;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.rio.RDFFormat;
+
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.StatementEnum;
+import com.bigdata.rdf.rio.RDFParserOptions;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPO;
+
+/**
+ * Test suite for the {@link BulkBuildLoader}.
+ */
+public class TestBulkBuildLoader extends AbstractTripleStoreTestCase {
+
+    public TestBulkBuildLoader() {
+    }
+
+    public TestBulkBuildLoader(final String name) {
+        super(name);
+    }
+
+    private static final URI FOAF_PERSON = new URIImpl(
+            "http://xmlns.com/foaf/0.1/Person");
+
+    private static final URI FOAF_KNOWS = new URIImpl(
+            "http://xmlns.com/foaf/0.1/knows");
+
+    private static final String DEFAULT_GRAPH = "http://www.bigdata.com/g";
+
+    /**
+     * Return <code>nstmts + 2</code> distinct statements, including a blank
+     * node which uses the same label in each file.
+     */
+    private static String getData(final int file, final int nstmts) {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("@prefix bd: <http://www.bigdata.com/> .\n");
+        sb.append("@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n");
+        sb.append("@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n");
+        sb.append("@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n");
+        sb.append("_:a rdf:type foaf:Person .\n");
+        sb.append("_:a rdfs:label \"file" + file + "\" .\n");
+
+        for (int i = 0; i < nstmts; i++) {
+
+            sb.append("bd:s" + file + "_" + i + " foaf:knows _:a .\n");
+
+        }
+
+        return sb.toString();
+
+    }
+
+    private File newTempDir() throws IOException {
+
+        final File tmpDir = File.createTempFile(getClass().getName(), ".tmp");
+
+        tmpDir.delete(); // delete random file name.
+
+        tmpDir.mkdir(); // recreate it as a directory.
+
+        return tmpDir;
+
+    }
+
+    private static void writeOnFile(final File file, final String data)
+            throws IOException {
+
+        final Writer w = new BufferedWriter(new FileWriter(file));
+
+        try {
+            w.write(data);
+        } finally {
+            w.close();
+        }
+
+    }
+
+    private static void deleteDir(final File dir) {
+
+        final File[] a = dir.listFiles();
+
+        if (a != null) {
+            for (File f : a)
+                f.delete();
+        }
+
+        dir.delete();
+
+    }
+
+    /**
+     * Return a new loader -or- <code>null</code> if the database does not
+     * support the bulk build.
+     */
+    private BulkBuildLoader newLoader(final AbstractTripleStore store,
+            final File tmpDir, final int chunkSize) {
+
+        try {
+
+            return new BulkBuildLoader(store, tmpDir, 16 * 1024/* maxBufferBytes */,
+                    chunkSize);
+
+        } catch (UnsupportedOperationException ex) {
+
+            if (log.isInfoEnabled())
+                log.info("Not supported: " + ex);
+
+            return null;
+
+        }
+
+    }
+
+    /**
+     * Bulk build several files with a small buffer (forcing sorted runs onto
+     * the disk) and a small chunk size (so blank nodes must be resolved
+     * consistently across chunks). The axioms are retained, the RDF Values are
+     * in the lexicon and the result is restart safe.
+     */
+    public void test_bulkBuild01() throws IOException {
+
+        final int nfiles = 5;
+
+        final int nstmts = 200;
+
+        final File tmpDir = newTempDir();
+
+        AbstractTripleStore store = getStore();
+
+        try {
+
+            final BulkBuildLoader loader = newLoader(store, tmpDir, 37/* chunkSize */);
+
+            if (loader == null)
+                return;
+
+            final File dataDir = new File(tmpDir, "data");
+
+            dataDir.mkdir();
+
+            for (int i = 0; i < nfiles; i++) {
+
+                writeOnFile(new File(dataDir, "file" + i + ".ttl"), getData(i,
+                        nstmts));
+
+            }
+
+            // The axioms (if any).
+            final long before = store.getStatementCount(true/* exact */);
+
+            assertEquals(nfiles * (nstmts + 2), loader.loadFiles(dataDir,
+                    null/* baseURI */, RDFFormat.TURTLE, DEFAULT_GRAPH,
+                    null/* filter */, new RDFParserOptions()));
+
+            assertEquals(nfiles * (nstmts + 2), loader.getToldTriples());
+
+            final long nstmts2 = loader.build();
+
+            store.commit();
+
+            // the sorted runs were deleted.
+            assertEquals(1, tmpDir.listFiles().length);
+
+            assertEquals(before + nfiles * (nstmts + 2), nstmts2);
+
+            assertBuild(store, before, nfiles, nstmts);
+
+            assertTrue(loader.getLexiconElapsed() >= 0L);
+
+            if (store.isStable()) {
+
+                store = reopenStore(store);
+
+                assertBuild(store, before, nfiles, nstmts);
+
+            }
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+            deleteDir(new File(tmpDir, "data"));
+
+            deleteDir(tmpDir);
+
+        }
+
+    }
+
+    private void assertBuild(final AbstractTripleStore store,
+            final long before, final int nfiles, final int nstmts) {
+
+        assertEquals(before + nfiles * (nstmts + 2),
+                store.getStatementCount(true/* exact */));
+
+        // one blank node per file (POS index).
+        assertEquals(nfiles, store.getAccessPath(null/* s */, RDF.TYPE,
+                FOAF_PERSON).rangeCount(true/* exact */));
+
+        // (OSP index).
+        assertEquals(nfiles, store.getAccessPath(null/* s */, null/* p */,
+                FOAF_PERSON).rangeCount(true/* exact */));
+
+        // (SPO index).
+        assertEquals(1, store.getAccessPath(
+                new URIImpl("http://www.bigdata.com/s0_0"), null/* p */,
+                null/* o */).rangeCount(true/* exact */));
+
+        assertEquals(nfiles * nstmts, store.getAccessPath(null/* s */,
+                FOAF_KNOWS, null/* o */).rangeCount(true/* exact */));
+
+        // the axioms.
+        final Iterator<SPO> itr = store.getAxioms().axioms();
+
+        while (itr.hasNext()) {
+
+            final SPO axiom = itr.next();
+
+            final ISPO spo = store.getStatement(axiom.s(), axiom.p(),
+                    axiom.o());
+
+            assertNotNull(axiom.toString(), spo);
+
+            assertEquals(StatementEnum.Axiom, spo.getStatementType());
+
+        }
+
+        // the RDF Values are in TERM2ID and ID2TERM.
+        for (int i = 0; i < nfiles; i++) {
+
+            assertTerm(store, new URIImpl("http://www.bigdata.com/s" + i
+                    + "_" + (nstmts - 1)));
+
+            assertTerm(store, new LiteralImpl("file" + i));
+
+        }
+
+        assertTerm(store, FOAF_KNOWS);
+
+    }
+
+    private void assertTerm(final AbstractTripleStore store, final Value v) {
+
+        final IV<?, ?> iv = store.getIV(v);
+
+        assertNotNull(v.toString(), iv);
+
+        assertEquals(v, store.getTerm(iv));
+
+    }
+
+    /**
+     * Statements which are axioms, or which appear more than once in the data,
+     * are only reported once.
+     */
+    public void test_bulkBuild_duplicates() throws IOException {
+
+        final File tmpDir = newTempDir();
+
+        final AbstractTripleStore store = getStore();
+
+        try {
+
+            final BulkBuildLoader loader = newLoader(store, tmpDir, 1000/* chunkSize */);
+
+            if (loader == null)
+                return;
+
+            final long before = store.getStatementCount(true/* exact */);
+
+            // An axiom unless there are no axioms.
+            final int naxiom = store.getAxioms().isNone() ? 1 : 0;
+
+            final String data = ""
+                    + "@prefix bd: <http://www.bigdata.com/> .\n"
+                    + "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n"
+                    + "@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n"
+                    + "rdf:type rdf:type rdf:Property .\n"
+                    + "bd:Mike rdf:type foaf:Person .\n"
+                    + "bd:Bryan rdf:type foaf:Person .\n"
+                    + "bd:Bryan rdf:type foaf:Person .\n";
+
+            loader.loadData(new StringReader(data),
+                    "http://www.bigdata.com/", RDFFormat.TURTLE,
+                    DEFAULT_GRAPH, new RDFParserOptions());
+
+            assertEquals(4, loader.getToldTriples());
+
+            assertEquals(before + naxiom + 2, loader.build());
+
+            store.commit();
+
+            assertEquals(before + naxiom + 2,
+                    store.getStatementCount(true/* exact */));
+
+            assertEquals(2, store.getAccessPath(null/* s */, RDF.TYPE,
+                    FOAF_PERSON).rangeCount(true/* exact */));
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+            deleteDir(tmpDir);
+
+        }
+
+    }
+
+    /**
+     * The statement indices are rebuilt from scratch, so the bulk build is
+     * refused once the database holds more than the axioms, whether those
+     * statements were written before the loader was created or before
+     * {@link BulkBuildLoader#build()}.
+     */
+    public void test_bulkBuild_notInitialLoad() throws IOException {
+
+        final File tmpDir = newTempDir();
+
+        final AbstractTripleStore store = getStore();
+
+        try {
+
+            final BulkBuildLoader loader = newLoader(store, tmpDir, 1000/* chunkSize */);
+
+            if (loader == null)
+                return;
+
+            final BigdataValueFactory f = store.getValueFactory();
+
+            final BigdataURI g = store.isQuads() ? f.createURI(DEFAULT_GRAPH)
+                    : null;
+
+            store.addStatement(f.createURI("http://www.bigdata.com/Mike"),
+                    f.asValue(RDF.TYPE), f.asValue(FOAF_PERSON), g);
+
+            store.commit();
+
+            final long before = store.getStatementCount(true/* exact */);
+
+            loader.loadData(new StringReader(getData(0/* file */, 10)),
+                    "http://www.bigdata.com/", RDFFormat.TURTLE,
+                    DEFAULT_GRAPH, new RDFParserOptions());
+
+            try {
+                loader.build();
+                fail("Expecting: " + UnsupportedOperationException.class);
+            } catch (UnsupportedOperationException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+            // the statement indices were not modified.
+            assertEquals(before, store.getStatementCount(true/* exact */));
+
+            // the sorted runs were deleted.
+            assertEquals(0, tmpDir.listFiles().length);
+
+            try {
+                new BulkBuildLoader(store, tmpDir, 16 * 1024/* maxBufferBytes */);
+                fail("Expecting: " + UnsupportedOperationException.class);
+            } catch (UnsupportedOperationException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+            deleteDir(tmpDir);
+
+        }
+
+    }
+
+}
@@ -30,9 +30,13 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.Properties;
 
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.RDF;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFParseException;
 
+import com.bigdata.rdf.rio.LoadStats;
 import com.bigdata.rdf.store.DataLoader.ClosureEnum;
 import com.bigdata.rdf.store.DataLoader.CommitEnum;
 import com.bigdata.util.InnerCause;
@@ -359,6 +363,258 @@ public class TestDataLoader extends AbstractTripleStoreTestCase {
 
 	}
 	
+	/**
+	 * Test durable queues using {@link CommitEnum#Batch},
+	 * {@link ClosureEnum#Batch} and concurrent parser threads.
+	 * 
+	 * @see DataLoader.Options#PARSER_THREADS
+	 */
+	public void test_durableQueues03_batchCommit_batchClosure_parserThreads() throws IOException {
+
+		final AbstractTripleStore store = getStore();
+
+		try {
+
+			final Properties properties = new Properties(store.getProperties());
+
+			// enable durable queues.
+			properties.setProperty(DataLoader.Options.DURABLE_QUEUES, "true");
+
+			// Batch commit.
+			properties.setProperty(DataLoader.Options.COMMIT, CommitEnum.Batch.name());
+
+			properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.Batch.name());
+
+			properties.setProperty(DataLoader.Options.PARSER_THREADS, "2");
+
+			final DataLoader dataLoader = new DataLoader(properties, store);
+
+			doDurableQueueTest(dataLoader);
+			
+		} finally {
+
+			store.__tearDownUnitTest();
+		}
+
+	}
+
+	/**
+	 * Test loading a directory using concurrent parser threads. The files are
+	 * large enough that each is handed off in more than one chunk. Each file
+	 * uses the same blank node label, which must be scoped to that file.
+	 * 
+	 * @see DataLoader.Options#PARSER_THREADS
+	 */
+	public void test_DataLoader_parserThreads01() throws IOException {
+
+		final AbstractTripleStore store = getStore();
+
+		final File tmpDir = newTempDir();
+
+		try {
+
+			final int nfiles = 7;
+
+			final int nstmts = 25;
+
+			for (int i = 0; i < nfiles; i++) {
+
+				writeOnFile(new File(tmpDir, "file" + i + ".ttl"), getData(i, nstmts));
+
+			}
+
+			final Properties properties = new Properties(store.getProperties());
+
+			properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+
+			properties.setProperty(DataLoader.Options.PARSER_THREADS, "3");
+
+			// Note: also the size of the chunks handed off by the parsers.
+			properties.setProperty(DataLoader.Options.BUFFER_CAPACITY, "10");
+
+			final DataLoader dataLoader = new DataLoader(properties, store);
+
+			final long before = store.getStatementCount(true/* exact */);
+
+			final LoadStats stats = dataLoader.loadFiles(tmpDir, null/* baseURI */, RDFFormat.TURTLE,
+					null/* defaultGraph */, DataLoader.getFilenameFilter());
+
+			assertEquals(nfiles * (nstmts + 2), stats.toldTriples.get());
+
+			assertEquals(before + nfiles * (nstmts + 2), store.getStatementCount(true/* exact */));
+
+			// One distinct blank node per file.
+			assertEquals(nfiles, store.getAccessPath(null/* s */, RDF.TYPE, FOAF_PERSON).rangeCount(true/* exact */));
+
+		} finally {
+
+			recursiveDelete(tmpDir);
+
+			store.__tearDownUnitTest();
+
+		}
+
+	}
+
+	/**
+	 * Test where an error in one file is ignored by the concurrent parser
+	 * because we have specified {@link DataLoader.Options#IGNORE_INVALID_FILES}
+	 * . The statements from the other files must be loaded.
+	 * 
+	 * @see DataLoader.Options#PARSER_THREADS
+	 */
+	public void test_DataLoader_parserThreads02_ignoreFailures() throws IOException {
+
+		final AbstractTripleStore store = getStore();
+
+		final File tmpDir = newTempDir();
+
+		try {
+
+			final int nfiles = 4;
+
+			final int nstmts = 5;
+
+			for (int i = 0; i < nfiles; i++) {
+
+				writeOnFile(new File(tmpDir, "file" + i + ".ttl"), getData(i, nstmts));
+
+			}
+
+			writeOnFile(new File(tmpDir, "fail.ttl"), BAD_DATA);
+
+			final Properties properties = new Properties(store.getProperties());
+
+			properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+
+			properties.setProperty(DataLoader.Options.IGNORE_INVALID_FILES, "true");
+
+			properties.setProperty(DataLoader.Options.PARSER_THREADS, "2");
+
+			final DataLoader dataLoader = new DataLoader(properties, store);
+
+			final long before = store.getStatementCount(true/* exact */);
+
+			dataLoader.loadFiles(tmpDir, null/* baseURI */, RDFFormat.TURTLE, null/* defaultGraph */,
+					DataLoader.getFilenameFilter());
+
+			assertEquals(before + nfiles * (nstmts + 2), store.getStatementCount(true/* exact */));
+
+		} finally {
+
+			recursiveDelete(tmpDir);
+
+			store.__tearDownUnitTest();
+
+		}
+
+	}
+
+	/**
+	 * Test where an error in one file is reported by the concurrent parser
+	 * because we have NOT specified
+	 * {@link DataLoader.Options#IGNORE_INVALID_FILES}.
+	 * 
+	 * @see DataLoader.Options#PARSER_THREADS
+	 */
+	public void test_DataLoader_parserThreads03_failure() throws IOException {
+
+		boolean ok = false;
+
+		final AbstractTripleStore store = getStore();
+
+		final File tmpDir = newTempDir();
+
+		try {
+
+			for (int i = 0; i < 4; i++) {
+
+				writeOnFile(new File(tmpDir, "file" + i + ".ttl"), getData(i, 5/* nstmts */));
+
+			}
+
+			writeOnFile(new File(tmpDir, "fail.ttl"), BAD_DATA);
+
+			final Properties properties = new Properties(store.getProperties());
+
+			properties.setProperty(DataLoader.Options.PARSER_THREADS, "2");
+
+			final DataLoader dataLoader = new DataLoader(properties, store);
+
+			dataLoader.loadFiles(tmpDir, null/* baseURI */, RDFFormat.TURTLE, null/* defaultGraph */,
+					DataLoader.getFilenameFilter());
+
+			ok = true;
+
+		} catch (Throwable t) {
+
+			if (!InnerCause.isInnerCause(t, RDFParseException.class)) {
+
+				fail("Expected inner cause " + RDFParseException.class + " not found in " + t, t);
+
+			}
+
+		} finally {
+
+			recursiveDelete(tmpDir);
+
+			store.__tearDownUnitTest();
+
+		}
+
+		if (ok)
+			fail("Error should have been reported.");
+
+	}
+
+	private static final URI FOAF_PERSON = new URIImpl("http://xmlns.com/foaf/0.1/Person");
+
+	/**
+	 * Note: has a Literal in the Subject position.
+	 */
+	private static final String BAD_DATA = ""+//
+			"@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n"+//
+			"@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n"+//
+			"\"Mike\" rdf:type foaf:Person .\n"+//
+			"";
+
+	/**
+	 * Return <code>nstmts + 2</code> distinct statements, including a blank
+	 * node which uses the same label in each file.
+	 */
+	private static String getData(final int file, final int nstmts) {
+
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("@prefix bd: <http://www.bigdata.com/> .\n");
+		sb.append("@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n");
+		sb.append("@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n");
+		sb.append("@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n");
+		sb.append("_:a rdf:type foaf:Person .\n");
+		sb.append("_:a rdfs:label \"file" + file + "\" .\n");
+
+		for (int i = 0; i < nstmts; i++) {
+
+			sb.append("bd:s" + file + "_" + i + " foaf:knows _:a .\n");
+
+		}
+
+		return sb.toString();
+
+	}
+
+	private File newTempDir() throws IOException {
+
+		final File tmpDir = File.createTempFile(getClass().getName(), ".tmp");
+
+		tmpDir.delete(); // delete random file name.
+
+		tmpDir.mkdir(); // recreate it as a directory.
+
+		return tmpDir;
+
+	}
+
 	private void doDurableQueueTest(final DataLoader dataLoader) throws IOException {
 		
 		// temporary directory where we setup the test.
@@ -104,6 +104,9 @@ public class TestTripleStoreBasics extends TestCase2 {
 
         // the DataLoader utility.
         suite.addTestSuite(TestDataLoader.class);
+
+        // the bottom-up bulk build load path.
+        suite.addTestSuite(TestBulkBuildLoader.class);
         
 		/**
 		 * Test suite for configuration of the BLOBS index support.
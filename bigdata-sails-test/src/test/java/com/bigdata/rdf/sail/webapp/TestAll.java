@@ -62,6 +62,9 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(TestServiceWhiteList.class);
 
+        // Dictionary encoded binary SPARQL result format.
+        suite.addTestSuite(TestDictionaryQueryResultFormat.class);
+
 //
 //        /*
 //         * WebApp Client.
@@ -0,0 +1,294 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.impl.ListBindingSet;
+import org.openrdf.query.impl.TupleQueryResultBuilder;
+import org.openrdf.query.resultio.QueryResultParseException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
+import org.openrdf.query.resultio.TupleQueryResultWriterRegistry;
+
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.sail.webapp.client.ConnectOptions;
+import com.bigdata.rdf.sail.webapp.client.DictionaryQueryResultFormat;
+import com.bigdata.rdf.sail.webapp.client.DictionaryQueryResultParser;
+
+/**
+ * Test suite for the {@link DictionaryQueryResultWriter} and the
+ * {@link DictionaryQueryResultParser}.
+ */
+public class TestDictionaryQueryResultFormat extends TestCase2 {
+
+    public TestDictionaryQueryResultFormat() {
+    }
+
+    public TestDictionaryQueryResultFormat(final String name) {
+        super(name);
+    }
+
+    private final ValueFactory f = ValueFactoryImpl.getInstance();
+
+    private static final List<String> VARS = Arrays.asList("a", "b");
+
+    /**
+     * The format, writer and parser are discovered by MIME type.
+     */
+    public void test_registered() {
+
+        ServiceProviderHook.forceLoad();
+
+        final TupleQueryResultFormat format = TupleQueryResultFormat
+                .forMIMEType(DictionaryQueryResultFormat.MIME_TYPE);
+
+        assertEquals(DictionaryQueryResultFormat.FORMAT, format);
+
+        assertNotNull(TupleQueryResultWriterRegistry.getInstance().get(format));
+
+        assertNotNull(TupleQueryResultParserRegistry.getInstance().get(format));
+
+    }
+
+    /**
+     * The format is preferred (no quality annotation) by the default
+     * <code>Accept</code> header for solution sets.
+     */
+    public void test_preferredByClient() {
+
+        final List<String> accept = Arrays
+                .asList(ConnectOptions.DEFAULT_SOLUTIONS_ACCEPT_HEADER
+                        .split("\\s*,\\s*"));
+
+        assertTrue(ConnectOptions.DEFAULT_SOLUTIONS_ACCEPT_HEADER,
+                accept.contains(DictionaryQueryResultFormat.MIME_TYPE));
+
+    }
+
+    public void test_terms() throws Exception {
+
+        doRoundTrip(Arrays.asList(//
+                solution(f.createURI("http://example.org/s"),
+                        f.createBNode("b1")),//
+                solution(f.createLiteral("plain"),
+                        f.createLiteral("chat", "fr")),//
+                solution(f.createLiteral("x", f.createURI("http://example.org/dt")),
+                        null),//
+                solution(null, null),//
+                solution(f.createLiteral("café € 😀"),
+                        f.createURI("http://example.org/s"))//
+                ));
+
+    }
+
+    public void test_nativeValues() throws Exception {
+
+        final byte[] data = doRoundTrip(Arrays.asList(//
+                solution(f.createLiteral(12), f.createLiteral(-12L)),//
+                solution(f.createLiteral(Integer.MIN_VALUE),
+                        f.createLiteral(Long.MAX_VALUE)),//
+                solution(f.createLiteral((short) -7), f.createLiteral((byte) 3)),//
+                solution(f.createLiteral(1.5d), f.createLiteral(-0.25f)),//
+                solution(f.createLiteral(true), f.createLiteral(false)),//
+                solution(f.createLiteral("123456789012", XMLSchema.INTEGER),
+                        f.createLiteral("2014-01-01", XMLSchema.DATE)),//
+                solution(f.createLiteral("2014-01-01T10:00:00Z",
+                        XMLSchema.DATETIME), f.createLiteral(
+                        "2014-01-01T10:00:00.123+01:00", XMLSchema.DATETIME)),//
+                solution(f.createLiteral("2014-01-01T10:00:00",
+                        XMLSchema.DATETIME), f.createLiteral("2014-01-01-05:00",
+                        XMLSchema.DATE))//
+                ));
+
+        /*
+         * Nothing was written into the dictionary (the first record after the
+         * header is the chunk of solutions).
+         */
+        final int headerSize = 4/* magic */+ 4/* version */+ 1/* nvars */
+                + 2/* "a" */+ 2/* "b" */;
+
+        assertEquals(DictionaryQueryResultFormat.SOLUTIONS, data[headerSize]);
+
+    }
+
+    /**
+     * Literals whose lexical form is not canonical (or not valid) are sent
+     * through the dictionary and must be preserved exactly.
+     */
+    public void test_nonCanonicalValues() throws Exception {
+
+        doRoundTrip(Arrays.asList(//
+                solution(f.createLiteral("012", XMLSchema.INT),
+                        f.createLiteral("+5", XMLSchema.LONG)),//
+                solution(f.createLiteral("1e3", XMLSchema.DOUBLE),
+                        f.createLiteral("INF", XMLSchema.FLOAT)),//
+                solution(f.createLiteral("1", XMLSchema.BOOLEAN),
+                        f.createLiteral("abc", XMLSchema.INT)),//
+                solution(f.createLiteral("99999999999999999999999",
+                        XMLSchema.INTEGER), f.createLiteral(
+                        "2014-01-01T10:00:00.5Z", XMLSchema.DATETIME)),//
+                solution(f.createLiteral("2014-1-1", XMLSchema.DATE),
+                        f.createLiteral("300", XMLSchema.BYTE))//
+                ));
+
+    }
+
+    /**
+     * Many solutions spanning several chunks. Each distinct value is only
+     * written once.
+     */
+    public void test_chunks() throws Exception {
+
+        final String uri = "http://example.org/a/rather/long/uri/which/repeats";
+
+        final List<BindingSet> solutions = new LinkedList<BindingSet>();
+
+        for (int i = 0; i < 2500; i++) {
+
+            solutions.add(solution(f.createURI(uri),
+                    f.createLiteral("v" + (i % 10))));
+
+        }
+
+        final byte[] data = doRoundTrip(solutions);
+
+        assertTrue("size=" + data.length, data.length < 2500 * 8);
+
+    }
+
+    public void test_badMagic() throws Exception {
+
+        final DictionaryQueryResultParser p = new DictionaryQueryResultParser();
+
+        try {
+            p.parse(new ByteArrayInputStream(new byte[] { 'X', 'X', 'X', 'X',
+                    0, 0, 0, 1 }));
+            fail("Expecting: " + QueryResultParseException.class);
+        } catch (QueryResultParseException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    public void test_truncated() throws Exception {
+
+        final byte[] data = write(Arrays.asList(solution(
+                f.createURI("http://example.org/s"), null)));
+
+        final DictionaryQueryResultParser p = new DictionaryQueryResultParser();
+
+        try {
+            p.parse(new ByteArrayInputStream(data, 0, data.length - 1));
+            fail("Expecting: " + QueryResultParseException.class);
+        } catch (QueryResultParseException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    private BindingSet solution(final Value a, final Value b) {
+
+        return new ListBindingSet(VARS, a, b);
+
+    }
+
+    private byte[] write(final List<BindingSet> solutions) throws Exception {
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        final DictionaryQueryResultWriter w = new DictionaryQueryResultWriter(
+                os);
+
+        w.startQueryResult(VARS);
+
+        for (BindingSet bs : solutions)
+            w.handleSolution(bs);
+
+        w.endQueryResult();
+
+        return os.toByteArray();
+
+    }
+
+    /**
+     * Write and then parse the solutions, verifying that the parsed solutions
+     * are the same (in the same order).
+     * 
+     * @return The encoded solutions.
+     */
+    private byte[] doRoundTrip(final List<BindingSet> solutions)
+            throws Exception {
+
+        final byte[] data = write(solutions);
+
+        final TupleQueryResultBuilder builder = new TupleQueryResultBuilder();
+
+        final DictionaryQueryResultParser p = new DictionaryQueryResultParser();
+
+        p.setTupleQueryResultHandler(builder);
+
+        p.parse(new ByteArrayInputStream(data));
+
+        final List<BindingSet> actual = new LinkedList<BindingSet>();
+
+        final org.openrdf.query.TupleQueryResult r = builder.getQueryResult();
+
+        assertEquals(VARS, r.getBindingNames());
+
+        while (r.hasNext())
+            actual.add(r.next());
+
+        assertEquals(solutions.size(), actual.size());
+
+        for (int i = 0; i < solutions.size(); i++) {
+
+            assertEquals("solution[" + i + "]", solutions.get(i),
+                    actual.get(i));
+
+        }
+
+        return data;
+
+    }
+
+}
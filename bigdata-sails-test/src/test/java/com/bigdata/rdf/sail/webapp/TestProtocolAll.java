@@ -36,6 +36,7 @@ public class TestProtocolAll  extends TestCase  {
         suite.addTestSuite(TestRelease123Protocol.class);
         suite.addTestSuite(TestPostNotURLEncoded.class);
         suite.addTestSuite(TestAskJsonTrac704.class);
+        suite.addTestSuite(TestStreamingResults.class);
         return suite;
     }
 
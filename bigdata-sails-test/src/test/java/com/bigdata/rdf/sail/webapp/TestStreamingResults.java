@@ -0,0 +1,173 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 17, 2026
+ */
+
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.Test;
+
+import org.openrdf.query.QueryResults;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.resultio.QueryResultIO;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+/**
+ * Test suite for the streaming SELECT result path.
+ * 
+ * @see BigdataRDFContext#STREAMING
+ */
+public class TestStreamingResults extends AbstractProtocolTest {
+
+    public TestStreamingResults(final String name) {
+        super(name);
+    }
+
+    static public Test suite() {
+        return ProxySuiteHelper.suiteWhenStandalone(TestStreamingResults.class,
+                "test.*", TestMode.quads, TestMode.sids, TestMode.triples);
+    }
+
+    /**
+     * Data with IRIs, plain, language tagged and datatyped literals, inline
+     * values, characters which must be escaped, and non-ASCII characters
+     * (including a surrogate pair).
+     */
+    private static final String DATA = "PREFIX : <http://example.org/>\n"
+            + "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+            + "INSERT DATA {\n"
+            + " :s1 :p :o1 .\n"
+            + " :s1 :q \"plain\" .\n"
+            + " :s2 :p :o2 .\n"
+            + " :s2 :q \"chat\"@fr .\n"
+            + " :s3 :p :o3 .\n"
+            + " :s3 :q \"12\"^^xsd:int .\n"
+            + " :s4 :p :o4 .\n"
+            + " :s4 :q \"a \\\"quoted\\\" <tag> & 'x'\\ttab\\nline\\\\\" .\n"
+            + " :s5 :p :o5 .\n"
+            + " :s5 :q \"caf\u00e9 \u20ac \uD83D\uDE00\" .\n"
+            + " :s6 :p :o6 .\n"
+            + " :s6 :q \"2014-01-01\"^^xsd:date .\n"
+            + " :s7 :p :o7 .\n"
+            + "}";
+
+    private static final String QUERY = "PREFIX : <http://example.org/>\n"
+            + "SELECT ?s ?o ?v { ?s :p ?o OPTIONAL { ?s :q ?v } }";
+
+    @Override
+    public void setUp() throws Exception {
+
+        super.setUp();
+
+        setMethodisPost(BigdataRDFServlet.MIME_SPARQL_UPDATE, DATA);
+
+        serviceRequest();
+
+    }
+
+    public void testStreamingXML() throws Exception {
+        doStreamingTest(TupleQueryResultFormat.SPARQL, QUERY, 7);
+    }
+
+    public void testStreamingJSON() throws Exception {
+        doStreamingTest(TupleQueryResultFormat.JSON, QUERY, 7);
+    }
+
+    public void testStreamingTSV() throws Exception {
+        doStreamingTest(TupleQueryResultFormat.TSV, QUERY, 7);
+    }
+
+    /**
+     * The projection is not materialized by the query plan when the query
+     * has a SLICE.
+     */
+    public void testStreamingWithSlice() throws Exception {
+        final String query = QUERY + " ORDER BY ?s LIMIT 3";
+        doStreamingTest(TupleQueryResultFormat.SPARQL, query, 3);
+        doStreamingTest(TupleQueryResultFormat.JSON, query, 3);
+        doStreamingTest(TupleQueryResultFormat.TSV, query, 3);
+    }
+
+    public void testStreamingEmpty() throws Exception {
+        final String query = "SELECT ?s { ?s <http://example.org/none> ?o }";
+        doStreamingTest(TupleQueryResultFormat.SPARQL, query, 0);
+        doStreamingTest(TupleQueryResultFormat.JSON, query, 0);
+        doStreamingTest(TupleQueryResultFormat.TSV, query, 0);
+    }
+
+    /**
+     * Verify that the streaming and non-streaming responses parse into the
+     * same solutions.
+     */
+    private void doStreamingTest(final TupleQueryResultFormat format,
+            final String query, final int expectedCount) throws Exception {
+
+        final String mimeType = format.getDefaultMIMEType();
+
+        setAccept(mimeType);
+        final String expected = serviceRequest("query", query);
+
+        setAccept(mimeType);
+        final String actual = serviceRequest("query", query,
+                BigdataRDFContext.STREAMING, "true");
+        assertTrue(getResponseContentType(), getResponseContentType()
+                .startsWith(mimeType));
+
+        assertEquals(actual, expectedCount, count(parse(actual, format)));
+
+        assertTrue(expected + "\n" + actual, QueryResults.equals(parse(expected, format),
+                parse(actual, format)));
+
+    }
+
+    private static TupleQueryResult parse(final String s,
+            final TupleQueryResultFormat format) throws Exception {
+
+        return QueryResultIO.parse(new ByteArrayInputStream(s
+                .getBytes("UTF-8")), format);
+
+    }
+
+    private static int count(final TupleQueryResult result) throws Exception {
+
+        int n = 0;
+
+        try {
+            while (result.hasNext()) {
+                result.next();
+                n++;
+            }
+        } finally {
+            result.close();
+        }
+
+        return n;
+
+    }
+
+}
@@ -98,6 +98,10 @@ public class ServiceProviderHook {
 	public static final String JSON_RESULT_PARSER_FACTORY = "com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserFactory"; 
 	public static final String JSON_CONSTRUCT_PARSER_FACTORY = "com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserForConstructFactory";
 	
+	public static final String DICTIONARY_WRITER_FACTORY = "com.bigdata.rdf.sail.webapp.DictionaryQueryResultWriterFactory";
+	
+	public static final String DICTIONARY_PARSER_FACTORY = "com.bigdata.rdf.sail.webapp.client.DictionaryQueryResultParserFactory";
+	
 	
 	
     static private boolean loaded = false;
@@ -247,6 +251,9 @@ public class ServiceProviderHook {
         	// add our custom RDR-enabled JSON writer for SPARQL result sets.
         	r.add((TupleQueryResultWriterFactory) getInstanceForClass(JSON_WRITER_FACTORY));
         	
+        	// add the dictionary encoded binary writer for SPARQL result sets.
+        	r.add((TupleQueryResultWriterFactory) getInstanceForClass(DICTIONARY_WRITER_FACTORY));
+        	
         }
 
         {
@@ -257,6 +264,9 @@ public class ServiceProviderHook {
            
             r.add((TupleQueryResultParserFactory) getInstanceForClass(JSON_RESULT_PARSER_FACTORY));
             
+            // add the dictionary encoded binary parser for SPARQL result sets.
+            r.add((TupleQueryResultParserFactory) getInstanceForClass(DICTIONARY_PARSER_FACTORY));
+            
         }
 
         // Ditto, but for the writer.